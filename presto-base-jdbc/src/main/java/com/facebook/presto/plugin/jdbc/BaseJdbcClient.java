@@ -13,13 +13,20 @@
  */
 package com.facebook.presto.plugin.jdbc;
 
+import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.ConnectorSplit;
 import com.facebook.presto.spi.ConnectorSplitSource;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.FixedSplitSource;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.TableNotFoundException;
+import com.facebook.presto.spi.block.SortOrder;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.VarcharType;
 import com.google.common.base.Joiner;
@@ -28,21 +35,26 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import io.airlift.log.Logger;
 import io.airlift.slice.Slice;
+import org.joda.time.chrono.ISOChronology;
 
 import javax.annotation.Nullable;
 
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.Date;
 import java.sql.Driver;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
@@ -68,9 +80,13 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Maps.fromProperties;
 import static java.lang.Math.min;
+import static java.lang.String.format;
 import static java.util.Collections.nCopies;
 import static java.util.Locale.ENGLISH;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.joda.time.DateTimeZone.UTC;
 
 public class BaseJdbcClient
         implements JdbcClient
@@ -97,6 +113,8 @@ public class BaseJdbcClient
     protected final String connectionUrl;
     protected final Properties connectionProperties;
     protected final String identifierQuote;
+    protected final int splitCount;
+    protected final Map<SchemaTableName, String> splitColumns;
 
     public BaseJdbcClient(JdbcConnectorId connectorId, BaseJdbcConfig config, String identifierQuote, Driver driver)
     {
@@ -106,6 +124,8 @@ public class BaseJdbcClient
 
         requireNonNull(config, "config is null");
         connectionUrl = config.getConnectionUrl();
+        splitCount = config.getSplitCount();
+        splitColumns = config.getSplitColumns();
 
         connectionProperties = new Properties();
         if (config.getConnectionUser() != null) {
@@ -227,15 +247,29 @@ public class BaseJdbcClient
     public ConnectorSplitSource getSplits(JdbcTableLayoutHandle layoutHandle)
     {
         JdbcTableHandle tableHandle = layoutHandle.getTable();
-        JdbcSplit jdbcSplit = new JdbcSplit(
-                connectorId,
-                tableHandle.getCatalogName(),
-                tableHandle.getSchemaName(),
-                tableHandle.getTableName(),
-                connectionUrl,
-                fromProperties(connectionProperties),
-                layoutHandle.getTupleDomain());
-        return new FixedSplitSource(ImmutableList.of(jdbcSplit));
+        ImmutableList.Builder<ConnectorSplit> splits = ImmutableList.builder();
+        for (TupleDomain<ColumnHandle> tupleDomain : getSplitTupleDomains(tableHandle, layoutHandle.getTupleDomain())) {
+            splits.add(new JdbcSplit(
+                    connectorId,
+                    tableHandle.getCatalogName(),
+                    tableHandle.getSchemaName(),
+                    tableHandle.getTableName(),
+                    connectionUrl,
+                    fromProperties(connectionProperties),
+                    tupleDomain,
+                    layoutHandle.getSortOrder(),
+                    layoutHandle.getLimit()));
+        }
+        return new FixedSplitSource(splits.build());
+    }
+
+    @Override
+    public boolean isLimitSupported(List<JdbcSortItem> sortOrder)
+    {
+        // strings are not ordered by the database the way they are ordered by Presto, as that depends on the collation
+        return sortOrder.stream()
+                .map(sortItem -> sortItem.getColumn().getColumnType())
+                .allMatch(BaseJdbcClient::isSupportedSortColumnType);
     }
 
     @Override
@@ -264,7 +298,11 @@ public class BaseJdbcClient
                 split.getSchemaName(),
                 split.getTableName(),
                 columnHandles,
-                split.getTupleDomain());
+                split.getTupleDomain(),
+                split.getSortOrder().stream()
+                        .map(sortItem -> toOrderByItem(quoted(sortItem.getColumn().getColumnName()), sortItem.getSortOrder()))
+                        .collect(toList()),
+                split.getLimit());
     }
 
     @Override
@@ -397,6 +435,170 @@ public class BaseJdbcClient
         return connection.prepareStatement(sql);
     }
 
+    /**
+     * Divide the table into non-overlapping ranges of its split column, and return
+     * the predicate of each range intersected with the given predicate. The first
+     * and last ranges are unbounded, so that rows written after the bounds of the
+     * column were read are not lost, and the first range includes nulls.
+     */
+    protected List<TupleDomain<ColumnHandle>> getSplitTupleDomains(JdbcTableHandle tableHandle, TupleDomain<ColumnHandle> tupleDomain)
+    {
+        if (splitCount == 1 || tupleDomain.isNone()) {
+            return ImmutableList.of(tupleDomain);
+        }
+
+        Optional<JdbcColumnHandle> splitColumn = getSplitColumn(tableHandle);
+        if (!splitColumn.isPresent()) {
+            return ImmutableList.of(tupleDomain);
+        }
+        JdbcColumnHandle column = splitColumn.get();
+        Type type = column.getColumnType();
+
+        Optional<long[]> bounds = getSplitColumnBounds(tableHandle, column);
+        if (!bounds.isPresent()) {
+            return ImmutableList.of(tupleDomain);
+        }
+        BigInteger min = BigInteger.valueOf(bounds.get()[0]);
+        BigInteger valueCount = BigInteger.valueOf(bounds.get()[1]).subtract(min).add(BigInteger.ONE);
+        int rangeCount = valueCount.min(BigInteger.valueOf(splitCount)).intValueExact();
+
+        ImmutableList.Builder<TupleDomain<ColumnHandle>> tupleDomains = ImmutableList.builder();
+        Optional<Long> low = Optional.empty();
+        for (int i = 1; i <= rangeCount; i++) {
+            Optional<Long> high = Optional.empty();
+            if (i < rangeCount) {
+                high = Optional.of(min.add(valueCount.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(rangeCount))).longValueExact());
+            }
+
+            Range range;
+            if (low.isPresent() && high.isPresent()) {
+                range = Range.range(type, low.get(), true, high.get(), false);
+            }
+            else if (low.isPresent()) {
+                range = Range.greaterThanOrEqual(type, low.get());
+            }
+            else if (high.isPresent()) {
+                range = Range.lessThan(type, high.get());
+            }
+            else {
+                range = Range.all(type);
+            }
+            Domain domain = Domain.create(ValueSet.ofRanges(range), !low.isPresent());
+
+            TupleDomain<ColumnHandle> rangeTupleDomain = tupleDomain.intersect(TupleDomain.withColumnDomains(ImmutableMap.of(column, domain)));
+            if (!rangeTupleDomain.isNone()) {
+                tupleDomains.add(rangeTupleDomain);
+            }
+            low = high;
+        }
+        return tupleDomains.build();
+    }
+
+    /**
+     * Return the column configured as the split column of the table. Tables that are
+     * not listed in the split columns are read with a single split. The column must
+     * be of a type that is stored as a long.
+     */
+    protected Optional<JdbcColumnHandle> getSplitColumn(JdbcTableHandle tableHandle)
+    {
+        String splitColumnName = splitColumns.get(tableHandle.getSchemaTableName());
+        if (splitColumnName == null) {
+            return Optional.empty();
+        }
+
+        Optional<JdbcColumnHandle> column = getColumns(tableHandle).stream()
+                .filter(handle -> handle.getColumnName().equalsIgnoreCase(splitColumnName))
+                .findFirst();
+        if (!column.isPresent()) {
+            throw new PrestoException(NOT_FOUND, format("Split column %s not found in table %s", splitColumnName, tableHandle.getSchemaTableName()));
+        }
+        if (!isSupportedSplitColumnType(column.get().getColumnType())) {
+            throw new PrestoException(NOT_SUPPORTED, format("Split column %s of table %s has unsupported type: %s", splitColumnName, tableHandle.getSchemaTableName(), column.get().getColumnType()));
+        }
+        return column;
+    }
+
+    /**
+     * Return the lowest and highest value of the split column, or empty if the
+     * table has no rows with a value in the column.
+     */
+    protected Optional<long[]> getSplitColumnBounds(JdbcTableHandle tableHandle, JdbcColumnHandle column)
+    {
+        String sql = new StringBuilder()
+                .append("SELECT min(").append(quoted(column.getColumnName())).append("), ")
+                .append("max(").append(quoted(column.getColumnName())).append(") FROM ")
+                .append(quoted(tableHandle.getCatalogName(), tableHandle.getSchemaName(), tableHandle.getTableName()))
+                .toString();
+
+        try (Connection connection = driver.connect(connectionUrl, connectionProperties);
+                Statement statement = connection.createStatement()) {
+            log.debug("Execute: %s", sql);
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
+                }
+                Type type = column.getColumnType();
+                Optional<Long> min = getSplitColumnValue(resultSet, 1, type);
+                Optional<Long> max = getSplitColumnValue(resultSet, 2, type);
+                if (!min.isPresent() || !max.isPresent()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new long[] {min.get(), max.get()});
+            }
+        }
+        catch (SQLException e) {
+            throw new PrestoException(JDBC_ERROR, e);
+        }
+    }
+
+    /**
+     * Return the item of the ORDER BY clause that sorts by the column in the given order.
+     */
+    protected String toOrderByItem(String quotedColumnName, SortOrder sortOrder)
+    {
+        return quotedColumnName +
+                (sortOrder.isAscending() ? " ASC" : " DESC") +
+                (sortOrder.isNullsFirst() ? " NULLS FIRST" : " NULLS LAST");
+    }
+
+    private static boolean isSupportedSortColumnType(Type type)
+    {
+        return type.equals(BIGINT) ||
+                type.equals(INTEGER) ||
+                type.equals(DOUBLE) ||
+                type.equals(BOOLEAN) ||
+                type.equals(DATE) ||
+                type.equals(TIMESTAMP);
+    }
+
+    private static boolean isSupportedSplitColumnType(Type type)
+    {
+        return type.equals(BIGINT) ||
+                type.equals(INTEGER) ||
+                type.equals(DATE) ||
+                type.equals(TIMESTAMP);
+    }
+
+    private static Optional<Long> getSplitColumnValue(ResultSet resultSet, int index, Type type)
+            throws SQLException
+    {
+        if (type.equals(DATE)) {
+            Date date = resultSet.getDate(index);
+            if (date == null) {
+                return Optional.empty();
+            }
+            // JDBC returns a date using a timestamp at midnight in the JVM timezone
+            long utcMillis = ISOChronology.getInstance().getZone().getMillisKeepLocal(UTC, date.getTime());
+            return Optional.of(MILLISECONDS.toDays(utcMillis));
+        }
+        if (type.equals(TIMESTAMP)) {
+            Timestamp timestamp = resultSet.getTimestamp(index);
+            return Optional.ofNullable(timestamp).map(Timestamp::getTime);
+        }
+        long value = resultSet.getLong(index);
+        return resultSet.wasNull() ? Optional.empty() : Optional.of(value);
+    }
+
     protected ResultSet getTables(Connection connection, String schemaName, String tableName)
             throws SQLException
     {
@@ -13,15 +13,27 @@
  */
 package com.facebook.presto.plugin.jdbc;
 
+import com.facebook.presto.spi.SchemaTableName;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class BaseJdbcConfig
 {
     private String connectionUrl;
     private String connectionUser;
     private String connectionPassword;
+    private int splitCount = 1;
+    private Map<SchemaTableName, String> splitColumns = ImmutableMap.of();
 
     @NotNull
     public String getConnectionUrl()
@@ -59,4 +71,38 @@ public class BaseJdbcConfig
         this.connectionPassword = connectionPassword;
         return this;
     }
+
+    @Min(1)
+    public int getSplitCount()
+    {
+        return splitCount;
+    }
+
+    @Config("split-count")
+    @ConfigDescription("Number of splits a table is read with, as ranges of its split column")
+    public BaseJdbcConfig setSplitCount(int splitCount)
+    {
+        this.splitCount = splitCount;
+        return this;
+    }
+
+    @NotNull
+    public Map<SchemaTableName, String> getSplitColumns()
+    {
+        return splitColumns;
+    }
+
+    @Config("split-columns")
+    @ConfigDescription("Comma separated list of schema.table.column naming the tables that are read with range splits and their split column")
+    public BaseJdbcConfig setSplitColumns(String splitColumns)
+    {
+        ImmutableMap.Builder<SchemaTableName, String> builder = ImmutableMap.builder();
+        for (String splitColumn : Splitter.on(',').omitEmptyStrings().trimResults().split(splitColumns)) {
+            List<String> parts = Splitter.on('.').trimResults().splitToList(splitColumn);
+            checkArgument(parts.size() == 3, "Invalid split column (must be schema.table.column): %s", splitColumn);
+            builder.put(new SchemaTableName(parts.get(0), parts.get(1)), parts.get(2));
+        }
+        this.splitColumns = builder.build();
+        return this;
+    }
 }
@@ -40,6 +40,12 @@ public interface JdbcClient
 
     ConnectorSplitSource getSplits(JdbcTableLayoutHandle layoutHandle);
 
+    /**
+     * Whether the database can apply a limit to the query of a split, after sorting
+     * the rows in the given order the same way Presto sorts them.
+     */
+    boolean isLimitSupported(List<JdbcSortItem> sortOrder);
+
     Connection getConnection(JdbcSplit split)
             throws SQLException;
 
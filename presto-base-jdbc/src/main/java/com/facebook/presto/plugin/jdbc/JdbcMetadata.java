@@ -27,6 +27,7 @@ import com.facebook.presto.spi.Constraint;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
+import com.facebook.presto.spi.SortingProperty;
 import com.facebook.presto.spi.TableNotFoundException;
 import com.facebook.presto.spi.connector.ConnectorMetadata;
 import com.google.common.collect.ImmutableList;
@@ -37,6 +38,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -85,6 +87,24 @@ public class JdbcMetadata
         return new ConnectorTableLayout(handle);
     }
 
+    @Override
+    public Optional<ConnectorTableLayoutHandle> pushDownLimit(ConnectorSession session, ConnectorTableLayoutHandle tableLayoutHandle, List<SortingProperty<ColumnHandle>> orderBy, long limit)
+    {
+        JdbcTableLayoutHandle layoutHandle = checkType(tableLayoutHandle, JdbcTableLayoutHandle.class, "tableLayoutHandle");
+        if (layoutHandle.getLimit().isPresent()) {
+            return Optional.empty();
+        }
+
+        ImmutableList.Builder<JdbcSortItem> sortOrder = ImmutableList.builder();
+        for (SortingProperty<ColumnHandle> property : orderBy) {
+            sortOrder.add(new JdbcSortItem(checkType(property.getColumn(), JdbcColumnHandle.class, "column"), property.getOrder()));
+        }
+        if (!jdbcClient.isLimitSupported(sortOrder.build())) {
+            return Optional.empty();
+        }
+        return Optional.of(new JdbcTableLayoutHandle(layoutHandle.getTable(), layoutHandle.getTupleDomain(), sortOrder.build(), OptionalLong.of(limit)));
+    }
+
     @Override
     public ConnectorTableMetadata getTableMetadata(ConnectorSession session, ConnectorTableHandle table)
     {
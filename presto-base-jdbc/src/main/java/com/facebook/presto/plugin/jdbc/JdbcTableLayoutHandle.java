@@ -18,24 +18,39 @@ import com.facebook.presto.spi.ConnectorTableLayoutHandle;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
 
 public class JdbcTableLayoutHandle
         implements ConnectorTableLayoutHandle
 {
     private final JdbcTableHandle table;
     private final TupleDomain<ColumnHandle> tupleDomain;
+    private final List<JdbcSortItem> sortOrder;
+    private final OptionalLong limit;
+
+    public JdbcTableLayoutHandle(JdbcTableHandle table, TupleDomain<ColumnHandle> domain)
+    {
+        this(table, domain, ImmutableList.of(), OptionalLong.empty());
+    }
 
     @JsonCreator
     public JdbcTableLayoutHandle(
             @JsonProperty("table") JdbcTableHandle table,
-            @JsonProperty("tupleDomain") TupleDomain<ColumnHandle> domain)
+            @JsonProperty("tupleDomain") TupleDomain<ColumnHandle> domain,
+            @JsonProperty("sortOrder") List<JdbcSortItem> sortOrder,
+            @JsonProperty("limit") OptionalLong limit)
     {
         this.table = requireNonNull(table, "table is null");
         this.tupleDomain = requireNonNull(domain, "tupleDomain is null");
+        this.sortOrder = ImmutableList.copyOf(requireNonNull(sortOrder, "sortOrder is null"));
+        this.limit = requireNonNull(limit, "limit is null");
     }
 
     @JsonProperty
@@ -50,6 +65,18 @@ public class JdbcTableLayoutHandle
         return tupleDomain;
     }
 
+    @JsonProperty
+    public List<JdbcSortItem> getSortOrder()
+    {
+        return sortOrder;
+    }
+
+    @JsonProperty
+    public OptionalLong getLimit()
+    {
+        return limit;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -61,18 +88,30 @@ public class JdbcTableLayoutHandle
         }
         JdbcTableLayoutHandle that = (JdbcTableLayoutHandle) o;
         return Objects.equals(table, that.table) &&
-                Objects.equals(tupleDomain, that.tupleDomain);
+                Objects.equals(tupleDomain, that.tupleDomain) &&
+                Objects.equals(sortOrder, that.sortOrder) &&
+                Objects.equals(limit, that.limit);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(table, tupleDomain);
+        return Objects.hash(table, tupleDomain, sortOrder, limit);
     }
 
     @Override
     public String toString()
     {
-        return table.toString();
+        // the pushed down sort order and limit are part of the query sent to the database, so show them in EXPLAIN
+        StringBuilder builder = new StringBuilder(table.toString());
+        if (!sortOrder.isEmpty()) {
+            builder.append(" ORDER BY ").append(sortOrder.stream()
+                    .map(JdbcSortItem::toString)
+                    .collect(joining(", ")));
+        }
+        if (limit.isPresent()) {
+            builder.append(" LIMIT ").append(limit.getAsLong());
+        }
+        return builder.toString();
     }
 }
@@ -21,6 +21,7 @@ import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.BooleanType;
 import com.facebook.presto.spi.type.DateType;
 import com.facebook.presto.spi.type.DoubleType;
+import com.facebook.presto.spi.type.IntegerType;
 import com.facebook.presto.spi.type.TimeType;
 import com.facebook.presto.spi.type.TimeWithTimeZoneType;
 import com.facebook.presto.spi.type.TimestampType;
@@ -40,12 +41,16 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
 
+import static com.facebook.presto.plugin.jdbc.Types.checkType;
 import static com.facebook.presto.spi.type.DateTimeEncoding.unpackMillisUtc;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.lang.Math.toIntExact;
 import static java.util.Collections.nCopies;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.DAYS;
@@ -85,6 +90,21 @@ public class QueryBuilder
 
     public PreparedStatement buildSql(JdbcClient client, Connection connection, String catalog, String schema, String table, List<JdbcColumnHandle> columns, TupleDomain<ColumnHandle> tupleDomain)
             throws SQLException
+    {
+        return buildSql(client, connection, catalog, schema, table, columns, tupleDomain, ImmutableList.of(), OptionalLong.empty());
+    }
+
+    public PreparedStatement buildSql(
+            JdbcClient client,
+            Connection connection,
+            String catalog,
+            String schema,
+            String table,
+            List<JdbcColumnHandle> columns,
+            TupleDomain<ColumnHandle> tupleDomain,
+            List<String> orderBy,
+            OptionalLong limit)
+            throws SQLException
     {
         StringBuilder sql = new StringBuilder();
 
@@ -110,12 +130,20 @@ public class QueryBuilder
 
         List<TypeAndValue> accumulator = new ArrayList<>();
 
-        List<String> clauses = toConjuncts(columns, tupleDomain, accumulator);
+        List<String> clauses = toConjuncts(tupleDomain, accumulator);
         if (!clauses.isEmpty()) {
             sql.append(" WHERE ")
                     .append(Joiner.on(" AND ").join(clauses));
         }
 
+        if (!orderBy.isEmpty()) {
+            sql.append(" ORDER BY ")
+                    .append(Joiner.on(", ").join(orderBy));
+        }
+        if (limit.isPresent()) {
+            sql.append(" LIMIT ").append(limit.getAsLong());
+        }
+
         PreparedStatement statement = client.getPreparedStatement(connection, sql.toString());
 
         for (int i = 0; i < accumulator.size(); i++) {
@@ -123,6 +151,9 @@ public class QueryBuilder
             if (typeAndValue.getType().equals(BigintType.BIGINT)) {
                 statement.setLong(i + 1, (long) typeAndValue.getValue());
             }
+            else if (typeAndValue.getType().equals(IntegerType.INTEGER)) {
+                statement.setInt(i + 1, toIntExact((long) typeAndValue.getValue()));
+            }
             else if (typeAndValue.getType().equals(DoubleType.DOUBLE)) {
                 statement.setDouble(i + 1, (double) typeAndValue.getValue());
             }
@@ -160,6 +191,7 @@ public class QueryBuilder
     {
         Type validType = requireNonNull(type, "type is null");
         return validType.equals(BigintType.BIGINT) ||
+                validType.equals(IntegerType.INTEGER) ||
                 validType.equals(DoubleType.DOUBLE) ||
                 validType.equals(BooleanType.BOOLEAN) ||
                 validType.equals(DateType.DATE) ||
@@ -170,16 +202,15 @@ public class QueryBuilder
                 validType instanceof VarcharType;
     }
 
-    private List<String> toConjuncts(List<JdbcColumnHandle> columns, TupleDomain<ColumnHandle> tupleDomain, List<TypeAndValue> accumulator)
+    private List<String> toConjuncts(TupleDomain<ColumnHandle> tupleDomain, List<TypeAndValue> accumulator)
     {
+        // the predicate may constrain columns that are not selected, such as the split column of a range split
         ImmutableList.Builder<String> builder = ImmutableList.builder();
-        for (JdbcColumnHandle column : columns) {
+        for (Map.Entry<ColumnHandle, Domain> entry : tupleDomain.getDomains().get().entrySet()) {
+            JdbcColumnHandle column = checkType(entry.getKey(), JdbcColumnHandle.class, "column");
             Type type = column.getColumnType();
             if (isAcceptedType(type)) {
-                Domain domain = tupleDomain.getDomains().get().get(column);
-                if (domain != null) {
-                    builder.add(toPredicate(column.getColumnName(), domain, type, accumulator));
-                }
+                builder.add(toPredicate(column.getColumnName(), entry.getValue(), type, accumulator));
             }
         }
         return builder.build();
@@ -13,10 +13,16 @@
  */
 package com.facebook.presto.plugin.jdbc;
 
+import com.facebook.presto.Session;
 import com.facebook.presto.tests.AbstractTestIntegrationSmokeTest;
+import org.testng.annotations.Test;
 
+import static com.facebook.presto.SystemSessionProperties.PUSH_DOWN_LIMITS;
 import static com.facebook.presto.plugin.jdbc.JdbcQueryRunner.createJdbcQueryRunner;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.airlift.testing.Assertions.assertContains;
 import static io.airlift.tpch.TpchTable.ORDERS;
+import static org.testng.Assert.assertFalse;
 
 public class TestJdbcIntegrationSmokeTest
         extends AbstractTestIntegrationSmokeTest
@@ -27,6 +33,30 @@ public class TestJdbcIntegrationSmokeTest
         super(createJdbcQueryRunner(ORDERS));
     }
 
+    @Test
+    public void testLimitPushdown()
+            throws Exception
+    {
+        assertContains(explain("SELECT orderkey FROM orders LIMIT 5"), "LIMIT 5");
+        assertContains(explain("SELECT orderkey FROM orders ORDER BY orderkey DESC LIMIT 5"), "ORDER BY ORDERKEY DESC_NULLS_LAST LIMIT 5");
+        assertQueryOrdered("SELECT orderkey, orderdate FROM orders ORDER BY orderkey DESC LIMIT 5", "SELECT orderkey, orderdate FROM orders ORDER BY orderkey DESC LIMIT 5");
+        assertQueryOrdered("SELECT orderkey + 1 FROM orders ORDER BY totalprice, orderkey LIMIT 5", "SELECT orderkey + 1 FROM orders ORDER BY totalprice, orderkey LIMIT 5");
+
+        // a filter is not enforced by the database, so the limit must not be applied before it
+        assertFalse(explain("SELECT orderkey FROM orders WHERE orderkey > 10 LIMIT 5").contains("LIMIT 5"));
+
+        // strings may be ordered differently by the database
+        assertFalse(explain("SELECT orderkey FROM orders ORDER BY orderstatus LIMIT 5").contains("LIMIT 5"));
+
+        Session session = getSession().withSystemProperty(PUSH_DOWN_LIMITS, "false");
+        assertFalse(((String) getOnlyElement(computeActual(session, "EXPLAIN SELECT orderkey FROM orders LIMIT 5").getOnlyColumnAsSet())).contains("LIMIT 5"));
+    }
+
+    private String explain(String sql)
+    {
+        return (String) getOnlyElement(computeActual("EXPLAIN " + sql).getOnlyColumnAsSet());
+    }
+
     @Override
     public void testViewAccessControl()
     {
@@ -36,6 +36,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
+import java.util.OptionalLong;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
@@ -256,6 +257,51 @@ public class TestJdbcQueryBuilder
         }
     }
 
+    @Test
+    public void testBuildSqlWithUnselectedColumn()
+            throws SQLException
+    {
+        TupleDomain<ColumnHandle> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.of(
+                columns.get(0), Domain.create(SortedRangeSet.copyOf(BIGINT, ImmutableList.of(Range.range(BIGINT, 10L, true, 13L, false))), false)));
+
+        Connection connection = database.getConnection();
+        try (PreparedStatement preparedStatement = new QueryBuilder("\"").buildSql(jdbcClient, connection, "", "", "test_table", ImmutableList.of(columns.get(3)), tupleDomain);
+                ResultSet resultSet = preparedStatement.executeQuery()) {
+            ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+            while (resultSet.next()) {
+                builder.add((String) resultSet.getObject("col_3"));
+            }
+            assertEquals(builder.build(), ImmutableSet.of("test_str_10", "test_str_11", "test_str_12"));
+        }
+    }
+
+    @Test
+    public void testBuildSqlWithOrderByAndLimit()
+            throws SQLException
+    {
+        TupleDomain<ColumnHandle> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.of(
+                columns.get(0), Domain.create(SortedRangeSet.copyOf(BIGINT, ImmutableList.of(Range.lessThan(BIGINT, 500L))), false)));
+
+        Connection connection = database.getConnection();
+        try (PreparedStatement preparedStatement = new QueryBuilder("\"").buildSql(
+                jdbcClient,
+                connection,
+                "",
+                "",
+                "test_table",
+                ImmutableList.of(columns.get(0)),
+                tupleDomain,
+                ImmutableList.of("\"col_1\" DESC NULLS LAST"),
+                OptionalLong.of(3));
+                ResultSet resultSet = preparedStatement.executeQuery()) {
+            ImmutableList.Builder<Long> builder = ImmutableList.builder();
+            while (resultSet.next()) {
+                builder.add((Long) resultSet.getObject("col_0"));
+            }
+            assertEquals(builder.build(), ImmutableList.of(499L, 498L, 497L));
+        }
+    }
+
     @Test
     public void testEmptyBuildSql()
             throws SQLException
@@ -14,7 +14,9 @@
 package com.facebook.presto.plugin.jdbc;
 
 import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.ConnectorSplit;
 import com.facebook.presto.spi.ConnectorSplitSource;
+import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.spi.RecordSet;
 import com.facebook.presto.spi.SchemaTableName;
@@ -25,10 +27,13 @@ import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.predicate.ValueSet;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import org.h2.Driver;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -195,6 +200,63 @@ public class TestJdbcRecordSetProvider
         ));
     }
 
+    @Test
+    public void testRangeSplits()
+            throws Exception
+    {
+        JdbcClient splittingClient = new BaseJdbcClient(
+                new JdbcConnectorId(TestingDatabase.CONNECTOR_ID),
+                new BaseJdbcConfig()
+                        .setConnectionUrl(database.getConnectionUrl())
+                        .setSplitCount(4)
+                        .setSplitColumns("example.numbers.value"),
+                "\"",
+                new Driver());
+
+        // the text column is selected, so the ranges must be applied to an unselected column
+        List<ConnectorSplit> splits = getFutureValue(splittingClient.getSplits(new JdbcTableLayoutHandle(table, TupleDomain.all())).getNextBatch(1000));
+        assertEquals(splits.size(), 4);
+
+        ConnectorTransactionHandle transaction = new JdbcTransactionHandle();
+        JdbcRecordSetProvider recordSetProvider = new JdbcRecordSetProvider(splittingClient);
+        List<String> texts = new ArrayList<>();
+        for (ConnectorSplit split : splits) {
+            try (RecordCursor cursor = recordSetProvider.getRecordSet(transaction, SESSION, split, ImmutableList.of(textColumn)).cursor()) {
+                while (cursor.advanceNextPosition()) {
+                    texts.add(cursor.getSlice(0).toStringUtf8());
+                }
+            }
+        }
+        assertEquals(ImmutableMultiset.copyOf(texts), ImmutableMultiset.of("one", "two", "three", "ten", "eleven", "twelve"));
+
+        // the ranges are intersected with the predicate
+        TupleDomain<ColumnHandle> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.of(valueColumn, Domain.create(ValueSet.ofRanges(Range.lessThan(BIGINT, 3L)), false)));
+        splits = getFutureValue(splittingClient.getSplits(new JdbcTableLayoutHandle(table, tupleDomain)).getNextBatch(1000));
+        assertEquals(splits.size(), 1);
+
+        // a table that is not listed in the split columns is read with a single split, even with a single column primary key
+        database.getConnection().createStatement().execute("INSERT INTO tpch.orders(orderkey, custkey) VALUES (1, 1), (2, 2), (3, 3), (4, 4), (5, 5)");
+        database.getConnection().commit();
+        JdbcTableHandle orders = splittingClient.getTableHandle(new SchemaTableName("tpch", "orders"));
+        splits = getFutureValue(splittingClient.getSplits(new JdbcTableLayoutHandle(orders, TupleDomain.all())).getNextBatch(1000));
+        assertEquals(splits.size(), 1);
+    }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Split column text of table example.numbers has unsupported type: varchar")
+    public void testUnsupportedSplitColumn()
+            throws Exception
+    {
+        JdbcClient splittingClient = new BaseJdbcClient(
+                new JdbcConnectorId(TestingDatabase.CONNECTOR_ID),
+                new BaseJdbcConfig()
+                        .setConnectionUrl(database.getConnectionUrl())
+                        .setSplitCount(4)
+                        .setSplitColumns("example.numbers.text"),
+                "\"",
+                new Driver());
+        splittingClient.getSplits(new JdbcTableLayoutHandle(table, TupleDomain.all()));
+    }
+
     private RecordCursor getCursor(JdbcTableHandle jdbcTableHandle, List<JdbcColumnHandle> columns, TupleDomain<ColumnHandle> domain)
             throws InterruptedException
     {
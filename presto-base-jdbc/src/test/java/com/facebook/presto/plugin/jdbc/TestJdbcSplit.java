@@ -14,18 +14,30 @@
 package com.facebook.presto.plugin.jdbc;
 
 import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import io.airlift.json.JsonCodec;
 import org.testng.annotations.Test;
 
-import static io.airlift.json.JsonCodec.jsonCodec;
+import java.util.OptionalLong;
+
+import static com.facebook.presto.plugin.jdbc.MetadataUtil.SPLIT_CODEC;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static org.testng.Assert.assertEquals;
 
 public class TestJdbcSplit
 {
-    private final JdbcSplit split = new JdbcSplit("connectorId", "catalog", "schemaName", "tableName", "connectionUrl", ImmutableMap.<String, String>of(), TupleDomain.<ColumnHandle>all());
+    private final JdbcSplit split = new JdbcSplit(
+            "connectorId",
+            "catalog",
+            "schemaName",
+            "tableName",
+            "connectionUrl",
+            ImmutableMap.<String, String>of(),
+            TupleDomain.<ColumnHandle>all(),
+            ImmutableList.of(new JdbcSortItem(new JdbcColumnHandle("connectorId", "column", BIGINT), SortOrder.DESC_NULLS_LAST)),
+            OptionalLong.of(10));
 
     @Test
     public void testAddresses()
@@ -41,12 +53,13 @@ public class TestJdbcSplit
     @Test
     public void testJsonRoundTrip()
     {
-        JsonCodec<JdbcSplit> codec = jsonCodec(JdbcSplit.class);
-        String json = codec.toJson(split);
-        JdbcSplit copy = codec.fromJson(json);
+        String json = SPLIT_CODEC.toJson(split);
+        JdbcSplit copy = SPLIT_CODEC.fromJson(json);
         assertEquals(copy.getConnectorId(), split.getConnectorId());
         assertEquals(copy.getSchemaName(), split.getSchemaName());
         assertEquals(copy.getTableName(), split.getTableName());
+        assertEquals(copy.getSortOrder(), split.getSortOrder());
+        assertEquals(copy.getLimit(), split.getLimit());
 
         assertEquals(copy.getAddresses(), ImmutableList.of());
         assertEquals(copy.isRemotelyAccessible(), true);
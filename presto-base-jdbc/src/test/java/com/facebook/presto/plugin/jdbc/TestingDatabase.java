@@ -35,13 +35,14 @@ final class TestingDatabase
 {
     public static final String CONNECTOR_ID = "test";
 
+    private final String connectionUrl;
     private final Connection connection;
     private final JdbcClient jdbcClient;
 
     public TestingDatabase()
             throws SQLException
     {
-        String connectionUrl = "jdbc:h2:mem:test" + System.nanoTime();
+        connectionUrl = "jdbc:h2:mem:test" + System.nanoTime();
         jdbcClient = new BaseJdbcClient(
                 new JdbcConnectorId(CONNECTOR_ID),
                 new BaseJdbcConfig().setConnectionUrl(connectionUrl),
@@ -84,6 +85,11 @@ final class TestingDatabase
         return connection;
     }
 
+    public String getConnectionUrl()
+    {
+        return connectionUrl;
+    }
+
     public JdbcClient getJdbcClient()
     {
         return jdbcClient;
@@ -73,6 +73,7 @@ public class BenchmarkSuite
                 new SqlRegexpLikeBenchmark(localQueryRunner),
                 new SqlApproximatePercentileBenchmark(localQueryRunner),
                 new SqlBetweenBenchmark(localQueryRunner),
+                new SqlSlidingWindowBenchmark(localQueryRunner),
 
                 // statistics benchmarks
                 new StatisticsBenchmark.LongVarianceBenchmark(localQueryRunner),
@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.testing.LocalQueryRunner;
+
+import static com.facebook.presto.benchmark.BenchmarkQueryRunner.createLocalQueryRunner;
+
+public class SqlSlidingWindowBenchmark
+        extends AbstractSqlBenchmark
+{
+    public SqlSlidingWindowBenchmark(LocalQueryRunner localQueryRunner)
+    {
+        super(localQueryRunner, "sql_sliding_window", 2, 5, "" +
+                "SELECT avg(totalprice) OVER (PARTITION BY orderstatus ORDER BY orderkey ROWS BETWEEN 1000 PRECEDING AND CURRENT ROW) " +
+                "FROM orders");
+    }
+
+    public static void main(String[] args)
+    {
+        new SqlSlidingWindowBenchmark(createLocalQueryRunner()).runBenchmark(new SimpleLineBenchmarkResultWriter(System.out));
+    }
+}
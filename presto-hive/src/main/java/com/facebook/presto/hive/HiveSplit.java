@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Properties;
 
@@ -175,6 +176,12 @@ public class HiveSplit
         return !forceLocalScheduling;
     }
 
+    @Override
+    public Optional<String> getAffinityKey()
+    {
+        return Optional.of(path + ":" + start);
+    }
+
     @Override
     public Object getInfo()
     {
@@ -33,18 +33,18 @@ public class JmxConnector
     private final JmxMetadata jmxMetadata;
     private final JmxPeriodicSampler jmxPeriodicSampler;
     private final JmxSplitManager jmxSplitManager;
-    private final JmxRecordSetProvider jmxRecordSetProvider;
+    private final JmxPageSourceProvider jmxPageSourceProvider;
 
     @Inject
     public JmxConnector(
             JmxMetadata jmxMetadata,
             JmxSplitManager jmxSplitManager,
-            JmxRecordSetProvider jmxRecordSetProvider,
+            JmxPageSourceProvider jmxPageSourceProvider,
             JmxPeriodicSampler jmxPeriodicSampler)
     {
         this.jmxMetadata = requireNonNull(jmxMetadata, "jmxMetadata is null");
         this.jmxSplitManager = requireNonNull(jmxSplitManager, "jmxSplitManager is null");
-        this.jmxRecordSetProvider = requireNonNull(jmxRecordSetProvider, "jmxRecordSetProvider is null");
+        this.jmxPageSourceProvider = requireNonNull(jmxPageSourceProvider, "jmxPageSourceProvider is null");
         this.jmxPeriodicSampler = requireNonNull(jmxPeriodicSampler, "jmxHistoryDumper is null");
     }
 
@@ -61,9 +61,9 @@ public class JmxConnector
     }
 
     @Override
-    public JmxRecordSetProvider getRecordSetProvider()
+    public JmxPageSourceProvider getPageSourceProvider()
     {
-        return jmxRecordSetProvider;
+        return jmxPageSourceProvider;
     }
 
     @Override
@@ -13,23 +13,26 @@
  */
 package com.facebook.presto.connector.jmx;
 
-import com.google.common.collect.EvictingQueue;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.facebook.presto.connector.jmx.JmxMetadata.TIMESTAMP_COLUMN_NAME;
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toList;
 
 public class JmxHistoricalData
 {
+    private final int maxEntries;
     private final Set<String> tables;
-    private final Map<String, EvictingQueue<List<Object>>> tableData = new HashMap<>();
+    private final Map<String, JmxHistoryBuffer> tableData = new HashMap<>();
 
     @Inject
     public JmxHistoricalData(JmxConnectorConfig jmxConfig)
@@ -39,10 +42,8 @@ public class JmxHistoricalData
 
     public JmxHistoricalData(int maxEntries, Set<String> tableNames)
     {
+        this.maxEntries = maxEntries;
         tables = ImmutableSet.copyOf(tableNames);
-        for (String tableName : tables) {
-            tableData.put(tableName, EvictingQueue.create(maxEntries));
-        }
     }
 
     public Set<String> getTables()
@@ -50,30 +51,37 @@ public class JmxHistoricalData
         return tables;
     }
 
-    public synchronized void addRow(String tableName, List<Object> row)
+    public synchronized void addRow(JmxTableHandle tableHandle, List<Object> row)
     {
-        checkArgument(tableData.containsKey(tableName));
-        tableData.get(tableName).add(row);
-    }
+        String tableName = tableHandle.getObjectName();
+        checkArgument(tables.contains(tableName));
 
-    public synchronized List<List<Object>> getRows(String tableName, List<Integer> selectedColumns)
-    {
-        if (!tableData.containsKey(tableName)) {
-            return ImmutableList.of();
+        JmxHistoryBuffer buffer = tableData.get(tableName);
+        if (buffer == null) {
+            List<JmxColumnHandle> columns = tableHandle.getColumnHandles();
+            List<Type> types = columns.stream()
+                    .map(JmxColumnHandle::getColumnType)
+                    .collect(toList());
+            int timestampChannel = columns.stream()
+                    .map(JmxColumnHandle::getColumnName)
+                    .collect(toList())
+                    .indexOf(TIMESTAMP_COLUMN_NAME);
+            buffer = new JmxHistoryBuffer(types, timestampChannel, maxEntries);
+            tableData.put(tableName, buffer);
         }
-        return projectRows(tableData.get(tableName), selectedColumns);
+        buffer.add(row);
     }
 
-    private List<List<Object>> projectRows(Collection<List<Object>> rows, List<Integer> selectedColumns)
+    /**
+     * Return the selected columns of the rows of a table with a timestamp
+     * in the given range (inclusive).
+     */
+    public synchronized List<Page> getPages(String tableName, List<Integer> selectedColumns, long minTimestamp, long maxTimestamp)
     {
-        ImmutableList.Builder<List<Object>> result = ImmutableList.builder();
-        for (List<Object> row : rows) {
-            ImmutableList.Builder<Object> projectedRow = ImmutableList.builder();
-            for (Integer selectedColumn : selectedColumns) {
-                projectedRow.add(row.get(selectedColumn));
-            }
-            result.add(projectedRow.build());
+        JmxHistoryBuffer buffer = tableData.get(tableName);
+        if (buffer == null) {
+            return ImmutableList.of();
         }
-        return result.build();
+        return buffer.getPages(selectedColumns, minTimestamp, maxTimestamp);
     }
 }
@@ -0,0 +1,235 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.connector.jmx;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The rows of a history table, stored in a ring buffer with one primitive
+ * array per column. The rows are added in timestamp order, so the rows of a
+ * time range can be found with a binary search on the timestamp column.
+ */
+@NotThreadSafe
+class JmxHistoryBuffer
+{
+    private static final int MAX_PAGE_ROWS = 1024;
+    private static final int INITIAL_ARRAY_SIZE = 1024;
+
+    private final List<Type> types;
+    private final int timestampChannel;
+    private final int capacity;
+    private final Object[] values;
+    private final boolean[][] nulls;
+
+    // the arrays grow until they reach the capacity, and are used as a ring buffer after that
+    private int arraySize;
+    // physical position of the oldest row
+    private int start;
+    private int size;
+
+    public JmxHistoryBuffer(List<Type> types, int timestampChannel, int capacity)
+    {
+        checkArgument(capacity > 0, "capacity must be positive");
+        checkArgument(timestampChannel < types.size(), "invalid timestampChannel");
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.timestampChannel = timestampChannel;
+        this.capacity = capacity;
+
+        this.arraySize = min(capacity, INITIAL_ARRAY_SIZE);
+        this.values = new Object[types.size()];
+        this.nulls = new boolean[types.size()][arraySize];
+        for (int channel = 0; channel < types.size(); channel++) {
+            Class<?> javaType = types.get(channel).getJavaType();
+            if (javaType == boolean.class) {
+                values[channel] = new boolean[arraySize];
+            }
+            else if (javaType == long.class) {
+                values[channel] = new long[arraySize];
+            }
+            else if (javaType == double.class) {
+                values[channel] = new double[arraySize];
+            }
+            else if (javaType == Slice.class) {
+                values[channel] = new Slice[arraySize];
+            }
+            else {
+                throw new IllegalArgumentException("Unsupported type: " + types.get(channel));
+            }
+        }
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Add a row, replacing the oldest row if the buffer is full.
+     */
+    public void add(List<Object> row)
+    {
+        checkArgument(row.size() == types.size(), "row has %s values, but table has %s columns", row.size(), types.size());
+
+        if (size == arraySize && arraySize < capacity) {
+            grow();
+        }
+
+        int position = physicalPosition(size);
+        if (size == capacity) {
+            start = (start + 1) % capacity;
+        }
+        else {
+            size++;
+        }
+
+        for (int channel = 0; channel < types.size(); channel++) {
+            Object value = row.get(channel);
+            nulls[channel][position] = (value == null);
+            if (value == null) {
+                continue;
+            }
+            Object array = values[channel];
+            if (array instanceof boolean[]) {
+                ((boolean[]) array)[position] = (Boolean) value;
+            }
+            else if (array instanceof long[]) {
+                ((long[]) array)[position] = ((Number) value).longValue();
+            }
+            else if (array instanceof double[]) {
+                ((double[]) array)[position] = ((Number) value).doubleValue();
+            }
+            else {
+                ((Slice[]) array)[position] = (value instanceof Slice) ? (Slice) value : utf8Slice(value.toString());
+            }
+        }
+    }
+
+    /**
+     * Return the selected columns of the rows with a timestamp in the given
+     * range (inclusive), oldest first. All rows are returned if the table has
+     * no timestamp column.
+     */
+    public List<Page> getPages(List<Integer> channels, long minTimestamp, long maxTimestamp)
+    {
+        int from = 0;
+        int to = size;
+        if (timestampChannel >= 0) {
+            from = firstRowAtOrAfter(minTimestamp);
+            to = (maxTimestamp == Long.MAX_VALUE) ? size : firstRowAtOrAfter(maxTimestamp + 1);
+        }
+
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int pageStart = from; pageStart < to; pageStart += MAX_PAGE_ROWS) {
+            int rowCount = min(MAX_PAGE_ROWS, to - pageStart);
+            Block[] blocks = new Block[channels.size()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = buildBlock(channels.get(i), pageStart, rowCount);
+            }
+            pages.add(new Page(rowCount, blocks));
+        }
+        return pages.build();
+    }
+
+    private void grow()
+    {
+        // the buffer has not wrapped around yet, so the rows start at the beginning of the arrays
+        arraySize = (int) min((long) arraySize * 2, capacity);
+        for (int channel = 0; channel < types.size(); channel++) {
+            nulls[channel] = Arrays.copyOf(nulls[channel], arraySize);
+            Object array = values[channel];
+            if (array instanceof boolean[]) {
+                values[channel] = Arrays.copyOf((boolean[]) array, arraySize);
+            }
+            else if (array instanceof long[]) {
+                values[channel] = Arrays.copyOf((long[]) array, arraySize);
+            }
+            else if (array instanceof double[]) {
+                values[channel] = Arrays.copyOf((double[]) array, arraySize);
+            }
+            else {
+                values[channel] = Arrays.copyOf((Slice[]) array, arraySize);
+            }
+        }
+    }
+
+    private Block buildBlock(int channel, int firstRow, int rowCount)
+    {
+        Type type = types.get(channel);
+        BlockBuilder builder = type.createBlockBuilder(new BlockBuilderStatus(), rowCount);
+        Object array = values[channel];
+        for (int row = firstRow; row < firstRow + rowCount; row++) {
+            int position = physicalPosition(row);
+            if (nulls[channel][position]) {
+                builder.appendNull();
+            }
+            else if (array instanceof boolean[]) {
+                type.writeBoolean(builder, ((boolean[]) array)[position]);
+            }
+            else if (array instanceof long[]) {
+                type.writeLong(builder, ((long[]) array)[position]);
+            }
+            else if (array instanceof double[]) {
+                type.writeDouble(builder, ((double[]) array)[position]);
+            }
+            else {
+                type.writeSlice(builder, ((Slice[]) array)[position]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Return the first row (counting from the oldest row) with a timestamp
+     * at or after the given timestamp, or the row count if there is none.
+     */
+    private int firstRowAtOrAfter(long timestamp)
+    {
+        long[] timestamps = (long[]) values[timestampChannel];
+        boolean[] timestampNulls = nulls[timestampChannel];
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int position = physicalPosition(middle);
+            if (!timestampNulls[position] && timestamps[position] < timestamp) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int physicalPosition(int row)
+    {
+        return (start + row) % capacity;
+    }
+}
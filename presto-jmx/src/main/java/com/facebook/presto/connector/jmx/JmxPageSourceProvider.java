@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.connector.jmx;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.FixedPageSource;
+import com.facebook.presto.spi.RecordPageSource;
+import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
+import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.google.inject.Inject;
+
+import java.util.List;
+
+import static com.facebook.presto.connector.jmx.Types.checkType;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+public class JmxPageSourceProvider
+        implements ConnectorPageSourceProvider
+{
+    private final JmxRecordSetProvider recordSetProvider;
+    private final JmxHistoricalData jmxHistoricalData;
+
+    @Inject
+    public JmxPageSourceProvider(JmxRecordSetProvider recordSetProvider, JmxHistoricalData jmxHistoricalData)
+    {
+        this.recordSetProvider = requireNonNull(recordSetProvider, "recordSetProvider is null");
+        this.jmxHistoricalData = requireNonNull(jmxHistoricalData, "jmxHistoricalData is null");
+    }
+
+    @Override
+    public ConnectorPageSource createPageSource(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorSplit split, List<ColumnHandle> columns)
+    {
+        JmxSplit jmxSplit = checkType(split, JmxSplit.class, "split");
+        JmxTableHandle tableHandle = jmxSplit.getTableHandle();
+
+        requireNonNull(columns, "columns is null");
+        checkArgument(!columns.isEmpty(), "must provide at least one column");
+
+        if (tableHandle.isLiveData()) {
+            return new RecordPageSource(recordSetProvider.getRecordSet(transactionHandle, session, split, columns));
+        }
+
+        List<JmxColumnHandle> tableColumns = tableHandle.getColumnHandles();
+        List<Integer> selectedColumns = columns.stream()
+                .map(column -> checkType(column, JmxColumnHandle.class, "column"))
+                .map(tableColumns::indexOf)
+                .collect(toList());
+        checkArgument(!selectedColumns.contains(-1), "columns are not columns of table %s", tableHandle.getObjectName());
+
+        return new FixedPageSource(jmxHistoricalData.getPages(
+                tableHandle.getObjectName(),
+                selectedColumns,
+                jmxSplit.getMinTimestamp(),
+                jmxSplit.getMaxTimestamp()));
+    }
+}
@@ -107,7 +107,7 @@ public class JmxPeriodicSampler
                         tableHandle,
                         tableHandle.getColumnHandles(),
                         dumpTimestamp);
-                jmxHistoricalData.addRow(tableHandle.getObjectName(), row);
+                jmxHistoricalData.addRow(tableHandle, row);
             }
             catch (JMException ex) {
                 log.error(ex, "Error in JmxHistoryDumper thread");
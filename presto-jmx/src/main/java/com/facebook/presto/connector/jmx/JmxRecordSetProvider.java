@@ -48,14 +48,12 @@ public class JmxRecordSetProvider
 {
     private final MBeanServer mbeanServer;
     private final String nodeId;
-    private final JmxHistoricalData jmxHistoricalData;
 
     @Inject
-    public JmxRecordSetProvider(MBeanServer mbeanServer, NodeManager nodeManager, JmxHistoricalData jmxHistoricalData)
+    public JmxRecordSetProvider(MBeanServer mbeanServer, NodeManager nodeManager)
     {
         this.mbeanServer = requireNonNull(mbeanServer, "mbeanServer is null");
         this.nodeId = requireNonNull(nodeManager, "nodeManager is null").getCurrentNode().getNodeIdentifier();
-        this.jmxHistoricalData = requireNonNull(jmxHistoricalData, "jmxHistoryHolder is null");
     }
 
     public List<Object> getLiveRow(JmxTableHandle tableHandle, List<? extends ColumnHandle> columns, long entryTimestamp)
@@ -155,17 +153,11 @@ public class JmxRecordSetProvider
 
         requireNonNull(columns, "columns is null");
         checkArgument(!columns.isEmpty(), "must provide at least one column");
+        checkArgument(tableHandle.isLiveData(), "history tables are read by JmxPageSourceProvider");
 
         List<List<Object>> rows;
         try {
-            if (tableHandle.isLiveData()) {
-                rows = ImmutableList.of(getLiveRow(tableHandle, columns));
-            }
-            else {
-                rows = jmxHistoricalData.getRows(
-                        tableHandle.getObjectName(),
-                        calculateSelectedColumns(tableHandle.getColumnHandles(), getColumnNames(columns)));
-            }
+            rows = ImmutableList.of(getLiveRow(tableHandle, columns));
         }
         catch (JMException e) {
             rows = ImmutableList.of();
@@ -174,18 +166,6 @@ public class JmxRecordSetProvider
         return new InMemoryRecordSet(getColumnTypes(columns), rows);
     }
 
-    private List<Integer> calculateSelectedColumns(List<JmxColumnHandle> columnHandles, Set<String> selectedColumnNames)
-    {
-        ImmutableList.Builder<Integer> selectedColumns = ImmutableList.builder();
-        for (int i = 0; i < columnHandles.size(); i++) {
-            JmxColumnHandle column = columnHandles.get(i);
-            if (selectedColumnNames.contains((column.getColumnName()))) {
-                selectedColumns.add(i);
-            }
-        }
-        return selectedColumns.build();
-    }
-
     private static Set<String> getColumnNames(List<? extends ColumnHandle> columnHandles)
     {
         return columnHandles.stream()
@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 public class JmxSplit
@@ -28,14 +29,21 @@ public class JmxSplit
 {
     private final JmxTableHandle tableHandle;
     private final List<HostAddress> addresses;
+    private final long minTimestamp;
+    private final long maxTimestamp;
 
     @JsonCreator
     public JmxSplit(
             @JsonProperty("tableHandle") JmxTableHandle tableHandle,
-            @JsonProperty("addresses") List<HostAddress> addresses)
+            @JsonProperty("addresses") List<HostAddress> addresses,
+            @JsonProperty("minTimestamp") long minTimestamp,
+            @JsonProperty("maxTimestamp") long maxTimestamp)
     {
+        checkArgument(minTimestamp <= maxTimestamp, "minTimestamp is greater than maxTimestamp");
         this.tableHandle = requireNonNull(tableHandle, "tableHandle is null");
         this.addresses = ImmutableList.copyOf(requireNonNull(addresses, "addresses is null"));
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
     }
 
     @JsonProperty
@@ -44,6 +52,24 @@ public class JmxSplit
         return tableHandle;
     }
 
+    /**
+     * Lower bound (inclusive) of the timestamps of the history rows to read.
+     */
+    @JsonProperty
+    public long getMinTimestamp()
+    {
+        return minTimestamp;
+    }
+
+    /**
+     * Upper bound (inclusive) of the timestamps of the history rows to read.
+     */
+    @JsonProperty
+    public long getMaxTimestamp()
+    {
+        return maxTimestamp;
+    }
+
     @Override
     public boolean isRemotelyAccessible()
     {
@@ -22,7 +22,9 @@ import com.facebook.presto.spi.FixedSplitSource;
 import com.facebook.presto.spi.NodeManager;
 import com.facebook.presto.spi.connector.ConnectorSplitManager;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.predicate.Domain;
 import com.facebook.presto.spi.predicate.NullableValue;
+import com.facebook.presto.spi.predicate.Range;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -32,6 +34,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static com.facebook.presto.connector.jmx.JmxMetadata.NODE_COLUMN_NAME;
+import static com.facebook.presto.connector.jmx.JmxMetadata.TIMESTAMP_COLUMN_NAME;
 import static com.facebook.presto.connector.jmx.Types.checkType;
 import static com.facebook.presto.spi.NodeState.ACTIVE;
 import static com.facebook.presto.spi.predicate.TupleDomain.fromFixedValues;
@@ -65,15 +68,37 @@ public class JmxSplitManager
                 .findFirst();
         checkState(nodeColumnHandle.isPresent(), "Failed to find %s column", NODE_COLUMN_NAME);
 
+        // history rows are stored in timestamp order, so only the span of the timestamp predicate is read
+        Optional<Range> timestampSpan = getTimestampSpan(tableHandle, predicate);
+        long minTimestamp = timestampSpan
+                .filter(span -> !span.getLow().isLowerUnbounded())
+                .map(span -> (long) span.getLow().getValue())
+                .orElse(Long.MIN_VALUE);
+        long maxTimestamp = timestampSpan
+                .filter(span -> !span.getHigh().isUpperUnbounded())
+                .map(span -> (long) span.getHigh().getValue())
+                .orElse(Long.MAX_VALUE);
+
         List<ConnectorSplit> splits = nodeManager.getNodes(ACTIVE)
                 .stream()
                 .filter(node -> {
                     NullableValue value = NullableValue.of(createUnboundedVarcharType(), utf8Slice(node.getNodeIdentifier()));
                     return predicate.overlaps(fromFixedValues(ImmutableMap.of(nodeColumnHandle.get(), value)));
                 })
-                .map(node -> new JmxSplit(tableHandle, ImmutableList.of(node.getHostAndPort())))
+                .map(node -> new JmxSplit(tableHandle, ImmutableList.of(node.getHostAndPort()), minTimestamp, maxTimestamp))
                 .collect(toList());
 
         return new FixedSplitSource(splits);
     }
+
+    private static Optional<Range> getTimestampSpan(JmxTableHandle tableHandle, TupleDomain<ColumnHandle> predicate)
+    {
+        Optional<Domain> domain = tableHandle.getColumnHandles().stream()
+                .filter(jmxColumnHandle -> jmxColumnHandle.getColumnName().equals(TIMESTAMP_COLUMN_NAME))
+                .findFirst()
+                .flatMap(column -> predicate.getDomains().map(domains -> domains.get(column)));
+        return domain
+                .filter(timestampDomain -> !timestampDomain.getValues().isNone())
+                .map(timestampDomain -> timestampDomain.getValues().getRanges().getSpan());
+    }
 }
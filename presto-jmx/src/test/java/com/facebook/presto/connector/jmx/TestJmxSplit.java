@@ -25,13 +25,15 @@ import static org.testng.Assert.assertSame;
 public class TestJmxSplit
 {
     private static final ImmutableList<HostAddress> ADDRESSES = ImmutableList.of(HostAddress.fromString("test:1234"));
-    private static final JmxSplit SPLIT = new JmxSplit(TABLE, ADDRESSES);
+    private static final JmxSplit SPLIT = new JmxSplit(TABLE, ADDRESSES, 1000, 2000);
 
     @Test
     public void testSplit()
     {
         assertEquals(SPLIT.getTableHandle(), TABLE);
         assertEquals(SPLIT.getAddresses(), ADDRESSES);
+        assertEquals(SPLIT.getMinTimestamp(), 1000);
+        assertEquals(SPLIT.getMaxTimestamp(), 2000);
         assertSame(SPLIT.getInfo(), SPLIT);
         assertEquals(SPLIT.isRemotelyAccessible(), false);
     }
@@ -44,6 +46,8 @@ public class TestJmxSplit
 
         assertEquals(copy.getTableHandle(), SPLIT.getTableHandle());
         assertEquals(copy.getAddresses(), SPLIT.getAddresses());
+        assertEquals(copy.getMinTimestamp(), SPLIT.getMinTimestamp());
+        assertEquals(copy.getMaxTimestamp(), SPLIT.getMaxTimestamp());
         assertSame(copy.getInfo(), copy);
         assertEquals(copy.isRemotelyAccessible(), false);
     }
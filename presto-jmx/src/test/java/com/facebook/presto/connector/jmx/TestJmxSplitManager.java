@@ -14,6 +14,7 @@
 package com.facebook.presto.connector.jmx;
 
 import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSplit;
 import com.facebook.presto.spi.ConnectorSplitSource;
 import com.facebook.presto.spi.ConnectorTableLayoutHandle;
@@ -21,13 +22,15 @@ import com.facebook.presto.spi.HostAddress;
 import com.facebook.presto.spi.Node;
 import com.facebook.presto.spi.NodeManager;
 import com.facebook.presto.spi.NodeState;
-import com.facebook.presto.spi.RecordCursor;
-import com.facebook.presto.spi.RecordSet;
+import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.predicate.Domain;
 import com.facebook.presto.spi.predicate.NullableValue;
+import com.facebook.presto.spi.predicate.Range;
 import com.facebook.presto.spi.predicate.TupleDomain;
-import com.facebook.presto.spi.type.TimestampType;
+import com.facebook.presto.spi.predicate.ValueSet;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -44,6 +47,8 @@ import java.util.concurrent.TimeUnit;
 
 import static com.facebook.presto.connector.jmx.JmxMetadata.HISTORY_SCHEMA_NAME;
 import static com.facebook.presto.connector.jmx.JmxMetadata.JMX_SCHEMA_NAME;
+import static com.facebook.presto.connector.jmx.JmxMetadata.TIMESTAMP_COLUMN_NAME;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
 import static com.facebook.presto.spi.type.VarcharType.createUnboundedVarcharType;
 import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
 import static io.airlift.slice.Slices.utf8Slice;
@@ -71,11 +76,13 @@ public class TestJmxSplitManager
                             "jmx.max-entries", "1000"));
 
     private final JmxColumnHandle columnHandle = new JmxColumnHandle("test", "node", createUnboundedVarcharType());
+    private final JmxColumnHandle timestampColumnHandle = new JmxColumnHandle("test", TIMESTAMP_COLUMN_NAME, TIMESTAMP);
     private final JmxTableHandle tableHandle = new JmxTableHandle("test", "objectName", ImmutableList.of(columnHandle), true);
+    private final JmxTableHandle historyTableHandle = new JmxTableHandle("test", "objectName", ImmutableList.of(timestampColumnHandle, columnHandle), false);
 
     private final JmxSplitManager splitManager = jmxConnector.getSplitManager();
     private final JmxMetadata metadata = jmxConnector.getMetadata(new ConnectorTransactionHandle() {});
-    private final JmxRecordSetProvider recordSetProvider = jmxConnector.getRecordSetProvider();
+    private final JmxPageSourceProvider pageSourceProvider = jmxConnector.getPageSourceProvider();
 
     @AfterClass
     public void tearDown()
@@ -121,15 +128,45 @@ public class TestJmxSplitManager
     }
 
     @Test
-    public void testRecordSetProvider()
+    public void testTimestampPushdown()
+            throws Exception
+    {
+        Domain timestampDomain = Domain.create(ValueSet.ofRanges(Range.range(TIMESTAMP, 1000L, true, 2000L, false), Range.equal(TIMESTAMP, 3000L)), false);
+        TupleDomain<ColumnHandle> predicate = TupleDomain.withColumnDomains(ImmutableMap.of(timestampColumnHandle, timestampDomain));
+        ConnectorTableLayoutHandle layout = new JmxTableLayoutHandle(historyTableHandle, predicate);
+
+        List<ConnectorSplit> allSplits = getAllSplits(splitManager.getSplits(JmxTransactionHandle.INSTANCE, SESSION, layout));
+        assertEquals(allSplits.size(), nodes.size());
+        for (ConnectorSplit split : allSplits) {
+            JmxSplit jmxSplit = (JmxSplit) split;
+            assertEquals(jmxSplit.getMinTimestamp(), 1000L);
+            assertEquals(jmxSplit.getMaxTimestamp(), 3000L);
+        }
+
+        layout = new JmxTableLayoutHandle(historyTableHandle, TupleDomain.all());
+        for (ConnectorSplit split : getAllSplits(splitManager.getSplits(JmxTransactionHandle.INSTANCE, SESSION, layout))) {
+            JmxSplit jmxSplit = (JmxSplit) split;
+            assertEquals(jmxSplit.getMinTimestamp(), Long.MIN_VALUE);
+            assertEquals(jmxSplit.getMaxTimestamp(), Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void testPageSourceProvider()
             throws Exception
     {
         for (SchemaTableName schemaTableName : metadata.listTables(SESSION, JMX_SCHEMA_NAME)) {
-            RecordSet recordSet = getRecordSet(schemaTableName);
-            try (RecordCursor cursor = recordSet.cursor()) {
-                while (cursor.advanceNextPosition()) {
-                    for (int i = 0; i < recordSet.getColumnTypes().size(); i++) {
-                        cursor.isNull(i);
+            try (ConnectorPageSource pageSource = getPageSource(schemaTableName)) {
+                while (!pageSource.isFinished()) {
+                    Page page = pageSource.getNextPage();
+                    if (page == null) {
+                        continue;
+                    }
+                    for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                        Block block = page.getBlock(channel);
+                        for (int position = 0; position < block.getPositionCount(); position++) {
+                            block.isNull(position);
+                        }
                     }
                 }
             }
@@ -137,15 +174,16 @@ public class TestJmxSplitManager
     }
 
     @Test
-    public void testHistoryRecordSetProvider()
+    public void testHistoryPageSourceProvider()
             throws Exception
     {
         for (SchemaTableName schemaTableName : metadata.listTables(SESSION, HISTORY_SCHEMA_NAME)) {
             // wait for at least two samples
             List<Long> timeStamps = ImmutableList.of();
             for (int waited = 0; waited < TIMEOUT_TIME; waited += SLEEP_TIME) {
-                RecordSet recordSet = getRecordSet(schemaTableName);
-                timeStamps = readTimeStampsFrom(recordSet);
+                try (ConnectorPageSource pageSource = getPageSource(schemaTableName)) {
+                    timeStamps = readTimeStampsFrom(pageSource);
+                }
                 if (timeStamps.size() >= 2) {
                     break;
                 }
@@ -158,29 +196,31 @@ public class TestJmxSplitManager
         }
     }
 
-    private List<Long> readTimeStampsFrom(RecordSet recordSet)
+    private static List<Long> readTimeStampsFrom(ConnectorPageSource pageSource)
     {
+        // the timestamp is the first column of history tables
         ImmutableList.Builder<Long> result = ImmutableList.builder();
-        try (RecordCursor cursor = recordSet.cursor()) {
-            while (cursor.advanceNextPosition()) {
-                for (int i = 0; i < recordSet.getColumnTypes().size(); i++) {
-                    cursor.isNull(i);
-                }
-                if (cursor.isNull(0)) {
+        while (!pageSource.isFinished()) {
+            Page page = pageSource.getNextPage();
+            if (page == null) {
+                continue;
+            }
+            Block block = page.getBlock(0);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                if (block.isNull(position)) {
                     return result.build();
                 }
-                assertTrue(recordSet.getColumnTypes().get(0) instanceof TimestampType);
-                result.add(cursor.getLong(0));
+                result.add(TIMESTAMP.getLong(block, position));
             }
         }
         return result.build();
     }
 
-    private RecordSet getRecordSet(SchemaTableName schemaTableName)
+    private ConnectorPageSource getPageSource(SchemaTableName schemaTableName)
             throws Exception
     {
         JmxTableHandle tableHandle = metadata.getTableHandle(SESSION, schemaTableName);
-        List<ColumnHandle> columnHandles = ImmutableList.copyOf(metadata.getColumnHandles(SESSION, tableHandle).values());
+        List<ColumnHandle> columnHandles = ImmutableList.copyOf(tableHandle.getColumnHandles());
 
         ConnectorTableLayoutHandle layout = new JmxTableLayoutHandle(tableHandle, TupleDomain.all());
         ConnectorSplitSource splitSource = splitManager.getSplits(JmxTransactionHandle.INSTANCE, SESSION, layout);
@@ -188,7 +228,7 @@ public class TestJmxSplitManager
         assertEquals(allSplits.size(), nodes.size());
         ConnectorSplit split = allSplits.get(0);
 
-        return recordSetProvider.getRecordSet(JmxTransactionHandle.INSTANCE, SESSION, split, columnHandles);
+        return pageSourceProvider.createPageSource(JmxTransactionHandle.INSTANCE, SESSION, split, columnHandles);
     }
 
     private static List<ConnectorSplit> getAllSplits(ConnectorSplitSource splitSource)
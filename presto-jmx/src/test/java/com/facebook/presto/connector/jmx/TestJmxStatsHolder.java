@@ -13,20 +13,34 @@
  */
 package com.facebook.presto.connector.jmx;
 
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import static com.facebook.presto.connector.jmx.JmxMetadata.TIMESTAMP_COLUMN_NAME;
+import static com.facebook.presto.connector.jmx.TestJmxTableHandle.TABLE;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
 import static org.testng.Assert.assertEquals;
 
 public class TestJmxStatsHolder
 {
-    private static final String TABLE_NAME = "test";
+    private static final String TABLE_NAME = TABLE.getObjectName();
     private static final String NOT_EXISTING_TABLE_NAME = "not-existing-test";
     private static final int MAX_ENTRIES = 2;
 
+    private static final JmxTableHandle HISTORY_TABLE = new JmxTableHandle(
+            "connectorId",
+            "history",
+            ImmutableList.of(new JmxColumnHandle("connectorId", TIMESTAMP_COLUMN_NAME, TIMESTAMP), new JmxColumnHandle("connectorId", "id", BIGINT)),
+            false);
+
     @Test
     public void testAddingRows()
     {
@@ -35,15 +49,66 @@ public class TestJmxStatsHolder
         List<Integer> bothColumns = ImmutableList.of(0, 1);
         List<Integer> secondColumn = ImmutableList.of(1);
 
-        assertEquals(jmxHistoricalData.getRows(TABLE_NAME, bothColumns), ImmutableList.of());
-        jmxHistoricalData.addRow(TABLE_NAME, ImmutableList.<Object>of(42, "ala"));
-        assertEquals(jmxHistoricalData.getRows(TABLE_NAME, bothColumns), ImmutableList.of(ImmutableList.<Object>of(42, "ala")));
-        assertEquals(jmxHistoricalData.getRows(TABLE_NAME, secondColumn), ImmutableList.of(ImmutableList.<Object>of("ala")));
-        assertEquals(jmxHistoricalData.getRows(NOT_EXISTING_TABLE_NAME, bothColumns), ImmutableList.of());
+        assertEquals(getRows(jmxHistoricalData, TABLE_NAME, bothColumns), ImmutableList.of());
+        jmxHistoricalData.addRow(TABLE, ImmutableList.<Object>of(42, "ala"));
+        assertEquals(getRows(jmxHistoricalData, TABLE_NAME, bothColumns), ImmutableList.of(ImmutableList.<Object>of(42L, "ala")));
+        assertEquals(getRows(jmxHistoricalData, TABLE_NAME, secondColumn), ImmutableList.of(ImmutableList.<Object>of("ala")));
+        assertEquals(getRows(jmxHistoricalData, NOT_EXISTING_TABLE_NAME, bothColumns), ImmutableList.of());
+
+        jmxHistoricalData.addRow(TABLE, ImmutableList.<Object>of(43, "ma"));
+        jmxHistoricalData.addRow(TABLE, ImmutableList.<Object>of(44, "kota"));
+        assertEquals(getRows(jmxHistoricalData, TABLE_NAME, bothColumns), ImmutableList.of(
+                ImmutableList.<Object>of(43L, "ma"),
+                ImmutableList.<Object>of(44L, "kota")));
+    }
+
+    @Test
+    public void testTimestampRange()
+    {
+        int maxEntries = 3000;
+        JmxHistoricalData jmxHistoricalData = new JmxHistoricalData(maxEntries, ImmutableSet.of(HISTORY_TABLE.getObjectName()));
+
+        // wrap around the ring buffer
+        for (long timestamp = 0; timestamp < 5000; timestamp++) {
+            jmxHistoricalData.addRow(HISTORY_TABLE, ImmutableList.of(timestamp, timestamp * 10));
+        }
 
-        jmxHistoricalData.addRow(TABLE_NAME, ImmutableList.<Object>of(42, "ala"));
-        jmxHistoricalData.addRow(TABLE_NAME, ImmutableList.<Object>of(42, "ala"));
-        jmxHistoricalData.addRow(TABLE_NAME, ImmutableList.<Object>of(42, "ala"));
-        assertEquals(jmxHistoricalData.getRows(TABLE_NAME, bothColumns).size(), MAX_ENTRIES);
+        List<Integer> idColumn = ImmutableList.of(1);
+        assertEquals(getIds(jmxHistoricalData, idColumn, Long.MIN_VALUE, Long.MAX_VALUE).size(), maxEntries);
+        assertEquals(getIds(jmxHistoricalData, idColumn, Long.MIN_VALUE, Long.MAX_VALUE).get(0), (Long) 20000L);
+        assertEquals(getIds(jmxHistoricalData, idColumn, 4000, 4002), ImmutableList.of(40000L, 40010L, 40020L));
+        assertEquals(getIds(jmxHistoricalData, idColumn, 4998, Long.MAX_VALUE), ImmutableList.of(49980L, 49990L));
+        assertEquals(getIds(jmxHistoricalData, idColumn, 0, 1999), ImmutableList.of());
+        assertEquals(getIds(jmxHistoricalData, idColumn, 1000, 2000), ImmutableList.of(20000L));
+        assertEquals(getIds(jmxHistoricalData, idColumn, 6000, 7000), ImmutableList.of());
+        assertEquals(getIds(jmxHistoricalData, idColumn, Long.MIN_VALUE, 2999).size(), 1000);
+    }
+
+    private static List<Long> getIds(JmxHistoricalData jmxHistoricalData, List<Integer> columns, long minTimestamp, long maxTimestamp)
+    {
+        List<Long> ids = new ArrayList<>();
+        for (Page page : jmxHistoricalData.getPages(HISTORY_TABLE.getObjectName(), columns, minTimestamp, maxTimestamp)) {
+            Block block = page.getBlock(0);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                ids.add(BIGINT.getLong(block, position));
+            }
+        }
+        return ids;
+    }
+
+    private static List<List<Object>> getRows(JmxHistoricalData jmxHistoricalData, String tableName, List<Integer> columns)
+    {
+        List<List<Object>> rows = new ArrayList<>();
+        for (Page page : jmxHistoricalData.getPages(tableName, columns, Long.MIN_VALUE, Long.MAX_VALUE)) {
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                List<Object> row = new ArrayList<>();
+                for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                    Type type = TABLE.getColumnHandles().get(columns.get(channel)).getColumnType();
+                    row.add(type.getObjectValue(null, page.getBlock(channel), position));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
     }
 }
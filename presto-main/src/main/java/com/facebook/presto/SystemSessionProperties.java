@@ -60,7 +60,10 @@ public final class SystemSessionProperties
     public static final String INITIAL_SPLITS_PER_NODE = "initial_splits_per_node";
     public static final String SPLIT_CONCURRENCY_ADJUSTMENT_INTERVAL = "split_concurrency_adjustment_interval";
     public static final String OPTIMIZE_METADATA_QUERIES = "optimize_metadata_queries";
+    public static final String OPTIMIZE_METADATA_AGGREGATIONS = "optimize_metadata_aggregations";
+    public static final String PUSH_DOWN_LIMITS = "push_down_limits";
     public static final String QUERY_PRIORITY = "query_priority";
+    public static final String RANGE_JOIN = "range_join";
 
     private final List<PropertyMetadata<?>> sessionProperties;
 
@@ -205,6 +208,16 @@ public final class SystemSessionProperties
                         "Enable optimization for metadata queries",
                         featuresConfig.isOptimizeMetadataQueries(),
                         false),
+                booleanSessionProperty(
+                        OPTIMIZE_METADATA_AGGREGATIONS,
+                        "Answer aggregations that the connector can compute exactly from its metadata without reading the data",
+                        featuresConfig.isOptimizeMetadataAggregations(),
+                        false),
+                booleanSessionProperty(
+                        PUSH_DOWN_LIMITS,
+                        "Push limits and top-N of table scans into connectors that can apply them while reading",
+                        featuresConfig.isPushDownLimits(),
+                        false),
                 integerSessionProperty(
                         QUERY_PRIORITY,
                         "The priority of queries. Larger numbers are higher priority",
@@ -219,6 +232,11 @@ public final class SystemSessionProperties
                         COLOCATED_JOIN,
                         "Experimental: Use a colocated join when possible",
                         featuresConfig.isColocatedJoinsEnabled(),
+                        false),
+                booleanSessionProperty(
+                        RANGE_JOIN,
+                        "Experimental: Evaluate inequality conditions between the join inputs in the join using a range index",
+                        featuresConfig.isRangeJoin(),
                         false));
     }
 
@@ -297,6 +315,16 @@ public final class SystemSessionProperties
         return session.getProperty(OPTIMIZE_METADATA_QUERIES, Boolean.class);
     }
 
+    public static boolean isOptimizeMetadataAggregations(Session session)
+    {
+        return session.getProperty(OPTIMIZE_METADATA_AGGREGATIONS, Boolean.class);
+    }
+
+    public static boolean isPushDownLimits(Session session)
+    {
+        return session.getProperty(PUSH_DOWN_LIMITS, Boolean.class);
+    }
+
     public static DataSize getQueryMaxMemory(Session session)
     {
         return session.getProperty(QUERY_MAX_MEMORY, DataSize.class);
@@ -322,6 +350,11 @@ public final class SystemSessionProperties
         return session.getProperty(COLOCATED_JOIN, Boolean.class);
     }
 
+    public static boolean isRangeJoin(Session session)
+    {
+        return session.getProperty(RANGE_JOIN, Boolean.class);
+    }
+
     public static int getInitialSplitsPerNode(Session session)
     {
         return session.getProperty(INITIAL_SPLITS_PER_NODE, Integer.class);
@@ -0,0 +1,252 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.execution.TaskExecutor.PrioritizedSplitRunner;
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.stats.TimeStat;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Splits waiting for a runner thread, in one queue per priority level.
+ * <p>
+ * Each level is entitled to a share of the thread time that is {@link #LEVEL_TIME_MULTIPLIER} times
+ * the share of the level above it, and the next split is taken from the level that has used the least
+ * of its share. Within a level, splits of the query that has used the least thread time on this
+ * worker are taken first, so one large query cannot starve the other queries in its level.
+ */
+@ThreadSafe
+public class MultilevelSplitQueue
+{
+    static final int LEVEL_COUNT = 5;
+    static final int LEVEL_TIME_MULTIPLIER = 2;
+
+    private static final Comparator<QueuedSplit> QUEUED_SPLIT_ORDERING = Comparator
+            .comparingLong((QueuedSplit split) -> split.queryThreadUsageNanos)
+            .thenComparingLong(split -> split.sequence);
+
+    @GuardedBy("this")
+    private final PriorityQueue<QueuedSplit>[] levelQueues;
+    @GuardedBy("this")
+    private long nextSequence;
+    @GuardedBy("this")
+    private int size;
+
+    // normalized thread time of the last level a split was taken from
+    @GuardedBy("this")
+    private long virtualNanos;
+
+    private final Level[] levels;
+
+    @SuppressWarnings("unchecked")
+    public MultilevelSplitQueue()
+    {
+        levelQueues = new PriorityQueue[LEVEL_COUNT];
+        levels = new Level[LEVEL_COUNT];
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            levelQueues[level] = new PriorityQueue<>(QUEUED_SPLIT_ORDERING);
+            levels[level] = new Level(levelTimeShare(level));
+        }
+    }
+
+    public synchronized void offer(PrioritizedSplitRunner split)
+    {
+        int level = split.getPriorityLevel();
+        if (levelQueues[level].isEmpty()) {
+            // a level that was idle may not claim the time it did not use
+            levels[level].raiseScheduledNanos(virtualNanos * levels[level].getTimeShare());
+        }
+        levelQueues[level].add(new QueuedSplit(split, split.getQueryThreadUsageNanos(), nextSequence++, System.nanoTime()));
+        size++;
+        notify();
+    }
+
+    public synchronized PrioritizedSplitRunner take()
+            throws InterruptedException
+    {
+        while (size == 0) {
+            wait();
+        }
+
+        int selectedLevel = -1;
+        long selectedNormalizedNanos = Long.MAX_VALUE;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            if (!levelQueues[level].isEmpty()) {
+                long normalizedNanos = levels[level].getNormalizedScheduledNanos();
+                if (normalizedNanos < selectedNormalizedNanos) {
+                    selectedLevel = level;
+                    selectedNormalizedNanos = normalizedNanos;
+                }
+            }
+        }
+
+        virtualNanos = Math.max(virtualNanos, selectedNormalizedNanos);
+        QueuedSplit queuedSplit = levelQueues[selectedLevel].poll();
+        size--;
+        levels[selectedLevel].getQueuedTime().add(System.nanoTime() - queuedSplit.queuedNanos, NANOSECONDS);
+        return queuedSplit.split;
+    }
+
+    public synchronized void removeAll(Collection<PrioritizedSplitRunner> splits)
+    {
+        for (PriorityQueue<QueuedSplit> queue : levelQueues) {
+            for (Iterator<QueuedSplit> iterator = queue.iterator(); iterator.hasNext(); ) {
+                if (splits.contains(iterator.next().split)) {
+                    iterator.remove();
+                    size--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records thread time used by a split that was taken from {@code level}.
+     */
+    public void addLevelTime(int level, long nanos)
+    {
+        levels[level].addScheduledNanos(nanos);
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    @VisibleForTesting
+    synchronized int size(int level)
+    {
+        return levelQueues[level].size();
+    }
+
+    @VisibleForTesting
+    static long levelTimeShare(int level)
+    {
+        checkArgument(level >= 0 && level < LEVEL_COUNT, "Invalid level %s", level);
+        long share = 1;
+        for (int i = level; i < LEVEL_COUNT - 1; i++) {
+            share *= LEVEL_TIME_MULTIPLIER;
+        }
+        return share;
+    }
+
+    @Managed
+    @Nested
+    public Level getLevel0()
+    {
+        return levels[0];
+    }
+
+    @Managed
+    @Nested
+    public Level getLevel1()
+    {
+        return levels[1];
+    }
+
+    @Managed
+    @Nested
+    public Level getLevel2()
+    {
+        return levels[2];
+    }
+
+    @Managed
+    @Nested
+    public Level getLevel3()
+    {
+        return levels[3];
+    }
+
+    @Managed
+    @Nested
+    public Level getLevel4()
+    {
+        return levels[4];
+    }
+
+    public static class Level
+    {
+        private final long timeShare;
+        private final AtomicLong scheduledNanos = new AtomicLong();
+        private final TimeStat queuedTime = new TimeStat(NANOSECONDS);
+
+        private Level(long timeShare)
+        {
+            this.timeShare = timeShare;
+        }
+
+        @Managed
+        public long getTimeShare()
+        {
+            return timeShare;
+        }
+
+        @Managed
+        public long getScheduledNanos()
+        {
+            return scheduledNanos.get();
+        }
+
+        @Managed
+        @Nested
+        public TimeStat getQueuedTime()
+        {
+            return queuedTime;
+        }
+
+        private long getNormalizedScheduledNanos()
+        {
+            return scheduledNanos.get() / timeShare;
+        }
+
+        private void addScheduledNanos(long nanos)
+        {
+            scheduledNanos.addAndGet(nanos);
+        }
+
+        private void raiseScheduledNanos(long nanos)
+        {
+            scheduledNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private static class QueuedSplit
+    {
+        private final PrioritizedSplitRunner split;
+        private final long queryThreadUsageNanos;
+        private final long sequence;
+        private final long queuedNanos;
+
+        private QueuedSplit(PrioritizedSplitRunner split, long queryThreadUsageNanos, long sequence, long queuedNanos)
+        {
+            this.split = split;
+            this.queryThreadUsageNanos = queryThreadUsageNanos;
+            this.sequence = sequence;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+}
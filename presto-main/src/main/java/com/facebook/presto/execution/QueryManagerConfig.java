@@ -14,8 +14,10 @@
 package com.facebook.presto.execution;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.configuration.DefunctConfig;
 import io.airlift.configuration.LegacyConfig;
+import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import io.airlift.units.MinDuration;
 
@@ -24,6 +26,8 @@ import javax.validation.constraints.NotNull;
 
 import java.util.concurrent.TimeUnit;
 
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
 @DefunctConfig({"query.max-pending-splits-per-node",
                 "experimental.big-query-initial-hash-partitions",
                 "experimental.max-concurrent-big-queries",
@@ -50,6 +54,8 @@ public class QueryManagerConfig
     private Duration queryMaxRunTime = new Duration(100, TimeUnit.DAYS);
     private Duration queryMaxCpuTime = new Duration(1_000_000_000, TimeUnit.DAYS);
 
+    private DataSize parsedStatementCacheSize = new DataSize(1, MEGABYTE);
+
     public String getQueueConfigFile()
     {
         return queueConfigFile;
@@ -213,6 +219,20 @@ public class QueryManagerConfig
         return this;
     }
 
+    @NotNull
+    public DataSize getParsedStatementCacheSize()
+    {
+        return parsedStatementCacheSize;
+    }
+
+    @Config("query.parsed-statement-cache-size")
+    @ConfigDescription("Estimated memory retained by the cached syntax trees of parsed statements")
+    public QueryManagerConfig setParsedStatementCacheSize(DataSize parsedStatementCacheSize)
+    {
+        this.parsedStatementCacheSize = parsedStatementCacheSize;
+        return this;
+    }
+
     @Min(1)
     public int getRemoteTaskMaxCallbackThreads()
     {
@@ -239,6 +239,8 @@ public class QueryStateMachine
         long cumulativeMemory = 0;
         long totalMemoryReservation = 0;
         long peakMemoryReservation = 0;
+        long revokedMemory = 0;
+        long memoryRevocationTime = 0;
 
         long totalScheduledTime = 0;
         long totalCpuTime = 0;
@@ -271,6 +273,8 @@ public class QueryStateMachine
             cumulativeMemory += stageStats.getCumulativeMemory();
             totalMemoryReservation += stageStats.getTotalMemoryReservation().toBytes();
             peakMemoryReservation = getPeakMemoryInBytes();
+            revokedMemory += stageStats.getRevokedMemory().toBytes();
+            memoryRevocationTime += stageStats.getMemoryRevocationTime().roundTo(NANOSECONDS);
 
             totalScheduledTime += stageStats.getTotalScheduledTime().roundTo(NANOSECONDS);
             totalCpuTime += stageStats.getTotalCpuTime().roundTo(NANOSECONDS);
@@ -322,6 +326,8 @@ public class QueryStateMachine
                 cumulativeMemory,
                 succinctBytes(totalMemoryReservation),
                 succinctBytes(peakMemoryReservation),
+                succinctBytes(revokedMemory),
+                new Duration(memoryRevocationTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
                 new Duration(totalScheduledTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
                 new Duration(totalCpuTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
                 new Duration(totalUserTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
@@ -56,6 +56,8 @@ public class QueryStats
     private final double cumulativeMemory;
     private final DataSize totalMemoryReservation;
     private final DataSize peakMemoryReservation;
+    private final DataSize revokedMemory;
+    private final Duration memoryRevocationTime;
 
     private final Duration totalScheduledTime;
     private final Duration totalCpuTime;
@@ -96,6 +98,8 @@ public class QueryStats
         this.cumulativeMemory = 0.0;
         this.totalMemoryReservation = null;
         this.peakMemoryReservation = null;
+        this.revokedMemory = null;
+        this.memoryRevocationTime = null;
         this.totalScheduledTime = null;
         this.totalCpuTime = null;
         this.totalUserTime = null;
@@ -136,6 +140,8 @@ public class QueryStats
             @JsonProperty("cumulativeMemory") double cumulativeMemory,
             @JsonProperty("totalMemoryReservation") DataSize totalMemoryReservation,
             @JsonProperty("peakMemoryReservation") DataSize peakMemoryReservation,
+            @JsonProperty("revokedMemory") DataSize revokedMemory,
+            @JsonProperty("memoryRevocationTime") Duration memoryRevocationTime,
 
             @JsonProperty("totalScheduledTime") Duration totalScheduledTime,
             @JsonProperty("totalCpuTime") Duration totalCpuTime,
@@ -184,6 +190,8 @@ public class QueryStats
         this.cumulativeMemory = requireNonNull(cumulativeMemory, "cumulativeMemory is null");
         this.totalMemoryReservation = requireNonNull(totalMemoryReservation, "totalMemoryReservation is null");
         this.peakMemoryReservation = requireNonNull(peakMemoryReservation, "peakMemoryReservation is null");
+        this.revokedMemory = requireNonNull(revokedMemory, "revokedMemory is null");
+        this.memoryRevocationTime = requireNonNull(memoryRevocationTime, "memoryRevocationTime is null");
         this.totalScheduledTime = requireNonNull(totalScheduledTime, "totalScheduledTime is null");
         this.totalCpuTime = requireNonNull(totalCpuTime, "totalCpuTime is null");
         this.totalUserTime = requireNonNull(totalUserTime, "totalUserTime is null");
@@ -334,6 +342,18 @@ public class QueryStats
         return peakMemoryReservation;
     }
 
+    @JsonProperty
+    public DataSize getRevokedMemory()
+    {
+        return revokedMemory;
+    }
+
+    @JsonProperty
+    public Duration getMemoryRevocationTime()
+    {
+        return memoryRevocationTime;
+    }
+
     @JsonProperty
     public Duration getTotalScheduledTime()
     {
@@ -54,6 +54,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import static com.facebook.presto.execution.QueryState.RUNNING;
 import static com.facebook.presto.spi.StandardErrorCode.ABANDONED_QUERY;
@@ -73,8 +74,6 @@ public class SqlQueryManager
 {
     private static final Logger log = Logger.get(SqlQueryManager.class);
 
-    private final SqlParser sqlParser;
-
     private final ExecutorService queryExecutor;
     private final ThreadPoolExecutorMBean queryExecutorMBean;
     private final QueryQueueManager queueManager;
@@ -100,6 +99,8 @@ public class SqlQueryManager
 
     private final SqlQueryManagerStats stats = new SqlQueryManagerStats();
 
+    private final ParsedStatementCache parsedStatements;
+
     @Inject
     public SqlQueryManager(
             SqlParser sqlParser,
@@ -111,8 +112,6 @@ public class SqlQueryManager
             TransactionManager transactionManager,
             Map<Class<? extends Statement>, QueryExecutionFactory<?>> executionFactories)
     {
-        this.sqlParser = requireNonNull(sqlParser, "sqlParser is null");
-
         this.executionFactories = requireNonNull(executionFactories, "executionFactories is null");
 
         this.queryExecutor = newCachedThreadPool(threadsNamed("query-scheduler-%s"));
@@ -130,6 +129,7 @@ public class SqlQueryManager
         this.minQueryExpireAge = config.getMinQueryExpireAge();
         this.maxQueryHistory = config.getMaxQueryHistory();
         this.clientTimeout = config.getClientTimeout();
+        this.parsedStatements = new ParsedStatementCache(sqlParser, config.getParsedStatementCacheSize());
 
         queryManagementExecutor = Executors.newScheduledThreadPool(config.getQueryManagerExecutorPoolSize(), threadsNamed("query-management-%s"));
         queryManagementExecutorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) queryManagementExecutor);
@@ -278,7 +278,7 @@ public class SqlQueryManager
         QueryExecution queryExecution;
         Statement statement;
         try {
-            statement = unwrapExecuteStatement(sqlParser.createStatement(query), sqlParser, session);
+            statement = unwrapExecuteStatement(parsedStatements.getStatement(query), parsedStatements::getStatement, session);
             QueryExecutionFactory<?> queryExecutionFactory = executionFactories.get(statement.getClass());
             if (queryExecutionFactory == null) {
                 throw new PrestoException(NOT_SUPPORTED, "Unsupported statement type: " + statement.getClass().getSimpleName());
@@ -342,13 +342,18 @@ public class SqlQueryManager
     }
 
     public static Statement unwrapExecuteStatement(Statement statement, SqlParser sqlParser, Session session)
+    {
+        return unwrapExecuteStatement(statement, sqlParser::createStatement, session);
+    }
+
+    private static Statement unwrapExecuteStatement(Statement statement, Function<String, Statement> parser, Session session)
     {
         if ((!(statement instanceof Execute))) {
             return statement;
         }
 
         String sql = session.getPreparedStatementFromExecute((Execute) statement);
-        return sqlParser.createStatement(sql);
+        return parser.apply(sql);
     }
 
     @Override
@@ -385,6 +390,13 @@ public class SqlQueryManager
         return stats;
     }
 
+    @Managed
+    @Nested
+    public ParsedStatementCache getParsedStatementCache()
+    {
+        return parsedStatements;
+    }
+
     @Managed(description = "Query scheduler executor")
     @Nested
     public ThreadPoolExecutorMBean getExecutor()
@@ -23,6 +23,7 @@ import com.facebook.presto.execution.buffer.BufferResult;
 import com.facebook.presto.memory.LocalMemoryManager;
 import com.facebook.presto.memory.MemoryPoolAssignment;
 import com.facebook.presto.memory.MemoryPoolAssignmentsRequest;
+import com.facebook.presto.memory.MemoryRevokingScheduler;
 import com.facebook.presto.memory.NodeMemoryConfig;
 import com.facebook.presto.memory.QueryContext;
 import com.facebook.presto.spi.PrestoException;
@@ -85,6 +86,7 @@ public class SqlTaskManager
 
     private final LocalMemoryManager localMemoryManager;
     private final LoadingCache<QueryId, QueryContext> queryContexts;
+    private final MemoryRevokingScheduler memoryRevokingScheduler;
     private final LoadingCache<TaskId, SqlTask> tasks;
 
     private final SqlTaskIoStats cachedStats = new SqlTaskIoStats();
@@ -135,6 +137,14 @@ public class SqlTaskManager
             }
         });
 
+        memoryRevokingScheduler = new MemoryRevokingScheduler(
+                localMemoryManager.getPools(),
+                () -> queryContexts.asMap().values(),
+                taskManagementExecutor,
+                nodeMemoryConfig.getMemoryRevokingThreshold(),
+                nodeMemoryConfig.getMemoryRevokingTarget(),
+                nodeMemoryConfig.getMemoryRevokingTimeout());
+
         tasks = CacheBuilder.newBuilder().build(new CacheLoader<TaskId, SqlTask>()
         {
             @Override
@@ -201,6 +211,15 @@ public class SqlTaskManager
                 log.warn(e, "Error updating stats");
             }
         }, 0, 1, TimeUnit.SECONDS);
+
+        taskManagementExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                memoryRevokingScheduler.revokeMemory();
+            }
+            catch (Throwable e) {
+                log.warn(e, "Error revoking memory");
+            }
+        }, 1, 1, TimeUnit.SECONDS);
     }
 
     @Override
@@ -248,6 +267,13 @@ public class SqlTaskManager
         return taskManagementExecutorMBean;
     }
 
+    @Managed(description = "Memory revoking scheduler")
+    @Nested
+    public MemoryRevokingScheduler getMemoryRevokingScheduler()
+    {
+        return memoryRevokingScheduler;
+    }
+
     @Override
     public List<TaskInfo> getAllTaskInfo()
     {
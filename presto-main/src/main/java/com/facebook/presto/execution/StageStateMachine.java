@@ -200,6 +200,8 @@ public class StageStateMachine
         long cumulativeMemory = 0;
         long totalMemoryReservation = 0;
         long peakMemoryReservation = getPeakMemoryInBytes();
+        long revokedMemory = 0;
+        long memoryRevocationTime = 0;
 
         long totalScheduledTime = 0;
         long totalCpuTime = 0;
@@ -236,6 +238,8 @@ public class StageStateMachine
 
             cumulativeMemory += taskStats.getCumulativeMemory();
             totalMemoryReservation += taskStats.getMemoryReservation().toBytes();
+            revokedMemory += taskStats.getRevokedMemory().toBytes();
+            memoryRevocationTime += taskStats.getMemoryRevocationTime().roundTo(NANOSECONDS);
 
             totalScheduledTime += taskStats.getTotalScheduledTime().roundTo(NANOSECONDS);
             totalCpuTime += taskStats.getTotalCpuTime().roundTo(NANOSECONDS);
@@ -274,6 +278,8 @@ public class StageStateMachine
                 cumulativeMemory,
                 succinctBytes(totalMemoryReservation),
                 succinctBytes(peakMemoryReservation),
+                succinctBytes(revokedMemory),
+                succinctDuration(memoryRevocationTime, NANOSECONDS),
                 succinctDuration(totalScheduledTime, NANOSECONDS),
                 succinctDuration(totalCpuTime, NANOSECONDS),
                 succinctDuration(totalUserTime, NANOSECONDS),
@@ -51,6 +51,8 @@ public class StageStats
     private final double cumulativeMemory;
     private final DataSize totalMemoryReservation;
     private final DataSize peakMemoryReservation;
+    private final DataSize revokedMemory;
+    private final Duration memoryRevocationTime;
 
     private final Duration totalScheduledTime;
     private final Duration totalCpuTime;
@@ -85,6 +87,8 @@ public class StageStats
         this.cumulativeMemory = 0.0;
         this.totalMemoryReservation = null;
         this.peakMemoryReservation = null;
+        this.revokedMemory = null;
+        this.memoryRevocationTime = null;
         this.totalScheduledTime = null;
         this.totalCpuTime = null;
         this.totalUserTime = null;
@@ -119,6 +123,8 @@ public class StageStats
             @JsonProperty("cumulativeMemory") double cumulativeMemory,
             @JsonProperty("totalMemoryReservation") DataSize totalMemoryReservation,
             @JsonProperty("peakMemoryReservation") DataSize peakMemoryReservation,
+            @JsonProperty("revokedMemory") DataSize revokedMemory,
+            @JsonProperty("memoryRevocationTime") Duration memoryRevocationTime,
 
             @JsonProperty("totalScheduledTime") Duration totalScheduledTime,
             @JsonProperty("totalCpuTime") Duration totalCpuTime,
@@ -160,6 +166,8 @@ public class StageStats
         this.cumulativeMemory = requireNonNull(cumulativeMemory, "cumulativeMemory is null");
         this.totalMemoryReservation = requireNonNull(totalMemoryReservation, "totalMemoryReservation is null");
         this.peakMemoryReservation = requireNonNull(peakMemoryReservation, "peakMemoryReservation is null");
+        this.revokedMemory = requireNonNull(revokedMemory, "revokedMemory is null");
+        this.memoryRevocationTime = requireNonNull(memoryRevocationTime, "memoryRevocationTime is null");
 
         this.totalScheduledTime = requireNonNull(totalScheduledTime, "totalScheduledTime is null");
         this.totalCpuTime = requireNonNull(totalCpuTime, "totalCpuTime is null");
@@ -265,6 +273,18 @@ public class StageStats
         return peakMemoryReservation;
     }
 
+    @JsonProperty
+    public DataSize getRevokedMemory()
+    {
+        return revokedMemory;
+    }
+
+    @JsonProperty
+    public Duration getMemoryRevocationTime()
+    {
+        return memoryRevocationTime;
+    }
+
     @JsonProperty
     public Duration getTotalScheduledTime()
     {
@@ -18,6 +18,7 @@ import com.facebook.presto.util.CpuTimer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.concurrent.SetThreadName;
@@ -36,6 +37,7 @@ import javax.inject.Inject;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -46,7 +48,6 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -96,10 +97,16 @@ public class TaskExecutor
     @GuardedBy("this")
     private final Set<PrioritizedSplitRunner> allSplits = new HashSet<>();
 
+    /**
+     * Thread time used by the tasks of each query.
+     */
+    @GuardedBy("this")
+    private final Map<QueryId, AtomicLong> queryThreadUsageNanos = new HashMap<>();
+
     /**
      * Splits waiting for a runner thread.
      */
-    private final PriorityBlockingQueue<PrioritizedSplitRunner> pendingSplits;
+    private final MultilevelSplitQueue pendingSplits = new MultilevelSplitQueue();
 
     /**
      * Splits running on a thread.
@@ -111,7 +118,7 @@ public class TaskExecutor
      */
     private final Map<PrioritizedSplitRunner, Future<?>> blockedSplits = new ConcurrentHashMap<>();
 
-    private final AtomicLongArray completedTasksPerLevel = new AtomicLongArray(5);
+    private final AtomicLongArray completedTasksPerLevel = new AtomicLongArray(MultilevelSplitQueue.LEVEL_COUNT);
 
     private final TimeStat queuedTime = new TimeStat(NANOSECONDS);
     private final TimeStat wallTime = new TimeStat(NANOSECONDS);
@@ -142,7 +149,6 @@ public class TaskExecutor
         this.ticker = requireNonNull(ticker, "ticker is null");
 
         this.minimumNumberOfDrivers = minDrivers;
-        this.pendingSplits = new PriorityBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 10);
         this.tasks = new LinkedList<>();
     }
 
@@ -187,7 +193,8 @@ public class TaskExecutor
     {
         requireNonNull(taskId, "taskId is null");
         requireNonNull(utilizationSupplier, "utilizationSupplier is null");
-        TaskHandle taskHandle = new TaskHandle(taskId, utilizationSupplier, initialSplitConcurrency, splitConcurrencyAdjustFrequency);
+        AtomicLong queryThreadUsage = queryThreadUsageNanos.computeIfAbsent(taskId.getQueryId(), queryId -> new AtomicLong());
+        TaskHandle taskHandle = new TaskHandle(taskId, queryThreadUsage, utilizationSupplier, initialSplitConcurrency, splitConcurrencyAdjustFrequency);
         tasks.add(taskHandle);
         return taskHandle;
     }
@@ -199,10 +206,15 @@ public class TaskExecutor
             tasks.remove(taskHandle);
             splits = taskHandle.destroy();
 
+            QueryId queryId = taskHandle.getTaskId().getQueryId();
+            if (tasks.stream().noneMatch(task -> task.getTaskId().getQueryId().equals(queryId))) {
+                queryThreadUsageNanos.remove(queryId);
+            }
+
             // stop tracking splits (especially blocked splits which may never unblock)
             allSplits.removeAll(splits);
             blockedSplits.keySet().removeAll(splits);
-            pendingSplits.removeAll(splits);
+            pendingSplits.removeAll(ImmutableSet.copyOf(splits));
         }
 
         // call destroy outside of synchronized block as it is expensive and doesn't need a lock on the task executor
@@ -225,7 +237,7 @@ public class TaskExecutor
         List<ListenableFuture<?>> finishedFutures = new ArrayList<>(taskSplits.size());
         synchronized (this) {
             for (SplitRunner taskSplit : taskSplits) {
-                PrioritizedSplitRunner prioritizedSplitRunner = new PrioritizedSplitRunner(taskHandle, taskSplit, ticker);
+                PrioritizedSplitRunner prioritizedSplitRunner = new PrioritizedSplitRunner(taskHandle, taskSplit);
 
                 if (taskHandle.isDestroyed()) {
                     // If the handle is destroyed, we destroy the task splits to complete the future
@@ -305,7 +317,7 @@ public class TaskExecutor
     private synchronized void startSplit(PrioritizedSplitRunner split)
     {
         allSplits.add(split);
-        pendingSplits.put(split);
+        pendingSplits.offer(split);
     }
 
     private synchronized PrioritizedSplitRunner pollNextSplitWorker()
@@ -333,6 +345,7 @@ public class TaskExecutor
     public static class TaskHandle
     {
         private final TaskId taskId;
+        private final AtomicLong queryThreadUsageNanos;
         private final DoubleSupplier utilizationSupplier;
         @GuardedBy("this")
         private final Queue<PrioritizedSplitRunner> queuedSplits = new ArrayDeque<>(10);
@@ -349,20 +362,28 @@ public class TaskExecutor
 
         private final AtomicInteger nextSplitId = new AtomicInteger();
 
-        private TaskHandle(TaskId taskId, DoubleSupplier utilizationSupplier, int initialSplitConcurrency, Duration splitConcurrencyAdjustFrequency)
+        private TaskHandle(TaskId taskId, AtomicLong queryThreadUsageNanos, DoubleSupplier utilizationSupplier, int initialSplitConcurrency, Duration splitConcurrencyAdjustFrequency)
         {
             this.taskId = taskId;
+            this.queryThreadUsageNanos = queryThreadUsageNanos;
             this.utilizationSupplier = utilizationSupplier;
             this.concurrencyController = new SplitConcurrencyController(initialSplitConcurrency, splitConcurrencyAdjustFrequency);
         }
 
-        private synchronized long addThreadUsageNanos(long durationNanos)
+        @VisibleForTesting
+        synchronized long addThreadUsageNanos(long durationNanos)
         {
             concurrencyController.update(durationNanos, utilizationSupplier.getAsDouble(), runningSplits.size());
             taskThreadUsageNanos += durationNanos;
+            queryThreadUsageNanos.addAndGet(durationNanos);
             return taskThreadUsageNanos;
         }
 
+        private long getQueryThreadUsageNanos()
+        {
+            return queryThreadUsageNanos.get();
+        }
+
         private TaskId getTaskId()
         {
             return taskId;
@@ -449,8 +470,7 @@ public class TaskExecutor
         }
     }
 
-    private static class PrioritizedSplitRunner
-            implements Comparable<PrioritizedSplitRunner>
+    static class PrioritizedSplitRunner
     {
         private final long createdNanos = System.nanoTime();
 
@@ -459,8 +479,6 @@ public class TaskExecutor
         private final long workerId;
         private final SplitRunner split;
 
-        private final Ticker ticker;
-
         private final SettableFuture<?> finishedFuture = SettableFuture.create();
 
         private final AtomicBoolean destroyed = new AtomicBoolean();
@@ -468,18 +486,17 @@ public class TaskExecutor
         private final AtomicInteger priorityLevel = new AtomicInteger();
         private final AtomicLong threadUsageNanos = new AtomicLong();
         private final AtomicLong splitThreadUsageNanos = new AtomicLong();
-        private final AtomicLong lastRun = new AtomicLong();
         private final AtomicLong start = new AtomicLong();
 
         private final AtomicLong cpuTime = new AtomicLong();
         private final AtomicLong processCalls = new AtomicLong();
 
-        private PrioritizedSplitRunner(TaskHandle taskHandle, SplitRunner split, Ticker ticker)
+        @VisibleForTesting
+        PrioritizedSplitRunner(TaskHandle taskHandle, SplitRunner split)
         {
             this.taskHandle = taskHandle;
             this.splitId = taskHandle.getNextSplitId();
             this.split = split;
-            this.ticker = ticker;
             this.workerId = NEXT_WORKER_ID.getAndIncrement();
         }
 
@@ -537,9 +554,6 @@ public class TaskExecutor
                 this.threadUsageNanos.set(threadUsageNanos);
                 priorityLevel.set(calculatePriorityLevel(threadUsageNanos));
 
-                // record last run for prioritization within a level
-                lastRun.set(ticker.read());
-
                 cpuTime.addAndGet(elapsed.getCpu().roundTo(NANOSECONDS));
                 return blocked;
             }
@@ -561,27 +575,14 @@ public class TaskExecutor
             return true;
         }
 
-        @Override
-        public int compareTo(PrioritizedSplitRunner o)
+        public int getPriorityLevel()
         {
-            int level = priorityLevel.get();
-
-            int result = Integer.compare(level, o.priorityLevel.get());
-            if (result != 0) {
-                return result;
-            }
-
-            if (level < 4) {
-                result = Long.compare(threadUsageNanos.get(), o.threadUsageNanos.get());
-            }
-            else {
-                result = Long.compare(lastRun.get(), o.lastRun.get());
-            }
-            if (result != 0) {
-                return result;
-            }
+            return priorityLevel.get();
+        }
 
-            return Long.compare(workerId, o.workerId);
+        public long getQueryThreadUsageNanos()
+        {
+            return taskHandle.getQueryThreadUsageNanos();
         }
 
         public int getSplitId()
@@ -647,7 +648,7 @@ public class TaskExecutor
                         split = pendingSplits.take();
                         if (split.updatePriorityLevel()) {
                             // priority level changed, return split to queue for re-prioritization
-                            pendingSplits.put(split);
+                            pendingSplits.offer(split);
                             continue;
                         }
                     }
@@ -659,6 +660,8 @@ public class TaskExecutor
                     try (SetThreadName splitName = new SetThreadName(split.getTaskHandle().getTaskId() + "-" + split.getSplitId())) {
                         runningSplits.add(split);
 
+                        int level = split.getPriorityLevel();
+                        long start = ticker.read();
                         boolean finished;
                         ListenableFuture<?> blocked;
                         try {
@@ -667,6 +670,7 @@ public class TaskExecutor
                         }
                         finally {
                             runningSplits.remove(split);
+                            pendingSplits.addLevelTime(level, ticker.read() - start);
                         }
 
                         if (finished) {
@@ -675,7 +679,7 @@ public class TaskExecutor
                         }
                         else {
                             if (blocked.isDone()) {
-                                pendingSplits.put(split);
+                                pendingSplits.offer(split);
                             }
                             else {
                                 blockedSplits.put(split, blocked);
@@ -686,7 +690,7 @@ public class TaskExecutor
                                     {
                                         blockedSplits.remove(split);
                                         split.updatePriorityLevel();
-                                        pendingSplits.put(split);
+                                        pendingSplits.offer(split);
                                     }
                                 }, executor);
                             }
@@ -844,6 +848,13 @@ public class TaskExecutor
         return count;
     }
 
+    @Managed
+    @Nested
+    public MultilevelSplitQueue getPendingSplitsQueue()
+    {
+        return pendingSplits;
+    }
+
     @Managed(description = "Task processor executor")
     @Nested
     public ThreadPoolExecutorMBean getProcessorExecutor()
@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import com.facebook.presto.spi.Node;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Consistent hash ring of nodes. Each node is placed on the ring at a number of points
+ * derived from its identifier, so adding or removing a node only moves the keys next to
+ * the points of that node.
+ */
+public class NodeHashRing
+{
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final int POINTS_PER_NODE = 64;
+
+    private final long[] points;
+    private final Node[] pointNodes;
+    private final int nodeCount;
+
+    public NodeHashRing(Collection<Node> nodes)
+    {
+        List<Point> ring = new ArrayList<>(nodes.size() * POINTS_PER_NODE);
+        for (Node node : nodes) {
+            for (int i = 0; i < POINTS_PER_NODE; i++) {
+                ring.add(new Point(hash(node.getNodeIdentifier() + "#" + i), node));
+            }
+        }
+        ring.sort(Comparator.comparingLong(Point::getHash));
+
+        points = new long[ring.size()];
+        pointNodes = new Node[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            points[i] = ring.get(i).getHash();
+            pointNodes[i] = ring.get(i).getNode();
+        }
+        nodeCount = nodes.size();
+    }
+
+    /**
+     * Returns up to {@code count} distinct nodes for {@code key}, in order of preference.
+     */
+    public List<Node> getNodes(String key, int count)
+    {
+        checkArgument(count > 0, "count must be at least 1");
+        List<Node> nodes = new ArrayList<>(count);
+        if (points.length == 0) {
+            return nodes;
+        }
+
+        int start = Arrays.binarySearch(points, hash(key));
+        if (start < 0) {
+            start = -(start + 1);
+        }
+        for (int i = 0; i < points.length && nodes.size() < Math.min(count, nodeCount); i++) {
+            Node node = pointNodes[(start + i) % points.length];
+            if (!nodes.contains(node)) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    private static long hash(String value)
+    {
+        return HASH_FUNCTION.hashString(value, UTF_8).asLong();
+    }
+
+    private static class Point
+    {
+        private final long hash;
+        private final Node node;
+
+        private Point(long hash, Node node)
+        {
+            this.hash = hash;
+            this.node = node;
+        }
+
+        private long getHash()
+        {
+            return hash;
+        }
+
+        private Node getNode()
+        {
+            return node;
+        }
+    }
+}
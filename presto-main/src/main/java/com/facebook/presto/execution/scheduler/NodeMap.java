@@ -18,6 +18,7 @@ import com.facebook.presto.spi.Node;
 import com.google.common.collect.SetMultimap;
 
 import java.net.InetAddress;
+import java.util.Optional;
 import java.util.Set;
 
 public class NodeMap
@@ -26,16 +27,19 @@ public class NodeMap
     private final SetMultimap<InetAddress, Node> nodesByHost;
     private final SetMultimap<NetworkLocation, Node> workersByNetworkPath;
     private final Set<String> coordinatorNodeIds;
+    private final Optional<NodeHashRing> affinityRing;
 
     public NodeMap(SetMultimap<HostAddress, Node> nodesByHostAndPort,
             SetMultimap<InetAddress, Node> nodesByHost,
             SetMultimap<NetworkLocation, Node> workersByNetworkPath,
-            Set<String> coordinatorNodeIds)
+            Set<String> coordinatorNodeIds,
+            Optional<NodeHashRing> affinityRing)
     {
         this.nodesByHostAndPort = nodesByHostAndPort;
         this.nodesByHost = nodesByHost;
         this.workersByNetworkPath = workersByNetworkPath;
         this.coordinatorNodeIds = coordinatorNodeIds;
+        this.affinityRing = affinityRing;
     }
 
     public SetMultimap<HostAddress, Node> getNodesByHostAndPort()
@@ -57,4 +61,9 @@ public class NodeMap
     {
         return coordinatorNodeIds;
     }
+
+    public Optional<NodeHashRing> getAffinityRing()
+    {
+        return affinityRing;
+    }
 }
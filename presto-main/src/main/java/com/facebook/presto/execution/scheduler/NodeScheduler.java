@@ -30,6 +30,7 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 import io.airlift.stats.CounterStat;
 
+import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
@@ -40,6 +41,7 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -52,8 +54,12 @@ import static java.util.Objects.requireNonNull;
 
 public class NodeScheduler
 {
+    // number of preferred nodes for a split with an affinity key
+    private static final int AFFINITY_NODE_COUNT = 2;
+
     private final NetworkLocationCache networkLocationCache;
     private final List<CounterStat> topologicalSplitCounters;
+    private final CounterStat affinitySplitCounter = new CounterStat();
     private final List<String> networkLocationSegmentNames;
     private final NodeManager nodeManager;
     private final int minCandidates;
@@ -63,6 +69,7 @@ public class NodeScheduler
     private final NodeTaskMap nodeTaskMap;
     private final boolean doubleScheduling;
     private final boolean useNetworkTopology;
+    private final boolean splitAffinityEnabled;
 
     @Inject
     public NodeScheduler(NetworkTopology networkTopology, NodeManager nodeManager, NodeSchedulerConfig config, NodeTaskMap nodeTaskMap)
@@ -87,6 +94,7 @@ public class NodeScheduler
         this.nodeTaskMap = requireNonNull(nodeTaskMap, "nodeTaskMap is null");
         checkArgument(maxSplitsPerNode > maxPendingSplitsPerNodePerStageWhenFull, "maxSplitsPerNode must be > maxPendingSplitsPerNodePerStageWhenFull");
         this.useNetworkTopology = !config.getNetworkTopology().equals(NetworkTopologyType.LEGACY);
+        this.splitAffinityEnabled = config.isSplitAffinityEnabled();
 
         ImmutableList.Builder<CounterStat> builder = ImmutableList.builder();
         if (useNetworkTopology) {
@@ -116,6 +124,14 @@ public class NodeScheduler
         return counters.build();
     }
 
+    /**
+     * Splits placed on a preferred node of their affinity key because no node near their data was available.
+     */
+    public CounterStat getAffinitySplitCounter()
+    {
+        return affinitySplitCounter;
+    }
+
     public NodeSelector createNodeSelector(String dataSourceName)
     {
         // this supplier is thread-safe. TODO: this logic should probably move to the scheduler since the choice of which node to run in should be
@@ -155,7 +171,14 @@ public class NodeScheduler
                 }
             }
 
-            return new NodeMap(byHostAndPort.build(), byHost.build(), workersByNetworkPath.build(), coordinatorNodeIds);
+            Optional<NodeHashRing> affinityRing = Optional.empty();
+            if (splitAffinityEnabled) {
+                affinityRing = Optional.of(new NodeHashRing(nodes.stream()
+                        .filter(node -> includeCoordinator || !coordinatorNodeIds.contains(node.getNodeIdentifier()))
+                        .collect(toImmutableList())));
+            }
+
+            return new NodeMap(byHostAndPort.build(), byHost.build(), workersByNetworkPath.build(), coordinatorNodeIds, affinityRing);
         }, 5, TimeUnit.SECONDS);
 
         if (useNetworkTopology) {
@@ -169,6 +192,7 @@ public class NodeScheduler
                     maxSplitsPerNode,
                     maxPendingSplitsPerNodePerStageWhenFull,
                     topologicalSplitCounters,
+                    affinitySplitCounter,
                     networkLocationSegmentNames,
                     networkLocationCache);
         }
@@ -177,6 +201,33 @@ public class NodeScheduler
         }
     }
 
+    /**
+     * Selects the least loaded of the preferred nodes of a remotely accessible split with an affinity key,
+     * or returns null if there are none or all of them are full.
+     */
+    @Nullable
+    public static Node selectAffinityNode(NodeMap nodeMap, Split split, NodeAssignmentStats assignmentStats, int maxSplitsPerNode)
+    {
+        if (!split.isRemotelyAccessible() || !nodeMap.getAffinityRing().isPresent()) {
+            return null;
+        }
+        Optional<String> affinityKey = split.getAffinityKey();
+        if (!affinityKey.isPresent()) {
+            return null;
+        }
+
+        Node chosenNode = null;
+        int min = Integer.MAX_VALUE;
+        for (Node node : nodeMap.getAffinityRing().get().getNodes(affinityKey.get(), AFFINITY_NODE_COUNT)) {
+            int totalSplitCount = assignmentStats.getTotalSplitCount(node);
+            if (totalSplitCount < min && totalSplitCount < maxSplitsPerNode) {
+                chosenNode = node;
+                min = totalSplitCount;
+            }
+        }
+        return chosenNode;
+    }
+
     public static List<Node> selectNodes(int limit, Iterator<Node> candidates, boolean doubleScheduling)
     {
         checkArgument(limit > 0, "limit must be at least 1");
@@ -37,6 +37,7 @@ public class NodeSchedulerConfig
     private int maxSplitsPerNode = 100;
     private int maxPendingSplitsPerNodePerStage = 10;
     private String networkTopology = NetworkTopologyType.LEGACY;
+    private boolean splitAffinityEnabled;
 
     @NotNull
     public String getNetworkTopology()
@@ -102,6 +103,19 @@ public class NodeSchedulerConfig
         return maxPendingSplitsPerNodePerStage;
     }
 
+    public boolean isSplitAffinityEnabled()
+    {
+        return splitAffinityEnabled;
+    }
+
+    @ConfigDescription("Prefer to schedule remotely accessible splits that read the same data on the same nodes")
+    @Config("node-scheduler.split-affinity-enabled")
+    public NodeSchedulerConfig setSplitAffinityEnabled(boolean splitAffinityEnabled)
+    {
+        this.splitAffinityEnabled = splitAffinityEnabled;
+        return this;
+    }
+
     public int getMaxSplitsPerNode()
     {
         return maxSplitsPerNode;
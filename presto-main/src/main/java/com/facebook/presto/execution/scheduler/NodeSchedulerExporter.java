@@ -49,6 +49,14 @@ public final class NodeSchedulerExporter
                 // ignored
             }
         }
+        try {
+            String objectName = ObjectNames.builder(NodeScheduler.class).withProperty("segment", "affinity").build();
+            this.exporter.export(objectName, nodeScheduler.getAffinitySplitCounter());
+            objectNames.add(objectName);
+        }
+        catch (JmxException e) {
+            // ignored
+        }
     }
 
     @PreDestroy
@@ -32,6 +32,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.execution.scheduler.NodeScheduler.randomizedNodes;
+import static com.facebook.presto.execution.scheduler.NodeScheduler.selectAffinityNode;
 import static com.facebook.presto.execution.scheduler.NodeScheduler.selectDistributionNodes;
 import static com.facebook.presto.execution.scheduler.NodeScheduler.selectExactNodes;
 import static com.facebook.presto.execution.scheduler.NodeScheduler.selectNodes;
@@ -106,6 +107,13 @@ public class SimpleNodeSelector
 
         ResettableRandomizedIterator<Node> randomCandidates = randomizedNodes(nodeMap, includeCoordinator);
         for (Split split : splits) {
+            Node affinityNode = selectAffinityNode(nodeMap, split, assignmentStats, maxSplitsPerNode);
+            if (affinityNode != null) {
+                assignment.put(affinityNode, split);
+                assignmentStats.addAssignedSplit(affinityNode);
+                continue;
+            }
+
             randomCandidates.reset();
 
             List<Node> candidateNodes;
@@ -39,6 +39,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.execution.scheduler.NetworkLocation.ROOT_LOCATION;
 import static com.facebook.presto.execution.scheduler.NodeScheduler.randomizedNodes;
+import static com.facebook.presto.execution.scheduler.NodeScheduler.selectAffinityNode;
 import static com.facebook.presto.execution.scheduler.NodeScheduler.selectDistributionNodes;
 import static com.facebook.presto.execution.scheduler.NodeScheduler.selectExactNodes;
 import static com.facebook.presto.execution.scheduler.NodeScheduler.selectNodes;
@@ -59,6 +60,7 @@ public class TopologyAwareNodeSelector
     private final int maxSplitsPerNode;
     private final int maxPendingSplitsPerNodePerStageWhenFull;
     private final List<CounterStat> topologicalSplitCounters;
+    private final CounterStat affinitySplitCounter;
     private final List<String> networkLocationSegmentNames;
     private final NetworkLocationCache networkLocationCache;
 
@@ -72,6 +74,7 @@ public class TopologyAwareNodeSelector
             int maxSplitsPerNode,
             int maxPendingSplitsPerNodePerStageWhenFull,
             List<CounterStat> topologicalSplitCounters,
+            CounterStat affinitySplitCounter,
             List<String> networkLocationSegmentNames,
             NetworkLocationCache networkLocationCache)
     {
@@ -84,6 +87,7 @@ public class TopologyAwareNodeSelector
         this.maxSplitsPerNode = maxSplitsPerNode;
         this.maxPendingSplitsPerNodePerStageWhenFull = maxPendingSplitsPerNodePerStageWhenFull;
         this.topologicalSplitCounters = requireNonNull(topologicalSplitCounters, "topologicalSplitCounters is null");
+        this.affinitySplitCounter = requireNonNull(affinitySplitCounter, "affinitySplitCounter is null");
         this.networkLocationSegmentNames = requireNonNull(networkLocationSegmentNames, "networkLocationSegmentNames is null");
         this.networkLocationCache = requireNonNull(networkLocationCache, "networkLocationCache is null");
     }
@@ -121,6 +125,7 @@ public class TopologyAwareNodeSelector
         NodeAssignmentStats assignmentStats = new NodeAssignmentStats(nodeTaskMap, nodeMap, existingTasks);
 
         int[] topologicCounters = new int[topologicalSplitCounters.size()];
+        int affinityCount = 0;
         Set<NetworkLocation> filledLocations = new HashSet<>();
         for (Split split : splits) {
             if (!split.isRemotelyAccessible()) {
@@ -138,6 +143,7 @@ public class TopologyAwareNodeSelector
             }
 
             Node chosenNode = null;
+            boolean affinity = false;
             int depth = networkLocationSegmentNames.size();
             int chosenDepth = 0;
             Set<NetworkLocation> locations = new HashSet<>();
@@ -151,6 +157,14 @@ public class TopologyAwareNodeSelector
             }
             // Try each address at progressively shallower network locations
             for (int i = depth; i >= 0 && chosenNode == null; i--) {
+                if (i == 0) {
+                    // no node near the data of the split is available, so prefer the node that read the same data before
+                    chosenNode = selectAffinityNode(nodeMap, split, assignmentStats, maxSplitsPerNode);
+                    if (chosenNode != null) {
+                        affinity = true;
+                        break;
+                    }
+                }
                 for (NetworkLocation location : locations) {
                     // Skip locations which are only shallower than this level
                     // For example, locations which couldn't be located will be at the "root" location
@@ -174,7 +188,12 @@ public class TopologyAwareNodeSelector
             if (chosenNode != null) {
                 assignment.put(chosenNode, split);
                 assignmentStats.addAssignedSplit(chosenNode);
-                topologicCounters[chosenDepth]++;
+                if (affinity) {
+                    affinityCount++;
+                }
+                else {
+                    topologicCounters[chosenDepth]++;
+                }
             }
         }
         for (int i = 0; i < topologicCounters.length; i++) {
@@ -182,6 +201,9 @@ public class TopologyAwareNodeSelector
                 topologicalSplitCounters.get(i).update(topologicCounters[i]);
             }
         }
+        if (affinityCount > 0) {
+            affinitySplitCounter.update(affinityCount);
+        }
         return assignment;
     }
 
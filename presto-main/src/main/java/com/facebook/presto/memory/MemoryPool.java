@@ -17,19 +17,25 @@ import com.facebook.presto.execution.QueryId;
 import com.google.common.base.MoreObjects;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
 import io.airlift.units.DataSize;
 import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.facebook.presto.operator.Operator.NOT_BLOCKED;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public class MemoryPool
 {
@@ -47,6 +53,17 @@ public class MemoryPool
     // TODO: It would be better if we just tracked QueryContexts, but their lifecycle is managed by a weak reference, so we can't do that
     private final Map<QueryId, Long> queryMemoryReservations = new HashMap<>();
 
+    @GuardedBy("this")
+    private final Map<QueryId, Long> queryRevocableMemoryReservations = new HashMap<>();
+
+    @GuardedBy("this")
+    private long reservedRevocableBytes;
+
+    private final List<MemoryPoolListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final CounterStat revokedBytes = new CounterStat();
+    private final TimeStat memoryRevocationTime = new TimeStat(NANOSECONDS);
+
     public MemoryPool(MemoryPoolId id, DataSize size)
     {
         this.id = requireNonNull(id, "name is null");
@@ -62,45 +79,149 @@ public class MemoryPool
 
     public synchronized MemoryPoolInfo getInfo()
     {
-        return new MemoryPoolInfo(maxBytes, freeBytes, queryMemoryReservations);
+        // revocable memory counts against the query, so the coordinator sees it when enforcing limits
+        Map<QueryId, Long> queryReservations = new HashMap<>(queryMemoryReservations);
+        queryRevocableMemoryReservations.forEach((queryId, bytes) -> queryReservations.merge(queryId, bytes, Long::sum));
+        return new MemoryPoolInfo(maxBytes, freeBytes, queryReservations);
     }
 
     /**
      * Reserves the given number of bytes. Caller should wait on the returned future, before allocating more memory.
      */
-    public synchronized ListenableFuture<?> reserve(QueryId queryId, long bytes)
+    public ListenableFuture<?> reserve(QueryId queryId, long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
+        ListenableFuture<?> result;
+        synchronized (this) {
+            if (bytes != 0) {
+                queryMemoryReservations.merge(queryId, bytes, Long::sum);
+            }
+            freeBytes -= bytes;
+            if (freeBytes <= 0) {
+                if (future == null) {
+                    future = SettableFuture.create();
+                }
+                checkState(!future.isDone(), "future is already completed");
+                result = future;
+            }
+            else {
+                result = NOT_BLOCKED;
+            }
+        }
         if (bytes != 0) {
-            queryMemoryReservations.merge(queryId, bytes, Long::sum);
+            onMemoryReserved();
         }
-        freeBytes -= bytes;
-        if (freeBytes <= 0) {
-            if (future == null) {
-                future = SettableFuture.create();
+        return result;
+    }
+
+    /**
+     * Try to reserve the given number of bytes. Return value indicates whether the caller may use the requested memory.
+     */
+    public boolean tryReserve(QueryId queryId, long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        synchronized (this) {
+            if (freeBytes - bytes < 0) {
+                return false;
+            }
+            freeBytes -= bytes;
+            if (bytes != 0) {
+                queryMemoryReservations.merge(queryId, bytes, Long::sum);
             }
-            checkState(!future.isDone(), "future is already completed");
-            return future;
         }
-        return NOT_BLOCKED;
+        if (bytes != 0) {
+            onMemoryReserved();
+        }
+        return true;
     }
 
     /**
-     * Try to reserve the given number of bytes. Return value indicates whether the caller may use the requested memory.
+     * Try to reserve the given number of bytes of revocable memory. Revocable memory is taken from the same
+     * pool as regular memory, but its holders release it when asked to, by spilling or flushing their state.
      */
-    public synchronized boolean tryReserve(QueryId queryId, long bytes)
+    public boolean tryReserveRevocable(QueryId queryId, long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
-        if (freeBytes - bytes < 0) {
-            return false;
+        synchronized (this) {
+            if (freeBytes - bytes < 0) {
+                return false;
+            }
+            addRevocableReservation(queryId, bytes);
         }
-        freeBytes -= bytes;
         if (bytes != 0) {
-            queryMemoryReservations.merge(queryId, bytes, Long::sum);
+            onMemoryReserved();
         }
         return true;
     }
 
+    /**
+     * Reserves the given number of bytes of revocable memory, even if the pool is over-committed as a result.
+     */
+    public void reserveRevocable(QueryId queryId, long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        synchronized (this) {
+            addRevocableReservation(queryId, bytes);
+        }
+        if (bytes != 0) {
+            onMemoryReserved();
+        }
+    }
+
+    @GuardedBy("this")
+    private void addRevocableReservation(QueryId queryId, long bytes)
+    {
+        freeBytes -= bytes;
+        reservedRevocableBytes += bytes;
+        if (bytes != 0) {
+            queryRevocableMemoryReservations.merge(queryId, bytes, Long::sum);
+        }
+    }
+
+    public synchronized void freeRevocable(QueryId queryId, long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(reservedRevocableBytes - bytes >= 0, "tried to free more revocable memory than is reserved");
+        if (bytes == 0) {
+            return;
+        }
+
+        Long queryReservation = queryRevocableMemoryReservations.get(queryId);
+        requireNonNull(queryReservation, "queryReservation is null");
+        checkArgument(queryReservation - bytes >= 0, "tried to free more revocable memory than is reserved by query");
+        queryReservation -= bytes;
+        if (queryReservation == 0) {
+            queryRevocableMemoryReservations.remove(queryId);
+        }
+        else {
+            queryRevocableMemoryReservations.put(queryId, queryReservation);
+        }
+        reservedRevocableBytes -= bytes;
+        freeBytes += bytes;
+        if (freeBytes > 0 && future != null) {
+            future.set(null);
+            future = null;
+        }
+    }
+
+    public void addListener(MemoryPoolListener listener)
+    {
+        listeners.add(requireNonNull(listener, "listener is null"));
+    }
+
+    private void onMemoryReserved()
+    {
+        for (MemoryPoolListener listener : listeners) {
+            listener.onMemoryReserved(this);
+        }
+    }
+
+    public void recordMemoryRevoked(long bytes, long nanos)
+    {
+        revokedBytes.update(bytes);
+        memoryRevocationTime.add(nanos, NANOSECONDS);
+    }
+
     public synchronized void free(QueryId queryId, long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
@@ -142,6 +263,26 @@ public class MemoryPool
         return maxBytes;
     }
 
+    @Managed
+    public synchronized long getReservedRevocableBytes()
+    {
+        return reservedRevocableBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRevokedBytes()
+    {
+        return revokedBytes;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getMemoryRevocationTime()
+    {
+        return memoryRevocationTime;
+    }
+
     @Override
     public synchronized String toString()
     {
@@ -149,6 +290,7 @@ public class MemoryPool
                 .add("id", id)
                 .add("maxBytes", maxBytes)
                 .add("freeBytes", freeBytes)
+                .add("reservedRevocableBytes", reservedRevocableBytes)
                 .add("future", future)
                 .toString();
     }
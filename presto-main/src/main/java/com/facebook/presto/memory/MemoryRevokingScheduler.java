@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.operator.OperatorContext;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Asks operators to give back their revocable memory when a memory pool runs low, starting with the
+ * operators that hold the most of it, so that memory is released before reservations block on the pool
+ * and before the cluster memory manager has to kill a query.
+ * <p>
+ * Revoking starts once the used part of a pool exceeds the threshold, and asks for enough memory to bring
+ * it back to the target. No more operators of a pool are asked until the ones that were asked are done, or
+ * until the revoking timeout passes, after which the next largest holders that were not asked yet are asked.
+ */
+@ThreadSafe
+public class MemoryRevokingScheduler
+{
+    private static final Logger log = Logger.get(MemoryRevokingScheduler.class);
+
+    private static final Comparator<OperatorContext> LARGEST_REVOCABLE_FIRST = Comparator.comparingLong(OperatorContext::getRevocableMemoryReservation).reversed();
+
+    private final List<MemoryPool> memoryPools;
+    private final Supplier<? extends Collection<QueryContext>> queryContexts;
+    private final Executor executor;
+    private final double memoryRevokingThreshold;
+    private final double memoryRevokingTarget;
+    private final long memoryRevokingTimeoutNanos;
+    private final Ticker ticker;
+
+    private final AtomicBoolean checkPending = new AtomicBoolean();
+
+    @GuardedBy("this")
+    private final Map<MemoryPool, List<PendingRevocation>> pendingRevocations = new HashMap<>();
+
+    private final CounterStat revocationRequests = new CounterStat();
+    private final CounterStat revocationTimeouts = new CounterStat();
+
+    public MemoryRevokingScheduler(
+            List<MemoryPool> memoryPools,
+            Supplier<? extends Collection<QueryContext>> queryContexts,
+            Executor executor,
+            double memoryRevokingThreshold,
+            double memoryRevokingTarget,
+            Duration memoryRevokingTimeout)
+    {
+        this(memoryPools, queryContexts, executor, memoryRevokingThreshold, memoryRevokingTarget, memoryRevokingTimeout, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    MemoryRevokingScheduler(
+            List<MemoryPool> memoryPools,
+            Supplier<? extends Collection<QueryContext>> queryContexts,
+            Executor executor,
+            double memoryRevokingThreshold,
+            double memoryRevokingTarget,
+            Duration memoryRevokingTimeout,
+            Ticker ticker)
+    {
+        this.memoryPools = ImmutableList.copyOf(requireNonNull(memoryPools, "memoryPools is null"));
+        this.queryContexts = requireNonNull(queryContexts, "queryContexts is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        checkArgument(memoryRevokingThreshold >= 0 && memoryRevokingThreshold <= 1, "memoryRevokingThreshold must be between 0 and 1");
+        checkArgument(memoryRevokingTarget >= 0 && memoryRevokingTarget <= memoryRevokingThreshold, "memoryRevokingTarget must be between 0 and memoryRevokingThreshold");
+        this.memoryRevokingThreshold = memoryRevokingThreshold;
+        this.memoryRevokingTarget = memoryRevokingTarget;
+        this.memoryRevokingTimeoutNanos = requireNonNull(memoryRevokingTimeout, "memoryRevokingTimeout is null").roundTo(NANOSECONDS);
+        this.ticker = requireNonNull(ticker, "ticker is null");
+
+        for (MemoryPool pool : this.memoryPools) {
+            pool.addListener(this::onMemoryReserved);
+        }
+    }
+
+    private void onMemoryReserved(MemoryPool pool)
+    {
+        if (isOverThreshold(pool)) {
+            scheduleRevoking();
+        }
+    }
+
+    private void scheduleRevoking()
+    {
+        if (checkPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    revokeMemory();
+                }
+                catch (Throwable e) {
+                    log.warn(e, "Error revoking memory");
+                }
+            });
+        }
+    }
+
+    /**
+     * Asks the largest holders of revocable memory in every pool that is over the threshold to release it.
+     */
+    public synchronized void revokeMemory()
+    {
+        checkPending.set(false);
+        long now = ticker.read();
+        for (MemoryPool pool : memoryPools) {
+            List<PendingRevocation> pending = pendingRevocations.computeIfAbsent(pool, key -> new ArrayList<>());
+            pending.removeIf(PendingRevocation::isDone);
+            if (pending.removeIf(revocation -> revocation.isExpired(now))) {
+                // operators that do not respond keep their request, but no longer hold back the pool
+                revocationTimeouts.update(1);
+            }
+            if (pending.isEmpty() && isOverThreshold(pool)) {
+                revokeMemory(pool, pending);
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void revokeMemory(MemoryPool pool, List<PendingRevocation> pending)
+    {
+        long targetFreeBytes = (long) (pool.getMaxBytes() * (1 - memoryRevokingTarget));
+        long remainingBytes = targetFreeBytes - pool.getFreeBytes();
+
+        List<OperatorContext> operators = queryContexts.get().stream()
+                .filter(queryContext -> queryContext.getMemoryPool() == pool)
+                .flatMap(queryContext -> queryContext.getTaskContexts().stream())
+                .flatMap(taskContext -> taskContext.getPipelineContexts().stream())
+                .flatMap(pipelineContext -> pipelineContext.getDriverContexts().stream())
+                .flatMap(driverContext -> driverContext.getOperatorContexts().stream())
+                .filter(operatorContext -> !operatorContext.isDone() && operatorContext.getRevocableMemoryReservation() > 0)
+                .filter(operatorContext -> !operatorContext.isMemoryRevokingRequested())
+                .sorted(LARGEST_REVOCABLE_FIRST)
+                .collect(toImmutableList());
+
+        for (OperatorContext operatorContext : operators) {
+            if (remainingBytes <= 0) {
+                break;
+            }
+            remainingBytes -= operatorContext.getRevocableMemoryReservation();
+            ListenableFuture<?> future = operatorContext.requestMemoryRevoking();
+            pending.add(new PendingRevocation(future, ticker.read() + memoryRevokingTimeoutNanos));
+            revocationRequests.update(1);
+            // once the operator is done, other operators may have to be asked
+            future.addListener(this::scheduleRevoking, executor);
+        }
+    }
+
+    private boolean isOverThreshold(MemoryPool pool)
+    {
+        return pool.getMaxBytes() - pool.getFreeBytes() > pool.getMaxBytes() * memoryRevokingThreshold;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRevocationRequests()
+    {
+        return revocationRequests;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRevocationTimeouts()
+    {
+        return revocationTimeouts;
+    }
+
+    @Managed
+    public synchronized int getPendingRevocations()
+    {
+        return pendingRevocations.values().stream()
+                .mapToInt(pending -> (int) pending.stream().filter(revocation -> !revocation.isDone()).count())
+                .sum();
+    }
+
+    private static class PendingRevocation
+    {
+        private final ListenableFuture<?> future;
+        private final long deadlineNanos;
+
+        public PendingRevocation(ListenableFuture<?> future, long deadlineNanos)
+        {
+            this.future = requireNonNull(future, "future is null");
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public boolean isDone()
+        {
+            return future.isDone();
+        }
+
+        public boolean isExpired(long now)
+        {
+            return now - deadlineNanos >= 0;
+        }
+    }
+}
@@ -14,11 +14,16 @@
 package com.facebook.presto.memory;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotNull;
 
 import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 // This is separate from MemoryManagerConfig because it's difficult to test the default value of maxQueryMemoryPerNode
 public class NodeMemoryConfig
@@ -26,6 +31,9 @@ public class NodeMemoryConfig
     public static final String QUERY_MAX_MEMORY_PER_NODE_CONFIG = "query.max-memory-per-node";
 
     private DataSize maxQueryMemoryPerNode = new DataSize(Runtime.getRuntime().maxMemory() * 0.1, BYTE);
+    private double memoryRevokingThreshold = 0.9;
+    private double memoryRevokingTarget = 0.5;
+    private Duration memoryRevokingTimeout = new Duration(30, SECONDS);
 
     @NotNull
     public DataSize getMaxQueryMemoryPerNode()
@@ -39,4 +47,48 @@ public class NodeMemoryConfig
         this.maxQueryMemoryPerNode = maxQueryMemoryPerNode;
         return this;
     }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getMemoryRevokingThreshold()
+    {
+        return memoryRevokingThreshold;
+    }
+
+    @Config("memory-revoking-threshold")
+    @ConfigDescription("Fraction of a memory pool in use at which revocable memory is revoked")
+    public NodeMemoryConfig setMemoryRevokingThreshold(double memoryRevokingThreshold)
+    {
+        this.memoryRevokingThreshold = memoryRevokingThreshold;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getMemoryRevokingTarget()
+    {
+        return memoryRevokingTarget;
+    }
+
+    @Config("memory-revoking-target")
+    @ConfigDescription("Fraction of a memory pool in use that revoking memory aims for")
+    public NodeMemoryConfig setMemoryRevokingTarget(double memoryRevokingTarget)
+    {
+        this.memoryRevokingTarget = memoryRevokingTarget;
+        return this;
+    }
+
+    @NotNull
+    public Duration getMemoryRevokingTimeout()
+    {
+        return memoryRevokingTimeout;
+    }
+
+    @Config("memory-revoking-timeout")
+    @ConfigDescription("Time an operator is given to release its revocable memory before other operators are asked")
+    public NodeMemoryConfig setMemoryRevokingTimeout(Duration memoryRevokingTimeout)
+    {
+        this.memoryRevokingTimeout = memoryRevokingTimeout;
+        return this;
+    }
 }
@@ -17,6 +17,7 @@ import com.facebook.presto.Session;
 import com.facebook.presto.execution.QueryId;
 import com.facebook.presto.execution.TaskStateMachine;
 import com.facebook.presto.operator.TaskContext;
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -55,6 +56,9 @@ public class QueryContext
     @GuardedBy("this")
     private long systemReserved;
 
+    @GuardedBy("this")
+    private long revocableReserved;
+
     public QueryContext(QueryId queryId, DataSize maxMemory, MemoryPool memoryPool, MemoryPool systemMemoryPool, Executor executor)
     {
         this.queryId = requireNonNull(queryId, "queryId is null");
@@ -76,7 +80,7 @@ public class QueryContext
     {
         checkArgument(bytes >= 0, "bytes is negative");
 
-        if (reserved + bytes > maxMemory) {
+        if (reserved + revocableReserved + bytes > maxMemory) {
             throw exceededLocalLimit(succinctBytes(maxMemory));
         }
         ListenableFuture<?> future = memoryPool.reserve(queryId, bytes);
@@ -97,7 +101,7 @@ public class QueryContext
     {
         checkArgument(bytes >= 0, "bytes is negative");
 
-        if (reserved + bytes > maxMemory) {
+        if (reserved + revocableReserved + bytes > maxMemory) {
             return false;
         }
         if (memoryPool.tryReserve(queryId, bytes)) {
@@ -107,6 +111,20 @@ public class QueryContext
         return false;
     }
 
+    public synchronized boolean tryReserveRevocableMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+
+        if (reserved + revocableReserved + bytes > maxMemory) {
+            return false;
+        }
+        if (memoryPool.tryReserveRevocable(queryId, bytes)) {
+            revocableReserved += bytes;
+            return true;
+        }
+        return false;
+    }
+
     public synchronized void freeMemory(long bytes)
     {
         checkArgument(reserved - bytes >= 0, "tried to free more memory than is reserved");
@@ -122,6 +140,29 @@ public class QueryContext
         systemMemoryPool.free(queryId, bytes);
     }
 
+    public synchronized void freeRevocableMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(revocableReserved - bytes >= 0, "tried to free more revocable memory than is reserved");
+        revocableReserved -= bytes;
+        memoryPool.freeRevocable(queryId, bytes);
+    }
+
+    public synchronized void recordMemoryRevoked(long bytes, long nanos)
+    {
+        memoryPool.recordMemoryRevoked(bytes, nanos);
+    }
+
+    public synchronized MemoryPool getMemoryPool()
+    {
+        return memoryPool;
+    }
+
+    public List<TaskContext> getTaskContexts()
+    {
+        return ImmutableList.copyOf(taskContexts);
+    }
+
     public synchronized void setMemoryPool(MemoryPool pool)
     {
         requireNonNull(pool, "pool is null");
@@ -133,6 +174,9 @@ public class QueryContext
         long originalReserved = reserved;
         memoryPool = pool;
         ListenableFuture<?> future = pool.reserve(queryId, reserved);
+        // revocable memory can be given back, so it is moved without waiting for the new pool
+        originalPool.freeRevocable(queryId, revocableReserved);
+        pool.reserveRevocable(queryId, revocableReserved);
         Futures.addCallback(future, new FutureCallback<Object>() {
             @Override
             public void onSuccess(Object result)
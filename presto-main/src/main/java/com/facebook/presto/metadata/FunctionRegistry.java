@@ -113,6 +113,7 @@ import com.facebook.presto.spi.type.TypeManager;
 import com.facebook.presto.spi.type.TypeSignature;
 import com.facebook.presto.spi.type.VarcharType;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.facebook.presto.sql.gen.CompilationHistory;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.facebook.presto.type.BigintOperators;
 import com.facebook.presto.type.BooleanOperators;
@@ -284,6 +285,7 @@ public class FunctionRegistry
     private final LoadingCache<SpecializedFunctionKey, ScalarFunctionImplementation> specializedScalarCache;
     private final LoadingCache<SpecializedFunctionKey, InternalAggregationFunction> specializedAggregationCache;
     private final LoadingCache<SpecializedFunctionKey, WindowFunctionSupplier> specializedWindowCache;
+    private final CompilationHistory<Signature> aggregationHistory = new CompilationHistory<>(Signature.class, this::specializeAggregateFunction);
     private volatile FunctionMap functions = new FunctionMap();
 
     public FunctionRegistry(TypeManager typeManager, BlockEncodingSerde blockEncodingSerde, FeaturesConfig featuresConfig)
@@ -770,7 +772,18 @@ public class FunctionRegistry
         throw new PrestoException(FUNCTION_IMPLEMENTATION_MISSING, format("%s not found", signature));
     }
 
+    public CompilationHistory<?> getAggregationHistory()
+    {
+        return aggregationHistory;
+    }
+
     public InternalAggregationFunction getAggregateFunctionImplementation(Signature signature)
+    {
+        aggregationHistory.record(signature);
+        return specializeAggregateFunction(signature);
+    }
+
+    private InternalAggregationFunction specializeAggregateFunction(Signature signature)
     {
         checkArgument(signature.getKind() == AGGREGATE || signature.getKind() == APPROXIMATE_AGGREGATE, "%s is not an aggregate function", signature);
         checkArgument(signature.getTypeVariableConstraints().isEmpty(), "%s has unbound type parameters", signature);
@@ -17,6 +17,8 @@ import com.facebook.presto.Session;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
 import com.facebook.presto.spi.Constraint;
+import com.facebook.presto.spi.DataSummary;
+import com.facebook.presto.spi.SortingProperty;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.security.Privilege;
@@ -175,6 +177,16 @@ public interface Metadata
      */
     boolean supportsMetadataDelete(Session session, TableHandle tableHandle, TableLayoutHandle tableLayoutHandle);
 
+    /**
+     * @return the statistics of the rows of the table layout that match the constraint that are known exactly without reading the data
+     */
+    DataSummary getDataSummary(Session session, TableHandle tableHandle, TableLayoutHandle tableLayoutHandle, TupleDomain<ColumnHandle> constraint, Set<ColumnHandle> columns);
+
+    /**
+     * @return a layout that reads at most limit rows of each split of the table layout, in the given order, or empty if the connector cannot apply the limit
+     */
+    Optional<TableLayoutHandle> pushDownLimit(Session session, TableLayoutHandle tableLayoutHandle, List<SortingProperty<ColumnHandle>> orderBy, long limit);
+
     /**
      * Delete the provide table layout
      *
@@ -27,9 +27,11 @@ import com.facebook.presto.spi.ConnectorTableLayoutResult;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.ConnectorViewDefinition;
 import com.facebook.presto.spi.Constraint;
+import com.facebook.presto.spi.DataSummary;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
+import com.facebook.presto.spi.SortingProperty;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.connector.ConnectorMetadata;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
@@ -563,6 +565,29 @@ public class MetadataManager
                 tableLayoutHandle.getConnectorHandle());
     }
 
+    @Override
+    public DataSummary getDataSummary(Session session, TableHandle tableHandle, TableLayoutHandle tableLayoutHandle, TupleDomain<ColumnHandle> constraint, Set<ColumnHandle> columns)
+    {
+        ConnectorEntry entry = lookupConnectorFor(tableHandle);
+        ConnectorMetadata metadata = entry.getMetadata(session);
+        return metadata.getDataSummary(
+                session.toConnectorSession(entry.getCatalog()),
+                tableHandle.getConnectorHandle(),
+                tableLayoutHandle.getConnectorHandle(),
+                constraint,
+                columns);
+    }
+
+    @Override
+    public Optional<TableLayoutHandle> pushDownLimit(Session session, TableLayoutHandle tableLayoutHandle, List<SortingProperty<ColumnHandle>> orderBy, long limit)
+    {
+        String connectorId = tableLayoutHandle.getConnectorId();
+        ConnectorEntry entry = getConnectorMetadata(connectorId);
+        ConnectorMetadata metadata = entry.getMetadata(session);
+        return metadata.pushDownLimit(session.toConnectorSession(entry.getCatalog()), tableLayoutHandle.getConnectorHandle(), orderBy, limit)
+                .map(layout -> new TableLayoutHandle(connectorId, tableLayoutHandle.getTransactionHandle(), layout));
+    }
+
     @Override
     public OptionalLong metadataDelete(Session session, TableHandle tableHandle, TableLayoutHandle tableLayoutHandle)
     {
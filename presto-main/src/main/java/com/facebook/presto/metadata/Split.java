@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
+import java.util.Optional;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
@@ -69,6 +70,11 @@ public final class Split
         return connectorSplit.getAddresses();
     }
 
+    public Optional<String> getAffinityKey()
+    {
+        return connectorSplit.getAffinityKey();
+    }
+
     public boolean isRemotelyAccessible()
     {
         return connectorSplit.isRemotelyAccessible();
@@ -79,6 +79,7 @@ public class DriverContext
 
     private final AtomicLong memoryReservation = new AtomicLong();
     private final AtomicLong systemMemoryReservation = new AtomicLong();
+    private final AtomicLong revocableMemoryReservation = new AtomicLong();
 
     private final List<OperatorContext> operatorContexts = new CopyOnWriteArrayList<>();
     private final boolean partitioned;
@@ -172,6 +173,8 @@ public class DriverContext
         endNanos.set(System.nanoTime());
 
         freeMemory(memoryReservation.get());
+        freeRevocableMemory(revocableMemoryReservation.get());
+        operatorContexts.forEach(OperatorContext::finishMemoryRevoking);
 
         pipelineContext.driverFinished(this);
     }
@@ -182,6 +185,8 @@ public class DriverContext
         finished.set(true);
 
         freeMemory(memoryReservation.get());
+        freeRevocableMemory(revocableMemoryReservation.get());
+        operatorContexts.forEach(OperatorContext::finishMemoryRevoking);
     }
 
     public boolean isDone()
@@ -224,6 +229,15 @@ public class DriverContext
         return false;
     }
 
+    public boolean tryReserveRevocableMemory(long bytes)
+    {
+        if (pipelineContext.tryReserveRevocableMemory(bytes)) {
+            revocableMemoryReservation.getAndAdd(bytes);
+            return true;
+        }
+        return false;
+    }
+
     public void freeMemory(long bytes)
     {
         if (bytes == 0) {
@@ -246,6 +260,17 @@ public class DriverContext
         systemMemoryReservation.getAndAdd(-bytes);
     }
 
+    public void freeRevocableMemory(long bytes)
+    {
+        if (bytes == 0) {
+            return;
+        }
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(bytes <= revocableMemoryReservation.get(), "tried to free more revocable memory than is reserved");
+        pipelineContext.freeRevocableMemory(bytes);
+        revocableMemoryReservation.getAndAdd(-bytes);
+    }
+
     @VisibleForTesting
     public long getSystemMemoryUsage()
     {
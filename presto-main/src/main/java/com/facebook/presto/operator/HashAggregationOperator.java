@@ -227,6 +227,9 @@ public class HashAggregationOperator
     {
         if (outputIterator == null || !outputIterator.hasNext()) {
             // current output iterator is done
+            if (outputIterator != null) {
+                outputFlushed();
+            }
             outputIterator = null;
 
             // no data
@@ -244,6 +247,7 @@ public class HashAggregationOperator
 
             if (!outputIterator.hasNext()) {
                 // current output iterator is done
+                outputFlushed();
                 outputIterator = null;
                 return null;
             }
@@ -252,6 +256,15 @@ public class HashAggregationOperator
         return outputIterator.next();
     }
 
+    private void outputFlushed()
+    {
+        if (step.isOutputPartial()) {
+            // the groups of a partial aggregation are held in revocable memory, which is free again once they are produced
+            operatorContext.freeRevocableMemory(operatorContext.getRevocableMemoryReservation());
+            operatorContext.finishMemoryRevoking();
+        }
+    }
+
     private static List<Type> toTypes(List<? extends Type> groupByType, Step step, List<AccumulatorFactory> factories, Optional<Integer> hashChannel)
     {
         ImmutableList.Builder<Type> types = ImmutableList.builder();
@@ -320,7 +333,8 @@ public class HashAggregationOperator
                 memorySize = 0;
             }
             if (partial) {
-                return !operatorContext.trySetMemoryReservation(memorySize);
+                // a partial aggregation can flush its groups at any time, so it gives its memory back when asked to
+                return !operatorContext.trySetRevocableMemoryReservation(memorySize) || operatorContext.isMemoryRevokingRequested();
             }
             else {
                 operatorContext.setMemoryReservation(memorySize);
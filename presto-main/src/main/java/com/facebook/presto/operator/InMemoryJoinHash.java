@@ -22,6 +22,7 @@ import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 
 import java.util.Arrays;
+import java.util.Optional;
 
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
@@ -49,12 +50,27 @@ public final class InMemoryJoinHash
     // and there is no performance gain from storing full hashes
     private final byte[] positionToHashes;
 
+    // When the filter function implies a range on a build channel, the addresses are expected
+    // to be ordered on that channel. The positions of every bucket are then stored contiguously
+    // in range order, and positionLinks follows the same order, so a probe can binary search
+    // for the first position within its lower bound and stop at the first one past its upper bound.
+    private final int rangeChannel;
+    private final int lowerBoundChannel;
+    private final boolean lowerBoundInclusive;
+    private final int upperBoundChannel;
+    private final boolean upperBoundInclusive;
+    private final boolean rangeExact;
+    private final int[] rangePositions;
+    private final int[] rangeBucketStarts;
+    private final int[] rangeBucketEnds;
+
     public InMemoryJoinHash(LongArrayList addresses, PagesHashStrategy pagesHashStrategy)
     {
         this.addresses = requireNonNull(addresses, "addresses is null");
         this.pagesHashStrategy = requireNonNull(pagesHashStrategy, "pagesHashStrategy is null");
         this.channelCount = pagesHashStrategy.getChannelCount();
         this.filterFunctionPresent = pagesHashStrategy.getFilterFunction().isPresent();
+        Optional<JoinFilterRange> filterRange = pagesHashStrategy.getFilterFunction().flatMap(JoinFilterFunction::getRange);
 
         // reserve memory for the arrays
         int hashSize = HashCommon.arraySize(addresses.size(), 0.75f);
@@ -116,8 +132,59 @@ public final class InMemoryJoinHash
             }
         }
 
+        if (filterRange.isPresent()) {
+            JoinFilterRange range = filterRange.get();
+            rangeChannel = range.getBuildChannel();
+            lowerBoundChannel = range.getLowerBoundProbeChannel().orElse(-1);
+            lowerBoundInclusive = range.isLowerBoundInclusive();
+            upperBoundChannel = range.getUpperBoundProbeChannel().orElse(-1);
+            upperBoundInclusive = range.isUpperBoundInclusive();
+            rangeExact = range.isExact();
+
+            rangePositions = new int[addresses.size()];
+            rangeBucketStarts = new int[hashSize];
+            rangeBucketEnds = new int[hashSize];
+            int offset = 0;
+            for (int pos = 0; pos < hashSize; pos++) {
+                if (key[pos] == -1) {
+                    continue;
+                }
+                int bucketSize = 0;
+                for (int position = key[pos]; position != -1; position = positionLinks[position]) {
+                    bucketSize++;
+                }
+
+                // positions are linked from the last to the first one added, so store them in reverse
+                int bucketEnd = offset + bucketSize;
+                int index = bucketEnd;
+                for (int position = key[pos]; position != -1; position = positionLinks[position]) {
+                    rangePositions[--index] = position;
+                }
+                for (index = offset; index < bucketEnd - 1; index++) {
+                    positionLinks[rangePositions[index]] = rangePositions[index + 1];
+                }
+                positionLinks[rangePositions[bucketEnd - 1]] = -1;
+
+                rangeBucketStarts[pos] = offset;
+                rangeBucketEnds[pos] = bucketEnd;
+                offset = bucketEnd;
+            }
+        }
+        else {
+            rangeChannel = -1;
+            lowerBoundChannel = -1;
+            lowerBoundInclusive = false;
+            upperBoundChannel = -1;
+            upperBoundInclusive = false;
+            rangeExact = false;
+            rangePositions = null;
+            rangeBucketStarts = null;
+            rangeBucketEnds = null;
+        }
+
         size = sizeOf(addresses.elements()) + pagesHashStrategy.getSizeInBytes() +
-                sizeOf(key) + sizeOf(positionLinks) + sizeOf(positionToHashes);
+                sizeOf(key) + sizeOf(positionLinks) + sizeOf(positionToHashes) +
+                (rangePositions == null ? 0 : sizeOf(rangePositions) + sizeOf(rangeBucketStarts) + sizeOf(rangeBucketEnds));
     }
 
     @Override
@@ -151,6 +218,9 @@ public final class InMemoryJoinHash
 
         while (key[pos] != -1) {
             if (positionEqualsCurrentRowIgnoreNulls(key[pos], (byte) rawHash, rightPosition, hashChannelsPage)) {
+                if (rangePositions != null) {
+                    return getNextJoinPositionFrom(getFirstPositionInRange(pos, rightPosition, allChannelsPage), rightPosition, allChannelsPage);
+                }
                 return getNextJoinPositionFrom(key[pos], rightPosition, allChannelsPage);
             }
             // increment position and mask to handler wrap around
@@ -167,6 +237,21 @@ public final class InMemoryJoinHash
 
     private long getNextJoinPositionFrom(int startJoinPosition, int probePosition, Page allProbeChannelsPage)
     {
+        if (rangePositions != null) {
+            int currentJoinPosition = startJoinPosition;
+            while (currentJoinPosition != -1) {
+                if (isAboveUpperBound(currentJoinPosition, probePosition, allProbeChannelsPage)) {
+                    // all following positions of the bucket are past the upper bound too
+                    return -1;
+                }
+                if (rangeExact || applyFilterFilterFunction(currentJoinPosition, probePosition, allProbeChannelsPage.getBlocks())) {
+                    return currentJoinPosition;
+                }
+                currentJoinPosition = positionLinks[currentJoinPosition];
+            }
+            return -1;
+        }
+
         long currentJoinPosition = startJoinPosition;
         while (filterFunctionPresent && currentJoinPosition != -1 && !applyFilterFilterFunction(Ints.checkedCast(currentJoinPosition), probePosition, allProbeChannelsPage.getBlocks())) {
             currentJoinPosition = positionLinks[Ints.checkedCast(currentJoinPosition)];
@@ -189,6 +274,62 @@ public final class InMemoryJoinHash
     {
     }
 
+    private int getFirstPositionInRange(int hashPosition, int probePosition, Page allProbeChannelsPage)
+    {
+        int low = rangeBucketStarts[hashPosition];
+        int high = rangeBucketEnds[hashPosition];
+        if (lowerBoundChannel == -1) {
+            return rangePositions[low];
+        }
+
+        Block lowerBound = allProbeChannelsPage.getBlock(lowerBoundChannel);
+        if (lowerBound.isNull(probePosition)) {
+            return -1;
+        }
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isBelowLowerBound(rangePositions[middle], lowerBound, probePosition)) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        if (low == rangeBucketEnds[hashPosition]) {
+            return -1;
+        }
+        return rangePositions[low];
+    }
+
+    private boolean isBelowLowerBound(int position, Block lowerBound, int probePosition)
+    {
+        int compare = compareRangeValue(position, lowerBound, probePosition);
+        return lowerBoundInclusive ? compare < 0 : compare <= 0;
+    }
+
+    private boolean isAboveUpperBound(int position, int probePosition, Page allProbeChannelsPage)
+    {
+        if (upperBoundChannel == -1) {
+            return false;
+        }
+        Block upperBound = allProbeChannelsPage.getBlock(upperBoundChannel);
+        if (upperBound.isNull(probePosition)) {
+            return true;
+        }
+        int compare = compareRangeValue(position, upperBound, probePosition);
+        return upperBoundInclusive ? compare > 0 : compare >= 0;
+    }
+
+    private int compareRangeValue(int position, Block bound, int probePosition)
+    {
+        long pageAddress = addresses.getLong(position);
+        int blockIndex = decodeSliceIndex(pageAddress);
+        int blockPosition = decodePosition(pageAddress);
+
+        return pagesHashStrategy.compareChannelValue(rangeChannel, blockIndex, blockPosition, bound, probePosition);
+    }
+
     private boolean isPositionNull(int position)
     {
         long pageAddress = addresses.getLong(position);
@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.DictionaryId;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.spi.block.DictionaryId.randomDictionaryId;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collects positions of an input page in output order, and builds output blocks
+ * that reference the blocks of the input page instead of copying their values:
+ * a region for consecutive positions, a run length encoded block for a single
+ * repeated position, and a dictionary block otherwise.
+ * <p>
+ * The output blocks keep the whole input block alive, so positions that select
+ * only a small part of the input page are copied instead. Copied positions are
+ * kept across input pages, so the output of several small selections is built
+ * together, and the output only has to be built at the end of an input page
+ * when it references that page.
+ */
+public class InputPositionsBuilder
+{
+    // selections smaller than 1 / MIN_SELECTIVITY_DIVISOR of the input page are copied
+    private static final int MIN_SELECTIVITY_DIVISOR = 4;
+
+    private final List<Type> types;
+    private final List<Integer> channels;
+
+    private Page page;
+    private long rowSizeInBytes;
+
+    private int[] positions = new int[1024];
+    private int positionCount;
+    private boolean consecutive = true;
+    private boolean singlePosition = true;
+
+    // copies of the positions of previous pages, which come before the positions of the current page
+    private BlockBuilder[] copiedBlockBuilders;
+    private int copiedPositionCount;
+
+    public InputPositionsBuilder(List<Type> types, List<Integer> channels)
+    {
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.channels = ImmutableList.copyOf(requireNonNull(channels, "channels is null"));
+        checkArgument(types.size() == channels.size(), "types and channels do not match");
+    }
+
+    /**
+     * Sets the page the following positions refer to. The positions of the previous
+     * page must have been built or copied by {@link #finishPage()} before.
+     */
+    public void setPage(Page page)
+    {
+        requireNonNull(page, "page is null");
+        checkState(positionCount == 0, "positions of the previous page have not been built");
+        this.page = page;
+
+        long sizeInBytes = 0;
+        for (int channel : channels) {
+            sizeInBytes += page.getBlock(channel).getSizeInBytes();
+        }
+        rowSizeInBytes = page.getPositionCount() == 0 ? 0 : sizeInBytes / page.getPositionCount();
+    }
+
+    public void appendPosition(int position)
+    {
+        if (positionCount == positions.length) {
+            positions = Arrays.copyOf(positions, positionCount * 2);
+        }
+        if (positionCount > 0) {
+            int previous = positions[positionCount - 1];
+            consecutive &= position == previous + 1;
+            singlePosition &= position == previous;
+        }
+        positions[positionCount] = position;
+        positionCount++;
+    }
+
+    public int getPositionCount()
+    {
+        return copiedPositionCount + positionCount;
+    }
+
+    public boolean isEmpty()
+    {
+        return getPositionCount() == 0;
+    }
+
+    /**
+     * @return estimated size of the output blocks, counting the values as if they were copied
+     */
+    public long getSizeInBytes()
+    {
+        long sizeInBytes = (rowSizeInBytes + SIZE_OF_INT) * positionCount;
+        if (copiedBlockBuilders != null) {
+            for (BlockBuilder blockBuilder : copiedBlockBuilders) {
+                sizeInBytes += blockBuilder.getSizeInBytes();
+            }
+        }
+        return sizeInBytes;
+    }
+
+    /**
+     * Ends the positions of the current page. Positions that select only a small part of
+     * the page, or that follow copied positions, are copied and kept for the output.
+     *
+     * @return true if the output references the current page, so it has to be built before the next page is set
+     */
+    public boolean finishPage()
+    {
+        if (positionCount == 0) {
+            return false;
+        }
+        if (copiedPositionCount == 0 && positionCount * MIN_SELECTIVITY_DIVISOR >= page.getPositionCount()) {
+            return true;
+        }
+        copyPositions();
+        return false;
+    }
+
+    /**
+     * Builds the output blocks for the channels, in order, and clears the positions.
+     */
+    public Block[] build()
+    {
+        if (copiedPositionCount > 0) {
+            // the copies can only be extended, so the positions of the current page are copied as well
+            copyPositions();
+            Block[] blocks = new Block[channels.size()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = copiedBlockBuilders[i].build();
+            }
+            copiedBlockBuilders = null;
+            copiedPositionCount = 0;
+            return blocks;
+        }
+
+        Block[] blocks = new Block[channels.size()];
+        DictionaryIds dictionaryIds = new DictionaryIds();
+        for (int i = 0; i < blocks.length; i++) {
+            Block block = page.getBlock(channels.get(i));
+            if (positionCount > 0 && consecutive) {
+                blocks[i] = block.getRegion(positions[0], positionCount);
+            }
+            else if (positionCount > 1 && singlePosition) {
+                blocks[i] = new RunLengthEncodedBlock(block.getSingleValueBlock(positions[0]), positionCount);
+            }
+            else if (positionCount * MIN_SELECTIVITY_DIVISOR < page.getPositionCount()) {
+                BlockBuilder blockBuilder = types.get(i).createBlockBuilder(new BlockBuilderStatus(), positionCount);
+                appendPositions(types.get(i), block, blockBuilder);
+                blocks[i] = blockBuilder.build();
+            }
+            else if (block instanceof RunLengthEncodedBlock) {
+                blocks[i] = new RunLengthEncodedBlock(((RunLengthEncodedBlock) block).getValue(), positionCount);
+            }
+            else if (block instanceof DictionaryBlock) {
+                DictionaryBlock dictionaryBlock = (DictionaryBlock) block;
+                blocks[i] = new DictionaryBlock(positionCount, dictionaryBlock.getDictionary(), dictionaryIds.getIds(dictionaryBlock), false, dictionaryIds.getOutputId(dictionaryBlock));
+            }
+            else {
+                blocks[i] = new DictionaryBlock(positionCount, block, dictionaryIds.getIds(), false, dictionaryIds.getOutputId());
+            }
+        }
+
+        clearPositions();
+        return blocks;
+    }
+
+    private void copyPositions()
+    {
+        if (copiedBlockBuilders == null) {
+            copiedBlockBuilders = new BlockBuilder[channels.size()];
+            for (int i = 0; i < copiedBlockBuilders.length; i++) {
+                copiedBlockBuilders[i] = types.get(i).createBlockBuilder(new BlockBuilderStatus(), positionCount);
+            }
+        }
+        if (positionCount > 0) {
+            for (int i = 0; i < copiedBlockBuilders.length; i++) {
+                appendPositions(types.get(i), page.getBlock(channels.get(i)), copiedBlockBuilders[i]);
+            }
+        }
+        copiedPositionCount += positionCount;
+        clearPositions();
+    }
+
+    private void appendPositions(Type type, Block block, BlockBuilder blockBuilder)
+    {
+        for (int i = 0; i < positionCount; i++) {
+            type.appendTo(block, positions[i], blockBuilder);
+        }
+    }
+
+    private void clearPositions()
+    {
+        positionCount = 0;
+        consecutive = true;
+        singlePosition = true;
+    }
+
+    /**
+     * Output blocks built from the same ids share a dictionary source id, so that
+     * {@link Page#compact()} and the dictionary aware page processor treat them together.
+     */
+    private class DictionaryIds
+    {
+        private Slice ids;
+        private DictionaryId outputId;
+        private final Map<DictionaryId, Slice> remappedIds = new HashMap<>();
+        private final Map<DictionaryId, DictionaryId> remappedOutputIds = new HashMap<>();
+
+        public Slice getIds()
+        {
+            if (ids == null) {
+                ids = Slices.wrappedIntArray(Arrays.copyOf(positions, positionCount));
+            }
+            return ids;
+        }
+
+        public DictionaryId getOutputId()
+        {
+            if (outputId == null) {
+                outputId = randomDictionaryId();
+            }
+            return outputId;
+        }
+
+        public Slice getIds(DictionaryBlock block)
+        {
+            return remappedIds.computeIfAbsent(block.getDictionarySourceId(), sourceId -> {
+                Slice remapped = Slices.allocate(positionCount * SIZE_OF_INT);
+                for (int i = 0; i < positionCount; i++) {
+                    remapped.setInt(i * SIZE_OF_INT, block.getId(positions[i]));
+                }
+                return remapped;
+            });
+        }
+
+        public DictionaryId getOutputId(DictionaryBlock block)
+        {
+            return remappedOutputIds.computeIfAbsent(block.getDictionarySourceId(), sourceId -> randomDictionaryId());
+        }
+    }
+}
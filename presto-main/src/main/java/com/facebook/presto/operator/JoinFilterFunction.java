@@ -16,7 +16,17 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.spi.block.Block;
 
+import java.util.Optional;
+
 public interface JoinFilterFunction
 {
     boolean filter(int leftPosition, Block[] leftBlocks, int rightPosition, Block[] rightBlocks);
+
+    /**
+     * Returns the range that a build row value must fall into to pass this filter, if the filter implies one.
+     */
+    default Optional<JoinFilterRange> getRange()
+    {
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.block.Block;
+
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounds on the value of a build channel that are implied by a join filter, where each bound
+ * is the value of a probe channel. A build row can only pass the filter when its value lies
+ * within the bounds of the probe row, so the lookup source can keep the rows of every hash
+ * bucket ordered on the build channel and only visit the rows within the bounds.
+ */
+public final class JoinFilterRange
+{
+    private final int buildChannel;
+    private final Optional<Integer> lowerBoundProbeChannel;
+    private final boolean lowerBoundInclusive;
+    private final Optional<Integer> upperBoundProbeChannel;
+    private final boolean upperBoundInclusive;
+    private final boolean exact;
+
+    /**
+     * @param exact whether the filter is true for exactly the build rows within the range,
+     * in which case the filter does not have to be evaluated. Requires both bounds.
+     */
+    public JoinFilterRange(
+            int buildChannel,
+            Optional<Integer> lowerBoundProbeChannel,
+            boolean lowerBoundInclusive,
+            Optional<Integer> upperBoundProbeChannel,
+            boolean upperBoundInclusive,
+            boolean exact)
+    {
+        checkArgument(buildChannel >= 0, "buildChannel is negative");
+        this.buildChannel = buildChannel;
+        this.lowerBoundProbeChannel = requireNonNull(lowerBoundProbeChannel, "lowerBoundProbeChannel is null");
+        this.lowerBoundInclusive = lowerBoundInclusive;
+        this.upperBoundProbeChannel = requireNonNull(upperBoundProbeChannel, "upperBoundProbeChannel is null");
+        this.upperBoundInclusive = upperBoundInclusive;
+        this.exact = exact;
+        checkArgument(lowerBoundProbeChannel.isPresent() || upperBoundProbeChannel.isPresent(), "range has no bounds");
+        checkArgument(!exact || (lowerBoundProbeChannel.isPresent() && upperBoundProbeChannel.isPresent()), "exact range must have both bounds");
+    }
+
+    public int getBuildChannel()
+    {
+        return buildChannel;
+    }
+
+    public Optional<Integer> getLowerBoundProbeChannel()
+    {
+        return lowerBoundProbeChannel;
+    }
+
+    public boolean isLowerBoundInclusive()
+    {
+        return lowerBoundInclusive;
+    }
+
+    public Optional<Integer> getUpperBoundProbeChannel()
+    {
+        return upperBoundProbeChannel;
+    }
+
+    public boolean isUpperBoundInclusive()
+    {
+        return upperBoundInclusive;
+    }
+
+    public boolean isExact()
+    {
+        return exact;
+    }
+
+    /**
+     * Returns a filter function that evaluates {@code filterFunction} and reports this range.
+     * The range must be implied by the filter, as build rows outside of it are never passed to the filter.
+     */
+    public JoinFilterFunction applyTo(JoinFilterFunction filterFunction)
+    {
+        requireNonNull(filterFunction, "filterFunction is null");
+        return new JoinFilterFunction()
+        {
+            @Override
+            public boolean filter(int leftPosition, Block[] leftBlocks, int rightPosition, Block[] rightBlocks)
+            {
+                return filterFunction.filter(leftPosition, leftBlocks, rightPosition, rightBlocks);
+            }
+
+            @Override
+            public Optional<JoinFilterRange> getRange()
+            {
+                return Optional.of(JoinFilterRange.this);
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("buildChannel", buildChannel)
+                .add("lowerBoundProbeChannel", lowerBoundProbeChannel)
+                .add("lowerBoundInclusive", lowerBoundInclusive)
+                .add("upperBoundProbeChannel", upperBoundProbeChannel)
+                .add("upperBoundInclusive", upperBoundInclusive)
+                .add("exact", exact)
+                .toString();
+    }
+}
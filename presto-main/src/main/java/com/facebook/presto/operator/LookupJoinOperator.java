@@ -16,15 +16,19 @@ package com.facebook.presto.operator;
 import com.facebook.presto.operator.LookupJoinOperators.JoinType;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.Closeable;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.FULL_OUTER;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.PROBE_OUTER;
+import static com.facebook.presto.spi.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
 import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.concurrent.MoreFutures.tryGetFutureValue;
 import static java.util.Objects.requireNonNull;
@@ -38,7 +42,8 @@ public class LookupJoinOperator
     private final JoinProbeFactory joinProbeFactory;
     private final Runnable onClose;
 
-    private final PageBuilder pageBuilder;
+    private final InputPositionsBuilder probePositionsBuilder;
+    private final PageBuilder buildPageBuilder;
 
     private final boolean probeOnOuterSide;
 
@@ -48,17 +53,23 @@ public class LookupJoinOperator
     private boolean closed;
     private boolean finishing;
     private long joinPosition = -1;
+    // the output references the blocks of the last probe page, so it has to be flushed before the next page
+    private boolean outputReferencesProbe;
 
     public LookupJoinOperator(
             OperatorContext operatorContext,
-            List<Type> types,
+            List<Type> probeTypes,
+            List<Type> buildTypes,
             JoinType joinType,
             ListenableFuture<LookupSource> lookupSourceFuture,
             JoinProbeFactory joinProbeFactory,
             Runnable onClose)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
-        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.types = ImmutableList.<Type>builder()
+                .addAll(requireNonNull(probeTypes, "probeTypes is null"))
+                .addAll(requireNonNull(buildTypes, "buildTypes is null"))
+                .build();
 
         requireNonNull(joinType, "joinType is null");
         // Cannot use switch case here, because javac will synthesize an inner class and cause IllegalAccessError
@@ -68,7 +79,8 @@ public class LookupJoinOperator
         this.joinProbeFactory = requireNonNull(joinProbeFactory, "joinProbeFactory is null");
         this.onClose = requireNonNull(onClose, "onClose is null");
 
-        this.pageBuilder = new PageBuilder(types);
+        this.probePositionsBuilder = new InputPositionsBuilder(probeTypes, IntStream.range(0, probeTypes.size()).boxed().collect(toImmutableList()));
+        this.buildPageBuilder = new PageBuilder(buildTypes);
     }
 
     @Override
@@ -92,7 +104,7 @@ public class LookupJoinOperator
     @Override
     public boolean isFinished()
     {
-        boolean finished = finishing && probe == null && pageBuilder.isEmpty();
+        boolean finished = finishing && probe == null && buildPageBuilder.isEmpty();
 
         // if finished drop references so memory is freed early
         if (finished) {
@@ -117,7 +129,7 @@ public class LookupJoinOperator
         if (lookupSource == null) {
             lookupSource = tryGetFutureValue(lookupSourceFuture).orElse(null);
         }
-        return lookupSource != null && probe == null;
+        return lookupSource != null && probe == null && !outputReferencesProbe;
     }
 
     @Override
@@ -130,6 +142,7 @@ public class LookupJoinOperator
 
         // create probe
         probe = joinProbeFactory.createJoinProbe(lookupSource, page);
+        probePositionsBuilder.setPage(page);
 
         // initialize to invalid join position to force output code to advance the cursors
         joinPosition = -1;
@@ -154,16 +167,32 @@ public class LookupJoinOperator
             }
         }
 
-        // only flush full pages unless we are done
-        if (pageBuilder.isFull() || (finishing && !pageBuilder.isEmpty() && probe == null)) {
-            Page page = pageBuilder.build();
-            pageBuilder.reset();
-            return page;
+        // copied probe rows are kept across probe pages, referenced ones are flushed when the page is done
+        if (isFull() || outputReferencesProbe || (finishing && probe == null && !buildPageBuilder.isEmpty())) {
+            return buildOutputPage();
         }
 
         return null;
     }
 
+    private boolean isFull()
+    {
+        return buildPageBuilder.isFull() || probePositionsBuilder.getSizeInBytes() + buildPageBuilder.getSizeInBytes() >= DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
+    }
+
+    private Page buildOutputPage()
+    {
+        Block[] probeBlocks = probePositionsBuilder.build();
+        Page buildPage = buildPageBuilder.build();
+        buildPageBuilder.reset();
+        outputReferencesProbe = false;
+
+        Block[] blocks = new Block[types.size()];
+        System.arraycopy(probeBlocks, 0, blocks, 0, probeBlocks.length);
+        System.arraycopy(buildPage.getBlocks(), 0, blocks, probeBlocks.length, buildPage.getChannelCount());
+        return new Page(buildPage.getPositionCount(), blocks);
+    }
+
     @Override
     public void close()
     {
@@ -173,7 +202,7 @@ public class LookupJoinOperator
         }
         closed = true;
         probe = null;
-        pageBuilder.reset();
+        buildPageBuilder.reset();
         onClose.run();
         // closing lookup source is only here for index join
         if (lookupSource != null) {
@@ -185,17 +214,17 @@ public class LookupJoinOperator
     {
         // while we have a position to join against...
         while (joinPosition >= 0) {
-            pageBuilder.declarePosition();
+            buildPageBuilder.declarePosition();
 
-            // write probe columns
-            probe.appendTo(pageBuilder);
+            // reference probe columns
+            probePositionsBuilder.appendPosition(probe.getPosition());
 
             // write build columns
-            lookupSource.appendTo(joinPosition, pageBuilder, probe.getChannelCount());
+            lookupSource.appendTo(joinPosition, buildPageBuilder, 0);
 
             // get next join position for this row
             joinPosition = lookupSource.getNextJoinPosition(joinPosition, probe.getPosition(), probe.getPage());
-            if (pageBuilder.isFull()) {
+            if (isFull()) {
                 return false;
             }
         }
@@ -206,6 +235,7 @@ public class LookupJoinOperator
     {
         if (!probe.advanceNextPosition()) {
             probe = null;
+            outputReferencesProbe = probePositionsBuilder.finishPage();
             return false;
         }
 
@@ -217,17 +247,15 @@ public class LookupJoinOperator
     private boolean outerJoinCurrentPosition()
     {
         if (probeOnOuterSide && joinPosition < 0) {
-            // write probe columns
-            pageBuilder.declarePosition();
-            probe.appendTo(pageBuilder);
+            // reference probe columns
+            buildPageBuilder.declarePosition();
+            probePositionsBuilder.appendPosition(probe.getPosition());
 
             // write nulls into build columns
-            int outputIndex = probe.getChannelCount();
             for (int buildChannel = 0; buildChannel < lookupSource.getChannelCount(); buildChannel++) {
-                pageBuilder.getBlockBuilder(outputIndex).appendNull();
-                outputIndex++;
+                buildPageBuilder.getBlockBuilder(buildChannel).appendNull();
             }
-            if (pageBuilder.isFull()) {
+            if (isFull()) {
                 return false;
             }
         }
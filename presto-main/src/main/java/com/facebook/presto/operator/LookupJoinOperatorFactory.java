@@ -129,7 +129,8 @@ public class LookupJoinOperatorFactory
         referenceCount.retain();
         return new LookupJoinOperator(
                 operatorContext,
-                getTypes(),
+                probeTypes,
+                buildTypes,
                 joinType,
                 lookupSourceSupplier.getLookupSource(),
                 joinProbeFactory,
@@ -132,6 +132,11 @@ public class MultiChannelGroupByHash
         groupAddressByGroupId.ensureCapacity(maxFill);
     }
 
+    public static JoinCompiler getJoinCompiler()
+    {
+        return JOIN_COMPILER;
+    }
+
     @Override
     public long getEstimatedSize()
     {
@@ -26,6 +26,7 @@ import io.airlift.stats.CounterStat;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.lang.management.ManagementFactory;
@@ -85,9 +86,17 @@ public class OperatorContext
     private final AtomicLong finishUserNanos = new AtomicLong();
 
     private final AtomicLong memoryReservation = new AtomicLong();
+    private final AtomicLong revocableMemoryReservation = new AtomicLong();
     private final OperatorSystemMemoryContext systemMemoryContext;
     private final long maxMemoryReservation;
 
+    @GuardedBy("this")
+    private SettableFuture<?> memoryRevokingFuture;
+    @GuardedBy("this")
+    private long memoryRevokingRequestNanos;
+    @GuardedBy("this")
+    private long revocableMemoryAtRevokingRequest;
+
     private final AtomicReference<Supplier<?>> infoSupplier = new AtomicReference<>();
     private final boolean collectTimings;
 
@@ -285,6 +294,85 @@ public class OperatorContext
         memoryReservation.getAndAdd(-bytes);
     }
 
+    public boolean tryReserveRevocableMemory(long bytes)
+    {
+        // account for the memory here first, so that it can be revoked as soon as the pool sees it
+        long newReservation = revocableMemoryReservation.addAndGet(bytes);
+        if (newReservation > maxMemoryReservation || !driverContext.tryReserveRevocableMemory(bytes)) {
+            revocableMemoryReservation.getAndAdd(-bytes);
+            return false;
+        }
+        return true;
+    }
+
+    public void freeRevocableMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(bytes <= revocableMemoryReservation.get(), "tried to free more revocable memory than is reserved");
+        driverContext.freeRevocableMemory(bytes);
+        revocableMemoryReservation.getAndAdd(-bytes);
+    }
+
+    public boolean trySetRevocableMemoryReservation(long newRevocableMemoryReservation)
+    {
+        checkArgument(newRevocableMemoryReservation >= 0, "newRevocableMemoryReservation is negative");
+
+        long delta = newRevocableMemoryReservation - revocableMemoryReservation.get();
+
+        if (delta > 0) {
+            return tryReserveRevocableMemory(delta);
+        }
+        else {
+            freeRevocableMemory(-delta);
+            return true;
+        }
+    }
+
+    public long getRevocableMemoryReservation()
+    {
+        return revocableMemoryReservation.get();
+    }
+
+    /**
+     * Asks the operator to release its revocable memory. The returned future completes when the
+     * operator calls {@link #finishMemoryRevoking()}, or when the driver of the operator finishes.
+     */
+    public synchronized ListenableFuture<?> requestMemoryRevoking()
+    {
+        if (memoryRevokingFuture == null) {
+            memoryRevokingFuture = SettableFuture.create();
+            memoryRevokingRequestNanos = System.nanoTime();
+            revocableMemoryAtRevokingRequest = revocableMemoryReservation.get();
+        }
+        return memoryRevokingFuture;
+    }
+
+    public synchronized boolean isMemoryRevokingRequested()
+    {
+        return memoryRevokingFuture != null;
+    }
+
+    /**
+     * Called by the operator after it has released its revocable memory. Does nothing if revoking was not requested.
+     */
+    public void finishMemoryRevoking()
+    {
+        SettableFuture<?> future;
+        long revokedBytes;
+        long revocationNanos;
+        synchronized (this) {
+            if (memoryRevokingFuture == null) {
+                return;
+            }
+            future = memoryRevokingFuture;
+            memoryRevokingFuture = null;
+            revokedBytes = Math.max(0, revocableMemoryAtRevokingRequest - revocableMemoryReservation.get());
+            revocationNanos = System.nanoTime() - memoryRevokingRequestNanos;
+        }
+        driverContext.getPipelineContext().getTaskContext().recordMemoryRevoked(revokedBytes, revocationNanos);
+        future.set(null);
+    }
+
     public AbstractAggregatedMemoryContext getSystemMemoryContext()
     {
         return systemMemoryContext;
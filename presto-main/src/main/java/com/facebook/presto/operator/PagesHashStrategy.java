@@ -106,4 +106,10 @@ public interface PagesHashStrategy
      * Checks if any of the hashed columns is null
      */
     boolean isPositionNull(int blockIndex, int blockPosition);
+
+    /**
+     * Compares the value of the specified channel at the given position to the value at
+     * the given position of the right block. Nulls are ordered after all other values.
+     */
+    int compareChannelValue(int channel, int leftBlockIndex, int leftPosition, Block rightBlock, int rightPosition);
 }
@@ -35,6 +35,7 @@ import java.util.Optional;
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
+import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
 import static com.facebook.presto.sql.gen.JoinCompiler.LookupSourceFactory;
 import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -83,6 +84,16 @@ public class PagesIndex
         }
     }
 
+    public static OrderingCompiler getOrderingCompiler()
+    {
+        return orderingCompiler;
+    }
+
+    public static JoinCompiler getJoinCompiler()
+    {
+        return joinCompiler;
+    }
+
     public List<Type> getTypes()
     {
         return types;
@@ -328,6 +339,12 @@ public class PagesIndex
 
     public LookupSource createLookupSource(List<Integer> joinChannels, Optional<Integer> hashChannel, Optional<JoinFilterFunction> filterFunction)
     {
+        Optional<JoinFilterRange> filterRange = filterFunction.flatMap(JoinFilterFunction::getRange);
+        if (filterRange.isPresent()) {
+            // order the rows on the range channel, so the rows of every hash bucket are indexed in range order
+            sort(ImmutableList.of(filterRange.get().getBuildChannel()), ImmutableList.of(ASC_NULLS_LAST));
+        }
+
         if (!filterFunction.isPresent() && !joinChannels.isEmpty()) {
             // todo compiled implementation of lookup join does not support:
             //  (1) case with join function and the case
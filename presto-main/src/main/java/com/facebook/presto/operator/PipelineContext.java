@@ -62,6 +62,7 @@ public class PipelineContext
 
     private final AtomicLong memoryReservation = new AtomicLong();
     private final AtomicLong systemMemoryReservation = new AtomicLong();
+    private final AtomicLong revocableMemoryReservation = new AtomicLong();
 
     private final AtomicReference<DateTime> executionStartTime = new AtomicReference<>();
     private final AtomicReference<DateTime> lastExecutionStartTime = new AtomicReference<>();
@@ -126,6 +127,11 @@ public class PipelineContext
         return driverContext;
     }
 
+    public List<DriverContext> getDriverContexts()
+    {
+        return ImmutableList.copyOf(drivers);
+    }
+
     public Session getSession()
     {
         return taskContext.getSession();
@@ -238,6 +244,15 @@ public class PipelineContext
         return false;
     }
 
+    public synchronized boolean tryReserveRevocableMemory(long bytes)
+    {
+        if (taskContext.tryReserveRevocableMemory(bytes)) {
+            revocableMemoryReservation.getAndAdd(bytes);
+            return true;
+        }
+        return false;
+    }
+
     public synchronized void freeMemory(long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
@@ -254,6 +269,14 @@ public class PipelineContext
         systemMemoryReservation.getAndAdd(-bytes);
     }
 
+    public synchronized void freeRevocableMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(bytes <= revocableMemoryReservation.get(), "tried to free more revocable memory than is reserved");
+        taskContext.freeRevocableMemory(bytes);
+        revocableMemoryReservation.getAndAdd(-bytes);
+    }
+
     public void moreMemoryAvailable()
     {
         drivers.stream().forEach(DriverContext::moreMemoryAvailable);
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -255,4 +256,11 @@ public class SimplePagesHashStrategy
         }
         return false;
     }
+
+    @Override
+    public int compareChannelValue(int channel, int leftBlockIndex, int leftPosition, Block rightBlock, int rightPosition)
+    {
+        Block leftBlock = channels.get(channel).get(leftBlockIndex);
+        return ASC_NULLS_LAST.compareBlockValue(types.get(channel), leftBlock, leftPosition, rightBlock, rightPosition);
+    }
 }
@@ -139,6 +139,8 @@ public class TableWriterOperator
         this.pageSink = requireNonNull(pageSink, "pageSink is null");
         this.sampleWeightChannel = requireNonNull(sampleWeightChannel, "sampleWeightChannel is null");
         this.inputChannels = requireNonNull(inputChannels, "inputChannels is null");
+
+        operatorContext.setInfoSupplier(pageSink::getInfo);
     }
 
     @Override
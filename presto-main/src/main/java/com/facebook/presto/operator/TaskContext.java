@@ -56,6 +56,9 @@ public class TaskContext
     private final DataSize operatorPreAllocatedMemory;
     private final AtomicLong memoryReservation = new AtomicLong();
     private final AtomicLong systemMemoryReservation = new AtomicLong();
+    private final AtomicLong revocableMemoryReservation = new AtomicLong();
+    private final AtomicLong revokedMemory = new AtomicLong();
+    private final AtomicLong memoryRevocationNanos = new AtomicLong();
 
     private final long createNanos = System.nanoTime();
 
@@ -121,6 +124,11 @@ public class TaskContext
         return pipelineContext;
     }
 
+    public List<PipelineContext> getPipelineContexts()
+    {
+        return ImmutableList.copyOf(pipelineContexts);
+    }
+
     public Session getSession()
     {
         return session;
@@ -184,6 +192,17 @@ public class TaskContext
         return false;
     }
 
+    public synchronized boolean tryReserveRevocableMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+
+        if (queryContext.tryReserveRevocableMemory(bytes)) {
+            revocableMemoryReservation.getAndAdd(bytes);
+            return true;
+        }
+        return false;
+    }
+
     public synchronized void freeMemory(long bytes)
     {
         checkArgument(bytes >= 0, "bytes is negative");
@@ -200,6 +219,21 @@ public class TaskContext
         queryContext.freeSystemMemory(bytes);
     }
 
+    public synchronized void freeRevocableMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(bytes <= revocableMemoryReservation.get(), "tried to free more revocable memory than is reserved");
+        revocableMemoryReservation.getAndAdd(-bytes);
+        queryContext.freeRevocableMemory(bytes);
+    }
+
+    public void recordMemoryRevoked(long bytes, long nanos)
+    {
+        revokedMemory.getAndAdd(bytes);
+        memoryRevocationNanos.getAndAdd(nanos);
+        queryContext.recordMemoryRevoked(bytes, nanos);
+    }
+
     public void moreMemoryAvailable()
     {
         pipelineContexts.stream().forEach(PipelineContext::moreMemoryAvailable);
@@ -373,8 +407,10 @@ public class TaskContext
                 runningPartitionedDrivers,
                 completedDrivers,
                 cumulativeMemory.get(),
-                succinctBytes(memoryReservation.get()),
+                succinctBytes(memoryReservation.get() + revocableMemoryReservation.get()),
                 succinctBytes(systemMemoryReservation.get()),
+                succinctBytes(revokedMemory.get()),
+                new Duration(memoryRevocationNanos.get(), NANOSECONDS).convertToMostSuccinctTimeUnit(),
                 new Duration(totalScheduledTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
                 new Duration(totalCpuTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
                 new Duration(totalUserTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
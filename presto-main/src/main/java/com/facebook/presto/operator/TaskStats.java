@@ -52,6 +52,8 @@ public class TaskStats
     private final double cumulativeMemory;
     private final DataSize memoryReservation;
     private final DataSize systemMemoryReservation;
+    private final DataSize revokedMemory;
+    private final Duration memoryRevocationTime;
 
     private final Duration totalScheduledTime;
     private final Duration totalCpuTime;
@@ -89,6 +91,8 @@ public class TaskStats
                 0.0,
                 new DataSize(0, BYTE),
                 new DataSize(0, BYTE),
+                new DataSize(0, BYTE),
+                new Duration(0, MILLISECONDS),
                 new Duration(0, MILLISECONDS),
                 new Duration(0, MILLISECONDS),
                 new Duration(0, MILLISECONDS),
@@ -124,6 +128,8 @@ public class TaskStats
             @JsonProperty("cumulativeMemory") double cumulativeMemory,
             @JsonProperty("memoryReservation") DataSize memoryReservation,
             @JsonProperty("systemMemoryReservation") DataSize systemMemoryReservation,
+            @JsonProperty("revokedMemory") DataSize revokedMemory,
+            @JsonProperty("memoryRevocationTime") Duration memoryRevocationTime,
 
             @JsonProperty("totalScheduledTime") Duration totalScheduledTime,
             @JsonProperty("totalCpuTime") Duration totalCpuTime,
@@ -169,6 +175,8 @@ public class TaskStats
         this.cumulativeMemory = requireNonNull(cumulativeMemory, "cumulativeMemory is null");
         this.memoryReservation = requireNonNull(memoryReservation, "memoryReservation is null");
         this.systemMemoryReservation = requireNonNull(systemMemoryReservation, "systemMemoryReservation is null");
+        this.revokedMemory = requireNonNull(revokedMemory, "revokedMemory is null");
+        this.memoryRevocationTime = requireNonNull(memoryRevocationTime, "memoryRevocationTime is null");
 
         this.totalScheduledTime = requireNonNull(totalScheduledTime, "totalScheduledTime is null");
         this.totalCpuTime = requireNonNull(totalCpuTime, "totalCpuTime is null");
@@ -280,6 +288,18 @@ public class TaskStats
         return systemMemoryReservation;
     }
 
+    @JsonProperty
+    public DataSize getRevokedMemory()
+    {
+        return revokedMemory;
+    }
+
+    @JsonProperty
+    public Duration getMemoryRevocationTime()
+    {
+        return memoryRevocationTime;
+    }
+
     @JsonProperty
     public Duration getTotalScheduledTime()
     {
@@ -389,6 +409,8 @@ public class TaskStats
                 cumulativeMemory,
                 memoryReservation,
                 systemMemoryReservation,
+                revokedMemory,
+                memoryRevocationTime,
                 totalScheduledTime,
                 totalCpuTime,
                 totalUserTime,
@@ -25,6 +25,7 @@ import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.facebook.presto.spi.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -100,12 +101,15 @@ public class UnnestOperator
     private final List<Type> unnestTypes;
     private final boolean withOrdinality;
     private final List<Type> outputTypes;
+    private final InputPositionsBuilder replicatePositionsBuilder;
     private final PageBuilder pageBuilder;
     private final List<Unnester> unnesters;
     private boolean finishing;
     private Page currentPage;
     private int currentPosition;
     private int ordinalityCount;
+    // the output references the blocks of the last input page, so it has to be flushed before the next page
+    private boolean outputReferencesInput;
 
     public UnnestOperator(OperatorContext operatorContext, List<Integer> replicateChannels, List<Type> replicateTypes, List<Integer> unnestChannels, List<Type> unnestTypes, boolean withOrdinality)
     {
@@ -117,14 +121,19 @@ public class UnnestOperator
         this.withOrdinality = withOrdinality;
         checkArgument(replicateChannels.size() == replicateTypes.size(), "replicate channels or types has wrong size");
         checkArgument(unnestChannels.size() == unnestTypes.size(), "unnest channels or types has wrong size");
-        ImmutableList.Builder<Type> outputTypesBuilder = ImmutableList.<Type>builder()
-                .addAll(replicateTypes)
+        ImmutableList.Builder<Type> unnestedTypesBuilder = ImmutableList.<Type>builder()
                 .addAll(getUnnestedTypes(unnestTypes));
         if (withOrdinality) {
-            outputTypesBuilder.add(BIGINT);
+            unnestedTypesBuilder.add(BIGINT);
         }
-        this.outputTypes = outputTypesBuilder.build();
-        this.pageBuilder = new PageBuilder(outputTypes);
+        List<Type> unnestedTypes = unnestedTypesBuilder.build();
+        this.outputTypes = ImmutableList.<Type>builder()
+                .addAll(replicateTypes)
+                .addAll(unnestedTypes)
+                .build();
+        // replicated values reference the input blocks, the unnested values are copied
+        this.replicatePositionsBuilder = new InputPositionsBuilder(replicateTypes, replicateChannels);
+        this.pageBuilder = new PageBuilder(unnestedTypes);
         this.unnesters = new ArrayList<>();
     }
 
@@ -165,7 +174,7 @@ public class UnnestOperator
     @Override
     public boolean needsInput()
     {
-        return !finishing && !pageBuilder.isFull() && currentPage == null;
+        return !finishing && currentPage == null && !outputReferencesInput;
     }
 
     @Override
@@ -174,9 +183,10 @@ public class UnnestOperator
         checkState(!finishing, "Operator is already finishing");
         requireNonNull(page, "page is null");
         checkState(currentPage == null, "currentPage is not null");
-        checkState(!pageBuilder.isFull(), "Page buffer is full");
+        checkState(!outputReferencesInput, "Output of the previous page has not been flushed");
 
         currentPage = page;
+        replicatePositionsBuilder.setPage(page);
         currentPosition = 0;
         initializeUnnesters();
     }
@@ -217,25 +227,22 @@ public class UnnestOperator
     @Override
     public Page getOutput()
     {
-        while (!pageBuilder.isFull() && currentPage != null) {
+        while (!isFull() && currentPage != null) {
             // Advance until we find data to unnest
             while (!anyUnnesterHasData()) {
                 currentPosition++;
                 if (currentPosition == currentPage.getPositionCount()) {
                     currentPage = null;
                     currentPosition = 0;
+                    outputReferencesInput = replicatePositionsBuilder.finishPage();
                     break;
                 }
                 initializeUnnesters();
             }
-            while (!pageBuilder.isFull() && anyUnnesterHasData()) {
-                // Copy all the channels marked for replication
-                for (int replicateChannel = 0; replicateChannel < replicateTypes.size(); replicateChannel++) {
-                    Type type = replicateTypes.get(replicateChannel);
-                    int channel = replicateChannels.get(replicateChannel);
-                    type.appendTo(currentPage.getBlock(channel), currentPosition, pageBuilder.getBlockBuilder(replicateChannel));
-                }
-                int offset = replicateTypes.size();
+            while (!isFull() && anyUnnesterHasData()) {
+                // Reference all the channels marked for replication
+                replicatePositionsBuilder.appendPosition(currentPosition);
+                int offset = 0;
 
                 pageBuilder.declarePosition();
                 for (Unnester unnester : unnesters) {
@@ -257,12 +264,25 @@ public class UnnestOperator
             }
         }
 
-        if ((!finishing && !pageBuilder.isFull()) || pageBuilder.isEmpty()) {
+        // copied replicated rows are kept across input pages, referenced ones are flushed when the page is done
+        boolean flush = isFull() || outputReferencesInput || (finishing && currentPage == null);
+        if (pageBuilder.isEmpty() || !flush) {
             return null;
         }
 
-        Page page = pageBuilder.build();
+        Block[] replicateBlocks = replicatePositionsBuilder.build();
+        Page unnestedPage = pageBuilder.build();
         pageBuilder.reset();
-        return page;
+        outputReferencesInput = false;
+
+        Block[] blocks = new Block[outputTypes.size()];
+        System.arraycopy(replicateBlocks, 0, blocks, 0, replicateBlocks.length);
+        System.arraycopy(unnestedPage.getBlocks(), 0, blocks, replicateBlocks.length, unnestedPage.getChannelCount());
+        return new Page(unnestedPage.getPositionCount(), blocks);
+    }
+
+    private boolean isFull()
+    {
+        return pageBuilder.isFull() || replicatePositionsBuilder.getSizeInBytes() + pageBuilder.getSizeInBytes() >= DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
     }
 }
@@ -22,6 +22,7 @@ import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.SqlDecimal;
 import com.facebook.presto.spi.type.StandardTypes;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.type.JsonPathSetType;
 import com.facebook.presto.type.JsonPathType;
 import com.facebook.presto.type.SqlType;
 import com.fasterxml.jackson.core.JsonFactory;
@@ -29,6 +30,7 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.MappingJsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Doubles;
 import io.airlift.json.ObjectMapperProvider;
 import io.airlift.slice.DynamicSliceOutput;
@@ -75,6 +77,29 @@ public final class JsonFunctions
         return new JsonPath(pattern.toStringUtf8());
     }
 
+    @ScalarOperator(OperatorType.CAST)
+    @SqlType(JsonPathSetType.NAME)
+    public static JsonPathSet castToJsonPathSet(@SqlType(StandardTypes.VARCHAR) Slice paths)
+    {
+        // the paths are a JSON array of strings
+        try (JsonParser parser = JSON_FACTORY.createParser(paths.getInput())) {
+            if (parser.nextToken() != START_ARRAY) {
+                throw new PrestoException(INVALID_FUNCTION_ARGUMENT, "JSON path set must be an array");
+            }
+            ImmutableList.Builder<String> builder = ImmutableList.builder();
+            while (parser.nextToken() == VALUE_STRING) {
+                builder.add(parser.getText());
+            }
+            if (parser.getCurrentToken() != END_ARRAY) {
+                throw new PrestoException(INVALID_FUNCTION_ARGUMENT, "JSON path set must be an array of strings");
+            }
+            return new JsonPathSet(builder.build());
+        }
+        catch (IOException e) {
+            throw new PrestoException(INVALID_FUNCTION_ARGUMENT, "Invalid JSON path set: " + paths.toStringUtf8());
+        }
+    }
+
     @ScalarFunction
     @SqlType(StandardTypes.VARCHAR)
     public static Slice jsonFormat(@SqlType(StandardTypes.JSON) Slice slice)
@@ -377,6 +402,20 @@ public final class JsonFunctions
         return JsonExtract.extract(json, jsonPath.getScalarExtractor());
     }
 
+    @ScalarFunction(value = "json_extract_scalars", hidden = true)
+    @SqlType("array(varchar)")
+    public static Block varcharJsonExtractScalars(@SqlType(StandardTypes.VARCHAR) Slice json, @SqlType(JsonPathSetType.NAME) JsonPathSet jsonPaths)
+    {
+        return jsonPaths.extractScalars(json);
+    }
+
+    @ScalarFunction(value = "json_extract_scalars", hidden = true)
+    @SqlType("array(varchar)")
+    public static Block jsonExtractScalars(@SqlType(StandardTypes.JSON) Slice json, @SqlType(JsonPathSetType.NAME) JsonPathSet jsonPaths)
+    {
+        return jsonPaths.extractScalars(json);
+    }
+
     @ScalarFunction("json_extract")
     @Nullable
     @SqlType(StandardTypes.JSON)
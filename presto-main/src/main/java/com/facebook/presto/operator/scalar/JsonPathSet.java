@@ -0,0 +1,235 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.scalar;
+
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.fasterxml.jackson.core.JsonFactory.Feature.CANONICALIZE_FIELD_NAMES;
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.END_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Several JSON paths that are extracted from a document in a single pass of the parser.
+ * <p>
+ * The paths are merged into a tree of path tokens, and the parser only descends into the
+ * fields and elements that lead to one of the paths. The scalar value of each path is the same
+ * as the one found by {@link JsonExtract} with the {@link JsonPath} of that path.
+ */
+public class JsonPathSet
+{
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(CANONICALIZE_FIELD_NAMES);
+    private static final int ESTIMATED_ELEMENT_SIZE = 64;
+
+    private final List<String> paths;
+    private final PathNode root;
+    private final int nodeCount;
+
+    public JsonPathSet(List<String> paths)
+    {
+        this.paths = ImmutableList.copyOf(requireNonNull(paths, "paths is null"));
+
+        List<PathNode> nodes = new ArrayList<>();
+        root = new PathNode(nodes.size());
+        nodes.add(root);
+        for (int pathIndex = 0; pathIndex < paths.size(); pathIndex++) {
+            PathNode node = root;
+            for (String token : ImmutableList.copyOf(new JsonPathTokenizer(paths.get(pathIndex)))) {
+                PathNode child = node.fieldChildren.get(token);
+                if (child == null) {
+                    child = new PathNode(nodes.size());
+                    nodes.add(child);
+                    node.addChild(token, child);
+                }
+                node = child;
+            }
+            node.pathIndexes.add(pathIndex);
+        }
+        nodeCount = nodes.size();
+    }
+
+    public List<String> getPaths()
+    {
+        return paths;
+    }
+
+    /**
+     * Returns the scalar value of each path in {@code json}, as an array of varchar with one
+     * element per path, in the order of the paths.
+     */
+    public Block extractScalars(Slice json)
+    {
+        requireNonNull(json, "json is null");
+        Slice[] values = new Slice[paths.size()];
+        try (JsonParser jsonParser = JSON_FACTORY.createParser(json.getInput())) {
+            if (jsonParser.nextToken() != null) {
+                extract(jsonParser, root, values, new boolean[nodeCount]);
+            }
+        }
+        catch (JsonParseException e) {
+            // the paths that are not found before the document turns out to be malformed are null,
+            // as they would be when extracted one at a time
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(new BlockBuilderStatus(), values.length);
+        for (Slice value : values) {
+            if (value == null) {
+                blockBuilder.appendNull();
+            }
+            else {
+                VARCHAR.writeSlice(blockBuilder, value);
+            }
+        }
+        return blockBuilder.build();
+    }
+
+    /**
+     * The parser must be on the first token of the value of {@code node}, and is left on the last token of that value.
+     */
+    private static void extract(JsonParser jsonParser, PathNode node, Slice[] values, boolean[] visited)
+            throws IOException
+    {
+        JsonToken token = jsonParser.getCurrentToken();
+        if (!node.pathIndexes.isEmpty() && token.isScalarValue() && token != VALUE_NULL) {
+            Slice value = utf8Slice(jsonParser.getText());
+            for (int pathIndex : node.pathIndexes) {
+                values[pathIndex] = value;
+            }
+        }
+
+        if (token == START_OBJECT && !node.fieldChildren.isEmpty()) {
+            while (true) {
+                token = jsonParser.nextToken();
+                if (token == END_OBJECT) {
+                    return;
+                }
+                if (token != FIELD_NAME) {
+                    throw new JsonParseException("Unexpected end of object", jsonParser.getCurrentLocation());
+                }
+                PathNode child = node.fieldChildren.get(jsonParser.getCurrentName());
+                jsonParser.nextToken();
+                // only the first field with a name is extracted
+                if (child != null && !visited[child.id]) {
+                    visited[child.id] = true;
+                    extract(jsonParser, child, values, visited);
+                }
+                else {
+                    jsonParser.skipChildren();
+                }
+            }
+        }
+
+        if (token == START_ARRAY && !node.elementChildren.isEmpty()) {
+            int index = 0;
+            while (true) {
+                token = jsonParser.nextToken();
+                if (token == null) {
+                    throw new JsonParseException("Unexpected end of array", jsonParser.getCurrentLocation());
+                }
+                if (token == END_ARRAY) {
+                    return;
+                }
+                List<PathNode> children = node.elementChildren.get(index);
+                if (children == null) {
+                    jsonParser.skipChildren();
+                }
+                else if (children.size() == 1) {
+                    extract(jsonParser, children.get(0), values, visited);
+                }
+                else {
+                    // several tokens name the same element, such as 1 and 01, which is rare enough to parse the element again
+                    extractElement(jsonParser, children, values, visited);
+                }
+                index++;
+            }
+        }
+
+        jsonParser.skipChildren();
+    }
+
+    private static void extractElement(JsonParser jsonParser, List<PathNode> children, Slice[] values, boolean[] visited)
+            throws IOException
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(ESTIMATED_ELEMENT_SIZE);
+        try (JsonGenerator jsonGenerator = JSON_FACTORY.createGenerator(output)) {
+            jsonGenerator.copyCurrentStructure(jsonParser);
+        }
+        Slice element = output.slice();
+        for (PathNode child : children) {
+            try (JsonParser elementParser = JSON_FACTORY.createParser(element.getInput())) {
+                elementParser.nextToken();
+                extract(elementParser, child, values, visited);
+            }
+        }
+    }
+
+    private static class PathNode
+    {
+        private final int id;
+        private final List<Integer> pathIndexes = new ArrayList<>();
+        private final Map<String, PathNode> fieldChildren = new HashMap<>();
+        private final Map<Integer, List<PathNode>> elementChildren = new HashMap<>();
+
+        private PathNode(int id)
+        {
+            this.id = id;
+        }
+
+        private void addChild(String token, PathNode child)
+        {
+            fieldChildren.put(token, child);
+            int index = tryParseInt(token);
+            if (index >= 0) {
+                elementChildren.computeIfAbsent(index, key -> new ArrayList<>()).add(child);
+            }
+        }
+    }
+
+    private static int tryParseInt(String token)
+    {
+        try {
+            return Integer.parseInt(token);
+        }
+        catch (NumberFormatException ignored) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.scalar;
+
+import com.facebook.presto.metadata.FunctionRegistry;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.InterleavedBlock;
+import com.facebook.presto.spi.block.InterleavedBlockKeyIndex.PositionHasher;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import java.lang.invoke.MethodHandle;
+
+import static com.facebook.presto.metadata.OperatorType.EQUAL;
+import static com.facebook.presto.metadata.OperatorType.HASH_CODE;
+import static com.facebook.presto.metadata.Signature.internalOperator;
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Finds the value of a key in a map. Maps with enough keys are looked up through
+ * the hash index of their interleaved block, which is built once per map and
+ * reused by all lookups in the same map; smaller maps are scanned.
+ */
+final class MapKeyLookup
+{
+    // building the index of a smaller map costs more than scanning it a few times
+    private static final int MIN_INDEXED_KEY_COUNT = 8;
+
+    private final Type keyType;
+    private final MethodHandle keyEqualsMethod;
+    private final MethodHandle keyHashCodeMethod;
+    private final PositionHasher keyHasher;
+
+    public MapKeyLookup(Type keyType, FunctionRegistry functionRegistry)
+    {
+        this.keyType = requireNonNull(keyType, "keyType is null");
+        this.keyEqualsMethod = functionRegistry.getScalarFunctionImplementation(internalOperator(EQUAL, BOOLEAN, ImmutableList.of(keyType, keyType))).getMethodHandle();
+        this.keyHashCodeMethod = functionRegistry.getScalarFunctionImplementation(internalOperator(HASH_CODE, BIGINT, ImmutableList.of(keyType))).getMethodHandle();
+
+        if (keyType.getJavaType() == long.class) {
+            keyHasher = (block, position) -> hashCode(keyType.getLong(block, position));
+        }
+        else if (keyType.getJavaType() == double.class) {
+            keyHasher = (block, position) -> hashCode(keyType.getDouble(block, position));
+        }
+        else if (keyType.getJavaType() == Slice.class) {
+            keyHasher = (block, position) -> hashCode(keyType.getSlice(block, position));
+        }
+        else {
+            keyHasher = (block, position) -> hashCode(keyType.getObject(block, position));
+        }
+    }
+
+    /**
+     * @return the position of the value of the key in the map, or -1 if the map does not contain the key
+     */
+    public int findValuePosition(Block map, boolean key)
+    {
+        // at most two keys, never worth indexing
+        for (int position = 0; position < map.getPositionCount(); position += 2) {
+            if (equals(keyType.getBoolean(map, position), key)) {
+                return position + 1;
+            }
+        }
+        return -1;
+    }
+
+    public int findValuePosition(Block map, long key)
+    {
+        if (isIndexed(map)) {
+            return valuePosition(((InterleavedBlock) map).findKeyPosition(hashCode(key), keyHasher, (block, position) -> equals(keyType.getLong(block, position), key)));
+        }
+        for (int position = 0; position < map.getPositionCount(); position += 2) {
+            if (equals(keyType.getLong(map, position), key)) {
+                return position + 1;
+            }
+        }
+        return -1;
+    }
+
+    public int findValuePosition(Block map, double key)
+    {
+        if (isIndexed(map)) {
+            return valuePosition(((InterleavedBlock) map).findKeyPosition(hashCode(key), keyHasher, (block, position) -> equals(keyType.getDouble(block, position), key)));
+        }
+        for (int position = 0; position < map.getPositionCount(); position += 2) {
+            if (equals(keyType.getDouble(map, position), key)) {
+                return position + 1;
+            }
+        }
+        return -1;
+    }
+
+    public int findValuePosition(Block map, Slice key)
+    {
+        if (isIndexed(map)) {
+            return valuePosition(((InterleavedBlock) map).findKeyPosition(hashCode(key), keyHasher, (block, position) -> equals(keyType.getSlice(block, position), key)));
+        }
+        for (int position = 0; position < map.getPositionCount(); position += 2) {
+            if (equals(keyType.getSlice(map, position), key)) {
+                return position + 1;
+            }
+        }
+        return -1;
+    }
+
+    public int findValuePosition(Block map, Object key)
+    {
+        if (isIndexed(map)) {
+            return valuePosition(((InterleavedBlock) map).findKeyPosition(hashCode(key), keyHasher, (block, position) -> equals(keyType.getObject(block, position), key)));
+        }
+        for (int position = 0; position < map.getPositionCount(); position += 2) {
+            if (equals(keyType.getObject(map, position), key)) {
+                return position + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIndexed(Block map)
+    {
+        return map instanceof InterleavedBlock && map.getPositionCount() >= MIN_INDEXED_KEY_COUNT * 2;
+    }
+
+    private static int valuePosition(int keyPosition)
+    {
+        return keyPosition < 0 ? -1 : keyPosition + 1;
+    }
+
+    private boolean equals(boolean left, boolean right)
+    {
+        try {
+            return (boolean) keyEqualsMethod.invokeExact(left, right);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private boolean equals(long left, long right)
+    {
+        try {
+            return (boolean) keyEqualsMethod.invokeExact(left, right);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private boolean equals(double left, double right)
+    {
+        try {
+            return (boolean) keyEqualsMethod.invokeExact(left, right);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private boolean equals(Slice left, Slice right)
+    {
+        try {
+            return (boolean) keyEqualsMethod.invokeExact(left, right);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private boolean equals(Object left, Object right)
+    {
+        try {
+            return (boolean) keyEqualsMethod.invoke(left, right);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private long hashCode(long value)
+    {
+        try {
+            return (long) keyHashCodeMethod.invokeExact(value);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private long hashCode(double value)
+    {
+        try {
+            return (long) keyHashCodeMethod.invokeExact(value);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private long hashCode(Slice value)
+    {
+        try {
+            return (long) keyHashCodeMethod.invokeExact(value);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private long hashCode(Object value)
+    {
+        try {
+            return (long) keyHashCodeMethod.invoke(value);
+        }
+        catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private static RuntimeException propagate(Throwable t)
+    {
+        Throwables.propagateIfInstanceOf(t, Error.class);
+        Throwables.propagateIfInstanceOf(t, PrestoException.class);
+        throw new PrestoException(GENERIC_INTERNAL_ERROR, t);
+    }
+}
@@ -30,11 +30,15 @@ import static java.util.Objects.requireNonNull;
 public class AggregateWindowFunction
         implements WindowFunction
 {
+    // smaller frames are accumulated row by row, as the segment tree would cover few of their rows
+    private static final int MIN_SEGMENT_TREE_FRAME_SIZE = 2 * WindowSegmentTree.LEAF_SIZE;
+
     private final InternalAggregationFunction function;
     private final int[] argumentChannels;
     private final AccumulatorFactory accumulatorFactory;
 
     private WindowIndex windowIndex;
+    private WindowSegmentTree segmentTree;
     private Accumulator accumulator;
     private int currentStart;
     private int currentEnd;
@@ -50,6 +54,7 @@ public class AggregateWindowFunction
     public void reset(WindowIndex windowIndex)
     {
         this.windowIndex = windowIndex;
+        this.segmentTree = null;
         resetAccumulator();
     }
 
@@ -65,6 +70,15 @@ public class AggregateWindowFunction
             accumulate(currentEnd + 1, frameEnd);
             currentEnd = frameEnd;
         }
+        else if (function.isDecomposable() && (frameEnd - frameStart + 1) >= MIN_SEGMENT_TREE_FRAME_SIZE) {
+            // different frame, which is cheaper to combine from the states of the segment tree
+            if (segmentTree == null) {
+                segmentTree = new WindowSegmentTree(accumulatorFactory, function.getParameterTypes(), argumentChannels, function.getIntermediateType(), windowIndex);
+            }
+            accumulator = segmentTree.createAccumulator(frameStart, frameEnd);
+            currentStart = frameStart;
+            currentEnd = frameEnd;
+        }
         else {
             // different frame
             resetAccumulator();
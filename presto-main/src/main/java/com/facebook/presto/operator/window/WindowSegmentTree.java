@@ -0,0 +1,149 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.window;
+
+import com.facebook.presto.operator.aggregation.Accumulator;
+import com.facebook.presto.operator.aggregation.AccumulatorFactory;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Intermediate aggregation states of a window partition, arranged as a segment tree.
+ * <p>
+ * The rows of the partition are split into leaves of {@link #LEAF_SIZE} rows. Level zero holds the
+ * state of every leaf and each higher level holds the combined state of two adjacent nodes of the
+ * level below. The state of any frame is then built from the rows at the edges of the frame that
+ * do not fill a leaf, and from at most two nodes per level, in frame order.
+ */
+class WindowSegmentTree
+{
+    static final int LEAF_SIZE = 16;
+
+    private final AccumulatorFactory accumulatorFactory;
+    private final List<Type> parameterTypes;
+    private final int[] argumentChannels;
+    private final Type intermediateType;
+    private final WindowIndex windowIndex;
+
+    // node i of level k holds the state of leaves [i * 2^k, (i + 1) * 2^k)
+    private final List<Block> levels = new ArrayList<>();
+
+    public WindowSegmentTree(AccumulatorFactory accumulatorFactory, List<Type> parameterTypes, int[] argumentChannels, Type intermediateType, WindowIndex windowIndex)
+    {
+        this.accumulatorFactory = requireNonNull(accumulatorFactory, "accumulatorFactory is null");
+        this.parameterTypes = ImmutableList.copyOf(requireNonNull(parameterTypes, "parameterTypes is null"));
+        this.argumentChannels = requireNonNull(argumentChannels, "argumentChannels is null");
+        this.intermediateType = requireNonNull(intermediateType, "intermediateType is null");
+        this.windowIndex = requireNonNull(windowIndex, "windowIndex is null");
+
+        int leafCount = windowIndex.size() / LEAF_SIZE;
+        if (leafCount == 0) {
+            return;
+        }
+
+        BlockBuilder leaves = intermediateType.createBlockBuilder(new BlockBuilderStatus(), leafCount);
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            Accumulator accumulator = accumulatorFactory.createAccumulator();
+            addRows(accumulator, leaf * LEAF_SIZE, (leaf + 1) * LEAF_SIZE - 1);
+            accumulator.evaluateIntermediate(leaves);
+        }
+        levels.add(leaves.build());
+
+        Block level = levels.get(0);
+        while (level.getPositionCount() > 1) {
+            int nodeCount = (level.getPositionCount() + 1) / 2;
+            BlockBuilder nodes = intermediateType.createBlockBuilder(new BlockBuilderStatus(), nodeCount);
+            for (int node = 0; node < nodeCount; node++) {
+                int first = node * 2;
+                Accumulator accumulator = accumulatorFactory.createAccumulator();
+                accumulator.addIntermediate(level.getRegion(first, Math.min(2, level.getPositionCount() - first)));
+                accumulator.evaluateIntermediate(nodes);
+            }
+            level = nodes.build();
+            levels.add(level);
+        }
+    }
+
+    /**
+     * Creates an accumulator that holds the state of the rows from {@code start} to {@code end}, inclusive.
+     */
+    public Accumulator createAccumulator(int start, int end)
+    {
+        Accumulator accumulator = accumulatorFactory.createAccumulator();
+
+        // leaves that are entirely within the frame
+        int firstLeaf = (start + LEAF_SIZE - 1) / LEAF_SIZE;
+        int endLeaf = (end + 1) / LEAF_SIZE;
+        if (firstLeaf >= endLeaf) {
+            addRows(accumulator, start, end);
+            return accumulator;
+        }
+
+        addRows(accumulator, start, firstLeaf * LEAF_SIZE - 1);
+
+        // nodes on the left side are found in frame order, and nodes on the right side in reverse
+        List<Block> leftNodes = new ArrayList<>();
+        List<Block> rightNodes = new ArrayList<>();
+        int low = firstLeaf;
+        int high = endLeaf;
+        for (int level = 0; low < high; level++) {
+            if ((low & 1) != 0) {
+                leftNodes.add(levels.get(level).getRegion(low, 1));
+                low++;
+            }
+            if ((high & 1) != 0) {
+                high--;
+                rightNodes.add(levels.get(level).getRegion(high, 1));
+            }
+            low >>= 1;
+            high >>= 1;
+        }
+
+        BlockBuilder states = intermediateType.createBlockBuilder(new BlockBuilderStatus(), leftNodes.size() + rightNodes.size());
+        for (Block node : leftNodes) {
+            intermediateType.appendTo(node, 0, states);
+        }
+        for (int i = rightNodes.size() - 1; i >= 0; i--) {
+            intermediateType.appendTo(rightNodes.get(i), 0, states);
+        }
+        accumulator.addIntermediate(states.build());
+
+        addRows(accumulator, endLeaf * LEAF_SIZE, end);
+        return accumulator;
+    }
+
+    private void addRows(Accumulator accumulator, int start, int end)
+    {
+        if (start > end) {
+            return;
+        }
+        PageBuilder pageBuilder = new PageBuilder(parameterTypes);
+        for (int position = start; position <= end; position++) {
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                windowIndex.appendTo(argumentChannels[i], position, pageBuilder.getBlockBuilder(i));
+            }
+            pageBuilder.declarePosition();
+        }
+        accumulator.addInput(pageBuilder.build());
+    }
+}
@@ -16,20 +16,26 @@ package com.facebook.presto.server;
 import com.google.inject.Inject;
 import io.airlift.log.Logger;
 import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
 
 import javax.annotation.PostConstruct;
 
+import java.lang.management.ClassLoadingMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-final class CodeCacheGcTrigger
+public final class CodeCacheGcTrigger
 {
     private static final Logger log = Logger.get(CodeCacheGcTrigger.class);
     private static final AtomicBoolean installed = new AtomicBoolean();
 
     private final Duration interval;
+    private final MemoryPoolMXBean codeCacheMbean = findCodeCacheMBean();
+    private final ClassLoadingMXBean classLoadingMbean = ManagementFactory.getClassLoadingMXBean();
+    private final AtomicLong triggeredGcs = new AtomicLong();
 
     @Inject
     public CodeCacheGcTrigger(CodeCacheGcConfig config)
@@ -37,6 +43,42 @@ final class CodeCacheGcTrigger
         this.interval = config.getCodeCacheCheckInterval();
     }
 
+    @Managed
+    public long getCodeCacheUsedBytes()
+    {
+        return codeCacheMbean.getUsage().getUsed();
+    }
+
+    @Managed
+    public long getCodeCacheMaxBytes()
+    {
+        return codeCacheMbean.getUsage().getMax();
+    }
+
+    @Managed
+    public long getTriggeredGcs()
+    {
+        return triggeredGcs.get();
+    }
+
+    @Managed
+    public long getLoadedClasses()
+    {
+        return classLoadingMbean.getLoadedClassCount();
+    }
+
+    @Managed
+    public long getTotalLoadedClasses()
+    {
+        return classLoadingMbean.getTotalLoadedClassCount();
+    }
+
+    @Managed
+    public long getUnloadedClasses()
+    {
+        return classLoadingMbean.getUnloadedClassCount();
+    }
+
     @PostConstruct
     public void start()
     {
@@ -51,8 +93,6 @@ final class CodeCacheGcTrigger
 
         // Hack to work around bugs in java 8 (8u45+) related to code cache management.
         // See http://openjdk.5641.n7.nabble.com/JIT-stops-compiling-after-a-while-java-8u45-td259603.html for more info.
-        MemoryPoolMXBean codeCacheMbean = findCodeCacheMBean();
-
         Thread gcThread = new Thread(() -> {
             while (!Thread.currentThread().isInterrupted()) {
                 long used = codeCacheMbean.getUsage().getUsed();
@@ -65,6 +105,7 @@ final class CodeCacheGcTrigger
                     // Due to some obscure bug in hotspot (java 8), once the code cache fills up the JIT stops compiling
                     // By forcing a GC, we let the code cache evictor make room before the cache fills up.
                     log.info("Triggering GC to avoid Code Cache eviction bugs");
+                    triggeredGcs.incrementAndGet();
                     System.gc();
                 }
 
@@ -20,6 +20,7 @@ import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.security.AccessControlManager;
 import com.facebook.presto.security.AccessControlModule;
 import com.facebook.presto.server.security.ServerSecurityModule;
+import com.facebook.presto.sql.gen.CompilerWarmupManager;
 import com.facebook.presto.sql.parser.SqlParserOptions;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
@@ -123,6 +124,8 @@ public class PrestoServer
 
             injector.getInstance(AccessControlManager.class).loadSystemAccessControl();
 
+            injector.getInstance(CompilerWarmupManager.class).start();
+
             injector.getInstance(Announcer.class).start();
 
             log.info("======== SERVER STARTED ========");
@@ -93,6 +93,7 @@ import com.facebook.presto.sql.Serialization.ExpressionDeserializer;
 import com.facebook.presto.sql.Serialization.ExpressionSerializer;
 import com.facebook.presto.sql.Serialization.FunctionCallDeserializer;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.facebook.presto.sql.gen.CompilerWarmupManager;
 import com.facebook.presto.sql.gen.ExpressionCompiler;
 import com.facebook.presto.sql.parser.SqlParser;
 import com.facebook.presto.sql.parser.SqlParserOptions;
@@ -238,6 +239,7 @@ public class ServerMainModule
         // workaround for CodeCache GC issue
         configBinder(binder).bindConfig(CodeCacheGcConfig.class);
         binder.bind(CodeCacheGcTrigger.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(CodeCacheGcTrigger.class).withGeneratedName();
 
         configBinder(binder).bindConfig(MemoryManagerConfig.class);
         configBinder(binder).bindConfig(NodeMemoryConfig.class);
@@ -251,6 +253,8 @@ public class ServerMainModule
         configBinder(binder).bindConfig(CompilerConfig.class);
         binder.bind(ExpressionCompiler.class).in(Scopes.SINGLETON);
         newExporter(binder).export(ExpressionCompiler.class).withGeneratedName();
+        binder.bind(CompilerWarmupManager.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(CompilerWarmupManager.class).withGeneratedName();
         configBinder(binder).bindConfig(TaskManagerConfig.class);
         binder.bind(IndexJoinLookupStats.class).in(Scopes.SINGLETON);
         newExporter(binder).export(IndexJoinLookupStats.class).withGeneratedName();
@@ -43,8 +43,12 @@ public class FeaturesConfig
     private boolean colocatedJoinsEnabled;
     private boolean redistributeWrites = true;
     private boolean optimizeMetadataQueries;
+    private boolean optimizeMetadataAggregations = true;
+    private boolean pushDownLimits = true;
     private boolean optimizeHashGeneration = true;
     private boolean optimizeSingleDistinct = true;
+    private boolean rangeJoin;
+    private boolean fuseJsonExtractions = true;
     private boolean pushTableWriteThroughUnion = true;
     private boolean legacyArrayAgg;
 
@@ -169,6 +173,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isOptimizeMetadataAggregations()
+    {
+        return optimizeMetadataAggregations;
+    }
+
+    @Config("optimizer.optimize-metadata-aggregations")
+    @ConfigDescription("Answer aggregations that the connector can compute exactly from its metadata without reading the data")
+    public FeaturesConfig setOptimizeMetadataAggregations(boolean optimizeMetadataAggregations)
+    {
+        this.optimizeMetadataAggregations = optimizeMetadataAggregations;
+        return this;
+    }
+
+    public boolean isPushDownLimits()
+    {
+        return pushDownLimits;
+    }
+
+    @Config("optimizer.push-down-limits")
+    @ConfigDescription("Push limits and top-N of table scans into connectors that can apply them while reading")
+    public FeaturesConfig setPushDownLimits(boolean pushDownLimits)
+    {
+        this.pushDownLimits = pushDownLimits;
+        return this;
+    }
+
     public boolean isOptimizeHashGeneration()
     {
         return optimizeHashGeneration;
@@ -193,6 +223,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isRangeJoin()
+    {
+        return rangeJoin;
+    }
+
+    @Config("optimizer.range-join")
+    @ConfigDescription("Experimental: Evaluate inequality conditions between the join inputs in the join using a range index")
+    public FeaturesConfig setRangeJoin(boolean rangeJoin)
+    {
+        this.rangeJoin = rangeJoin;
+        return this;
+    }
+
+    public boolean isFuseJsonExtractions()
+    {
+        return fuseJsonExtractions;
+    }
+
+    @Config("optimizer.fuse-json-extractions")
+    @ConfigDescription("Extract several JSON paths from the same document with a single parse")
+    public FeaturesConfig setFuseJsonExtractions(boolean fuseJsonExtractions)
+    {
+        this.fuseJsonExtractions = fuseJsonExtractions;
+        return this;
+    }
+
     public boolean isPushTableWriteThroughUnion()
     {
         return pushTableWriteThroughUnion;
@@ -17,11 +17,16 @@ import com.facebook.presto.bytecode.BytecodeBlock;
 import com.facebook.presto.bytecode.BytecodeNode;
 import com.facebook.presto.bytecode.MethodDefinition;
 import com.facebook.presto.bytecode.Scope;
+import com.facebook.presto.bytecode.Variable;
+import com.facebook.presto.bytecode.expression.BytecodeExpression;
 import com.facebook.presto.metadata.FunctionRegistry;
+import com.facebook.presto.sql.gen.ConstantParameterExtractor.ConstantParameter;
 import com.facebook.presto.sql.relational.CallExpression;
 import com.facebook.presto.sql.relational.ConstantExpression;
 import com.facebook.presto.sql.relational.InputReferenceExpression;
+import com.facebook.presto.sql.relational.RowExpression;
 import com.facebook.presto.sql.relational.RowExpressionVisitor;
+import com.google.common.collect.ImmutableMap;
 
 import java.util.Map;
 
@@ -52,6 +57,7 @@ public class BytecodeExpressionVisitor
     private final RowExpressionVisitor<Scope, BytecodeNode> fieldReferenceCompiler;
     private final FunctionRegistry registry;
     private final Map<CallExpression, MethodDefinition> tryExpressionsMap;
+    private final Map<RowExpression, MethodDefinition> commonSubexpressionsMap;
 
     public BytecodeExpressionVisitor(
             CallSiteBinder callSiteBinder,
@@ -59,17 +65,34 @@ public class BytecodeExpressionVisitor
             RowExpressionVisitor<Scope, BytecodeNode> fieldReferenceCompiler,
             FunctionRegistry registry,
             Map<CallExpression, MethodDefinition> tryExpressionsMap)
+    {
+        this(callSiteBinder, cachedInstanceBinder, fieldReferenceCompiler, registry, tryExpressionsMap, ImmutableMap.of());
+    }
+
+    public BytecodeExpressionVisitor(
+            CallSiteBinder callSiteBinder,
+            CachedInstanceBinder cachedInstanceBinder,
+            RowExpressionVisitor<Scope, BytecodeNode> fieldReferenceCompiler,
+            FunctionRegistry registry,
+            Map<CallExpression, MethodDefinition> tryExpressionsMap,
+            Map<RowExpression, MethodDefinition> commonSubexpressionsMap)
     {
         this.callSiteBinder = callSiteBinder;
         this.cachedInstanceBinder = cachedInstanceBinder;
         this.fieldReferenceCompiler = fieldReferenceCompiler;
         this.registry = registry;
         this.tryExpressionsMap = tryExpressionsMap;
+        this.commonSubexpressionsMap = commonSubexpressionsMap;
     }
 
     @Override
     public BytecodeNode visitCall(CallExpression call, final Scope scope)
     {
+        MethodDefinition commonSubexpressionMethod = commonSubexpressionsMap.get(call);
+        if (commonSubexpressionMethod != null) {
+            return invokeCommonSubexpression(commonSubexpressionMethod, scope);
+        }
+
         BytecodeGenerator generator;
         // special-cased in function registry
         if (call.getSignature().getName().equals(CAST)) {
@@ -146,6 +169,13 @@ public class BytecodeExpressionVisitor
                     .pushJavaDefault(javaType);
         }
 
+        if (value instanceof ConstantParameter) {
+            // the value is set by the constructor, so that the class can be shared by expressions with other literals
+            ConstantParameter parameter = (ConstantParameter) value;
+            return block.comment("constant parameter " + parameter)
+                    .append(scope.getThis().getField(parameter.getFieldName(), javaType));
+        }
+
         // use LDC for primitives (boolean, short, int, long, float, double)
         block.comment("constant " + constant.getType().getTypeSignature());
         if (javaType == boolean.class) {
@@ -179,6 +209,24 @@ public class BytecodeExpressionVisitor
                 .append(loadConstant(binding));
     }
 
+    private static BytecodeNode invokeCommonSubexpression(MethodDefinition method, Scope scope)
+    {
+        BytecodeBlock block = new BytecodeBlock()
+                .comment("common subexpression: " + method.getName())
+                .getVariable(scope.getThis());
+        method.getParameters().stream()
+                .map(parameter -> scope.getVariable(parameter.getName()))
+                .forEach(block::getVariable);
+        block.invokeVirtual(method);
+
+        // the method leaves the null flag of the value in an array indexed by position
+        Variable wasNull = scope.getVariable("wasNull");
+        BytecodeExpression isNull = scope.getThis()
+                .getField(method.getName() + "_isNull", boolean[].class)
+                .getElement(scope.getVariable("position"));
+        return block.append(wasNull.set(isNull));
+    }
+
     @Override
     public BytecodeNode visitInputReference(InputReferenceExpression node, Scope scope)
     {
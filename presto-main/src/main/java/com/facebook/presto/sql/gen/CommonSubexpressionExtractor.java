@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.sql.relational.CallExpression;
+import com.facebook.presto.sql.relational.DeterminismEvaluator;
+import com.facebook.presto.sql.relational.Expressions;
+import com.facebook.presto.sql.relational.InputReferenceExpression;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.google.common.collect.ImmutableList;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.facebook.presto.sql.relational.Signatures.TRY;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Finds the call expressions that are evaluated more than once for a position by a set of
+ * expressions, such as the filter and the projections of a page processor.
+ * <p>
+ * Nondeterministic expressions are not shared, as each evaluation may produce a different value.
+ * Expressions within a TRY are not shared either, because the failure of an expression must only be
+ * suppressed where it is evaluated within the TRY.
+ */
+public final class CommonSubexpressionExtractor
+{
+    private final DeterminismEvaluator determinismEvaluator;
+    private final Map<RowExpression, Integer> occurrences = new HashMap<>();
+    private final Map<RowExpression, Integer> evaluations = new HashMap<>();
+    private final Set<RowExpression> visited = new HashSet<>();
+    // in post order, so every expression comes after the expressions it contains
+    private final Set<RowExpression> expressions = new LinkedHashSet<>();
+
+    private CommonSubexpressionExtractor(DeterminismEvaluator determinismEvaluator)
+    {
+        this.determinismEvaluator = requireNonNull(determinismEvaluator, "determinismEvaluator is null");
+    }
+
+    /**
+     * Returns the common subexpressions of {@code expressions}. Each subexpression comes after the
+     * subexpressions it contains.
+     */
+    public static List<RowExpression> extractCommonSubexpressions(List<RowExpression> expressions, DeterminismEvaluator determinismEvaluator)
+    {
+        CommonSubexpressionExtractor extractor = new CommonSubexpressionExtractor(determinismEvaluator);
+        for (RowExpression expression : expressions) {
+            extractor.countOccurrences(expression);
+        }
+        for (RowExpression expression : expressions) {
+            extractor.countEvaluations(expression);
+        }
+        return extractor.expressions.stream()
+                .filter(expression -> extractor.evaluations.get(expression) > 1)
+                .collect(toImmutableList());
+    }
+
+    private void countOccurrences(RowExpression expression)
+    {
+        if (!(expression instanceof CallExpression) || isTry(expression)) {
+            return;
+        }
+        occurrences.merge(expression, 1, Integer::sum);
+        for (RowExpression argument : ((CallExpression) expression).getArguments()) {
+            countOccurrences(argument);
+        }
+    }
+
+    private void countEvaluations(RowExpression expression)
+    {
+        if (!(expression instanceof CallExpression) || isTry(expression)) {
+            return;
+        }
+        boolean shared = occurrences.get(expression) > 1 && canShare(expression);
+        if (shared) {
+            evaluations.merge(expression, 1, Integer::sum);
+            if (!visited.add(expression)) {
+                // a shared expression is evaluated once, so the expressions within it are only counted once
+                return;
+            }
+        }
+        for (RowExpression argument : ((CallExpression) expression).getArguments()) {
+            countEvaluations(argument);
+        }
+        if (shared) {
+            expressions.add(expression);
+        }
+    }
+
+    private boolean canShare(RowExpression expression)
+    {
+        List<RowExpression> subExpressions = Expressions.subExpressions(ImmutableList.of(expression));
+        return expression.getType().getJavaType() != void.class &&
+                subExpressions.stream().anyMatch(InputReferenceExpression.class::isInstance) &&
+                subExpressions.stream().noneMatch(CommonSubexpressionExtractor::isTry) &&
+                determinismEvaluator.isDeterministic(expression);
+    }
+
+    private static boolean isTry(RowExpression expression)
+    {
+        return expression instanceof CallExpression && ((CallExpression) expression).getSignature().getName().equals(TRY);
+    }
+}
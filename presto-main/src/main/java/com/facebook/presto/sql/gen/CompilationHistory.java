@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Counts how often the keys of a generated class cache are requested, so that the
+ * classes of the most frequently used keys can be generated again when the server
+ * restarts, before queries need them. The keys must be serializable with Jackson.
+ */
+public final class CompilationHistory<K>
+{
+    // bounds the memory used by caches with an unbounded number of distinct keys
+    private static final int MAX_TRACKED_KEYS = 10_000;
+    // fraction of the tracked keys that is evicted when the limit is reached
+    private static final double EVICTED_FRACTION = 0.25;
+
+    private final Class<K> keyType;
+    private final Consumer<K> compiler;
+    private final ConcurrentMap<K, LongAdder> requests = new ConcurrentHashMap<>();
+
+    public CompilationHistory(Class<K> keyType, Consumer<K> compiler)
+    {
+        this.keyType = requireNonNull(keyType, "keyType is null");
+        this.compiler = requireNonNull(compiler, "compiler is null");
+    }
+
+    public Class<K> getKeyType()
+    {
+        return keyType;
+    }
+
+    public void record(K key)
+    {
+        LongAdder count = requests.get(key);
+        if (count == null) {
+            if (requests.size() >= MAX_TRACKED_KEYS) {
+                evictLeastFrequent();
+            }
+            count = requests.computeIfAbsent(key, ignored -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Makes room for new keys by evicting the least frequently requested keys, and halves the
+     * counts of the other keys, so that keys that stopped being requested eventually give way
+     * to keys that are requested now.
+     */
+    private synchronized void evictLeastFrequent()
+    {
+        if (requests.size() < MAX_TRACKED_KEYS) {
+            return;
+        }
+        requests.entrySet().stream()
+                .map(entry -> new KeyCount<>(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(KeyCount<K>::getCount))
+                .limit((long) (requests.size() * EVICTED_FRACTION))
+                .forEach(keyCount -> requests.remove(keyCount.getKey()));
+        for (LongAdder count : requests.values()) {
+            long sum = count.sumThenReset();
+            count.add(sum - sum / 2);
+        }
+    }
+
+    @VisibleForTesting
+    int getTrackedKeyCount()
+    {
+        return requests.size();
+    }
+
+    @VisibleForTesting
+    static int getMaxTrackedKeys()
+    {
+        return MAX_TRACKED_KEYS;
+    }
+
+    /**
+     * @return the request counts of the most frequently requested keys, most frequent first
+     */
+    public Map<K, Long> getMostFrequent(int limit)
+    {
+        checkArgument(limit >= 0, "limit is negative");
+        ImmutableMap.Builder<K, Long> mostFrequent = ImmutableMap.builder();
+        requests.entrySet().stream()
+                .map(entry -> new KeyCount<>(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(KeyCount<K>::getCount).reversed())
+                .limit(limit)
+                .forEach(keyCount -> mostFrequent.put(keyCount.getKey(), keyCount.getCount()));
+        return mostFrequent.build();
+    }
+
+    /**
+     * Generates the class of a key recorded by a previous run of the server, and
+     * carries over its request count.
+     */
+    public void restore(Object key, long count)
+    {
+        K typedKey = keyType.cast(key);
+        compiler.accept(typedKey);
+        requests.computeIfAbsent(typedKey, ignored -> new LongAdder()).add(count);
+    }
+
+    private static final class KeyCount<K>
+    {
+        private final K key;
+        private final long count;
+
+        private KeyCount(K key, long count)
+        {
+            this.key = key;
+            this.count = count;
+        }
+
+        private K getKey()
+        {
+            return key;
+        }
+
+        private long getCount()
+        {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.operator.LookupJoinOperators;
+import com.facebook.presto.operator.MultiChannelGroupByHash;
+import com.facebook.presto.operator.PagesIndex;
+import com.facebook.presto.sql.planner.CompilerConfig;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.Duration.nanosSince;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Records the cache keys of the most frequently generated classes to a local file,
+ * and generates the classes of the recorded keys in the background when the server
+ * starts, so that the first queries after a restart find them in the caches.
+ */
+public class CompilerWarmupManager
+{
+    private static final Logger log = Logger.get(CompilerWarmupManager.class);
+
+    private final File warmupFile;
+    private final int maxEntries;
+    private final Duration saveInterval;
+    private final ObjectMapper objectMapper;
+    private final Map<String, CompilationHistory<?>> histories;
+
+    private final ScheduledExecutorService executor = newSingleThreadScheduledExecutor(daemonThreadsNamed("compiler-warmup-%s"));
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicLong generatedClasses = new AtomicLong();
+    private final AtomicLong failedClasses = new AtomicLong();
+    private volatile long warmupMillis;
+
+    @Inject
+    public CompilerWarmupManager(CompilerConfig config, ObjectMapper objectMapper, ExpressionCompiler expressionCompiler, Metadata metadata)
+    {
+        this(config, objectMapper, ImmutableMap.<String, CompilationHistory<?>>builder()
+                .put("aggregations", metadata.getFunctionRegistry().getAggregationHistory())
+                .put("pageProcessors", expressionCompiler.getPageProcessorHistory())
+                .put("lookupSourceFactories", PagesIndex.getJoinCompiler().getLookupSourceFactoryHistory())
+                .put("pagesHashStrategies", PagesIndex.getJoinCompiler().getHashStrategyHistory())
+                .put("groupByHashStrategies", MultiChannelGroupByHash.getJoinCompiler().getHashStrategyHistory())
+                .put("joinProbeFactories", LookupJoinOperators.getJoinProbeCompiler().getJoinProbeFactoryHistory())
+                .put("pagesIndexOrderings", PagesIndex.getOrderingCompiler().getPagesIndexOrderingHistory())
+                .build());
+    }
+
+    @VisibleForTesting
+    public CompilerWarmupManager(CompilerConfig config, ObjectMapper objectMapper, Map<String, CompilationHistory<?>> histories)
+    {
+        requireNonNull(config, "config is null");
+        this.warmupFile = config.getWarmupFile();
+        this.maxEntries = config.getWarmupMaxEntries();
+        this.saveInterval = config.getWarmupSaveInterval();
+        this.objectMapper = requireNonNull(objectMapper, "objectMapper is null");
+        this.histories = ImmutableMap.copyOf(requireNonNull(histories, "histories is null"));
+    }
+
+    /**
+     * Starts generating the recorded classes in the background. Must be called after
+     * the plugins are loaded, as the recorded keys may refer to their types and functions.
+     */
+    public void start()
+    {
+        if (warmupFile == null || started.getAndSet(true)) {
+            return;
+        }
+        executor.execute(this::warmUp);
+        executor.scheduleWithFixedDelay(this::save, saveInterval.toMillis(), saveInterval.toMillis(), MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+        if (started.get()) {
+            save();
+        }
+    }
+
+    @VisibleForTesting
+    public void warmUp()
+    {
+        if (!warmupFile.exists()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Map<String, List<RecordedKey>> record;
+        try {
+            record = objectMapper.readValue(warmupFile, new TypeReference<Map<String, List<RecordedKey>>>() {});
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn(e, "Failed to read generated class record %s", warmupFile);
+            return;
+        }
+
+        for (Map.Entry<String, CompilationHistory<?>> entry : histories.entrySet()) {
+            CompilationHistory<?> history = entry.getValue();
+            for (RecordedKey recordedKey : record.getOrDefault(entry.getKey(), ImmutableList.of())) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    // halve the carried over counts, so that keys that are no longer used eventually drop out of the record
+                    history.restore(objectMapper.treeToValue(recordedKey.getKey(), history.getKeyType()), (recordedKey.getCount() + 1) / 2);
+                    generatedClasses.incrementAndGet();
+                }
+                catch (IOException | RuntimeException e) {
+                    // the key may refer to a type or function that is no longer available
+                    log.debug(e, "Failed to generate recorded %s class %s", entry.getKey(), recordedKey.getKey());
+                    failedClasses.incrementAndGet();
+                }
+            }
+        }
+        warmupMillis = nanosSince(start).toMillis();
+        log.info("Generated %s recorded classes in %sms (%s failed)", generatedClasses.get(), warmupMillis, failedClasses.get());
+    }
+
+    @VisibleForTesting
+    public void save()
+    {
+        ImmutableMap.Builder<String, List<RecordedKey>> record = ImmutableMap.builder();
+        for (Map.Entry<String, CompilationHistory<?>> entry : histories.entrySet()) {
+            ImmutableList.Builder<RecordedKey> recordedKeys = ImmutableList.builder();
+            for (Map.Entry<?, Long> keyCount : entry.getValue().getMostFrequent(maxEntries).entrySet()) {
+                try {
+                    recordedKeys.add(new RecordedKey(objectMapper.valueToTree(keyCount.getKey()), keyCount.getValue()));
+                }
+                catch (RuntimeException e) {
+                    // some constants, e.g. compiled regular expressions, can not be serialized
+                    log.debug(e, "Failed to record %s class %s", entry.getKey(), keyCount.getKey());
+                }
+            }
+            record.put(entry.getKey(), recordedKeys.build());
+        }
+
+        try {
+            File directory = warmupFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            File temporaryFile = new File(directory, warmupFile.getName() + ".tmp");
+            objectMapper.writeValue(temporaryFile, record.build());
+            Files.move(temporaryFile.toPath(), warmupFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn(e, "Failed to write generated class record %s", warmupFile);
+        }
+    }
+
+    @Managed
+    public long getGeneratedClasses()
+    {
+        return generatedClasses.get();
+    }
+
+    @Managed
+    public long getFailedClasses()
+    {
+        return failedClasses.get();
+    }
+
+    @Managed
+    public long getWarmupMillis()
+    {
+        return warmupMillis;
+    }
+
+    public static class RecordedKey
+    {
+        private final JsonNode key;
+        private final long count;
+
+        @JsonCreator
+        public RecordedKey(@JsonProperty("key") JsonNode key, @JsonProperty("count") long count)
+        {
+            this.key = requireNonNull(key, "key is null");
+            this.count = count;
+        }
+
+        @JsonProperty
+        public JsonNode getKey()
+        {
+            return key;
+        }
+
+        @JsonProperty
+        public long getCount()
+        {
+            return count;
+        }
+    }
+}
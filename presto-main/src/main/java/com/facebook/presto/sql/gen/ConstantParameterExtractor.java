@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.sql.relational.CallExpression;
+import com.facebook.presto.sql.relational.ConstantExpression;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.slice.Slice;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.facebook.presto.sql.relational.Signatures.DEREFERENCE;
+import static com.facebook.presto.sql.relational.Signatures.IN;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replaces the literals of the expressions of a page processor with parameters, so that
+ * expressions that only differ in their literals share one generated class. The class
+ * reads the parameters from final fields that are set when it is instantiated.
+ * <p>
+ * Only non-null literals of types represented as long, double or Slice are replaced.
+ * Literals that code generators inspect while generating code are kept: the values of
+ * IN and DEREFERENCE, and constant projections, which are projected as RLE blocks.
+ * A value that appears at such a position is kept everywhere, and equal values share a
+ * parameter, so that common subexpressions are still recognized.
+ */
+public final class ConstantParameterExtractor
+{
+    private static final Set<Class<?>> PARAMETER_JAVA_TYPES = ImmutableSet.of(long.class, double.class, Slice.class);
+
+    // in the order the literals are found, which numbers the parameters
+    private final Set<ConstantExpression> literals = new LinkedHashSet<>();
+    private final Set<ConstantExpression> keptLiterals = new HashSet<>();
+    private final Map<ConstantExpression, ConstantExpression> parameters = new LinkedHashMap<>();
+
+    private ConstantParameterExtractor() {}
+
+    public static ParameterizedExpressions extractConstantParameters(RowExpression filter, List<RowExpression> projections)
+    {
+        ConstantParameterExtractor extractor = new ConstantParameterExtractor();
+        extractor.findLiterals(filter);
+        for (RowExpression projection : projections) {
+            if (projection instanceof ConstantExpression) {
+                extractor.keptLiterals.add((ConstantExpression) projection);
+            }
+            else {
+                extractor.findLiterals(projection);
+            }
+        }
+
+        for (ConstantExpression literal : extractor.literals) {
+            if (!extractor.keptLiterals.contains(literal)) {
+                extractor.parameters.put(literal, new ConstantExpression(new ConstantParameter(extractor.parameters.size()), literal.getType()));
+            }
+        }
+
+        return new ParameterizedExpressions(
+                extractor.replaceLiterals(filter),
+                projections.stream()
+                        .map(extractor::replaceLiterals)
+                        .collect(toImmutableList()),
+                extractor.parameters.keySet().stream()
+                        .map(ConstantExpression::getValue)
+                        .collect(toImmutableList()));
+    }
+
+    private void findLiterals(RowExpression expression)
+    {
+        if (expression instanceof ConstantExpression) {
+            ConstantExpression literal = (ConstantExpression) expression;
+            if (literal.getValue() != null && PARAMETER_JAVA_TYPES.contains(literal.getType().getJavaType())) {
+                literals.add(literal);
+            }
+            return;
+        }
+        if (!(expression instanceof CallExpression)) {
+            return;
+        }
+
+        CallExpression call = (CallExpression) expression;
+        boolean inspectsLiterals = call.getSignature().getName().equals(IN) || call.getSignature().getName().equals(DEREFERENCE);
+        for (RowExpression argument : call.getArguments()) {
+            if (inspectsLiterals && argument instanceof ConstantExpression) {
+                keptLiterals.add((ConstantExpression) argument);
+            }
+            else {
+                findLiterals(argument);
+            }
+        }
+    }
+
+    private RowExpression replaceLiterals(RowExpression expression)
+    {
+        if (expression instanceof ConstantExpression) {
+            return parameters.getOrDefault(expression, (ConstantExpression) expression);
+        }
+        if (!(expression instanceof CallExpression) || parameters.isEmpty()) {
+            return expression;
+        }
+
+        CallExpression call = (CallExpression) expression;
+        if (call.getSignature().getName().equals(IN) || call.getSignature().getName().equals(DEREFERENCE)) {
+            return new CallExpression(call.getSignature(), call.getType(), call.getArguments().stream()
+                    .map(argument -> argument instanceof ConstantExpression ? argument : replaceLiterals(argument))
+                    .collect(toImmutableList()));
+        }
+        return new CallExpression(call.getSignature(), call.getType(), call.getArguments().stream()
+                .map(this::replaceLiterals)
+                .collect(toImmutableList()));
+    }
+
+    /**
+     * The value of a literal that is replaced with a parameter. Code generators load it from
+     * the field named {@link #getFieldName()}.
+     */
+    public static final class ConstantParameter
+    {
+        private final int index;
+
+        public ConstantParameter(int index)
+        {
+            this.index = index;
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+
+        public String getFieldName()
+        {
+            return "parameter_" + index;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Integer.hashCode(index);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            return index == ((ConstantParameter) obj).index;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "?" + index;
+        }
+    }
+
+    public static final class ParameterizedExpressions
+    {
+        private final RowExpression filter;
+        private final List<RowExpression> projections;
+        private final List<Object> parameterValues;
+
+        private ParameterizedExpressions(RowExpression filter, List<RowExpression> projections, List<Object> parameterValues)
+        {
+            this.filter = requireNonNull(filter, "filter is null");
+            this.projections = ImmutableList.copyOf(requireNonNull(projections, "projections is null"));
+            this.parameterValues = ImmutableList.copyOf(requireNonNull(parameterValues, "parameterValues is null"));
+        }
+
+        public RowExpression getFilter()
+        {
+            return filter;
+        }
+
+        public List<RowExpression> getProjections()
+        {
+            return projections;
+        }
+
+        /**
+         * @return the values of the parameters, in the order of their indexes
+         */
+        public List<Object> getParameterValues()
+        {
+            return parameterValues;
+        }
+    }
+}
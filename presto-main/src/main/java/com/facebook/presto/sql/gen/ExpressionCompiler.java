@@ -19,7 +19,10 @@ import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.operator.CursorProcessor;
 import com.facebook.presto.operator.PageProcessor;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.sql.gen.ConstantParameterExtractor.ParameterizedExpressions;
 import com.facebook.presto.sql.relational.RowExpression;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -29,6 +32,7 @@ import org.weakref.jmx.Managed;
 
 import javax.inject.Inject;
 
+import java.lang.reflect.Constructor;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
@@ -41,13 +45,16 @@ import static com.facebook.presto.bytecode.CompilerUtils.makeClassName;
 import static com.facebook.presto.bytecode.ParameterizedType.type;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
 import static com.facebook.presto.sql.gen.BytecodeUtils.invoke;
+import static com.facebook.presto.sql.gen.ConstantParameterExtractor.extractConstantParameters;
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
 
 public class ExpressionCompiler
 {
     private final Metadata metadata;
 
-    private final LoadingCache<CacheKey, Class<? extends PageProcessor>> pageProcessors = CacheBuilder.newBuilder().maximumSize(1000).build(
+    // keyed by the expressions with their literals replaced by parameters, so that expressions that only differ in literals share a class
+    private final LoadingCache<CacheKey, Class<? extends PageProcessor>> pageProcessors = CacheBuilder.newBuilder().maximumSize(1000).recordStats().build(
             new CacheLoader<CacheKey, Class<? extends PageProcessor>>()
             {
                 @Override
@@ -69,6 +76,9 @@ public class ExpressionCompiler
                 }
             });
 
+    // cursor processors are cached per plan node, so only page processors are worth generating ahead of time
+    private final CompilationHistory<PageProcessorHistoryKey> pageProcessorHistory = new CompilationHistory<>(PageProcessorHistoryKey.class, key -> pageProcessors.getUnchecked(key.getClassKey()));
+
     @Inject
     public ExpressionCompiler(Metadata metadata)
     {
@@ -81,6 +91,18 @@ public class ExpressionCompiler
         return pageProcessors.size();
     }
 
+    @Managed
+    public long getGeneratedPageProcessorClasses()
+    {
+        return pageProcessors.stats().loadCount();
+    }
+
+    @Managed
+    public long getSharedPageProcessorClasses()
+    {
+        return pageProcessors.stats().hitCount();
+    }
+
     public Supplier<CursorProcessor> compileCursorProcessor(RowExpression filter, List<RowExpression> projections, Object uniqueKey)
     {
         Class<? extends CursorProcessor> cursorProcessor = cursorProcessors.getUnchecked(new CacheKey(filter, projections, uniqueKey));
@@ -94,12 +116,27 @@ public class ExpressionCompiler
         };
     }
 
+    public CompilationHistory<?> getPageProcessorHistory()
+    {
+        return pageProcessorHistory;
+    }
+
     public Supplier<PageProcessor> compilePageProcessor(RowExpression filter, List<RowExpression> projections)
     {
-        Class<? extends PageProcessor> pageProcessor = pageProcessors.getUnchecked(new CacheKey(filter, projections, null));
+        ParameterizedExpressions parameterizedExpressions = extractConstantParameters(filter, projections);
+        pageProcessorHistory.record(new PageProcessorHistoryKey(filter, projections, parameterizedExpressions));
+        Class<? extends PageProcessor> pageProcessor = getPageProcessorClass(parameterizedExpressions);
+        Object[] parameterValues = parameterizedExpressions.getParameterValues().toArray();
+        Constructor<? extends PageProcessor> constructor;
+        try {
+            constructor = pageProcessor.getConstructor(Object[].class);
+        }
+        catch (NoSuchMethodException e) {
+            throw Throwables.propagate(e);
+        }
         return () -> {
             try {
-                return pageProcessor.newInstance();
+                return constructor.newInstance((Object) parameterValues);
             }
             catch (ReflectiveOperationException e) {
                 throw Throwables.propagate(e);
@@ -107,6 +144,16 @@ public class ExpressionCompiler
         };
     }
 
+    private Class<? extends PageProcessor> getPageProcessorClass(ParameterizedExpressions parameterizedExpressions)
+    {
+        return pageProcessors.getUnchecked(toClassKey(parameterizedExpressions));
+    }
+
+    private static CacheKey toClassKey(ParameterizedExpressions parameterizedExpressions)
+    {
+        return new CacheKey(parameterizedExpressions.getFilter(), parameterizedExpressions.getProjections(), null);
+    }
+
     private <T> Class<? extends T> compile(RowExpression filter, List<RowExpression> projections, BodyCompiler<T> bodyCompiler, Class<? extends T> superType)
     {
         // create filter and project page iterator class
@@ -156,12 +203,18 @@ public class ExpressionCompiler
                 .retObject();
     }
 
-    private static final class CacheKey
+    public static final class CacheKey
     {
         private final RowExpression filter;
         private final List<RowExpression> projections;
         private final Object uniqueKey;
 
+        @JsonCreator
+        public CacheKey(@JsonProperty("filter") RowExpression filter, @JsonProperty("projections") List<RowExpression> projections)
+        {
+            this(filter, projections, null);
+        }
+
         private CacheKey(RowExpression filter, List<RowExpression> projections, Object uniqueKey)
         {
             this.filter = filter;
@@ -169,12 +222,14 @@ public class ExpressionCompiler
             this.projections = ImmutableList.copyOf(projections);
         }
 
-        private RowExpression getFilter()
+        @JsonProperty
+        public RowExpression getFilter()
         {
             return filter;
         }
 
-        private List<RowExpression> getProjections()
+        @JsonProperty
+        public List<RowExpression> getProjections()
         {
             return projections;
         }
@@ -210,4 +265,75 @@ public class ExpressionCompiler
                     .toString();
         }
     }
+
+    /**
+     * The expressions of a page processor in the compilation history. Keys are equal when their
+     * expressions share a class, that is when they only differ in the literals that are replaced
+     * with parameters, so that these expressions are counted together. The history keeps the
+     * expressions of the first key, which are serialized with their literals, as the parameters
+     * can not be serialized.
+     */
+    public static final class PageProcessorHistoryKey
+    {
+        private final RowExpression filter;
+        private final List<RowExpression> projections;
+        private final CacheKey classKey;
+
+        @JsonCreator
+        public PageProcessorHistoryKey(@JsonProperty("filter") RowExpression filter, @JsonProperty("projections") List<RowExpression> projections)
+        {
+            this(filter, projections, extractConstantParameters(filter, projections));
+        }
+
+        private PageProcessorHistoryKey(RowExpression filter, List<RowExpression> projections, ParameterizedExpressions parameterizedExpressions)
+        {
+            this.filter = requireNonNull(filter, "filter is null");
+            this.projections = ImmutableList.copyOf(requireNonNull(projections, "projections is null"));
+            this.classKey = toClassKey(parameterizedExpressions);
+        }
+
+        @JsonProperty
+        public RowExpression getFilter()
+        {
+            return filter;
+        }
+
+        @JsonProperty
+        public List<RowExpression> getProjections()
+        {
+            return projections;
+        }
+
+        private CacheKey getClassKey()
+        {
+            return classKey;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return classKey.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            return classKey.equals(((PageProcessorHistoryKey) obj).classKey);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("filter", filter)
+                    .add("projections", projections)
+                    .toString();
+        }
+    }
 }
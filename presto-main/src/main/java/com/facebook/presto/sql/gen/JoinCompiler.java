@@ -37,6 +37,8 @@ import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.Type;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -94,10 +96,25 @@ public class JoinCompiler
                 }
             });
 
+    private final CompilationHistory<CacheKey> lookupSourceFactoryHistory = new CompilationHistory<>(CacheKey.class, lookupSourceFactories::getUnchecked);
+    private final CompilationHistory<CacheKey> hashStrategyHistory = new CompilationHistory<>(CacheKey.class, hashStrategies::getUnchecked);
+
+    public CompilationHistory<?> getLookupSourceFactoryHistory()
+    {
+        return lookupSourceFactoryHistory;
+    }
+
+    public CompilationHistory<?> getHashStrategyHistory()
+    {
+        return hashStrategyHistory;
+    }
+
     public LookupSourceFactory compileLookupSourceFactory(List<? extends Type> types, List<Integer> joinChannels)
     {
+        CacheKey key = new CacheKey(types, joinChannels);
+        lookupSourceFactoryHistory.record(key);
         try {
-            return lookupSourceFactories.get(new CacheKey(types, joinChannels));
+            return lookupSourceFactories.get(key);
         }
         catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
             throw Throwables.propagate(e.getCause());
@@ -109,8 +126,10 @@ public class JoinCompiler
         requireNonNull(types, "types is null");
         requireNonNull(joinChannels, "joinChannels is null");
 
+        CacheKey key = new CacheKey(types, joinChannels);
+        hashStrategyHistory.record(key);
         try {
-            return new PagesHashStrategyFactory(hashStrategies.get(new CacheKey(types, joinChannels)));
+            return new PagesHashStrategyFactory(hashStrategies.get(key));
         }
         catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
             throw Throwables.propagate(e.getCause());
@@ -733,23 +752,26 @@ public class JoinCompiler
         }
     }
 
-    private static final class CacheKey
+    public static final class CacheKey
     {
         private final List<Type> types;
         private final List<Integer> joinChannels;
 
-        private CacheKey(List<? extends Type> types, List<Integer> joinChannels)
+        @JsonCreator
+        public CacheKey(@JsonProperty("types") List<? extends Type> types, @JsonProperty("joinChannels") List<Integer> joinChannels)
         {
             this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
             this.joinChannels = ImmutableList.copyOf(requireNonNull(joinChannels, "joinChannels is null"));
         }
 
-        private List<Type> getTypes()
+        @JsonProperty
+        public List<Type> getTypes()
         {
             return types;
         }
 
-        private List<Integer> getJoinChannels()
+        @JsonProperty
+        public List<Integer> getJoinChannels()
         {
             return joinChannels;
         }
@@ -40,6 +40,8 @@ import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
@@ -82,6 +84,13 @@ public class JoinProbeCompiler
                 }
             });
 
+    private final CompilationHistory<JoinOperatorCacheKey> joinProbeFactoryHistory = new CompilationHistory<>(JoinOperatorCacheKey.class, joinProbeFactories::getUnchecked);
+
+    public CompilationHistory<?> getJoinProbeFactoryHistory()
+    {
+        return joinProbeFactoryHistory;
+    }
+
     public OperatorFactory compileJoinOperatorFactory(int operatorId,
             PlanNodeId planNodeId,
             LookupSourceSupplier lookupSourceSupplier,
@@ -91,8 +100,10 @@ public class JoinProbeCompiler
             JoinType joinType,
             boolean filterFunctionPresent)
     {
+        JoinOperatorCacheKey key = new JoinOperatorCacheKey(probeTypes, probeJoinChannel, probeHashChannel, joinType, filterFunctionPresent);
+        joinProbeFactoryHistory.record(key);
         try {
-            HashJoinOperatorFactoryFactory operatorFactoryFactory = joinProbeFactories.get(new JoinOperatorCacheKey(probeTypes, probeJoinChannel, probeHashChannel, joinType, filterFunctionPresent));
+            HashJoinOperatorFactoryFactory operatorFactoryFactory = joinProbeFactories.get(key);
             return operatorFactoryFactory.createHashJoinOperatorFactory(operatorId, planNodeId, lookupSourceSupplier, probeTypes, probeJoinChannel, joinType);
         }
         catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
@@ -182,17 +193,18 @@ public class JoinProbeCompiler
         }
         FieldDefinition probeBlocksArrayField = classDefinition.declareField(a(PRIVATE, FINAL), "probeBlocks", Block[].class);
         FieldDefinition probePageField = classDefinition.declareField(a(PRIVATE, FINAL), "probePage", Page.class);
+        FieldDefinition pageField = classDefinition.declareField(a(PRIVATE, FINAL), "page", Page.class);
         FieldDefinition positionField = classDefinition.declareField(a(PRIVATE), "position", int.class);
         FieldDefinition probeHashBlockField = classDefinition.declareField(a(PRIVATE, FINAL), "probeHashBlock", Block.class);
 
-        generateConstructor(classDefinition, probeChannels, probeHashChannel, lookupSourceField, blockFields, probeBlockFields, probeBlocksArrayField, probePageField, probeHashBlockField, positionField, positionCountField);
+        generateConstructor(classDefinition, probeChannels, probeHashChannel, lookupSourceField, blockFields, probeBlockFields, probeBlocksArrayField, probePageField, pageField, probeHashBlockField, positionField, positionCountField);
         generateGetChannelCountMethod(classDefinition, blockFields.size());
         generateAppendToMethod(classDefinition, callSiteBinder, types, blockFields, positionField);
         generateAdvanceNextPosition(classDefinition, positionField, positionCountField);
         generateGetCurrentJoinPosition(classDefinition, callSiteBinder, lookupSourceField, probePageField, probeHashChannel, probeHashBlockField, positionField);
         generateCurrentRowContainsNull(classDefinition, probeBlockFields, positionField);
-        generateGetPosition(classDefinition);
-        generateGetPage(classDefinition);
+        generateGetPosition(classDefinition, positionField);
+        generateGetPage(classDefinition, pageField);
 
         return defineClass(classDefinition, JoinProbe.class, callSiteBinder.getBindings(), getClass().getClassLoader());
     }
@@ -205,6 +217,7 @@ public class JoinProbeCompiler
             List<FieldDefinition> probeChannelFields,
             FieldDefinition probeBlocksArrayField,
             FieldDefinition probePageField,
+            FieldDefinition pageField,
             FieldDefinition probeHashBlockField,
             FieldDefinition positionField,
             FieldDefinition positionCountField)
@@ -224,6 +237,9 @@ public class JoinProbeCompiler
         constructor.comment("this.lookupSource = lookupSource;")
                 .append(thisVariable.setField(lookupSourceField, lookupSource));
 
+        constructor.comment("this.page = page;")
+                .append(thisVariable.setField(pageField, page));
+
         constructor.comment("this.positionCount = page.getPositionCount();")
                 .append(thisVariable.setField(positionCountField, page.invoke("getPositionCount", int.class)));
 
@@ -408,26 +424,26 @@ public class JoinProbeCompiler
                 .retInt();
     }
 
-    private void generateGetPosition(ClassDefinition classDefinition)
+    private void generateGetPosition(ClassDefinition classDefinition, FieldDefinition positionField)
     {
-        // dummy implementation for now
-        // compiled class is used only in usecase case when result of this method is ignored.
         MethodDefinition method = classDefinition.declareMethod(
                 a(PUBLIC),
                 "getPosition",
                 type(int.class));
-        method.getBody().push(-1).retInt();
+        method.getBody()
+                .append(method.getThis().getField(positionField))
+                .retInt();
     }
 
-    private void generateGetPage(ClassDefinition classDefinition)
+    private void generateGetPage(ClassDefinition classDefinition, FieldDefinition pageField)
     {
-        // dummy implementation for now
-        // compiled class is used only in usecase case when result of this method is ignored.
         MethodDefinition method = classDefinition.declareMethod(
                 a(PUBLIC),
                 "getPage",
                 type(Page.class));
-        method.getBody().pushNull().ret(Page.class);
+        method.getBody()
+                .append(method.getThis().getField(pageField))
+                .ret(Page.class);
     }
 
     public static class ReflectionJoinProbeFactory
@@ -457,7 +473,7 @@ public class JoinProbeCompiler
         }
     }
 
-    private static final class JoinOperatorCacheKey
+    public static final class JoinOperatorCacheKey
     {
         private final List<Type> types;
         private final List<Integer> probeChannels;
@@ -465,11 +481,13 @@ public class JoinProbeCompiler
         private final Optional<Integer> probeHashChannel;
         private final boolean filterFunctionPresent;
 
-        private JoinOperatorCacheKey(List<? extends Type> types,
-                List<Integer> probeChannels,
-                Optional<Integer> probeHashChannel,
-                JoinType joinType,
-                boolean filterFunctionPresent)
+        @JsonCreator
+        public JoinOperatorCacheKey(
+                @JsonProperty("types") List<? extends Type> types,
+                @JsonProperty("probeChannels") List<Integer> probeChannels,
+                @JsonProperty("probeHashChannel") Optional<Integer> probeHashChannel,
+                @JsonProperty("joinType") JoinType joinType,
+                @JsonProperty("filterFunctionPresent") boolean filterFunctionPresent)
         {
             this.probeHashChannel = probeHashChannel;
             this.types = ImmutableList.copyOf(types);
@@ -478,22 +496,32 @@ public class JoinProbeCompiler
             this.filterFunctionPresent = filterFunctionPresent;
         }
 
-        private List<Type> getTypes()
+        @JsonProperty
+        public List<Type> getTypes()
         {
             return types;
         }
 
-        private List<Integer> getProbeChannels()
+        @JsonProperty
+        public List<Integer> getProbeChannels()
         {
             return probeChannels;
         }
 
-        private Optional<Integer> getProbeHashChannel()
+        @JsonProperty
+        public Optional<Integer> getProbeHashChannel()
         {
             return probeHashChannel;
         }
 
-        private boolean isFilterFunctionPresent()
+        @JsonProperty
+        public JoinType getJoinType()
+        {
+            return joinType;
+        }
+
+        @JsonProperty
+        public boolean isFilterFunctionPresent()
         {
             return filterFunctionPresent;
         }
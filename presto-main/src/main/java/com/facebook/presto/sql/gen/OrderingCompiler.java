@@ -29,6 +29,8 @@ import com.facebook.presto.operator.SyntheticAddress;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
@@ -73,14 +75,23 @@ public class OrderingCompiler
                 }
             });
 
+    private final CompilationHistory<PagesIndexComparatorCacheKey> pagesIndexOrderingHistory = new CompilationHistory<>(PagesIndexComparatorCacheKey.class, pagesIndexOrderings::getUnchecked);
+
+    public CompilationHistory<?> getPagesIndexOrderingHistory()
+    {
+        return pagesIndexOrderingHistory;
+    }
+
     public PagesIndexOrdering compilePagesIndexOrdering(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
     {
         requireNonNull(sortTypes, "sortTypes is null");
         requireNonNull(sortChannels, "sortChannels is null");
         requireNonNull(sortOrders, "sortOrders is null");
 
+        PagesIndexComparatorCacheKey key = new PagesIndexComparatorCacheKey(sortTypes, sortChannels, sortOrders);
+        pagesIndexOrderingHistory.record(key);
         try {
-            return pagesIndexOrderings.get(new PagesIndexComparatorCacheKey(sortTypes, sortChannels, sortOrders));
+            return pagesIndexOrderings.get(key);
         }
         catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
             throw Throwables.propagate(e.getCause());
@@ -223,29 +234,36 @@ public class OrderingCompiler
                 .retInt();
     }
 
-    private static final class PagesIndexComparatorCacheKey
+    public static final class PagesIndexComparatorCacheKey
     {
         private final List<Type> sortTypes;
         private final List<Integer> sortChannels;
         private final List<SortOrder> sortOrders;
 
-        private PagesIndexComparatorCacheKey(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
+        @JsonCreator
+        public PagesIndexComparatorCacheKey(
+                @JsonProperty("sortTypes") List<Type> sortTypes,
+                @JsonProperty("sortChannels") List<Integer> sortChannels,
+                @JsonProperty("sortOrders") List<SortOrder> sortOrders)
         {
             this.sortTypes = ImmutableList.copyOf(sortTypes);
             this.sortChannels = ImmutableList.copyOf(sortChannels);
             this.sortOrders = ImmutableList.copyOf(sortOrders);
         }
 
+        @JsonProperty
         public List<Type> getSortTypes()
         {
             return sortTypes;
         }
 
+        @JsonProperty
         public List<Integer> getSortChannels()
         {
             return sortChannels;
         }
 
+        @JsonProperty
         public List<SortOrder> getSortOrders()
         {
             return sortOrders;
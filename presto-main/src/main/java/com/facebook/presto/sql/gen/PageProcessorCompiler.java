@@ -37,6 +37,7 @@ import com.facebook.presto.spi.block.DictionaryId;
 import com.facebook.presto.spi.block.LazyBlock;
 import com.facebook.presto.spi.block.RunLengthEncodedBlock;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.gen.ConstantParameterExtractor.ConstantParameter;
 import com.facebook.presto.sql.relational.CallExpression;
 import com.facebook.presto.sql.relational.ConstantExpression;
 import com.facebook.presto.sql.relational.DeterminismEvaluator;
@@ -50,6 +51,7 @@ import com.google.common.primitives.Primitives;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 
+import java.lang.reflect.Array;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -64,6 +66,7 @@ import static com.facebook.presto.bytecode.Access.a;
 import static com.facebook.presto.bytecode.Parameter.arg;
 import static com.facebook.presto.bytecode.ParameterizedType.type;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.add;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.and;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantFalse;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantInt;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantNull;
@@ -73,9 +76,11 @@ import static com.facebook.presto.bytecode.expression.BytecodeExpressions.invoke
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.lessThan;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newArray;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newInstance;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.not;
 import static com.facebook.presto.bytecode.instruction.JumpInstruction.jump;
 import static com.facebook.presto.sql.gen.BytecodeUtils.generateWrite;
 import static com.facebook.presto.sql.gen.BytecodeUtils.loadConstant;
+import static com.facebook.presto.sql.gen.CommonSubexpressionExtractor.extractCommonSubexpressions;
 import static com.facebook.presto.sql.gen.TryCodeGenerator.defineTryMethod;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
@@ -101,11 +106,13 @@ public class PageProcessorCompiler
     public void generateMethods(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, RowExpression filter, List<RowExpression> projections)
     {
         CachedInstanceBinder cachedInstanceBinder = new CachedInstanceBinder(classDefinition, callSiteBinder);
+        Map<RowExpression, MethodDefinition> commonSubexpressionMethods = generateCommonSubexpressionMethods(classDefinition, callSiteBinder, cachedInstanceBinder, filter, projections);
+
         ImmutableList.Builder<MethodDefinition> projectMethods = ImmutableList.builder();
         ImmutableList.Builder<MethodDefinition> projectColumnarMethods = ImmutableList.builder();
         ImmutableList.Builder<MethodDefinition> projectDictionaryMethods = ImmutableList.builder();
         for (int i = 0; i < projections.size(); i++) {
-            MethodDefinition project = generateProjectMethod(classDefinition, callSiteBinder, cachedInstanceBinder, "project_" + i, projections.get(i));
+            MethodDefinition project = generateProjectMethod(classDefinition, callSiteBinder, cachedInstanceBinder, commonSubexpressionMethods, "project_" + i, projections.get(i));
             MethodDefinition projectColumnar = generateProjectColumnarMethod(classDefinition, callSiteBinder, "projectColumnar_" + i, projections.get(i), project);
             MethodDefinition projectRLE = generateProjectRLEMethod(classDefinition, "projectRLE_" + i, projections.get(i), project, projectColumnar);
             MethodDefinition projectDictionary = generateProjectDictionaryMethod(classDefinition, "projectDictionary_" + i, projections.get(i), project, projectColumnar, projectRLE);
@@ -125,13 +132,14 @@ public class PageProcessorCompiler
         generateProcessColumnarDictionaryMethod(classDefinition, projections, projectDictionaryMethodDefinitions);
 
         generateFilterPageMethod(classDefinition, filter);
-        generateFilterMethod(classDefinition, callSiteBinder, cachedInstanceBinder, filter);
-        generateConstructor(classDefinition, cachedInstanceBinder, projections.size());
+        generateFilterMethod(classDefinition, callSiteBinder, cachedInstanceBinder, commonSubexpressionMethods, filter);
+        generateConstructor(classDefinition, cachedInstanceBinder, projections.size(), getConstantParameterTypes(concat(projections, ImmutableList.of(filter))));
     }
 
-    private static void generateConstructor(ClassDefinition classDefinition, CachedInstanceBinder cachedInstanceBinder, int projectionCount)
+    private static void generateConstructor(ClassDefinition classDefinition, CachedInstanceBinder cachedInstanceBinder, int projectionCount, Map<ConstantParameter, Class<?>> constantParameterTypes)
     {
-        MethodDefinition constructorDefinition = classDefinition.declareConstructor(a(PUBLIC));
+        Parameter parameterValues = arg("parameterValues", Object[].class);
+        MethodDefinition constructorDefinition = classDefinition.declareConstructor(a(PUBLIC), parameterValues);
         FieldDefinition inputDictionaries = classDefinition.declareField(a(PRIVATE, FINAL), "inputDictionaries", Block[].class);
         FieldDefinition outputDictionaries = classDefinition.declareField(a(PRIVATE, FINAL), "outputDictionaries", Block[].class);
 
@@ -151,6 +159,12 @@ public class PageProcessorCompiler
         body.append(thisVariable.setField(inputFilterDictionary, constantNull(Block.class)));
         body.append(thisVariable.setField(filterResult, constantNull(boolean[].class)));
 
+        for (Map.Entry<ConstantParameter, Class<?>> entry : constantParameterTypes.entrySet()) {
+            Class<?> javaType = entry.getValue();
+            FieldDefinition field = classDefinition.declareField(a(PRIVATE, FINAL), entry.getKey().getFieldName(), javaType);
+            body.append(thisVariable.setField(field, parameterValues.getElement(entry.getKey().getIndex()).cast(Primitives.wrap(javaType)).cast(javaType)));
+        }
+
         cachedInstanceBinder.generateInitializations(thisVariable, body);
         body.ret();
     }
@@ -168,6 +182,8 @@ public class PageProcessorCompiler
         BytecodeBlock body = method.getBody();
         Variable thisVariable = method.getThis();
 
+        body.append(thisVariable.invoke("resetCommonSubexpressions", void.class));
+
         // extract blocks
         List<Integer> allInputChannels = getInputChannels(concat(projections, ImmutableList.of(filter)));
         ImmutableMap.Builder<Integer, Variable> builder = ImmutableMap.builder();
@@ -223,6 +239,8 @@ public class PageProcessorCompiler
         BytecodeBlock body = method.getBody();
         Variable thisVariable = method.getThis();
 
+        body.append(thisVariable.invoke("resetCommonSubexpressions", void.class));
+
         Variable selectedPositions = scope.declareVariable("selectedPositions", body, thisVariable.invoke("filterPage", int[].class, session, page));
         Variable cardinality = scope.declareVariable("cardinality", body, selectedPositions.length());
 
@@ -526,6 +544,8 @@ public class PageProcessorCompiler
         BytecodeBlock body = method.getBody();
         Variable thisVariable = method.getThis();
 
+        body.append(thisVariable.invoke("resetCommonSubexpressions", void.class));
+
         Variable selectedPositions = scope.declareVariable("selectedPositions", body, thisVariable.invoke("filterPage", int[].class, session, page));
         Variable cardinality = scope.declareVariable("cardinality", body, selectedPositions.length());
         Variable dictionarySourceIds = scope.declareVariable(type(Map.class, DictionaryId.class, DictionaryId.class), "dictionarySourceIds");
@@ -782,7 +802,12 @@ public class PageProcessorCompiler
         return tryMethodMap.build();
     }
 
-    private void generateFilterMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, CachedInstanceBinder cachedInstanceBinder, RowExpression filter)
+    private void generateFilterMethod(
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            CachedInstanceBinder cachedInstanceBinder,
+            Map<RowExpression, MethodDefinition> commonSubexpressionMethods,
+            RowExpression filter)
     {
         Map<CallExpression, MethodDefinition> tryMethodMap = generateTryMethods(classDefinition, callSiteBinder, cachedInstanceBinder, filter, "filter");
 
@@ -811,7 +836,8 @@ public class PageProcessorCompiler
                 cachedInstanceBinder,
                 fieldReferenceCompiler(callSiteBinder, position, wasNullVariable),
                 metadata.getFunctionRegistry(),
-                tryMethodMap);
+                tryMethodMap,
+                commonSubexpressionMethods);
 
         BytecodeNode visitorBody = filter.accept(visitor, scope);
 
@@ -824,7 +850,13 @@ public class PageProcessorCompiler
                         .ifFalse(result.ret()));
     }
 
-    private MethodDefinition generateProjectMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, CachedInstanceBinder cachedInstanceBinder, String methodName, RowExpression projection)
+    private MethodDefinition generateProjectMethod(
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            CachedInstanceBinder cachedInstanceBinder,
+            Map<RowExpression, MethodDefinition> commonSubexpressionMethods,
+            String methodName,
+            RowExpression projection)
     {
         Map<CallExpression, MethodDefinition> tryMethodMap = generateTryMethods(classDefinition, callSiteBinder, cachedInstanceBinder, projection, methodName);
 
@@ -855,8 +887,8 @@ public class PageProcessorCompiler
                 cachedInstanceBinder,
                 fieldReferenceCompiler(callSiteBinder, position, wasNullVariable),
                 metadata.getFunctionRegistry(),
-                tryMethodMap
-        );
+                tryMethodMap,
+                commonSubexpressionMethods);
 
         body.getVariable(output)
                 .comment("evaluate projection: " + projection.toString())
@@ -866,6 +898,139 @@ public class PageProcessorCompiler
         return method;
     }
 
+    private Map<RowExpression, MethodDefinition> generateCommonSubexpressionMethods(
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            CachedInstanceBinder cachedInstanceBinder,
+            RowExpression filter,
+            List<RowExpression> projections)
+    {
+        List<RowExpression> subexpressions = extractCommonSubexpressions(
+                ImmutableList.<RowExpression>builder().add(filter).addAll(projections).build(),
+                determinismEvaluator);
+
+        // a subexpression comes after the subexpressions it contains, so it can use their methods
+        ImmutableMap.Builder<RowExpression, MethodDefinition> methods = ImmutableMap.builder();
+        ImmutableList.Builder<FieldDefinition> fields = ImmutableList.builder();
+        for (int i = 0; i < subexpressions.size(); i++) {
+            RowExpression subexpression = subexpressions.get(i);
+            methods.put(subexpression, generateCommonSubexpressionMethod(classDefinition, callSiteBinder, cachedInstanceBinder, methods.build(), fields, "subexpression_" + i, subexpression));
+        }
+        generateResetCommonSubexpressionsMethod(classDefinition, fields.build());
+        return methods.build();
+    }
+
+    /**
+     * Generates a method that discards the values of all common subexpressions. The process methods call it
+     * before they look at a page, so values are never reused for a block that is seen again in a later call,
+     * and the arrays of a page are not retained after it is processed.
+     */
+    private static void generateResetCommonSubexpressionsMethod(ClassDefinition classDefinition, List<FieldDefinition> fields)
+    {
+        MethodDefinition method = classDefinition.declareMethod(a(PRIVATE), "resetCommonSubexpressions", type(void.class));
+
+        BytecodeBlock body = method.getBody();
+        Variable thisVariable = method.getThis();
+        for (FieldDefinition field : fields) {
+            body.append(thisVariable.setField(field, constantNull(field.getType())));
+        }
+        body.ret();
+    }
+
+    /**
+     * Generates a method that evaluates {@code subexpression} at most once per position of its input blocks.
+     * The values are kept for the last blocks the method was called with, so the filter and the projections
+     * share them while they process the same page, until the next call of a process method resets them.
+     * The null flag of a value is left in the {@code <methodName>_isNull} array, at the index of the position.
+     * The fields that hold the values are added to {@code fields}.
+     */
+    private MethodDefinition generateCommonSubexpressionMethod(
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            CachedInstanceBinder cachedInstanceBinder,
+            Map<RowExpression, MethodDefinition> commonSubexpressionMethods,
+            ImmutableList.Builder<FieldDefinition> fields,
+            String methodName,
+            RowExpression subexpression)
+    {
+        List<Integer> inputChannels = getInputChannels(subexpression);
+        verify(!inputChannels.isEmpty(), "common subexpression has no inputs");
+
+        Class<?> javaType = subexpression.getType().getJavaType();
+        if (!javaType.isPrimitive() && javaType != Slice.class) {
+            javaType = Object.class;
+        }
+
+        List<FieldDefinition> blockFields = inputChannels.stream()
+                .map(channel -> classDefinition.declareField(a(PRIVATE), methodName + "_block_" + channel, Block.class))
+                .collect(toList());
+        FieldDefinition computedField = classDefinition.declareField(a(PRIVATE), methodName + "_computed", boolean[].class);
+        FieldDefinition isNullField = classDefinition.declareField(a(PRIVATE), methodName + "_isNull", boolean[].class);
+        FieldDefinition valuesField = classDefinition.declareField(a(PRIVATE), methodName + "_values", Array.newInstance(javaType, 0).getClass());
+        fields.addAll(blockFields).add(computedField, isNullField, valuesField);
+
+        Parameter session = arg("session", ConnectorSession.class);
+        List<Parameter> blocks = toBlockParameters(inputChannels);
+        Parameter position = arg("position", int.class);
+
+        MethodDefinition method = classDefinition.declareMethod(
+                a(PUBLIC),
+                methodName,
+                type(javaType),
+                ImmutableList.<Parameter>builder()
+                        .add(session)
+                        .addAll(blocks)
+                        .add(position)
+                        .build());
+
+        method.comment("Common subexpression: %s", subexpression.toString());
+
+        Scope scope = method.getScope();
+        BytecodeBlock body = method.getBody();
+        Variable thisVariable = method.getThis();
+
+        // discard the values when called with other blocks
+        BytecodeExpression sameBlocks = equal(blocks.get(0), thisVariable.getField(blockFields.get(0)));
+        BytecodeBlock resetValues = new BytecodeBlock();
+        for (int i = 0; i < blocks.size(); i++) {
+            if (i > 0) {
+                sameBlocks = and(sameBlocks, equal(blocks.get(i), thisVariable.getField(blockFields.get(i))));
+            }
+            resetValues.append(thisVariable.setField(blockFields.get(i), blocks.get(i)));
+        }
+        BytecodeExpression positionCount = blocks.get(0).invoke("getPositionCount", int.class);
+        resetValues
+                .append(thisVariable.setField(computedField, newArray(type(boolean[].class), positionCount)))
+                .append(thisVariable.setField(isNullField, newArray(type(boolean[].class), positionCount)))
+                .append(thisVariable.setField(valuesField, newArray(valuesField.getType(), positionCount)));
+        body.append(new IfStatement()
+                .condition(sameBlocks)
+                .ifFalse(resetValues));
+
+        Variable wasNullVariable = scope.declareVariable(boolean.class, "wasNull");
+        Variable value = scope.declareVariable(javaType, "value");
+        BytecodeExpressionVisitor visitor = new BytecodeExpressionVisitor(
+                callSiteBinder,
+                cachedInstanceBinder,
+                fieldReferenceCompiler(callSiteBinder, position, wasNullVariable),
+                metadata.getFunctionRegistry(),
+                ImmutableMap.of(),
+                commonSubexpressionMethods);
+
+        body.append(new IfStatement()
+                .condition(not(thisVariable.getField(computedField).getElement(position)))
+                .ifTrue(new BytecodeBlock()
+                        .append(wasNullVariable.set(constantFalse()))
+                        .append(subexpression.accept(visitor, scope))
+                        .putVariable(value)
+                        .append(thisVariable.getField(valuesField).setElement(position, value))
+                        .append(thisVariable.getField(isNullField).setElement(position, wasNullVariable))
+                        .append(thisVariable.getField(computedField).setElement(position, constantTrue()))));
+
+        body.append(thisVariable.getField(valuesField).getElement(position).ret());
+        return method;
+    }
+
     private static boolean isIdentityExpression(RowExpression expression)
     {
         List<RowExpression> rowExpressions = Expressions.subExpressions(ImmutableList.of(expression));
@@ -880,6 +1045,17 @@ public class PageProcessorCompiler
                 ((ConstantExpression) getOnlyElement(rowExpressions)).getValue() != null;
     }
 
+    private static Map<ConstantParameter, Class<?>> getConstantParameterTypes(Iterable<RowExpression> expressions)
+    {
+        Map<ConstantParameter, Class<?>> types = new HashMap<>();
+        for (RowExpression expression : Expressions.subExpressions(expressions)) {
+            if (expression instanceof ConstantExpression && ((ConstantExpression) expression).getValue() instanceof ConstantParameter) {
+                types.put((ConstantParameter) ((ConstantExpression) expression).getValue(), expression.getType().getJavaType());
+            }
+        }
+        return types;
+    }
+
     private static List<Integer> getInputChannels(Iterable<RowExpression> expressions)
     {
         TreeSet<Integer> channels = new TreeSet<>();
@@ -15,10 +15,23 @@ package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.operator.Description;
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import java.io.File;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
 
 public class CompilerConfig
 {
     private boolean interpreterEnabled;
+    private File warmupFile;
+    private int warmupMaxEntries = 200;
+    private Duration warmupSaveInterval = new Duration(10, MINUTES);
 
     public boolean isInterpreterEnabled()
     {
@@ -32,4 +45,46 @@ public class CompilerConfig
         this.interpreterEnabled = interpreterEnabled;
         return this;
     }
+
+    public File getWarmupFile()
+    {
+        return warmupFile;
+    }
+
+    @Config("compiler.warmup-file")
+    @ConfigDescription("File recording the most frequently generated classes, which are generated again when the server starts")
+    public CompilerConfig setWarmupFile(File warmupFile)
+    {
+        this.warmupFile = warmupFile;
+        return this;
+    }
+
+    @Min(0)
+    public int getWarmupMaxEntries()
+    {
+        return warmupMaxEntries;
+    }
+
+    @Config("compiler.warmup-max-entries")
+    @ConfigDescription("Maximum number of recorded entries for each generated class cache")
+    public CompilerConfig setWarmupMaxEntries(int warmupMaxEntries)
+    {
+        this.warmupMaxEntries = warmupMaxEntries;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getWarmupSaveInterval()
+    {
+        return warmupSaveInterval;
+    }
+
+    @Config("compiler.warmup-save-interval")
+    @ConfigDescription("How often the most frequently generated classes are recorded")
+    public CompilerConfig setWarmupSaveInterval(Duration warmupSaveInterval)
+    {
+        this.warmupSaveInterval = warmupSaveInterval;
+        return this;
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.operator.JoinFilterRange;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.tree.BetweenPredicate;
+import com.facebook.presto.sql.tree.ComparisonExpression;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.SymbolReference;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.FloatType.FLOAT;
+import static com.facebook.presto.sql.ExpressionUtils.extractConjuncts;
+import static com.facebook.presto.sql.tree.ComparisonExpression.Type.GREATER_THAN;
+import static com.facebook.presto.sql.tree.ComparisonExpression.Type.GREATER_THAN_OR_EQUAL;
+import static com.facebook.presto.sql.tree.ComparisonExpression.Type.LESS_THAN;
+import static com.facebook.presto.sql.tree.ComparisonExpression.Type.LESS_THAN_OR_EQUAL;
+
+/**
+ * Finds a range on a build symbol that is implied by a join filter, such as
+ * {@code build.x BETWEEN probe.a AND probe.b} or {@code probe.a < build.x}.
+ * Only comparisons between a build symbol and a probe symbol of the same orderable type are considered.
+ * Floating point types are excluded, as the range is ordered by {@link Type#compareTo}, which orders NaN
+ * above all values and negative zero below zero, while SQL comparisons with NaN are false and negative
+ * zero equals zero.
+ */
+public final class JoinFilterRangeExtractor
+{
+    private JoinFilterRangeExtractor() {}
+
+    public static Optional<JoinFilterRange> extractJoinFilterRange(Expression filter, Map<Symbol, Integer> buildLayout, Map<Symbol, Integer> probeLayout, Map<Symbol, Type> types)
+    {
+        List<ComparisonExpression> comparisons = new ArrayList<>();
+        int conjunctCount = 0;
+        for (Expression conjunct : extractConjuncts(filter)) {
+            if (conjunct instanceof BetweenPredicate) {
+                BetweenPredicate between = (BetweenPredicate) conjunct;
+                comparisons.add(new ComparisonExpression(GREATER_THAN_OR_EQUAL, between.getValue(), between.getMin()));
+                comparisons.add(new ComparisonExpression(LESS_THAN_OR_EQUAL, between.getValue(), between.getMax()));
+                conjunctCount += 2;
+            }
+            else {
+                if (conjunct instanceof ComparisonExpression) {
+                    comparisons.add((ComparisonExpression) conjunct);
+                }
+                conjunctCount++;
+            }
+        }
+
+        // bounds of each build symbol, as comparisons of the form "build <op> probe"
+        Map<Symbol, ComparisonExpression> lowerBounds = new LinkedHashMap<>();
+        Map<Symbol, ComparisonExpression> upperBounds = new LinkedHashMap<>();
+        for (ComparisonExpression comparison : comparisons) {
+            Optional<ComparisonExpression> bound = toBuildBound(comparison, buildLayout, probeLayout, types);
+            if (!bound.isPresent()) {
+                continue;
+            }
+            Symbol buildSymbol = Symbol.from(bound.get().getLeft());
+            switch (bound.get().getType()) {
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQUAL:
+                    lowerBounds.putIfAbsent(buildSymbol, bound.get());
+                    break;
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUAL:
+                    upperBounds.putIfAbsent(buildSymbol, bound.get());
+                    break;
+            }
+        }
+
+        // prefer a symbol bounded on both sides, as only those rows have to be visited
+        Optional<Symbol> buildSymbol = lowerBounds.keySet().stream()
+                .filter(upperBounds::containsKey)
+                .findFirst();
+        if (!buildSymbol.isPresent()) {
+            buildSymbol = lowerBounds.isEmpty() ? upperBounds.keySet().stream().findFirst() : lowerBounds.keySet().stream().findFirst();
+        }
+        if (!buildSymbol.isPresent()) {
+            return Optional.empty();
+        }
+
+        Optional<ComparisonExpression> lowerBound = Optional.ofNullable(lowerBounds.get(buildSymbol.get()));
+        Optional<ComparisonExpression> upperBound = Optional.ofNullable(upperBounds.get(buildSymbol.get()));
+
+        // a filter made of nothing but the two bounds is decided by the range alone
+        boolean exact = lowerBound.isPresent() && upperBound.isPresent() && conjunctCount == 2;
+
+        return Optional.of(new JoinFilterRange(
+                buildLayout.get(buildSymbol.get()),
+                lowerBound.map(bound -> probeLayout.get(Symbol.from(bound.getRight()))),
+                lowerBound.map(bound -> bound.getType() == GREATER_THAN_OR_EQUAL).orElse(false),
+                upperBound.map(bound -> probeLayout.get(Symbol.from(bound.getRight()))),
+                upperBound.map(bound -> bound.getType() == LESS_THAN_OR_EQUAL).orElse(false),
+                exact));
+    }
+
+    private static Optional<ComparisonExpression> toBuildBound(ComparisonExpression comparison, Map<Symbol, Integer> buildLayout, Map<Symbol, Integer> probeLayout, Map<Symbol, Type> types)
+    {
+        ComparisonExpression.Type type = comparison.getType();
+        if (type != LESS_THAN && type != LESS_THAN_OR_EQUAL && type != GREATER_THAN && type != GREATER_THAN_OR_EQUAL) {
+            return Optional.empty();
+        }
+        if (!(comparison.getLeft() instanceof SymbolReference) || !(comparison.getRight() instanceof SymbolReference)) {
+            return Optional.empty();
+        }
+
+        Symbol left = Symbol.from(comparison.getLeft());
+        Symbol right = Symbol.from(comparison.getRight());
+        ComparisonExpression bound;
+        if (buildLayout.containsKey(left) && probeLayout.containsKey(right)) {
+            bound = comparison;
+        }
+        else if (probeLayout.containsKey(left) && buildLayout.containsKey(right)) {
+            bound = new ComparisonExpression(type.flip(), comparison.getRight(), comparison.getLeft());
+        }
+        else {
+            return Optional.empty();
+        }
+
+        Type leftType = types.get(left);
+        if (!leftType.isOrderable() || !leftType.equals(types.get(right)) || leftType.equals(DOUBLE) || leftType.equals(FLOAT)) {
+            return Optional.empty();
+        }
+        return Optional.of(bound);
+    }
+}
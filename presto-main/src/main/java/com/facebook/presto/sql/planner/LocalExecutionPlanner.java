@@ -175,6 +175,7 @@ import java.util.stream.Collectors;
 
 import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
 import static com.facebook.presto.SystemSessionProperties.getTaskWriterCount;
+import static com.facebook.presto.SystemSessionProperties.isRangeJoin;
 import static com.facebook.presto.metadata.FunctionKind.SCALAR;
 import static com.facebook.presto.operator.DistinctLimitOperator.DistinctLimitOperatorFactory;
 import static com.facebook.presto.operator.NestedLoopBuildOperator.NestedLoopBuildOperatorFactory;
@@ -189,6 +190,7 @@ import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.TypeUtils.writeNativeValue;
 import static com.facebook.presto.sql.analyzer.ExpressionAnalyzer.getExpressionTypes;
 import static com.facebook.presto.sql.analyzer.ExpressionAnalyzer.getExpressionTypesFromInput;
+import static com.facebook.presto.sql.planner.JoinFilterRangeExtractor.extractJoinFilterRange;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.COORDINATOR_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_BROADCAST_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
@@ -1493,7 +1495,14 @@ public class LocalExecutionPlanner
             OperatorFactory operatorFactory;
             Optional<JoinFilterFunction> filterFunction = node.getFilter().map(filter -> {
                 Map<Symbol, Integer> joinSourcesLayout = createJoinSourcesLayout(buildSource.getLayout(), probeLayout);
-                return new InterpretedFilterFunction(filter, context.getTypes(), joinSourcesLayout, metadata, sqlParser, context.getSession());
+                JoinFilterFunction interpretedFilterFunction = new InterpretedFilterFunction(filter, context.getTypes(), joinSourcesLayout, metadata, sqlParser, context.getSession());
+                if (!isRangeJoin(context.getSession())) {
+                    return interpretedFilterFunction;
+                }
+                // the range lets the lookup source sort the build side and probe only the rows in range
+                return extractJoinFilterRange(filter, buildSource.getLayout(), probeLayout, context.getTypes())
+                        .map(range -> range.applyTo(interpretedFilterFunction))
+                        .orElse(interpretedFilterFunction);
             });
 
             LookupSourceSupplier lookupSourceSupplier;
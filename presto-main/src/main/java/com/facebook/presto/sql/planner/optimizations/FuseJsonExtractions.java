@@ -0,0 +1,253 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.operator.scalar.JsonPath;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.DependencyExtractor;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.SimplePlanRewriter;
+import com.facebook.presto.sql.tree.Cast;
+import com.facebook.presto.sql.tree.DefaultTraversalVisitor;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.ExpressionRewriter;
+import com.facebook.presto.sql.tree.ExpressionTreeRewriter;
+import com.facebook.presto.sql.tree.FunctionCall;
+import com.facebook.presto.sql.tree.GenericLiteral;
+import com.facebook.presto.sql.tree.QualifiedName;
+import com.facebook.presto.sql.tree.StringLiteral;
+import com.facebook.presto.sql.tree.SubscriptExpression;
+import com.facebook.presto.sql.tree.SymbolReference;
+import com.facebook.presto.sql.tree.TryExpression;
+import com.facebook.presto.type.ArrayType;
+import com.facebook.presto.type.JsonPathSetType;
+import com.facebook.presto.type.JsonPathType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.json.ObjectMapperProvider;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.sql.planner.plan.ChildReplacer.replaceChildren;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Extracts several JSON paths from the same document with a single parse. When a projection calls
+ * json_extract_scalar with different constant paths on the same column, the calls are replaced with
+ * subscripts of a json_extract_scalars call on that column, which is evaluated by a projection below.
+ */
+public class FuseJsonExtractions
+        implements PlanOptimizer
+{
+    private static final QualifiedName JSON_EXTRACT_SCALAR = QualifiedName.of("json_extract_scalar");
+    private static final QualifiedName JSON_EXTRACT_SCALARS = QualifiedName.of("json_extract_scalars");
+    private static final Type EXTRACTED_VALUES_TYPE = new ArrayType(VARCHAR);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapperProvider().get();
+
+    @Override
+    public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
+    {
+        requireNonNull(plan, "plan is null");
+        requireNonNull(session, "session is null");
+        requireNonNull(types, "types is null");
+        requireNonNull(symbolAllocator, "symbolAllocator is null");
+        requireNonNull(idAllocator, "idAllocator is null");
+
+        return SimplePlanRewriter.rewriteWith(new Rewriter(symbolAllocator, idAllocator), plan);
+    }
+
+    private static class Rewriter
+            extends SimplePlanRewriter<Void>
+    {
+        private final SymbolAllocator symbolAllocator;
+        private final PlanNodeIdAllocator idAllocator;
+
+        private Rewriter(SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
+        {
+            this.symbolAllocator = symbolAllocator;
+            this.idAllocator = idAllocator;
+        }
+
+        @Override
+        public PlanNode visitProject(ProjectNode node, RewriteContext<Void> context)
+        {
+            PlanNode source = context.rewrite(node.getSource());
+
+            // the paths extracted from each document, in order of appearance
+            Map<Expression, Set<String>> documentPaths = new LinkedHashMap<>();
+            ExtractionCollector collector = new ExtractionCollector(documentPaths);
+            for (Expression expression : node.getAssignments().values()) {
+                collector.process(expression, null);
+            }
+            documentPaths.values().removeIf(paths -> paths.size() < 2);
+            if (documentPaths.isEmpty()) {
+                return replaceChildren(node, ImmutableList.of(source));
+            }
+
+            Map<Expression, Symbol> documentValues = new LinkedHashMap<>();
+            Map<Expression, List<String>> documentPathLists = new LinkedHashMap<>();
+            ImmutableMap.Builder<Symbol, Expression> extractions = ImmutableMap.builder();
+            for (Map.Entry<Expression, Set<String>> entry : documentPaths.entrySet()) {
+                List<String> paths = ImmutableList.copyOf(entry.getValue());
+                Symbol values = symbolAllocator.newSymbol("json_values", EXTRACTED_VALUES_TYPE);
+                documentValues.put(entry.getKey(), values);
+                documentPathLists.put(entry.getKey(), paths);
+                extractions.put(values, new FunctionCall(
+                        JSON_EXTRACT_SCALARS,
+                        ImmutableList.of(entry.getKey(), new Cast(new StringLiteral(toJsonArray(paths)), JsonPathSetType.NAME))));
+            }
+
+            ImmutableMap.Builder<Symbol, Expression> assignments = ImmutableMap.builder();
+            ExtractionRewriter rewriter = new ExtractionRewriter(documentValues, documentPathLists);
+            for (Map.Entry<Symbol, Expression> entry : node.getAssignments().entrySet()) {
+                assignments.put(entry.getKey(), ExpressionTreeRewriter.rewriteWith(rewriter, entry.getValue()));
+            }
+            Map<Symbol, Expression> rewrittenAssignments = assignments.build();
+
+            // the projection below passes through the symbols that are still used above it
+            Set<Symbol> usedSymbols = DependencyExtractor.extractUnique(rewrittenAssignments.values());
+            ImmutableMap.Builder<Symbol, Expression> sourceAssignments = ImmutableMap.builder();
+            for (Symbol symbol : source.getOutputSymbols()) {
+                if (usedSymbols.contains(symbol)) {
+                    sourceAssignments.put(symbol, symbol.toSymbolReference());
+                }
+            }
+            sourceAssignments.putAll(extractions.build());
+
+            ProjectNode extractionNode = new ProjectNode(idAllocator.getNextId(), source, sourceAssignments.build());
+            return new ProjectNode(node.getId(), extractionNode, rewrittenAssignments);
+        }
+    }
+
+    private static class ExtractionCollector
+            extends DefaultTraversalVisitor<Void, Void>
+    {
+        private final Map<Expression, Set<String>> documentPaths;
+
+        private ExtractionCollector(Map<Expression, Set<String>> documentPaths)
+        {
+            this.documentPaths = documentPaths;
+        }
+
+        @Override
+        protected Void visitFunctionCall(FunctionCall node, Void context)
+        {
+            Optional<String> path = getExtractedPath(node);
+            if (path.isPresent()) {
+                documentPaths.computeIfAbsent(node.getArguments().get(0), document -> new LinkedHashSet<>()).add(path.get());
+            }
+            return super.visitFunctionCall(node, context);
+        }
+
+        @Override
+        protected Void visitTryExpression(TryExpression node, Void context)
+        {
+            // extractions within a TRY are left alone, as the failure of the extraction must not escape the TRY
+            return null;
+        }
+    }
+
+    private static class ExtractionRewriter
+            extends ExpressionRewriter<Void>
+    {
+        private final Map<Expression, Symbol> documentValues;
+        private final Map<Expression, List<String>> documentPaths;
+
+        private ExtractionRewriter(Map<Expression, Symbol> documentValues, Map<Expression, List<String>> documentPaths)
+        {
+            this.documentValues = documentValues;
+            this.documentPaths = documentPaths;
+        }
+
+        @Override
+        public Expression rewriteFunctionCall(FunctionCall node, Void context, ExpressionTreeRewriter<Void> treeRewriter)
+        {
+            Optional<String> path = getExtractedPath(node);
+            Expression document = node.getArguments().isEmpty() ? null : node.getArguments().get(0);
+            if (!path.isPresent() || !documentValues.containsKey(document)) {
+                return treeRewriter.defaultRewrite(node, context);
+            }
+            int index = documentPaths.get(document).indexOf(path.get());
+            return new SubscriptExpression(documentValues.get(document).toSymbolReference(), new GenericLiteral("BIGINT", String.valueOf(index + 1)));
+        }
+
+        @Override
+        public Expression rewriteTryExpression(TryExpression node, Void context, ExpressionTreeRewriter<Void> treeRewriter)
+        {
+            return node;
+        }
+    }
+
+    /**
+     * Returns the path of a json_extract_scalar call with a valid constant path, on a column or a coerced column.
+     */
+    private static Optional<String> getExtractedPath(FunctionCall call)
+    {
+        if (!call.getName().equals(JSON_EXTRACT_SCALAR) || call.isDistinct() || call.getWindow().isPresent() || call.getArguments().size() != 2) {
+            return Optional.empty();
+        }
+
+        Expression document = call.getArguments().get(0);
+        if (document instanceof Cast) {
+            document = ((Cast) document).getExpression();
+        }
+        if (!(document instanceof SymbolReference)) {
+            return Optional.empty();
+        }
+
+        Expression path = call.getArguments().get(1);
+        if (path instanceof Cast && ((Cast) path).getType().equalsIgnoreCase(JsonPathType.NAME)) {
+            path = ((Cast) path).getExpression();
+        }
+        if (!(path instanceof StringLiteral)) {
+            return Optional.empty();
+        }
+
+        String value = ((StringLiteral) path).getValue();
+        try {
+            new JsonPath(value);
+        }
+        catch (PrestoException e) {
+            // an invalid path fails on its own
+            return Optional.empty();
+        }
+        return Optional.of(value);
+    }
+
+    private static String toJsonArray(List<String> paths)
+    {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(new ArrayList<>(paths));
+        }
+        catch (JsonProcessingException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
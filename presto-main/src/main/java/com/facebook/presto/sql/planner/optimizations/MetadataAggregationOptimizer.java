@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.metadata.TableLayoutHandle;
+import com.facebook.presto.metadata.TableLayoutResult;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.Constraint;
+import com.facebook.presto.spi.DataSummary;
+import com.facebook.presto.spi.predicate.NullableValue;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.DomainTranslator;
+import com.facebook.presto.sql.planner.LiteralInterpreter;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.plan.AggregationNode;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.SimplePlanRewriter;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.SymbolReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.SystemSessionProperties.isOptimizeMetadataAggregations;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.sql.planner.plan.AggregationNode.Step.SINGLE;
+import static com.facebook.presto.sql.tree.BooleanLiteral.TRUE_LITERAL;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replaces global aggregations over a table that the connector can answer exactly from
+ * its metadata, such as the row count or the minimum and maximum values of columns it
+ * keeps statistics for, with a single row of values.
+ *
+ * Turn
+ *     Aggregation(count(*), min(x), max(x)) - [Project] - [Filter] - TableScan
+ * into
+ *     Values
+ */
+public class MetadataAggregationOptimizer
+        implements PlanOptimizer
+{
+    private final Metadata metadata;
+
+    public MetadataAggregationOptimizer(Metadata metadata)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+    }
+
+    @Override
+    public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
+    {
+        if (!isOptimizeMetadataAggregations(session)) {
+            return plan;
+        }
+        return SimplePlanRewriter.rewriteWith(new Optimizer(session, metadata, types, idAllocator), plan, null);
+    }
+
+    private static class Optimizer
+            extends SimplePlanRewriter<Void>
+    {
+        private final Session session;
+        private final Metadata metadata;
+        private final Map<Symbol, Type> types;
+        private final PlanNodeIdAllocator idAllocator;
+
+        private Optimizer(Session session, Metadata metadata, Map<Symbol, Type> types, PlanNodeIdAllocator idAllocator)
+        {
+            this.session = session;
+            this.metadata = metadata;
+            this.types = types;
+            this.idAllocator = idAllocator;
+        }
+
+        @Override
+        public PlanNode visitAggregation(AggregationNode node, RewriteContext<Void> context)
+        {
+            if (!node.getGroupBy().isEmpty() || node.getStep() != SINGLE || node.getSampleWeight().isPresent() || !node.getMasks().isEmpty()) {
+                return context.defaultRewrite(node);
+            }
+
+            // the inputs of min and max
+            Map<Symbol, Symbol> inputs = new HashMap<>();
+            for (Map.Entry<Symbol, Signature> entry : node.getFunctions().entrySet()) {
+                Signature function = entry.getValue();
+                List<Expression> arguments = node.getAggregations().get(entry.getKey()).getArguments();
+                if (isCountAll(function)) {
+                    continue;
+                }
+                if (!isMinOrMax(function) || arguments.size() != 1 || !(arguments.get(0) instanceof SymbolReference)) {
+                    return context.defaultRewrite(node);
+                }
+                inputs.put(entry.getKey(), Symbol.from(arguments.get(0)));
+            }
+
+            PlanNode source = node.getSource();
+            if (source instanceof ProjectNode) {
+                ProjectNode project = (ProjectNode) source;
+                for (Map.Entry<Symbol, Symbol> entry : inputs.entrySet()) {
+                    Expression expression = project.getAssignments().get(entry.getValue());
+                    if (!(expression instanceof SymbolReference)) {
+                        return context.defaultRewrite(node);
+                    }
+                    entry.setValue(Symbol.from(expression));
+                }
+                source = project.getSource();
+            }
+            Expression predicate = TRUE_LITERAL;
+            if (source instanceof FilterNode) {
+                predicate = ((FilterNode) source).getPredicate();
+                source = ((FilterNode) source).getSource();
+            }
+            if (!(source instanceof TableScanNode)) {
+                return context.defaultRewrite(node);
+            }
+            TableScanNode tableScan = (TableScanNode) source;
+
+            Map<Symbol, ColumnHandle> columns = new HashMap<>();
+            for (Map.Entry<Symbol, Symbol> entry : inputs.entrySet()) {
+                ColumnHandle column = tableScan.getAssignments().get(entry.getValue());
+                if (column == null) {
+                    return context.defaultRewrite(node);
+                }
+                columns.put(entry.getKey(), column);
+            }
+
+            // the predicate must be fully described by the constraint passed to the connector
+            DomainTranslator.ExtractionResult result = DomainTranslator.fromPredicate(metadata, session, predicate, types);
+            if (!result.getRemainingExpression().equals(TRUE_LITERAL)) {
+                return context.defaultRewrite(node);
+            }
+            if (!result.getTupleDomain().isNone() && !tableScan.getAssignments().keySet().containsAll(result.getTupleDomain().getDomains().get().keySet())) {
+                return context.defaultRewrite(node);
+            }
+            TupleDomain<ColumnHandle> constraint = result.getTupleDomain()
+                    .transform(tableScan.getAssignments()::get)
+                    .intersect(tableScan.getCurrentConstraint());
+
+            Set<ColumnHandle> summaryColumns = ImmutableSet.copyOf(columns.values());
+            Optional<TableLayoutHandle> layout = getLayout(tableScan, constraint, summaryColumns);
+            if (!layout.isPresent()) {
+                return context.defaultRewrite(node);
+            }
+            DataSummary summary = metadata.getDataSummary(session, tableScan.getTable(), layout.get(), constraint, summaryColumns);
+
+            ImmutableList.Builder<Expression> row = ImmutableList.builder();
+            for (Symbol output : node.getOutputSymbols()) {
+                if (isCountAll(node.getFunctions().get(output))) {
+                    if (!summary.getRowCount().isPresent()) {
+                        return context.defaultRewrite(node);
+                    }
+                    row.add(LiteralInterpreter.toExpression(summary.getRowCount().getAsLong(), BIGINT));
+                    continue;
+                }
+
+                ColumnHandle column = columns.get(output);
+                Optional<NullableValue> value = node.getFunctions().get(output).getName().equals("min") ? summary.getMinValue(column) : summary.getMaxValue(column);
+                if (!value.isPresent()) {
+                    return context.defaultRewrite(node);
+                }
+                row.add(LiteralInterpreter.toExpression(value.get().getValue(), types.get(output)));
+            }
+
+            return new ValuesNode(idAllocator.getNextId(), node.getOutputSymbols(), ImmutableList.of(row.build()));
+        }
+
+        private Optional<TableLayoutHandle> getLayout(TableScanNode tableScan, TupleDomain<ColumnHandle> constraint, Set<ColumnHandle> columns)
+        {
+            if (tableScan.getLayout().isPresent()) {
+                return tableScan.getLayout();
+            }
+            List<TableLayoutResult> layouts = metadata.getLayouts(session, tableScan.getTable(), new Constraint<>(constraint, bindings -> true), Optional.of(columns));
+            if (layouts.size() != 1) {
+                return Optional.empty();
+            }
+            return Optional.of(Iterables.getOnlyElement(layouts).getLayout().getHandle());
+        }
+
+        private static boolean isCountAll(Signature function)
+        {
+            return function.getName().equals("count") && function.getArgumentTypes().isEmpty();
+        }
+
+        private static boolean isMinOrMax(Signature function)
+        {
+            return function.getName().equals("min") || function.getName().equals("max");
+        }
+    }
+}
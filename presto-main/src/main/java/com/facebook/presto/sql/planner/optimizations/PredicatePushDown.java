@@ -44,6 +44,7 @@ import com.facebook.presto.sql.planner.plan.SortNode;
 import com.facebook.presto.sql.planner.plan.TableScanNode;
 import com.facebook.presto.sql.planner.plan.UnionNode;
 import com.facebook.presto.sql.planner.plan.UnnestNode;
+import com.facebook.presto.sql.tree.BetweenPredicate;
 import com.facebook.presto.sql.tree.BooleanLiteral;
 import com.facebook.presto.sql.tree.ComparisonExpression;
 import com.facebook.presto.sql.tree.Expression;
@@ -70,6 +71,7 @@ import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import static com.facebook.presto.SystemSessionProperties.isRangeJoin;
 import static com.facebook.presto.sql.ExpressionUtils.combineConjuncts;
 import static com.facebook.presto.sql.ExpressionUtils.expressionOrNullSymbols;
 import static com.facebook.presto.sql.ExpressionUtils.extractConjuncts;
@@ -94,6 +96,11 @@ public class PredicatePushDown
         implements PlanOptimizer
 {
     private static final Logger log = Logger.get(PredicatePushDown.class);
+    private static final Set<ComparisonExpression.Type> RANGE_COMPARISONS = EnumSet.of(
+            ComparisonExpression.Type.LESS_THAN,
+            ComparisonExpression.Type.LESS_THAN_OR_EQUAL,
+            ComparisonExpression.Type.GREATER_THAN,
+            ComparisonExpression.Type.GREATER_THAN_OR_EQUAL);
 
     private final Metadata metadata;
     private final SqlParser sqlParser;
@@ -385,6 +392,18 @@ public class PredicatePushDown
 
                         joinConditionBuilder.add(new JoinNode.EquiJoinClause(leftSymbol, rightSymbol));
                     }
+                    else if (isRangeJoin(session) && joinRangeExpression(node.getLeft().getOutputSymbols()).test(conjunct)) {
+                        // project both operands of the comparison, so the join can index the build side on it
+                        ComparisonExpression comparison = (ComparisonExpression) conjunct;
+
+                        boolean alignedComparison = Iterables.all(DependencyExtractor.extractUnique(comparison.getLeft()), in(node.getLeft().getOutputSymbols()));
+                        Expression leftExpression = projectJoinOperand(alignedComparison ? comparison.getLeft() : comparison.getRight(), leftProjections);
+                        Expression rightExpression = projectJoinOperand(alignedComparison ? comparison.getRight() : comparison.getLeft(), rightProjections);
+
+                        joinFilterBuilder.add(alignedComparison ?
+                                new ComparisonExpression(comparison.getType(), leftExpression, rightExpression) :
+                                new ComparisonExpression(comparison.getType(), rightExpression, leftExpression));
+                    }
                     else {
                         joinFilterBuilder.add(conjunct);
                     }
@@ -607,15 +626,22 @@ public class PredicatePushDown
             rightPushDownConjuncts.addAll(allInferenceWithoutRightInferred.generateEqualitiesPartitionedBy(not(in(leftSymbols))).getScopeEqualities());
             joinConjuncts.addAll(allInference.generateEqualitiesPartitionedBy(in(leftSymbols)).getScopeStraddlingEqualities()); // scope straddling equalities get dropped in as part of the join predicate
 
-            // Since we only currently support equality in join conjuncts, factor out the non-equality conjuncts to a post-join filter
+            // Since we only currently support equality and range comparisons in join conjuncts, factor out the other conjuncts to a post-join filter
             List<Expression> joinConjunctsList = joinConjuncts.build();
+            Predicate<Expression> isJoinConjunct = joinEqualityExpression(leftSymbols);
+            if (isRangeJoin(session)) {
+                joinConjunctsList = joinConjunctsList.stream()
+                        .flatMap(conjunct -> splitJoinBetween(conjunct, leftSymbols).stream())
+                        .collect(toImmutableList());
+                isJoinConjunct = isJoinConjunct.or(joinRangeExpression(leftSymbols));
+            }
 
             List<Expression> postJoinConjuncts = joinConjunctsList.stream()
-                    .filter(joinEqualityExpression(leftSymbols).negate())
+                    .filter(isJoinConjunct.negate())
                     .collect(toImmutableList());
 
             joinConjunctsList = joinConjunctsList.stream()
-                    .filter(joinEqualityExpression(leftSymbols))
+                    .filter(isJoinConjunct)
                     .collect(toImmutableList());
 
             return new InnerJoinPushDownResult(combineConjuncts(leftPushDownConjuncts.build()), combineConjuncts(rightPushDownConjuncts.build()), combineConjuncts(joinConjunctsList), combineConjuncts(postJoinConjuncts));
@@ -762,6 +788,53 @@ public class PredicatePushDown
             };
         }
 
+        private static Predicate<Expression> joinRangeExpression(final Collection<Symbol> leftSymbols)
+        {
+            return expression -> {
+                if (isDeterministic(expression) && expression instanceof ComparisonExpression) {
+                    ComparisonExpression comparison = (ComparisonExpression) expression;
+                    if (RANGE_COMPARISONS.contains(comparison.getType())) {
+                        Set<Symbol> symbols1 = DependencyExtractor.extractUnique(comparison.getLeft());
+                        Set<Symbol> symbols2 = DependencyExtractor.extractUnique(comparison.getRight());
+                        if (symbols1.isEmpty() || symbols2.isEmpty()) {
+                            return false;
+                        }
+                        return (Iterables.all(symbols1, in(leftSymbols)) && Iterables.all(symbols2, not(in(leftSymbols)))) ||
+                                (Iterables.all(symbols2, in(leftSymbols)) && Iterables.all(symbols1, not(in(leftSymbols))));
+                    }
+                }
+                return false;
+            };
+        }
+
+        /**
+         * Splits a BETWEEN predicate whose operands come from both sides of the join into its two comparisons.
+         */
+        private static List<Expression> splitJoinBetween(Expression expression, Collection<Symbol> leftSymbols)
+        {
+            if (!(expression instanceof BetweenPredicate) || !isDeterministic(expression)) {
+                return ImmutableList.of(expression);
+            }
+            BetweenPredicate between = (BetweenPredicate) expression;
+            List<Expression> comparisons = ImmutableList.of(
+                    new ComparisonExpression(ComparisonExpression.Type.GREATER_THAN_OR_EQUAL, between.getValue(), between.getMin()),
+                    new ComparisonExpression(ComparisonExpression.Type.LESS_THAN_OR_EQUAL, between.getValue(), between.getMax()));
+            if (comparisons.stream().noneMatch(joinRangeExpression(leftSymbols))) {
+                return ImmutableList.of(expression);
+            }
+            return comparisons;
+        }
+
+        private Expression projectJoinOperand(Expression expression, ImmutableMap.Builder<Symbol, Expression> projections)
+        {
+            if (expression instanceof SymbolReference) {
+                return expression;
+            }
+            Symbol symbol = symbolAllocator.newSymbol(expression, extractType(expression));
+            projections.put(symbol, expression);
+            return symbol.toSymbolReference();
+        }
+
         @Override
         public PlanNode visitSemiJoin(SemiJoinNode node, RewriteContext<Expression> context)
         {
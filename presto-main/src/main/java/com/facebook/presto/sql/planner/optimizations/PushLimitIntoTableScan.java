@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.metadata.TableLayoutHandle;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.SortingProperty;
+import com.facebook.presto.spi.block.SortOrder;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.plan.LimitNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.SimplePlanRewriter;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.planner.plan.TopNNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.SymbolReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.SystemSessionProperties.isPushDownLimits;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pushes limits and top-N of table scans into the layout of the scan, for connectors that
+ * can apply them while reading, such as by adding a limit to a query sent to a database.
+ * The limit or top-N is kept, as the connector applies it to each split.
+ *
+ * Turn
+ *     Limit|TopN - [Project] - TableScan
+ * into
+ *     Limit|TopN - [Project] - TableScan(layout with limit)
+ */
+public class PushLimitIntoTableScan
+        implements PlanOptimizer
+{
+    private final Metadata metadata;
+
+    public PushLimitIntoTableScan(Metadata metadata)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+    }
+
+    @Override
+    public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
+    {
+        if (!isPushDownLimits(session)) {
+            return plan;
+        }
+        return SimplePlanRewriter.rewriteWith(new Rewriter(session, metadata), plan, null);
+    }
+
+    private static class Rewriter
+            extends SimplePlanRewriter<Void>
+    {
+        private final Session session;
+        private final Metadata metadata;
+
+        private Rewriter(Session session, Metadata metadata)
+        {
+            this.session = session;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public PlanNode visitLimit(LimitNode node, RewriteContext<Void> context)
+        {
+            Optional<PlanNode> source = pushDownLimit(node.getSource(), ImmutableList.of(), ImmutableMap.of(), node.getCount());
+            if (!source.isPresent()) {
+                return context.defaultRewrite(node);
+            }
+            return new LimitNode(node.getId(), source.get(), node.getCount(), node.isPartial());
+        }
+
+        @Override
+        public PlanNode visitTopN(TopNNode node, RewriteContext<Void> context)
+        {
+            Optional<PlanNode> source = pushDownLimit(node.getSource(), node.getOrderBy(), node.getOrderings(), node.getCount());
+            if (!source.isPresent()) {
+                return context.defaultRewrite(node);
+            }
+            return new TopNNode(node.getId(), source.get(), node.getCount(), node.getOrderBy(), node.getOrderings(), node.isPartial());
+        }
+
+        private Optional<PlanNode> pushDownLimit(PlanNode source, List<Symbol> orderBy, Map<Symbol, SortOrder> orderings, long limit)
+        {
+            // the project does not change the rows, so the order by symbols only need to be mapped to its inputs
+            Optional<ProjectNode> project = Optional.empty();
+            if (source instanceof ProjectNode) {
+                project = Optional.of((ProjectNode) source);
+                source = project.get().getSource();
+            }
+            if (!(source instanceof TableScanNode)) {
+                return Optional.empty();
+            }
+            TableScanNode tableScan = (TableScanNode) source;
+            if (!tableScan.getLayout().isPresent()) {
+                return Optional.empty();
+            }
+
+            ImmutableList.Builder<SortingProperty<ColumnHandle>> columnOrderBy = ImmutableList.builder();
+            for (Symbol symbol : orderBy) {
+                Symbol input = symbol;
+                if (project.isPresent()) {
+                    Expression expression = project.get().getAssignments().get(symbol);
+                    if (!(expression instanceof SymbolReference)) {
+                        return Optional.empty();
+                    }
+                    input = Symbol.from(expression);
+                }
+                ColumnHandle column = tableScan.getAssignments().get(input);
+                if (column == null) {
+                    return Optional.empty();
+                }
+                columnOrderBy.add(new SortingProperty<>(column, orderings.get(symbol)));
+            }
+
+            Optional<TableLayoutHandle> layout = metadata.pushDownLimit(session, tableScan.getLayout().get(), columnOrderBy.build(), limit);
+            if (!layout.isPresent()) {
+                return Optional.empty();
+            }
+
+            PlanNode result = new TableScanNode(
+                    tableScan.getId(),
+                    tableScan.getTable(),
+                    tableScan.getOutputSymbols(),
+                    tableScan.getAssignments(),
+                    layout,
+                    tableScan.getCurrentConstraint(),
+                    tableScan.getOriginalConstraint());
+            if (project.isPresent()) {
+                result = new ProjectNode(project.get().getId(), result, project.get().getAssignments());
+            }
+            return Optional.of(result);
+        }
+    }
+}
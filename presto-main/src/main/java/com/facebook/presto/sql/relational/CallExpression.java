@@ -15,6 +15,8 @@ package com.facebook.presto.sql.relational;
 
 import com.facebook.presto.metadata.Signature;
 import com.facebook.presto.spi.type.Type;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 
@@ -30,7 +32,11 @@ public final class CallExpression
     private final Type returnType;
     private final List<RowExpression> arguments;
 
-    public CallExpression(Signature signature, Type returnType, List<RowExpression> arguments)
+    @JsonCreator
+    public CallExpression(
+            @JsonProperty("signature") Signature signature,
+            @JsonProperty("returnType") Type returnType,
+            @JsonProperty("arguments") List<RowExpression> arguments)
     {
         requireNonNull(signature, "signature is null");
         requireNonNull(arguments, "arguments is null");
@@ -41,17 +47,20 @@ public final class CallExpression
         this.arguments = ImmutableList.copyOf(arguments);
     }
 
+    @JsonProperty
     public Signature getSignature()
     {
         return signature;
     }
 
     @Override
+    @JsonProperty("returnType")
     public Type getType()
     {
         return returnType;
     }
 
+    @JsonProperty
     public List<RowExpression> getArguments()
     {
         return arguments;
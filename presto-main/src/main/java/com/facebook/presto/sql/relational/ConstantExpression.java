@@ -13,10 +13,15 @@
  */
 package com.facebook.presto.sql.relational;
 
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.Type;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Objects;
 
+import static com.facebook.presto.spi.predicate.Utils.nativeValueToBlock;
+import static com.facebook.presto.spi.type.TypeUtils.readNativeValue;
 import static java.util.Objects.requireNonNull;
 
 public final class ConstantExpression
@@ -33,12 +38,26 @@ public final class ConstantExpression
         this.type = type;
     }
 
+    @JsonCreator
+    public static ConstantExpression fromValueBlock(@JsonProperty("valueBlock") Block valueBlock, @JsonProperty("type") Type type)
+    {
+        requireNonNull(valueBlock, "valueBlock is null");
+        return new ConstantExpression(readNativeValue(type, valueBlock, 0), type);
+    }
+
     public Object getValue()
     {
         return value;
     }
 
+    @JsonProperty
+    public Block getValueBlock()
+    {
+        return nativeValueToBlock(type, value);
+    }
+
     @Override
+    @JsonProperty
     public Type getType()
     {
         return type;
@@ -14,6 +14,7 @@
 package com.facebook.presto.sql.relational;
 
 import com.facebook.presto.spi.type.Type;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Objects;
@@ -26,7 +27,8 @@ public final class InputReferenceExpression
     private final int field;
     private final Type type;
 
-    public InputReferenceExpression(int field, Type type)
+    @JsonCreator
+    public InputReferenceExpression(@JsonProperty("field") int field, @JsonProperty("type") Type type)
     {
         requireNonNull(type, "type is null");
 
@@ -14,7 +14,17 @@
 package com.facebook.presto.sql.relational;
 
 import com.facebook.presto.spi.type.Type;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
+@JsonTypeInfo(
+        use = JsonTypeInfo.Id.NAME,
+        include = JsonTypeInfo.As.PROPERTY,
+        property = "@type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = CallExpression.class, name = "call"),
+        @JsonSubTypes.Type(value = ConstantExpression.class, name = "constant"),
+        @JsonSubTypes.Type(value = InputReferenceExpression.class, name = "input")})
 public abstract class RowExpression
 {
     public abstract Type getType();
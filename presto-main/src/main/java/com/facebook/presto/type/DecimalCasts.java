@@ -37,7 +37,6 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 
 import static com.facebook.presto.metadata.FunctionKind.SCALAR;
 import static com.facebook.presto.metadata.OperatorType.CAST;
@@ -59,6 +58,11 @@ import static com.facebook.presto.spi.type.StandardTypes.SMALLINT;
 import static com.facebook.presto.spi.type.StandardTypes.TINYINT;
 import static com.facebook.presto.spi.type.StandardTypes.VARCHAR;
 import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.isZero;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.overflows;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.rescale;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimal;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimalToUnscaledLong;
 import static com.facebook.presto.util.Failures.checkCondition;
 import static com.facebook.presto.util.Types.checkType;
 import static java.lang.Float.floatToRawIntBits;
@@ -66,7 +70,6 @@ import static java.lang.Float.intBitsToFloat;
 import static java.lang.Math.multiplyExact;
 import static java.lang.String.format;
 import static java.math.BigDecimal.ROUND_HALF_UP;
-import static java.math.BigInteger.ZERO;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 public final class DecimalCasts
@@ -149,7 +152,7 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static boolean longDecimalToBoolean(Slice decimal, long precision, long scale, long tenToScale)
     {
-        return !decodeUnscaledValue(decimal).equals(ZERO);
+        return !isZero(decimal);
     }
 
     @UsedByGeneratedCode
@@ -161,7 +164,7 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static Slice booleanToLongDecimal(boolean value, long precision, long scale, long tenToScale)
     {
-        return encodeUnscaledValue(BigInteger.valueOf(value ? tenToScale : 0L));
+        return value ? rescale(unscaledDecimal(1), (int) scale) : unscaledDecimal(0);
     }
 
     @UsedByGeneratedCode
@@ -179,13 +182,12 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static long longDecimalToBigint(Slice decimal, long precision, long scale, long tenToScale)
     {
-        BigDecimal bigDecimal = new BigDecimal(decodeUnscaledValue(decimal), (int) scale);
-        bigDecimal = bigDecimal.setScale(0, RoundingMode.HALF_UP);
+        Slice rounded = rescale(decimal, -(int) scale);
         try {
-            return bigDecimal.longValueExact();
+            return unscaledDecimalToUnscaledLong(rounded);
         }
         catch (ArithmeticException e) {
-            throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast '%s' to BIGINT", bigDecimal));
+            throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast '%s' to BIGINT", Decimals.toString(rounded, 0)));
         }
     }
 
@@ -207,11 +209,12 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static Slice bigintToLongDecimal(long value, long precision, long scale, long tenToScale)
     {
-        BigInteger decimalBigInteger = BigInteger.valueOf(value).multiply(BigInteger.valueOf(tenToScale));
-        if (overflows(decimalBigInteger, (int) precision)) {
+        Slice decimal = unscaledDecimal(value);
+        if (overflows(decimal, (int) (precision - scale))) {
             throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast BIGINT '%s' to DECIMAL(%s, %s)", value, precision, scale));
         }
-        return encodeUnscaledValue(decimalBigInteger);
+        rescale(decimal, (int) scale, decimal);
+        return decimal;
     }
 
     @UsedByGeneratedCode
@@ -234,13 +237,12 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static long longDecimalToInteger(Slice decimal, long precision, long scale, long tenToScale)
     {
-        BigDecimal bigDecimal = new BigDecimal(decodeUnscaledValue(decimal), (int) scale);
-        bigDecimal = bigDecimal.setScale(0, RoundingMode.HALF_UP);
+        Slice rounded = rescale(decimal, -(int) scale);
         try {
-            return bigDecimal.intValueExact();
+            return Ints.checkedCast(unscaledDecimalToUnscaledLong(rounded));
         }
-        catch (ArithmeticException e) {
-            throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast '%s' to INTEGER", bigDecimal));
+        catch (ArithmeticException | IllegalArgumentException e) {
+            throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast '%s' to INTEGER", Decimals.toString(rounded, 0)));
         }
     }
 
@@ -262,11 +264,12 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static Slice integerToLongDecimal(long value, long precision, long scale, long tenToScale)
     {
-        BigInteger decimalBigInteger = BigInteger.valueOf(value).multiply(BigInteger.valueOf(tenToScale));
-        if (overflows(decimalBigInteger, (int) precision)) {
+        Slice decimal = unscaledDecimal(value);
+        if (overflows(decimal, (int) (precision - scale))) {
             throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast INTEGER '%s' to DECIMAL(%s, %s)", value, precision, scale));
         }
-        return encodeUnscaledValue(decimalBigInteger);
+        rescale(decimal, (int) scale, decimal);
+        return decimal;
     }
 
     @UsedByGeneratedCode
@@ -289,13 +292,12 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static long longDecimalToSmallint(Slice decimal, long precision, long scale, long tenToScale)
     {
-        BigDecimal bigDecimal = new BigDecimal(decodeUnscaledValue(decimal), (int) scale);
-        bigDecimal = bigDecimal.setScale(0, RoundingMode.HALF_UP);
+        Slice rounded = rescale(decimal, -(int) scale);
         try {
-            return bigDecimal.shortValueExact();
+            return Shorts.checkedCast(unscaledDecimalToUnscaledLong(rounded));
         }
-        catch (ArithmeticException e) {
-            throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast '%s' to SMALLINT", bigDecimal));
+        catch (ArithmeticException | IllegalArgumentException e) {
+            throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast '%s' to SMALLINT", Decimals.toString(rounded, 0)));
         }
     }
 
@@ -317,11 +319,12 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static Slice smallintToLongDecimal(long value, long precision, long scale, long tenToScale)
     {
-        BigInteger decimalBigInteger = BigInteger.valueOf(value).multiply(BigInteger.valueOf(tenToScale));
-        if (overflows(decimalBigInteger, (int) precision)) {
+        Slice decimal = unscaledDecimal(value);
+        if (overflows(decimal, (int) (precision - scale))) {
             throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast SMALLINT '%s' to DECIMAL(%s, %s)", value, precision, scale));
         }
-        return encodeUnscaledValue(decimalBigInteger);
+        rescale(decimal, (int) scale, decimal);
+        return decimal;
     }
 
     @UsedByGeneratedCode
@@ -344,13 +347,12 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static long longDecimalToTinyint(Slice decimal, long precision, long scale, long tenToScale)
     {
-        BigDecimal bigDecimal = new BigDecimal(decodeUnscaledValue(decimal), (int) scale);
-        bigDecimal = bigDecimal.setScale(0, RoundingMode.HALF_UP);
+        Slice rounded = rescale(decimal, -(int) scale);
         try {
-            return bigDecimal.byteValueExact();
+            return SignedBytes.checkedCast(unscaledDecimalToUnscaledLong(rounded));
         }
-        catch (ArithmeticException e) {
-            throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast '%s' to TINYINT", bigDecimal));
+        catch (ArithmeticException | IllegalArgumentException e) {
+            throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast '%s' to TINYINT", Decimals.toString(rounded, 0)));
         }
     }
 
@@ -372,11 +374,12 @@ public final class DecimalCasts
     @UsedByGeneratedCode
     public static Slice tinyintToLongDecimal(long value, long precision, long scale, long tenToScale)
     {
-        BigInteger decimalBigInteger = BigInteger.valueOf(value).multiply(BigInteger.valueOf(tenToScale));
-        if (overflows(decimalBigInteger, (int) precision)) {
+        Slice decimal = unscaledDecimal(value);
+        if (overflows(decimal, (int) (precision - scale))) {
             throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast TINYINT '%s' to DECIMAL(%s, %s)", value, precision, scale));
         }
-        return encodeUnscaledValue(decimalBigInteger);
+        rescale(decimal, (int) scale, decimal);
+        return decimal;
     }
 
     @UsedByGeneratedCode
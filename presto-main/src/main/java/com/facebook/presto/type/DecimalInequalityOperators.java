@@ -21,7 +21,6 @@ import com.facebook.presto.metadata.Signature;
 import com.facebook.presto.metadata.SqlScalarFunction;
 import com.facebook.presto.metadata.SqlScalarFunctionBuilder.SpecializeContext;
 import com.facebook.presto.spi.PrestoException;
-import com.facebook.presto.spi.type.Decimals;
 import com.facebook.presto.spi.type.TypeSignature;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
@@ -30,7 +29,6 @@ import com.google.common.collect.ImmutableSet;
 import io.airlift.slice.Slice;
 
 import java.lang.invoke.MethodHandle;
-import java.math.BigInteger;
 import java.util.List;
 
 import static com.facebook.presto.metadata.FunctionKind.SCALAR;
@@ -44,10 +42,11 @@ import static com.facebook.presto.metadata.OperatorType.NOT_EQUAL;
 import static com.facebook.presto.metadata.SqlScalarFunctionBuilder.concat;
 import static com.facebook.presto.metadata.SqlScalarFunctionBuilder.constant;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
-import static com.facebook.presto.spi.type.Decimals.bigIntegerTenToNth;
 import static com.facebook.presto.spi.type.Decimals.longTenToNth;
 import static com.facebook.presto.spi.type.StandardTypes.BOOLEAN;
 import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.compareRescaled;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimal;
 import static com.facebook.presto.util.Reflection.methodHandle;
 import static java.lang.Integer.max;
 
@@ -157,9 +156,7 @@ public class DecimalInequalityOperators
     {
         long aScale = context.getLiteral("a_scale");
         long bScale = context.getLiteral("b_scale");
-        BigInteger aRescale = bigIntegerTenToNth(rescaleFactor(aScale, bScale));
-        BigInteger bRescale = bigIntegerTenToNth(rescaleFactor(bScale, aScale));
-        return ImmutableList.of(aRescale, bRescale);
+        return ImmutableList.of(rescaleFactor(aScale, bScale), rescaleFactor(bScale, aScale));
     }
 
     private static int rescaleFactor(long fromScale, long toScale)
@@ -174,35 +171,27 @@ public class DecimalInequalityOperators
     }
 
     @UsedByGeneratedCode
-    public static boolean opShortShortLongRescale(long a, long b, BigInteger aRescale, BigInteger bRescale, MethodHandle getResultMethodHandle)
+    public static boolean opShortShortLongRescale(long a, long b, int aRescale, int bRescale, MethodHandle getResultMethodHandle)
     {
-        BigInteger left = BigInteger.valueOf(a).multiply(aRescale);
-        BigInteger right = BigInteger.valueOf(b).multiply(bRescale);
-        return invokeGetResult(getResultMethodHandle, left.compareTo(right));
+        return invokeGetResult(getResultMethodHandle, compareRescaled(unscaledDecimal(a), aRescale, unscaledDecimal(b), bRescale));
     }
 
     @UsedByGeneratedCode
-    public static boolean opShortLong(long a, Slice b, BigInteger aRescale, BigInteger bRescale, MethodHandle getResultMethodHandle)
+    public static boolean opShortLong(long a, Slice b, int aRescale, int bRescale, MethodHandle getResultMethodHandle)
     {
-        BigInteger left = BigInteger.valueOf(a).multiply(aRescale);
-        BigInteger right = Decimals.decodeUnscaledValue(b).multiply(bRescale);
-        return invokeGetResult(getResultMethodHandle, left.compareTo(right));
+        return invokeGetResult(getResultMethodHandle, compareRescaled(unscaledDecimal(a), aRescale, b, bRescale));
     }
 
     @UsedByGeneratedCode
-    public static boolean opLongShort(Slice a, long b, BigInteger aRescale, BigInteger bRescale, MethodHandle getResultMethodHandle)
+    public static boolean opLongShort(Slice a, long b, int aRescale, int bRescale, MethodHandle getResultMethodHandle)
     {
-        BigInteger left = Decimals.decodeUnscaledValue(a).multiply(aRescale);
-        BigInteger right = BigInteger.valueOf(b).multiply(bRescale);
-        return invokeGetResult(getResultMethodHandle, left.compareTo(right));
+        return invokeGetResult(getResultMethodHandle, compareRescaled(a, aRescale, unscaledDecimal(b), bRescale));
     }
 
     @UsedByGeneratedCode
-    public static boolean opLongLong(Slice a, Slice b, BigInteger aRescale, BigInteger bRescale, MethodHandle getResultMethodHandle)
+    public static boolean opLongLong(Slice a, Slice b, int aRescale, int bRescale, MethodHandle getResultMethodHandle)
     {
-        BigInteger left = Decimals.decodeUnscaledValue(a).multiply(aRescale);
-        BigInteger right = Decimals.decodeUnscaledValue(b).multiply(bRescale);
-        return invokeGetResult(getResultMethodHandle, left.compareTo(right));
+        return invokeGetResult(getResultMethodHandle, compareRescaled(a, aRescale, b, bRescale));
     }
 
     private static boolean invokeGetResult(MethodHandle getResultMethodHandle, int comparisonResult)
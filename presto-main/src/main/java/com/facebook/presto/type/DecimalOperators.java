@@ -21,14 +21,13 @@ import com.facebook.presto.metadata.SqlScalarFunctionBuilder.SpecializeContext;
 import com.facebook.presto.operator.scalar.annotations.ScalarOperator;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.type.DecimalType;
-import com.facebook.presto.spi.type.Decimals;
 import com.facebook.presto.spi.type.TypeSignature;
+import com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import io.airlift.slice.Slice;
 import io.airlift.slice.XxHash64;
 
-import java.math.BigInteger;
 import java.util.List;
 
 import static com.facebook.presto.metadata.FunctionKind.SCALAR;
@@ -41,14 +40,17 @@ import static com.facebook.presto.metadata.OperatorType.NEGATION;
 import static com.facebook.presto.metadata.OperatorType.SUBTRACT;
 import static com.facebook.presto.metadata.Signature.longVariableExpression;
 import static com.facebook.presto.spi.StandardErrorCode.DIVISION_BY_ZERO;
-import static com.facebook.presto.spi.type.Decimals.bigIntegerTenToNth;
-import static com.facebook.presto.spi.type.Decimals.checkOverflow;
 import static com.facebook.presto.spi.type.Decimals.longTenToNth;
 import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.add;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.divideRoundUp;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.multiply;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.remainder;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.rescale;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.subtract;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimal;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimalToUnscaledLong;
 import static java.lang.Integer.max;
-import static java.math.BigInteger.ONE;
-import static java.math.BigInteger.TEN;
-import static java.math.BigInteger.ZERO;
 
 public final class DecimalOperators
 {
@@ -97,42 +99,43 @@ public final class DecimalOperators
     }
 
     @UsedByGeneratedCode
-    public static Slice addShortShortLong(long a, long b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice addShortShortLong(long a, long b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalAddLongLongLong(aBigInteger, bBigInteger, aRescale, bRescale);
+        return internalAddLongLongLong(unscaledDecimal(a), unscaledDecimal(b), aRescale, bRescale);
     }
 
     @UsedByGeneratedCode
-    public static Slice addLongLongLong(Slice a, Slice b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice addLongLongLong(Slice a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalAddLongLongLong(aBigInteger, bBigInteger, aRescale, bRescale);
+        return internalAddLongLongLong(a, b, aRescale, bRescale);
     }
 
     @UsedByGeneratedCode
-    public static Slice addShortLongLong(long a, Slice b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice addShortLongLong(long a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalAddLongLongLong(aBigInteger, bBigInteger, aRescale, bRescale);
+        return internalAddLongLongLong(unscaledDecimal(a), b, aRescale, bRescale);
     }
 
     @UsedByGeneratedCode
-    public static Slice addLongShortLong(Slice a, long b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice addLongShortLong(Slice a, long b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalAddLongLongLong(aBigInteger, bBigInteger, aRescale, bRescale);
+        return internalAddLongLongLong(a, unscaledDecimal(b), aRescale, bRescale);
     }
 
-    private static Slice internalAddLongLongLong(BigInteger aBigInteger, BigInteger bBigInteger, BigInteger aRescale, BigInteger bRescale)
+    private static Slice internalAddLongLongLong(Slice a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger result = aBigInteger.multiply(aRescale).add(bBigInteger.multiply(bRescale));
-        checkOverflow(result);
-        return Decimals.encodeUnscaledValue(result);
+        Slice result = unscaledDecimal();
+        // at most one of the operands is rescaled, and the result is used as its scratch space
+        if (aRescale != 0) {
+            rescale(a, aRescale, result);
+            a = result;
+        }
+        else if (bRescale != 0) {
+            rescale(b, bRescale, result);
+            b = result;
+        }
+        add(a, b, result);
+        return result;
     }
 
     private static SqlScalarFunction decimalSubtractOperator()
@@ -170,42 +173,42 @@ public final class DecimalOperators
     }
 
     @UsedByGeneratedCode
-    public static Slice subtractShortShortLong(long a, long b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice subtractShortShortLong(long a, long b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalSubtractLongLongLong(aBigInteger, bBigInteger, aRescale, bRescale);
+        return internalSubtractLongLongLong(unscaledDecimal(a), unscaledDecimal(b), aRescale, bRescale);
     }
 
     @UsedByGeneratedCode
-    public static Slice subtractLongLongLong(Slice a, Slice b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice subtractLongLongLong(Slice a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalSubtractLongLongLong(aBigInteger, bBigInteger, aRescale, bRescale);
+        return internalSubtractLongLongLong(a, b, aRescale, bRescale);
     }
 
     @UsedByGeneratedCode
-    public static Slice subtractShortLongLong(long a, Slice b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice subtractShortLongLong(long a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalSubtractLongLongLong(aBigInteger, bBigInteger, aRescale, bRescale);
+        return internalSubtractLongLongLong(unscaledDecimal(a), b, aRescale, bRescale);
     }
 
     @UsedByGeneratedCode
-    public static Slice subtractLongShortLong(Slice a, long b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice subtractLongShortLong(Slice a, long b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalSubtractLongLongLong(aBigInteger, bBigInteger, aRescale, bRescale);
+        return internalSubtractLongLongLong(a, unscaledDecimal(b), aRescale, bRescale);
     }
 
-    private static Slice internalSubtractLongLongLong(BigInteger aBigInteger, BigInteger bBigInteger, BigInteger aRescale, BigInteger bRescale)
+    private static Slice internalSubtractLongLongLong(Slice a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger result = aBigInteger.multiply(aRescale).subtract(bBigInteger.multiply(bRescale));
-        checkOverflow(result);
-        return Decimals.encodeUnscaledValue(result);
+        Slice result = unscaledDecimal();
+        if (aRescale != 0) {
+            rescale(a, aRescale, result);
+            a = result;
+        }
+        else if (bRescale != 0) {
+            rescale(b, bRescale, result);
+            b = result;
+        }
+        subtract(a, b, result);
+        return result;
     }
 
     private static SqlScalarFunction decimalMultiplyOperator()
@@ -239,40 +242,25 @@ public final class DecimalOperators
     @UsedByGeneratedCode
     public static Slice multiplyShortShortLong(long a, long b)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalMultiplyLongLongLong(aBigInteger, bBigInteger);
+        return multiply(unscaledDecimal(a), unscaledDecimal(b));
     }
 
     @UsedByGeneratedCode
     public static Slice multiplyLongLongLong(Slice a, Slice b)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalMultiplyLongLongLong(aBigInteger, bBigInteger);
+        return multiply(a, b);
     }
 
     @UsedByGeneratedCode
     public static Slice multiplyShortLongLong(long a, Slice b)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalMultiplyLongLongLong(aBigInteger, bBigInteger);
+        return multiply(unscaledDecimal(a), b);
     }
 
     @UsedByGeneratedCode
     public static Slice multiplyLongShortLong(Slice a, long b)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalMultiplyLongLongLong(aBigInteger, bBigInteger);
-    }
-
-    private static Slice internalMultiplyLongLongLong(BigInteger aBigInteger, BigInteger bBigInteger)
-    {
-        BigInteger result = aBigInteger.multiply(bBigInteger);
-        checkOverflow(result);
-        return Decimals.encodeUnscaledValue(result);
+        return multiply(a, unscaledDecimal(b));
     }
 
     private static SqlScalarFunction decimalDivideOperator()
@@ -316,8 +304,8 @@ public final class DecimalOperators
 
     private static List<Object> longDivideRescaleExtraParameter(SpecializeContext context)
     {
-        int rescaleFactor = divideRescaleFactor(context);
-        return ImmutableList.of(bigIntegerTenToNth(rescaleFactor));
+        // the long division rounds the exact quotient, so it does not need the extra decimal digit
+        return ImmutableList.of(divideRescaleFactor(context) - 1);
     }
 
     private static int divideRescaleFactor(SqlScalarFunctionBuilder.SpecializeContext context)
@@ -355,114 +343,39 @@ public final class DecimalOperators
     }
 
     @UsedByGeneratedCode
-    public static long divideShortLongShort(long a, Slice b, BigInteger aRescale)
+    public static long divideShortLongShort(long a, Slice b, int aRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalDivideShortResult(aBigInteger, bBigInteger, aRescale);
+        return unscaledDecimalToUnscaledLong(divideRoundUp(unscaledDecimal(a), aRescale, b));
     }
 
     @UsedByGeneratedCode
-    public static long divideLongShortShort(Slice a, long b, BigInteger aRescale)
-    {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalDivideShortResult(aBigInteger, bBigInteger, aRescale);
-    }
-
-    private static long internalDivideShortResult(BigInteger aBigInteger, BigInteger bBigInteger, BigInteger aRescale)
+    public static long divideLongShortShort(Slice a, long b, int aRescale)
     {
-        try {
-            return internalDivideDecimals(aBigInteger.multiply(aRescale), bBigInteger).longValue();
-        }
-        catch (ArithmeticException e) {
-            throw new PrestoException(DIVISION_BY_ZERO, e);
-        }
+        return unscaledDecimalToUnscaledLong(divideRoundUp(a, aRescale, unscaledDecimal(b)));
     }
 
     @UsedByGeneratedCode
-    public static Slice divideShortShortLong(long a, long b, BigInteger aRescale)
+    public static Slice divideShortShortLong(long a, long b, int aRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a).multiply(aRescale);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalDivideLongLongLong(aBigInteger, bBigInteger);
+        return divideRoundUp(unscaledDecimal(a), aRescale, unscaledDecimal(b));
     }
 
     @UsedByGeneratedCode
-    public static Slice divideLongLongLong(Slice a, Slice b, BigInteger aRescale)
+    public static Slice divideLongLongLong(Slice a, Slice b, int aRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a).multiply(aRescale);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalDivideLongLongLong(aBigInteger, bBigInteger);
+        return divideRoundUp(a, aRescale, b);
     }
 
     @UsedByGeneratedCode
-    public static Slice divideShortLongLong(long a, Slice b, BigInteger aRescale)
+    public static Slice divideShortLongLong(long a, Slice b, int aRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a).multiply(aRescale);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalDivideLongLongLong(aBigInteger, bBigInteger);
+        return divideRoundUp(unscaledDecimal(a), aRescale, b);
     }
 
     @UsedByGeneratedCode
-    public static Slice divideLongShortLong(Slice a, long b, BigInteger aRescale)
+    public static Slice divideLongShortLong(Slice a, long b, int aRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a).multiply(aRescale);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalDivideLongLongLong(aBigInteger, bBigInteger);
-    }
-
-    private static Slice internalDivideLongLongLong(BigInteger aBigInteger, BigInteger bBigInteger)
-    {
-        try {
-            BigInteger result = aBigInteger.divide(bBigInteger);
-            BigInteger resultModTen = result.mod(TEN);
-            if (result.signum() > 0) {
-                if (resultModTen.compareTo(BigInteger.valueOf(5)) >= 0) {
-                    result = result.divide(TEN).add(ONE);
-                }
-                else {
-                    result = result.divide(TEN);
-                }
-            }
-            else {
-                if (resultModTen.compareTo(BigInteger.valueOf(5)) < 0 && !resultModTen.equals(ZERO)) {
-                    result = result.divide(TEN).subtract(ONE);
-                }
-                else {
-                    result = result.divide(TEN);
-                }
-            }
-            checkOverflow(result);
-            return Decimals.encodeUnscaledValue(result);
-        }
-        catch (ArithmeticException e) {
-            throw new PrestoException(DIVISION_BY_ZERO, e);
-        }
-    }
-
-    private static BigInteger internalDivideDecimals(BigInteger aBigInteger, BigInteger bBigInteger)
-    {
-        BigInteger result = aBigInteger.divide(bBigInteger);
-        BigInteger resultModTen = result.mod(TEN);
-        if (result.signum() > 0) {
-            if (resultModTen.compareTo(BigInteger.valueOf(5)) >= 0) {
-                result = result.divide(TEN).add(ONE);
-            }
-            else {
-                result = result.divide(TEN);
-            }
-        }
-        else {
-            if (resultModTen.compareTo(BigInteger.valueOf(5)) < 0 && !resultModTen.equals(ZERO)) {
-                result = result.divide(TEN).subtract(ONE);
-            }
-            else {
-                result = result.divide(TEN);
-            }
-        }
-        checkOverflow(result);
-        return result;
+        return divideRoundUp(a, aRescale, unscaledDecimal(b));
     }
 
     private static SqlScalarFunction decimalModulusOperator()
@@ -499,8 +412,8 @@ public final class DecimalOperators
 
     private static List<Object> longRescaleExtraParameters(SpecializeContext context)
     {
-        BigInteger aRescale = bigIntegerTenToNth(rescaleFactor(context.getLiteral("a_scale"), context.getLiteral("b_scale")));
-        BigInteger bRescale = bigIntegerTenToNth(rescaleFactor(context.getLiteral("b_scale"), context.getLiteral("a_scale")));
+        int aRescale = rescaleFactor(context.getLiteral("a_scale"), context.getLiteral("b_scale"));
+        int bRescale = rescaleFactor(context.getLiteral("b_scale"), context.getLiteral("a_scale"));
         return ImmutableList.of(aRescale, bRescale);
     }
 
@@ -510,72 +423,39 @@ public final class DecimalOperators
     }
 
     @UsedByGeneratedCode
-    public static long modulusShortShortShort(long a, long b, BigInteger aRescale, BigInteger bRescale)
+    public static long modulusShortShortShort(long a, long b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalModulusShortResult(aBigInteger, bBigInteger, aRescale, bRescale);
+        return unscaledDecimalToUnscaledLong(remainder(unscaledDecimal(a), aRescale, unscaledDecimal(b), bRescale));
     }
 
     @UsedByGeneratedCode
-    public static Slice modulusLongLongLong(Slice a, Slice b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice modulusLongLongLong(Slice a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalModulusLongResult(aBigInteger, bBigInteger, aRescale, bRescale);
+        return remainder(a, aRescale, b, bRescale);
     }
 
     @UsedByGeneratedCode
-    public static Slice modulusShortLongLong(long a, Slice b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice modulusShortLongLong(long a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b);
-        return internalModulusLongResult(aBigInteger, bBigInteger, aRescale, bRescale);
+        return remainder(unscaledDecimal(a), aRescale, b, bRescale);
     }
 
     @UsedByGeneratedCode
-    public static long modulusShortLongShort(long a, Slice b, BigInteger aRescale, BigInteger bRescale)
+    public static long modulusShortLongShort(long a, Slice b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = BigInteger.valueOf(a).multiply(aRescale);
-        BigInteger bBigInteger = Decimals.decodeUnscaledValue(b).multiply(bRescale);
-        return internalModulusShortResult(aBigInteger, bBigInteger, aRescale, bRescale);
+        return unscaledDecimalToUnscaledLong(remainder(unscaledDecimal(a), aRescale, b, bRescale));
     }
 
     @UsedByGeneratedCode
-    public static long modulusLongShortShort(Slice a, long b, BigInteger aRescale, BigInteger bRescale)
+    public static long modulusLongShortShort(Slice a, long b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalModulusShortResult(aBigInteger, bBigInteger, aRescale, bRescale);
+        return unscaledDecimalToUnscaledLong(remainder(a, aRescale, unscaledDecimal(b), bRescale));
     }
 
     @UsedByGeneratedCode
-    public static Slice modulusLongShortLong(Slice a, long b, BigInteger aRescale, BigInteger bRescale)
+    public static Slice modulusLongShortLong(Slice a, long b, int aRescale, int bRescale)
     {
-        BigInteger aBigInteger = Decimals.decodeUnscaledValue(a);
-        BigInteger bBigInteger = BigInteger.valueOf(b);
-        return internalModulusLongResult(aBigInteger, bBigInteger, aRescale, bRescale);
-    }
-
-    private static long internalModulusShortResult(BigInteger aBigInteger, BigInteger bBigInteger, BigInteger aRescale, BigInteger bRescale)
-    {
-        try {
-            return aBigInteger.multiply(aRescale).remainder(bBigInteger.multiply(bRescale)).longValue();
-        }
-        catch (ArithmeticException e) {
-            throw new PrestoException(DIVISION_BY_ZERO, e);
-        }
-    }
-
-    private static Slice internalModulusLongResult(BigInteger aBigInteger, BigInteger bBigInteger, BigInteger aRescale, BigInteger bRescale)
-    {
-        try {
-            BigInteger result = aBigInteger.multiply(aRescale).remainder(bBigInteger.multiply(bRescale));
-            return Decimals.encodeUnscaledValue(result);
-        }
-        catch (ArithmeticException e) {
-            throw new PrestoException(DIVISION_BY_ZERO, e);
-        }
+        return remainder(a, aRescale, unscaledDecimal(b), bRescale);
     }
 
     @ScalarOperator(NEGATION)
@@ -592,8 +472,7 @@ public final class DecimalOperators
         @SqlType("decimal(p, s)")
         public static Slice negate(@SqlType("decimal(p, s)") Slice arg)
         {
-            BigInteger argBigInteger = Decimals.decodeUnscaledValue(arg);
-            return Decimals.encodeUnscaledValue(argBigInteger.negate());
+            return UnscaledDecimal128Arithmetic.negate(arg);
         }
     }
 
@@ -22,20 +22,18 @@ import com.facebook.presto.spi.type.Decimals;
 import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Slice;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.math.RoundingMode;
-
 import static com.facebook.presto.metadata.FunctionKind.SCALAR;
 import static com.facebook.presto.metadata.OperatorType.CAST;
 import static com.facebook.presto.metadata.Signature.withVariadicBound;
 import static com.facebook.presto.spi.StandardErrorCode.INVALID_CAST_ARGUMENT;
-import static com.facebook.presto.spi.type.Decimals.decodeUnscaledValue;
-import static com.facebook.presto.spi.type.Decimals.encodeUnscaledValue;
 import static com.facebook.presto.spi.type.Decimals.longTenToNth;
 import static com.facebook.presto.spi.type.Decimals.overflows;
 import static com.facebook.presto.spi.type.StandardTypes.DECIMAL;
 import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.overflows;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.rescale;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimal;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimalToUnscaledLong;
 import static java.lang.String.format;
 
 public final class DecimalToDecimalCasts
@@ -118,7 +116,7 @@ public final class DecimalToDecimalCasts
             long resultPrecision,
             long resultScale)
     {
-        return encodeUnscaledValue(bigintToBigintCast(BigInteger.valueOf(value), sourcePrecision, sourceScale, resultPrecision, resultScale));
+        return longToLongCast(unscaledDecimal(value), sourcePrecision, sourceScale, resultPrecision, resultScale);
     }
 
     @UsedByGeneratedCode
@@ -129,7 +127,16 @@ public final class DecimalToDecimalCasts
             long resultPrecision,
             long resultScale)
     {
-        return encodeUnscaledValue(bigintToBigintCast(decodeUnscaledValue(value), sourcePrecision, sourceScale, resultPrecision, resultScale));
+        int rescaleFactor = (int) (resultScale - sourceScale);
+        // a value that gains digits is checked before rescaling, so the rescaling cannot overflow
+        if (rescaleFactor > 0 && overflows(value, (int) resultPrecision - rescaleFactor)) {
+            throwCastException(value, sourceScale, resultPrecision, resultScale);
+        }
+        Slice result = rescale(value, rescaleFactor);
+        if (overflows(result, (int) resultPrecision)) {
+            throwCastException(value, sourceScale, resultPrecision, resultScale);
+        }
+        return result;
     }
 
     @UsedByGeneratedCode
@@ -140,22 +147,7 @@ public final class DecimalToDecimalCasts
             long resultPrecision,
             long resultScale)
     {
-        return bigintToBigintCast(decodeUnscaledValue(value), sourcePrecision, sourceScale, resultPrecision, resultScale).longValue();
-    }
-
-    private static BigInteger bigintToBigintCast(
-            BigInteger value,
-            long sourcePrecision,
-            long sourceScale,
-            long resultPrecision,
-            long resultScale)
-    {
-        BigDecimal bigDecimal = new BigDecimal(value, (int) sourceScale);
-        bigDecimal = bigDecimal.setScale((int) resultScale, RoundingMode.HALF_UP);
-        if (bigDecimal.precision() > resultPrecision) {
-            throwCastException(value, sourcePrecision, sourceScale, resultPrecision, resultScale);
-        }
-        return bigDecimal.unscaledValue();
+        return unscaledDecimalToUnscaledLong(longToLongCast(value, sourcePrecision, sourceScale, resultPrecision, resultScale));
     }
 
     private static void throwCastException(long value, long sourcePrecision, long sourceScale, long resultPrecision, long resultScale)
@@ -165,7 +157,7 @@ public final class DecimalToDecimalCasts
                 resultPrecision, resultScale));
     }
 
-    private static void throwCastException(BigInteger value, long sourcePrecision, long sourceScale, long resultPrecision, long resultScale)
+    private static void throwCastException(Slice value, long sourceScale, long resultPrecision, long resultScale)
     {
         throw new PrestoException(INVALID_CAST_ARGUMENT, format("Cannot cast DECIMAL '%s' to DECIMAL(%d, %d)",
                 Decimals.toString(value, (int) sourceScale),
@@ -24,11 +24,17 @@ import io.airlift.joni.Regex;
 import io.airlift.joni.Syntax;
 import io.airlift.slice.Slice;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.facebook.presto.spi.StandardErrorCode.INVALID_FUNCTION_ARGUMENT;
+import static com.facebook.presto.type.LikeMatcher.literalMatcher;
+import static com.facebook.presto.type.LikeMatcher.regexMatcher;
 import static io.airlift.joni.constants.MetaChar.INEFFECTIVE_META_CHAR;
 import static io.airlift.joni.constants.SyntaxProperties.OP_ASTERISK_ZERO_INF;
 import static io.airlift.joni.constants.SyntaxProperties.OP_DOT_ANYCHAR;
 import static io.airlift.joni.constants.SyntaxProperties.OP_LINE_ANCHOR;
+import static io.airlift.slice.Slices.utf8Slice;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 public final class LikeFunctions
@@ -53,31 +59,49 @@ public final class LikeFunctions
     // TODO: this should not be callable from SQL
     @ScalarFunction(value = "like", hidden = true)
     @SqlType(StandardTypes.BOOLEAN)
-    public static boolean like(@SqlType(StandardTypes.VARCHAR) Slice value, @SqlType(LikePatternType.NAME) Regex pattern)
+    public static boolean like(@SqlType(StandardTypes.VARCHAR) Slice value, @SqlType(LikePatternType.NAME) LikeMatcher pattern)
     {
-        // Joni can infinite loop with UTF8Encoding when invalid UTF-8 is encountered.
-        // NonStrictUTF8Encoding must be used to avoid this issue.
-        byte[] bytes = value.getBytes();
-        return regexMatches(pattern, bytes);
+        return pattern.matches(value);
     }
 
     @ScalarOperator(OperatorType.CAST)
     @SqlType(LikePatternType.NAME)
-    public static Regex likePattern(@SqlType(StandardTypes.VARCHAR) Slice pattern)
+    public static LikeMatcher likePattern(@SqlType(StandardTypes.VARCHAR) Slice pattern)
     {
-        return likeToPattern(pattern.toStringUtf8(), '0', false);
+        return likeToMatcher(pattern.toStringUtf8(), '0', false);
     }
 
     @ScalarFunction
     @SqlType(LikePatternType.NAME)
-    public static Regex likePattern(@SqlType(StandardTypes.VARCHAR) Slice pattern, @SqlType(StandardTypes.VARCHAR) Slice escape)
+    public static LikeMatcher likePattern(@SqlType(StandardTypes.VARCHAR) Slice pattern, @SqlType(StandardTypes.VARCHAR) Slice escape)
     {
-        return likeToPattern(pattern.toStringUtf8(), getEscapeChar(escape), true);
+        return likeToMatcher(pattern.toStringUtf8(), getEscapeChar(escape), true);
     }
 
-    private static boolean regexMatches(Regex regex, byte[] bytes)
+    private static LikeMatcher likeToMatcher(String patternString, char escapeChar, boolean shouldEscape)
     {
-        return regex.matcher(bytes).match(0, bytes.length, Option.NONE) != -1;
+        // split the pattern into the literals between % wildcards, unless it uses the _ wildcard
+        List<Slice> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(patternString.length());
+        boolean escaped = false;
+        for (char currentChar : patternString.toCharArray()) {
+            if (shouldEscape && !escaped && (currentChar == escapeChar)) {
+                escaped = true;
+            }
+            else if (!escaped && currentChar == '_') {
+                return regexMatcher(likeToPattern(patternString, escapeChar, shouldEscape));
+            }
+            else if (!escaped && currentChar == '%') {
+                literals.add(utf8Slice(literal.toString()));
+                literal.setLength(0);
+            }
+            else {
+                literal.append(currentChar);
+                escaped = false;
+            }
+        }
+        literals.add(utf8Slice(literal.toString()));
+        return literalMatcher(literals);
     }
 
     @SuppressWarnings("NestedSwitchStatement")
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.type;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.joni.Option;
+import io.airlift.joni.Regex;
+import io.airlift.slice.Slice;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compiled LIKE pattern.
+ * <p>
+ * A pattern that uses no wildcard other than {@code %} is a sequence of literals separated by {@code %},
+ * and is matched by comparing bytes: the first literal must be a prefix of the value, the last literal must
+ * be a suffix, and the literals in between must be found in order. This covers exact matches and patterns
+ * such as {@code 'abc%'}, {@code '%abc'} and {@code '%abc%'}. Other patterns are matched with a Joni regex.
+ */
+public final class LikeMatcher
+{
+    private final Regex regex;
+
+    // literals between the % wildcards, including the empty ones at the ends
+    private final Slice[] literals;
+    private final int minLength;
+
+    private LikeMatcher(Regex regex, List<Slice> literals)
+    {
+        this.regex = regex;
+        this.literals = literals.toArray(new Slice[literals.size()]);
+        this.minLength = literals.stream().mapToInt(Slice::length).sum();
+    }
+
+    public static LikeMatcher regexMatcher(Regex regex)
+    {
+        return new LikeMatcher(requireNonNull(regex, "regex is null"), ImmutableList.of());
+    }
+
+    /**
+     * Creates a matcher for the pattern made of {@code literals} separated by {@code %}.
+     */
+    public static LikeMatcher literalMatcher(List<Slice> literals)
+    {
+        requireNonNull(literals, "literals is null");
+        checkArgument(!literals.isEmpty(), "literals is empty");
+        return new LikeMatcher(null, literals);
+    }
+
+    public boolean matches(Slice value)
+    {
+        if (regex != null) {
+            // Joni can infinite loop with UTF8Encoding when invalid UTF-8 is encountered.
+            // NonStrictUTF8Encoding must be used to avoid this issue.
+            byte[] bytes = value.getBytes();
+            return regex.matcher(bytes).match(0, bytes.length, Option.NONE) != -1;
+        }
+
+        if (literals.length == 1) {
+            return value.equals(literals[0]);
+        }
+        if (value.length() < minLength) {
+            return false;
+        }
+
+        Slice prefix = literals[0];
+        if (!value.equals(0, prefix.length(), prefix, 0, prefix.length())) {
+            return false;
+        }
+        Slice suffix = literals[literals.length - 1];
+        int end = value.length() - suffix.length();
+        if (!value.equals(end, suffix.length(), suffix, 0, suffix.length())) {
+            return false;
+        }
+
+        // the leftmost match of each literal leaves the most room for the ones after it
+        int position = prefix.length();
+        for (int i = 1; i < literals.length - 1; i++) {
+            Slice literal = literals[i];
+            if (literal.length() == 0) {
+                continue;
+            }
+            int index = value.indexOf(literal, position);
+            if (index < 0 || index + literal.length() > end) {
+                return false;
+            }
+            position = index + literal.length();
+        }
+        return true;
+    }
+}
@@ -59,6 +59,7 @@ import static com.facebook.presto.type.FunctionParametricType.FUNCTION;
 import static com.facebook.presto.type.IntervalDayTimeType.INTERVAL_DAY_TIME;
 import static com.facebook.presto.type.IntervalYearMonthType.INTERVAL_YEAR_MONTH;
 import static com.facebook.presto.type.JoniRegexpType.JONI_REGEXP;
+import static com.facebook.presto.type.JsonPathSetType.JSON_PATH_SET;
 import static com.facebook.presto.type.JsonPathType.JSON_PATH;
 import static com.facebook.presto.type.JsonType.JSON;
 import static com.facebook.presto.type.LikePatternType.LIKE_PATTERN;
@@ -113,6 +114,7 @@ public final class TypeRegistry
         addType(RE2J_REGEXP);
         addType(LIKE_PATTERN);
         addType(JSON_PATH);
+        addType(JSON_PATH_SET);
         addType(COLOR);
         addType(JSON);
         addType(CODE_POINTS);
@@ -15,6 +15,7 @@ package com.facebook.presto.block;
 
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.InterleavedBlock;
 import com.facebook.presto.spi.block.InterleavedBlockBuilder;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
@@ -24,12 +25,17 @@ import io.airlift.slice.Slice;
 import org.testng.annotations.Test;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
@@ -61,6 +67,113 @@ public class TestInterleavedBlock
         assertBlockFilteredPositions(expectedValues, blockBuilder.build(), Ints.asList(2, 3, 4, 5, 8, 9, 12, 13));
     }
 
+    @Test
+    public void testFindKeyPosition()
+    {
+        InterleavedBlock block = createMapEntries();
+        int retainedSize = block.getRetainedSizeInBytes();
+
+        for (int map = 0; map < 2; map++) {
+            for (int key = -5; key < 120; key++) {
+                // a new region for each lookup, like the values of an array block
+                InterleavedBlock region = (InterleavedBlock) block.getRegion(map * 40, 40);
+                int keyPosition = findKeyPosition(region, key);
+                if (key >= map * 100 && key < map * 100 + 20) {
+                    assertEquals(keyPosition, (key - map * 100) * 2);
+                    assertEquals(BIGINT.getLong(region, keyPosition + 1), (key - map * 100) * 10);
+                }
+                else {
+                    assertEquals(keyPosition, -1);
+                }
+            }
+        }
+        // the index is only retained once it is used
+        assertEquals(block.getRetainedSizeInBytes(), retainedSize + 2 * sizeOfIntArray(80));
+        assertEquals(block.getRegion(40, 40).getRetainedSizeInBytes(), block.getRetainedSizeInBytes());
+
+        // a region that does not line up with the indexed regions is scanned
+        InterleavedBlock region = (InterleavedBlock) block.getRegion(0, 80);
+        assertEquals(findKeyPosition(region, 105), 50);
+        assertEquals(findKeyPosition(region, 50), -1);
+    }
+
+    @Test
+    public void testFindKeyPositionInOverlappingRegions()
+    {
+        InterleavedBlock block = createMapEntries();
+
+        // the first region is indexed, the regions that overlap it are scanned
+        InterleavedBlock overlapping = (InterleavedBlock) block.getRegion(20, 40);
+        assertEquals(findKeyPosition(overlapping, 10), 0);
+        assertEquals(findKeyPosition(overlapping, 109), 38);
+        assertEquals(findKeyPosition(overlapping, 9), -1);
+
+        for (int map = 0; map < 2; map++) {
+            InterleavedBlock region = (InterleavedBlock) block.getRegion(map * 40, 40);
+            for (int key = 0; key < 20; key++) {
+                assertEquals(findKeyPosition(region, map * 100 + key), key * 2);
+            }
+            assertEquals(findKeyPosition(region, (1 - map) * 100), -1);
+        }
+        assertEquals(findKeyPosition(overlapping, 110), -1);
+    }
+
+    @Test
+    public void testConcurrentFindKeyPosition()
+            throws Exception
+    {
+        // many small maps, so that the threads index regions while the others look up keys
+        int mapCount = 10_000;
+        InterleavedBlockBuilder blockBuilder = new InterleavedBlockBuilder(ImmutableList.of(BIGINT, BIGINT), new BlockBuilderStatus(), mapCount * 8);
+        for (int map = 0; map < mapCount; map++) {
+            for (int key = 0; key < 4; key++) {
+                BIGINT.writeLong(blockBuilder, map * 10 + key);
+                BIGINT.writeLong(blockBuilder, key);
+            }
+        }
+        InterleavedBlock block = blockBuilder.build();
+
+        ExecutorService executor = newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int map = 0; map < mapCount; map++) {
+                        InterleavedBlock region = (InterleavedBlock) block.getRegion(map * 8, 8);
+                        for (int key = 0; key < 5; key++) {
+                            assertEquals(findKeyPosition(region, map * 10 + key), key < 4 ? key * 2 : -1);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static InterleavedBlock createMapEntries()
+    {
+        // two maps with 20 entries each, the keys of the second map are the keys of the first map plus 100
+        InterleavedBlockBuilder blockBuilder = new InterleavedBlockBuilder(ImmutableList.of(BIGINT, BIGINT), new BlockBuilderStatus(), 80);
+        for (int map = 0; map < 2; map++) {
+            for (int key = 0; key < 20; key++) {
+                BIGINT.writeLong(blockBuilder, map * 100 + key);
+                BIGINT.writeLong(blockBuilder, key * 10);
+            }
+        }
+        return blockBuilder.build();
+    }
+
+    private static int findKeyPosition(InterleavedBlock block, long key)
+    {
+        // a poor hash function to exercise collisions
+        return block.findKeyPosition(key % 3, (hashedBlock, position) -> BIGINT.getLong(hashedBlock, position) % 3, (matchedBlock, position) -> BIGINT.getLong(matchedBlock, position) == key);
+    }
+
     private static InterleavedBlockBuilder createBlockBuilderWithValues(Slice[] expectedValues)
     {
         InterleavedBlockBuilder blockBuilder = new InterleavedBlockBuilder(TYPES, new BlockBuilderStatus(), expectedValues.length);
@@ -61,6 +61,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
@@ -130,6 +131,9 @@ public class BenchmarkNodeScheduler
                 FLAT})
         private String topologyName = LEGACY;
 
+        @Param({"false", "true"})
+        private boolean splitAffinity;
+
         private FinalizerService finalizerService = new FinalizerService();
         private NodeSelector nodeSelector;
         private Map<Node, MockRemoteTaskFactory.MockRemoteTask> taskMap = new HashMap<>();
@@ -154,7 +158,7 @@ public class BenchmarkNodeScheduler
                 Node node = nodes.get(i);
                 ImmutableList.Builder<Split> initialSplits = ImmutableList.builder();
                 for (int j = 0; j < MAX_SPLITS_PER_NODE + MAX_PENDING_SPLITS_PER_TASK_PER_NODE; j++) {
-                    initialSplits.add(new Split("foo", transactionHandle, new TestSplitRemote(i)));
+                    initialSplits.add(new Split("foo", transactionHandle, new TestSplitRemote(i, "file" + i)));
                 }
                 TaskId taskId = new TaskId("test", "1", i);
                 MockRemoteTaskFactory.MockRemoteTask remoteTask = remoteTaskFactory.createTableScanTask(taskId, node, initialSplits.build(), nodeTaskMap.createPartitionedSplitCountTracker(node, taskId));
@@ -163,7 +167,7 @@ public class BenchmarkNodeScheduler
             }
 
             for (int i = 0; i < SPLITS; i++) {
-                splits.add(new Split("foo", transactionHandle, new TestSplitRemote(ThreadLocalRandom.current().nextInt(DATA_NODES))));
+                splits.add(new Split("foo", transactionHandle, new TestSplitRemote(ThreadLocalRandom.current().nextInt(DATA_NODES), "file" + ThreadLocalRandom.current().nextInt(SPLITS / 10))));
             }
 
             InMemoryNodeManager nodeManager = new InMemoryNodeManager();
@@ -184,6 +188,7 @@ public class BenchmarkNodeScheduler
                             .setMaxSplitsPerNode(MAX_SPLITS_PER_NODE)
                             .setIncludeCoordinator(false)
                             .setNetworkTopology(topologyName)
+                            .setSplitAffinityEnabled(splitAffinity)
                             .setMaxPendingSplitsPerNodePerStage(MAX_PENDING_SPLITS_PER_TASK_PER_NODE);
         }
 
@@ -254,10 +259,12 @@ public class BenchmarkNodeScheduler
             implements ConnectorSplit
     {
         private final List<HostAddress> hosts;
+        private final String affinityKey;
 
-        public TestSplitRemote(int dataHost)
+        public TestSplitRemote(int dataHost, String affinityKey)
         {
             hosts = ImmutableList.of(addressForHost(dataHost));
+            this.affinityKey = affinityKey;
         }
 
         @Override
@@ -272,6 +279,12 @@ public class BenchmarkNodeScheduler
             return hosts;
         }
 
+        @Override
+        public Optional<String> getAffinityKey()
+        {
+            return Optional.of(affinityKey);
+        }
+
         @Override
         public Object getInfo()
         {
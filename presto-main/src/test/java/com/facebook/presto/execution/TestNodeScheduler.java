@@ -48,6 +48,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -57,6 +58,7 @@ import static com.facebook.presto.execution.scheduler.NetworkLocation.ROOT_LOCAT
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -297,6 +299,88 @@ public class TestNodeScheduler
         assertEquals(assignments.size(), 1);
     }
 
+    @Test
+    public void testSplitAffinity()
+            throws Exception
+    {
+        NodeSchedulerConfig nodeSchedulerConfig = new NodeSchedulerConfig()
+                .setMaxSplitsPerNode(20)
+                .setIncludeCoordinator(false)
+                .setMaxPendingSplitsPerNodePerStage(10)
+                .setSplitAffinityEnabled(true);
+        NodeSelector nodeSelector = new NodeScheduler(new LegacyNetworkTopology(), nodeManager, nodeSchedulerConfig, nodeTaskMap).createNodeSelector("foo");
+        TestingTransactionHandle transactionHandle = TestingTransactionHandle.create("foo");
+
+        // splits with the same key are assigned to the same node
+        Set<Node> usedNodes = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Split first = new Split("foo", transactionHandle, new TestSplitRemote("file" + i));
+            Split second = new Split("foo", transactionHandle, new TestSplitRemote("file" + i));
+            Node node = Iterables.getOnlyElement(nodeSelector.computeAssignments(ImmutableSet.of(first), ImmutableList.of()).keySet());
+            assertEquals(Iterables.getOnlyElement(nodeSelector.computeAssignments(ImmutableSet.of(second), ImmutableList.of()).keySet()), node);
+            usedNodes.add(node);
+        }
+        assertTrue(usedNodes.size() > 1);
+
+        // splits that do not fit on the preferred nodes go to the least loaded node
+        Set<Split> splits = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            splits.add(new Split("foo", transactionHandle, new TestSplitRemote("file")));
+        }
+        Multimap<Node, Split> assignments = nodeSelector.computeAssignments(splits, ImmutableList.of());
+        assertEquals(assignments.size(), 50);
+        assertEquals(assignments.keySet().stream().map(node -> assignments.get(node).size()).sorted().collect(toList()), ImmutableList.of(10, 20, 20));
+    }
+
+    @Test
+    public void testTopologyAwareSplitAffinity()
+            throws Exception
+    {
+        TestingTransactionHandle transactionHandle = TestingTransactionHandle.create("foo");
+        InMemoryNodeManager nodeManager = new InMemoryNodeManager();
+        Node localNode = new PrestoNode("node1", URI.create("http://host1.rack1:11"), NodeVersion.UNKNOWN);
+        nodeManager.addNode("foo", ImmutableList.of(
+                localNode,
+                new PrestoNode("node2", URI.create("http://host2.rack1:12"), NodeVersion.UNKNOWN),
+                new PrestoNode("node3", URI.create("http://host3.rack2:13"), NodeVersion.UNKNOWN)));
+
+        NodeSchedulerConfig nodeSchedulerConfig = new NodeSchedulerConfig()
+                .setMaxSplitsPerNode(20)
+                .setIncludeCoordinator(false)
+                .setNetworkTopology("test")
+                .setMaxPendingSplitsPerNodePerStage(10)
+                .setSplitAffinityEnabled(true);
+        TestNetworkTopology topology = new TestNetworkTopology();
+        NetworkLocationCache locationCache = new NetworkLocationCache(topology)
+        {
+            @Override
+            public NetworkLocation get(HostAddress host)
+            {
+                return topology.locate(host);
+            }
+        };
+        NodeScheduler nodeScheduler = new NodeScheduler(locationCache, topology, nodeManager, nodeSchedulerConfig, nodeTaskMap);
+        NodeSelector nodeSelector = nodeScheduler.createNodeSelector("foo");
+
+        // a node local to the data is preferred over the preferred nodes of the affinity key
+        for (int i = 0; i < 10; i++) {
+            Split split = new Split("foo", transactionHandle, new TestSplitRemote(HostAddress.fromParts("host1.rack1", 1), Optional.of("file" + i)));
+            assertEquals(Iterables.getOnlyElement(nodeSelector.computeAssignments(ImmutableSet.of(split), ImmutableList.of()).keySet()), localNode);
+        }
+        assertEquals(nodeScheduler.getTopologicalSplitCounters().get("machine").getTotalCount(), 10);
+        assertEquals(nodeScheduler.getAffinitySplitCounter().getTotalCount(), 0);
+
+        // without a node near the data, splits with the same key are assigned to the same node
+        for (int i = 0; i < 10; i++) {
+            Split first = new Split("foo", transactionHandle, new TestSplitRemote(HostAddress.fromParts("data.other_rack", 1), Optional.of("file" + i)));
+            Split second = new Split("foo", transactionHandle, new TestSplitRemote(HostAddress.fromParts("data.other_rack", 1), Optional.of("file" + i)));
+            Node node = Iterables.getOnlyElement(nodeSelector.computeAssignments(ImmutableSet.of(first), ImmutableList.of()).keySet());
+            assertEquals(Iterables.getOnlyElement(nodeSelector.computeAssignments(ImmutableSet.of(second), ImmutableList.of()).keySet()), node);
+        }
+        assertEquals(nodeScheduler.getAffinitySplitCounter().getTotalCount(), 20);
+        assertEquals(nodeScheduler.getTopologicalSplitCounters().get("all").getTotalCount(), 0);
+    }
+
     @Test
     public void testBasicAssignment()
             throws Exception
@@ -478,6 +562,7 @@ public class TestNodeScheduler
             implements ConnectorSplit
     {
         private final List<HostAddress> hosts;
+        private final Optional<String> affinityKey;
 
         public TestSplitRemote()
         {
@@ -485,8 +570,19 @@ public class TestNodeScheduler
         }
 
         public TestSplitRemote(HostAddress host)
+        {
+            this(host, Optional.empty());
+        }
+
+        public TestSplitRemote(String affinityKey)
+        {
+            this(HostAddress.fromString("127.0.0.1:" + ThreadLocalRandom.current().nextInt(5000)), Optional.of(affinityKey));
+        }
+
+        private TestSplitRemote(HostAddress host, Optional<String> affinityKey)
         {
             this.hosts = ImmutableList.of(requireNonNull(host, "host is null"));
+            this.affinityKey = requireNonNull(affinityKey, "affinityKey is null");
         }
 
         @Override
@@ -501,6 +597,12 @@ public class TestNodeScheduler
             return hosts;
         }
 
+        @Override
+        public Optional<String> getAffinityKey()
+        {
+            return affinityKey;
+        }
+
         @Override
         public Object getInfo()
         {
@@ -33,7 +33,8 @@ public class TestNodeSchedulerConfig
                 .setMaxSplitsPerNode(100)
                 .setMaxPendingSplitsPerNodePerStage(10)
                 .setIncludeCoordinator(true)
-                .setMultipleTasksPerNodeEnabled(false));
+                .setMultipleTasksPerNodeEnabled(false)
+                .setSplitAffinityEnabled(false));
     }
 
     @Test
@@ -46,6 +47,7 @@ public class TestNodeSchedulerConfig
                 .put("node-scheduler.max-pending-splits-per-node-per-stage", "11")
                 .put("node-scheduler.max-splits-per-node", "101")
                 .put("node-scheduler.multiple-tasks-per-node-enabled", "true")
+                .put("node-scheduler.split-affinity-enabled", "true")
                 .build();
 
         NodeSchedulerConfig expected = new NodeSchedulerConfig()
@@ -54,7 +56,8 @@ public class TestNodeSchedulerConfig
                 .setMultipleTasksPerNodeEnabled(true)
                 .setMaxSplitsPerNode(101)
                 .setMaxPendingSplitsPerNodePerStage(11)
-                .setMinCandidates(11);
+                .setMinCandidates(11)
+                .setSplitAffinityEnabled(true);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.sql.parser.SqlParser;
+import com.facebook.presto.sql.tree.Statement;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import org.openjdk.jol.info.GraphLayout;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.facebook.presto.execution.ParsedStatementCache.estimateRetainedSize;
+import static com.google.common.base.Strings.repeat;
+import static io.airlift.testing.Assertions.assertGreaterThan;
+import static io.airlift.testing.Assertions.assertGreaterThanOrEqual;
+import static io.airlift.testing.Assertions.assertLessThan;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class TestParsedStatementCache
+{
+    @Test
+    public void testRepeatedStatementHitsCache()
+    {
+        ParsedStatementCache cache = new ParsedStatementCache(new SqlParser(), new DataSize(10, KILOBYTE));
+
+        Statement statement = cache.getStatement("SELECT 1");
+        assertSame(cache.getStatement("SELECT 1"), statement);
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getMisses(), 1);
+
+        // the text is the key, so an equivalent statement is parsed again
+        assertNotSame(cache.getStatement("SELECT  1"), statement);
+        assertEquals(cache.getMisses(), 2);
+        assertEquals(cache.getSize(), 2);
+    }
+
+    @Test
+    public void testBoundedByEstimatedSize()
+    {
+        ParsedStatementCache cache = new ParsedStatementCache(new SqlParser(), new DataSize(4, KILOBYTE));
+
+        // a statement larger than the cache is never kept
+        String longStatement = "SELECT " + repeat("1 + ", 50) + "1";
+        assertGreaterThan(estimateRetainedSize(longStatement), new DataSize(4, KILOBYTE).toBytes());
+        cache.getStatement(longStatement);
+        cache.getStatement(longStatement);
+        assertEquals(cache.getHits(), 0);
+        assertEquals(cache.getSize(), 0);
+
+        cache.getStatement("SELECT 1");
+        cache.getStatement("SELECT 1");
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getSize(), 1);
+    }
+
+    @Test
+    public void testEstimatedSize()
+    {
+        SqlParser sqlParser = new SqlParser();
+        List<String> statements = ImmutableList.of(
+                "SELECT 1",
+                "SELECT * FROM orders",
+                "SELECT count(*) FROM lineitem WHERE quantity > 10",
+                "SELECT orderkey, totalprice FROM orders WHERE orderstatus = 'F' ORDER BY totalprice DESC LIMIT 10",
+                "SELECT\n" +
+                        "  l_orderkey,\n" +
+                        "  sum(l_extendedprice * (1 - l_discount)) AS revenue,\n" +
+                        "  o_orderdate,\n" +
+                        "  o_shippriority\n" +
+                        "FROM\n" +
+                        "  customer,\n" +
+                        "  orders,\n" +
+                        "  lineitem\n" +
+                        "WHERE\n" +
+                        "  c_mktsegment = 'BUILDING'\n" +
+                        "  AND c_custkey = o_custkey\n" +
+                        "  AND l_orderkey = o_orderkey\n" +
+                        "  AND o_orderdate < DATE '1995-03-15'\n" +
+                        "  AND l_shipdate > DATE '1995-03-15'\n" +
+                        "GROUP BY\n" +
+                        "  l_orderkey,\n" +
+                        "  o_orderdate,\n" +
+                        "  o_shippriority\n" +
+                        "ORDER BY\n" +
+                        "  revenue DESC,\n" +
+                        "  o_orderdate\n" +
+                        "LIMIT 10",
+                "SELECT\n" +
+                        "  o_year,\n" +
+                        "  sum(CASE\n" +
+                        "      WHEN nation = 'BRAZIL'\n" +
+                        "        THEN volume\n" +
+                        "      ELSE 0\n" +
+                        "      END) / sum(volume) AS mkt_share\n" +
+                        "FROM (\n" +
+                        "       SELECT\n" +
+                        "         extract(YEAR FROM o_orderdate)     AS o_year,\n" +
+                        "         l_extendedprice * (1 - l_discount) AS volume,\n" +
+                        "         n2.n_name                          AS nation\n" +
+                        "       FROM\n" +
+                        "         part,\n" +
+                        "         supplier,\n" +
+                        "         lineitem,\n" +
+                        "         orders,\n" +
+                        "         customer,\n" +
+                        "         nation n1,\n" +
+                        "         nation n2,\n" +
+                        "         region\n" +
+                        "       WHERE\n" +
+                        "         p_partkey = l_partkey\n" +
+                        "         AND s_suppkey = l_suppkey\n" +
+                        "         AND l_orderkey = o_orderkey\n" +
+                        "         AND o_custkey = c_custkey\n" +
+                        "         AND c_nationkey = n1.n_nationkey\n" +
+                        "         AND n1.n_regionkey = r_regionkey\n" +
+                        "         AND r_name = 'AMERICA'\n" +
+                        "         AND s_nationkey = n2.n_nationkey\n" +
+                        "         AND o_orderdate BETWEEN DATE '1995-01-01' AND DATE '1996-12-31'\n" +
+                        "         AND p_type = 'ECONOMY ANODIZED STEEL'\n" +
+                        "     ) AS all_nations\n" +
+                        "GROUP BY\n" +
+                        "  o_year\n" +
+                        "ORDER BY\n" +
+                        "  o_year");
+
+        // the estimate covers the statement and its text without overstating them by more than half
+        for (String sql : statements) {
+            Statement statement = sqlParser.createStatement(sql);
+            long retainedSize = GraphLayout.parseInstance(sql).totalSize() + GraphLayout.parseInstance(statement).totalSize();
+            long estimate = estimateRetainedSize(sql);
+            assertGreaterThanOrEqual(estimate, retainedSize, sql);
+            assertLessThan(estimate, retainedSize * 2, sql);
+        }
+    }
+}
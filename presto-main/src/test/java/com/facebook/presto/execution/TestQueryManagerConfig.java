@@ -15,12 +15,16 @@ package com.facebook.presto.execution;
 
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
 public class TestQueryManagerConfig
 {
     @Test
@@ -41,6 +45,7 @@ public class TestQueryManagerConfig
                 .setQueryExecutionPolicy("all-at-once")
                 .setQueryMaxRunTime(new Duration(100, TimeUnit.DAYS))
                 .setQueryMaxCpuTime(new Duration(1_000_000_000, TimeUnit.DAYS))
+                .setParsedStatementCacheSize(new DataSize(1, MEGABYTE))
         );
     }
 
@@ -62,6 +67,7 @@ public class TestQueryManagerConfig
                 .put("query.execution-policy", "phased")
                 .put("query.max-run-time", "2h")
                 .put("query.max-cpu-time", "2d")
+                .put("query.parsed-statement-cache-size", "10kB")
                 .build();
 
         QueryManagerConfig expected = new QueryManagerConfig()
@@ -78,7 +84,8 @@ public class TestQueryManagerConfig
                 .setRemoteTaskMaxCallbackThreads(10)
                 .setQueryExecutionPolicy("phased")
                 .setQueryMaxRunTime(new Duration(2, TimeUnit.HOURS))
-                .setQueryMaxCpuTime(new Duration(2, TimeUnit.DAYS));
+                .setQueryMaxCpuTime(new Duration(2, TimeUnit.DAYS))
+                .setParsedStatementCacheSize(new DataSize(10, KILOBYTE));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
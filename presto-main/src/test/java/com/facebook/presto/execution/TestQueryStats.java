@@ -52,6 +52,8 @@ public class TestQueryStats
             17.0,
             new DataSize(18, BYTE),
             new DataSize(19, BYTE),
+            new DataSize(191, BYTE),
+            new Duration(192, NANOSECONDS),
 
             new Duration(20, NANOSECONDS),
             new Duration(21, NANOSECONDS),
@@ -108,6 +110,8 @@ public class TestQueryStats
         assertEquals(actual.getCumulativeMemory(), 17.0);
         assertEquals(actual.getTotalMemoryReservation(), new DataSize(18, BYTE));
         assertEquals(actual.getPeakMemoryReservation(), new DataSize(19, BYTE));
+        assertEquals(actual.getRevokedMemory(), new DataSize(191, BYTE));
+        assertEquals(actual.getMemoryRevocationTime(), new Duration(192, NANOSECONDS));
 
         assertEquals(actual.getTotalScheduledTime(), new Duration(20, NANOSECONDS));
         assertEquals(actual.getTotalCpuTime(), new Duration(21, NANOSECONDS));
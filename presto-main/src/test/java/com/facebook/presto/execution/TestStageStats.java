@@ -47,6 +47,8 @@ public class TestStageStats
             12.0,
             new DataSize(13, BYTE),
             new DataSize(14, BYTE),
+            new DataSize(141, BYTE),
+            new Duration(142, NANOSECONDS),
 
             new Duration(15, NANOSECONDS),
             new Duration(16, NANOSECONDS),
@@ -95,6 +97,8 @@ public class TestStageStats
         assertEquals(actual.getCumulativeMemory(), 12.0);
         assertEquals(actual.getTotalMemoryReservation(), new DataSize(13, BYTE));
         assertEquals(actual.getPeakMemoryReservation(), new DataSize(14, BYTE));
+        assertEquals(actual.getRevokedMemory(), new DataSize(141, BYTE));
+        assertEquals(actual.getMemoryRevocationTime(), new Duration(142, NANOSECONDS));
 
         assertEquals(actual.getTotalScheduledTime(), new Duration(15, NANOSECONDS));
         assertEquals(actual.getTotalCpuTime(), new Duration(16, NANOSECONDS));
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.execution;
 
+import com.facebook.presto.execution.TaskExecutor.PrioritizedSplitRunner;
 import com.facebook.presto.execution.TaskExecutor.TaskHandle;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
@@ -26,7 +27,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestTaskExecutor
 {
@@ -150,6 +153,118 @@ public class TestTaskExecutor
         }
     }
 
+    @Test
+    public void testLevelTimeShares()
+    {
+        assertEquals(MultilevelSplitQueue.levelTimeShare(0), 16);
+        assertEquals(MultilevelSplitQueue.levelTimeShare(1), 8);
+        assertEquals(MultilevelSplitQueue.levelTimeShare(4), 1);
+    }
+
+    @Test
+    public void testSplitQueueLevelSelection()
+            throws Exception
+    {
+        TaskExecutor taskExecutor = new TaskExecutor(4, 8);
+        TaskHandle longQuery = taskExecutor.addTask(new TaskId("long_query", "0", 0), () -> 0, 10, new Duration(1, MILLISECONDS));
+        TaskHandle newQuery = taskExecutor.addTask(new TaskId("new_query", "0", 0), () -> 0, 10, new Duration(1, MILLISECONDS));
+        longQuery.addThreadUsageNanos(SECONDS.toNanos(400));
+
+        PrioritizedSplitRunner longSplit = createSplit(longQuery);
+        PrioritizedSplitRunner newSplit = createSplit(newQuery);
+        assertEquals(longSplit.getPriorityLevel(), 4);
+        assertEquals(newSplit.getPriorityLevel(), 0);
+
+        MultilevelSplitQueue queue = new MultilevelSplitQueue();
+
+        // level 0 has used 160ms of its share of 16, and level 4 has used 5ms of its share of 1
+        queue.addLevelTime(0, MILLISECONDS.toNanos(160));
+        queue.addLevelTime(4, MILLISECONDS.toNanos(5));
+        queue.offer(newSplit);
+        queue.offer(longSplit);
+        assertEquals(queue.size(4), 1);
+        assertEquals(queue.take(), longSplit);
+        assertEquals(queue.take(), newSplit);
+
+        // once level 4 has used more than its share, the split of the new query is taken first
+        queue.addLevelTime(4, MILLISECONDS.toNanos(20));
+        queue.offer(longSplit);
+        queue.offer(newSplit);
+        assertEquals(queue.take(), newSplit);
+        assertEquals(queue.take(), longSplit);
+        assertEquals(queue.size(), 0);
+    }
+
+    @Test
+    public void testSplitQueueQueryFairness()
+            throws Exception
+    {
+        TaskExecutor taskExecutor = new TaskExecutor(4, 8);
+        TaskHandle longQuery = taskExecutor.addTask(new TaskId("long_query", "0", 0), () -> 0, 10, new Duration(1, MILLISECONDS));
+        TaskHandle otherTask = taskExecutor.addTask(new TaskId("long_query", "1", 0), () -> 0, 10, new Duration(1, MILLISECONDS));
+        TaskHandle newQuery = taskExecutor.addTask(new TaskId("new_query", "0", 0), () -> 0, 10, new Duration(1, MILLISECONDS));
+
+        // time used by any task counts for the whole query, while each task stays in level 0
+        longQuery.addThreadUsageNanos(MILLISECONDS.toNanos(300));
+        otherTask.addThreadUsageNanos(MILLISECONDS.toNanos(300));
+
+        PrioritizedSplitRunner longSplit1 = createSplit(longQuery);
+        PrioritizedSplitRunner longSplit2 = createSplit(otherTask);
+        PrioritizedSplitRunner newSplit = createSplit(newQuery);
+        assertEquals(longSplit1.getPriorityLevel(), 0);
+        assertEquals(longSplit2.getPriorityLevel(), 0);
+
+        MultilevelSplitQueue queue = new MultilevelSplitQueue();
+        queue.offer(longSplit1);
+        queue.offer(longSplit2);
+        queue.offer(newSplit);
+
+        // the long running query yields to the new query, and its own splits keep their arrival order
+        assertEquals(queue.take(), newSplit);
+        assertEquals(queue.take(), longSplit1);
+        assertEquals(queue.take(), longSplit2);
+    }
+
+    private static PrioritizedSplitRunner createSplit(TaskHandle taskHandle)
+    {
+        PrioritizedSplitRunner split = new PrioritizedSplitRunner(taskHandle, new TestingJob(new Phaser(), new Phaser(), 1));
+        split.updatePriorityLevel();
+        return split;
+    }
+
+    @Test
+    public void testSplitQueueStats()
+            throws Exception
+    {
+        TaskExecutor taskExecutor = new TaskExecutor(4, 8);
+        taskExecutor.start();
+
+        try {
+            TaskHandle taskHandle = taskExecutor.addTask(new TaskId("test", "test", 0), () -> 0, 10, new Duration(1, MILLISECONDS));
+
+            Phaser beginPhase = new Phaser();
+            beginPhase.register();
+            Phaser verificationComplete = new Phaser();
+            verificationComplete.register();
+            TestingJob driver = new TestingJob(beginPhase, verificationComplete, 2);
+            ListenableFuture<?> future = getOnlyElement(taskExecutor.enqueueSplits(taskHandle, false, ImmutableList.of(driver)));
+
+            beginPhase.arriveAndAwaitAdvance();
+            verificationComplete.arriveAndAwaitAdvance();
+            beginPhase.arriveAndAwaitAdvance();
+            verificationComplete.arriveAndAwaitAdvance();
+            future.get(1, TimeUnit.SECONDS);
+
+            MultilevelSplitQueue.Level level = taskExecutor.getPendingSplitsQueue().getLevel0();
+            assertEquals(level.getQueuedTime().getAllTime().getCount(), 2.0);
+            assertTrue(level.getScheduledNanos() > 0);
+            assertEquals(taskExecutor.getPendingSplitsQueue().getLevel1().getScheduledNanos(), 0);
+        }
+        finally {
+            taskExecutor.stop();
+        }
+    }
+
     private static class TestingJob
             implements SplitRunner
     {
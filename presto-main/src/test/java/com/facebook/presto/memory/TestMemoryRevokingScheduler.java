@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import com.facebook.presto.operator.DriverContext;
+import com.facebook.presto.operator.OperatorContext;
+import com.facebook.presto.operator.TaskContext;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.testing.TestingTicker;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestMemoryRevokingScheduler
+{
+    private static final long ONE_MEGABYTE = new DataSize(1, MEGABYTE).toBytes();
+
+    private ExecutorService executor;
+    private MemoryPool pool;
+    private QueryContext queryContext;
+    private TaskContext taskContext;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+        pool = new MemoryPool(new MemoryPoolId("test"), new DataSize(10, MEGABYTE));
+        MemoryPool systemPool = new MemoryPool(new MemoryPoolId("testSystem"), new DataSize(10, MEGABYTE));
+        queryContext = new QueryContext(new QueryId("query"), new DataSize(10, MEGABYTE), pool, systemPool, executor);
+        taskContext = createTaskContext(queryContext, executor, TEST_SESSION, new DataSize(0, BYTE));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRevokesLargestHolders()
+    {
+        MemoryRevokingScheduler scheduler = new MemoryRevokingScheduler(ImmutableList.of(pool), () -> ImmutableList.of(queryContext), directExecutor(), 0.8, 0.5, new Duration(30, SECONDS));
+
+        DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+        OperatorContext small = driverContext.addOperatorContext(0, new PlanNodeId("small"), "small");
+        OperatorContext large = driverContext.addOperatorContext(1, new PlanNodeId("large"), "large");
+
+        assertTrue(small.tryReserveRevocableMemory(3 * ONE_MEGABYTE));
+        assertFalse(large.isMemoryRevokingRequested());
+
+        // crossing the threshold asks for enough memory to get back to the target
+        assertTrue(large.tryReserveRevocableMemory(6 * ONE_MEGABYTE));
+        assertEquals(pool.getReservedRevocableBytes(), 9 * ONE_MEGABYTE);
+        assertTrue(large.isMemoryRevokingRequested());
+        assertFalse(small.isMemoryRevokingRequested());
+        assertEquals(scheduler.getPendingRevocations(), 1);
+
+        // no more operators are asked while a revocation is in progress
+        scheduler.revokeMemory();
+        assertFalse(small.isMemoryRevokingRequested());
+
+        ListenableFuture<?> future = large.requestMemoryRevoking();
+        large.freeRevocableMemory(6 * ONE_MEGABYTE);
+        large.finishMemoryRevoking();
+        assertTrue(future.isDone());
+        assertFalse(large.isMemoryRevokingRequested());
+        assertEquals(scheduler.getPendingRevocations(), 0);
+
+        assertEquals(pool.getReservedRevocableBytes(), 3 * ONE_MEGABYTE);
+        assertEquals(pool.getRevokedBytes().getTotalCount(), 6 * ONE_MEGABYTE);
+        assertEquals(pool.getMemoryRevocationTime().getAllTime().getCount(), 1.0);
+        assertEquals(taskContext.getTaskStats().getRevokedMemory(), new DataSize(6, MEGABYTE));
+
+        // the pool is below the threshold again
+        scheduler.revokeMemory();
+        assertFalse(small.isMemoryRevokingRequested());
+        assertEquals(scheduler.getRevocationRequests().getTotalCount(), 1);
+    }
+
+    @Test
+    public void testUnresponsiveHolderTimesOut()
+    {
+        TestingTicker ticker = new TestingTicker();
+        MemoryRevokingScheduler scheduler = new MemoryRevokingScheduler(ImmutableList.of(pool), () -> ImmutableList.of(queryContext), directExecutor(), 0.8, 0.5, new Duration(30, SECONDS), ticker);
+
+        DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+        OperatorContext small = driverContext.addOperatorContext(0, new PlanNodeId("small"), "small");
+        OperatorContext large = driverContext.addOperatorContext(1, new PlanNodeId("large"), "large");
+
+        assertTrue(small.tryReserveRevocableMemory(3 * ONE_MEGABYTE));
+        assertTrue(large.tryReserveRevocableMemory(6 * ONE_MEGABYTE));
+        assertTrue(large.isMemoryRevokingRequested());
+        assertEquals(scheduler.getPendingRevocations(), 1);
+
+        // the largest holder never responds, which holds back the pool until the timeout passes
+        ticker.increment(29, SECONDS);
+        scheduler.revokeMemory();
+        assertFalse(small.isMemoryRevokingRequested());
+
+        ticker.increment(1, SECONDS);
+        scheduler.revokeMemory();
+        assertTrue(small.isMemoryRevokingRequested());
+        assertTrue(large.isMemoryRevokingRequested());
+        assertEquals(scheduler.getPendingRevocations(), 1);
+        assertEquals(scheduler.getRevocationTimeouts().getTotalCount(), 1);
+        assertEquals(scheduler.getRevocationRequests().getTotalCount(), 2);
+    }
+
+    @Test
+    public void testRevocableMemoryCountsTowardsQueryLimit()
+    {
+        OperatorContext operatorContext = taskContext.addPipelineContext(true, true).addDriverContext().addOperatorContext(0, new PlanNodeId("test"), "test");
+        assertTrue(operatorContext.tryReserveRevocableMemory(8 * ONE_MEGABYTE));
+        assertFalse(operatorContext.tryReserveMemory(3 * ONE_MEGABYTE));
+        assertFalse(operatorContext.tryReserveRevocableMemory(3 * ONE_MEGABYTE));
+
+        operatorContext.freeRevocableMemory(8 * ONE_MEGABYTE);
+        assertEquals(pool.getFreeBytes(), 10 * ONE_MEGABYTE);
+    }
+
+    @Test
+    public void testRevocableMemoryIsReported()
+    {
+        OperatorContext operatorContext = taskContext.addPipelineContext(true, true).addDriverContext().addOperatorContext(0, new PlanNodeId("test"), "test");
+        assertTrue(operatorContext.tryReserveMemory(ONE_MEGABYTE));
+        assertTrue(operatorContext.tryReserveRevocableMemory(2 * ONE_MEGABYTE));
+
+        assertEquals(pool.getInfo().getQueryMemoryReservations().get(new QueryId("query")), (Long) (3 * ONE_MEGABYTE));
+        assertEquals(taskContext.getTaskStats().getMemoryReservation(), new DataSize(3, MEGABYTE));
+
+        operatorContext.freeRevocableMemory(2 * ONE_MEGABYTE);
+        assertEquals(pool.getInfo().getQueryMemoryReservations().get(new QueryId("query")), (Long) ONE_MEGABYTE);
+        assertEquals(taskContext.getTaskStats().getMemoryReservation(), new DataSize(1, MEGABYTE));
+    }
+
+    @Test
+    public void testFinishedDriverCompletesRevocation()
+    {
+        DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+        OperatorContext operatorContext = driverContext.addOperatorContext(0, new PlanNodeId("test"), "test");
+        assertTrue(operatorContext.tryReserveRevocableMemory(ONE_MEGABYTE));
+
+        ListenableFuture<?> future = operatorContext.requestMemoryRevoking();
+        assertFalse(future.isDone());
+
+        driverContext.finished();
+        assertTrue(future.isDone());
+        assertEquals(pool.getReservedRevocableBytes(), 0);
+    }
+}
@@ -15,6 +15,7 @@ package com.facebook.presto.memory;
 
 import com.google.common.collect.ImmutableMap;
 import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
 import java.util.Map;
@@ -22,6 +23,8 @@ import java.util.Map;
 import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
 
 public class TestNodeMemoryConfig
@@ -34,6 +37,9 @@ public class TestNodeMemoryConfig
             DataSize expected = new DataSize(Runtime.getRuntime().maxMemory() * 0.1, BYTE);
             NodeMemoryConfig config = new NodeMemoryConfig();
             if (expected.equals(config.getMaxQueryMemoryPerNode())) {
+                assertEquals(config.getMemoryRevokingThreshold(), 0.9);
+                assertEquals(config.getMemoryRevokingTarget(), 0.5);
+                assertEquals(config.getMemoryRevokingTimeout(), new Duration(30, SECONDS));
                 return;
             }
         }
@@ -46,10 +52,16 @@ public class TestNodeMemoryConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("query.max-memory-per-node", "1GB")
+                .put("memory-revoking-threshold", "0.8")
+                .put("memory-revoking-target", "0.4")
+                .put("memory-revoking-timeout", "5s")
                 .build();
 
         NodeMemoryConfig expected = new NodeMemoryConfig()
-                .setMaxQueryMemoryPerNode(new DataSize(1, GIGABYTE));
+                .setMaxQueryMemoryPerNode(new DataSize(1, GIGABYTE))
+                .setMemoryRevokingThreshold(0.8)
+                .setMemoryRevokingTarget(0.4)
+                .setMemoryRevokingTimeout(new Duration(5, SECONDS));
 
         assertFullMapping(properties, expected);
     }
@@ -30,6 +30,7 @@ import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
@@ -67,6 +68,7 @@ import static io.airlift.testing.Assertions.assertEqualsIgnoreOrder;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
@@ -374,4 +376,54 @@ public class TestHashAggregationOperator
         assertEquals(actual.getTypes(), expected.getTypes());
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
+
+    @Test
+    public void testPartialAggregationRevokesMemory()
+            throws Exception
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(false, hashChannels, BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 500)
+                .build();
+
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                hashChannels,
+                Step.PARTIAL,
+                ImmutableList.of(LONG_SUM.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0)),
+                rowPagesBuilder.getHashChannel(),
+                100_000,
+                new DataSize(16, MEGABYTE));
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+        OperatorContext operatorContext = operator.getOperatorContext();
+
+        operator.addInput(input.get(0));
+        assertTrue(operator.needsInput());
+        assertTrue(operatorContext.getRevocableMemoryReservation() > 0);
+        assertEquals(operatorContext.getOperatorStats().getMemoryReservation().toBytes(), 0);
+
+        // the groups are flushed instead of taking more input
+        ListenableFuture<?> revoked = operatorContext.requestMemoryRevoking();
+        assertFalse(operator.needsInput());
+        List<Page> outputPages = new ArrayList<>();
+        for (Page output = operator.getOutput(); output != null; output = operator.getOutput()) {
+            outputPages.add(output);
+        }
+        assertTrue(revoked.isDone());
+        assertEquals(operatorContext.getRevocableMemoryReservation(), 0);
+        assertTrue(operator.needsInput());
+
+        outputPages.addAll(toPages(operator, input.subList(1, 2).iterator()));
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT)
+                .pages(rowPagesBuilder(BIGINT, BIGINT).addSequencePage(1000, 0, 0).build())
+                .build();
+        MaterializedResult actual = toMaterializedResult(operator.getOperatorContext().getSession(), operator.getTypes(), outputPages);
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
 }
@@ -46,6 +46,8 @@ import java.util.function.Function;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
+import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
@@ -53,6 +55,7 @@ import static com.google.common.collect.Iterables.concat;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
 
 @Test(singleThreaded = true)
 public class TestHashJoinOperator
@@ -132,6 +135,50 @@ public class TestHashJoinOperator
         assertOperatorEquals(joinOperator, probeInput, expected, true, getHashChannels(probePages, buildPages));
     }
 
+    @Test
+    public void testSmallProbeSelectionsAreCombined()
+            throws Exception
+    {
+        TaskContext taskContext = createTaskContext();
+
+        // build
+        List<Type> buildTypes = ImmutableList.<Type>of(VARCHAR);
+        RowPagesBuilder buildPages = rowPagesBuilder(false, Ints.asList(0), buildTypes)
+                .row("5")
+                .row("150")
+                .row("250");
+        LookupSourceSupplier lookupSourceSupplier = buildHash(false, taskContext, Ints.asList(0), buildPages, Optional.empty());
+
+        // probe, one match in each page
+        List<Type> probeTypes = ImmutableList.<Type>of(VARCHAR);
+        RowPagesBuilder probePages = rowPagesBuilder(false, Ints.asList(0), probeTypes);
+        List<Page> probeInput = probePages
+                .addSequencePage(100, 0)
+                .addSequencePage(100, 100)
+                .addSequencePage(100, 200)
+                .build();
+        OperatorFactory joinOperatorFactory = LookupJoinOperators.innerJoin(
+                0,
+                new PlanNodeId("test"),
+                lookupSourceSupplier,
+                probePages.getTypes(),
+                Ints.asList(0),
+                probePages.getHashChannel(),
+                false
+        );
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
+
+        // the copied probe rows of all pages are output together
+        List<Page> output = toPages(joinOperator, probeInput);
+        assertEquals(output.size(), 1);
+        MaterializedResult expected = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probeTypes, buildTypes))
+                .row("5", "5")
+                .row("150", "150")
+                .row("250", "250")
+                .build();
+        assertEquals(toMaterializedResult(taskContext.getSession(), expected.getTypes(), output), expected);
+    }
+
     @Test(dataProvider = "hashEnabledValues")
     public void testInnerJoinWithNullProbe(boolean parallelBuild, boolean probeHashEnabled, boolean buildHashEnabled)
             throws Exception
@@ -374,6 +421,139 @@ public class TestHashJoinOperator
         assertOperatorEquals(joinOperator, probeInput, expected, true, getHashChannels(probePages, buildPages));
     }
 
+    @Test(dataProvider = "hashEnabledValues")
+    public void testInnerJoinWithRangeFilterFunction(boolean parallelBuild, boolean probeHashEnabled, boolean buildHashEnabled)
+            throws Exception
+    {
+        TaskContext taskContext = createTaskContext();
+
+        // build.value BETWEEN probe.low AND probe.high
+        JoinFilterRange range = new JoinFilterRange(1, Optional.of(1), true, Optional.of(2), true, true);
+        JoinFilterFunction filterFunction = range.applyTo(new TestJoinFilterFunction((
+                (leftPosition, leftBlocks, rightPosition, rightBlocks) -> !leftBlocks[1].isNull(leftPosition) &&
+                        !rightBlocks[1].isNull(rightPosition) &&
+                        !rightBlocks[2].isNull(rightPosition) &&
+                        BIGINT.getLong(leftBlocks[1], leftPosition) >= BIGINT.getLong(rightBlocks[1], rightPosition) &&
+                        BIGINT.getLong(leftBlocks[1], leftPosition) <= BIGINT.getLong(rightBlocks[2], rightPosition))));
+
+        // build rows are not ordered on the range channel
+        List<Type> buildTypes = ImmutableList.<Type>of(VARCHAR, BIGINT);
+        RowPagesBuilder buildPages = rowPagesBuilder(buildHashEnabled, Ints.asList(0), buildTypes)
+                .row("a", 5L)
+                .row("a", 1L)
+                .row("b", 3L)
+                .pageBreak()
+                .row("a", 3L)
+                .row("a", null)
+                .row("b", 7L)
+                .row("a", 9L);
+        LookupSourceSupplier lookupSourceSupplier = buildHash(parallelBuild, taskContext, Ints.asList(0), buildPages, Optional.of(filterFunction));
+
+        // probe
+        List<Type> probeTypes = ImmutableList.<Type>of(VARCHAR, BIGINT, BIGINT);
+        RowPagesBuilder probePages = rowPagesBuilder(probeHashEnabled, Ints.asList(0), probeTypes);
+        List<Page> probeInput = probePages
+                .row("a", 2L, 5L)
+                .row("b", 0L, 10L)
+                .row("a", 6L, 8L)
+                .row("a", null, 4L)
+                .row("a", 9L, null)
+                .row("c", 0L, 10L)
+                .row("a", 0L, 100L)
+                .build();
+        OperatorFactory joinOperatorFactory = LookupJoinOperators.innerJoin(
+                0,
+                new PlanNodeId("test"),
+                lookupSourceSupplier,
+                probePages.getTypes(),
+                Ints.asList(0),
+                probePages.getHashChannel(),
+                true);
+
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
+
+        // expected
+        MaterializedResult expected = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probeTypes, buildTypes))
+                .row("a", 2L, 5L, "a", 3L)
+                .row("a", 2L, 5L, "a", 5L)
+                .row("b", 0L, 10L, "b", 3L)
+                .row("b", 0L, 10L, "b", 7L)
+                .row("a", 0L, 100L, "a", 1L)
+                .row("a", 0L, 100L, "a", 3L)
+                .row("a", 0L, 100L, "a", 5L)
+                .row("a", 0L, 100L, "a", 9L)
+                .build();
+
+        assertOperatorEquals(joinOperator, probeInput, expected, true, getHashChannels(probePages, buildPages));
+    }
+
+    @Test
+    public void testProbeOuterJoinWithRangeFilterFunctionAndNoJoinKeys()
+            throws Exception
+    {
+        TaskContext taskContext = createTaskContext();
+
+        // build.value > probe.low AND build.value <= probe.high
+        JoinFilterRange range = new JoinFilterRange(0, Optional.of(0), false, Optional.of(1), true, false);
+        JoinFilterFunction filterFunction = range.applyTo(new TestJoinFilterFunction((
+                (leftPosition, leftBlocks, rightPosition, rightBlocks) -> !leftBlocks[0].isNull(leftPosition) &&
+                        !rightBlocks[0].isNull(rightPosition) &&
+                        !rightBlocks[1].isNull(rightPosition) &&
+                        BIGINT.getLong(leftBlocks[0], leftPosition) > BIGINT.getLong(rightBlocks[0], rightPosition) &&
+                        BIGINT.getLong(leftBlocks[0], leftPosition) <= BIGINT.getLong(rightBlocks[1], rightPosition))));
+
+        // build
+        List<Type> buildTypes = ImmutableList.<Type>of(BIGINT);
+        RowPagesBuilder buildPages = rowPagesBuilder(buildTypes)
+                .row(4L)
+                .row(1L)
+                .row((Object) null)
+                .pageBreak()
+                .row(8L)
+                .row(6L)
+                .row(2L);
+        LookupSourceSupplier lookupSourceSupplier = buildHash(false, taskContext, ImmutableList.of(), buildPages, Optional.of(filterFunction));
+
+        // probe
+        List<Type> probeTypes = ImmutableList.<Type>of(BIGINT, BIGINT);
+        RowPagesBuilder probePages = rowPagesBuilder(probeTypes);
+        List<Page> probeInput = probePages
+                .row(1L, 4L)
+                .row(8L, 10L)
+                .row(null, 5L)
+                .row(0L, 100L)
+                .row(5L, null)
+                .row(6L, 6L)
+                .build();
+        OperatorFactory joinOperatorFactory = LookupJoinOperators.probeOuterJoin(
+                0,
+                new PlanNodeId("test"),
+                lookupSourceSupplier,
+                probePages.getTypes(),
+                ImmutableList.of(),
+                Optional.empty(),
+                true);
+
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
+
+        // expected
+        MaterializedResult expected = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probeTypes, buildTypes))
+                .row(1L, 4L, 2L)
+                .row(1L, 4L, 4L)
+                .row(8L, 10L, null)
+                .row(null, 5L, null)
+                .row(0L, 100L, 1L)
+                .row(0L, 100L, 2L)
+                .row(0L, 100L, 4L)
+                .row(0L, 100L, 6L)
+                .row(0L, 100L, 8L)
+                .row(5L, null, null)
+                .row(6L, 6L, null)
+                .build();
+
+        assertOperatorEquals(joinOperator, probeInput, expected);
+    }
+
     @Test(dataProvider = "hashEnabledValues")
     public void testOuterJoinWithNullProbe(boolean parallelBuild, boolean probeHashEnabled, boolean buildHashEnabled)
             throws Exception
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.block.BlockAssertions.createLongDictionaryBlock;
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
+import static com.facebook.presto.block.BlockAssertions.createStringSequenceBlock;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestInputPositionsBuilder
+{
+    private static final Page PAGE = new Page(
+            createLongSequenceBlock(0, 20),
+            createStringSequenceBlock(0, 20),
+            createLongDictionaryBlock(0, 20));
+
+    @Test
+    public void testConsecutivePositions()
+    {
+        Block[] blocks = build(5, 6, 7, 8, 9, 10);
+        for (int channel = 0; channel < blocks.length; channel++) {
+            // a region of the input block
+            assertEquals(blocks[channel].getClass(), PAGE.getBlock(channel).getClass());
+        }
+        assertValues(blocks, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    public void testRepeatedPosition()
+    {
+        Block[] blocks = build(3, 3, 3, 3, 3, 3);
+        for (Block block : blocks) {
+            assertTrue(block instanceof RunLengthEncodedBlock);
+        }
+        assertValues(blocks, 3, 3, 3, 3, 3, 3);
+    }
+
+    @Test
+    public void testDictionary()
+    {
+        Block[] blocks = build(0, 0, 1, 1, 19, 19, 2, 7);
+        for (Block block : blocks) {
+            assertTrue(block instanceof DictionaryBlock);
+        }
+        // plain blocks share the ids and the dictionary source id
+        assertEquals(((DictionaryBlock) blocks[0]).getDictionarySourceId(), ((DictionaryBlock) blocks[1]).getDictionarySourceId());
+        // dictionary blocks are flattened
+        assertEquals(((DictionaryBlock) blocks[2]).getDictionary(), ((DictionaryBlock) PAGE.getBlock(2)).getDictionary());
+        assertValues(blocks, 0, 0, 1, 1, 19, 19, 2, 7);
+
+        Page page = new Page(blocks);
+        page.compact();
+        assertValues(page.getBlocks(), 0, 0, 1, 1, 19, 19, 2, 7);
+    }
+
+    @Test
+    public void testSmallSelectionIsCopied()
+    {
+        Block[] blocks = build(0, 19);
+        for (Block block : blocks) {
+            assertFalse(block instanceof DictionaryBlock);
+            assertEquals(block.getPositionCount(), 2);
+        }
+        assertValues(blocks, 0, 19);
+    }
+
+    @Test
+    public void testReuseForNextPage()
+    {
+        InputPositionsBuilder builder = createBuilder();
+        builder.setPage(PAGE);
+        builder.appendPosition(4);
+        builder.appendPosition(2);
+        builder.build();
+        assertTrue(builder.isEmpty());
+
+        builder.setPage(PAGE);
+        for (int position : new int[] {1, 2, 3}) {
+            builder.appendPosition(position);
+        }
+        assertEquals(builder.getPositionCount(), 3);
+        assertValues(builder.build(), 1, 2, 3);
+    }
+
+    @Test
+    public void testCopiedPositionsAreKeptAcrossPages()
+    {
+        InputPositionsBuilder builder = createBuilder();
+        builder.setPage(PAGE);
+        builder.appendPosition(0);
+        builder.appendPosition(19);
+        assertFalse(builder.finishPage());
+
+        builder.setPage(PAGE);
+        builder.appendPosition(7);
+        assertFalse(builder.finishPage());
+        assertEquals(builder.getPositionCount(), 3);
+        assertTrue(builder.getSizeInBytes() > 0);
+
+        // positions that follow copied positions are copied as well
+        builder.setPage(PAGE);
+        for (int position = 5; position < 15; position++) {
+            builder.appendPosition(position);
+        }
+        assertFalse(builder.finishPage());
+
+        Block[] blocks = builder.build();
+        for (Block block : blocks) {
+            assertFalse(block instanceof DictionaryBlock);
+        }
+        assertValues(blocks, 0, 19, 7, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14);
+        assertTrue(builder.isEmpty());
+
+        // a large selection references the page, so it is built before the next page
+        builder.setPage(PAGE);
+        for (int position : new int[] {0, 0, 1, 1, 19, 19, 2, 7}) {
+            builder.appendPosition(position);
+        }
+        assertTrue(builder.finishPage());
+        assertTrue(builder.build()[0] instanceof DictionaryBlock);
+    }
+
+    private static Block[] build(int... positions)
+    {
+        InputPositionsBuilder builder = createBuilder();
+        builder.setPage(PAGE);
+        for (int position : positions) {
+            builder.appendPosition(position);
+        }
+        assertEquals(builder.getPositionCount(), positions.length);
+        return builder.build();
+    }
+
+    private static InputPositionsBuilder createBuilder()
+    {
+        return new InputPositionsBuilder(ImmutableList.of(BIGINT, VARCHAR, BIGINT), ImmutableList.of(0, 1, 2));
+    }
+
+    private static void assertValues(Block[] blocks, int... positions)
+    {
+        assertEquals(blocks.length, PAGE.getChannelCount());
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(BIGINT.getLong(blocks[0], i), BIGINT.getLong(PAGE.getBlock(0), positions[i]));
+            assertEquals(VARCHAR.getSlice(blocks[1], i), VARCHAR.getSlice(PAGE.getBlock(1), positions[i]));
+            assertEquals(BIGINT.getLong(blocks[2], i), BIGINT.getLong(PAGE.getBlock(2), positions[i]));
+        }
+    }
+}
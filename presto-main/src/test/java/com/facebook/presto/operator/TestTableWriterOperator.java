@@ -26,6 +26,7 @@ import com.facebook.presto.split.PageSinkManager;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.TableWriterNode;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.slice.Slice;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -130,6 +131,20 @@ public class TestTableWriterOperator
         operator.addInput(rowPagesBuilder(BIGINT).row(42).build().get(0));
     }
 
+    @Test
+    public void testPageSinkInfo()
+            throws Exception
+    {
+        BlockingPageSink blockingPageSink = new BlockingPageSink();
+        Operator operator = createTableWriterOperator(blockingPageSink);
+
+        assertEquals(operator.getOperatorContext().getOperatorStats().getInfo(), ImmutableMap.of("pages", 0));
+
+        operator.addInput(rowPagesBuilder(BIGINT).row(42).build().get(0));
+
+        assertEquals(operator.getOperatorContext().getOperatorStats().getInfo(), ImmutableMap.of("pages", 1));
+    }
+
     private Operator createTableWriterOperator(BlockingPageSink blockingPageSink)
     {
         PageSinkManager pageSinkProvider = new PageSinkManager();
@@ -179,14 +194,22 @@ public class TestTableWriterOperator
             implements ConnectorPageSink
     {
         private CompletableFuture<?> future = new CompletableFuture<>();
+        private int pages;
 
         @Override
         public CompletableFuture<?> appendPage(Page page, Block sampleWeightBlock)
         {
+            pages++;
             future = new CompletableFuture<>();
             return future;
         }
 
+        @Override
+        public Object getInfo()
+        {
+            return ImmutableMap.of("pages", pages);
+        }
+
         @Override
         public Collection<Slice> finish()
         {
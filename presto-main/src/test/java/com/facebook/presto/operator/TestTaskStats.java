@@ -48,6 +48,8 @@ public class TestTaskStats
             11.0,
             new DataSize(12, BYTE),
             new DataSize(13, BYTE),
+            new DataSize(131, BYTE),
+            new Duration(132, NANOSECONDS),
             new Duration(14, NANOSECONDS),
             new Duration(15, NANOSECONDS),
             new Duration(16, NANOSECONDS),
@@ -97,6 +99,8 @@ public class TestTaskStats
         assertEquals(actual.getCumulativeMemory(), 11.0);
         assertEquals(actual.getMemoryReservation(), new DataSize(12, BYTE));
         assertEquals(actual.getSystemMemoryReservation(), new DataSize(13, BYTE));
+        assertEquals(actual.getRevokedMemory(), new DataSize(131, BYTE));
+        assertEquals(actual.getMemoryRevocationTime(), new Duration(132, NANOSECONDS));
 
         assertEquals(actual.getTotalScheduledTime(), new Duration(14, NANOSECONDS));
         assertEquals(actual.getTotalCpuTime(), new Duration(15, NANOSECONDS));
@@ -60,11 +60,13 @@ import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.facebook.presto.metadata.OperatorType.SUBSCRIPT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.VarcharType.createUnboundedVarcharType;
 import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.slice.Slices.utf8Slice;
 
@@ -101,7 +103,7 @@ public class BenchmarkMapSubscript
         @Param({"fix-width", "var-width", "dictionary"})
         private String name = "dictionary";
 
-        @Param({"1", "13"})
+        @Param({"1", "13", "100"})
         private int mapSize = 13;
 
         private PageBuilder pageBuilder;
@@ -123,6 +125,11 @@ public class BenchmarkMapSubscript
                     keys = ImmutableList.of("is_inverted", "device_model", "country", "carrier_id", "network_type", "os_version",
                             "device_brand", "device_type", "interface", "device_os", "app_version", "device_type_class", "browser");
                     break;
+                case 100:
+                    keys = IntStream.range(0, mapSize)
+                            .mapToObj(i -> "key_" + i)
+                            .collect(toImmutableList());
+                    break;
                 default:
                     throw new UnsupportedOperationException();
             }
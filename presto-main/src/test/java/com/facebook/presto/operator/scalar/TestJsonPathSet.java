@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.scalar;
+
+import com.facebook.presto.spi.block.Block;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+
+public class TestJsonPathSet
+{
+    private static final List<String> PATHS = ImmutableList.of(
+            "$",
+            "$.fuu",
+            "$.fuu.bar",
+            "$[\"fuu\"]",
+            "$.bar",
+            "$.bar.1",
+            "$.bar[01]",
+            "$.bar[2].baz",
+            "$.bar.0",
+            "$.baz[0][1]",
+            "$.missing");
+
+    @Test
+    public void testSameAsSinglePath()
+    {
+        assertSameAsSinglePath("");
+        assertSameAsSinglePath("1");
+        assertSameAsSinglePath("\"abc\"");
+        assertSameAsSinglePath("[1, 2, 3]");
+        assertSameAsSinglePath("{}");
+        assertSameAsSinglePath("{\"fuu\": 1}");
+        assertSameAsSinglePath("{\"fuu\": null}");
+        assertSameAsSinglePath("{\"fuu\": {\"bar\": \"x\"}}");
+        assertSameAsSinglePath("{\"fuu\": 1, \"fuu\": 2}");
+        assertSameAsSinglePath("{\"fuu\": {\"other\": 1}, \"fuu\": {\"bar\": 2}}");
+        assertSameAsSinglePath("{\"bar\": [\"a\", \"b\", {\"baz\": true}], \"baz\": [[1, 2], [3]]}");
+        assertSameAsSinglePath("{\"bar\": [[1], {\"x\": 2}, {\"baz\": 1.5}]}");
+        assertSameAsSinglePath("{\"bar\": {\"1\": \"field\", \"01\": \"other\"}}");
+        assertSameAsSinglePath("{\"bar\": [1, 2, 3], \"baz\": [1");
+        assertSameAsSinglePath("{\"fuu\": 1, \"bar\": [1, 2 3]}");
+        assertSameAsSinglePath("{\"fuu\": 1, \"bar\": ");
+    }
+
+    @Test
+    public void testDuplicatePaths()
+    {
+        JsonPathSet pathSet = new JsonPathSet(ImmutableList.of("$.fuu", "$.fuu", "$[\"fuu\"]"));
+        Block values = pathSet.extractScalars(utf8Slice("{\"fuu\": \"x\"}"));
+        assertEquals(values.getPositionCount(), 3);
+        for (int position = 0; position < 3; position++) {
+            assertEquals(VARCHAR.getSlice(values, position).toStringUtf8(), "x");
+        }
+    }
+
+    private static void assertSameAsSinglePath(String json)
+    {
+        Block values = new JsonPathSet(PATHS).extractScalars(utf8Slice(json));
+        assertEquals(values.getPositionCount(), PATHS.size());
+        for (int i = 0; i < PATHS.size(); i++) {
+            Slice expected = JsonExtract.extract(utf8Slice(json), new JsonPath(PATHS.get(i)).getScalarExtractor());
+            Slice actual = values.isNull(i) ? null : VARCHAR.getSlice(values, i);
+            assertEquals(actual, expected, "path " + PATHS.get(i) + " of " + json);
+        }
+    }
+}
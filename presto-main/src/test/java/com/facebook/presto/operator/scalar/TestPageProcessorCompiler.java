@@ -17,10 +17,15 @@ import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.metadata.Signature;
 import com.facebook.presto.operator.PageProcessor;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.block.DictionaryBlock;
 import com.facebook.presto.spi.block.RunLengthEncodedBlock;
 import com.facebook.presto.spi.block.SliceArrayBlock;
 import com.facebook.presto.spi.type.StandardTypes;
+import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.gen.ExpressionCompiler;
 import com.facebook.presto.sql.relational.CallExpression;
 import com.facebook.presto.sql.relational.ConstantExpression;
@@ -34,10 +39,14 @@ import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.testng.annotations.Test;
 
+import java.util.List;
+
 import static com.facebook.presto.block.BlockAssertions.createLongDictionaryBlock;
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
 import static com.facebook.presto.block.BlockAssertions.createRLEBlock;
 import static com.facebook.presto.metadata.FunctionKind.SCALAR;
 import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
+import static com.facebook.presto.metadata.OperatorType.ADD;
 import static com.facebook.presto.metadata.OperatorType.LESS_THAN;
 import static com.facebook.presto.metadata.Signature.internalOperator;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
@@ -46,6 +55,7 @@ import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static io.airlift.slice.Slices.wrappedIntArray;
 import static java.lang.Boolean.TRUE;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -145,6 +155,40 @@ public class TestPageProcessorCompiler
         assertEquals(BIGINT.getLong(rle.getValue(), 0), 5L);
     }
 
+    @Test
+    public void testLiteralsShareClass()
+            throws Exception
+    {
+        ExpressionCompiler compiler = new ExpressionCompiler(createTestMetadataManager());
+        Signature lessThan = internalOperator(LESS_THAN, BOOLEAN, ImmutableList.of(BIGINT, BIGINT));
+        Signature add = internalOperator(ADD, BIGINT, ImmutableList.of(BIGINT, BIGINT));
+        Page page = new Page(createLongSequenceBlock(0, 10));
+
+        // the shared literal is one parameter of the filter and the projection
+        PageProcessor processor = compiler.compilePageProcessor(
+                new CallExpression(lessThan, BOOLEAN, ImmutableList.of(new InputReferenceExpression(0, BIGINT), new ConstantExpression(3L, BIGINT))),
+                ImmutableList.of(new CallExpression(add, BIGINT, ImmutableList.of(new InputReferenceExpression(0, BIGINT), new ConstantExpression(3L, BIGINT))))).get();
+        PageProcessor otherProcessor = compiler.compilePageProcessor(
+                new CallExpression(lessThan, BOOLEAN, ImmutableList.of(new InputReferenceExpression(0, BIGINT), new ConstantExpression(7L, BIGINT))),
+                ImmutableList.of(new CallExpression(add, BIGINT, ImmutableList.of(new InputReferenceExpression(0, BIGINT), new ConstantExpression(7L, BIGINT))))).get();
+        assertEquals(processor.getClass(), otherProcessor.getClass());
+        assertEquals(compiler.getCacheSize(), 1);
+        assertEquals(compiler.getGeneratedPageProcessorClasses(), 1);
+
+        Block block = processor.processColumnar(null, page, ImmutableList.of(BIGINT)).getBlock(0);
+        assertEquals(block.getPositionCount(), 3);
+        assertEquals(BIGINT.getLong(block, 2), 5L);
+        Block otherBlock = otherProcessor.processColumnar(null, page, ImmutableList.of(BIGINT)).getBlock(0);
+        assertEquals(otherBlock.getPositionCount(), 7);
+        assertEquals(BIGINT.getLong(otherBlock, 6), 13L);
+
+        // constant projections are projected as RLE blocks of their value, so they are not shared
+        PageProcessor constantProcessor = compiler.compilePageProcessor(new ConstantExpression(TRUE, BOOLEAN), ImmutableList.of(new ConstantExpression(3L, BIGINT))).get();
+        PageProcessor otherConstantProcessor = compiler.compilePageProcessor(new ConstantExpression(TRUE, BOOLEAN), ImmutableList.of(new ConstantExpression(7L, BIGINT))).get();
+        assertFalse(constantProcessor.getClass().equals(otherConstantProcessor.getClass()));
+        assertEquals(BIGINT.getLong(otherConstantProcessor.processColumnar(null, page, ImmutableList.of(BIGINT)).getBlock(0), 0), 7L);
+    }
+
     @Test
     public void testSanityColumnarDictionary()
             throws Exception
@@ -182,6 +226,66 @@ public class TestPageProcessorCompiler
         assertFalse(outputPage.getBlock(0) instanceof DictionaryBlock);
     }
 
+    @Test
+    public void testCommonSubexpressions()
+            throws Exception
+    {
+        CallExpression lengthVarchar = new CallExpression(
+                new Signature("length", SCALAR, parseTypeSignature(StandardTypes.BIGINT), parseTypeSignature(StandardTypes.VARCHAR)), BIGINT, ImmutableList.of(new InputReferenceExpression(0, VARCHAR)));
+        Signature lessThan = internalOperator(LESS_THAN, BOOLEAN, ImmutableList.of(BIGINT, BIGINT));
+        Signature add = internalOperator(ADD, BIGINT, ImmutableList.of(BIGINT, BIGINT));
+        CallExpression filter = new CallExpression(lessThan, BOOLEAN, ImmutableList.of(lengthVarchar, new ConstantExpression(3L, BIGINT)));
+        CallExpression lengthPlusOne = new CallExpression(add, BIGINT, ImmutableList.of(lengthVarchar, new ConstantExpression(1L, BIGINT)));
+
+        PageProcessor processor = new ExpressionCompiler(createTestMetadataManager())
+                .compilePageProcessor(filter, ImmutableList.of(lengthVarchar, lengthPlusOne)).get();
+
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(new BlockBuilderStatus(), 6);
+        for (String value : asList("", "a", null, "abc", "ab", "abcd")) {
+            if (value == null) {
+                blockBuilder.appendNull();
+            }
+            else {
+                VARCHAR.writeSlice(blockBuilder, Slices.utf8Slice(value));
+            }
+        }
+        Block block = blockBuilder.build();
+        List<Type> types = ImmutableList.of(BIGINT, BIGINT);
+
+        PageBuilder pageBuilder = new PageBuilder(types);
+        assertEquals(processor.process(null, new Page(block), 0, block.getPositionCount(), pageBuilder), block.getPositionCount());
+        assertCommonSubexpressionsPage(pageBuilder.build());
+        assertCommonSubexpressionsPage(processor.processColumnar(null, new Page(block), types));
+        assertCommonSubexpressionsPage(processor.processColumnarDictionary(null, new Page(block), types));
+
+        // values must not be reused for another page
+        Page rlePage = new Page(new RunLengthEncodedBlock(block.getSingleValueBlock(1), 3));
+        Page outputPage = processor.processColumnarDictionary(null, rlePage, types);
+        assertEquals(outputPage.getPositionCount(), 3);
+        assertEquals(BIGINT.getLong(outputPage.getBlock(0), 2), 1L);
+        assertEquals(BIGINT.getLong(outputPage.getBlock(1), 2), 2L);
+
+        // values must not be reused when the same block is seen again in a later call
+        BlockBuilder growingBlock = VARCHAR.createBlockBuilder(new BlockBuilderStatus(), 2);
+        VARCHAR.writeSlice(growingBlock, Slices.utf8Slice("a"));
+        outputPage = processor.processColumnar(null, new Page(growingBlock), types);
+        assertEquals(outputPage.getPositionCount(), 1);
+        VARCHAR.writeSlice(growingBlock, Slices.utf8Slice("ab"));
+        outputPage = processor.processColumnar(null, new Page(growingBlock), types);
+        assertEquals(outputPage.getPositionCount(), 2);
+        assertEquals(BIGINT.getLong(outputPage.getBlock(0), 1), 2L);
+        assertEquals(BIGINT.getLong(outputPage.getBlock(1), 1), 3L);
+    }
+
+    private static void assertCommonSubexpressionsPage(Page page)
+    {
+        assertEquals(page.getPositionCount(), 3);
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            assertEquals(BIGINT.getLong(page.getBlock(0), position), (long) position);
+            assertEquals(BIGINT.getLong(page.getBlock(1), position), position + 1L);
+        }
+    }
+
     private static DictionaryBlock createDictionaryBlock(Slice[] expectedValues, int positionCount)
     {
         int dictionarySize = expectedValues.length;
@@ -14,14 +14,19 @@
 package com.facebook.presto.operator.window;
 
 import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.type.ArrayType;
 import org.intellij.lang.annotations.Language;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.IntegerType.INTEGER;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static org.testng.Assert.assertEquals;
 
 public class TestAggregateWindowFunction
         extends AbstractTestWindowFunction
@@ -532,4 +537,49 @@ public class TestAggregateWindowFunction
                         .row(null, null, null)
                         .build());
     }
+
+    @Test
+    public void testSlidingFrameOverLargePartition()
+    {
+        MaterializedResult actual = queryRunner.execute("" +
+                "SELECT x, " +
+                "sum(v) OVER (PARTITION BY x % 3 ORDER BY x ROWS BETWEEN 100 PRECEDING AND 20 FOLLOWING), " +
+                "count(v) OVER (PARTITION BY x % 3 ORDER BY x ROWS BETWEEN 100 PRECEDING AND 20 FOLLOWING), " +
+                "max(v) OVER (PARTITION BY x % 3 ORDER BY x ROWS BETWEEN 100 PRECEDING AND 20 FOLLOWING), " +
+                "array_agg(x) OVER (PARTITION BY x % 3 ORDER BY x ROWS BETWEEN 100 PRECEDING AND 20 FOLLOWING), " +
+                "sum(v) OVER (PARTITION BY x % 3 ORDER BY x ROWS BETWEEN CURRENT ROW AND UNBOUNDED FOLLOWING) " +
+                "FROM (SELECT x, IF(x % 7 = 0, NULL, x * 7919 % 1000) v FROM UNNEST(sequence(1, 2000)) t(x)) " +
+                "ORDER BY x");
+
+        MaterializedResult.Builder expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT, BIGINT, BIGINT, new ArrayType(BIGINT), BIGINT);
+        for (long x = 1; x <= 2000; x++) {
+            long firstPeer = (x - 1) % 3 + 1;
+            long frameStart = Math.max(firstPeer, x - 100 * 3);
+            long frameEnd = Math.min(2000, x + 20 * 3);
+
+            Long sum = null;
+            long count = 0;
+            Long max = null;
+            List<Long> values = new ArrayList<>();
+            for (long y = frameStart; y <= frameEnd; y += 3) {
+                values.add(y);
+                if (y % 7 != 0) {
+                    long v = y * 7919 % 1000;
+                    sum = (sum == null) ? v : sum + v;
+                    count++;
+                    max = (max == null) ? v : Math.max(max, v);
+                }
+            }
+
+            Long sumFollowing = null;
+            for (long y = x; y <= 2000; y += 3) {
+                if (y % 7 != 0) {
+                    long v = y * 7919 % 1000;
+                    sumFollowing = (sumFollowing == null) ? v : sumFollowing + v;
+                }
+            }
+            expected.row(x, sum, count, max, values, sumFollowing);
+        }
+        assertEquals(actual.getMaterializedRows(), expected.build().getMaterializedRows());
+    }
 }
@@ -13,7 +13,7 @@
  */
 package com.facebook.presto.sql;
 
-import io.airlift.joni.Regex;
+import com.facebook.presto.type.LikeMatcher;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.testng.annotations.Test;
@@ -21,6 +21,8 @@ import org.testng.annotations.Test;
 import static com.facebook.presto.type.LikeFunctions.like;
 import static com.facebook.presto.type.LikeFunctions.likePattern;
 import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.String.format;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -29,35 +31,35 @@ public class TestLikeFunctions
     @Test
     public void testLikeBasic()
     {
-        Regex regex = likePattern(utf8Slice("f%b__"));
+        LikeMatcher regex = likePattern(utf8Slice("f%b__"));
         assertTrue(like(utf8Slice("foobar"), regex));
     }
 
     @Test
     public void testLikeNewlineInPattern()
     {
-        Regex regex = likePattern(utf8Slice("%o\nbar"));
+        LikeMatcher regex = likePattern(utf8Slice("%o\nbar"));
         assertTrue(like(utf8Slice("foo\nbar"), regex));
     }
 
     @Test
     public void testLikeNewlineBeforeMatch()
     {
-        Regex regex = likePattern(utf8Slice("%b%"));
+        LikeMatcher regex = likePattern(utf8Slice("%b%"));
         assertTrue(like(utf8Slice("foo\nbar"), regex));
     }
 
     @Test
     public void testLikeNewlineInMatch()
     {
-        Regex regex = likePattern(utf8Slice("f%b%"));
+        LikeMatcher regex = likePattern(utf8Slice("f%b%"));
         assertTrue(like(utf8Slice("foo\nbar"), regex));
     }
 
     @Test(timeOut = 1000)
     public void testLikeUtf8Pattern()
     {
-        Regex regex = likePattern(utf8Slice("%\u540d\u8a89%"), utf8Slice("\\"));
+        LikeMatcher regex = likePattern(utf8Slice("%\u540d\u8a89%"), utf8Slice("\\"));
         assertFalse(like(utf8Slice("foo"), regex));
     }
 
@@ -66,7 +68,7 @@ public class TestLikeFunctions
     public void testLikeInvalidUtf8Value()
     {
         Slice value = Slices.wrappedBuffer(new byte[] {'a', 'b', 'c', (byte) 0xFF, 'x', 'y'});
-        Regex regex = likePattern(utf8Slice("%b%"), utf8Slice("\\"));
+        LikeMatcher regex = likePattern(utf8Slice("%b%"), utf8Slice("\\"));
         assertTrue(like(value, regex));
     }
 
@@ -74,7 +76,7 @@ public class TestLikeFunctions
     public void testBackslashesNoSpecialTreatment()
             throws Exception
     {
-        Regex regex = likePattern(utf8Slice("\\abc\\/\\\\"));
+        LikeMatcher regex = likePattern(utf8Slice("\\abc\\/\\\\"));
         assertTrue(like(utf8Slice("\\abc\\/\\\\"), regex));
     }
 
@@ -82,7 +84,7 @@ public class TestLikeFunctions
     public void testSelfEscaping()
             throws Exception
     {
-        Regex regex = likePattern(utf8Slice("\\\\abc\\%"), utf8Slice("\\"));
+        LikeMatcher regex = likePattern(utf8Slice("\\\\abc\\%"), utf8Slice("\\"));
         assertTrue(like(utf8Slice("\\abc%"), regex));
     }
 
@@ -90,7 +92,59 @@ public class TestLikeFunctions
     public void testAlternateEscapedCharacters()
             throws Exception
     {
-        Regex regex = likePattern(utf8Slice("xxx%x_xabcxx"), utf8Slice("x"));
+        LikeMatcher regex = likePattern(utf8Slice("xxx%x_xabcxx"), utf8Slice("x"));
         assertTrue(like(utf8Slice("x%_abcx"), regex));
     }
+
+    @Test
+    public void testLiteralPatterns()
+    {
+        assertLike("abc", "abc", true);
+        assertLike("abcd", "abc", false);
+        assertLike("", "", true);
+        assertLike("a", "", false);
+
+        assertLike("abcdef", "abc%", true);
+        assertLike("abc", "abc%", true);
+        assertLike("xabc", "abc%", false);
+
+        assertLike("defabc", "%abc", true);
+        assertLike("abcx", "%abc", false);
+
+        assertLike("xxabcxx", "%abc%", true);
+        assertLike("abc", "%abc%", true);
+        assertLike("abxc", "%abc%", false);
+        assertLike("", "%", true);
+        assertLike("anything", "%%", true);
+
+        assertLike("quickly and slowly", "%ly%ly%", true);
+        assertLike("quickly", "%ly%ly%", false);
+        assertLike("a-b-c", "a%b%c", true);
+        assertLike("a-c-b", "a%b%c", false);
+
+        // the prefix and suffix may not overlap
+        assertLike("aba", "ab%ba", false);
+        assertLike("abba", "ab%ba", true);
+        assertLike("abxab", "ab%ab%ab", false);
+
+        assertLike("foo\nbar", "foo%bar", true);
+        assertLike("\u540d\u8a89\u540d", "%\u8a89%", true);
+    }
+
+    @Test
+    public void testEscapedWildcards()
+    {
+        LikeMatcher matcher = likePattern(utf8Slice("50\\%%"), utf8Slice("\\"));
+        assertTrue(like(utf8Slice("50% off"), matcher));
+        assertFalse(like(utf8Slice("500 off"), matcher));
+
+        matcher = likePattern(utf8Slice("%a\\_b%"), utf8Slice("\\"));
+        assertTrue(like(utf8Slice("xa_by"), matcher));
+        assertFalse(like(utf8Slice("xacby"), matcher));
+    }
+
+    private static void assertLike(String value, String pattern, boolean expected)
+    {
+        assertEquals(like(utf8Slice(value), likePattern(utf8Slice(pattern))), expected, format("'%s' LIKE '%s'", value, pattern));
+    }
 }
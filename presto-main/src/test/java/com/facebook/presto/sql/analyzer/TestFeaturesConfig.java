@@ -41,8 +41,12 @@ public class TestFeaturesConfig
                 .setColocatedJoinsEnabled(false)
                 .setRedistributeWrites(true)
                 .setOptimizeMetadataQueries(false)
+                .setOptimizeMetadataAggregations(true)
+                .setPushDownLimits(true)
                 .setOptimizeHashGeneration(true)
                 .setOptimizeSingleDistinct(true)
+                .setRangeJoin(false)
+                .setFuseJsonExtractions(true)
                 .setPushTableWriteThroughUnion(true)
                 .setProcessingOptimization(DISABLED)
                 .setDictionaryAggregation(false)
@@ -65,8 +69,12 @@ public class TestFeaturesConfig
                 .put("colocated-joins-enabled", "true")
                 .put("redistribute-writes", "false")
                 .put("optimizer.optimize-metadata-queries", "true")
+                .put("optimizer.optimize-metadata-aggregations", "false")
+                .put("optimizer.push-down-limits", "false")
                 .put("optimizer.optimize-hash-generation", "false")
                 .put("optimizer.optimize-single-distinct", "false")
+                .put("optimizer.range-join", "true")
+                .put("optimizer.fuse-json-extractions", "false")
                 .put("optimizer.push-table-write-through-union", "false")
                 .put("optimizer.processing-optimization", "columnar_dictionary")
                 .put("optimizer.dictionary-aggregation", "true")
@@ -84,8 +92,12 @@ public class TestFeaturesConfig
                 .put("colocated-joins-enabled", "true")
                 .put("redistribute-writes", "false")
                 .put("optimizer.optimize-metadata-queries", "true")
+                .put("optimizer.optimize-metadata-aggregations", "false")
+                .put("optimizer.push-down-limits", "false")
                 .put("optimizer.optimize-hash-generation", "false")
                 .put("optimizer.optimize-single-distinct", "false")
+                .put("optimizer.range-join", "true")
+                .put("optimizer.fuse-json-extractions", "false")
                 .put("optimizer.push-table-write-through-union", "false")
                 .put("optimizer.processing-optimization", "columnar_dictionary")
                 .put("optimizer.dictionary-aggregation", "true")
@@ -103,8 +115,12 @@ public class TestFeaturesConfig
                 .setColocatedJoinsEnabled(true)
                 .setRedistributeWrites(false)
                 .setOptimizeMetadataQueries(true)
+                .setOptimizeMetadataAggregations(false)
+                .setPushDownLimits(false)
                 .setOptimizeHashGeneration(false)
                 .setOptimizeSingleDistinct(false)
+                .setRangeJoin(true)
+                .setFuseJsonExtractions(false)
                 .setPushTableWriteThroughUnion(false)
                 .setProcessingOptimization(COLUMNAR_DICTIONARY)
                 .setDictionaryAggregation(true)
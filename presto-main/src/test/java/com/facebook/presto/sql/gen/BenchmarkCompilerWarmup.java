@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.block.BlockJsonSerde;
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.CompilerConfig;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.facebook.presto.type.TypeDeserializer;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.json.ObjectMapperProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
+import static com.facebook.presto.metadata.OperatorType.ADD;
+import static com.facebook.presto.metadata.OperatorType.LESS_THAN;
+import static com.facebook.presto.metadata.OperatorType.MULTIPLY;
+import static com.facebook.presto.metadata.Signature.internalOperator;
+import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.spi.block.SortOrder.DESC_NULLS_LAST;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static io.airlift.testing.FileUtils.createTempDir;
+import static io.airlift.testing.FileUtils.deleteRecursively;
+
+/**
+ * Measures how long the first queries after a server restart wait for generated
+ * classes, with and without the classes recorded by the previous run, and how long
+ * generating the recorded classes at startup takes.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(3)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkCompilerWarmup
+{
+    private static final int EXPRESSION_SHAPES = 20;
+    private static final List<List<Type>> JOIN_SHAPES = ImmutableList.of(
+            ImmutableList.of(BIGINT, VARCHAR),
+            ImmutableList.of(BIGINT, BIGINT, DOUBLE),
+            ImmutableList.of(VARCHAR, BIGINT, DOUBLE, VARCHAR));
+
+    private File directory;
+    private CompilerConfig config;
+
+    @Setup
+    public void recordPreviousRun()
+    {
+        directory = createTempDir("compiler-warmup");
+        config = new CompilerConfig().setWarmupFile(new File(directory, "generated-classes.json"));
+
+        Compilers previousRun = new Compilers();
+        runQueries(previousRun);
+        previousRun.createManager(config).save();
+    }
+
+    @TearDown
+    public void deleteRecord()
+    {
+        deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public Compilers firstQueriesWithoutWarmup(Restarted restarted)
+    {
+        runQueries(restarted.compilers);
+        return restarted.compilers;
+    }
+
+    @Benchmark
+    public Compilers firstQueriesAfterWarmup(WarmedUp warmedUp)
+    {
+        runQueries(warmedUp.compilers);
+        return warmedUp.compilers;
+    }
+
+    @Benchmark
+    public CompilerWarmupManager warmup(Restarted restarted)
+    {
+        CompilerWarmupManager manager = restarted.compilers.createManager(config);
+        manager.warmUp();
+        return manager;
+    }
+
+    @State(Scope.Thread)
+    public static class Restarted
+    {
+        private Compilers compilers;
+
+        @Setup(Level.Invocation)
+        public void restart()
+        {
+            compilers = new Compilers();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WarmedUp
+    {
+        private Compilers compilers;
+
+        @Setup(Level.Invocation)
+        public void restartAndWarmUp(BenchmarkCompilerWarmup benchmark)
+        {
+            compilers = new Compilers();
+            compilers.createManager(benchmark.config).warmUp();
+        }
+    }
+
+    private static void runQueries(Compilers compilers)
+    {
+        for (int i = 0; i < EXPRESSION_SHAPES; i++) {
+            RowExpression filter = call(internalOperator(LESS_THAN, BOOLEAN, ImmutableList.of(BIGINT, BIGINT)), BOOLEAN, field(0, BIGINT), constant((long) i, BIGINT));
+            List<RowExpression> projections = ImmutableList.of(
+                    call(internalOperator(ADD, BIGINT, ImmutableList.of(BIGINT, BIGINT)), BIGINT, field(0, BIGINT), field(1, BIGINT)),
+                    call(internalOperator(MULTIPLY, DOUBLE, ImmutableList.of(DOUBLE, DOUBLE)), DOUBLE, field(2, DOUBLE), constant((double) i, DOUBLE)),
+                    field(3, VARCHAR));
+            compilers.expressionCompiler.compilePageProcessor(filter, projections);
+        }
+        for (List<Type> types : JOIN_SHAPES) {
+            compilers.joinCompiler.compileLookupSourceFactory(types, ImmutableList.of(0));
+            compilers.orderingCompiler.compilePagesIndexOrdering(types.subList(0, 2), ImmutableList.of(0, 1), ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_LAST));
+        }
+    }
+
+    public static class Compilers
+    {
+        private final MetadataManager metadata = createTestMetadataManager();
+        private final ExpressionCompiler expressionCompiler = new ExpressionCompiler(metadata);
+        private final JoinCompiler joinCompiler = new JoinCompiler();
+        private final OrderingCompiler orderingCompiler = new OrderingCompiler();
+
+        private CompilerWarmupManager createManager(CompilerConfig config)
+        {
+            ObjectMapperProvider objectMapperProvider = new ObjectMapperProvider();
+            objectMapperProvider.setJsonSerializers(ImmutableMap.<Class<?>, JsonSerializer<?>>of(
+                    Block.class, new BlockJsonSerde.Serializer(metadata.getBlockEncodingSerde())));
+            objectMapperProvider.setJsonDeserializers(ImmutableMap.<Class<?>, JsonDeserializer<?>>of(
+                    Type.class, new TypeDeserializer(metadata.getTypeManager()),
+                    Block.class, new BlockJsonSerde.Deserializer(metadata.getBlockEncodingSerde())));
+
+            return new CompilerWarmupManager(config, objectMapperProvider.get(), ImmutableMap.of(
+                    "pageProcessors", expressionCompiler.getPageProcessorHistory(),
+                    "lookupSourceFactories", joinCompiler.getLookupSourceFactoryHistory(),
+                    "pagesIndexOrderings", orderingCompiler.getPagesIndexOrderingHistory()));
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkCompilerWarmup.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
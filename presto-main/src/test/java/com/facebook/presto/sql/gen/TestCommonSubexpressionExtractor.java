@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.spi.type.StandardTypes;
+import com.facebook.presto.sql.relational.CallExpression;
+import com.facebook.presto.sql.relational.DeterminismEvaluator;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.facebook.presto.metadata.FunctionKind.SCALAR;
+import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
+import static com.facebook.presto.metadata.OperatorType.ADD;
+import static com.facebook.presto.metadata.OperatorType.LESS_THAN;
+import static com.facebook.presto.metadata.Signature.internalOperator;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.sql.gen.CommonSubexpressionExtractor.extractCommonSubexpressions;
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static com.facebook.presto.sql.relational.Signatures.trySignature;
+import static org.testng.Assert.assertEquals;
+
+public class TestCommonSubexpressionExtractor
+{
+    private static final DeterminismEvaluator DETERMINISM_EVALUATOR = new DeterminismEvaluator(createTestMetadataManager().getFunctionRegistry());
+
+    private static final Signature LENGTH = new Signature("length", SCALAR, parseTypeSignature(StandardTypes.BIGINT), parseTypeSignature(StandardTypes.VARCHAR));
+    private static final Signature RANDOM = new Signature("random", SCALAR, parseTypeSignature(StandardTypes.BIGINT), parseTypeSignature(StandardTypes.BIGINT));
+    private static final Signature ADD_BIGINT = internalOperator(ADD, BIGINT, ImmutableList.of(BIGINT, BIGINT));
+    private static final Signature LESS_THAN_BIGINT = internalOperator(LESS_THAN, BOOLEAN, ImmutableList.of(BIGINT, BIGINT));
+
+    @Test
+    public void testFilterAndProjections()
+    {
+        CallExpression length = call(LENGTH, BIGINT, field(0, VARCHAR));
+        RowExpression filter = call(LESS_THAN_BIGINT, BOOLEAN, length, constant(10L, BIGINT));
+        RowExpression projection = call(ADD_BIGINT, BIGINT, length, field(1, BIGINT));
+
+        assertEquals(extract(filter, projection), ImmutableList.of(length));
+        assertEquals(extract(filter, field(1, BIGINT)), ImmutableList.of());
+        assertEquals(extract(constant(true, BOOLEAN), length, length), ImmutableList.of(length));
+    }
+
+    @Test
+    public void testNested()
+    {
+        CallExpression length = call(LENGTH, BIGINT, field(0, VARCHAR));
+        CallExpression sum = call(ADD_BIGINT, BIGINT, length, field(1, BIGINT));
+        RowExpression filter = call(LESS_THAN_BIGINT, BOOLEAN, sum, constant(10L, BIGINT));
+
+        // length is only evaluated within sum, which is evaluated once
+        assertEquals(extract(filter, sum), ImmutableList.of(sum));
+
+        // inner expressions come first
+        assertEquals(extract(filter, sum, length), ImmutableList.of(length, sum));
+    }
+
+    @Test
+    public void testNotShared()
+    {
+        CallExpression random = call(RANDOM, BIGINT, constant(10L, BIGINT));
+        RowExpression nondeterministic = call(ADD_BIGINT, BIGINT, random, field(0, BIGINT));
+        assertEquals(extract(constant(true, BOOLEAN), nondeterministic, nondeterministic), ImmutableList.of());
+
+        CallExpression sum = call(ADD_BIGINT, BIGINT, field(0, BIGINT), field(1, BIGINT));
+        RowExpression withinTry = call(trySignature(BIGINT), BIGINT, sum);
+        assertEquals(extract(constant(true, BOOLEAN), sum, withinTry), ImmutableList.of());
+        assertEquals(extract(constant(true, BOOLEAN), withinTry, withinTry), ImmutableList.of());
+
+        RowExpression constantSum = call(ADD_BIGINT, BIGINT, constant(1L, BIGINT), constant(2L, BIGINT));
+        assertEquals(extract(constant(true, BOOLEAN), constantSum, constantSum), ImmutableList.of());
+    }
+
+    private static List<RowExpression> extract(RowExpression filter, RowExpression... projections)
+    {
+        return extractCommonSubexpressions(ImmutableList.<RowExpression>builder().add(filter).add(projections).build(), DETERMINISM_EVALUATOR);
+    }
+}
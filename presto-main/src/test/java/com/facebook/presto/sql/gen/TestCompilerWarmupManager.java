@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.block.BlockJsonSerde;
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.CompilerConfig;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.facebook.presto.sql.tree.QualifiedName;
+import com.facebook.presto.type.TypeDeserializer;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.json.ObjectMapperProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
+import static com.facebook.presto.metadata.OperatorType.ADD;
+import static com.facebook.presto.metadata.OperatorType.LESS_THAN;
+import static com.facebook.presto.metadata.Signature.internalOperator;
+import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.constantNull;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.testing.FileUtils.createTempDir;
+import static io.airlift.testing.FileUtils.deleteRecursively;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+
+public class TestCompilerWarmupManager
+{
+    private static final RowExpression FILTER = call(
+            internalOperator(LESS_THAN, BOOLEAN, ImmutableList.of(VARCHAR, VARCHAR)),
+            BOOLEAN,
+            field(1, VARCHAR),
+            constant(utf8Slice("abc"), VARCHAR));
+    private static final List<RowExpression> PROJECTIONS = ImmutableList.of(
+            call(internalOperator(ADD, BIGINT, ImmutableList.of(BIGINT, BIGINT)), BIGINT, field(0, BIGINT), constant(42L, BIGINT)),
+            constant(1.5, DOUBLE),
+            constantNull(VARCHAR));
+
+    @Test
+    public void testWarmUpAfterRestart()
+    {
+        File directory = createTempDir("compiler-warmup");
+        try {
+            assertWarmUpAfterRestart(new CompilerConfig().setWarmupFile(new File(directory, "generated-classes.json")));
+        }
+        finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void assertWarmUpAfterRestart(CompilerConfig config)
+    {
+        Compilers compilers = new Compilers();
+        compilers.expressionCompiler.compilePageProcessor(FILTER, PROJECTIONS);
+        compilers.expressionCompiler.compilePageProcessor(FILTER, PROJECTIONS);
+        compilers.expressionCompiler.compilePageProcessor(constant(true, BOOLEAN), ImmutableList.of(field(0, BIGINT)));
+        compilers.joinCompiler.compileLookupSourceFactory(ImmutableList.of(BIGINT, VARCHAR), ImmutableList.of(0));
+        compilers.orderingCompiler.compilePagesIndexOrdering(ImmutableList.of(VARCHAR), ImmutableList.of(1), ImmutableList.of(ASC_NULLS_LAST));
+        Signature maxBy = compilers.metadata.getFunctionRegistry().resolveFunction(QualifiedName.of("max_by"), ImmutableList.of(VARCHAR.getTypeSignature(), BIGINT.getTypeSignature()), false);
+        compilers.metadata.getFunctionRegistry().getAggregateFunctionImplementation(maxBy);
+        compilers.createManager(config).save();
+
+        Compilers restarted = new Compilers();
+        CompilerWarmupManager manager = restarted.createManager(config);
+        manager.warmUp();
+        assertEquals(manager.getGeneratedClasses(), 5);
+        assertEquals(manager.getFailedClasses(), 0);
+        assertEquals(restarted.expressionCompiler.getCacheSize(), 2);
+
+        // the recorded counts are halved, and the most frequent key comes first
+        CompilationHistory<?> pageProcessorHistory = restarted.expressionCompiler.getPageProcessorHistory();
+        assertEquals(ImmutableList.copyOf(pageProcessorHistory.getMostFrequent(10).values()), ImmutableList.of(1L, 1L));
+        assertEquals(ImmutableList.copyOf(restarted.joinCompiler.getLookupSourceFactoryHistory().getMostFrequent(10).values()), ImmutableList.of(1L));
+        assertEquals(restarted.metadata.getFunctionRegistry().getAggregationHistory().getMostFrequent(10).keySet(), ImmutableSet.of(maxBy));
+
+        // the keys, including their constants, survive the round trip through the file
+        assertEquals(pageProcessorHistory.getMostFrequent(10).keySet(), compilers.expressionCompiler.getPageProcessorHistory().getMostFrequent(10).keySet());
+    }
+
+    @Test
+    public void testHistoryCountsExpressionsThatShareAClass()
+    {
+        ExpressionCompiler expressionCompiler = new Compilers().expressionCompiler;
+        for (long value = 0; value < 3; value++) {
+            RowExpression filter = call(internalOperator(LESS_THAN, BOOLEAN, ImmutableList.of(BIGINT, BIGINT)), BOOLEAN, field(0, BIGINT), constant(value, BIGINT));
+            expressionCompiler.compilePageProcessor(filter, ImmutableList.of(field(0, BIGINT)));
+        }
+        assertEquals(expressionCompiler.getCacheSize(), 1);
+        assertEquals(ImmutableList.copyOf(expressionCompiler.getPageProcessorHistory().getMostFrequent(10).values()), ImmutableList.of(3L));
+    }
+
+    @Test
+    public void testSkipUnavailableKeys()
+            throws Exception
+    {
+        File directory = createTempDir("compiler-warmup");
+        try {
+            assertSkipUnavailableKeys(new CompilerConfig().setWarmupFile(new File(directory, "generated-classes.json")));
+        }
+        finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void assertSkipUnavailableKeys(CompilerConfig config)
+            throws Exception
+    {
+        Files.write(config.getWarmupFile().toPath(), ("{\"pageProcessors\":[" +
+                "{\"key\":{\"filter\":{\"@type\":\"input\",\"field\":0,\"type\":\"unknown_type\"},\"projections\":[]},\"count\":3}," +
+                "{\"key\":{\"filter\":{\"@type\":\"input\",\"field\":0,\"type\":\"boolean\"},\"projections\":[]},\"count\":3}]}").getBytes(UTF_8));
+
+        Compilers compilers = new Compilers();
+        CompilerWarmupManager manager = compilers.createManager(config);
+        manager.warmUp();
+        assertEquals(manager.getGeneratedClasses(), 1);
+        assertEquals(manager.getFailedClasses(), 1);
+        assertEquals(compilers.expressionCompiler.getCacheSize(), 1);
+    }
+
+    @Test
+    public void testMissingFile()
+    {
+        CompilerConfig config = new CompilerConfig().setWarmupFile(new File(createTempDir("compiler-warmup"), "missing.json"));
+        CompilerWarmupManager manager = new Compilers().createManager(config);
+        manager.warmUp();
+        assertEquals(manager.getGeneratedClasses(), 0);
+        assertEquals(manager.getFailedClasses(), 0);
+    }
+
+    @Test
+    public void testHistoryEvictsLeastFrequentKeys()
+    {
+        CompilationHistory<Integer> history = new CompilationHistory<>(Integer.class, key -> { });
+        int maxTrackedKeys = CompilationHistory.getMaxTrackedKeys();
+        for (int key = 0; key < maxTrackedKeys; key++) {
+            history.record(key);
+        }
+        for (int i = 0; i < 10; i++) {
+            history.record(0);
+        }
+        assertEquals(history.getTrackedKeyCount(), maxTrackedKeys);
+
+        // a new key evicts a quarter of the keys, and the counts of the others are halved
+        history.record(maxTrackedKeys);
+        assertEquals(history.getTrackedKeyCount(), maxTrackedKeys - maxTrackedKeys / 4 + 1);
+        Map<Integer, Long> mostFrequent = history.getMostFrequent(maxTrackedKeys);
+        assertEquals(mostFrequent.get(0), (Long) 6L);
+        assertEquals(mostFrequent.get(maxTrackedKeys), (Long) 1L);
+    }
+
+    private static class Compilers
+    {
+        private final MetadataManager metadata = createTestMetadataManager();
+        private final ExpressionCompiler expressionCompiler = new ExpressionCompiler(metadata);
+        private final JoinCompiler joinCompiler = new JoinCompiler();
+        private final OrderingCompiler orderingCompiler = new OrderingCompiler();
+
+        private CompilerWarmupManager createManager(CompilerConfig config)
+        {
+            ObjectMapperProvider objectMapperProvider = new ObjectMapperProvider();
+            objectMapperProvider.setJsonSerializers(ImmutableMap.<Class<?>, JsonSerializer<?>>of(
+                    Block.class, new BlockJsonSerde.Serializer(metadata.getBlockEncodingSerde())));
+            objectMapperProvider.setJsonDeserializers(ImmutableMap.<Class<?>, JsonDeserializer<?>>of(
+                    Type.class, new TypeDeserializer(metadata.getTypeManager()),
+                    Block.class, new BlockJsonSerde.Deserializer(metadata.getBlockEncodingSerde())));
+            ObjectMapper objectMapper = objectMapperProvider.get();
+
+            return new CompilerWarmupManager(config, objectMapper, ImmutableMap.of(
+                    "aggregations", metadata.getFunctionRegistry().getAggregationHistory(),
+                    "pageProcessors", expressionCompiler.getPageProcessorHistory(),
+                    "lookupSourceFactories", joinCompiler.getLookupSourceFactoryHistory(),
+                    "pagesIndexOrderings", orderingCompiler.getPagesIndexOrderingHistory()));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.spi.type.StandardTypes;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.gen.ConstantParameterExtractor.ConstantParameter;
+import com.facebook.presto.sql.gen.ConstantParameterExtractor.ParameterizedExpressions;
+import com.facebook.presto.sql.relational.ConstantExpression;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.metadata.FunctionKind.SCALAR;
+import static com.facebook.presto.metadata.OperatorType.ADD;
+import static com.facebook.presto.metadata.OperatorType.LESS_THAN;
+import static com.facebook.presto.metadata.Signature.internalOperator;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.sql.gen.ConstantParameterExtractor.extractConstantParameters;
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.constantNull;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static com.facebook.presto.sql.relational.Signatures.IN;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+
+public class TestConstantParameterExtractor
+{
+    private static final Signature IN_BIGINT = new Signature(IN, SCALAR, parseTypeSignature(StandardTypes.BOOLEAN));
+    private static final Signature ADD_BIGINT = internalOperator(ADD, BIGINT, ImmutableList.of(BIGINT, BIGINT));
+    private static final Signature LESS_THAN_BIGINT = internalOperator(LESS_THAN, BOOLEAN, ImmutableList.of(BIGINT, BIGINT));
+    private static final Signature LESS_THAN_VARCHAR = internalOperator(LESS_THAN, BOOLEAN, ImmutableList.of(VARCHAR, VARCHAR));
+
+    @Test
+    public void testEqualLiteralsShareParameter()
+    {
+        ParameterizedExpressions expressions = extractConstantParameters(
+                call(LESS_THAN_BIGINT, BOOLEAN, field(0, BIGINT), constant(10L, BIGINT)),
+                ImmutableList.of(
+                        call(ADD_BIGINT, BIGINT, field(0, BIGINT), constant(10L, BIGINT)),
+                        call(LESS_THAN_VARCHAR, BOOLEAN, field(1, VARCHAR), constant(utf8Slice("abc"), VARCHAR))));
+
+        assertEquals(expressions.getFilter(), call(LESS_THAN_BIGINT, BOOLEAN, field(0, BIGINT), parameter(0, BIGINT)));
+        assertEquals(expressions.getProjections(), ImmutableList.of(
+                call(ADD_BIGINT, BIGINT, field(0, BIGINT), parameter(0, BIGINT)),
+                call(LESS_THAN_VARCHAR, BOOLEAN, field(1, VARCHAR), parameter(1, VARCHAR))));
+        assertEquals(expressions.getParameterValues(), ImmutableList.of(10L, utf8Slice("abc")));
+    }
+
+    @Test
+    public void testKeptLiterals()
+    {
+        // booleans, nulls and constant projections are kept
+        RowExpression filter = constant(true, BOOLEAN);
+        ImmutableList<RowExpression> projections = ImmutableList.of(constant(10L, BIGINT), call(ADD_BIGINT, BIGINT, field(0, BIGINT), constantNull(BIGINT)));
+        ParameterizedExpressions expressions = extractConstantParameters(filter, projections);
+        assertEquals(expressions.getFilter(), filter);
+        assertEquals(expressions.getProjections(), projections);
+        assertEquals(expressions.getParameterValues(), ImmutableList.of());
+
+        // the values of IN are kept, and so is an equal literal elsewhere
+        filter = call(IN_BIGINT, BOOLEAN, field(0, BIGINT), constant(1L, BIGINT), constant(2L, BIGINT));
+        projections = ImmutableList.of(
+                call(ADD_BIGINT, BIGINT, field(0, BIGINT), constant(2L, BIGINT)),
+                call(ADD_BIGINT, BIGINT, field(0, BIGINT), constant(3L, BIGINT)));
+        expressions = extractConstantParameters(filter, projections);
+        assertEquals(expressions.getFilter(), filter);
+        assertEquals(expressions.getProjections(), ImmutableList.of(
+                call(ADD_BIGINT, BIGINT, field(0, BIGINT), constant(2L, BIGINT)),
+                call(ADD_BIGINT, BIGINT, field(0, BIGINT), parameter(0, BIGINT))));
+        assertEquals(expressions.getParameterValues(), ImmutableList.of(3L));
+    }
+
+    private static ConstantExpression parameter(int index, Type type)
+    {
+        return new ConstantExpression(new ConstantParameter(index), type);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class TestCompilerConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(ConfigAssertions.recordDefaults(CompilerConfig.class)
+                .setInterpreterEnabled(false)
+                .setWarmupFile(null)
+                .setWarmupMaxEntries(200)
+                .setWarmupSaveInterval(new Duration(10, MINUTES)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("compiler.interpreter-enabled", "true")
+                .put("compiler.warmup-file", "/tmp/generated-classes.json")
+                .put("compiler.warmup-max-entries", "50")
+                .put("compiler.warmup-save-interval", "30s")
+                .build();
+
+        CompilerConfig expected = new CompilerConfig()
+                .setInterpreterEnabled(true)
+                .setWarmupFile(new File("/tmp/generated-classes.json"))
+                .setWarmupMaxEntries(50)
+                .setWarmupSaveInterval(new Duration(30, SECONDS));
+
+        assertFullMapping(properties, expected);
+    }
+}
@@ -189,6 +189,10 @@ public class TestDecimalOperators
         assertDecimalFunction("DECIMAL '99999999999999999999999999999999999999' / DECIMAL '-11111111111111111111111111111111111111'", decimal("-00000000000000000000000000000000000009"));
         assertDecimalFunction("DECIMAL '9999999999999999999999.9' / DECIMAL '1111111111111111111111.100'", decimal("0000000000000000000000009.000"));
 
+        // halves are rounded away from zero
+        assertDecimalFunction("DECIMAL '.00000000000000000005' / DECIMAL '10'", decimal(".00000000000000000001"));
+        assertDecimalFunction("DECIMAL '-.00000000000000000005' / DECIMAL '10'", decimal("-.00000000000000000001"));
+
         // runtime overflow
         assertInvalidFunction("DECIMAL '12345678901234567890123456789012345678' / DECIMAL '.1'", NUMERIC_VALUE_OUT_OF_RANGE);
         assertInvalidFunction("DECIMAL '.12345678901234567890123456789012345678' / DECIMAL '.1'", NUMERIC_VALUE_OUT_OF_RANGE);
@@ -216,6 +220,7 @@ public class TestDecimalOperators
         assertDecimalFunction("DECIMAL '7.0000000000000000' % DECIMAL '3.0000000000000000'", decimal("1.0000000000000000"));
         assertDecimalFunction("DECIMAL '7.0000000000000000' % DECIMAL '3'", decimal("1.0000000000000000"));
         assertDecimalFunction("DECIMAL '7' % CAST(3 AS DECIMAL(17,0))", decimal("1"));
+        assertDecimalFunction("DECIMAL '3' % DECIMAL '10000000000000000.0'", decimal("3.0"));
         assertDecimalFunction("DECIMAL '.1' % DECIMAL '.03'", decimal(".01"));
         assertDecimalFunction("DECIMAL '.0001' % DECIMAL '.03'", decimal(".0001"));
         assertDecimalFunction("DECIMAL '-10' % DECIMAL '3'", decimal("-1"));
@@ -31,6 +31,7 @@ import org.testng.annotations.Test;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.block.BlockSerdeUtil.writeBlock;
@@ -48,6 +49,7 @@ import static com.facebook.presto.util.StructuralTestUtil.arrayBlockOf;
 import static com.facebook.presto.util.StructuralTestUtil.mapBlockOf;
 import static java.lang.Double.doubleToLongBits;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
 import static org.testng.Assert.assertEquals;
 
 public class TestMapOperators
@@ -251,6 +253,26 @@ public class TestMapOperators
         assertFunction("MAP(ARRAY[from_unixtime(1), from_unixtime(100)], ARRAY[1.0, 100.0])[from_unixtime(1)]", DOUBLE, 1.0);
     }
 
+    @Test
+    public void testSubscriptLargeMap()
+            throws Exception
+    {
+        assertFunction("MAP(SEQUENCE(1, 50), SEQUENCE(101, 150))[37]", BIGINT, 137L);
+        assertFunction("MAP(SEQUENCE(1, 50), SEQUENCE(101, 150))[51]", BIGINT, null);
+        assertFunction("element_at(MAP(SEQUENCE(1, 50), SEQUENCE(101, 150)), 1)", BIGINT, 101L);
+        assertFunction("element_at(MAP(SEQUENCE(1, 50), SEQUENCE(101, 150)), 0)", BIGINT, null);
+        String keys = IntStream.rangeClosed(1, 20).mapToObj(i -> String.valueOf(i / 4.0)).collect(joining(", ", "ARRAY[", "]"));
+        assertFunction("MAP(" + keys + ", SEQUENCE(1, 20))[2.5]", BIGINT, 10L);
+
+        keys = IntStream.rangeClosed(1, 20).mapToObj(i -> "'key" + i + "'").collect(joining(", ", "ARRAY[", "]"));
+        assertFunction("MAP(" + keys + ", SEQUENCE(1, 20))['key17']", BIGINT, 17L);
+        assertFunction("element_at(MAP(" + keys + ", SEQUENCE(1, 20)), 'key')", BIGINT, null);
+
+        keys = IntStream.rangeClosed(1, 20).mapToObj(i -> "ARRAY[" + i + ", " + -i + "]").collect(joining(", ", "ARRAY[", "]"));
+        assertFunction("MAP(" + keys + ", SEQUENCE(1, 20))[ARRAY[12, -12]]", BIGINT, 12L);
+        assertFunction("MAP(" + keys + ", SEQUENCE(1, 20))[ARRAY[12, 12]]", BIGINT, null);
+    }
+
     @Test
     public void testMapKeys()
             throws Exception
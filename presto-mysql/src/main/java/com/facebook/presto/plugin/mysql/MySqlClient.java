@@ -17,6 +17,7 @@ import com.facebook.presto.plugin.jdbc.BaseJdbcClient;
 import com.facebook.presto.plugin.jdbc.BaseJdbcConfig;
 import com.facebook.presto.plugin.jdbc.JdbcConnectorId;
 import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.VarcharType;
 import com.facebook.presto.spi.type.Varchars;
@@ -139,4 +140,15 @@ public class MySqlClient
         }
         return sqlType;
     }
+
+    @Override
+    protected String toOrderByItem(String quotedColumnName, SortOrder sortOrder)
+    {
+        // MySQL does not support NULLS FIRST or NULLS LAST, and sorts nulls as the lowest values
+        String ordering = sortOrder.isAscending() ? " ASC" : " DESC";
+        if (sortOrder.isAscending() == sortOrder.isNullsFirst()) {
+            return quotedColumnName + ordering;
+        }
+        return quotedColumnName + " IS NULL" + (sortOrder.isNullsFirst() ? " DESC" : " ASC") + ", " + quotedColumnName + ordering;
+    }
 }
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.raptor;
 
+import com.facebook.presto.raptor.metadata.OrderingType;
 import com.facebook.presto.spi.ConnectorInsertTableHandle;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
@@ -38,6 +39,8 @@ public class RaptorInsertTableHandle
     private final Optional<String> externalBatchId;
     private final List<RaptorColumnHandle> sortColumnHandles;
     private final List<SortOrder> sortOrders;
+    private final OrderingType orderingType;
+    private final Optional<RaptorColumnHandle> temporalColumnHandle;
     private final OptionalInt bucketCount;
     private final List<RaptorColumnHandle> bucketColumnHandles;
 
@@ -51,6 +54,8 @@ public class RaptorInsertTableHandle
             @JsonProperty("externalBatchId") Optional<String> externalBatchId,
             @JsonProperty("sortColumnHandles") List<RaptorColumnHandle> sortColumnHandles,
             @JsonProperty("sortOrders") List<SortOrder> sortOrders,
+            @JsonProperty("orderingType") OrderingType orderingType,
+            @JsonProperty("temporalColumnHandle") Optional<RaptorColumnHandle> temporalColumnHandle,
             @JsonProperty("bucketCount") OptionalInt bucketCount,
             @JsonProperty("bucketColumnHandles") List<RaptorColumnHandle> bucketColumnHandles)
     {
@@ -64,7 +69,9 @@ public class RaptorInsertTableHandle
         this.externalBatchId = requireNonNull(externalBatchId, "externalBatchId is null");
 
         this.sortOrders = ImmutableList.copyOf(requireNonNull(sortOrders, "sortOrders is null"));
+        this.orderingType = requireNonNull(orderingType, "orderingType is null");
         this.sortColumnHandles = ImmutableList.copyOf(requireNonNull(sortColumnHandles, "sortColumnHandles is null"));
+        this.temporalColumnHandle = requireNonNull(temporalColumnHandle, "temporalColumnHandle is null");
         this.bucketCount = requireNonNull(bucketCount, "bucketCount is null");
         this.bucketColumnHandles = ImmutableList.copyOf(requireNonNull(bucketColumnHandles, "bucketColumnHandles is null"));
     }
@@ -117,6 +124,18 @@ public class RaptorInsertTableHandle
         return sortOrders;
     }
 
+    @JsonProperty
+    public OrderingType getOrderingType()
+    {
+        return orderingType;
+    }
+
+    @JsonProperty
+    public Optional<RaptorColumnHandle> getTemporalColumnHandle()
+    {
+        return temporalColumnHandle;
+    }
+
     @JsonProperty
     public OptionalInt getBucketCount()
     {
@@ -16,12 +16,15 @@ package com.facebook.presto.raptor;
 import com.facebook.presto.raptor.metadata.ColumnInfo;
 import com.facebook.presto.raptor.metadata.Distribution;
 import com.facebook.presto.raptor.metadata.MetadataDao;
+import com.facebook.presto.raptor.metadata.OrderingType;
+import com.facebook.presto.raptor.metadata.ShardDeletion;
 import com.facebook.presto.raptor.metadata.ShardDelta;
 import com.facebook.presto.raptor.metadata.ShardInfo;
 import com.facebook.presto.raptor.metadata.ShardManager;
 import com.facebook.presto.raptor.metadata.Table;
 import com.facebook.presto.raptor.metadata.TableColumn;
 import com.facebook.presto.raptor.metadata.ViewResult;
+import com.facebook.presto.raptor.util.ZOrderSorter;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
 import com.facebook.presto.spi.ConnectorInsertTableHandle;
@@ -36,6 +39,7 @@ import com.facebook.presto.spi.ConnectorTableLayoutResult;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.ConnectorViewDefinition;
 import com.facebook.presto.spi.Constraint;
+import com.facebook.presto.spi.DataSummary;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
@@ -83,11 +87,15 @@ import static com.facebook.presto.raptor.RaptorSessionProperties.getOneSplitPerB
 import static com.facebook.presto.raptor.RaptorTableProperties.BUCKETED_ON_PROPERTY;
 import static com.facebook.presto.raptor.RaptorTableProperties.BUCKET_COUNT_PROPERTY;
 import static com.facebook.presto.raptor.RaptorTableProperties.DISTRIBUTION_NAME_PROPERTY;
+import static com.facebook.presto.raptor.RaptorTableProperties.ORDERING_PROPERTY;
 import static com.facebook.presto.raptor.RaptorTableProperties.getBucketColumns;
 import static com.facebook.presto.raptor.RaptorTableProperties.getBucketCount;
 import static com.facebook.presto.raptor.RaptorTableProperties.getDistributionName;
+import static com.facebook.presto.raptor.RaptorTableProperties.getOrderingType;
 import static com.facebook.presto.raptor.RaptorTableProperties.getSortColumns;
 import static com.facebook.presto.raptor.RaptorTableProperties.getTemporalColumn;
+import static com.facebook.presto.raptor.metadata.OrderingType.LEXICOGRAPHIC;
+import static com.facebook.presto.raptor.metadata.OrderingType.ZORDER;
 import static com.facebook.presto.raptor.util.DatabaseUtil.onDemandDao;
 import static com.facebook.presto.raptor.util.DatabaseUtil.runIgnoringConstraintViolation;
 import static com.facebook.presto.raptor.util.DatabaseUtil.runTransaction;
@@ -108,6 +116,7 @@ import static java.util.Collections.nCopies;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 public class RaptorMetadata
         implements ConnectorMetadata
@@ -308,6 +317,19 @@ public class RaptorMetadata
                 ImmutableList.of());
     }
 
+    @Override
+    public DataSummary getDataSummary(ConnectorSession session, ConnectorTableHandle tableHandle, ConnectorTableLayoutHandle tableLayoutHandle, TupleDomain<ColumnHandle> constraint, Set<ColumnHandle> columns)
+    {
+        RaptorTableHandle handle = checkType(tableHandle, RaptorTableHandle.class, "tableHandle");
+        RaptorTableLayoutHandle layoutHandle = checkType(tableLayoutHandle, RaptorTableLayoutHandle.class, "tableLayoutHandle");
+        TupleDomain<RaptorColumnHandle> raptorConstraint = constraint.intersect(layoutHandle.getConstraint())
+                .transform(column -> checkType(column, RaptorColumnHandle.class, "column"));
+        Set<RaptorColumnHandle> raptorColumns = columns.stream()
+                .map(column -> checkType(column, RaptorColumnHandle.class, "column"))
+                .collect(toSet());
+        return shardManager.getDataSummary(handle.getTableId(), raptorConstraint, raptorColumns);
+    }
+
     @Override
     public Optional<ConnectorNewTableLayout> getNewTableLayout(ConnectorSession session, ConnectorTableMetadata metadata)
     {
@@ -473,6 +495,18 @@ public class RaptorMetadata
 
         List<RaptorColumnHandle> sortColumnHandles = getSortColumnHandles(getSortColumns(tableMetadata.getProperties()), columnHandleMap);
         Optional<RaptorColumnHandle> temporalColumnHandle = getTemporalColumnHandle(getTemporalColumn(tableMetadata.getProperties()), columnHandleMap);
+        OrderingType orderingType = getOrderingType(tableMetadata.getProperties());
+
+        if (orderingType == ZORDER) {
+            if (sortColumnHandles.size() < 2) {
+                throw new PrestoException(INVALID_TABLE_PROPERTY, format("Z-order requires at least two columns in '%s'", ORDERING_PROPERTY));
+            }
+            for (RaptorColumnHandle column : sortColumnHandles) {
+                if (!ZOrderSorter.isSupportedType(column.getColumnType())) {
+                    throw new PrestoException(NOT_SUPPORTED, "Z-order is not supported for column type: " + column.getColumnType());
+                }
+            }
+        }
 
         if (temporalColumnHandle.isPresent()) {
             RaptorColumnHandle column = temporalColumnHandle.get();
@@ -505,6 +539,7 @@ public class RaptorMetadata
                 Optional.ofNullable(sampleWeightColumnHandle),
                 sortColumnHandles,
                 nCopies(sortColumnHandles.size(), ASC_NULLS_FIRST),
+                orderingType,
                 temporalColumnHandle,
                 distribution.map(info -> OptionalLong.of(info.getDistributionId())).orElse(OptionalLong.empty()),
                 distribution.map(info -> OptionalInt.of(info.getBucketCount())).orElse(OptionalInt.empty()),
@@ -588,6 +623,10 @@ public class RaptorMetadata
                 }
             }
 
+            if (table.getOrderingType() != LEXICOGRAPHIC) {
+                dao.insertOrderingType(tableId, table.getOrderingType().name());
+            }
+
             return tableId;
         });
 
@@ -628,6 +667,8 @@ public class RaptorMetadata
                 externalBatchId,
                 sortColumnHandles,
                 nCopies(sortColumnHandles.size(), ASC_NULLS_FIRST),
+                getTableOrderingType(tableId),
+                getTemporalColumnHandle(tableId),
                 handle.getBucketCount(),
                 bucketColumnHandles);
     }
@@ -639,6 +680,21 @@ public class RaptorMetadata
                 .collect(toList());
     }
 
+    private OrderingType getTableOrderingType(long tableId)
+    {
+        String orderingType = dao.getOrderingType(tableId);
+        return (orderingType != null) ? OrderingType.valueOf(orderingType) : LEXICOGRAPHIC;
+    }
+
+    private Optional<RaptorColumnHandle> getTemporalColumnHandle(long tableId)
+    {
+        Long temporalColumnId = dao.getTemporalColumnId(tableId);
+        if (temporalColumnId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(getRaptorColumnHandle(dao.getTableColumn(tableId, temporalColumnId)));
+    }
+
     private List<RaptorColumnHandle> getBucketColumnHandles(long tableId)
     {
         return dao.listBucketColumns(tableId).stream()
@@ -700,19 +756,22 @@ public class RaptorMetadata
 
         ImmutableSet.Builder<UUID> oldShardUuidsBuilder = ImmutableSet.builder();
         ImmutableList.Builder<ShardInfo> newShardsBuilder = ImmutableList.builder();
+        ImmutableList.Builder<ShardDeletion> deletionsBuilder = ImmutableList.builder();
 
         fragments.stream()
                 .map(fragment -> shardDeltaCodec.fromJson(fragment.getBytes()))
                 .forEach(delta -> {
                     oldShardUuidsBuilder.addAll(delta.getOldShardUuids());
                     newShardsBuilder.addAll(delta.getNewShards());
+                    deletionsBuilder.addAll(delta.getDeletions());
                 });
 
         Set<UUID> oldShardUuids = oldShardUuidsBuilder.build();
         List<ShardInfo> newShards = newShardsBuilder.build();
+        List<ShardDeletion> deletions = deletionsBuilder.build();
 
-        log.info("Finishing delete for tableId %s (removed: %s, rewritten: %s)", tableId, oldShardUuids.size() - newShards.size(), newShards.size());
-        shardManager.replaceShardUuids(transactionId, tableId, columns, oldShardUuids, newShards);
+        log.info("Finishing delete for tableId %s (removed: %s, rewritten: %s, with deleted rows: %s)", tableId, oldShardUuids.size() - newShards.size(), newShards.size(), deletions.size());
+        shardManager.replaceShardUuids(transactionId, tableId, columns, oldShardUuids, newShards, deletions);
 
         clearRollback();
     }
@@ -18,6 +18,7 @@ import com.facebook.presto.raptor.metadata.ForMetadata;
 import com.facebook.presto.raptor.metadata.ShardDelta;
 import com.facebook.presto.raptor.metadata.ShardInfo;
 import com.facebook.presto.raptor.metadata.TableColumn;
+import com.facebook.presto.raptor.systemtables.BucketBalanceSystemTable;
 import com.facebook.presto.raptor.systemtables.ShardMetadataSystemTable;
 import com.facebook.presto.raptor.systemtables.TableMetadataSystemTable;
 import com.facebook.presto.spi.SystemTable;
@@ -64,6 +65,7 @@ public class RaptorModule
 
         Multibinder<SystemTable> tableBinder = newSetBinder(binder, SystemTable.class);
         tableBinder.addBinding().to(ShardMetadataSystemTable.class).in(Scopes.SINGLETON);
+        tableBinder.addBinding().to(BucketBalanceSystemTable.class).in(Scopes.SINGLETON);
         tableBinder.addBinding().to(TableMetadataSystemTable.class).in(Scopes.SINGLETON);
 
         jsonCodecBinder(binder).bindJsonCodec(ShardInfo.class);
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.raptor;
 
+import com.facebook.presto.raptor.metadata.OrderingType;
 import com.facebook.presto.spi.ConnectorOutputTableHandle;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
@@ -41,6 +42,7 @@ public class RaptorOutputTableHandle
     private final Optional<RaptorColumnHandle> sampleWeightColumnHandle;
     private final List<RaptorColumnHandle> sortColumnHandles;
     private final List<SortOrder> sortOrders;
+    private final OrderingType orderingType;
     private final Optional<RaptorColumnHandle> temporalColumnHandle;
     private final OptionalLong distributionId;
     private final OptionalInt bucketCount;
@@ -57,6 +59,7 @@ public class RaptorOutputTableHandle
             @JsonProperty("sampleWeightColumnHandle") Optional<RaptorColumnHandle> sampleWeightColumnHandle,
             @JsonProperty("sortColumnHandles") List<RaptorColumnHandle> sortColumnHandles,
             @JsonProperty("sortOrders") List<SortOrder> sortOrders,
+            @JsonProperty("orderingType") OrderingType orderingType,
             @JsonProperty("temporalColumnHandle") Optional<RaptorColumnHandle> temporalColumnHandle,
             @JsonProperty("distributionId") OptionalLong distributionId,
             @JsonProperty("bucketCount") OptionalInt bucketCount,
@@ -70,6 +73,7 @@ public class RaptorOutputTableHandle
         this.columnTypes = ImmutableList.copyOf(requireNonNull(columnTypes, "columnTypes is null"));
         this.sampleWeightColumnHandle = requireNonNull(sampleWeightColumnHandle, "sampleWeightColumnHandle is null");
         this.sortOrders = requireNonNull(sortOrders, "sortOrders is null");
+        this.orderingType = requireNonNull(orderingType, "orderingType is null");
         this.sortColumnHandles = requireNonNull(sortColumnHandles, "sortColumnHandles is null");
         this.temporalColumnHandle = requireNonNull(temporalColumnHandle, "temporalColumnHandle is null");
         this.distributionId = requireNonNull(distributionId, "distributionId is null");
@@ -131,6 +135,12 @@ public class RaptorOutputTableHandle
         return sortOrders;
     }
 
+    @JsonProperty
+    public OrderingType getOrderingType()
+    {
+        return orderingType;
+    }
+
     @JsonProperty
     public Optional<RaptorColumnHandle> getTemporalColumnHandle()
     {
@@ -13,9 +13,11 @@
  */
 package com.facebook.presto.raptor;
 
+import com.facebook.presto.raptor.metadata.OrderingType;
 import com.facebook.presto.raptor.metadata.ShardInfo;
 import com.facebook.presto.raptor.storage.StorageManager;
 import com.facebook.presto.raptor.util.PageBuffer;
+import com.facebook.presto.raptor.util.PageBufferStats;
 import com.facebook.presto.spi.BucketFunction;
 import com.facebook.presto.spi.ConnectorPageSink;
 import com.facebook.presto.spi.Page;
@@ -33,6 +35,8 @@ import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -40,16 +44,24 @@ import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DateType.DATE;
 import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.stream.Collectors.toList;
 
 public class RaptorPageSink
         implements ConnectorPageSink
 {
+    // an open shard keeps its encoded rows in memory until it is closed
+    private static final int MAX_OPEN_SHARDS = 4;
+
     private final long transactionId;
     private final StorageManager storageManager;
     private final JsonCodec<ShardInfo> shardInfoCodec;
@@ -59,8 +71,12 @@ public class RaptorPageSink
     private final List<Type> columnTypes;
     private final List<Integer> sortFields;
     private final List<SortOrder> sortOrders;
+    private final OrderingType orderingType;
+    private final int temporalField;
     private final int[] bucketFields;
     private final long maxBufferBytes;
+    private final Executor writerExecutor;
+    private final PageBufferStats stats = new PageBufferStats();
 
     private final PageWriter pageWriter;
 
@@ -74,9 +90,12 @@ public class RaptorPageSink
             Optional<Long> sampleWeightColumnId,
             List<Long> sortColumnIds,
             List<SortOrder> sortOrders,
+            OrderingType orderingType,
+            Optional<Long> temporalColumnId,
             OptionalInt bucketCount,
             List<Long> bucketColumnIds,
-            DataSize maxBufferSize)
+            DataSize maxBufferSize,
+            Executor writerExecutor)
     {
         this.transactionId = transactionId;
         this.pageSorter = requireNonNull(pageSorter, "pageSorter is null");
@@ -85,16 +104,26 @@ public class RaptorPageSink
         this.storageManager = requireNonNull(storageManager, "storageManager is null");
         this.shardInfoCodec = requireNonNull(shardInfoCodec, "shardInfoCodec is null");
         this.maxBufferBytes = requireNonNull(maxBufferSize, "maxBufferSize is null").toBytes();
+        this.writerExecutor = requireNonNull(writerExecutor, "writerExecutor is null");
 
         requireNonNull(sampleWeightColumnId, "sampleWeightColumnId is null");
         this.sampleWeightField = columnIds.indexOf(sampleWeightColumnId.orElse(-1L));
 
         this.sortFields = ImmutableList.copyOf(sortColumnIds.stream().map(columnIds::indexOf).collect(toList()));
         this.sortOrders = ImmutableList.copyOf(requireNonNull(sortOrders, "sortOrders is null"));
+        this.orderingType = requireNonNull(orderingType, "orderingType is null");
+
+        requireNonNull(temporalColumnId, "temporalColumnId is null");
+        this.temporalField = columnIds.indexOf(temporalColumnId.orElse(-1L));
 
         this.bucketFields = bucketColumnIds.stream().mapToInt(columnIds::indexOf).toArray();
 
-        this.pageWriter = bucketCount.isPresent() ? new BucketedPageWriter(bucketCount.getAsInt()) : new SimplePageWriter();
+        if (bucketCount.isPresent() || (temporalField >= 0)) {
+            this.pageWriter = new PartitionedPageWriter(bucketCount);
+        }
+        else {
+            this.pageWriter = new SimplePageWriter();
+        }
 
         for (int field : bucketFields) {
             if (!columnTypes.get(field).equals(BIGINT)) {
@@ -115,20 +144,29 @@ public class RaptorPageSink
         }
 
         pageWriter.appendPage(page);
-        return NOT_BLOCKED;
+        return getBlockedFuture();
+    }
+
+    @Override
+    public Object getInfo()
+    {
+        return stats.getInfo();
     }
 
     @Override
     public Collection<Slice> finish()
     {
+        pageWriter.flush();
+
         List<ShardInfo> shards = new ArrayList<>();
         for (PageBuffer pageBuffer : pageWriter.getPageBuffers()) {
-            pageBuffer.flush();
+            getFutureValue(pageBuffer.getFlushFuture());
             shards.addAll(pageBuffer.getStoragePageSink().commit());
         }
 
         ImmutableList.Builder<Slice> fragments = ImmutableList.builder();
         for (ShardInfo shard : shards) {
+            stats.addShard(shard.getCompressedSize());
             fragments.add(Slices.wrappedBuffer(shardInfoCodec.toJsonBytes(shard)));
         }
         return fragments.build();
@@ -140,6 +178,8 @@ public class RaptorPageSink
         RuntimeException error = new RuntimeException("Exception during rollback");
         for (PageBuffer pageBuffer : pageWriter.getPageBuffers()) {
             try {
+                // wait for running flushes, which may fail, before rolling back the writer
+                pageBuffer.getFlushFuture().handle((result, t) -> null).join();
                 pageBuffer.getStoragePageSink().rollback();
             }
             catch (Throwable t) {
@@ -151,6 +191,28 @@ public class RaptorPageSink
         }
     }
 
+    /**
+     * Block the writer while the pages being flushed use more memory
+     * than the buffer size, until one of the flushes finishes.
+     */
+    private CompletableFuture<?> getBlockedFuture()
+    {
+        long flushingBytes = 0;
+        List<CompletableFuture<?>> flushFutures = new ArrayList<>();
+        for (PageBuffer pageBuffer : pageWriter.getPageBuffers()) {
+            flushingBytes += pageBuffer.getFlushingMemoryBytes();
+            if (!pageBuffer.getFlushFuture().isDone()) {
+                flushFutures.add(pageBuffer.getFlushFuture());
+            }
+        }
+        if ((flushingBytes <= maxBufferBytes) || flushFutures.isEmpty()) {
+            return NOT_BLOCKED;
+        }
+        // failures are reported by the next flush
+        return CompletableFuture.anyOf(flushFutures.toArray(new CompletableFuture[flushFutures.size()]))
+                .handle((result, t) -> null);
+    }
+
     private PageBuffer createPageBuffer(OptionalInt bucketNumber)
     {
         return new PageBuffer(
@@ -159,7 +221,10 @@ public class RaptorPageSink
                 columnTypes,
                 sortFields,
                 sortOrders,
-                pageSorter);
+                orderingType,
+                pageSorter,
+                writerExecutor,
+                stats);
     }
 
     /**
@@ -187,6 +252,8 @@ public class RaptorPageSink
     {
         void appendPage(Page page);
 
+        void flush();
+
         List<PageBuffer> getPageBuffers();
     }
 
@@ -201,6 +268,12 @@ public class RaptorPageSink
             pageBuffer.add(page);
         }
 
+        @Override
+        public void flush()
+        {
+            pageBuffer.flush();
+        }
+
         @Override
         public List<PageBuffer> getPageBuffers()
         {
@@ -208,15 +281,20 @@ public class RaptorPageSink
         }
     }
 
-    private class BucketedPageWriter
+    /**
+     * Buffers the rows of every bucket and day of the temporal column separately,
+     * so that each shard contains a single bucket and day.
+     */
+    private class PartitionedPageWriter
             implements PageWriter
     {
-        private final BucketFunction bucketFunction;
-        private final Int2ObjectMap<PageStore> pageStores = new Int2ObjectOpenHashMap<>();
+        private final Optional<BucketFunction> bucketFunction;
+        private final Int2ObjectMap<Long2ObjectMap<PageStore>> pageStores = new Int2ObjectOpenHashMap<>();
+        private final List<PageStore> allPageStores = new ArrayList<>();
 
-        public BucketedPageWriter(int bucketCount)
+        public PartitionedPageWriter(OptionalInt bucketCount)
         {
-            this.bucketFunction = new RaptorBucketFunction(bucketCount);
+            this.bucketFunction = bucketCount.isPresent() ? Optional.of(new RaptorBucketFunction(bucketCount.getAsInt())) : Optional.empty();
         }
 
         @Override
@@ -229,40 +307,67 @@ public class RaptorPageSink
             Page bucketArgs = new Page(page.getPositionCount(), blocks);
 
             for (int position = 0; position < page.getPositionCount(); position++) {
-                int bucket = bucketFunction.getBucket(bucketArgs, position);
+                int bucket = bucketFunction.isPresent() ? bucketFunction.get().getBucket(bucketArgs, position) : 0;
+                long day = (temporalField >= 0) ? getDay(page.getBlock(temporalField), position) : 0;
+
+                Long2ObjectMap<PageStore> bucketStores = pageStores.get(bucket);
+                if (bucketStores == null) {
+                    bucketStores = new Long2ObjectOpenHashMap<>();
+                    pageStores.put(bucket, bucketStores);
+                }
 
-                PageStore store = pageStores.get(bucket);
+                PageStore store = bucketStores.get(day);
                 if (store == null) {
-                    PageBuffer buffer = createPageBuffer(OptionalInt.of(bucket));
-                    store = new PageStore(buffer, columnTypes);
-                    pageStores.put(bucket, store);
+                    OptionalInt bucketNumber = bucketFunction.isPresent() ? OptionalInt.of(bucket) : OptionalInt.empty();
+                    store = new PageStore(createPageBuffer(bucketNumber), columnTypes);
+                    bucketStores.put(day, store);
+                    allPageStores.add(store);
                 }
 
                 store.appendPosition(page, position);
             }
 
             flushIfNecessary();
+            closeExcessShards();
         }
 
         @Override
-        public List<PageBuffer> getPageBuffers()
+        public void flush()
         {
-            ImmutableList.Builder<PageBuffer> list = ImmutableList.builder();
-            for (PageStore store : pageStores.values()) {
+            for (PageStore store : allPageStores) {
                 store.flushToPageBuffer();
                 store.getPageBuffer().flush();
+            }
+        }
+
+        @Override
+        public List<PageBuffer> getPageBuffers()
+        {
+            ImmutableList.Builder<PageBuffer> list = ImmutableList.builder();
+            for (PageStore store : allPageStores) {
                 list.add(store.getPageBuffer());
             }
             return list.build();
         }
 
+        private long getDay(Block block, int position)
+        {
+            // nulls do not affect the temporal range of a shard, so they can be stored with any day
+            if (block.isNull(position)) {
+                return 0;
+            }
+            Type type = columnTypes.get(temporalField);
+            long value = type.getLong(block, position);
+            return type.equals(DATE) ? value : MILLISECONDS.toDays(value);
+        }
+
         private void flushIfNecessary()
         {
             long totalBytes = 0;
             long maxBytes = 0;
             PageBuffer maxBuffer = null;
 
-            for (PageStore store : pageStores.values()) {
+            for (PageStore store : allPageStores) {
                 long bytes = store.getUsedMemoryBytes();
                 totalBytes += bytes;
 
@@ -276,6 +381,22 @@ public class RaptorPageSink
                 maxBuffer.flush();
             }
         }
+
+        /**
+         * Close the shards of the least recently flushed buffers when too many are open.
+         */
+        private void closeExcessShards()
+        {
+            List<PageBuffer> openShards = allPageStores.stream()
+                    .map(PageStore::getPageBuffer)
+                    .filter(PageBuffer::isShardOpen)
+                    .sorted(comparingLong(PageBuffer::getLastFlushNanos))
+                    .collect(toList());
+
+            for (int i = 0; i < (openShards.size() - MAX_OPEN_SHARDS); i++) {
+                openShards.get(i).closeShard();
+            }
+        }
     }
 
     private static class PageStore
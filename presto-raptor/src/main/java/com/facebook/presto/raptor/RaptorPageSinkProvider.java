@@ -26,13 +26,17 @@ import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
 import io.airlift.json.JsonCodec;
 import io.airlift.units.DataSize;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 import static com.facebook.presto.raptor.util.Types.checkType;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.stream.Collectors.toList;
 
 public class RaptorPageSinkProvider
@@ -42,14 +46,22 @@ public class RaptorPageSinkProvider
     private final PageSorter pageSorter;
     private final JsonCodec<ShardInfo> shardInfoCodec;
     private final DataSize maxBufferSize;
+    private final ExecutorService writerExecutor;
 
     @Inject
-    public RaptorPageSinkProvider(StorageManager storageManager, PageSorter pageSorter, JsonCodec<ShardInfo> shardInfoCodec, StorageManagerConfig config)
+    public RaptorPageSinkProvider(StorageManager storageManager, PageSorter pageSorter, JsonCodec<ShardInfo> shardInfoCodec, StorageManagerConfig config, RaptorConnectorId connectorId)
     {
         this.storageManager = requireNonNull(storageManager, "storageManager is null");
         this.pageSorter = requireNonNull(pageSorter, "pageSorter is null");
         this.shardInfoCodec = requireNonNull(shardInfoCodec, "shardInfoCodec is null");
         this.maxBufferSize = config.getMaxBufferSize();
+        this.writerExecutor = newFixedThreadPool(config.getWriterThreads(), daemonThreadsNamed("raptor-writer-" + connectorId + "-%s"));
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        writerExecutor.shutdownNow();
     }
 
     @Override
@@ -66,9 +78,12 @@ public class RaptorPageSinkProvider
                 handle.getSampleWeightColumnHandle().map(RaptorColumnHandle::getColumnId),
                 toColumnIds(handle.getSortColumnHandles()),
                 handle.getSortOrders(),
+                handle.getOrderingType(),
+                handle.getTemporalColumnHandle().map(RaptorColumnHandle::getColumnId),
                 handle.getBucketCount(),
                 toColumnIds(handle.getBucketColumnHandles()),
-                maxBufferSize);
+                maxBufferSize,
+                writerExecutor);
     }
 
     @Override
@@ -85,9 +100,12 @@ public class RaptorPageSinkProvider
                 Optional.empty(),
                 toColumnIds(handle.getSortColumnHandles()),
                 handle.getSortOrders(),
+                handle.getOrderingType(),
+                handle.getTemporalColumnHandle().map(RaptorColumnHandle::getColumnId),
                 handle.getBucketCount(),
                 toColumnIds(handle.getBucketColumnHandles()),
-                maxBufferSize);
+                maxBufferSize,
+                writerExecutor);
     }
 
     private static List<Long> toColumnIds(List<RaptorColumnHandle> columnHandles)
@@ -15,6 +15,7 @@ package com.facebook.presto.raptor;
 
 import com.facebook.presto.raptor.backup.BackupService;
 import com.facebook.presto.raptor.metadata.BucketShards;
+import com.facebook.presto.raptor.metadata.DeletedRows;
 import com.facebook.presto.raptor.metadata.ShardManager;
 import com.facebook.presto.raptor.metadata.ShardNodes;
 import com.facebook.presto.raptor.util.SynchronizedResultIterator;
@@ -30,6 +31,7 @@ import com.facebook.presto.spi.connector.ConnectorSplitManager;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.skife.jdbi.v2.ResultIterator;
 
 import javax.annotation.PreDestroy;
@@ -235,7 +237,7 @@ public class RaptorSplitManager
                 addresses = ImmutableList.of(node.getHostAndPort());
             }
 
-            return new RaptorSplit(connectorId, shardId, addresses, effectivePredicate, transactionId);
+            return new RaptorSplit(connectorId, shardId, getDeletedRows(bucketShards.getShards()), addresses, effectivePredicate, transactionId);
         }
 
         private ConnectorSplit createBucketSplit(int bucketNumber, Set<ShardNodes> shards)
@@ -254,7 +256,16 @@ public class RaptorSplitManager
                     .collect(toSet());
             HostAddress address = node.getHostAndPort();
 
-            return new RaptorSplit(connectorId, shardUuids, bucketNumber, address, effectivePredicate, transactionId);
+            return new RaptorSplit(connectorId, shardUuids, getDeletedRows(shards), bucketNumber, address, effectivePredicate, transactionId);
+        }
+
+        private Map<UUID, DeletedRows> getDeletedRows(Set<ShardNodes> shards)
+        {
+            ImmutableMap.Builder<UUID, DeletedRows> deletedRows = ImmutableMap.builder();
+            for (ShardNodes shard : shards) {
+                shard.getDeletedRows().ifPresent(rows -> deletedRows.put(shard.getShardUuid(), rows));
+            }
+            return deletedRows.build();
         }
     }
 }
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.raptor;
 
+import com.facebook.presto.raptor.metadata.OrderingType;
 import com.facebook.presto.spi.session.PropertyMetadata;
 import com.facebook.presto.spi.type.TypeManager;
 import com.facebook.presto.spi.type.TypeSignatureParameter;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.OptionalInt;
 
+import static com.facebook.presto.raptor.metadata.OrderingType.LEXICOGRAPHIC;
 import static com.facebook.presto.spi.session.PropertyMetadata.integerSessionProperty;
 import static com.facebook.presto.spi.type.StandardTypes.ARRAY;
 import static com.facebook.presto.spi.type.VarcharType.createUnboundedVarcharType;
@@ -33,6 +35,7 @@ import static java.util.stream.Collectors.toList;
 public class RaptorTableProperties
 {
     public static final String ORDERING_PROPERTY = "ordering";
+    public static final String ORDERING_TYPE_PROPERTY = "ordering_type";
     public static final String TEMPORAL_COLUMN_PROPERTY = "temporal_column";
     public static final String BUCKET_COUNT_PROPERTY = "bucket_count";
     public static final String BUCKETED_ON_PROPERTY = "bucketed_on";
@@ -48,6 +51,15 @@ public class RaptorTableProperties
                         typeManager,
                         ORDERING_PROPERTY,
                         "Sort order for each shard of the table"))
+                .add(new PropertyMetadata<>(
+                        ORDERING_TYPE_PROPERTY,
+                        "How each shard is sorted by the ordering columns: lexicographic or zorder",
+                        createUnboundedVarcharType(),
+                        OrderingType.class,
+                        LEXICOGRAPHIC,
+                        false,
+                        value -> OrderingType.valueOf(((String) value).toUpperCase(ENGLISH)),
+                        value -> value.toString().toLowerCase(ENGLISH)))
                 .add(lowerCaseStringSessionProperty(
                         TEMPORAL_COLUMN_PROPERTY,
                         "Temporal column of the table"))
@@ -76,6 +88,12 @@ public class RaptorTableProperties
         return stringList(tableProperties.get(ORDERING_PROPERTY));
     }
 
+    public static OrderingType getOrderingType(Map<String, Object> tableProperties)
+    {
+        OrderingType value = (OrderingType) tableProperties.get(ORDERING_TYPE_PROPERTY);
+        return (value != null) ? value : LEXICOGRAPHIC;
+    }
+
     public static String getTemporalColumn(Map<String, Object> tableProperties)
     {
         return (String) tableProperties.get(TEMPORAL_COLUMN_PROPERTY);
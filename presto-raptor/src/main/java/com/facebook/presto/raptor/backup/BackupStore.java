@@ -49,4 +49,41 @@ public interface BackupStore
      * @return if the shard exists
      */
     boolean shardExists(UUID uuid);
+
+    /**
+     * Check if the store can read byte ranges of shards, which allows
+     * restoring large shards in parallel and reading shards that are
+     * still being restored.
+     *
+     * @return if {@link #getShardSize} and {@link #readShard} are supported
+     */
+    default boolean isRangeReadSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Get the size of a shard in the backup store.
+     *
+     * @param uuid shard UUID
+     * @return the size of the shard in bytes
+     */
+    default long getShardSize(UUID uuid)
+    {
+        throw new UnsupportedOperationException("Range reads are not supported");
+    }
+
+    /**
+     * Read a byte range of a shard from the backup store.
+     *
+     * @param uuid shard UUID
+     * @param position the position of the range in the shard
+     * @param buffer the buffer to read into
+     * @param bufferOffset the offset in the buffer
+     * @param length the length of the range
+     */
+    default void readShard(UUID uuid, long position, byte[] buffer, int bufferOffset, int length)
+    {
+        throw new UnsupportedOperationException("Range reads are not supported");
+    }
 }
@@ -25,6 +25,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.util.UUID;
 
 import static com.facebook.presto.raptor.RaptorErrorCode.RAPTOR_BACKUP_ERROR;
@@ -100,6 +101,37 @@ public class FileBackupStore
         return getBackupFile(uuid).isFile();
     }
 
+    @Override
+    public boolean isRangeReadSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public long getShardSize(UUID uuid)
+    {
+        File file = getBackupFile(uuid);
+        if (!file.isFile()) {
+            throw new PrestoException(RAPTOR_BACKUP_NOT_FOUND, "Backup shard not found: " + uuid);
+        }
+        return file.length();
+    }
+
+    @Override
+    public void readShard(UUID uuid, long position, byte[] buffer, int bufferOffset, int length)
+    {
+        try (RandomAccessFile file = new RandomAccessFile(getBackupFile(uuid), "r")) {
+            file.seek(position);
+            file.readFully(buffer, bufferOffset, length);
+        }
+        catch (FileNotFoundException e) {
+            throw new PrestoException(RAPTOR_BACKUP_NOT_FOUND, "Backup shard not found: " + uuid, e);
+        }
+        catch (IOException e) {
+            throw new PrestoException(RAPTOR_BACKUP_ERROR, "Failed to read backup shard: " + uuid, e);
+        }
+    }
+
     @VisibleForTesting
     public File getBackupFile(UUID uuid)
     {
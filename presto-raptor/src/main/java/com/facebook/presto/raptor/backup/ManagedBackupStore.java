@@ -32,6 +32,7 @@ public class ManagedBackupStore
     private final BackupOperationStats restoreShard = new BackupOperationStats();
     private final BackupOperationStats deleteShard = new BackupOperationStats();
     private final BackupOperationStats shardExists = new BackupOperationStats();
+    private final BackupOperationStats readShard = new BackupOperationStats();
 
     public ManagedBackupStore(BackupStore store)
     {
@@ -66,6 +67,24 @@ public class ManagedBackupStore
         return shardExists.run(() -> store.shardExists(uuid));
     }
 
+    @Override
+    public boolean isRangeReadSupported()
+    {
+        return store.isRangeReadSupported();
+    }
+
+    @Override
+    public long getShardSize(UUID uuid)
+    {
+        return store.getShardSize(uuid);
+    }
+
+    @Override
+    public void readShard(UUID uuid, long position, byte[] buffer, int bufferOffset, int length)
+    {
+        readShard.run(() -> store.readShard(uuid, position, buffer, bufferOffset, length));
+    }
+
     @Managed
     @Nested
     public BackupOperationStats getBackupShard()
@@ -93,4 +112,11 @@ public class ManagedBackupStore
     {
         return shardExists;
     }
+
+    @Managed
+    @Nested
+    public BackupOperationStats getReadShard()
+    {
+        return readShard;
+    }
 }
@@ -99,6 +99,34 @@ public class TimeoutBackupStore
         }
     }
 
+    @Override
+    public boolean isRangeReadSupported()
+    {
+        return store.isRangeReadSupported();
+    }
+
+    @Override
+    public long getShardSize(UUID uuid)
+    {
+        try {
+            return store.getShardSize(uuid);
+        }
+        catch (UncheckedTimeoutException e) {
+            throw new PrestoException(RAPTOR_BACKUP_TIMEOUT, "Shard size check timed out");
+        }
+    }
+
+    @Override
+    public void readShard(UUID uuid, long position, byte[] buffer, int bufferOffset, int length)
+    {
+        try {
+            store.readShard(uuid, position, buffer, bufferOffset, length);
+        }
+        catch (UncheckedTimeoutException e) {
+            throw new PrestoException(RAPTOR_BACKUP_TIMEOUT, "Shard read timed out");
+        }
+    }
+
     private static <T> T timeLimited(T target, Class<T> clazz, Duration timeout, ExecutorService executor, int maxThreads)
     {
         executor = new ExecutorServiceAdapter(new BoundedExecutor(executor, maxThreads));
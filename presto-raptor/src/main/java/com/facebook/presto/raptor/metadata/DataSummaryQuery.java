@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.metadata;
+
+import com.facebook.presto.raptor.RaptorColumnHandle;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.DataSummary;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.NullableValue;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import static com.facebook.presto.raptor.metadata.DatabaseShardManager.maxColumn;
+import static com.facebook.presto.raptor.metadata.DatabaseShardManager.minColumn;
+import static com.facebook.presto.raptor.metadata.DatabaseShardManager.shardIndexTable;
+import static com.facebook.presto.raptor.util.DatabaseUtil.metadataError;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
+import static java.lang.String.format;
+
+/**
+ * Computes the statistics of a table that are known exactly from the shard metadata.
+ * <p>
+ * The row count of a shard does not tell how many of its rows match a constraint, so the
+ * row count is only known for an unconstrained table. The index stores the minimum and
+ * maximum values of a column ignoring nulls, so they are known for a column that is only
+ * constrained on its own values, provided every shard lies entirely inside or outside of
+ * the constraint and no shard that lies inside has deleted rows. The index values are only
+ * exact for the types whose values are not truncated or otherwise approximated.
+ */
+final class DataSummaryQuery
+{
+    private static final Set<Type> EXACT_INDEX_TYPES = ImmutableSet.of(BOOLEAN, BIGINT, DATE, TIMESTAMP);
+
+    private DataSummaryQuery() {}
+
+    public static DataSummary getDataSummary(IDBI dbi, long tableId, TupleDomain<RaptorColumnHandle> constraint, Set<RaptorColumnHandle> columns)
+    {
+        if (constraint.isNone()) {
+            ImmutableMap.Builder<ColumnHandle, NullableValue> nulls = ImmutableMap.builder();
+            for (RaptorColumnHandle column : columns) {
+                nulls.put(column, NullableValue.asNull(column.getColumnType()));
+            }
+            return new DataSummary(OptionalLong.of(0), nulls.build(), nulls.build());
+        }
+
+        try (Handle handle = dbi.open()) {
+            Connection connection = handle.getConnection();
+
+            OptionalLong rowCount = OptionalLong.empty();
+            if (constraint.isAll()) {
+                rowCount = OptionalLong.of(getRowCount(connection, tableId));
+            }
+
+            ImmutableMap.Builder<ColumnHandle, NullableValue> minValues = ImmutableMap.builder();
+            ImmutableMap.Builder<ColumnHandle, NullableValue> maxValues = ImmutableMap.builder();
+            for (RaptorColumnHandle column : columns) {
+                if (column.isShardUuid() || column.isShardRowId() || column.isBucketNumber() || !EXACT_INDEX_TYPES.contains(column.getColumnType())) {
+                    continue;
+                }
+                Map<RaptorColumnHandle, Domain> domains = constraint.getDomains().get();
+                if (!domains.keySet().stream().allMatch(column::equals)) {
+                    continue;
+                }
+                Domain domain = domains.getOrDefault(column, Domain.all(column.getColumnType()));
+
+                Optional<MinMax> minMax = getMinMax(connection, tableId, column, domain);
+                if (minMax.isPresent()) {
+                    minValues.put(column, minMax.get().getMin());
+                    maxValues.put(column, minMax.get().getMax());
+                }
+            }
+            return new DataSummary(rowCount, minValues.build(), maxValues.build());
+        }
+        catch (SQLException e) {
+            throw metadataError(e);
+        }
+    }
+
+    private static long getRowCount(Connection connection, long tableId)
+            throws SQLException
+    {
+        String sql = "" +
+                "SELECT sum(s.row_count - COALESCE(d.deleted_row_count, 0))\n" +
+                "FROM shards s\n" +
+                "LEFT JOIN shard_deletes d ON (s.shard_id = d.shard_id)\n" +
+                "WHERE s.table_id = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, tableId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private static Optional<MinMax> getMinMax(Connection connection, long tableId, RaptorColumnHandle column, Domain domain)
+            throws SQLException
+    {
+        // nulls do not change the minimum or maximum
+        Domain values = Domain.create(domain.getValues(), false);
+        ShardPredicate predicate = ShardPredicate.create(TupleDomain.withColumnDomains(ImmutableMap.of(column, values)), false);
+
+        String min = minColumn(column.getColumnId());
+        String max = maxColumn(column.getColumnId());
+        String sql = format("" +
+                        "SELECT x.%s, x.%s, d.deleted_row_count\n" +
+                        "FROM %s x\n" +
+                        "LEFT JOIN shard_deletes d ON (x.shard_id = d.shard_id)\n" +
+                        "WHERE %s",
+                min, max, shardIndexTable(tableId), predicate.getPredicate());
+
+        Type type = column.getColumnType();
+        Comparable<Object> minValue = null;
+        Comparable<Object> maxValue = null;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            predicate.bind(statement);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Comparable<Object> shardMin = getValue(resultSet, 1, type);
+                    Comparable<Object> shardMax = getValue(resultSet, 2, type);
+                    if (shardMin == null || shardMax == null) {
+                        // the shard has no non-null values
+                        continue;
+                    }
+
+                    ValueSet shardValues = ValueSet.ofRanges(Range.range(type, shardMin, true, shardMax, true));
+                    if (!domain.getValues().overlaps(shardValues)) {
+                        continue;
+                    }
+                    if (!domain.getValues().contains(shardValues) || resultSet.getLong(3) > 0) {
+                        // the extreme values of the shard may not match
+                        return Optional.empty();
+                    }
+
+                    if (minValue == null || shardMin.compareTo(minValue) < 0) {
+                        minValue = shardMin;
+                    }
+                    if (maxValue == null || shardMax.compareTo(maxValue) > 0) {
+                        maxValue = shardMax;
+                    }
+                }
+            }
+        }
+        return Optional.of(new MinMax(new NullableValue(type, minValue), new NullableValue(type, maxValue)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> getValue(ResultSet resultSet, int index, Type type)
+            throws SQLException
+    {
+        Object value;
+        if (type.equals(BOOLEAN)) {
+            value = resultSet.getBoolean(index);
+        }
+        else {
+            value = resultSet.getLong(index);
+        }
+        if (resultSet.wasNull()) {
+            return null;
+        }
+        return (Comparable<Object>) value;
+    }
+
+    private static class MinMax
+    {
+        private final NullableValue min;
+        private final NullableValue max;
+
+        public MinMax(NullableValue min, NullableValue max)
+        {
+            this.min = min;
+            this.max = max;
+        }
+
+        public NullableValue getMin()
+        {
+            return min;
+        }
+
+        public NullableValue getMax()
+        {
+            return max;
+        }
+    }
+}
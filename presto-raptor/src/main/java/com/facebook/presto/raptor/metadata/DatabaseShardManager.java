@@ -16,6 +16,7 @@ package com.facebook.presto.raptor.metadata;
 import com.facebook.presto.raptor.NodeSupplier;
 import com.facebook.presto.raptor.RaptorColumnHandle;
 import com.facebook.presto.raptor.util.DaoSupplier;
+import com.facebook.presto.spi.DataSummary;
 import com.facebook.presto.spi.Node;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.predicate.TupleDomain;
@@ -42,6 +43,7 @@ import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.exceptions.DBIException;
 import org.skife.jdbi.v2.tweak.HandleConsumer;
 import org.skife.jdbi.v2.util.ByteArrayMapper;
+import org.weakref.jmx.Managed;
 
 import javax.inject.Inject;
 
@@ -58,6 +60,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
@@ -108,6 +111,7 @@ public class DatabaseShardManager
     private final Ticker ticker;
     private final Duration startupGracePeriod;
     private final long startTime;
+    private final ShardMetadataCache shardCache;
 
     private final LoadingCache<String, Integer> nodeIdCache = CacheBuilder.newBuilder()
             .maximumSize(10_000)
@@ -140,7 +144,7 @@ public class DatabaseShardManager
             Ticker ticker,
             MetadataConfig config)
     {
-        this(dbi, shardDaoSupplier, nodeSupplier, assignmentLimiter, ticker, config.getStartupGracePeriod());
+        this(dbi, shardDaoSupplier, nodeSupplier, assignmentLimiter, ticker, config.getStartupGracePeriod(), config.getShardCacheMaxShards());
     }
 
     public DatabaseShardManager(
@@ -150,6 +154,18 @@ public class DatabaseShardManager
             AssignmentLimiter assignmentLimiter,
             Ticker ticker,
             Duration startupGracePeriod)
+    {
+        this(dbi, shardDaoSupplier, nodeSupplier, assignmentLimiter, ticker, startupGracePeriod, new MetadataConfig().getShardCacheMaxShards());
+    }
+
+    public DatabaseShardManager(
+            IDBI dbi,
+            DaoSupplier<ShardDao> shardDaoSupplier,
+            NodeSupplier nodeSupplier,
+            AssignmentLimiter assignmentLimiter,
+            Ticker ticker,
+            Duration startupGracePeriod,
+            long shardCacheMaxShards)
     {
         this.dbi = requireNonNull(dbi, "dbi is null");
         this.shardDaoSupplier = requireNonNull(shardDaoSupplier, "shardDaoSupplier is null");
@@ -159,6 +175,7 @@ public class DatabaseShardManager
         this.ticker = requireNonNull(ticker, "ticker is null");
         this.startupGracePeriod = requireNonNull(startupGracePeriod, "startupGracePeriod is null");
         this.startTime = ticker.read();
+        this.shardCache = new ShardMetadataCache(dbi, dao, shardCacheMaxShards);
 
         createTablesWithRetry(dbi);
     }
@@ -217,13 +234,17 @@ public class DatabaseShardManager
             ShardDao shardDao = shardDaoSupplier.attach(handle);
             shardDao.insertDeletedShards(tableId);
             shardDao.dropShardNodes(tableId);
+            shardDao.dropShardDeletes(tableId);
             shardDao.dropShards(tableId);
+            shardDao.dropShardVersion(tableId);
 
             MetadataDao dao = handle.attach(MetadataDao.class);
             dao.dropColumns(tableId);
+            dao.dropOrderingType(tableId);
             dao.dropTable(tableId);
             return null;
         });
+        shardCache.invalidate(tableId);
 
         // TODO: add a cleanup process for leftover index tables
         // It is not possible to drop the index tables in a transaction.
@@ -266,42 +287,59 @@ public class DatabaseShardManager
 
         Map<String, Integer> nodeIds = toNodeIdMap(shards);
 
-        runCommit(transactionId, (handle) -> {
+        OptionalLong version = runCommit(transactionId, tableId, (handle) -> {
             externalBatchId.ifPresent(shardDaoSupplier.attach(handle)::insertExternalBatch);
             lockTable(handle, tableId);
             insertShardsAndIndex(tableId, columns, shards, nodeIds, handle);
         });
+        shardsCommitted(tableId, version, ImmutableSet.of(), shards, nodeIds, ImmutableList.of());
     }
 
     @Override
-    public void replaceShardUuids(long transactionId, long tableId, List<ColumnInfo> columns, Set<UUID> oldShardUuids, Collection<ShardInfo> newShards)
+    public void replaceShardUuids(long transactionId, long tableId, List<ColumnInfo> columns, Set<UUID> oldShardUuids, Collection<ShardInfo> newShards, Collection<ShardDeletion> deletions)
     {
         Map<String, Integer> nodeIds = toNodeIdMap(newShards);
 
-        runCommit(transactionId, (handle) -> {
+        OptionalLong version = runCommit(transactionId, tableId, (handle) -> {
             lockTable(handle, tableId);
             for (List<ShardInfo> shards : partition(newShards, 1000)) {
                 insertShardsAndIndex(tableId, columns, shards, nodeIds, handle);
             }
+            updateDeletedRows(deletions, handle);
             for (List<UUID> uuids : partition(oldShardUuids, 1000)) {
                 deleteShardsAndIndex(tableId, ImmutableSet.copyOf(uuids), handle);
             }
         });
+        shardsCommitted(tableId, version, oldShardUuids, newShards, nodeIds, deletions);
     }
 
-    private void runCommit(long transactionId, HandleConsumer callback)
+    private void shardsCommitted(long tableId, OptionalLong version, Set<UUID> oldShardUuids, Collection<ShardInfo> newShards, Map<String, Integer> nodeIds, Collection<ShardDeletion> deletions)
+    {
+        if (version.isPresent()) {
+            shardCache.shardsReplaced(tableId, version.getAsLong(), oldShardUuids, newShards, nodeIds, deletions);
+        }
+        else {
+            shardCache.invalidate(tableId);
+        }
+    }
+
+    /**
+     * @return the new shard version of the table, or empty if the transaction was committed before
+     */
+    private OptionalLong runCommit(long transactionId, long tableId, HandleConsumer callback)
     {
         int maxAttempts = 5;
         for (int attempt = 1; attempt <= maxAttempts; attempt++) {
             try {
-                dbi.useTransaction((handle, status) -> {
+                return dbi.inTransaction((handle, status) -> {
                     ShardDao dao = shardDaoSupplier.attach(handle);
-                    if (commitTransaction(dao, transactionId)) {
-                        callback.useHandle(handle);
-                        dao.deleteCreatedShards(transactionId);
+                    if (!commitTransaction(dao, transactionId)) {
+                        return OptionalLong.empty();
                     }
+                    callback.useHandle(handle);
+                    dao.deleteCreatedShards(transactionId);
+                    return OptionalLong.of(incrementShardVersion(dao, tableId));
                 });
-                return;
             }
             catch (DBIException e) {
                 propagateIfInstanceOf(e.getCause(), PrestoException.class);
@@ -317,6 +355,44 @@ public class DatabaseShardManager
                 }
             }
         }
+        throw new IllegalStateException("Commit attempts exhausted");
+    }
+
+    private void updateDeletedRows(Collection<ShardDeletion> deletions, Handle handle)
+    {
+        ShardDao dao = shardDaoSupplier.attach(handle);
+        for (ShardDeletion deletion : deletions) {
+            Long shardId = dao.getShardId(deletion.getShardUuid());
+            if (shardId == null) {
+                throw transactionConflict();
+            }
+
+            Long deletedRowCount = dao.getDeletedRowCount(shardId);
+            long previousDeletedRowCount = (deletedRowCount == null) ? 0 : deletedRowCount;
+            if (previousDeletedRowCount != deletion.getPreviousDeletedRowCount()) {
+                throw transactionConflict();
+            }
+
+            // deleted rows can only be added, so an unchanged count means unchanged rows
+            DeletedRows deletedRows = deletion.getDeletedRows();
+            if (deletedRows.getRowCount() == previousDeletedRowCount) {
+                continue;
+            }
+            if (deletedRowCount == null) {
+                dao.insertShardDeletes(shardId, deletedRows.getRowCount(), deletedRows.toBytes());
+            }
+            else {
+                dao.updateShardDeletes(shardId, deletedRows.getRowCount(), deletedRows.toBytes());
+            }
+        }
+    }
+
+    private static long incrementShardVersion(ShardDao dao, long tableId)
+    {
+        if (dao.incrementShardVersion(tableId) == 0) {
+            dao.insertShardVersion(tableId);
+        }
+        return dao.getShardVersion(tableId);
     }
 
     private static boolean commitTransaction(ShardDao dao, long transactionId)
@@ -360,12 +436,15 @@ public class DatabaseShardManager
 
         String where = " WHERE shard_id IN (" + args + ")";
         String deleteFromShardNodes = "DELETE FROM shard_nodes " + where;
+        String deleteFromShardDeletes = "DELETE FROM shard_deletes " + where;
         String deleteFromShards = "DELETE FROM shards " + where;
         String deleteFromShardIndex = "DELETE FROM " + shardIndexTable(tableId) + where;
 
-        try (PreparedStatement statement = handle.getConnection().prepareStatement(deleteFromShardNodes)) {
-            bindLongs(statement, shardIds);
-            statement.executeUpdate();
+        for (String sql : asList(deleteFromShardNodes, deleteFromShardDeletes)) {
+            try (PreparedStatement statement = handle.getConnection().prepareStatement(sql)) {
+                bindLongs(statement, shardIds);
+                statement.executeUpdate();
+            }
         }
 
         for (String sql : asList(deleteFromShards, deleteFromShardIndex)) {
@@ -454,16 +533,37 @@ public class DatabaseShardManager
         return dao.getNodeShards(nodeIdentifier);
     }
 
+    @Override
+    public Map<UUID, DeletedRows> getDeletedRows(Set<UUID> shardUuids)
+    {
+        ImmutableMap.Builder<UUID, DeletedRows> deletedRows = ImmutableMap.builder();
+        for (UUID shardUuid : shardUuids) {
+            byte[] bytes = dao.getDeletedRows(shardUuid);
+            if (bytes != null) {
+                deletedRows.put(shardUuid, DeletedRows.fromBytes(bytes));
+            }
+        }
+        return deletedRows.build();
+    }
+
     @Override
     public ResultIterator<BucketShards> getShardNodes(long tableId, TupleDomain<RaptorColumnHandle> effectivePredicate)
     {
-        return new ShardIterator(tableId, false, Optional.empty(), effectivePredicate, dbi);
+        return shardCache.getShardNodes(tableId, false, Optional.empty(), effectivePredicate)
+                .orElseGet(() -> new ShardIterator(tableId, false, Optional.empty(), effectivePredicate, dbi));
     }
 
     @Override
     public ResultIterator<BucketShards> getShardNodesBucketed(long tableId, boolean merged, Map<Integer, String> bucketToNode, TupleDomain<RaptorColumnHandle> effectivePredicate)
     {
-        return new ShardIterator(tableId, merged, Optional.of(bucketToNode), effectivePredicate, dbi);
+        return shardCache.getShardNodes(tableId, merged, Optional.of(bucketToNode), effectivePredicate)
+                .orElseGet(() -> new ShardIterator(tableId, merged, Optional.of(bucketToNode), effectivePredicate, dbi));
+    }
+
+    @Override
+    public DataSummary getDataSummary(long tableId, TupleDomain<RaptorColumnHandle> constraint, Set<RaptorColumnHandle> columns)
+    {
+        return DataSummaryQuery.getDataSummary(dbi, tableId, constraint, columns);
     }
 
     @Override
@@ -475,17 +575,19 @@ public class DatabaseShardManager
 
         int nodeId = getOrCreateNodeId(nodeIdentifier);
 
-        runTransaction(dbi, (handle, status) -> {
+        Set<Integer> nodes = new HashSet<>();
+        OptionalLong version = runTransaction(dbi, (handle, status) -> {
             ShardDao dao = shardDaoSupplier.attach(handle);
 
-            Set<Integer> nodes = new HashSet<>(fetchLockedNodeIds(handle, tableId, shardUuid));
-            if (nodes.add(nodeId)) {
-                updateNodeIds(handle, tableId, shardUuid, nodes);
-                dao.insertShardNode(shardUuid, nodeId);
+            nodes.addAll(fetchLockedNodeIds(handle, tableId, shardUuid));
+            if (!nodes.add(nodeId)) {
+                return OptionalLong.empty();
             }
-
-            return null;
+            updateNodeIds(handle, tableId, shardUuid, nodes);
+            dao.insertShardNode(shardUuid, nodeId);
+            return OptionalLong.of(incrementShardVersion(dao, tableId));
         });
+        version.ifPresent(value -> shardCache.shardNodesChanged(tableId, value, shardUuid, nodes));
     }
 
     @Override
@@ -493,17 +595,37 @@ public class DatabaseShardManager
     {
         int nodeId = getOrCreateNodeId(nodeIdentifier);
 
-        runTransaction(dbi, (handle, status) -> {
+        Set<Integer> nodes = new HashSet<>();
+        OptionalLong version = runTransaction(dbi, (handle, status) -> {
             ShardDao dao = shardDaoSupplier.attach(handle);
 
-            Set<Integer> nodes = new HashSet<>(fetchLockedNodeIds(handle, tableId, shardUuid));
-            if (nodes.remove(nodeId)) {
-                updateNodeIds(handle, tableId, shardUuid, nodes);
-                dao.deleteShardNode(shardUuid, nodeId);
+            nodes.addAll(fetchLockedNodeIds(handle, tableId, shardUuid));
+            if (!nodes.remove(nodeId)) {
+                return OptionalLong.empty();
             }
-
-            return null;
+            updateNodeIds(handle, tableId, shardUuid, nodes);
+            dao.deleteShardNode(shardUuid, nodeId);
+            return OptionalLong.of(incrementShardVersion(dao, tableId));
         });
+        version.ifPresent(value -> shardCache.shardNodesChanged(tableId, value, shardUuid, nodes));
+    }
+
+    @Managed
+    public long getShardCacheTableLoads()
+    {
+        return shardCache.getTableLoads();
+    }
+
+    @Managed
+    public long getShardCacheTableUpdates()
+    {
+        return shardCache.getTableUpdates();
+    }
+
+    @Managed
+    public long getShardCacheTables()
+    {
+        return shardCache.getCachedTables();
     }
 
     @Override
@@ -551,6 +673,19 @@ public class DatabaseShardManager
         }
     }
 
+    @Override
+    public List<DistributionBucket> getDistributionBuckets()
+    {
+        return dao.getDistributionBuckets();
+    }
+
+    @Override
+    public void updateBucketAssignment(long distributionId, int bucketNumber, String nodeIdentifier)
+    {
+        dao.updateBucketNode(distributionId, bucketNumber, getOrCreateNodeId(nodeIdentifier));
+        bucketAssignmentsCache.invalidate(distributionId);
+    }
+
     private Map<Integer, String> loadBucketAssignments(long distributionId)
     {
         Set<String> nodeIds = getNodeIdentifiers();
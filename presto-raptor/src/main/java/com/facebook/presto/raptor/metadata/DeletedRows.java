@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.metadata;
+
+import com.facebook.presto.spi.PrestoException;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.BitSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static com.facebook.presto.raptor.RaptorErrorCode.RAPTOR_ERROR;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The rows of a shard that were deleted after it was written, as a bitmap
+ * of row positions in the shard file. The bitmap is stored compressed in
+ * the metadata database and applied when the shard is read.
+ */
+public final class DeletedRows
+{
+    public static final DeletedRows NO_DELETED_ROWS = new DeletedRows(new BitSet());
+
+    private final BitSet rows;
+    private final long rowCount;
+
+    private DeletedRows(BitSet rows)
+    {
+        this.rows = requireNonNull(rows, "rows is null");
+        this.rowCount = rows.cardinality();
+    }
+
+    public static DeletedRows deletedRows(BitSet rows)
+    {
+        return new DeletedRows((BitSet) rows.clone());
+    }
+
+    @JsonCreator
+    public static DeletedRows fromBytes(byte[] bytes)
+    {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && inflater.needsInput()) {
+                    throw new PrestoException(RAPTOR_ERROR, "Truncated deleted rows bitmap");
+                }
+                output.write(buffer, 0, length);
+            }
+            return new DeletedRows(BitSet.valueOf(output.toByteArray()));
+        }
+        catch (DataFormatException e) {
+            throw new PrestoException(RAPTOR_ERROR, "Corrupt deleted rows bitmap", e);
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    @JsonValue
+    public byte[] toBytes()
+    {
+        byte[] bytes = rows.toByteArray();
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 4 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public boolean isDeleted(int position)
+    {
+        return rows.get(position);
+    }
+
+    /**
+     * Return the rows deleted here or in {@code other}.
+     */
+    public DeletedRows union(BitSet other)
+    {
+        BitSet union = (BitSet) rows.clone();
+        union.or(other);
+        return new DeletedRows(union);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return rows.equals(((DeletedRows) obj).rows);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return rows.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("rowCount", rowCount)
+                .toString();
+    }
+}
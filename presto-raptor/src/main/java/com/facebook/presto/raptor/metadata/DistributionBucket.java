@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.metadata;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A bucket of a distribution, the node it is assigned to, and the
+ * compressed size of the shards of all tables in the bucket.
+ */
+public class DistributionBucket
+{
+    private final long distributionId;
+    private final Optional<String> distributionName;
+    private final int bucketNumber;
+    private final String nodeIdentifier;
+    private final long sizeInBytes;
+
+    public DistributionBucket(long distributionId, Optional<String> distributionName, int bucketNumber, String nodeIdentifier, long sizeInBytes)
+    {
+        checkArgument(bucketNumber >= 0, "bucket number must be positive");
+        checkArgument(sizeInBytes >= 0, "sizeInBytes must be >= 0");
+        this.distributionId = distributionId;
+        this.distributionName = requireNonNull(distributionName, "distributionName is null");
+        this.bucketNumber = bucketNumber;
+        this.nodeIdentifier = requireNonNull(nodeIdentifier, "nodeIdentifier is null");
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    public long getDistributionId()
+    {
+        return distributionId;
+    }
+
+    public Optional<String> getDistributionName()
+    {
+        return distributionName;
+    }
+
+    public int getBucketNumber()
+    {
+        return bucketNumber;
+    }
+
+    public String getNodeIdentifier()
+    {
+        return nodeIdentifier;
+    }
+
+    public long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+        DistributionBucket that = (DistributionBucket) o;
+        return (distributionId == that.distributionId) &&
+                (bucketNumber == that.bucketNumber) &&
+                (sizeInBytes == that.sizeInBytes) &&
+                Objects.equals(distributionName, that.distributionName) &&
+                Objects.equals(nodeIdentifier, that.nodeIdentifier);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(distributionId, distributionName, bucketNumber, nodeIdentifier, sizeInBytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("distributionId", distributionId)
+                .add("distributionName", distributionName.orElse(null))
+                .add("bucketNumber", bucketNumber)
+                .add("nodeIdentifier", nodeIdentifier)
+                .add("sizeInBytes", sizeInBytes)
+                .omitNullValues()
+                .toString();
+    }
+
+    public static class Mapper
+            implements ResultSetMapper<DistributionBucket>
+    {
+        @Override
+        public DistributionBucket map(int index, ResultSet rs, StatementContext context)
+                throws SQLException
+        {
+            return new DistributionBucket(
+                    rs.getLong("distribution_id"),
+                    Optional.ofNullable(rs.getString("distribution_name")),
+                    rs.getInt("bucket_number"),
+                    rs.getString("node_identifier"),
+                    rs.getLong("bytes"));
+        }
+    }
+}
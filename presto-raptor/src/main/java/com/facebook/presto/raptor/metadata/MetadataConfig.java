@@ -17,6 +17,7 @@ import io.airlift.configuration.Config;
 import io.airlift.configuration.ConfigDescription;
 import io.airlift.units.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -26,6 +27,7 @@ public class MetadataConfig
     private Duration startupGracePeriod = new Duration(5, MINUTES);
     private Duration reassignmentDelay = new Duration(0, MINUTES);
     private Duration reassignmentInterval = new Duration(0, MINUTES);
+    private long shardCacheMaxShards = 1_000_000;
 
     @NotNull
     public Duration getStartupGracePeriod()
@@ -68,4 +70,18 @@ public class MetadataConfig
         this.reassignmentInterval = reassignmentInterval;
         return this;
     }
+
+    @Min(0)
+    public long getShardCacheMaxShards()
+    {
+        return shardCacheMaxShards;
+    }
+
+    @Config("raptor.shard-cache-max-shards")
+    @ConfigDescription("Maximum number of shards to cache in memory for split generation (zero disables the cache)")
+    public MetadataConfig setShardCacheMaxShards(long shardCacheMaxShards)
+    {
+        this.shardCacheMaxShards = shardCacheMaxShards;
+        return this;
+    }
 }
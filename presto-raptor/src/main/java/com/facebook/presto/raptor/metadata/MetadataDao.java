@@ -97,6 +97,11 @@ public interface MetadataDao
             "ORDER BY c.sort_ordinal_position")
     List<TableColumn> listSortColumns(@Bind("tableId") long tableId);
 
+    @SqlQuery("SELECT ordering_type\n" +
+            "FROM table_ordering_types\n" +
+            "WHERE table_id = :tableId")
+    String getOrderingType(@Bind("tableId") long tableId);
+
     @SqlQuery("SELECT t.schema_name, t.table_name, c.column_id, c.column_name, c.data_type\n" +
             "FROM tables t\n" +
             "JOIN columns c ON (t.table_id = c.table_id)\n" +
@@ -166,6 +171,15 @@ public interface MetadataDao
             @Bind("tableName") String tableName,
             @Bind("data") String data);
 
+    @SqlUpdate("INSERT INTO table_ordering_types (table_id, ordering_type)\n" +
+            "VALUES (:tableId, :orderingType)")
+    void insertOrderingType(
+            @Bind("tableId") long tableId,
+            @Bind("orderingType") String orderingType);
+
+    @SqlUpdate("DELETE FROM table_ordering_types WHERE table_id = :tableId")
+    int dropOrderingType(@Bind("tableId") long tableId);
+
     @SqlUpdate("DELETE FROM tables WHERE table_id = :tableId")
     int dropTable(@Bind("tableId") long tableId);
 
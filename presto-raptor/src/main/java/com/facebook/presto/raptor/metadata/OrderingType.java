@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.metadata;
+
+/**
+ * How the rows of each shard are ordered by the sort columns of the table.
+ */
+public enum OrderingType
+{
+    /**
+     * By the first sort column, then by the next for equal values, and so on.
+     */
+    LEXICOGRAPHIC,
+
+    /**
+     * Along a Z-order curve, so that each shard covers a narrow range of every
+     * sort column, rather than of the first one only.
+     */
+    ZORDER
+}
@@ -55,6 +55,13 @@ public interface SchemaDao
             ")")
     void createTableColumns();
 
+    @SqlUpdate("CREATE TABLE IF NOT EXISTS table_ordering_types (\n" +
+            "  table_id BIGINT PRIMARY KEY,\n" +
+            "  ordering_type VARCHAR(255) NOT NULL,\n" +
+            "  FOREIGN KEY (table_id) REFERENCES tables (table_id)\n" +
+            ")")
+    void createTableTableOrderingTypes();
+
     @SqlUpdate("CREATE TABLE IF NOT EXISTS views (\n" +
             "  schema_name VARCHAR(255) NOT NULL,\n" +
             "  table_name VARCHAR(255) NOT NULL,\n" +
@@ -93,6 +100,21 @@ public interface SchemaDao
             ")")
     void createTableShardNodes();
 
+    @SqlUpdate("CREATE TABLE IF NOT EXISTS shard_deletes (\n" +
+            "  shard_id BIGINT PRIMARY KEY,\n" +
+            "  deleted_row_count BIGINT NOT NULL,\n" +
+            "  deleted_rows MEDIUMBLOB NOT NULL,\n" +
+            "  FOREIGN KEY (shard_id) REFERENCES shards (shard_id)\n" +
+            ")")
+    void createTableShardDeletes();
+
+    @SqlUpdate("CREATE TABLE IF NOT EXISTS table_shard_versions (\n" +
+            "  table_id BIGINT PRIMARY KEY,\n" +
+            "  version BIGINT NOT NULL,\n" +
+            "  FOREIGN KEY (table_id) REFERENCES tables (table_id)\n" +
+            ")")
+    void createTableTableShardVersions();
+
     @SqlUpdate("CREATE TABLE IF NOT EXISTS external_batches (\n" +
             "  external_batch_id VARCHAR(255) PRIMARY KEY,\n" +
             "  successful BOOLEAN NOT NULL\n" +
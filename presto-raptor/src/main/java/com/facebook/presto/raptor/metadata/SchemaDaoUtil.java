@@ -48,10 +48,13 @@ public final class SchemaDaoUtil
         dao.createTableDistributions();
         dao.createTableTables();
         dao.createTableColumns();
+        dao.createTableTableOrderingTypes();
         dao.createTableViews();
         dao.createTableNodes();
         dao.createTableShards();
         dao.createTableShardNodes();
+        dao.createTableShardDeletes();
+        dao.createTableTableShardVersions();
         dao.createTableExternalBatches();
         dao.createTableTransactions();
         dao.createTableCreatedShards();
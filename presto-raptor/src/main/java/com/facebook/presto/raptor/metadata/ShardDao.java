@@ -58,7 +58,8 @@ public interface ShardDao
     @Mapper(RaptorNode.Mapper.class)
     List<RaptorNode> getNodes();
 
-    @SqlQuery("SELECT table_id, shard_id, shard_uuid, bucket_number, row_count, compressed_size, uncompressed_size\n" +
+    @SqlQuery("SELECT x.table_id, x.shard_id, x.shard_uuid, x.bucket_number, x.row_count, x.compressed_size, x.uncompressed_size,\n" +
+            "  coalesce(d.deleted_row_count, 0) deleted_row_count\n" +
             "FROM (\n" +
             "    SELECT s.*\n" +
             "    FROM shards s\n" +
@@ -76,7 +77,8 @@ public interface ShardDao
             "      s.bucket_number = b.bucket_number)\n" +
             "    JOIN nodes n ON (b.node_id = n.node_id)\n" +
             "    WHERE n.node_identifier = :nodeIdentifier\n" +
-            ") x")
+            ") x\n" +
+            "LEFT JOIN shard_deletes d ON (x.shard_id = d.shard_id)")
     @Mapper(ShardMetadata.Mapper.class)
     Set<ShardMetadata> getNodeShards(@Bind("nodeIdentifier") String nodeIdentifier);
 
@@ -109,9 +111,55 @@ public interface ShardDao
             "  WHERE table_id = :tableId)")
     void dropShardNodes(@Bind("tableId") long tableId);
 
+    @SqlUpdate("DELETE FROM shard_deletes WHERE shard_id IN (\n" +
+            "  SELECT shard_id\n" +
+            "  FROM shards\n" +
+            "  WHERE table_id = :tableId)")
+    void dropShardDeletes(@Bind("tableId") long tableId);
+
     @SqlUpdate("DELETE FROM shards WHERE table_id = :tableId")
     void dropShards(@Bind("tableId") long tableId);
 
+    @SqlQuery("SELECT shard_id FROM shards WHERE shard_uuid = :shardUuid")
+    Long getShardId(@Bind("shardUuid") UUID shardUuid);
+
+    @SqlQuery("SELECT deleted_row_count FROM shard_deletes WHERE shard_id = :shardId")
+    Long getDeletedRowCount(@Bind("shardId") long shardId);
+
+    @SqlQuery("SELECT version FROM table_shard_versions WHERE table_id = :tableId")
+    Long getShardVersion(@Bind("tableId") long tableId);
+
+    @SqlUpdate("INSERT INTO table_shard_versions (table_id, version) VALUES (:tableId, 1)")
+    void insertShardVersion(@Bind("tableId") long tableId);
+
+    @SqlUpdate("UPDATE table_shard_versions SET version = version + 1 WHERE table_id = :tableId")
+    int incrementShardVersion(@Bind("tableId") long tableId);
+
+    @SqlUpdate("DELETE FROM table_shard_versions WHERE table_id = :tableId")
+    void dropShardVersion(@Bind("tableId") long tableId);
+
+    @SqlQuery("SELECT d.deleted_rows\n" +
+            "FROM shard_deletes d\n" +
+            "JOIN shards s ON (d.shard_id = s.shard_id)\n" +
+            "WHERE s.shard_uuid = :shardUuid")
+    byte[] getDeletedRows(@Bind("shardUuid") UUID shardUuid);
+
+    @SqlUpdate("INSERT INTO shard_deletes (shard_id, deleted_row_count, deleted_rows)\n" +
+            "VALUES (:shardId, :deletedRowCount, :deletedRows)")
+    void insertShardDeletes(
+            @Bind("shardId") long shardId,
+            @Bind("deletedRowCount") long deletedRowCount,
+            @Bind("deletedRows") byte[] deletedRows);
+
+    @SqlUpdate("UPDATE shard_deletes SET\n" +
+            "  deleted_row_count = :deletedRowCount\n" +
+            ", deleted_rows = :deletedRows\n" +
+            "WHERE shard_id = :shardId")
+    void updateShardDeletes(
+            @Bind("shardId") long shardId,
+            @Bind("deletedRowCount") long deletedRowCount,
+            @Bind("deletedRows") byte[] deletedRows);
+
     @SqlUpdate("INSERT INTO external_batches (external_batch_id, successful)\n" +
             "VALUES (:externalBatchId, TRUE)")
     void insertExternalBatch(@Bind("externalBatchId") String externalBatchId);
@@ -195,6 +243,23 @@ public interface ShardDao
     @Mapper(BucketNode.Mapper.class)
     List<BucketNode> getBucketNodes(@Bind("distributionId") long distributionId);
 
+    @SqlQuery("SELECT b.distribution_id, d.distribution_name, b.bucket_number, n.node_identifier, coalesce(x.bytes, 0) bytes\n" +
+            "FROM buckets b\n" +
+            "JOIN distributions d ON (b.distribution_id = d.distribution_id)\n" +
+            "JOIN nodes n ON (b.node_id = n.node_id)\n" +
+            "LEFT JOIN (\n" +
+            "  SELECT t.distribution_id, s.bucket_number, sum(s.compressed_size) bytes\n" +
+            "  FROM shards s\n" +
+            "  JOIN tables t ON (s.table_id = t.table_id)\n" +
+            "  WHERE t.distribution_id IS NOT NULL\n" +
+            "  GROUP BY t.distribution_id, s.bucket_number\n" +
+            ") x ON (\n" +
+            "  b.distribution_id = x.distribution_id AND\n" +
+            "  b.bucket_number = x.bucket_number)\n" +
+            "ORDER BY b.distribution_id, b.bucket_number")
+    @Mapper(DistributionBucket.Mapper.class)
+    List<DistributionBucket> getDistributionBuckets();
+
     @SqlUpdate("UPDATE buckets SET node_id = :nodeId\n" +
             "WHERE distribution_id = :distributionId\n" +
             "  AND bucket_number = :bucketNumber")
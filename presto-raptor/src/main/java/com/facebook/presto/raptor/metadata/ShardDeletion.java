@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.metadata;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replaces the deleted rows of a shard. The commit fails if the shard no longer
+ * has {@code previousDeletedRowCount} deleted rows, as another transaction must
+ * have deleted rows from it or replaced it in the meantime.
+ */
+public class ShardDeletion
+{
+    private final UUID shardUuid;
+    private final long previousDeletedRowCount;
+    private final DeletedRows deletedRows;
+
+    @JsonCreator
+    public ShardDeletion(
+            @JsonProperty("shardUuid") UUID shardUuid,
+            @JsonProperty("previousDeletedRowCount") long previousDeletedRowCount,
+            @JsonProperty("deletedRows") DeletedRows deletedRows)
+    {
+        checkArgument(previousDeletedRowCount >= 0, "previousDeletedRowCount must be >= 0");
+        this.shardUuid = requireNonNull(shardUuid, "shardUuid is null");
+        this.previousDeletedRowCount = previousDeletedRowCount;
+        this.deletedRows = requireNonNull(deletedRows, "deletedRows is null");
+    }
+
+    @JsonProperty
+    public UUID getShardUuid()
+    {
+        return shardUuid;
+    }
+
+    @JsonProperty
+    public long getPreviousDeletedRowCount()
+    {
+        return previousDeletedRowCount;
+    }
+
+    @JsonProperty
+    public DeletedRows getDeletedRows()
+    {
+        return deletedRows;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("shardUuid", shardUuid)
+                .add("previousDeletedRowCount", previousDeletedRowCount)
+                .add("deletedRowCount", deletedRows.getRowCount())
+                .toString();
+    }
+}
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.raptor.metadata;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
 
@@ -26,13 +27,22 @@ public class ShardDelta
 {
     private final List<UUID> oldShardUuids;
     private final List<ShardInfo> newShards;
+    private final List<ShardDeletion> deletions;
 
+    public ShardDelta(List<UUID> oldShardUuids, List<ShardInfo> newShards)
+    {
+        this(oldShardUuids, newShards, ImmutableList.of());
+    }
+
+    @JsonCreator
     public ShardDelta(
             @JsonProperty("oldShardUuids") List<UUID> oldShardUuids,
-            @JsonProperty("newShards") List<ShardInfo> newShards)
+            @JsonProperty("newShards") List<ShardInfo> newShards,
+            @JsonProperty("deletions") List<ShardDeletion> deletions)
     {
         this.oldShardUuids = ImmutableList.copyOf(requireNonNull(oldShardUuids, "oldShardUuids is null"));
         this.newShards = ImmutableList.copyOf(requireNonNull(newShards, "newShards is null"));
+        this.deletions = ImmutableList.copyOf(requireNonNull(deletions, "deletions is null"));
     }
 
     @JsonProperty
@@ -47,12 +57,19 @@ public class ShardDelta
         return newShards;
     }
 
+    @JsonProperty
+    public List<ShardDeletion> getDeletions()
+    {
+        return deletions;
+    }
+
     @Override
     public String toString()
     {
         return toStringHelper(this)
                 .add("oldShardUuids", oldShardUuids)
                 .add("newShards", newShards)
+                .add("deletions", deletions)
                 .toString();
     }
 }
@@ -73,10 +73,17 @@ final class ShardIterator
 
         String sql;
         if (bucketToNode.isPresent()) {
-            sql = "SELECT shard_uuid, bucket_number FROM %s WHERE %s ORDER BY bucket_number";
+            sql = "SELECT x.shard_uuid, x.bucket_number, d.deleted_rows\n" +
+                    "FROM %s x\n" +
+                    "LEFT JOIN shard_deletes d ON (x.shard_id = d.shard_id)\n" +
+                    "WHERE %s\n" +
+                    "ORDER BY x.bucket_number";
         }
         else {
-            sql = "SELECT shard_uuid, node_ids FROM %s WHERE %s";
+            sql = "SELECT x.shard_uuid, x.node_ids, d.deleted_rows\n" +
+                    "FROM %s x\n" +
+                    "LEFT JOIN shard_deletes d ON (x.shard_id = d.shard_id)\n" +
+                    "WHERE %s";
         }
         sql = format(sql, shardIndexTable(tableId), predicate.getPredicate());
 
@@ -146,7 +153,7 @@ final class ShardIterator
             nodeIdentifiers = getNodeIdentifiers(nodeIds, shardUuid);
         }
 
-        ShardNodes shard = new ShardNodes(shardUuid, nodeIdentifiers);
+        ShardNodes shard = new ShardNodes(shardUuid, nodeIdentifiers, getDeletedRows(resultSet));
         return new BucketShards(bucketNumber, ImmutableSet.of(shard));
     }
 
@@ -174,13 +181,23 @@ final class ShardIterator
             int bucket = resultSet.getInt("bucket_number");
             Set<String> nodeIdentifiers = ImmutableSet.of(getBucketNode(bucket));
 
-            shards.add(new ShardNodes(shardUuid, nodeIdentifiers));
+            shards.add(new ShardNodes(shardUuid, nodeIdentifiers, getDeletedRows(resultSet)));
         }
         while (resultSet.next() && resultSet.getInt("bucket_number") == bucketNumber);
 
         return new BucketShards(OptionalInt.of(bucketNumber), shards.build());
     }
 
+    private static Optional<DeletedRows> getDeletedRows(ResultSet resultSet)
+            throws SQLException
+    {
+        byte[] bytes = resultSet.getBytes("deleted_rows");
+        if (bytes == null) {
+            return Optional.empty();
+        }
+        return Optional.of(DeletedRows.fromBytes(bytes));
+    }
+
     private String getBucketNode(int bucket)
     {
         String node = bucketToNode.get(bucket);
@@ -214,7 +231,7 @@ final class ShardIterator
         }
     }
 
-    private static void enableStreamingResults(Statement statement)
+    static void enableStreamingResults(Statement statement)
             throws SQLException
     {
         if (statement.isWrapperFor(com.mysql.jdbc.Statement.class)) {
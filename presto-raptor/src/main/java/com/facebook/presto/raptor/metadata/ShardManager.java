@@ -14,7 +14,9 @@
 package com.facebook.presto.raptor.metadata;
 
 import com.facebook.presto.raptor.RaptorColumnHandle;
+import com.facebook.presto.spi.DataSummary;
 import com.facebook.presto.spi.predicate.TupleDomain;
+import com.google.common.collect.ImmutableList;
 import org.skife.jdbi.v2.ResultIterator;
 
 import java.util.Collection;
@@ -49,7 +51,21 @@ public interface ShardManager
     /**
      * Replace oldShardsUuids with newShards.
      */
-    void replaceShardUuids(long transactionId, long tableId, List<ColumnInfo> columns, Set<UUID> oldShardUuids, Collection<ShardInfo> newShards);
+    default void replaceShardUuids(long transactionId, long tableId, List<ColumnInfo> columns, Set<UUID> oldShardUuids, Collection<ShardInfo> newShards)
+    {
+        replaceShardUuids(transactionId, tableId, columns, oldShardUuids, newShards, ImmutableList.of());
+    }
+
+    /**
+     * Replace oldShardsUuids with newShards, and replace the deleted rows of shards.
+     * The deletions are applied before the old shards are removed.
+     */
+    void replaceShardUuids(long transactionId, long tableId, List<ColumnInfo> columns, Set<UUID> oldShardUuids, Collection<ShardInfo> newShards, Collection<ShardDeletion> deletions);
+
+    /**
+     * Get the deleted rows of the shards that have any.
+     */
+    Map<UUID, DeletedRows> getDeletedRows(Set<UUID> shardUuids);
 
     /**
      * Get shard metadata for shards on a given node.
@@ -66,6 +82,11 @@ public interface ShardManager
      */
     ResultIterator<BucketShards> getShardNodesBucketed(long tableId, boolean merged, Map<Integer, String> bucketToNode, TupleDomain<RaptorColumnHandle> effectivePredicate);
 
+    /**
+     * Get the statistics of the rows of a table matching the constraint that are known exactly from the shard metadata.
+     */
+    DataSummary getDataSummary(long tableId, TupleDomain<RaptorColumnHandle> constraint, Set<RaptorColumnHandle> columns);
+
     /**
      * Assign a shard to a node.
      */
@@ -102,4 +123,14 @@ public interface ShardManager
      * Get map of buckets to node identifiers for a table.
      */
     Map<Integer, String> getBucketAssignments(long distributionId);
+
+    /**
+     * Get the buckets of all distributions with their nodes and sizes.
+     */
+    List<DistributionBucket> getDistributionBuckets();
+
+    /**
+     * Assign a bucket of a distribution to a node.
+     */
+    void updateBucketAssignment(long distributionId, int bucketNumber, String nodeIdentifier);
 }
@@ -40,6 +40,7 @@ public class ShardMetadata
     private final long rowCount;
     private final long compressedSize;
     private final long uncompressedSize;
+    private final long deletedRowCount;
     private final OptionalLong rangeStart;
     private final OptionalLong rangeEnd;
 
@@ -53,12 +54,28 @@ public class ShardMetadata
             long uncompressedSize,
             OptionalLong rangeStart,
             OptionalLong rangeEnd)
+    {
+        this(tableId, shardId, shardUuid, bucketNumber, rowCount, compressedSize, uncompressedSize, 0, rangeStart, rangeEnd);
+    }
+
+    public ShardMetadata(
+            long tableId,
+            long shardId,
+            UUID shardUuid,
+            OptionalInt bucketNumber,
+            long rowCount,
+            long compressedSize,
+            long uncompressedSize,
+            long deletedRowCount,
+            OptionalLong rangeStart,
+            OptionalLong rangeEnd)
     {
         checkArgument(tableId > 0, "tableId must be > 0");
         checkArgument(shardId > 0, "shardId must be > 0");
         checkArgument(rowCount >= 0, "rowCount must be >= 0");
         checkArgument(compressedSize >= 0, "compressedSize must be >= 0");
         checkArgument(uncompressedSize >= 0, "uncompressedSize must be >= 0");
+        checkArgument(deletedRowCount >= 0 && deletedRowCount <= rowCount, "deletedRowCount must be between zero and rowCount");
 
         this.tableId = tableId;
         this.shardId = shardId;
@@ -67,6 +84,7 @@ public class ShardMetadata
         this.rowCount = rowCount;
         this.compressedSize = compressedSize;
         this.uncompressedSize = uncompressedSize;
+        this.deletedRowCount = deletedRowCount;
         this.rangeStart = requireNonNull(rangeStart, "rangeStart is null");
         this.rangeEnd = requireNonNull(rangeEnd, "rangeEnd is null");
     }
@@ -106,6 +124,14 @@ public class ShardMetadata
         return uncompressedSize;
     }
 
+    /**
+     * The number of rows that are deleted but still stored in the shard file.
+     */
+    public long getDeletedRowCount()
+    {
+        return deletedRowCount;
+    }
+
     public OptionalLong getRangeStart()
     {
         return rangeStart;
@@ -126,6 +152,7 @@ public class ShardMetadata
                 rowCount,
                 compressedSize,
                 uncompressedSize,
+                deletedRowCount,
                 OptionalLong.of(rangeStart),
                 OptionalLong.of(rangeEnd));
     }
@@ -140,6 +167,9 @@ public class ShardMetadata
                 .add("compressedSize", DataSize.succinctBytes(compressedSize))
                 .add("uncompressedSize", DataSize.succinctBytes(uncompressedSize));
 
+        if (deletedRowCount > 0) {
+            stringHelper.add("deletedRowCount", deletedRowCount);
+        }
         if (bucketNumber.isPresent()) {
             stringHelper.add("bucketNumber", bucketNumber.getAsInt());
         }
@@ -168,6 +198,7 @@ public class ShardMetadata
                 Objects.equals(rowCount, that.rowCount) &&
                 Objects.equals(compressedSize, that.compressedSize) &&
                 Objects.equals(uncompressedSize, that.uncompressedSize) &&
+                Objects.equals(deletedRowCount, that.deletedRowCount) &&
                 Objects.equals(shardUuid, that.shardUuid) &&
                 Objects.equals(rangeStart, that.rangeStart) &&
                 Objects.equals(rangeEnd, that.rangeEnd);
@@ -184,6 +215,7 @@ public class ShardMetadata
                 rowCount,
                 compressedSize,
                 uncompressedSize,
+                deletedRowCount,
                 rangeStart,
                 rangeEnd);
     }
@@ -203,6 +235,7 @@ public class ShardMetadata
                     r.getLong("row_count"),
                     r.getLong("compressed_size"),
                     r.getLong("uncompressed_size"),
+                    r.getLong("deleted_row_count"),
                     OptionalLong.empty(),
                     OptionalLong.empty());
         }
@@ -0,0 +1,479 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.metadata;
+
+import com.facebook.presto.raptor.RaptorColumnHandle;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Striped;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.exceptions.DBIException;
+
+import java.sql.Connection;
+import java.sql.JDBCType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+import static com.facebook.presto.raptor.RaptorColumnHandle.isHiddenColumn;
+import static com.facebook.presto.raptor.RaptorErrorCode.RAPTOR_ERROR;
+import static com.facebook.presto.raptor.metadata.DatabaseShardManager.maxColumn;
+import static com.facebook.presto.raptor.metadata.DatabaseShardManager.minColumn;
+import static com.facebook.presto.raptor.metadata.DatabaseShardManager.shardIndexTable;
+import static com.facebook.presto.raptor.metadata.ShardIterator.enableStreamingResults;
+import static com.facebook.presto.raptor.util.ArrayUtil.intArrayFromBytes;
+import static com.facebook.presto.raptor.util.DatabaseUtil.metadataError;
+import static com.facebook.presto.raptor.util.UuidUtil.uuidFromBytes;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagateIfInstanceOf;
+import static java.lang.Math.toIntExact;
+import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
+import static org.skife.jdbi.v2.TransactionIsolationLevel.REPEATABLE_READ;
+
+/**
+ * Caches the shard index of tables in memory, so that splits are generated without
+ * querying the index tables. A cached table is used while its shard version is unchanged.
+ * Every change to the shards of a table increments the version in the same transaction,
+ * and the changes committed by this process are applied to the cached table directly.
+ * Tables with more shards than the cache holds are not cached.
+ */
+class ShardMetadataCache
+{
+    private final IDBI dbi;
+    private final ShardDao dao;
+    private final long maxShards;
+    private final Cache<Long, CachedTable> tables;
+    private final Striped<Lock> loadLocks = Striped.lock(64);
+    private final Map<Integer, String> nodeIdentifiers = new ConcurrentHashMap<>();
+
+    private final AtomicLong tableLoads = new AtomicLong();
+    private final AtomicLong tableUpdates = new AtomicLong();
+
+    public ShardMetadataCache(IDBI dbi, ShardDao dao, long maxShards)
+    {
+        checkArgument(maxShards >= 0, "maxShards is negative");
+        this.dbi = requireNonNull(dbi, "dbi is null");
+        this.dao = requireNonNull(dao, "dao is null");
+        this.maxShards = maxShards;
+        this.tables = CacheBuilder.newBuilder()
+                .maximumWeight(maxShards)
+                .weigher((Long tableId, CachedTable table) -> table.getWeight())
+                .build();
+    }
+
+    public long getTableLoads()
+    {
+        return tableLoads.get();
+    }
+
+    public long getTableUpdates()
+    {
+        return tableUpdates.get();
+    }
+
+    public long getCachedTables()
+    {
+        return tables.size();
+    }
+
+    /**
+     * Return the shards of a table that may contain rows matching the predicate,
+     * or empty if the table is not cached.
+     */
+    public Optional<ResultIterator<BucketShards>> getShardNodes(long tableId, boolean merged, Optional<Map<Integer, String>> bucketToNode, TupleDomain<RaptorColumnHandle> predicate)
+    {
+        if (maxShards == 0) {
+            return Optional.empty();
+        }
+        Optional<TableShards> shards = getTableShards(tableId);
+        if (!shards.isPresent()) {
+            return Optional.empty();
+        }
+        checkArgument(shards.get().isBucketed() == bucketToNode.isPresent(), "bucketToNode does not match table");
+        int[] positions = shards.get().getMatchingPositions(predicate);
+        return Optional.of(new CachedShardIterator(shards.get(), positions, merged, bucketToNode.orElse(null)));
+    }
+
+    /**
+     * Apply the changes committed for a table at a shard version.
+     */
+    public void shardsReplaced(long tableId, long version, Set<UUID> oldShardUuids, Collection<ShardInfo> newShards, Map<String, Integer> nodeIds, Collection<ShardDeletion> deletions)
+    {
+        update(tableId, version, newShards.size() - oldShardUuids.size(), shards -> shards.withChanges(version, oldShardUuids, newShards, nodeIds, deletions));
+    }
+
+    /**
+     * Apply the new nodes of a shard committed at a shard version.
+     */
+    public void shardNodesChanged(long tableId, long version, UUID shardUuid, Set<Integer> nodeIds)
+    {
+        update(tableId, version, 0, shards -> shards.withShardNodes(version, shardUuid, nodeIds));
+    }
+
+    public void invalidate(long tableId)
+    {
+        tables.invalidate(tableId);
+    }
+
+    private void update(long tableId, long version, int shardCountChange, Function<TableShards, Optional<TableShards>> change)
+    {
+        if (maxShards == 0) {
+            return;
+        }
+        tables.asMap().computeIfPresent(tableId, (id, table) -> {
+            // the table was changed by another process, or the change was applied already
+            if (table.getVersion() != version - 1) {
+                return null;
+            }
+            if (!table.getShards().isPresent()) {
+                long shardCount = table.getShardCount() + shardCountChange;
+                return (shardCount > maxShards) ? CachedTable.tooLarge(version, shardCount) : null;
+            }
+            tableUpdates.incrementAndGet();
+            return change.apply(table.getShards().get())
+                    .map(CachedTable::new)
+                    .orElse(null);
+        });
+    }
+
+    private Optional<TableShards> getTableShards(long tableId)
+    {
+        long version = getShardVersion(tableId);
+        CachedTable table = tables.getIfPresent(tableId);
+        if ((table == null) || (table.getVersion() < version)) {
+            Lock lock = loadLocks.get(tableId);
+            lock.lock();
+            try {
+                table = tables.getIfPresent(tableId);
+                if ((table == null) || (table.getVersion() < version)) {
+                    table = loadTable(tableId, table);
+                    tables.put(tableId, table);
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        return table.getShards();
+    }
+
+    private long getShardVersion(long tableId)
+    {
+        Long version = dao.getShardVersion(tableId);
+        return (version == null) ? 0 : version;
+    }
+
+    private CachedTable loadTable(long tableId, CachedTable previous)
+    {
+        tableLoads.incrementAndGet();
+        try {
+            // the version and the shards must be read from the same snapshot, as changes
+            // committed after the version are applied to the cached table by update()
+            return dbi.inTransaction(REPEATABLE_READ, (handle, status) -> loadTable(handle, tableId, previous));
+        }
+        catch (DBIException e) {
+            propagateIfInstanceOf(e.getCause(), PrestoException.class);
+            throw metadataError(e);
+        }
+    }
+
+    private CachedTable loadTable(Handle handle, long tableId, CachedTable previous)
+    {
+        Long shardVersion = handle.attach(ShardDao.class).getShardVersion(tableId);
+        long version = (shardVersion == null) ? 0 : shardVersion;
+
+        try {
+            Connection connection = handle.getConnection();
+
+            if ((previous != null) && !previous.getShards().isPresent()) {
+                long shardCount = getShardCount(connection, tableId);
+                if (shardCount > maxShards) {
+                    return CachedTable.tooLarge(version, shardCount);
+                }
+            }
+
+            String sql = format("" +
+                            "SELECT x.*, d.deleted_rows\n" +
+                            "FROM %s x\n" +
+                            "LEFT JOIN shard_deletes d ON (x.shard_id = d.shard_id)",
+                    shardIndexTable(tableId));
+
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                enableStreamingResults(statement);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    Map<String, Integer> columnIndexes = getColumnIndexes(resultSet.getMetaData());
+                    Map<Long, JDBCType> columnTypes = getIndexColumnTypes(resultSet.getMetaData(), columnIndexes);
+                    boolean bucketed = columnIndexes.containsKey("bucket_number");
+
+                    TableShards.Builder builder = new TableShards.Builder(bucketed, columnTypes);
+                    while (resultSet.next()) {
+                        if (builder.getShardCount() >= maxShards) {
+                            return CachedTable.tooLarge(version, getShardCount(connection, tableId));
+                        }
+                        addShard(builder, resultSet, bucketed, columnIndexes, columnTypes);
+                    }
+                    return new CachedTable(builder.build(version));
+                }
+            }
+        }
+        catch (SQLException e) {
+            throw metadataError(e);
+        }
+    }
+
+    private static void addShard(TableShards.Builder builder, ResultSet resultSet, boolean bucketed, Map<String, Integer> columnIndexes, Map<Long, JDBCType> columnTypes)
+            throws SQLException
+    {
+        UUID shardUuid = uuidFromBytes(resultSet.getBytes("shard_uuid"));
+        OptionalInt bucketNumber = OptionalInt.empty();
+        List<Integer> nodeIds = ImmutableList.of();
+        if (bucketed) {
+            bucketNumber = OptionalInt.of(resultSet.getInt("bucket_number"));
+        }
+        else {
+            nodeIds = intArrayFromBytes(resultSet.getBytes("node_ids"));
+        }
+        byte[] deletedRows = resultSet.getBytes("deleted_rows");
+
+        builder.addShard(shardUuid, bucketNumber, nodeIds, Optional.ofNullable(deletedRows).map(DeletedRows::fromBytes));
+        for (Map.Entry<Long, JDBCType> entry : columnTypes.entrySet()) {
+            long columnId = entry.getKey();
+            Object min = getValue(resultSet, columnIndexes.get(minColumn(columnId)), entry.getValue());
+            Object max = getValue(resultSet, columnIndexes.get(maxColumn(columnId)), entry.getValue());
+            builder.setColumnRange(columnId, min, max);
+        }
+    }
+
+    private static Object getValue(ResultSet resultSet, int index, JDBCType type)
+            throws SQLException
+    {
+        Object value;
+        switch (type) {
+            case BOOLEAN:
+                value = resultSet.getBoolean(index);
+                break;
+            case INTEGER:
+            case BIGINT:
+                value = resultSet.getLong(index);
+                break;
+            case DOUBLE:
+                value = resultSet.getDouble(index);
+                break;
+            default:
+                value = resultSet.getBytes(index);
+        }
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static long getShardCount(Connection connection, long tableId)
+            throws SQLException
+    {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT count(*) FROM " + shardIndexTable(tableId));
+                ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static Map<String, Integer> getColumnIndexes(ResultSetMetaData metadata)
+            throws SQLException
+    {
+        ImmutableMap.Builder<String, Integer> indexes = ImmutableMap.builder();
+        for (int i = 1; i <= metadata.getColumnCount(); i++) {
+            indexes.put(metadata.getColumnLabel(i).toLowerCase(ENGLISH), i);
+        }
+        return indexes.build();
+    }
+
+    private static Map<Long, JDBCType> getIndexColumnTypes(ResultSetMetaData metadata, Map<String, Integer> columnIndexes)
+            throws SQLException
+    {
+        ImmutableMap.Builder<Long, JDBCType> types = ImmutableMap.builder();
+        for (Map.Entry<String, Integer> entry : columnIndexes.entrySet()) {
+            String name = entry.getKey();
+            if (!name.matches("c\\d+_min")) {
+                continue;
+            }
+            long columnId = Long.parseLong(name.substring(1, name.length() - "_min".length()));
+            if (isHiddenColumn(columnId) || !columnIndexes.containsKey(maxColumn(columnId))) {
+                continue;
+            }
+            JDBCType type = indexColumnType(metadata.getColumnType(entry.getValue()));
+            if (type != null) {
+                types.put(columnId, type);
+            }
+        }
+        return types.build();
+    }
+
+    private static JDBCType indexColumnType(int sqlType)
+    {
+        switch (sqlType) {
+            // MySQL reports BOOLEAN columns as BIT or TINYINT
+            case Types.BOOLEAN:
+            case Types.BIT:
+            case Types.TINYINT:
+                return JDBCType.BOOLEAN;
+            case Types.INTEGER:
+                return JDBCType.INTEGER;
+            case Types.BIGINT:
+                return JDBCType.BIGINT;
+            case Types.DOUBLE:
+                return JDBCType.DOUBLE;
+            case Types.VARBINARY:
+            case Types.BINARY:
+                return JDBCType.VARBINARY;
+        }
+        return null;
+    }
+
+    private String getNodeIdentifier(int nodeId, UUID shardUuid)
+    {
+        return nodeIdentifiers.computeIfAbsent(nodeId, id -> {
+            String node = dao.getNodeIdentifier(id);
+            if (node == null) {
+                throw new PrestoException(RAPTOR_ERROR, format("Missing node ID [%s] for shard: %s", id, shardUuid));
+            }
+            return node;
+        });
+    }
+
+    private static final class CachedTable
+    {
+        private final long version;
+        private final long shardCount;
+        private final Optional<TableShards> shards;
+
+        public CachedTable(TableShards shards)
+        {
+            this(shards.getVersion(), shards.getShardCount(), Optional.of(shards));
+        }
+
+        private CachedTable(long version, long shardCount, Optional<TableShards> shards)
+        {
+            this.version = version;
+            this.shardCount = shardCount;
+            this.shards = requireNonNull(shards, "shards is null");
+        }
+
+        public static CachedTable tooLarge(long version, long shardCount)
+        {
+            return new CachedTable(version, shardCount, Optional.empty());
+        }
+
+        public long getVersion()
+        {
+            return version;
+        }
+
+        public long getShardCount()
+        {
+            return shardCount;
+        }
+
+        public Optional<TableShards> getShards()
+        {
+            return shards;
+        }
+
+        public int getWeight()
+        {
+            return shards.isPresent() ? Math.max(1, toIntExact(shardCount)) : 1;
+        }
+    }
+
+    private class CachedShardIterator
+            extends AbstractIterator<BucketShards>
+            implements ResultIterator<BucketShards>
+    {
+        private final TableShards shards;
+        private final int[] positions;
+        private final boolean merged;
+        private final Map<Integer, String> bucketToNode;
+        private int index;
+
+        public CachedShardIterator(TableShards shards, int[] positions, boolean merged, Map<Integer, String> bucketToNode)
+        {
+            this.shards = requireNonNull(shards, "shards is null");
+            this.positions = requireNonNull(positions, "positions is null");
+            this.merged = merged;
+            this.bucketToNode = bucketToNode;
+        }
+
+        @Override
+        protected BucketShards computeNext()
+        {
+            if (index >= positions.length) {
+                return endOfData();
+            }
+
+            if (bucketToNode == null) {
+                int position = positions[index];
+                index++;
+                UUID shardUuid = shards.getShardUuid(position);
+                Set<String> nodes = shards.getNodeIds(position).stream()
+                        .map(nodeId -> getNodeIdentifier(nodeId, shardUuid))
+                        .collect(toSet());
+                return new BucketShards(OptionalInt.empty(), ImmutableSet.of(new ShardNodes(shardUuid, nodes, shards.getDeletedRows(position))));
+            }
+
+            int bucketNumber = shards.getBucketNumber(positions[index]);
+            Set<String> nodes = ImmutableSet.of(getBucketNode(bucketNumber));
+            ImmutableSet.Builder<ShardNodes> bucketShards = ImmutableSet.builder();
+            do {
+                int position = positions[index];
+                index++;
+                bucketShards.add(new ShardNodes(shards.getShardUuid(position), nodes, shards.getDeletedRows(position)));
+            }
+            while (merged && (index < positions.length) && (shards.getBucketNumber(positions[index]) == bucketNumber));
+            return new BucketShards(OptionalInt.of(bucketNumber), bucketShards.build());
+        }
+
+        private String getBucketNode(int bucket)
+        {
+            String node = bucketToNode.get(bucket);
+            if (node == null) {
+                throw new PrestoException(RAPTOR_ERROR, "No node mapping for bucket: " + bucket);
+            }
+            return node;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
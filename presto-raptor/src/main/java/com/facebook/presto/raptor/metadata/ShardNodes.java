@@ -16,6 +16,7 @@ package com.facebook.presto.raptor.metadata;
 import com.google.common.collect.ImmutableSet;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
@@ -26,11 +27,18 @@ public class ShardNodes
 {
     private final UUID shardUuid;
     private final Set<String> nodeIdentifiers;
+    private final Optional<DeletedRows> deletedRows;
 
     public ShardNodes(UUID shardUuid, Set<String> nodeIdentifiers)
+    {
+        this(shardUuid, nodeIdentifiers, Optional.empty());
+    }
+
+    public ShardNodes(UUID shardUuid, Set<String> nodeIdentifiers, Optional<DeletedRows> deletedRows)
     {
         this.shardUuid = requireNonNull(shardUuid, "shardUuid is null");
         this.nodeIdentifiers = ImmutableSet.copyOf(requireNonNull(nodeIdentifiers, "nodeIdentifiers is null"));
+        this.deletedRows = requireNonNull(deletedRows, "deletedRows is null");
     }
 
     public UUID getShardUuid()
@@ -43,6 +51,11 @@ public class ShardNodes
         return nodeIdentifiers;
     }
 
+    public Optional<DeletedRows> getDeletedRows()
+    {
+        return deletedRows;
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -54,13 +67,14 @@ public class ShardNodes
         }
         ShardNodes other = (ShardNodes) obj;
         return Objects.equals(this.shardUuid, other.shardUuid) &&
-                Objects.equals(this.nodeIdentifiers, other.nodeIdentifiers);
+                Objects.equals(this.nodeIdentifiers, other.nodeIdentifiers) &&
+                Objects.equals(this.deletedRows, other.deletedRows);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(shardUuid, nodeIdentifiers);
+        return Objects.hash(shardUuid, nodeIdentifiers, deletedRows);
     }
 
     @Override
@@ -69,6 +83,8 @@ public class ShardNodes
         return toStringHelper(this)
                 .add("shardUuid", shardUuid)
                 .add("nodeIdentifiers", nodeIdentifiers)
+                .add("deletedRows", deletedRows.orElse(null))
+                .omitNullValues()
                 .toString();
     }
 }
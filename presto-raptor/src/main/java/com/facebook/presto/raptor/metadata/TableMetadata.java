@@ -26,12 +26,14 @@ public final class TableMetadata
     private final long tableId;
     private final List<ColumnInfo> columns;
     private final List<Long> sortColumnIds;
+    private final OrderingType orderingType;
 
-    public TableMetadata(long tableId, List<ColumnInfo> columns, List<Long> sortColumnIds)
+    public TableMetadata(long tableId, List<ColumnInfo> columns, List<Long> sortColumnIds, OrderingType orderingType)
     {
         this.tableId = tableId;
         this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
         this.sortColumnIds = ImmutableList.copyOf(requireNonNull(sortColumnIds, "sortColumnIds is null"));
+        this.orderingType = requireNonNull(orderingType, "orderingType is null");
     }
 
     public long getTableId()
@@ -49,6 +51,11 @@ public final class TableMetadata
         return sortColumnIds;
     }
 
+    public OrderingType getOrderingType()
+    {
+        return orderingType;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -61,13 +68,14 @@ public final class TableMetadata
         TableMetadata that = (TableMetadata) o;
         return Objects.equals(tableId, that.tableId) &&
                 Objects.equals(columns, that.columns) &&
-                Objects.equals(sortColumnIds, that.sortColumnIds);
+                Objects.equals(sortColumnIds, that.sortColumnIds) &&
+                Objects.equals(orderingType, that.orderingType);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(tableId, columns, sortColumnIds);
+        return Objects.hash(tableId, columns, sortColumnIds, orderingType);
     }
 
     @Override
@@ -77,6 +85,7 @@ public final class TableMetadata
                 .add("tableId", tableId)
                 .add("columns", columns)
                 .add("sortColumnIds", sortColumnIds)
+                .add("orderingType", orderingType)
                 .toString();
     }
 }
@@ -0,0 +1,927 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.metadata;
+
+import com.facebook.presto.raptor.RaptorColumnHandle;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.Ranges;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import java.sql.JDBCType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+import static com.facebook.presto.raptor.storage.ColumnIndexStatsUtils.jdbcType;
+import static com.facebook.presto.raptor.storage.ShardStats.truncateIndexValue;
+import static com.facebook.presto.raptor.util.Types.checkType;
+import static com.facebook.presto.raptor.util.UuidUtil.uuidFromBytes;
+import static com.facebook.presto.raptor.util.UuidUtil.uuidStringToBytes;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The shard index of a table at a shard version, stored in columnar arrays.
+ * Shards are pruned with the same rules as {@link ShardPredicate}.
+ * <p>
+ * The shards are split into immutable segments of a bounded size, which are sorted
+ * by shard UUID. A change copies only the segments of the shards it changes and the
+ * last segment, to which new shards are appended, so that applying a commit does not
+ * copy the whole table. The position of a shard combines the index of its segment
+ * and its index in the segment.
+ */
+final class TableShards
+{
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final long version;
+    private final boolean bucketed;
+    private final Map<Long, JDBCType> columnTypes;
+    private final List<Segment> segments;
+    private final int shardCount;
+
+    private TableShards(long version, boolean bucketed, Map<Long, JDBCType> columnTypes, List<Segment> segments)
+    {
+        this.version = version;
+        this.bucketed = bucketed;
+        this.columnTypes = ImmutableMap.copyOf(requireNonNull(columnTypes, "columnTypes is null"));
+        this.segments = ImmutableList.copyOf(requireNonNull(segments, "segments is null"));
+        this.shardCount = segments.stream().mapToInt(Segment::getShardCount).sum();
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public boolean isBucketed()
+    {
+        return bucketed;
+    }
+
+    public int getShardCount()
+    {
+        return shardCount;
+    }
+
+    @VisibleForTesting
+    int getSegmentCount()
+    {
+        return segments.size();
+    }
+
+    public UUID getShardUuid(int position)
+    {
+        return segment(position).getShardUuid(index(position));
+    }
+
+    public int getBucketNumber(int position)
+    {
+        checkArgument(bucketed, "table is not bucketed");
+        return segment(position).bucketNumbers[index(position)];
+    }
+
+    public List<Integer> getNodeIds(int position)
+    {
+        return segment(position).getNodeIds(index(position));
+    }
+
+    public Optional<DeletedRows> getDeletedRows(int position)
+    {
+        return segment(position).getDeletedRows(index(position));
+    }
+
+    private Segment segment(int position)
+    {
+        return segments.get(position >>> SEGMENT_BITS);
+    }
+
+    private static int index(int position)
+    {
+        return position & (SEGMENT_SIZE - 1);
+    }
+
+    private static int position(int segment, int index)
+    {
+        return (segment << SEGMENT_BITS) | index;
+    }
+
+    /**
+     * Return the position of a shard, or -1 if the shard is not in this copy.
+     */
+    private int findShard(UUID shardUuid)
+    {
+        for (int segment = 0; segment < segments.size(); segment++) {
+            int index = segments.get(segment).findShard(shardUuid);
+            if (index >= 0) {
+                return position(segment, index);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the positions of the shards that may contain rows matching the predicate.
+     * The shards of a bucketed table are ordered by bucket number.
+     */
+    public int[] getMatchingPositions(TupleDomain<RaptorColumnHandle> predicate)
+    {
+        if (predicate.isNone()) {
+            return NO_POSITIONS;
+        }
+
+        ImmutableList.Builder<ShardFilter> builder = ImmutableList.builder();
+        for (Entry<RaptorColumnHandle, Domain> entry : predicate.getDomains().get().entrySet()) {
+            Domain domain = entry.getValue();
+            if (domain.isNullAllowed() || domain.isAll()) {
+                continue;
+            }
+            RaptorColumnHandle handle = entry.getKey();
+            JDBCType jdbcType = jdbcType(handle.getColumnType());
+            if (jdbcType == null) {
+                continue;
+            }
+
+            if (handle.isShardUuid()) {
+                shardUuids(domain).ifPresent(uuids -> builder.add(segment -> index -> uuids.contains(segment.getShardUuid(index))));
+                continue;
+            }
+
+            if (!domain.getType().isOrderable()) {
+                continue;
+            }
+
+            Ranges ranges = domain.getValues().getRanges();
+            if (ranges.getRangeCount() != 1) {
+                continue;
+            }
+            Range range = getOnlyElement(ranges.getOrderedRanges());
+
+            Object minValue = null;
+            Object maxValue = null;
+            if (range.isSingleValue()) {
+                minValue = range.getSingleValue();
+                maxValue = range.getSingleValue();
+            }
+            else {
+                if (!range.getLow().isLowerUnbounded()) {
+                    minValue = range.getLow().getValue();
+                }
+                if (!range.getHigh().isUpperUnbounded()) {
+                    maxValue = range.getHigh().getValue();
+                }
+            }
+
+            if (handle.isBucketNumber()) {
+                if (!bucketed) {
+                    return NO_POSITIONS;
+                }
+                if (minValue != null) {
+                    long min = ((Number) minValue).intValue();
+                    builder.add(segment -> index -> segment.bucketNumbers[index] >= min);
+                }
+                if (maxValue != null) {
+                    long max = ((Number) maxValue).intValue();
+                    builder.add(segment -> index -> segment.bucketNumbers[index] <= max);
+                }
+                continue;
+            }
+
+            // the column was added after the shards were loaded
+            long columnId = handle.getColumnId();
+            JDBCType type = columnTypes.get(columnId);
+            if (type == null) {
+                continue;
+            }
+            if (minValue != null) {
+                Object value = toIndexValue(type, minValue);
+                builder.add(segment -> {
+                    IndexColumn column = segment.columns.get(columnId);
+                    return index -> column.maxAtLeast(index, value);
+                });
+            }
+            if (maxValue != null) {
+                Object value = toIndexValue(type, maxValue);
+                builder.add(segment -> {
+                    IndexColumn column = segment.columns.get(columnId);
+                    return index -> column.minAtMost(index, value);
+                });
+            }
+        }
+        List<ShardFilter> filters = builder.build();
+
+        int[] positions = new int[shardCount];
+        int count = 0;
+        for (int segmentIndex = 0; segmentIndex < segments.size(); segmentIndex++) {
+            Segment segment = segments.get(segmentIndex);
+            List<IntPredicate> segmentFilters = filters.stream()
+                    .map(filter -> filter.forSegment(segment))
+                    .collect(toList());
+            for (int index = 0; index < segment.getShardCount(); index++) {
+                if (matches(segmentFilters, index)) {
+                    positions[count] = position(segmentIndex, index);
+                    count++;
+                }
+            }
+        }
+        positions = Arrays.copyOf(positions, count);
+
+        if (bucketed) {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = (((long) getBucketNumber(positions[i])) << 32) | positions[i];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < count; i++) {
+                positions[i] = (int) keys[i];
+            }
+        }
+        return positions;
+    }
+
+    private static boolean matches(List<IntPredicate> filters, int index)
+    {
+        for (IntPredicate filter : filters) {
+            if (!filter.test(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Optional<Set<UUID>> shardUuids(Domain domain)
+    {
+        List<Range> ranges = domain.getValues().getRanges().getOrderedRanges();
+
+        // only apply predicates if all ranges are single values
+        if (ranges.isEmpty() || !ranges.stream().allMatch(Range::isSingleValue)) {
+            return Optional.empty();
+        }
+
+        ImmutableSet.Builder<UUID> uuids = ImmutableSet.builder();
+        for (Range range : ranges) {
+            Slice uuidText = checkType(range.getSingleValue(), Slice.class, "uuid");
+            try {
+                uuids.add(uuidFromBytes(uuidStringToBytes(uuidText).getBytes()));
+            }
+            catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(uuids.build());
+    }
+
+    /**
+     * Return a copy with the old shards removed, the new shards added and the deleted rows
+     * replaced, or empty if the changes do not apply to this copy. New shards that are in
+     * this copy already are not added again, so that applying a change twice does not
+     * duplicate shards.
+     */
+    public Optional<TableShards> withChanges(long version, Set<UUID> oldShardUuids, Collection<ShardInfo> newShards, Map<String, Integer> nodeIds, Collection<ShardDeletion> deletions)
+    {
+        // the removed shards and the new deleted rows, by segment and index in the segment
+        Map<Integer, Set<Integer>> removed = new HashMap<>();
+        Map<Integer, Map<Integer, DeletedRows>> newDeletedRows = new HashMap<>();
+        for (UUID shardUuid : oldShardUuids) {
+            int position = findShard(shardUuid);
+            if (position < 0) {
+                return Optional.empty();
+            }
+            removed.computeIfAbsent(position >>> SEGMENT_BITS, segment -> new HashSet<>()).add(index(position));
+        }
+        for (ShardDeletion deletion : deletions) {
+            int position = findShard(deletion.getShardUuid());
+            if (position < 0) {
+                return Optional.empty();
+            }
+            newDeletedRows.computeIfAbsent(position >>> SEGMENT_BITS, segment -> new HashMap<>()).put(index(position), deletion.getDeletedRows());
+        }
+
+        List<Segment> newSegments = new ArrayList<>(segments.size() + 1);
+        for (int segmentIndex = 0; segmentIndex < segments.size(); segmentIndex++) {
+            Segment segment = segments.get(segmentIndex);
+            Set<Integer> segmentRemoved = removed.getOrDefault(segmentIndex, ImmutableSet.of());
+            Map<Integer, DeletedRows> segmentDeletedRows = newDeletedRows.getOrDefault(segmentIndex, ImmutableMap.of());
+            if (segmentRemoved.isEmpty() && segmentDeletedRows.isEmpty()) {
+                newSegments.add(segment);
+                continue;
+            }
+            SegmentBuilder builder = new SegmentBuilder(bucketed, columnTypes);
+            for (int index = 0; index < segment.getShardCount(); index++) {
+                if (segmentRemoved.contains(index)) {
+                    continue;
+                }
+                int newIndex = builder.copyShard(segment, index);
+                DeletedRows deleted = segmentDeletedRows.get(index);
+                if (deleted != null) {
+                    builder.setDeletedRows(newIndex, deleted);
+                }
+            }
+            if (builder.getShardCount() > 0) {
+                newSegments.add(builder.build());
+            }
+        }
+
+        Set<UUID> addedShardUuids = new HashSet<>();
+        SegmentBuilder builder = null;
+        for (ShardInfo shard : newShards) {
+            if (shard.getBucketNumber().isPresent() != bucketed) {
+                return Optional.empty();
+            }
+            if ((findShard(shard.getShardUuid()) >= 0) || !addedShardUuids.add(shard.getShardUuid())) {
+                continue;
+            }
+            if (builder == null) {
+                builder = appendBuilder(newSegments);
+            }
+            else if (builder.isFull()) {
+                newSegments.add(builder.build());
+                builder = new SegmentBuilder(bucketed, columnTypes);
+            }
+            List<Integer> shardNodes = shard.getNodeIdentifiers().stream()
+                    .map(nodeIds::get)
+                    .collect(toList());
+            int index = builder.addShard(shard.getShardUuid(), shard.getBucketNumber(), shardNodes, Optional.empty());
+            for (ColumnStats stats : shard.getColumnStats()) {
+                if (!columnTypes.containsKey(stats.getColumnId())) {
+                    return Optional.empty();
+                }
+                builder.setColumnRange(stats.getColumnId(), index, stats.getMin(), stats.getMax());
+            }
+        }
+        if (builder != null) {
+            newSegments.add(builder.build());
+        }
+
+        // segments shrink as shards are removed, so merge them when they are mostly empty
+        int newShardCount = newSegments.stream().mapToInt(Segment::getShardCount).sum();
+        if (newSegments.size() > ((2 * newShardCount) / SEGMENT_SIZE) + 1) {
+            newSegments = mergeSegments(newSegments);
+        }
+        return Optional.of(new TableShards(version, bucketed, columnTypes, newSegments));
+    }
+
+    /**
+     * Return a copy with the nodes of a shard replaced, or empty if the shard is not in this copy.
+     */
+    public Optional<TableShards> withShardNodes(long version, UUID shardUuid, Set<Integer> shardNodes)
+    {
+        if (bucketed) {
+            return Optional.empty();
+        }
+        int position = findShard(shardUuid);
+        if (position < 0) {
+            return Optional.empty();
+        }
+
+        Segment segment = segment(position);
+        SegmentBuilder builder = new SegmentBuilder(bucketed, columnTypes);
+        for (int index = 0; index < segment.getShardCount(); index++) {
+            if (index == index(position)) {
+                int newIndex = builder.addShard(shardUuid, OptionalInt.empty(), shardNodes, segment.getDeletedRows(index));
+                builder.copyColumns(segment, index, newIndex);
+            }
+            else {
+                builder.copyShard(segment, index);
+            }
+        }
+
+        List<Segment> newSegments = new ArrayList<>(segments);
+        newSegments.set(position >>> SEGMENT_BITS, builder.build());
+        return Optional.of(new TableShards(version, bucketed, columnTypes, newSegments));
+    }
+
+    /**
+     * Remove the last segment if it is not full, and return a builder that contains its shards.
+     */
+    private SegmentBuilder appendBuilder(List<Segment> segments)
+    {
+        SegmentBuilder builder = new SegmentBuilder(bucketed, columnTypes);
+        if (!segments.isEmpty() && (segments.get(segments.size() - 1).getShardCount() < SEGMENT_SIZE)) {
+            Segment last = segments.remove(segments.size() - 1);
+            for (int index = 0; index < last.getShardCount(); index++) {
+                builder.copyShard(last, index);
+            }
+        }
+        return builder;
+    }
+
+    private List<Segment> mergeSegments(List<Segment> segments)
+    {
+        List<Segment> merged = new ArrayList<>();
+        SegmentBuilder builder = new SegmentBuilder(bucketed, columnTypes);
+        for (Segment segment : segments) {
+            for (int index = 0; index < segment.getShardCount(); index++) {
+                if (builder.isFull()) {
+                    merged.add(builder.build());
+                    builder = new SegmentBuilder(bucketed, columnTypes);
+                }
+                builder.copyShard(segment, index);
+            }
+        }
+        if (builder.getShardCount() > 0) {
+            merged.add(builder.build());
+        }
+        return merged;
+    }
+
+    private static Object toIndexValue(JDBCType type, Object value)
+    {
+        if (value == null) {
+            return null;
+        }
+        switch (type) {
+            case BOOLEAN:
+                return ((Boolean) value) ? 1L : 0L;
+            case INTEGER:
+                return (long) ((Number) value).intValue();
+            case BIGINT:
+                return ((Number) value).longValue();
+            case DOUBLE:
+                return sortableDouble(((Number) value).doubleValue());
+            case VARBINARY:
+                if (value instanceof String) {
+                    value = utf8Slice((String) value);
+                }
+                if (value instanceof Slice) {
+                    return truncateIndexValue((Slice) value).getBytes();
+                }
+                return requireNonNull((byte[]) value, "value is null");
+        }
+        throw new IllegalArgumentException("Unhandled type: " + type);
+    }
+
+    /**
+     * Encode a double as a long that has the same order.
+     */
+    private static long sortableDouble(double value)
+    {
+        // negative zero equals zero
+        long bits = Double.doubleToLongBits(value == 0 ? 0 : value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static int compareUnsigned(byte[] left, byte[] right)
+    {
+        int length = Math.min(left.length, right.length);
+        for (int i = 0; i < length; i++) {
+            int compare = Integer.compare(left[i] & 0xFF, right[i] & 0xFF);
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return Integer.compare(left.length, right.length);
+    }
+
+    /**
+     * The minimum and maximum values of an index column. Values of the types stored as
+     * JDBC numbers or booleans are encoded as sortable longs, others as byte arrays.
+     */
+    private static final class IndexColumn
+    {
+        private final JDBCType type;
+        private long[] longMins;
+        private long[] longMaxes;
+        private byte[][] binaryMins;
+        private byte[][] binaryMaxes;
+        private final BitSet hasMin;
+        private final BitSet hasMax;
+
+        public IndexColumn(JDBCType type, int capacity)
+        {
+            this.type = requireNonNull(type, "type is null");
+            if (type == JDBCType.VARBINARY) {
+                binaryMins = new byte[capacity][];
+                binaryMaxes = new byte[capacity][];
+            }
+            else {
+                longMins = new long[capacity];
+                longMaxes = new long[capacity];
+            }
+            hasMin = new BitSet(capacity);
+            hasMax = new BitSet(capacity);
+        }
+
+        private IndexColumn(IndexColumn source, int capacity)
+        {
+            this.type = source.type;
+            if (type == JDBCType.VARBINARY) {
+                binaryMins = Arrays.copyOf(source.binaryMins, capacity);
+                binaryMaxes = Arrays.copyOf(source.binaryMaxes, capacity);
+            }
+            else {
+                longMins = Arrays.copyOf(source.longMins, capacity);
+                longMaxes = Arrays.copyOf(source.longMaxes, capacity);
+            }
+            hasMin = (BitSet) source.hasMin.clone();
+            hasMax = (BitSet) source.hasMax.clone();
+        }
+
+        public JDBCType getType()
+        {
+            return type;
+        }
+
+        public IndexColumn copy(int capacity)
+        {
+            return new IndexColumn(this, capacity);
+        }
+
+        public void ensureCapacity(int capacity)
+        {
+            if (type == JDBCType.VARBINARY) {
+                binaryMins = Arrays.copyOf(binaryMins, capacity);
+                binaryMaxes = Arrays.copyOf(binaryMaxes, capacity);
+            }
+            else {
+                longMins = Arrays.copyOf(longMins, capacity);
+                longMaxes = Arrays.copyOf(longMaxes, capacity);
+            }
+        }
+
+        /**
+         * Set the values of a position, which are converted by {@link #toIndexValue}.
+         */
+        public void set(int position, Object min, Object max)
+        {
+            hasMin.set(position, min != null);
+            hasMax.set(position, max != null);
+            if (type == JDBCType.VARBINARY) {
+                binaryMins[position] = (byte[]) min;
+                binaryMaxes[position] = (byte[]) max;
+            }
+            else {
+                longMins[position] = (min == null) ? 0 : (long) min;
+                longMaxes[position] = (max == null) ? 0 : (long) max;
+            }
+        }
+
+        public void copy(IndexColumn source, int sourcePosition, int position)
+        {
+            hasMin.set(position, source.hasMin.get(sourcePosition));
+            hasMax.set(position, source.hasMax.get(sourcePosition));
+            if (type == JDBCType.VARBINARY) {
+                binaryMins[position] = source.binaryMins[sourcePosition];
+                binaryMaxes[position] = source.binaryMaxes[sourcePosition];
+            }
+            else {
+                longMins[position] = source.longMins[sourcePosition];
+                longMaxes[position] = source.longMaxes[sourcePosition];
+            }
+        }
+
+        /**
+         * Equivalent to {@code max >= ? OR max IS NULL}.
+         */
+        public boolean maxAtLeast(int position, Object value)
+        {
+            if (!hasMax.get(position)) {
+                return true;
+            }
+            if (type == JDBCType.VARBINARY) {
+                return compareUnsigned(binaryMaxes[position], (byte[]) value) >= 0;
+            }
+            return longMaxes[position] >= (long) value;
+        }
+
+        /**
+         * Equivalent to {@code min <= ? OR min IS NULL}.
+         */
+        public boolean minAtMost(int position, Object value)
+        {
+            if (!hasMin.get(position)) {
+                return true;
+            }
+            if (type == JDBCType.VARBINARY) {
+                return compareUnsigned(binaryMins[position], (byte[]) value) <= 0;
+            }
+            return longMins[position] <= (long) value;
+        }
+    }
+
+    private interface ShardFilter
+    {
+        IntPredicate forSegment(Segment segment);
+    }
+
+    /**
+     * The shards of a segment, sorted by shard UUID.
+     */
+    private static final class Segment
+    {
+        private final int shardCount;
+        private final long[] uuidMostSignificantBits;
+        private final long[] uuidLeastSignificantBits;
+        private final int[] bucketNumbers;
+        private final int[] nodeOffsets;
+        private final int[] nodeIds;
+        private final DeletedRows[] deletedRows;
+        private final Map<Long, IndexColumn> columns;
+
+        private Segment(SegmentBuilder builder)
+        {
+            this.shardCount = builder.shardCount;
+            this.uuidMostSignificantBits = Arrays.copyOf(builder.uuidMostSignificantBits, shardCount);
+            this.uuidLeastSignificantBits = Arrays.copyOf(builder.uuidLeastSignificantBits, shardCount);
+            this.bucketNumbers = Arrays.copyOf(builder.bucketNumbers, shardCount);
+            this.nodeOffsets = Arrays.copyOf(builder.nodeOffsets, shardCount + 1);
+            this.nodeIds = Arrays.copyOf(builder.nodeIds, nodeOffsets[shardCount]);
+            this.deletedRows = Arrays.copyOf(builder.deletedRows, shardCount);
+
+            ImmutableMap.Builder<Long, IndexColumn> columns = ImmutableMap.builder();
+            for (Entry<Long, IndexColumn> entry : builder.columns.entrySet()) {
+                columns.put(entry.getKey(), entry.getValue().copy(shardCount));
+            }
+            this.columns = columns.build();
+        }
+
+        public int getShardCount()
+        {
+            return shardCount;
+        }
+
+        public UUID getShardUuid(int index)
+        {
+            return new UUID(uuidMostSignificantBits[index], uuidLeastSignificantBits[index]);
+        }
+
+        public List<Integer> getNodeIds(int index)
+        {
+            ImmutableList.Builder<Integer> nodes = ImmutableList.builder();
+            for (int i = nodeOffsets[index]; i < nodeOffsets[index + 1]; i++) {
+                nodes.add(nodeIds[i]);
+            }
+            return nodes.build();
+        }
+
+        public Optional<DeletedRows> getDeletedRows(int index)
+        {
+            return Optional.ofNullable(deletedRows[index]);
+        }
+
+        /**
+         * Return the index of a shard, or -1 if the shard is not in this segment.
+         */
+        public int findShard(UUID shardUuid)
+        {
+            int low = 0;
+            int high = shardCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int compare = compareUuid(uuidMostSignificantBits[middle], uuidLeastSignificantBits[middle], shardUuid.getMostSignificantBits(), shardUuid.getLeastSignificantBits());
+                if (compare < 0) {
+                    low = middle + 1;
+                }
+                else if (compare > 0) {
+                    high = middle - 1;
+                }
+                else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static int compareUuid(long leftMostSignificantBits, long leftLeastSignificantBits, long rightMostSignificantBits, long rightLeastSignificantBits)
+    {
+        int compare = Long.compare(leftMostSignificantBits, rightMostSignificantBits);
+        if (compare != 0) {
+            return compare;
+        }
+        return Long.compare(leftLeastSignificantBits, rightLeastSignificantBits);
+    }
+
+    private static final class SegmentBuilder
+    {
+        private final boolean bucketed;
+        private final Map<Long, JDBCType> columnTypes;
+        private final Map<Long, IndexColumn> columns;
+        private int shardCount;
+        private long[] uuidMostSignificantBits;
+        private long[] uuidLeastSignificantBits;
+        private int[] bucketNumbers;
+        private int[] nodeOffsets;
+        private int[] nodeIds;
+        private DeletedRows[] deletedRows;
+
+        public SegmentBuilder(boolean bucketed, Map<Long, JDBCType> columnTypes)
+        {
+            this.bucketed = bucketed;
+            this.columnTypes = requireNonNull(columnTypes, "columnTypes is null");
+            int capacity = 16;
+            ImmutableMap.Builder<Long, IndexColumn> columns = ImmutableMap.builder();
+            for (Entry<Long, JDBCType> entry : columnTypes.entrySet()) {
+                columns.put(entry.getKey(), new IndexColumn(entry.getValue(), capacity));
+            }
+            this.columns = columns.build();
+            this.uuidMostSignificantBits = new long[capacity];
+            this.uuidLeastSignificantBits = new long[capacity];
+            this.bucketNumbers = new int[capacity];
+            this.nodeOffsets = new int[capacity + 1];
+            this.nodeIds = new int[capacity];
+            this.deletedRows = new DeletedRows[capacity];
+        }
+
+        public int getShardCount()
+        {
+            return shardCount;
+        }
+
+        public boolean isFull()
+        {
+            return shardCount >= SEGMENT_SIZE;
+        }
+
+        public int addShard(UUID shardUuid, OptionalInt bucketNumber, Collection<Integer> shardNodes, Optional<DeletedRows> shardDeletedRows)
+        {
+            checkArgument(bucketNumber.isPresent() == bucketed, "bucket number mismatch");
+            checkState(!isFull(), "segment is full");
+            int index = shardCount;
+            ensureCapacity(index + 1);
+            uuidMostSignificantBits[index] = shardUuid.getMostSignificantBits();
+            uuidLeastSignificantBits[index] = shardUuid.getLeastSignificantBits();
+            bucketNumbers[index] = bucketNumber.orElse(0);
+
+            int nodeOffset = nodeOffsets[index];
+            if (!bucketed) {
+                if (nodeOffset + shardNodes.size() > nodeIds.length) {
+                    nodeIds = Arrays.copyOf(nodeIds, Math.max(nodeOffset + shardNodes.size(), nodeIds.length * 2));
+                }
+                for (int nodeId : shardNodes) {
+                    nodeIds[nodeOffset] = nodeId;
+                    nodeOffset++;
+                }
+            }
+            nodeOffsets[index + 1] = nodeOffset;
+
+            deletedRows[index] = shardDeletedRows.orElse(null);
+            shardCount++;
+            return index;
+        }
+
+        public void setColumnRange(long columnId, int index, Object min, Object max)
+        {
+            IndexColumn column = columns.get(columnId);
+            if (column != null) {
+                column.set(index, toIndexValue(column.getType(), min), toIndexValue(column.getType(), max));
+            }
+        }
+
+        public void setDeletedRows(int index, DeletedRows rows)
+        {
+            deletedRows[index] = rows;
+        }
+
+        public int copyShard(Segment source, int sourceIndex)
+        {
+            OptionalInt bucketNumber = bucketed ? OptionalInt.of(source.bucketNumbers[sourceIndex]) : OptionalInt.empty();
+            int index = addShard(source.getShardUuid(sourceIndex), bucketNumber, source.getNodeIds(sourceIndex), source.getDeletedRows(sourceIndex));
+            copyColumns(source, sourceIndex, index);
+            return index;
+        }
+
+        public void copyColumns(Segment source, int sourceIndex, int index)
+        {
+            for (Entry<Long, IndexColumn> entry : columns.entrySet()) {
+                entry.getValue().copy(source.columns.get(entry.getKey()), sourceIndex, index);
+            }
+        }
+
+        private void ensureCapacity(int capacity)
+        {
+            if (capacity <= uuidMostSignificantBits.length) {
+                return;
+            }
+            int newCapacity = Math.min(Math.max(capacity, uuidMostSignificantBits.length * 2), SEGMENT_SIZE);
+            uuidMostSignificantBits = Arrays.copyOf(uuidMostSignificantBits, newCapacity);
+            uuidLeastSignificantBits = Arrays.copyOf(uuidLeastSignificantBits, newCapacity);
+            bucketNumbers = Arrays.copyOf(bucketNumbers, newCapacity);
+            nodeOffsets = Arrays.copyOf(nodeOffsets, newCapacity + 1);
+            deletedRows = Arrays.copyOf(deletedRows, newCapacity);
+            for (IndexColumn column : columns.values()) {
+                column.ensureCapacity(newCapacity);
+            }
+        }
+
+        public Segment build()
+        {
+            Segment segment = new Segment(this);
+
+            int[] order = new int[shardCount];
+            boolean sorted = true;
+            for (int index = 0; index < shardCount; index++) {
+                order[index] = index;
+                if ((index > 0) && (compareUuid(uuidMostSignificantBits[index - 1], uuidLeastSignificantBits[index - 1], uuidMostSignificantBits[index], uuidLeastSignificantBits[index]) > 0)) {
+                    sorted = false;
+                }
+            }
+            if (sorted) {
+                return segment;
+            }
+
+            IntArrays.quickSort(order, new AbstractIntComparator()
+            {
+                @Override
+                public int compare(int left, int right)
+                {
+                    return compareUuid(
+                            segment.uuidMostSignificantBits[left],
+                            segment.uuidLeastSignificantBits[left],
+                            segment.uuidMostSignificantBits[right],
+                            segment.uuidLeastSignificantBits[right]);
+                }
+            });
+            SegmentBuilder builder = new SegmentBuilder(bucketed, columnTypes);
+            for (int index : order) {
+                builder.copyShard(segment, index);
+            }
+            return new Segment(builder);
+        }
+    }
+
+    public static class Builder
+    {
+        private final boolean bucketed;
+        private final Map<Long, JDBCType> columnTypes;
+        private final List<Segment> segments = new ArrayList<>();
+        private SegmentBuilder segment;
+        private int shardCount;
+
+        public Builder(boolean bucketed, Map<Long, JDBCType> columnTypes)
+        {
+            this.bucketed = bucketed;
+            this.columnTypes = ImmutableMap.copyOf(requireNonNull(columnTypes, "columnTypes is null"));
+            this.segment = new SegmentBuilder(bucketed, this.columnTypes);
+        }
+
+        public int getShardCount()
+        {
+            return shardCount;
+        }
+
+        public void addShard(UUID shardUuid, OptionalInt bucketNumber, Collection<Integer> shardNodes, Optional<DeletedRows> shardDeletedRows)
+        {
+            if (segment.isFull()) {
+                segments.add(segment.build());
+                segment = new SegmentBuilder(bucketed, columnTypes);
+            }
+            segment.addShard(shardUuid, bucketNumber, shardNodes, shardDeletedRows);
+            shardCount++;
+        }
+
+        /**
+         * Set the minimum and maximum values of a column for the last added shard. Columns not in the index are ignored.
+         */
+        public void setColumnRange(long columnId, Object min, Object max)
+        {
+            checkState(segment.getShardCount() > 0, "no shard added");
+            segment.setColumnRange(columnId, segment.getShardCount() - 1, min, max);
+        }
+
+        public TableShards build(long version)
+        {
+            ImmutableList.Builder<Segment> segments = ImmutableList.<Segment>builder().addAll(this.segments);
+            if (segment.getShardCount() > 0) {
+                segments.add(segment.build());
+            }
+            return new TableShards(version, bucketed, columnTypes, segments.build());
+        }
+    }
+}
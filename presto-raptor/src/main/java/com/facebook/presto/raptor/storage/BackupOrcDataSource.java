@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.storage;
+
+import com.facebook.presto.orc.AbstractOrcDataSource;
+import com.facebook.presto.raptor.backup.BackupStore;
+import io.airlift.units.DataSize;
+
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads a shard directly from the backup store, so that queries do not
+ * have to wait until a missing shard has been restored to local storage.
+ */
+public class BackupOrcDataSource
+        extends AbstractOrcDataSource
+{
+    private final BackupStore backupStore;
+    private final UUID shardUuid;
+
+    public BackupOrcDataSource(BackupStore backupStore, UUID shardUuid, DataSize maxMergeDistance, DataSize maxReadSize, DataSize streamBufferSize)
+    {
+        super("backup:" + shardUuid, backupStore.getShardSize(shardUuid), maxMergeDistance, maxReadSize, streamBufferSize);
+        this.backupStore = requireNonNull(backupStore, "backupStore is null");
+        this.shardUuid = requireNonNull(shardUuid, "shardUuid is null");
+    }
+
+    @Override
+    protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+    {
+        backupStore.readShard(shardUuid, position, buffer, bufferOffset, bufferLength);
+    }
+}
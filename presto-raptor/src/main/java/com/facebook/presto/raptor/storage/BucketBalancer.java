@@ -0,0 +1,330 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.storage;
+
+import com.facebook.presto.raptor.NodeSupplier;
+import com.facebook.presto.raptor.RaptorConnectorId;
+import com.facebook.presto.raptor.backup.BackupStore;
+import com.facebook.presto.raptor.metadata.DistributionBucket;
+import com.facebook.presto.raptor.metadata.ShardManager;
+import com.facebook.presto.spi.Node;
+import com.facebook.presto.spi.NodeManager;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.succinctBytes;
+import static java.util.Comparator.comparingLong;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Moves buckets of bucketed tables from nodes that have more buckets of a distribution
+ * than others to nodes that have fewer, for example after nodes are added to the cluster.
+ * Ties are broken by the size of all buckets assigned to a node, and the smallest bucket
+ * of a node is moved first, to limit the amount of data copied.
+ * <p>
+ * Moving a bucket only changes its assignment. The new node restores the shards of the
+ * bucket from backup, and the old node cleans up its local copies later, so the balancer
+ * only runs on the coordinator when a backup store is configured. The number of buckets
+ * moved each time it runs is limited, so that the cluster is rebalanced gradually.
+ */
+public class BucketBalancer
+{
+    private static final Logger log = Logger.get(BucketBalancer.class);
+
+    private final NodeSupplier nodeSupplier;
+    private final ShardManager shardManager;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int maxBucketMoves;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final CounterStat bucketsBalanced = new CounterStat();
+    private final CounterStat jobErrors = new CounterStat();
+    private final AtomicLong pendingBucketMoves = new AtomicLong();
+
+    @Inject
+    public BucketBalancer(
+            NodeManager nodeManager,
+            NodeSupplier nodeSupplier,
+            ShardManager shardManager,
+            BucketBalancerConfig config,
+            Optional<BackupStore> backupStore,
+            RaptorConnectorId connectorId)
+    {
+        this(nodeSupplier,
+                shardManager,
+                config.isBalancerEnabled() &&
+                        backupStore.isPresent() &&
+                        nodeManager.getCoordinators().contains(nodeManager.getCurrentNode()),
+                config.getBalancerInterval(),
+                config.getMaxBucketMoves(),
+                connectorId.toString());
+    }
+
+    public BucketBalancer(
+            NodeSupplier nodeSupplier,
+            ShardManager shardManager,
+            boolean enabled,
+            Duration interval,
+            int maxBucketMoves,
+            String connectorId)
+    {
+        this.nodeSupplier = requireNonNull(nodeSupplier, "nodeSupplier is null");
+        this.shardManager = requireNonNull(shardManager, "shardManager is null");
+        this.enabled = enabled;
+        this.interval = requireNonNull(interval, "interval is null");
+        this.maxBucketMoves = maxBucketMoves;
+        this.executor = newScheduledThreadPool(1, daemonThreadsNamed("bucket-balancer-" + connectorId));
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if (enabled && !started.getAndSet(true)) {
+            startJob();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getBucketsBalanced()
+    {
+        return bucketsBalanced;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getJobErrors()
+    {
+        return jobErrors;
+    }
+
+    @Managed(description = "Bucket moves still needed to balance the cluster after the last run")
+    public long getPendingBucketMoves()
+    {
+        return pendingBucketMoves.get();
+    }
+
+    private void startJob()
+    {
+        // wait for an interval so that nodes can join the cluster after a restart
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                process();
+            }
+            catch (Throwable t) {
+                log.error(t, "Error balancing buckets");
+                jobErrors.update(1);
+            }
+        }, interval.toMillis(), interval.toMillis(), MILLISECONDS);
+    }
+
+    @VisibleForTesting
+    synchronized int process()
+    {
+        List<BucketMove> moves = computeMoves(getActiveNodes(), shardManager.getDistributionBuckets());
+
+        int moved = 0;
+        for (BucketMove move : moves) {
+            if (moved == maxBucketMoves) {
+                break;
+            }
+            log.info("Moving bucket %s of distribution ID %s from %s to %s (size: %s)",
+                    move.getBucketNumber(), move.getDistributionId(), move.getSourceNode(), move.getTargetNode(), succinctBytes(move.getSizeInBytes()));
+            shardManager.updateBucketAssignment(move.getDistributionId(), move.getBucketNumber(), move.getTargetNode());
+            bucketsBalanced.update(1);
+            moved++;
+        }
+
+        pendingBucketMoves.set(moves.size() - moved);
+        return moved;
+    }
+
+    public Set<String> getActiveNodes()
+    {
+        return nodeSupplier.getWorkerNodes().stream()
+                .map(Node::getNodeIdentifier)
+                .collect(toSet());
+    }
+
+    /**
+     * Compute the bucket moves that balance the buckets of each distribution across the
+     * active nodes. The moves of the distributions are interleaved, so that every distribution
+     * makes progress when only some of the moves are made. Distributions with buckets on
+     * inactive nodes are skipped, as those buckets are reassigned when the distribution is used.
+     */
+    public static List<BucketMove> computeMoves(Set<String> activeNodes, List<DistributionBucket> buckets)
+    {
+        if (activeNodes.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        Map<String, Long> nodeBytes = new HashMap<>();
+        for (String node : activeNodes) {
+            nodeBytes.put(node, 0L);
+        }
+        Map<Long, List<DistributionBucket>> distributions = new TreeMap<>();
+        for (DistributionBucket bucket : buckets) {
+            nodeBytes.computeIfPresent(bucket.getNodeIdentifier(), (node, bytes) -> bytes + bucket.getSizeInBytes());
+            distributions.computeIfAbsent(bucket.getDistributionId(), id -> new ArrayList<>()).add(bucket);
+        }
+
+        List<Iterator<BucketMove>> distributionMoves = new ArrayList<>();
+        for (List<DistributionBucket> distributionBuckets : distributions.values()) {
+            if (distributionBuckets.stream().allMatch(bucket -> activeNodes.contains(bucket.getNodeIdentifier()))) {
+                distributionMoves.add(balanceDistribution(activeNodes, distributionBuckets, nodeBytes).iterator());
+            }
+        }
+
+        ImmutableList.Builder<BucketMove> moves = ImmutableList.builder();
+        while (!distributionMoves.isEmpty()) {
+            Iterator<Iterator<BucketMove>> iterator = distributionMoves.iterator();
+            while (iterator.hasNext()) {
+                Iterator<BucketMove> next = iterator.next();
+                if (next.hasNext()) {
+                    moves.add(next.next());
+                }
+                else {
+                    iterator.remove();
+                }
+            }
+        }
+        return moves.build();
+    }
+
+    private static List<BucketMove> balanceDistribution(Set<String> nodes, List<DistributionBucket> buckets, Map<String, Long> nodeBytes)
+    {
+        Map<String, List<DistributionBucket>> nodeBuckets = new HashMap<>();
+        for (String node : nodes) {
+            nodeBuckets.put(node, new ArrayList<>());
+        }
+        for (DistributionBucket bucket : buckets) {
+            nodeBuckets.get(bucket.getNodeIdentifier()).add(bucket);
+        }
+
+        Comparator<String> load = Comparator.<String>comparingInt(node -> nodeBuckets.get(node).size())
+                .thenComparingLong(nodeBytes::get)
+                .thenComparing(naturalOrder());
+
+        List<BucketMove> moves = new ArrayList<>();
+        while (true) {
+            String source = nodes.stream().max(load).get();
+            String target = nodes.stream().min(load).get();
+            if (nodeBuckets.get(source).size() - nodeBuckets.get(target).size() <= 1) {
+                return moves;
+            }
+
+            DistributionBucket bucket = nodeBuckets.get(source).stream()
+                    .min(comparingLong(DistributionBucket::getSizeInBytes))
+                    .get();
+            nodeBuckets.get(source).remove(bucket);
+            nodeBuckets.get(target).add(bucket);
+            nodeBytes.compute(source, (node, bytes) -> bytes - bucket.getSizeInBytes());
+            nodeBytes.compute(target, (node, bytes) -> bytes + bucket.getSizeInBytes());
+
+            moves.add(new BucketMove(bucket.getDistributionId(), bucket.getBucketNumber(), source, target, bucket.getSizeInBytes()));
+        }
+    }
+
+    public static class BucketMove
+    {
+        private final long distributionId;
+        private final int bucketNumber;
+        private final String sourceNode;
+        private final String targetNode;
+        private final long sizeInBytes;
+
+        public BucketMove(long distributionId, int bucketNumber, String sourceNode, String targetNode, long sizeInBytes)
+        {
+            this.distributionId = distributionId;
+            this.bucketNumber = bucketNumber;
+            this.sourceNode = requireNonNull(sourceNode, "sourceNode is null");
+            this.targetNode = requireNonNull(targetNode, "targetNode is null");
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public long getDistributionId()
+        {
+            return distributionId;
+        }
+
+        public int getBucketNumber()
+        {
+            return bucketNumber;
+        }
+
+        public String getSourceNode()
+        {
+            return sourceNode;
+        }
+
+        public String getTargetNode()
+        {
+            return targetNode;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("distributionId", distributionId)
+                    .add("bucketNumber", bucketNumber)
+                    .add("sourceNode", sourceNode)
+                    .add("targetNode", targetNode)
+                    .add("size", succinctBytes(sizeInBytes))
+                    .toString();
+        }
+    }
+}
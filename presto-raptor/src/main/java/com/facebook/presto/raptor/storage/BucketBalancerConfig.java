@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.storage;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+
+public class BucketBalancerConfig
+{
+    private boolean balancerEnabled = true;
+    private Duration balancerInterval = new Duration(6, HOURS);
+    private int maxBucketMoves = 10;
+
+    public boolean isBalancerEnabled()
+    {
+        return balancerEnabled;
+    }
+
+    @Config("storage.balancer-enabled")
+    @ConfigDescription("Move buckets of bucketed tables between nodes to balance them across the cluster")
+    public BucketBalancerConfig setBalancerEnabled(boolean balancerEnabled)
+    {
+        this.balancerEnabled = balancerEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1m")
+    public Duration getBalancerInterval()
+    {
+        return balancerInterval;
+    }
+
+    @Config("storage.balancer-interval")
+    @ConfigDescription("How often to run the bucket balancer")
+    public BucketBalancerConfig setBalancerInterval(Duration balancerInterval)
+    {
+        this.balancerInterval = balancerInterval;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxBucketMoves()
+    {
+        return maxBucketMoves;
+    }
+
+    @Config("storage.balancer-max-bucket-moves")
+    @ConfigDescription("Maximum number of buckets to move each time the bucket balancer runs")
+    public BucketBalancerConfig setMaxBucketMoves(int maxBucketMoves)
+    {
+        this.maxBucketMoves = maxBucketMoves;
+        return this;
+    }
+}
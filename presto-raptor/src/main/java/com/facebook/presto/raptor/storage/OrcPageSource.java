@@ -16,6 +16,7 @@ package com.facebook.presto.raptor.storage;
 import com.facebook.presto.orc.OrcDataSource;
 import com.facebook.presto.orc.OrcRecordReader;
 import com.facebook.presto.orc.memory.AggregatedMemoryContext;
+import com.facebook.presto.raptor.metadata.DeletedRows;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.UpdatablePageSource;
@@ -30,6 +31,7 @@ import com.google.common.primitives.Ints;
 import io.airlift.slice.Slice;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
@@ -57,6 +59,7 @@ public class OrcPageSource
     public static final int BUCKET_NUMBER_COLUMN = -4;
 
     private final Optional<ShardRewriter> shardRewriter;
+    private final Optional<DeletedRows> deletedRows;
 
     private final OrcRecordReader recordReader;
     private final OrcDataSource orcDataSource;
@@ -76,6 +79,7 @@ public class OrcPageSource
 
     public OrcPageSource(
             Optional<ShardRewriter> shardRewriter,
+            Optional<DeletedRows> deletedRows,
             OrcRecordReader recordReader,
             OrcDataSource orcDataSource,
             List<Long> columnIds,
@@ -86,6 +90,7 @@ public class OrcPageSource
             AggregatedMemoryContext systemMemoryContext)
     {
         this.shardRewriter = requireNonNull(shardRewriter, "shardRewriter is null");
+        this.deletedRows = requireNonNull(deletedRows, "deletedRows is null");
         this.recordReader = requireNonNull(recordReader, "recordReader is null");
         this.orcDataSource = requireNonNull(orcDataSource, "orcDataSource is null");
 
@@ -152,29 +157,37 @@ public class OrcPageSource
     public Page getNextPage()
     {
         try {
-            batchId++;
-            int batchSize = recordReader.nextBatch();
-            if (batchSize <= 0) {
-                close();
-                return null;
+            int batchSize;
+            long filePosition;
+            Optional<List<Integer>> positions;
+            do {
+                batchId++;
+                batchSize = recordReader.nextBatch();
+                if (batchSize <= 0) {
+                    close();
+                    return null;
+                }
+                filePosition = recordReader.getFilePosition();
+                positions = getRetainedPositions(filePosition, batchSize);
             }
-            long filePosition = recordReader.getFilePosition();
+            while (positions.isPresent() && positions.get().isEmpty());
 
+            int positionCount = positions.map(List::size).orElse(batchSize);
             Block[] blocks = new Block[columnIndexes.length];
             for (int fieldId = 0; fieldId < blocks.length; fieldId++) {
                 Type type = types.get(fieldId);
                 if (constantBlocks[fieldId] != null) {
-                    blocks[fieldId] = constantBlocks[fieldId].getRegion(0, batchSize);
+                    blocks[fieldId] = constantBlocks[fieldId].getRegion(0, positionCount);
                 }
                 else if (columnIndexes[fieldId] == ROWID_COLUMN) {
-                    blocks[fieldId] = buildSequenceBlock(filePosition, batchSize);
+                    blocks[fieldId] = buildRowIdBlock(filePosition, batchSize, positions);
                 }
                 else {
-                    blocks[fieldId] = new LazyBlock(batchSize, new OrcBlockLoader(columnIndexes[fieldId], type));
+                    blocks[fieldId] = new LazyBlock(positionCount, new OrcBlockLoader(columnIndexes[fieldId], type, positions));
                 }
             }
 
-            return new Page(batchSize, blocks);
+            return new Page(positionCount, blocks);
         }
         catch (IOException | RuntimeException e) {
             closeWithSuppression(e);
@@ -182,6 +195,27 @@ public class OrcPageSource
         }
     }
 
+    /**
+     * Return the positions of the batch that are not deleted, or empty if no row of the batch is deleted.
+     */
+    private Optional<List<Integer>> getRetainedPositions(long filePosition, int batchSize)
+    {
+        if (!deletedRows.isPresent()) {
+            return Optional.empty();
+        }
+
+        List<Integer> positions = new ArrayList<>(batchSize);
+        for (int position = 0; position < batchSize; position++) {
+            if (!deletedRows.get().isDeleted(Ints.checkedCast(filePosition + position))) {
+                positions.add(position);
+            }
+        }
+        if (positions.size() == batchSize) {
+            return Optional.empty();
+        }
+        return Optional.of(positions);
+    }
+
     @Override
     public void close()
     {
@@ -237,6 +271,18 @@ public class OrcPageSource
         }
     }
 
+    private static Block buildRowIdBlock(long start, int count, Optional<List<Integer>> positions)
+    {
+        if (!positions.isPresent()) {
+            return buildSequenceBlock(start, count);
+        }
+        BlockBuilder builder = BIGINT.createFixedSizeBlockBuilder(positions.get().size());
+        for (int position : positions.get()) {
+            BIGINT.writeLong(builder, start + position);
+        }
+        return builder.build();
+    }
+
     private static Block buildSequenceBlock(long start, int count)
     {
         BlockBuilder builder = BIGINT.createFixedSizeBlockBuilder(count);
@@ -258,12 +304,14 @@ public class OrcPageSource
         private final int expectedBatchId = batchId;
         private final int columnIndex;
         private final Type type;
+        private final Optional<List<Integer>> positions;
         private boolean loaded;
 
-        public OrcBlockLoader(int columnIndex, Type type)
+        public OrcBlockLoader(int columnIndex, Type type, Optional<List<Integer>> positions)
         {
             this.columnIndex = columnIndex;
             this.type = requireNonNull(type, "type is null");
+            this.positions = requireNonNull(positions, "positions is null");
         }
 
         @Override
@@ -277,6 +325,9 @@ public class OrcPageSource
 
             try {
                 Block block = recordReader.readBlock(type, columnIndex);
+                if (positions.isPresent()) {
+                    block = block.copyPositions(positions.get());
+                }
                 lazyBlock.setBlock(block);
             }
             catch (IOException e) {
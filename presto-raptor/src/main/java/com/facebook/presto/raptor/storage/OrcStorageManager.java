@@ -29,10 +29,11 @@ import com.facebook.presto.raptor.backup.BackupManager;
 import com.facebook.presto.raptor.backup.BackupStore;
 import com.facebook.presto.raptor.metadata.ColumnInfo;
 import com.facebook.presto.raptor.metadata.ColumnStats;
+import com.facebook.presto.raptor.metadata.DeletedRows;
+import com.facebook.presto.raptor.metadata.ShardDeletion;
 import com.facebook.presto.raptor.metadata.ShardDelta;
 import com.facebook.presto.raptor.metadata.ShardInfo;
 import com.facebook.presto.raptor.metadata.ShardRecorder;
-import com.facebook.presto.raptor.storage.OrcFileRewriter.OrcFileInfo;
 import com.facebook.presto.raptor.util.CurrentNodeId;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.Page;
@@ -88,6 +89,7 @@ import static com.facebook.presto.raptor.RaptorColumnHandle.isShardUuidColumn;
 import static com.facebook.presto.raptor.RaptorErrorCode.RAPTOR_ERROR;
 import static com.facebook.presto.raptor.RaptorErrorCode.RAPTOR_RECOVERY_ERROR;
 import static com.facebook.presto.raptor.RaptorErrorCode.RAPTOR_RECOVERY_TIMEOUT;
+import static com.facebook.presto.raptor.metadata.DeletedRows.NO_DELETED_ROWS;
 import static com.facebook.presto.raptor.storage.OrcPageSource.BUCKET_NUMBER_COLUMN;
 import static com.facebook.presto.raptor.storage.OrcPageSource.NULL_COLUMN;
 import static com.facebook.presto.raptor.storage.OrcPageSource.ROWID_COLUMN;
@@ -101,7 +103,6 @@ import static com.facebook.presto.spi.type.VarcharType.createUnboundedVarcharTyp
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.propagateIfInstanceOf;
-import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.json.JsonCodec.jsonCodec;
 import static java.lang.Math.min;
@@ -210,6 +211,7 @@ public class OrcStorageManager
             List<Type> columnTypes,
             TupleDomain<RaptorColumnHandle> effectivePredicate,
             ReaderAttributes readerAttributes,
+            Optional<DeletedRows> deletedRows,
             OptionalLong transactionId)
     {
         OrcDataSource dataSource = openShard(shardUuid, readerAttributes);
@@ -245,10 +247,10 @@ public class OrcStorageManager
 
             Optional<ShardRewriter> shardRewriter = Optional.empty();
             if (transactionId.isPresent()) {
-                shardRewriter = Optional.of(createShardRewriter(transactionId.getAsLong(), bucketNumber, shardUuid));
+                shardRewriter = Optional.of(createShardRewriter(shardUuid, deletedRows, recordReader.getFileRowCount()));
             }
 
-            return new OrcPageSource(shardRewriter, recordReader, dataSource, columnIds, columnTypes, columnIndexes.build(), shardUuid, bucketNumber, systemMemoryUsage);
+            return new OrcPageSource(shardRewriter, deletedRows, recordReader, dataSource, columnIds, columnTypes, columnIndexes.build(), shardUuid, bucketNumber, systemMemoryUsage);
         }
         catch (IOException | RuntimeException e) {
             try {
@@ -281,9 +283,9 @@ public class OrcStorageManager
         return new OrcStoragePageSink(transactionId, columnIds, columnTypes, bucketNumber);
     }
 
-    private ShardRewriter createShardRewriter(long transactionId, OptionalInt bucketNumber, UUID shardUuid)
+    private ShardRewriter createShardRewriter(UUID shardUuid, Optional<DeletedRows> deletedRows, long rowCount)
     {
-        return rowsToDelete -> supplyAsync(() -> rewriteShard(transactionId, bucketNumber, shardUuid, rowsToDelete), deletionExecutor);
+        return rowsToDelete -> supplyAsync(() -> deleteRows(shardUuid, deletedRows, rowCount, rowsToDelete), deletionExecutor);
     }
 
     private void writeShard(UUID shardUuid)
@@ -313,6 +315,10 @@ public class OrcStorageManager
         if (!file.exists() && backupStore.isPresent()) {
             try {
                 Future<?> future = recoveryManager.recoverShard(shardUuid);
+                if (!future.isDone() && backupStore.get().isRangeReadSupported()) {
+                    // read the shard from the backup while it is being restored
+                    return new BackupOrcDataSource(backupStore.get(), shardUuid, readerAttributes.getMaxMergeDistance(), readerAttributes.getMaxReadSize(), readerAttributes.getStreamBufferSize());
+                }
                 future.get(recoveryTimeout.toMillis(), TimeUnit.MILLISECONDS);
             }
             catch (InterruptedException e) {
@@ -363,54 +369,28 @@ public class OrcStorageManager
         }
     }
 
+    /**
+     * Record the deleted rows of a shard instead of rewriting its file. The rows are
+     * skipped when the shard is read, and removed when the shard is compacted.
+     */
     @VisibleForTesting
-    Collection<Slice> rewriteShard(long transactionId, OptionalInt bucketNumber, UUID shardUuid, BitSet rowsToDelete)
+    Collection<Slice> deleteRows(UUID shardUuid, Optional<DeletedRows> deletedRows, long rowCount, BitSet rowsToDelete)
     {
         if (rowsToDelete.isEmpty()) {
             return ImmutableList.of();
         }
 
-        UUID newShardUuid = UUID.randomUUID();
-        File input = storageService.getStorageFile(shardUuid);
-        File output = storageService.getStagingFile(newShardUuid);
-
-        OrcFileInfo info = rewriteFile(input, output, rowsToDelete);
-        long rowCount = info.getRowCount();
+        long previousDeletedRowCount = deletedRows.map(DeletedRows::getRowCount).orElse(0L);
+        DeletedRows newDeletedRows = deletedRows.orElse(NO_DELETED_ROWS).union(rowsToDelete);
 
-        if (rowCount == 0) {
-            return shardDelta(shardUuid, Optional.empty());
+        ShardDelta delta;
+        if (newDeletedRows.getRowCount() == rowCount) {
+            delta = new ShardDelta(ImmutableList.of(shardUuid), ImmutableList.of());
         }
-
-        shardRecorder.recordCreatedShard(transactionId, newShardUuid);
-
-        // submit for backup and wait until it finishes
-        getFutureValue(backupManager.submit(newShardUuid, output));
-
-        Set<String> nodes = ImmutableSet.of(nodeId);
-        long uncompressedSize = info.getUncompressedSize();
-
-        ShardInfo shard = createShardInfo(newShardUuid, bucketNumber, output, nodes, rowCount, uncompressedSize);
-
-        writeShard(newShardUuid);
-
-        return shardDelta(shardUuid, Optional.of(shard));
-    }
-
-    private Collection<Slice> shardDelta(UUID oldShardUuid, Optional<ShardInfo> shardInfo)
-    {
-        List<ShardInfo> newShards = shardInfo.map(ImmutableList::of).orElse(ImmutableList.of());
-        ShardDelta delta = new ShardDelta(ImmutableList.of(oldShardUuid), newShards);
-        return ImmutableList.of(Slices.wrappedBuffer(shardDeltaCodec.toJsonBytes(delta)));
-    }
-
-    private static OrcFileInfo rewriteFile(File input, File output, BitSet rowsToDelete)
-    {
-        try {
-            return OrcFileRewriter.rewrite(input, output, rowsToDelete);
-        }
-        catch (IOException e) {
-            throw new PrestoException(RAPTOR_ERROR, "Failed to rewrite shard file: " + input, e);
+        else {
+            delta = new ShardDelta(ImmutableList.of(), ImmutableList.of(), ImmutableList.of(new ShardDeletion(shardUuid, previousDeletedRowCount, newDeletedRows)));
         }
+        return ImmutableList.of(Slices.wrappedBuffer(shardDeltaCodec.toJsonBytes(delta)));
     }
 
     private List<ColumnInfo> getColumnInfo(OrcReader reader)
@@ -38,9 +38,14 @@ import javax.inject.Inject;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalLong;
@@ -57,12 +62,14 @@ import java.util.function.Consumer;
 
 import static com.facebook.presto.raptor.RaptorErrorCode.RAPTOR_RECOVERY_ERROR;
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Throwables.propagateIfInstanceOf;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.succinctBytes;
 import static io.airlift.units.DataSize.succinctDataSize;
 import static io.airlift.units.Duration.nanosSince;
+import static java.lang.Math.toIntExact;
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
@@ -73,15 +80,18 @@ import static java.util.stream.Collectors.toSet;
 public class ShardRecoveryManager
 {
     private static final Logger log = Logger.get(ShardRecoveryManager.class);
+    private static final int RANGE_BUFFER_SIZE = 1024 * 1024;
 
     private final StorageService storageService;
     private final Optional<BackupStore> backupStore;
     private final String nodeIdentifier;
     private final ShardManager shardManager;
     private final Duration missingShardDiscoveryInterval;
+    private final long recoveryRangeSize;
 
     private final AtomicBoolean started = new AtomicBoolean();
     private final MissingShardsQueue shardQueue;
+    private final PrioritizedFifoExecutor<MissingShardRunnable> rangeExecutor;
 
     private final ScheduledExecutorService missingShardExecutor = newScheduledThreadPool(1, daemonThreadsNamed("missing-shard-discovery"));
     private final ExecutorService executorService = newCachedThreadPool(daemonThreadsNamed("shard-recovery-%s"));
@@ -100,7 +110,8 @@ public class ShardRecoveryManager
                 nodeManager,
                 shardManager,
                 config.getMissingShardDiscoveryInterval(),
-                config.getRecoveryThreads());
+                config.getRecoveryThreads(),
+                config.getRecoveryRangeSize());
     }
 
     public ShardRecoveryManager(
@@ -109,14 +120,17 @@ public class ShardRecoveryManager
             NodeManager nodeManager,
             ShardManager shardManager,
             Duration missingShardDiscoveryInterval,
-            int recoveryThreads)
+            int recoveryThreads,
+            DataSize recoveryRangeSize)
     {
         this.storageService = requireNonNull(storageService, "storageService is null");
         this.backupStore = requireNonNull(backupStore, "backupStore is null");
         this.nodeIdentifier = requireNonNull(nodeManager, "nodeManager is null").getCurrentNode().getNodeIdentifier();
         this.shardManager = requireNonNull(shardManager, "shardManager is null");
         this.missingShardDiscoveryInterval = requireNonNull(missingShardDiscoveryInterval, "missingShardDiscoveryInterval is null");
+        this.recoveryRangeSize = requireNonNull(recoveryRangeSize, "recoveryRangeSize is null").toBytes();
         this.shardQueue = new MissingShardsQueue(new PrioritizedFifoExecutor<>(executorService, recoveryThreads, new MissingShardComparator()));
+        this.rangeExecutor = new PrioritizedFifoExecutor<>(executorService, recoveryThreads, new MissingShardComparator());
         this.stats = new ShardRecoveryStats();
     }
 
@@ -182,6 +196,11 @@ public class ShardRecoveryManager
 
     @VisibleForTesting
     void restoreFromBackup(UUID shardUuid, OptionalLong shardSize)
+    {
+        restoreFromBackup(shardUuid, shardSize, true);
+    }
+
+    private void restoreFromBackup(UUID shardUuid, OptionalLong shardSize, boolean active)
     {
         File storageFile = storageService.getStorageFile(shardUuid);
 
@@ -207,7 +226,14 @@ public class ShardRecoveryManager
         long start = System.nanoTime();
 
         try {
-            backupStore.get().restoreShard(shardUuid, stagingFile);
+            BackupStore store = backupStore.get();
+            long backupSize = store.isRangeReadSupported() ? store.getShardSize(shardUuid) : 0;
+            if (backupSize > recoveryRangeSize) {
+                restoreRanges(shardUuid, backupSize, stagingFile, active);
+            }
+            else {
+                store.restoreShard(shardUuid, stagingFile);
+            }
         }
         catch (PrestoException e) {
             stats.incrementShardRecoveryFailure();
@@ -248,6 +274,44 @@ public class ShardRecoveryManager
         stats.incrementShardRecoverySuccess();
     }
 
+    /**
+     * Restore a large shard by reading byte ranges of it from the backup in parallel.
+     * The ranges of shards that queries are waiting on are read first.
+     */
+    private void restoreRanges(UUID shardUuid, long size, File target, boolean active)
+    {
+        try (RandomAccessFile file = new RandomAccessFile(target, "rw")) {
+            file.setLength(size);
+            FileChannel channel = file.getChannel();
+
+            List<ListenableFuture<?>> futures = new ArrayList<>();
+            for (long position = 0; position < size; position += recoveryRangeSize) {
+                long length = Math.min(recoveryRangeSize, size - position);
+                futures.add(rangeExecutor.submit(new ShardRangeRecovery(shardUuid, channel, position, length, active)));
+            }
+
+            try {
+                Futures.allAsList(futures).get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PrestoException(RAPTOR_RECOVERY_ERROR, "Interrupted while recovering shard: " + shardUuid, e);
+            }
+            catch (ExecutionException e) {
+                propagateIfInstanceOf(e.getCause(), PrestoException.class);
+                throw new PrestoException(RAPTOR_RECOVERY_ERROR, "Failed to recover shard: " + shardUuid, e.getCause());
+            }
+            finally {
+                futures.forEach(future -> future.cancel(true));
+            }
+
+            channel.force(true);
+        }
+        catch (IOException e) {
+            throw new PrestoException(RAPTOR_RECOVERY_ERROR, "Failed to write shard: " + shardUuid, e);
+        }
+    }
+
     @VisibleForTesting
     static class MissingShardComparator
             implements Comparator<MissingShardRunnable>
@@ -285,7 +349,53 @@ public class ShardRecoveryManager
         @Override
         public void run()
         {
-            restoreFromBackup(shardUuid, shardSize);
+            restoreFromBackup(shardUuid, shardSize, active);
+        }
+
+        @Override
+        public boolean isActive()
+        {
+            return active;
+        }
+    }
+
+    private class ShardRangeRecovery
+            implements MissingShardRunnable
+    {
+        private final UUID shardUuid;
+        private final FileChannel target;
+        private final long position;
+        private final long length;
+        private final boolean active;
+
+        public ShardRangeRecovery(UUID shardUuid, FileChannel target, long position, long length, boolean active)
+        {
+            this.shardUuid = requireNonNull(shardUuid, "shardUuid is null");
+            this.target = requireNonNull(target, "target is null");
+            this.position = position;
+            this.length = length;
+            this.active = active;
+        }
+
+        @Override
+        public void run()
+        {
+            byte[] buffer = new byte[toIntExact(Math.min(length, RANGE_BUFFER_SIZE))];
+            long offset = 0;
+            while (offset < length) {
+                int size = toIntExact(Math.min(buffer.length, length - offset));
+                backupStore.get().readShard(shardUuid, position + offset, buffer, 0, size);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, size);
+                try {
+                    while (bytes.hasRemaining()) {
+                        target.write(bytes, position + offset + bytes.position());
+                    }
+                }
+                catch (IOException e) {
+                    throw new PrestoException(RAPTOR_RECOVERY_ERROR, "Failed to write shard: " + shardUuid, e);
+                }
+                offset += size;
+            }
         }
 
         @Override
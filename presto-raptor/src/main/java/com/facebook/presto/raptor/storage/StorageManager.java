@@ -14,11 +14,13 @@
 package com.facebook.presto.raptor.storage;
 
 import com.facebook.presto.raptor.RaptorColumnHandle;
+import com.facebook.presto.raptor.metadata.DeletedRows;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.UUID;
@@ -33,9 +35,13 @@ public interface StorageManager
             TupleDomain<RaptorColumnHandle> effectivePredicate,
             ReaderAttributes readerAttributes)
     {
-        return getPageSource(shardUuid, bucketNumber, columnIds, columnTypes, effectivePredicate, readerAttributes, OptionalLong.empty());
+        return getPageSource(shardUuid, bucketNumber, columnIds, columnTypes, effectivePredicate, readerAttributes, Optional.empty(), OptionalLong.empty());
     }
 
+    /**
+     * @param deletedRows rows of the shard file that are skipped
+     * @param transactionId the transaction of a delete, which is required for deleting rows through the page source
+     */
     ConnectorPageSource getPageSource(
             UUID shardUuid,
             OptionalInt bucketNumber,
@@ -43,6 +49,7 @@ public interface StorageManager
             List<Type> columnTypes,
             TupleDomain<RaptorColumnHandle> effectivePredicate,
             ReaderAttributes readerAttributes,
+            Optional<DeletedRows> deletedRows,
             OptionalLong transactionId);
 
     StoragePageSink createStoragePageSink(
@@ -23,6 +23,8 @@ import io.airlift.units.MaxDataSize;
 import io.airlift.units.MinDataSize;
 import io.airlift.units.MinDuration;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -42,12 +44,15 @@ public class StorageManagerConfig
     private Duration missingShardDiscoveryInterval = new Duration(5, TimeUnit.MINUTES);
     private boolean compactionEnabled = true;
     private Duration compactionInterval = new Duration(1, TimeUnit.HOURS);
+    private double compactionDeletedFraction = 0.2;
     private Duration shardEjectorInterval = new Duration(4, TimeUnit.HOURS);
     private DataSize orcMaxMergeDistance = new DataSize(1, MEGABYTE);
     private DataSize orcMaxReadSize = new DataSize(8, MEGABYTE);
     private DataSize orcStreamBufferSize = new DataSize(8, MEGABYTE);
     private int deletionThreads = max(1, getRuntime().availableProcessors() / 2);
+    private int writerThreads = getRuntime().availableProcessors();
     private int recoveryThreads = 10;
+    private DataSize recoveryRangeSize = new DataSize(32, MEGABYTE);
     private int organizationThreads = 5;
 
     private long maxShardRows = 1_000_000;
@@ -122,6 +127,20 @@ public class StorageManagerConfig
         return this;
     }
 
+    @Min(1)
+    public int getWriterThreads()
+    {
+        return writerThreads;
+    }
+
+    @Config("storage.max-writer-threads")
+    @ConfigDescription("Maximum number of threads to use for sorting and encoding written shards")
+    public StorageManagerConfig setWriterThreads(int writerThreads)
+    {
+        this.writerThreads = writerThreads;
+        return this;
+    }
+
     @MinDuration("1s")
     public Duration getShardRecoveryTimeout()
     {
@@ -164,6 +183,21 @@ public class StorageManagerConfig
         return this;
     }
 
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getCompactionDeletedFraction()
+    {
+        return compactionDeletedFraction;
+    }
+
+    @Config("storage.compaction-deleted-fraction")
+    @ConfigDescription("Fraction of deleted rows at which a shard is rewritten without them")
+    public StorageManagerConfig setCompactionDeletedFraction(double compactionDeletedFraction)
+    {
+        this.compactionDeletedFraction = compactionDeletedFraction;
+        return this;
+    }
+
     @MinDuration("5m")
     public Duration getShardEjectorInterval()
     {
@@ -192,6 +226,21 @@ public class StorageManagerConfig
         return this;
     }
 
+    @NotNull
+    @MinDataSize("1MB")
+    public DataSize getRecoveryRangeSize()
+    {
+        return recoveryRangeSize;
+    }
+
+    @Config("storage.recovery-range-size")
+    @ConfigDescription("Size of the byte ranges that are restored in parallel for shards larger than this size")
+    public StorageManagerConfig setRecoveryRangeSize(DataSize recoveryRangeSize)
+    {
+        this.recoveryRangeSize = recoveryRangeSize;
+        return this;
+    }
+
     @LegacyConfig("storage.max-compaction-threads")
     @Config("storage.max-organization-threads")
     @ConfigDescription("Maximum number of threads to use for organization")
@@ -14,8 +14,11 @@
 package com.facebook.presto.raptor.storage.organization;
 
 import com.facebook.presto.raptor.metadata.ColumnInfo;
+import com.facebook.presto.raptor.metadata.DeletedRows;
 import com.facebook.presto.raptor.metadata.ForMetadata;
 import com.facebook.presto.raptor.metadata.MetadataDao;
+import com.facebook.presto.raptor.metadata.OrderingType;
+import com.facebook.presto.raptor.metadata.ShardDeletion;
 import com.facebook.presto.raptor.metadata.ShardInfo;
 import com.facebook.presto.raptor.metadata.ShardManager;
 import com.facebook.presto.raptor.metadata.TableColumn;
@@ -27,10 +30,14 @@ import org.skife.jdbi.v2.IDBI;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.OptionalInt;
 import java.util.Set;
 import java.util.UUID;
 
+import static com.facebook.presto.raptor.metadata.DeletedRows.NO_DELETED_ROWS;
+import static com.facebook.presto.raptor.metadata.OrderingType.LEXICOGRAPHIC;
+import static com.facebook.presto.raptor.metadata.OrderingType.ZORDER;
 import static com.facebook.presto.raptor.util.DatabaseUtil.onDemandDao;
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_FIRST;
 import static java.util.Collections.nCopies;
@@ -99,9 +106,18 @@ public class OrganizationJobFactory
                 throws IOException
         {
             TableMetadata metadata = getTableMetadata(tableId);
-            List<ShardInfo> newShards = performCompaction(transactionId, bucketNumber, shardUuids, metadata);
+            Map<UUID, DeletedRows> deletedRows = shardManager.getDeletedRows(shardUuids);
+            List<ShardInfo> newShards = performCompaction(transactionId, bucketNumber, shardUuids, deletedRows, metadata);
             log.info("Compacted shards %s into %s", shardUuids, newShards.stream().map(ShardInfo::getShardUuid).collect(toList()));
-            shardManager.replaceShardUuids(transactionId, tableId, metadata.getColumns(), shardUuids, newShards);
+
+            // fail the commit if rows were deleted from the shards while they were compacted
+            List<ShardDeletion> deletions = shardUuids.stream()
+                    .map(uuid -> {
+                        DeletedRows rows = deletedRows.getOrDefault(uuid, NO_DELETED_ROWS);
+                        return new ShardDeletion(uuid, rows.getRowCount(), rows);
+                    })
+                    .collect(toList());
+            shardManager.replaceShardUuids(transactionId, tableId, metadata.getColumns(), shardUuids, newShards, deletions);
         }
 
         private TableMetadata getTableMetadata(long tableId)
@@ -115,19 +131,30 @@ public class OrganizationJobFactory
             List<ColumnInfo> columns = metadataDao.listTableColumns(tableId).stream()
                     .map(TableColumn::toColumnInfo)
                     .collect(toList());
-            return new TableMetadata(tableId, columns, sortColumnIds);
+            String orderingType = metadataDao.getOrderingType(tableId);
+            return new TableMetadata(tableId, columns, sortColumnIds, (orderingType != null) ? OrderingType.valueOf(orderingType) : LEXICOGRAPHIC);
         }
 
-        private List<ShardInfo> performCompaction(long transactionId, OptionalInt bucketNumber, Set<UUID> shardUuids, TableMetadata tableMetadata)
+        private List<ShardInfo> performCompaction(long transactionId, OptionalInt bucketNumber, Set<UUID> shardUuids, Map<UUID, DeletedRows> deletedRows, TableMetadata tableMetadata)
                 throws IOException
         {
             if (tableMetadata.getSortColumnIds().isEmpty()) {
-                return compactor.compact(transactionId, bucketNumber, shardUuids, tableMetadata.getColumns());
+                return compactor.compact(transactionId, bucketNumber, shardUuids, deletedRows, tableMetadata.getColumns());
+            }
+            if (tableMetadata.getOrderingType() == ZORDER) {
+                return compactor.compactZOrdered(
+                        transactionId,
+                        bucketNumber,
+                        shardUuids,
+                        deletedRows,
+                        tableMetadata.getColumns(),
+                        tableMetadata.getSortColumnIds());
             }
             return compactor.compactSorted(
                     transactionId,
                     bucketNumber,
                     shardUuids,
+                    deletedRows,
                     tableMetadata.getColumns(),
                     tableMetadata.getSortColumnIds(),
                     nCopies(tableMetadata.getSortColumnIds().size(), ASC_NULLS_FIRST));
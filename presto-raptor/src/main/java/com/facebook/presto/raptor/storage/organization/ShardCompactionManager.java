@@ -39,6 +39,7 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -76,6 +77,7 @@ public class ShardCompactionManager
     private final Duration compactionDiscoveryInterval;
     private final DataSize maxShardSize;
     private final long maxShardRows;
+    private final double deletedFraction;
     private final IDBI dbi;
 
     @Inject
@@ -88,6 +90,7 @@ public class ShardCompactionManager
                 config.getCompactionInterval(),
                 config.getMaxShardSize(),
                 config.getMaxShardRows(),
+                config.getCompactionDeletedFraction(),
                 config.isCompactionEnabled());
     }
 
@@ -99,6 +102,7 @@ public class ShardCompactionManager
             Duration compactionDiscoveryInterval,
             DataSize maxShardSize,
             long maxShardRows,
+            double deletedFraction,
             boolean compactionEnabled)
     {
         this.dbi = requireNonNull(dbi, "dbi is null");
@@ -115,6 +119,9 @@ public class ShardCompactionManager
         checkArgument(maxShardRows > 0, "maxShardRows must be > 0");
         this.maxShardRows = maxShardRows;
 
+        checkArgument(deletedFraction >= 0 && deletedFraction <= 1, "deletedFraction must be between 0 and 1");
+        this.deletedFraction = deletedFraction;
+
         this.compactionEnabled = compactionEnabled;
         this.compactionSetCreator = new CompactionSetCreator(maxShardSize, maxShardRows);
     }
@@ -197,14 +204,28 @@ public class ShardCompactionManager
                 .collect(toSet());
 
         Collection<ShardIndexInfo> shardIndexInfos = toShardIndexInfo(dbi, metadataDao, tableInfo, filteredShards, false);
+        Set<OrganizationSet> compactionSets;
         if (tableInfo.getTemporalColumnId().isPresent()) {
             Set<ShardIndexInfo> temporalShards = shardIndexInfos.stream()
                     .filter(shard -> shard.getTemporalRange().isPresent())
                     .collect(toSet());
-            return compactionSetCreator.createCompactionSets(tableInfo, temporalShards);
+            compactionSets = compactionSetCreator.createCompactionSets(tableInfo, temporalShards);
+        }
+        else {
+            compactionSets = compactionSetCreator.createCompactionSets(tableInfo, shardIndexInfos);
         }
 
-        return compactionSetCreator.createCompactionSets(tableInfo, shardIndexInfos);
+        // shards with many deleted rows are rewritten on their own if they are not compacted with others
+        Set<UUID> compactedShards = compactionSets.stream()
+                .flatMap(set -> set.getShards().stream())
+                .collect(toSet());
+        ImmutableSet.Builder<OrganizationSet> organizationSets = ImmutableSet.<OrganizationSet>builder().addAll(compactionSets);
+        filteredShards.stream()
+                .filter(this::hasManyDeletedRows)
+                .filter(shard -> !compactedShards.contains(shard.getShardUuid()))
+                .map(shard -> new OrganizationSet(tableId, ImmutableSet.of(shard.getShardUuid()), shard.getBucketNumber()))
+                .forEach(organizationSets::add);
+        return organizationSets.build();
     }
 
     private static boolean isValidTemporalColumn(long tableId, Type type)
@@ -225,6 +246,11 @@ public class ShardCompactionManager
         if (shard.getRowCount() < (FILL_FACTOR * maxShardRows)) {
             return true;
         }
-        return false;
+        return hasManyDeletedRows(shard);
+    }
+
+    private boolean hasManyDeletedRows(ShardMetadata shard)
+    {
+        return (shard.getDeletedRowCount() > 0) && (shard.getDeletedRowCount() >= (deletedFraction * shard.getRowCount()));
     }
 }
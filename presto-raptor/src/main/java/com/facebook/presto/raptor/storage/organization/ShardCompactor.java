@@ -14,11 +14,15 @@
 package com.facebook.presto.raptor.storage.organization;
 
 import com.facebook.presto.raptor.metadata.ColumnInfo;
+import com.facebook.presto.raptor.metadata.DeletedRows;
 import com.facebook.presto.raptor.metadata.ShardInfo;
 import com.facebook.presto.raptor.storage.ReaderAttributes;
 import com.facebook.presto.raptor.storage.Row;
 import com.facebook.presto.raptor.storage.StorageManager;
+import com.facebook.presto.raptor.storage.StorageManagerConfig;
 import com.facebook.presto.raptor.storage.StoragePageSink;
+import com.facebook.presto.raptor.util.ZOrderSorter;
+import com.facebook.presto.raptor.util.ZOrderSorter.KeyBounds;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
@@ -26,22 +30,29 @@ import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import io.airlift.stats.CounterStat;
 import io.airlift.stats.DistributionStat;
+import io.airlift.units.DataSize;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static com.facebook.presto.raptor.storage.Row.extractRow;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -60,16 +71,29 @@ public final class ShardCompactor
     private final DistributionStat compactionLatencyMillis = new DistributionStat();
     private final DistributionStat sortedCompactionLatencyMillis = new DistributionStat();
     private final ReaderAttributes readerAttributes;
+    private final long maxSortBytes;
 
     @Inject
-    public ShardCompactor(StorageManager storageManager, ReaderAttributes readerAttributes)
+    public ShardCompactor(StorageManager storageManager, ReaderAttributes readerAttributes, StorageManagerConfig config)
+    {
+        this(storageManager, readerAttributes, config.getMaxBufferSize());
+    }
+
+    public ShardCompactor(StorageManager storageManager, ReaderAttributes readerAttributes, DataSize maxSortSize)
     {
         this.storageManager = requireNonNull(storageManager, "storageManager is null");
         this.readerAttributes = requireNonNull(readerAttributes, "readerAttributes is null");
+        this.maxSortBytes = requireNonNull(maxSortSize, "maxSortSize is null").toBytes();
     }
 
     public List<ShardInfo> compact(long transactionId, OptionalInt bucketNumber, Set<UUID> uuids, List<ColumnInfo> columns)
             throws IOException
+    {
+        return compact(transactionId, bucketNumber, uuids, ImmutableMap.of(), columns);
+    }
+
+    public List<ShardInfo> compact(long transactionId, OptionalInt bucketNumber, Set<UUID> uuids, Map<UUID, DeletedRows> deletedRows, List<ColumnInfo> columns)
+            throws IOException
     {
         long start = System.nanoTime();
         List<Long> columnIds = columns.stream().map(ColumnInfo::getColumnId).collect(toList());
@@ -79,7 +103,7 @@ public final class ShardCompactor
 
         List<ShardInfo> shardInfos;
         try {
-            shardInfos = compact(storagePageSink, bucketNumber, uuids, columnIds, columnTypes);
+            shardInfos = compact(storagePageSink, bucketNumber, uuids, deletedRows, columnIds, columnTypes);
         }
         catch (IOException | RuntimeException e) {
             storagePageSink.rollback();
@@ -90,11 +114,11 @@ public final class ShardCompactor
         return shardInfos;
     }
 
-    private List<ShardInfo> compact(StoragePageSink storagePageSink, OptionalInt bucketNumber, Set<UUID> uuids, List<Long> columnIds, List<Type> columnTypes)
+    private List<ShardInfo> compact(StoragePageSink storagePageSink, OptionalInt bucketNumber, Set<UUID> uuids, Map<UUID, DeletedRows> deletedRows, List<Long> columnIds, List<Type> columnTypes)
             throws IOException
     {
         for (UUID uuid : uuids) {
-            try (ConnectorPageSource pageSource = storageManager.getPageSource(uuid, bucketNumber, columnIds, columnTypes, TupleDomain.all(), readerAttributes)) {
+            try (ConnectorPageSource pageSource = getPageSource(uuid, bucketNumber, deletedRows, columnIds, columnTypes)) {
                 while (!pageSource.isFinished()) {
                     Page page = pageSource.getNextPage();
                     if (isNullOrEmptyPage(page)) {
@@ -112,6 +136,19 @@ public final class ShardCompactor
 
     public List<ShardInfo> compactSorted(long transactionId, OptionalInt bucketNumber, Set<UUID> uuids, List<ColumnInfo> columns, List<Long> sortColumnIds, List<SortOrder> sortOrders)
             throws IOException
+    {
+        return compactSorted(transactionId, bucketNumber, uuids, ImmutableMap.of(), columns, sortColumnIds, sortOrders);
+    }
+
+    public List<ShardInfo> compactSorted(
+            long transactionId,
+            OptionalInt bucketNumber,
+            Set<UUID> uuids,
+            Map<UUID, DeletedRows> deletedRows,
+            List<ColumnInfo> columns,
+            List<Long> sortColumnIds,
+            List<SortOrder> sortOrders)
+            throws IOException
     {
         checkArgument(sortColumnIds.size() == sortOrders.size(), "sortColumnIds and sortOrders must be of the same size");
 
@@ -130,7 +167,7 @@ public final class ShardCompactor
         StoragePageSink outputPageSink = storageManager.createStoragePageSink(transactionId, bucketNumber, columnIds, columnTypes);
         try {
             for (UUID uuid : uuids) {
-                ConnectorPageSource pageSource = storageManager.getPageSource(uuid, bucketNumber, columnIds, columnTypes, TupleDomain.all(), readerAttributes);
+                ConnectorPageSource pageSource = getPageSource(uuid, bucketNumber, deletedRows, columnIds, columnTypes);
                 SortedRowSource rowSource = new SortedRowSource(pageSource, columnTypes, sortIndexes, sortOrders);
                 rowSources.add(rowSource);
             }
@@ -166,6 +203,112 @@ public final class ShardCompactor
         }
     }
 
+    /**
+     * The shards of a Z-ordered table are each ordered by the ranges of their own rows,
+     * so they cannot be merged. Instead, the ranges of the sort columns in all shards
+     * are read first, and the rows are sorted again with their keys scaled to these
+     * ranges. The rows are sorted in batches of at most the sort size, and the sorted
+     * rows are split into shards along the curve, so that each shard covers a narrow
+     * range of every sort column.
+     */
+    public List<ShardInfo> compactZOrdered(
+            long transactionId,
+            OptionalInt bucketNumber,
+            Set<UUID> uuids,
+            Map<UUID, DeletedRows> deletedRows,
+            List<ColumnInfo> columns,
+            List<Long> sortColumnIds)
+            throws IOException
+    {
+        long start = System.nanoTime();
+
+        List<Long> columnIds = columns.stream().map(ColumnInfo::getColumnId).collect(toList());
+        List<Type> columnTypes = columns.stream().map(ColumnInfo::getType).collect(toList());
+
+        checkArgument(columnIds.containsAll(sortColumnIds), "sortColumnIds must be a subset of columnIds");
+
+        List<Integer> sortIndexes = sortColumnIds.stream()
+                .map(columnIds::indexOf)
+                .collect(toList());
+        List<Type> sortTypes = sortIndexes.stream()
+                .map(columnTypes::get)
+                .collect(toList());
+
+        KeyBounds bounds = new KeyBounds(sortTypes);
+        List<Integer> sortColumns = IntStream.range(0, sortColumnIds.size()).boxed().collect(toList());
+        for (UUID uuid : uuids) {
+            try (ConnectorPageSource pageSource = getPageSource(uuid, bucketNumber, deletedRows, sortColumnIds, sortTypes)) {
+                while (!pageSource.isFinished()) {
+                    Page page = pageSource.getNextPage();
+                    if (!isNullOrEmptyPage(page)) {
+                        bounds.add(page, sortColumns);
+                    }
+                }
+            }
+        }
+
+        StoragePageSink outputPageSink = storageManager.createStoragePageSink(transactionId, bucketNumber, columnIds, columnTypes);
+        try {
+            List<Page> pages = new ArrayList<>();
+            long sizeInBytes = 0;
+            int rowCount = 0;
+            for (UUID uuid : uuids) {
+                try (ConnectorPageSource pageSource = getPageSource(uuid, bucketNumber, deletedRows, columnIds, columnTypes)) {
+                    while (!pageSource.isFinished()) {
+                        Page page = pageSource.getNextPage();
+                        if (isNullOrEmptyPage(page)) {
+                            continue;
+                        }
+                        page.assureLoaded();
+                        if (!pages.isEmpty() && ((sizeInBytes + page.getSizeInBytes() > maxSortBytes) || ((long) rowCount + page.getPositionCount() > Integer.MAX_VALUE))) {
+                            appendZOrdered(outputPageSink, pages, rowCount, columnTypes, sortIndexes, bounds);
+                            pages = new ArrayList<>();
+                            sizeInBytes = 0;
+                            rowCount = 0;
+                        }
+                        pages.add(page);
+                        sizeInBytes += page.getSizeInBytes();
+                        rowCount += page.getPositionCount();
+                    }
+                }
+            }
+            if (!pages.isEmpty()) {
+                appendZOrdered(outputPageSink, pages, rowCount, columnTypes, sortIndexes, bounds);
+            }
+            List<ShardInfo> shardInfos = outputPageSink.commit();
+
+            updateStats(uuids.size(), shardInfos.size(), nanosSince(start).toMillis());
+
+            return shardInfos;
+        }
+        catch (IOException | RuntimeException e) {
+            outputPageSink.rollback();
+            throw e;
+        }
+    }
+
+    private static void appendZOrdered(StoragePageSink outputPageSink, List<Page> pages, int rowCount, List<Type> columnTypes, List<Integer> sortIndexes, KeyBounds bounds)
+    {
+        int[] pageIndexes = new int[rowCount];
+        int[] positionIndexes = new int[rowCount];
+        ZOrderSorter.sort(columnTypes, pages, sortIndexes, bounds, pageIndexes, positionIndexes);
+
+        for (int i = 0; i < rowCount; i++) {
+            outputPageSink.appendRow(extractRow(pages.get(pageIndexes[i]), positionIndexes[i], columnTypes));
+            if (outputPageSink.isFull()) {
+                outputPageSink.flush();
+            }
+        }
+        outputPageSink.flush();
+    }
+
+    private ConnectorPageSource getPageSource(UUID uuid, OptionalInt bucketNumber, Map<UUID, DeletedRows> deletedRows, List<Long> columnIds, List<Type> columnTypes)
+    {
+        // deleted rows are skipped, so that they are not copied to the new shards
+        Optional<DeletedRows> shardDeletedRows = Optional.ofNullable(deletedRows.get(uuid));
+        return storageManager.getPageSource(uuid, bucketNumber, columnIds, columnTypes, TupleDomain.all(), readerAttributes, shardDeletedRows, OptionalLong.empty());
+    }
+
     private static class SortedRowSource
             implements Iterator<Row>, Comparable<SortedRowSource>, Closeable
     {
@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.systemtables;
+
+import com.facebook.presto.raptor.metadata.DistributionBucket;
+import com.facebook.presto.raptor.metadata.ShardManager;
+import com.facebook.presto.raptor.storage.BucketBalancer;
+import com.facebook.presto.raptor.storage.BucketBalancer.BucketMove;
+import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorTableMetadata;
+import com.facebook.presto.spi.InMemoryRecordSet;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.SystemTable;
+import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.google.common.collect.ImmutableList;
+
+import javax.inject.Inject;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.facebook.presto.spi.SystemTable.Distribution.SINGLE_COORDINATOR;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The buckets of each distribution per node, and the number of buckets
+ * each node will have once the bucket balancer has balanced the cluster.
+ */
+public class BucketBalanceSystemTable
+        implements SystemTable
+{
+    private static final ConnectorTableMetadata METADATA = new ConnectorTableMetadata(
+            new SchemaTableName("system", "bucket_balance"),
+            ImmutableList.of(
+                    new ColumnMetadata("distribution_id", BIGINT),
+                    new ColumnMetadata("distribution_name", VARCHAR),
+                    new ColumnMetadata("node_identifier", VARCHAR),
+                    new ColumnMetadata("bucket_count", BIGINT),
+                    new ColumnMetadata("target_bucket_count", BIGINT),
+                    new ColumnMetadata("compressed_size", BIGINT)));
+
+    private final BucketBalancer bucketBalancer;
+    private final ShardManager shardManager;
+
+    @Inject
+    public BucketBalanceSystemTable(BucketBalancer bucketBalancer, ShardManager shardManager)
+    {
+        this.bucketBalancer = requireNonNull(bucketBalancer, "bucketBalancer is null");
+        this.shardManager = requireNonNull(shardManager, "shardManager is null");
+    }
+
+    @Override
+    public Distribution getDistribution()
+    {
+        return SINGLE_COORDINATOR;
+    }
+
+    @Override
+    public ConnectorTableMetadata getTableMetadata()
+    {
+        return METADATA;
+    }
+
+    @Override
+    public RecordCursor cursor(ConnectorTransactionHandle transactionHandle, ConnectorSession session, TupleDomain<Integer> constraint)
+    {
+        Set<String> activeNodes = bucketBalancer.getActiveNodes();
+        List<DistributionBucket> buckets = shardManager.getDistributionBuckets();
+
+        Map<DistributionNode, NodeBalance> balances = new TreeMap<>();
+        Map<Long, String> distributionNames = new HashMap<>();
+        for (DistributionBucket bucket : buckets) {
+            distributionNames.put(bucket.getDistributionId(), bucket.getDistributionName().orElse(null));
+            NodeBalance balance = balances.computeIfAbsent(new DistributionNode(bucket.getDistributionId(), bucket.getNodeIdentifier()), key -> new NodeBalance());
+            balance.bucketCount++;
+            balance.targetBucketCount++;
+            balance.compressedSize += bucket.getSizeInBytes();
+        }
+        for (long distributionId : distributionNames.keySet()) {
+            for (String node : activeNodes) {
+                balances.computeIfAbsent(new DistributionNode(distributionId, node), key -> new NodeBalance());
+            }
+        }
+        for (BucketMove move : BucketBalancer.computeMoves(activeNodes, buckets)) {
+            balances.get(new DistributionNode(move.getDistributionId(), move.getSourceNode())).targetBucketCount--;
+            balances.get(new DistributionNode(move.getDistributionId(), move.getTargetNode())).targetBucketCount++;
+        }
+
+        InMemoryRecordSet.Builder records = InMemoryRecordSet.builder(METADATA);
+        balances.forEach((key, balance) -> records.addRow(
+                key.distributionId,
+                distributionNames.get(key.distributionId),
+                key.nodeIdentifier,
+                balance.bucketCount,
+                balance.targetBucketCount,
+                balance.compressedSize));
+        return records.build().cursor();
+    }
+
+    private static class DistributionNode
+            implements Comparable<DistributionNode>
+    {
+        private final long distributionId;
+        private final String nodeIdentifier;
+
+        public DistributionNode(long distributionId, String nodeIdentifier)
+        {
+            this.distributionId = distributionId;
+            this.nodeIdentifier = requireNonNull(nodeIdentifier, "nodeIdentifier is null");
+        }
+
+        @Override
+        public int compareTo(DistributionNode other)
+        {
+            int result = Long.compare(distributionId, other.distributionId);
+            return (result != 0) ? result : nodeIdentifier.compareTo(other.nodeIdentifier);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if ((o == null) || (getClass() != o.getClass())) {
+                return false;
+            }
+            DistributionNode that = (DistributionNode) o;
+            return (distributionId == that.distributionId) &&
+                    Objects.equals(nodeIdentifier, that.nodeIdentifier);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(distributionId, nodeIdentifier);
+        }
+    }
+
+    private static class NodeBalance
+    {
+        private long bucketCount;
+        private long targetBucketCount;
+        private long compressedSize;
+    }
+}
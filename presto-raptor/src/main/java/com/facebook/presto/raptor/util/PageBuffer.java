@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.raptor.util;
 
+import com.facebook.presto.raptor.metadata.OrderingType;
 import com.facebook.presto.raptor.storage.StoragePageSink;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageSorter;
@@ -23,10 +24,29 @@ import com.google.common.primitives.Ints;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static com.facebook.presto.raptor.metadata.OrderingType.ZORDER;
+import static com.facebook.presto.raptor.storage.Row.extractRow;
 import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static java.util.Objects.requireNonNull;
-
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Buffers pages for a storage page sink, and writes them when the buffer is flushed.
+ * Flushes run asynchronously on the writer executor, so that sorting and encoding the
+ * pages overlaps with buffering the next pages. The flushes of a buffer run one at a
+ * time, as the storage page sink is not thread safe.
+ * <p>
+ * The rows of each flush of a sorted buffer are sorted together and written to new
+ * shards, which are closed when they are full, so that every shard is sorted.
+ * Unsorted pages are appended to the open shard of the storage page sink, which is only
+ * closed when it is full or by {@link #closeShard}, so that flushing the buffer does not
+ * create undersized shards.
+ */
 public class PageBuffer
 {
     private final long maxMemoryBytes;
@@ -34,11 +54,18 @@ public class PageBuffer
     private final List<Type> columnTypes;
     private final List<Integer> sortFields;
     private final List<SortOrder> sortOrders;
+    private final OrderingType orderingType;
     private final PageSorter pageSorter;
-    private final List<Page> pages = new ArrayList<>();
+    private final Executor writerExecutor;
+    private final PageBufferStats stats;
+    private final AtomicLong flushingMemoryBytes = new AtomicLong();
 
+    private List<Page> pages = new ArrayList<>();
+    private CompletableFuture<?> flushFuture = completedFuture(null);
     private long usedMemoryBytes;
     private long rowCount;
+    private boolean shardOpen;
+    private long lastFlushNanos;
 
     public PageBuffer(
             long maxMemoryBytes,
@@ -46,15 +73,21 @@ public class PageBuffer
             List<Type> columnTypes,
             List<Integer> sortFields,
             List<SortOrder> sortOrders,
-            PageSorter pageSorter)
+            OrderingType orderingType,
+            PageSorter pageSorter,
+            Executor writerExecutor,
+            PageBufferStats stats)
     {
         checkArgument(maxMemoryBytes > 0, "maxMemoryBytes must be positive");
         this.maxMemoryBytes = maxMemoryBytes;
         this.columnTypes = requireNonNull(columnTypes, "columnTypes is null");
         this.sortFields = ImmutableList.copyOf(requireNonNull(sortFields, "sortFields is null"));
         this.sortOrders = ImmutableList.copyOf(requireNonNull(sortOrders, "sortOrders is null"));
+        this.orderingType = requireNonNull(orderingType, "orderingType is null");
         this.pageSorter = requireNonNull(pageSorter, "pageSorter is null");
         this.storagePageSink = requireNonNull(storagePageSink, "storagePageSink is null");
+        this.writerExecutor = requireNonNull(writerExecutor, "writerExecutor is null");
+        this.stats = requireNonNull(stats, "stats is null");
     }
 
     public StoragePageSink getStoragePageSink()
@@ -67,6 +100,38 @@ public class PageBuffer
         return usedMemoryBytes;
     }
 
+    /**
+     * Return the memory of the pages that are being flushed.
+     */
+    public long getFlushingMemoryBytes()
+    {
+        return flushingMemoryBytes.get();
+    }
+
+    /**
+     * Return whether a flush left the shard of the storage page sink open.
+     */
+    public boolean isShardOpen()
+    {
+        return shardOpen;
+    }
+
+    /**
+     * Return the time of the last flush, as given by {@link System#nanoTime}.
+     */
+    public long getLastFlushNanos()
+    {
+        return lastFlushNanos;
+    }
+
+    /**
+     * Return a future that completes when all flushes have finished.
+     */
+    public CompletableFuture<?> getFlushFuture()
+    {
+        return flushFuture;
+    }
+
     public void add(Page page)
     {
         flushIfNecessary(page.getPositionCount());
@@ -77,41 +142,106 @@ public class PageBuffer
 
     public void flush()
     {
-        if (pages.isEmpty()) {
-            return;
+        if (flushFuture.isCompletedExceptionally()) {
+            getFutureValue(flushFuture);
         }
 
-        if (sortFields.isEmpty()) {
-            storagePageSink.appendPages(pages);
-        }
-        else {
-            appendSorted();
+        if (pages.isEmpty()) {
+            return;
         }
 
-        storagePageSink.flush();
+        List<Page> flushPages = pages;
+        long flushRowCount = rowCount;
+        long flushMemoryBytes = usedMemoryBytes;
 
-        pages.clear();
+        pages = new ArrayList<>();
         rowCount = 0;
         usedMemoryBytes = 0;
+
+        shardOpen = sortFields.isEmpty();
+        lastFlushNanos = System.nanoTime();
+
+        flushingMemoryBytes.addAndGet(flushMemoryBytes);
+        flushFuture = flushFuture.thenRunAsync(() -> {
+            try {
+                if (sortFields.isEmpty()) {
+                    append(flushPages, flushRowCount, flushMemoryBytes);
+                }
+                else {
+                    appendSorted(flushPages, flushRowCount, flushMemoryBytes);
+                }
+            }
+            finally {
+                flushingMemoryBytes.addAndGet(-flushMemoryBytes);
+            }
+        }, writerExecutor);
     }
 
-    private void appendSorted()
+    /**
+     * Close the shard that was left open by the previous flushes, once they have finished.
+     */
+    public void closeShard()
     {
-        long[] addresses = pageSorter.sort(columnTypes, pages, sortFields, sortOrders, Ints.checkedCast(rowCount));
+        if (!shardOpen) {
+            return;
+        }
+        shardOpen = false;
+
+        flushFuture = flushFuture.thenRunAsync(() -> {
+            long start = System.nanoTime();
+            storagePageSink.flush();
+            stats.addEncoding(0, 0, System.nanoTime() - start);
+        }, writerExecutor);
+    }
 
-        int[] pageIndex = new int[addresses.length];
-        int[] positionIndex = new int[addresses.length];
-        for (int i = 0; i < addresses.length; i++) {
-            pageIndex[i] = pageSorter.decodePageIndex(addresses[i]);
-            positionIndex[i] = pageSorter.decodePositionIndex(addresses[i]);
+    private void append(List<Page> pages, long rowCount, long memoryBytes)
+    {
+        long start = System.nanoTime();
+        storagePageSink.appendPages(pages);
+        if (storagePageSink.isFull()) {
+            storagePageSink.flush();
         }
+        stats.addEncoding(rowCount, memoryBytes, System.nanoTime() - start);
+    }
 
-        storagePageSink.appendPages(pages, pageIndex, positionIndex);
+    private void appendSorted(List<Page> pages, long rowCount, long memoryBytes)
+    {
+        long start = System.nanoTime();
+        int[] pageIndex;
+        int[] positionIndex;
+
+        if (orderingType == ZORDER) {
+            pageIndex = new int[Ints.checkedCast(rowCount)];
+            positionIndex = new int[Ints.checkedCast(rowCount)];
+            ZOrderSorter.sort(columnTypes, pages, sortFields, pageIndex, positionIndex);
+        }
+        else {
+            long[] addresses = pageSorter.sort(columnTypes, pages, sortFields, sortOrders, Ints.checkedCast(rowCount));
+
+            pageIndex = new int[addresses.length];
+            positionIndex = new int[addresses.length];
+            for (int i = 0; i < addresses.length; i++) {
+                pageIndex[i] = pageSorter.decodePageIndex(addresses[i]);
+                positionIndex[i] = pageSorter.decodePositionIndex(addresses[i]);
+            }
+        }
+        stats.addSort(System.nanoTime() - start);
+
+        // split the sorted rows into shards, so that each shard covers a narrow range of the sort columns
+        start = System.nanoTime();
+        for (int i = 0; i < pageIndex.length; i++) {
+            storagePageSink.appendRow(extractRow(pages.get(pageIndex[i]), positionIndex[i], columnTypes));
+            if (storagePageSink.isFull()) {
+                storagePageSink.flush();
+            }
+        }
+        storagePageSink.flush();
+        stats.addEncoding(rowCount, memoryBytes, System.nanoTime() - start);
     }
 
     private void flushIfNecessary(int rowsToAdd)
     {
-        if (storagePageSink.isFull() || !canAddRows(rowsToAdd)) {
+        if (!canAddRows(rowsToAdd)) {
             flush();
         }
     }
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.util;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.airlift.units.DataSize.succinctBytes;
+import static io.airlift.units.Duration.succinctNanos;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Statistics of the pages that are sorted and encoded by the page buffers of a
+ * page sink. Page buffers are flushed on writer threads, so the statistics are
+ * updated concurrently.
+ */
+public class PageBufferStats
+{
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong shards = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong();
+    private final AtomicLong sortNanos = new AtomicLong();
+    private final AtomicLong encodingNanos = new AtomicLong();
+
+    public void addSort(long nanos)
+    {
+        sortNanos.addAndGet(nanos);
+    }
+
+    public void addEncoding(long rowCount, long bytes, long nanos)
+    {
+        rows.addAndGet(rowCount);
+        inputBytes.addAndGet(bytes);
+        encodingNanos.addAndGet(nanos);
+    }
+
+    public void addShard(long compressedBytes)
+    {
+        shards.incrementAndGet();
+        outputBytes.addAndGet(compressedBytes);
+    }
+
+    public Map<String, Object> getInfo()
+    {
+        long inputBytes = this.inputBytes.get();
+        long outputBytes = this.outputBytes.get();
+        Duration encodingTime = succinctNanos(encodingNanos.get());
+
+        ImmutableMap.Builder<String, Object> info = ImmutableMap.<String, Object>builder()
+                .put("rows", rows.get())
+                .put("shards", shards.get())
+                .put("inputDataSize", succinctBytes(inputBytes).toString())
+                .put("outputDataSize", succinctBytes(outputBytes).toString())
+                .put("sortTime", succinctNanos(sortNanos.get()).toString())
+                .put("encodingTime", encodingTime.toString());
+
+        if (encodingTime.getValue(SECONDS) > 0) {
+            DataSize rate = succinctBytes((long) (inputBytes / encodingTime.getValue(SECONDS)));
+            info.put("encodingRate", rate + "/s");
+        }
+        if (outputBytes > 0) {
+            info.put("compressionRatio", (double) inputBytes / outputBytes);
+        }
+        return info.build();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.util;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spi.type.VarcharType;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Double.doubleToLongBits;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Sorts rows along a Z-order curve over the sort columns: the bits of the sort
+ * column values are interleaved, so that rows that are close in every sort column
+ * are close in the output, and each shard covers a narrow range of every column.
+ * <p>
+ * The values of each column are scaled to a range of the column before they are
+ * interleaved, so that all columns contribute equally to the order. The range is
+ * either that of the sorted rows, or given as {@link KeyBounds} when rows that are
+ * sorted separately must be ordered along the same curve. Nulls sort first. Strings
+ * are ordered by their first eight bytes.
+ * <p>
+ * The order only clusters rows that are sorted together: the writer of a shard
+ * splits them into several shards along the curve, so that each shard covers a
+ * narrow range of every sort column.
+ */
+public final class ZOrderSorter
+{
+    private static final int PREFIX_BYTES = Long.BYTES;
+
+    private ZOrderSorter() {}
+
+    public static boolean isSupportedType(Type type)
+    {
+        return type.equals(BOOLEAN) ||
+                type.equals(BIGINT) ||
+                type.equals(DOUBLE) ||
+                type.equals(DATE) ||
+                type.equals(TIMESTAMP) ||
+                type.equals(VARBINARY) ||
+                (type instanceof VarcharType);
+    }
+
+    /**
+     * Sort the rows of the pages. The page and position of the row at each
+     * position of the sorted output are stored in the given arrays, which
+     * must have the length of the total row count of the pages.
+     */
+    public static void sort(List<Type> columnTypes, List<Page> pages, List<Integer> sortFields, int[] pageIndexes, int[] positionIndexes)
+    {
+        KeyBounds bounds = new KeyBounds(sortFields.stream().map(columnTypes::get).collect(toList()));
+        for (Page page : pages) {
+            bounds.add(page, sortFields);
+        }
+        sort(columnTypes, pages, sortFields, bounds, pageIndexes, positionIndexes);
+    }
+
+    /**
+     * Sort the rows of the pages, with the keys of the sort columns scaled to the
+     * given bounds, which must include the values of the rows.
+     */
+    public static void sort(List<Type> columnTypes, List<Page> pages, List<Integer> sortFields, KeyBounds bounds, int[] pageIndexes, int[] positionIndexes)
+    {
+        checkArgument(pageIndexes.length == positionIndexes.length, "pageIndexes and positionIndexes must be of the same size");
+        int rowCount = pageIndexes.length;
+        checkArgument(pages.stream().mapToInt(Page::getPositionCount).sum() == rowCount, "row count of pages does not match output size");
+        checkArgument(bounds.getColumnCount() == sortFields.size(), "bounds do not match sort fields");
+
+        long[][] keys = new long[sortFields.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            int field = sortFields.get(i);
+            keys[i] = scaledKeys(columnTypes.get(field), pages, field, rowCount, bounds.min[i], bounds.max[i]);
+        }
+
+        int[] rows = new int[rowCount];
+        int[] rowPages = new int[rowCount];
+        int[] rowPositions = new int[rowCount];
+        int row = 0;
+        for (int page = 0; page < pages.size(); page++) {
+            for (int position = 0; position < pages.get(page).getPositionCount(); position++) {
+                rows[row] = row;
+                rowPages[row] = page;
+                rowPositions[row] = position;
+                row++;
+            }
+        }
+
+        IntArrays.quickSort(rows, new AbstractIntComparator()
+        {
+            @Override
+            public int compare(int left, int right)
+            {
+                return ZOrderSorter.compare(keys, left, right);
+            }
+        });
+
+        for (int i = 0; i < rowCount; i++) {
+            pageIndexes[i] = rowPages[rows[i]];
+            positionIndexes[i] = rowPositions[rows[i]];
+        }
+    }
+
+    /**
+     * Compare two rows by the position of their interleaved keys on the curve,
+     * without interleaving the keys: the order of the rows is the order of the
+     * column whose keys differ in the most significant bit, where the first
+     * column wins ties.
+     */
+    static int compare(long[][] keys, int left, int right)
+    {
+        int column = 0;
+        long highestDifference = 0;
+        for (int i = 0; i < keys.length; i++) {
+            long difference = keys[i][left] ^ keys[i][right];
+            if (Long.numberOfLeadingZeros(difference) < Long.numberOfLeadingZeros(highestDifference)) {
+                column = i;
+                highestDifference = difference;
+            }
+        }
+        return Long.compareUnsigned(keys[column][left], keys[column][right]);
+    }
+
+    /**
+     * Keys that compare as unsigned values in the order of the column values. The keys
+     * of values have the high bit set and the range from min to max spans the remaining
+     * bits, so that the keys of all columns have the same scale. The keys of nulls are zero.
+     */
+    static long[] scaledKeys(Type type, List<Page> pages, int field, int rowCount, long min, long max)
+    {
+        long[] keys = new long[rowCount];
+
+        // align the highest bit of the range with the highest bit of the keys
+        int shift = Long.numberOfLeadingZeros(max - min);
+
+        int row = 0;
+        for (Page page : pages) {
+            Block block = page.getBlock(field);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                if (!block.isNull(position)) {
+                    keys[row] = Long.MIN_VALUE | (((sortableKey(type, block, position) - min) << shift) >>> 1);
+                }
+                row++;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * A key that compares as a signed value in the order of the value.
+     */
+    private static long sortableKey(Type type, Block block, int position)
+    {
+        Class<?> javaType = type.getJavaType();
+        if (javaType == boolean.class) {
+            return type.getBoolean(block, position) ? 1 : 0;
+        }
+        if (javaType == long.class) {
+            return type.getLong(block, position);
+        }
+        if (javaType == double.class) {
+            // adding zero turns negative zero into zero
+            long bits = doubleToLongBits(type.getDouble(block, position) + 0.0);
+            return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+        Slice slice = type.getSlice(block, position);
+        long prefix = 0;
+        for (int i = 0; i < PREFIX_BYTES; i++) {
+            prefix <<= 8;
+            if (i < slice.length()) {
+                prefix |= slice.getUnsignedByte(i);
+            }
+        }
+        return prefix ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * The lowest and highest keys of the values of the sort columns.
+     */
+    public static final class KeyBounds
+    {
+        private final List<Type> types;
+        private final long[] min;
+        private final long[] max;
+
+        public KeyBounds(List<Type> types)
+        {
+            this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+            this.min = new long[types.size()];
+            this.max = new long[types.size()];
+            Arrays.fill(min, Long.MAX_VALUE);
+            Arrays.fill(max, Long.MIN_VALUE);
+        }
+
+        public int getColumnCount()
+        {
+            return types.size();
+        }
+
+        /**
+         * Include the values of the sort columns at the given fields of the page.
+         */
+        public void add(Page page, List<Integer> fields)
+        {
+            checkArgument(fields.size() == types.size(), "fields do not match types");
+            for (int i = 0; i < types.size(); i++) {
+                Block block = page.getBlock(fields.get(i));
+                for (int position = 0; position < block.getPositionCount(); position++) {
+                    if (!block.isNull(position)) {
+                        long key = sortableKey(types.get(i), block, position);
+                        min[i] = Math.min(min[i], key);
+                        max[i] = Math.max(max[i], key);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -41,6 +41,7 @@ import static java.lang.String.format;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toSet;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
 
@@ -137,6 +138,27 @@ public class TestRaptorIntegrationSmokeTest
         computeActual("CREATE TABLE test_table_properties_2 (foo BIGINT, bar BIGINT, ds DATE) WITH (ORDERING=array['foo','bar'], TEMPORAL_COLUMN='ds')");
     }
 
+    @Test
+    public void testZOrderedTable()
+            throws Exception
+    {
+        assertUpdate("" +
+                        "CREATE TABLE test_zordered " +
+                        "WITH (ordering = ARRAY['custkey', 'orderdate'], ordering_type = 'zorder') " +
+                        "AS SELECT orderkey, custkey, orderdate FROM orders",
+                "SELECT count(*) FROM orders");
+        assertUpdate("INSERT INTO test_zordered SELECT orderkey, custkey, orderdate FROM orders", "SELECT count(*) FROM orders");
+
+        assertQuery("SELECT * FROM test_zordered", "SELECT orderkey, custkey, orderdate FROM orders UNION ALL SELECT orderkey, custkey, orderdate FROM orders");
+        assertQuery("SELECT count(*) FROM test_zordered WHERE custkey = 370 AND orderdate > DATE '1995-01-01'", "SELECT count(*) * 2 FROM orders WHERE custkey = 370 AND orderdate > DATE '1995-01-01'");
+
+        assertUpdate("DROP TABLE test_zordered");
+
+        assertQueryFails("CREATE TABLE test_zordered_invalid (a bigint, b bigint) WITH (ordering = ARRAY['a'], ordering_type = 'zorder')", "Z-order requires at least two columns in 'ordering'");
+        assertQueryFails("CREATE TABLE test_zordered_invalid (a bigint, b array(bigint)) WITH (ordering = ARRAY['a', 'b'], ordering_type = 'zorder')", "Z-order is not supported for column type: array\\(bigint\\)");
+        assertQueryFails("CREATE TABLE test_zordered_invalid (a bigint, b bigint) WITH (ordering = ARRAY['a', 'b'], ordering_type = 'hilbert')", "Unable to set table property 'ordering_type'.*");
+    }
+
     @Test
     public void testShardsSystemTable()
             throws Exception
@@ -153,6 +175,32 @@ public class TestRaptorIntegrationSmokeTest
                         "SELECT 'tpch', 'lineitem', (SELECT count(*) FROM lineitem)");
     }
 
+    @Test
+    public void testMetadataAggregations()
+            throws Exception
+    {
+        assertUpdate("CREATE TABLE test_metadata_aggregations AS SELECT orderkey, orderdate, orderstatus FROM orders", "SELECT count(*) FROM orders");
+
+        String query = "SELECT count(*), min(orderkey), max(orderkey), min(orderdate), max(orderdate) FROM test_metadata_aggregations";
+        assertQuery(query, "SELECT count(*), min(orderkey), max(orderkey), min(orderdate), max(orderdate) FROM orders");
+        assertFalse(getExplainPlan(query).contains("TableScan"));
+
+        // answered from the data, as the shards are not known to match the filter entirely
+        assertQuery("SELECT max(orderkey) FROM test_metadata_aggregations WHERE orderkey < 100", "SELECT max(orderkey) FROM orders WHERE orderkey < 100");
+        assertQuery("SELECT count(*) FROM test_metadata_aggregations WHERE orderkey < 100", "SELECT count(*) FROM orders WHERE orderkey < 100");
+        assertQuery("SELECT max(orderstatus) FROM test_metadata_aggregations", "SELECT max(orderstatus) FROM orders");
+
+        assertUpdate("DELETE FROM test_metadata_aggregations WHERE orderkey = 60000", 1);
+        assertQuery(query, "SELECT count(*), min(orderkey), max(orderkey), min(orderdate), max(orderdate) FROM orders WHERE orderkey <> 60000");
+
+        assertUpdate("DROP TABLE test_metadata_aggregations");
+    }
+
+    private String getExplainPlan(String query)
+    {
+        return (String) getOnlyElement(computeActual("EXPLAIN " + query).getOnlyColumnAsSet());
+    }
+
     @Test
     public void testCreateBucketedTable()
             throws Exception
@@ -38,4 +38,14 @@ public class TestRaptorIntegrationSmokeTestBucketed
                         "  AND table_name = 'orders'",
                 "SELECT 25");
     }
+
+    @Test
+    public void testBucketBalanceSystemTable()
+            throws Exception
+    {
+        assertQuery("" +
+                        "SELECT count(*) > 0, sum(bucket_count) = sum(target_bucket_count)\n" +
+                        "FROM system.bucket_balance",
+                "SELECT true, true");
+    }
 }
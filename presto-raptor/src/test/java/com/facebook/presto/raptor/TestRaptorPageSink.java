@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor;
+
+import com.facebook.presto.PagesIndexPageSorter;
+import com.facebook.presto.raptor.metadata.ShardInfo;
+import com.facebook.presto.raptor.storage.StorageManager;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import io.airlift.json.JsonCodec;
+import io.airlift.slice.Slice;
+import io.airlift.units.DataSize;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.raptor.metadata.OrderingType.LEXICOGRAPHIC;
+import static com.facebook.presto.raptor.storage.TestOrcStorageManager.createOrcStorageManager;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.google.common.io.Files.createTempDir;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.testing.FileUtils.deleteRecursively;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestRaptorPageSink
+{
+    private static final JsonCodec<ShardInfo> SHARD_INFO_CODEC = jsonCodec(ShardInfo.class);
+    private static final int MAX_SHARD_ROWS = 1000;
+    private static final List<Long> COLUMN_IDS = ImmutableList.of(1L, 2L);
+    private static final List<Type> COLUMN_TYPES = ImmutableList.of(BIGINT, DATE);
+
+    private StorageManager storageManager;
+    private File temporary;
+    private Handle dummyHandle;
+
+    @BeforeMethod
+    public void setup()
+            throws Exception
+    {
+        temporary = createTempDir();
+        IDBI dbi = new DBI("jdbc:h2:mem:test" + System.nanoTime());
+        dummyHandle = dbi.open();
+        storageManager = createOrcStorageManager(dbi, temporary, MAX_SHARD_ROWS);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        if (dummyHandle != null) {
+            dummyHandle.close();
+        }
+        deleteRecursively(temporary);
+    }
+
+    @Test
+    public void testBlockedWhileFlushing()
+    {
+        QueuedExecutor executor = new QueuedExecutor();
+        RaptorPageSink sink = createPageSink(Optional.empty(), new DataSize(1, BYTE), executor);
+
+        // the first page fits in the empty buffer
+        assertTrue(sink.appendPage(createPage(0, 100), null).isDone());
+
+        // the second page flushes the first one, which uses more memory than the buffer size
+        CompletableFuture<?> blocked = sink.appendPage(createPage(100, 100), null);
+        assertFalse(blocked.isDone());
+
+        executor.release();
+        assertTrue(blocked.isDone());
+
+        List<ShardInfo> shards = finish(sink);
+        assertEquals(shards.stream().mapToLong(ShardInfo::getRowCount).sum(), 200);
+    }
+
+    @Test
+    public void testUnsortedFlushesWriteFullShards()
+    {
+        RaptorPageSink sink = createPageSink(Optional.empty(), new DataSize(1, BYTE), directExecutor());
+
+        // every page is flushed, but the rows are appended to the open shard until it is full
+        for (int i = 0; i < 15; i++) {
+            sink.appendPage(createPage(i * 100, 100), null);
+        }
+
+        List<ShardInfo> shards = finish(sink);
+        assertEquals(getRowCounts(shards), ImmutableMultiset.of(1000L, 500L));
+    }
+
+    @Test
+    public void testTemporalPartitioning()
+    {
+        RaptorPageSink sink = createPageSink(Optional.of(2L), new DataSize(1, MEGABYTE), directExecutor());
+
+        sink.appendPage(rowPagesBuilder(COLUMN_TYPES)
+                .row(1L, 10L)
+                .row(2L, 11L)
+                .row(3L, 10L)
+                .row(4L, 12L)
+                .row(5L, 10L)
+                .build().get(0), null);
+
+        List<ShardInfo> shards = finish(sink);
+        assertEquals(getRowCounts(shards), ImmutableMultiset.of(3L, 1L, 1L));
+    }
+
+    private RaptorPageSink createPageSink(Optional<Long> temporalColumnId, DataSize maxBufferSize, Executor executor)
+    {
+        return new RaptorPageSink(
+                new PagesIndexPageSorter(),
+                storageManager,
+                SHARD_INFO_CODEC,
+                1,
+                COLUMN_IDS,
+                COLUMN_TYPES,
+                Optional.empty(),
+                ImmutableList.of(),
+                ImmutableList.of(),
+                LEXICOGRAPHIC,
+                temporalColumnId,
+                OptionalInt.empty(),
+                ImmutableList.of(),
+                maxBufferSize,
+                executor);
+    }
+
+    private static Page createPage(int start, int rows)
+    {
+        return createSequencePage(COLUMN_TYPES, rows, start, 0);
+    }
+
+    private static List<ShardInfo> finish(RaptorPageSink sink)
+    {
+        return sink.finish().stream()
+                .map(Slice::getBytes)
+                .map(SHARD_INFO_CODEC::fromJson)
+                .collect(toList());
+    }
+
+    private static ImmutableMultiset<Long> getRowCounts(List<ShardInfo> shards)
+    {
+        return ImmutableMultiset.copyOf(shards.stream().map(ShardInfo::getRowCount).collect(toList()));
+    }
+
+    /**
+     * Queues the flushes of the page sink until it is released.
+     */
+    private static class QueuedExecutor
+            implements Executor
+    {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean released;
+
+        @Override
+        public void execute(Runnable task)
+        {
+            if (released) {
+                task.run();
+            }
+            else {
+                tasks.add(task);
+            }
+        }
+
+        public void release()
+        {
+            released = true;
+            while (!tasks.isEmpty()) {
+                tasks.remove().run();
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.raptor.backup;
 
+import com.google.common.io.Files;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -23,7 +24,10 @@ import java.util.UUID;
 import static com.google.common.io.Files.createTempDir;
 import static io.airlift.testing.FileUtils.deleteRecursively;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.UUID.randomUUID;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestFileBackupStore
         extends AbstractTestBackupStore<FileBackupStore>
@@ -51,4 +55,21 @@ public class TestFileBackupStore
         File expected = new File(temporary, format("backup/70/1e/%s.orc", uuid));
         assertEquals(store.getBackupFile(uuid), expected);
     }
+
+    @Test
+    public void testReadShard()
+            throws Exception
+    {
+        File file = new File(temporary, "range");
+        Files.write("hello world", file, UTF_8);
+        UUID uuid = randomUUID();
+        store.backupShard(uuid, file);
+
+        assertTrue(store.isRangeReadSupported());
+        assertEquals(store.getShardSize(uuid), 11);
+
+        byte[] buffer = new byte[7];
+        store.readShard(uuid, 6, buffer, 1, 5);
+        assertEquals(new String(buffer, 1, 5, UTF_8), "world");
+    }
 }
@@ -47,6 +47,7 @@ import java.io.File;
 import java.net.URI;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -79,6 +80,7 @@ import static com.google.common.collect.Iterators.transform;
 import static io.airlift.slice.Slices.utf8Slice;
 import static java.time.ZoneOffset.UTC;
 import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -319,6 +321,122 @@ public class TestDatabaseShardManager
         }
     }
 
+    @Test
+    public void testDeletedRows()
+    {
+        long tableId = createTable("test");
+        List<ColumnInfo> columns = ImmutableList.of(new ColumnInfo(1, BIGINT));
+        UUID shard1 = UUID.randomUUID();
+        UUID shard2 = UUID.randomUUID();
+        List<ShardInfo> shards = ImmutableList.of(
+                new ShardInfo(shard1, OptionalInt.empty(), ImmutableSet.of("node1"), ImmutableList.of(), 10, 11, 111),
+                new ShardInfo(shard2, OptionalInt.empty(), ImmutableSet.of("node1"), ImmutableList.of(), 20, 22, 222));
+
+        shardManager.createTable(tableId, columns, false);
+        shardManager.commitShards(shardManager.beginTransaction(), tableId, columns, shards, Optional.empty());
+
+        BitSet rows = new BitSet();
+        rows.set(3);
+        rows.set(7);
+        DeletedRows deletedRows = DeletedRows.deletedRows(rows);
+        ShardDeletion deletion = new ShardDeletion(shard1, 0, deletedRows);
+        shardManager.replaceShardUuids(shardManager.beginTransaction(), tableId, columns, ImmutableSet.of(), ImmutableList.of(), ImmutableList.of(deletion));
+
+        assertEquals(getShardNodes(tableId, TupleDomain.all()), ImmutableSet.of(
+                new ShardNodes(shard1, ImmutableSet.of("node1"), Optional.of(deletedRows)),
+                new ShardNodes(shard2, ImmutableSet.of("node1"))));
+        assertEquals(shardManager.getDeletedRows(ImmutableSet.of(shard1, shard2)), ImmutableMap.of(shard1, deletedRows));
+
+        Map<UUID, Long> deletedRowCounts = shardManager.getNodeShards("node1").stream()
+                .collect(toMap(ShardMetadata::getShardUuid, ShardMetadata::getDeletedRowCount));
+        assertEquals(deletedRowCounts, ImmutableMap.of(shard1, 2L, shard2, 0L));
+
+        // rows deleted by another transaction are a conflict
+        rows.set(5);
+        try {
+            deletion = new ShardDeletion(shard1, 0, DeletedRows.deletedRows(rows));
+            shardManager.replaceShardUuids(shardManager.beginTransaction(), tableId, columns, ImmutableSet.of(), ImmutableList.of(), ImmutableList.of(deletion));
+            fail("expected exception");
+        }
+        catch (PrestoException e) {
+            assertEquals(e.getErrorCode(), TRANSACTION_CONFLICT.toErrorCode());
+        }
+
+        deletion = new ShardDeletion(shard1, 2, DeletedRows.deletedRows(rows));
+        shardManager.replaceShardUuids(shardManager.beginTransaction(), tableId, columns, ImmutableSet.of(), ImmutableList.of(), ImmutableList.of(deletion));
+        assertEquals(shardManager.getDeletedRows(ImmutableSet.of(shard1)), ImmutableMap.of(shard1, DeletedRows.deletedRows(rows)));
+
+        // replacing the shard removes its deleted rows
+        UUID shard3 = UUID.randomUUID();
+        List<ShardInfo> newShards = ImmutableList.of(new ShardInfo(shard3, OptionalInt.empty(), ImmutableSet.of("node1"), ImmutableList.of(), 7, 8, 88));
+        shardManager.replaceShardUuids(shardManager.beginTransaction(), tableId, columns, ImmutableSet.of(shard1), newShards);
+        assertEquals(getShardNodes(tableId, TupleDomain.all()), ImmutableSet.of(
+                new ShardNodes(shard2, ImmutableSet.of("node1")),
+                new ShardNodes(shard3, ImmutableSet.of("node1"))));
+        assertEquals(shardManager.getDeletedRows(ImmutableSet.of(shard1, shard2, shard3)), ImmutableMap.of());
+
+        // deleting rows of a replaced shard is a conflict
+        try {
+            deletion = new ShardDeletion(shard1, 3, DeletedRows.deletedRows(rows));
+            shardManager.replaceShardUuids(shardManager.beginTransaction(), tableId, columns, ImmutableSet.of(), ImmutableList.of(), ImmutableList.of(deletion));
+            fail("expected exception");
+        }
+        catch (PrestoException e) {
+            assertEquals(e.getErrorCode(), TRANSACTION_CONFLICT.toErrorCode());
+        }
+    }
+
+    @Test
+    public void testShardCache()
+    {
+        long tableId = createTable("test");
+        RaptorColumnHandle c1 = new RaptorColumnHandle("raptor", "c1", 1, BIGINT);
+        List<ColumnInfo> columns = ImmutableList.of(new ColumnInfo(1, BIGINT));
+        DatabaseShardManager cachedManager = (DatabaseShardManager) shardManager;
+        ShardManager uncachedManager = createShardManager(dbi, 0);
+        shardManager.createTable(tableId, columns, false);
+
+        ShardInfo shard1 = shardInfo(UUID.randomUUID(), "node1", ImmutableList.of(new ColumnStats(1, 1L, 5L)));
+        shardManager.commitShards(shardManager.beginTransaction(), tableId, columns, ImmutableList.of(shard1), Optional.empty());
+        assertEquals(getShardNodes(tableId, TupleDomain.all()), toShardNodes(ImmutableList.of(shard1)));
+        assertEquals(cachedManager.getShardCacheTableLoads(), 1);
+        assertEquals(cachedManager.getShardCacheTables(), 1);
+
+        // shards committed by this manager are applied to the cached table
+        ShardInfo shard2 = shardInfo(UUID.randomUUID(), "node2", ImmutableList.of(new ColumnStats(1, 10L, 20L)));
+        shardManager.commitShards(shardManager.beginTransaction(), tableId, columns, ImmutableList.of(shard2), Optional.empty());
+        assertEquals(getShardNodes(tableId, TupleDomain.all()), toShardNodes(ImmutableList.of(shard1, shard2)));
+        assertEquals(cachedManager.getShardCacheTableLoads(), 1);
+        assertEquals(cachedManager.getShardCacheTableUpdates(), 1);
+
+        TupleDomain<RaptorColumnHandle> predicate = TupleDomain.withColumnDomains(ImmutableMap.of(c1, Domain.singleValue(BIGINT, 15L)));
+        assertEquals(getShardNodes(tableId, predicate), toShardNodes(ImmutableList.of(shard2)));
+        assertEquals(getShardNodes(tableId, predicate), getShardNodes(uncachedManager, tableId, predicate));
+
+        // shards committed elsewhere reload the cached table
+        ShardInfo shard3 = shardInfo(UUID.randomUUID(), "node1", ImmutableList.of(new ColumnStats(1, 12L, 30L)));
+        uncachedManager.commitShards(uncachedManager.beginTransaction(), tableId, columns, ImmutableList.of(shard3), Optional.empty());
+        assertEquals(getShardNodes(tableId, predicate), toShardNodes(ImmutableList.of(shard2, shard3)));
+        assertEquals(cachedManager.getShardCacheTableLoads(), 2);
+
+        // deleted rows and node assignments are applied to the cached table
+        BitSet rows = new BitSet();
+        rows.set(2);
+        DeletedRows deletedRows = DeletedRows.deletedRows(rows);
+        ShardDeletion deletion = new ShardDeletion(shard3.getShardUuid(), 0, deletedRows);
+        shardManager.replaceShardUuids(shardManager.beginTransaction(), tableId, columns, ImmutableSet.of(shard2.getShardUuid()), ImmutableList.of(), ImmutableList.of(deletion));
+        shardManager.assignShard(tableId, shard3.getShardUuid(), "node3", false);
+
+        Set<ShardNodes> expected = ImmutableSet.of(new ShardNodes(shard3.getShardUuid(), ImmutableSet.of("node1", "node3"), Optional.of(deletedRows)));
+        assertEquals(getShardNodes(tableId, predicate), expected);
+        assertEquals(getShardNodes(uncachedManager, tableId, predicate), expected);
+        assertEquals(cachedManager.getShardCacheTableLoads(), 2);
+        assertEquals(cachedManager.getShardCacheTableUpdates(), 3);
+
+        shardManager.dropTable(tableId);
+        assertEquals(cachedManager.getShardCacheTables(), 0);
+    }
+
     @Test
     public void testExternalBatches()
             throws Exception
@@ -600,6 +718,11 @@ public class TestDatabaseShardManager
     }
 
     private Set<ShardNodes> getShardNodes(long tableId, TupleDomain<RaptorColumnHandle> predicate)
+    {
+        return getShardNodes(shardManager, tableId, predicate);
+    }
+
+    private static Set<ShardNodes> getShardNodes(ShardManager shardManager, long tableId, TupleDomain<RaptorColumnHandle> predicate)
     {
         try (ResultIterator<BucketShards> iterator = shardManager.getShardNodes(tableId, predicate)) {
             return ImmutableSet.copyOf(concat(transform(iterator, i -> i.getShards().iterator())));
@@ -633,6 +756,13 @@ public class TestDatabaseShardManager
         return createShardManager(dbi, ImmutableSet::of, systemTicker());
     }
 
+    private static ShardManager createShardManager(IDBI dbi, long shardCacheMaxShards)
+    {
+        DaoSupplier<ShardDao> shardDaoSupplier = new DaoSupplier<>(dbi, H2ShardDao.class);
+        AssignmentLimiter assignmentLimiter = new AssignmentLimiter(ImmutableSet::of, systemTicker(), new MetadataConfig());
+        return new DatabaseShardManager(dbi, shardDaoSupplier, ImmutableSet::of, assignmentLimiter, systemTicker(), new Duration(1, DAYS), shardCacheMaxShards);
+    }
+
     public static ShardManager createShardManager(IDBI dbi, NodeSupplier nodeSupplier, Ticker ticker)
     {
         DaoSupplier<ShardDao> shardDaoSupplier = new DaoSupplier<>(dbi, H2ShardDao.class);
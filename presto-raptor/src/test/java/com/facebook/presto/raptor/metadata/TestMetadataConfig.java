@@ -32,7 +32,8 @@ public class TestMetadataConfig
         assertRecordedDefaults(recordDefaults(MetadataConfig.class)
                 .setStartupGracePeriod(new Duration(5, MINUTES))
         .setReassignmentDelay(new Duration(0, MINUTES))
-        .setReassignmentInterval(new Duration(0, MINUTES)));
+        .setReassignmentInterval(new Duration(0, MINUTES))
+        .setShardCacheMaxShards(1_000_000));
     }
 
     @Test
@@ -42,12 +43,14 @@ public class TestMetadataConfig
                 .put("raptor.startup-grace-period", "42m")
                 .put("raptor.reassignment-delay", "6m")
                 .put("raptor.reassignment-interval", "7m")
+                .put("raptor.shard-cache-max-shards", "1000")
                 .build();
 
         MetadataConfig expected = new MetadataConfig()
                 .setStartupGracePeriod(new Duration(42, MINUTES))
                 .setReassignmentDelay(new Duration(6, MINUTES))
-                .setReassignmentInterval(new Duration(7, MINUTES));
+                .setReassignmentInterval(new Duration(7, MINUTES))
+                .setShardCacheMaxShards(1000);
 
         assertFullMapping(properties, expected);
     }
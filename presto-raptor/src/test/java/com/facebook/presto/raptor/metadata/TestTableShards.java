@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.metadata;
+
+import com.facebook.presto.raptor.RaptorColumnHandle;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import java.sql.JDBCType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static java.util.Collections.frequency;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class TestTableShards
+{
+    private static final Map<Long, JDBCType> COLUMN_TYPES = ImmutableMap.of(1L, JDBCType.BIGINT);
+    private static final RaptorColumnHandle COLUMN = new RaptorColumnHandle("raptor", "c1", 1, BIGINT);
+
+    @Test
+    public void testAppendShards()
+    {
+        List<UUID> uuids = createUuids(3000);
+        TableShards shards = createTableShards(uuids);
+        assertEquals(shards.getShardCount(), 3000);
+        assertEquals(shards.getSegmentCount(), 3);
+        assertShardUuids(shards, uuids);
+
+        // the new shard is appended to the last segment, which is not full
+        UUID newUuid = UUID.randomUUID();
+        shards = shards.withChanges(2, ImmutableSet.of(), ImmutableList.of(shardInfo(newUuid, 5000)), ImmutableMap.of("node", 7), ImmutableList.of()).get();
+        assertEquals(shards.getVersion(), 2);
+        assertEquals(shards.getShardCount(), 3001);
+        assertEquals(shards.getSegmentCount(), 3);
+
+        int[] positions = shards.getMatchingPositions(TupleDomain.withColumnDomains(ImmutableMap.of(COLUMN, Domain.singleValue(BIGINT, 5000L))));
+        assertEquals(positions.length, 1);
+        assertEquals(shards.getShardUuid(positions[0]), newUuid);
+        assertEquals(shards.getNodeIds(positions[0]), ImmutableList.of(7));
+    }
+
+    @Test
+    public void testDuplicateNewShard()
+    {
+        List<UUID> uuids = createUuids(100);
+        TableShards shards = createTableShards(uuids);
+
+        // a change that is already in the loaded shards does not add them again
+        UUID newUuid = UUID.randomUUID();
+        ShardInfo newShard = shardInfo(newUuid, 5000);
+        shards = shards.withChanges(2, ImmutableSet.of(), ImmutableList.of(newShard), ImmutableMap.of("node", 7), ImmutableList.of()).get();
+        shards = shards.withChanges(3, ImmutableSet.of(), ImmutableList.of(newShard, newShard), ImmutableMap.of("node", 7), ImmutableList.of()).get();
+        assertEquals(shards.getShardCount(), 101);
+        assertEquals(frequency(getShardUuids(shards), newUuid), 1);
+    }
+
+    @Test
+    public void testReplaceShards()
+    {
+        List<UUID> uuids = createUuids(3000);
+        TableShards shards = createTableShards(uuids);
+
+        BitSet rows = new BitSet();
+        rows.set(3);
+        DeletedRows deletedRows = DeletedRows.deletedRows(rows);
+        ShardDeletion deletion = new ShardDeletion(uuids.get(2500), 0, deletedRows);
+        Set<UUID> oldShardUuids = ImmutableSet.of(uuids.get(0), uuids.get(1500));
+        shards = shards.withChanges(2, oldShardUuids, ImmutableList.of(), ImmutableMap.of(), ImmutableList.of(deletion)).get();
+
+        List<UUID> expected = new ArrayList<>(uuids);
+        expected.removeAll(oldShardUuids);
+        assertShardUuids(shards, expected);
+
+        int[] positions = shards.getMatchingPositions(TupleDomain.withColumnDomains(ImmutableMap.of(COLUMN, Domain.singleValue(BIGINT, 2500L))));
+        assertEquals(positions.length, 1);
+        assertEquals(shards.getDeletedRows(positions[0]), Optional.of(deletedRows));
+
+        // a change to a shard that is not in the table does not apply
+        assertFalse(shards.withChanges(3, ImmutableSet.of(uuids.get(0)), ImmutableList.of(), ImmutableMap.of(), ImmutableList.of()).isPresent());
+        assertFalse(shards.withShardNodes(3, uuids.get(0), ImmutableSet.of(1)).isPresent());
+
+        shards = shards.withShardNodes(3, uuids.get(2500), ImmutableSet.of(1, 2)).get();
+        assertEquals(ImmutableSet.copyOf(shards.getNodeIds(positions[0])), ImmutableSet.of(1, 2));
+        assertEquals(shards.getDeletedRows(positions[0]), Optional.of(deletedRows));
+    }
+
+    @Test
+    public void testMergeSegments()
+    {
+        List<UUID> uuids = createUuids(5000);
+        TableShards shards = createTableShards(uuids);
+        assertEquals(shards.getSegmentCount(), 5);
+
+        // removing most shards of every segment merges the remaining shards
+        List<UUID> remaining = new ArrayList<>();
+        ImmutableSet.Builder<UUID> removed = ImmutableSet.builder();
+        for (int i = 0; i < uuids.size(); i++) {
+            if (i % 10 == 0) {
+                remaining.add(uuids.get(i));
+            }
+            else {
+                removed.add(uuids.get(i));
+            }
+        }
+        shards = shards.withChanges(2, removed.build(), ImmutableList.of(), ImmutableMap.of(), ImmutableList.of()).get();
+        assertEquals(shards.getShardCount(), 500);
+        assertEquals(shards.getSegmentCount(), 1);
+        assertShardUuids(shards, remaining);
+        assertEquals(shards.getMatchingPositions(TupleDomain.withColumnDomains(ImmutableMap.of(COLUMN, Domain.singleValue(BIGINT, 10L)))).length, 1);
+    }
+
+    private static List<UUID> createUuids(int count)
+    {
+        ImmutableList.Builder<UUID> uuids = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            uuids.add(UUID.randomUUID());
+        }
+        return uuids.build();
+    }
+
+    /**
+     * Create a table where the column of each shard is the index of the shard.
+     */
+    private static TableShards createTableShards(List<UUID> uuids)
+    {
+        TableShards.Builder builder = new TableShards.Builder(false, COLUMN_TYPES);
+        for (int i = 0; i < uuids.size(); i++) {
+            builder.addShard(uuids.get(i), OptionalInt.empty(), ImmutableList.of(1), Optional.empty());
+            builder.setColumnRange(1, (long) i, (long) i);
+        }
+        return builder.build(1);
+    }
+
+    private static ShardInfo shardInfo(UUID uuid, long value)
+    {
+        return new ShardInfo(uuid, OptionalInt.empty(), ImmutableSet.of("node"), ImmutableList.of(new ColumnStats(1, value, value)), 1, 1, 1);
+    }
+
+    private static void assertShardUuids(TableShards shards, List<UUID> expected)
+    {
+        List<UUID> actual = getShardUuids(shards);
+        assertEquals(actual.size(), expected.size());
+        assertEquals(ImmutableSet.copyOf(actual), ImmutableSet.copyOf(expected));
+    }
+
+    private static List<UUID> getShardUuids(TableShards shards)
+    {
+        ImmutableList.Builder<UUID> uuids = ImmutableList.builder();
+        for (int position : shards.getMatchingPositions(TupleDomain.all())) {
+            uuids.add(shards.getShardUuid(position));
+        }
+        return uuids.build();
+    }
+}
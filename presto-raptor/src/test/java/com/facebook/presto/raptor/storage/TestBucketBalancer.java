@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.storage;
+
+import com.facebook.presto.raptor.NodeSupplier;
+import com.facebook.presto.raptor.metadata.DistributionBucket;
+import com.facebook.presto.raptor.metadata.MetadataDao;
+import com.facebook.presto.raptor.metadata.ShardManager;
+import com.facebook.presto.spi.HostAddress;
+import com.facebook.presto.spi.Node;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMultiset;
+import io.airlift.units.Duration;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.raptor.metadata.TestDatabaseShardManager.createShardManager;
+import static com.google.common.base.Ticker.systemTicker;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.stream.Collectors.toSet;
+import static org.testng.Assert.assertEquals;
+
+public class TestBucketBalancer
+{
+    private IDBI dbi;
+    private Handle dummyHandle;
+
+    @BeforeMethod
+    public void setup()
+            throws Exception
+    {
+        dbi = new DBI("jdbc:h2:mem:test" + System.nanoTime());
+        dummyHandle = dbi.open();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        if (dummyHandle != null) {
+            dummyHandle.close();
+        }
+    }
+
+    @Test
+    public void testComputeMoves()
+    {
+        List<DistributionBucket> buckets = ImmutableList.of(
+                bucket(1, 0, "node1", 100),
+                bucket(1, 1, "node1", 20),
+                bucket(1, 2, "node1", 30),
+                bucket(1, 3, "node2", 10),
+                bucket(1, 4, "node2", 15),
+                bucket(1, 5, "node2", 5),
+                // node4 is not active
+                bucket(2, 0, "node1", 10),
+                bucket(2, 1, "node4", 10));
+
+        // the heavier node gives up its smallest bucket first
+        assertEquals(
+                BucketBalancer.computeMoves(ImmutableSet.of("node1", "node2", "node3"), buckets).stream()
+                        .map(move -> move.getBucketNumber() + ":" + move.getSourceNode() + "->" + move.getTargetNode())
+                        .collect(toSet()),
+                ImmutableSet.of("1:node1->node3", "5:node2->node3"));
+        assertEquals(BucketBalancer.computeMoves(ImmutableSet.of("node1", "node2", "node3"), buckets).get(0).getBucketNumber(), 1);
+
+        // balanced
+        assertEquals(BucketBalancer.computeMoves(ImmutableSet.of("node1", "node2"), buckets.subList(0, 6)), ImmutableList.of());
+
+        // no active nodes
+        assertEquals(BucketBalancer.computeMoves(ImmutableSet.of(), buckets), ImmutableList.of());
+    }
+
+    @Test
+    public void testProcess()
+    {
+        Node node1 = new TestingNode("node1");
+        Node node2 = new TestingNode("node2");
+        Node node3 = new TestingNode("node3");
+
+        ShardManager originalShardManager = createShardManager(dbi, () -> ImmutableSet.of(node1, node2), systemTicker());
+        long distributionId = dbi.onDemand(MetadataDao.class).insertDistribution(null, "test", 12);
+        originalShardManager.createBuckets(distributionId, 12);
+
+        // add a node to the cluster
+        NodeSupplier nodeSupplier = () -> ImmutableSet.of(node1, node2, node3);
+        ShardManager shardManager = createShardManager(dbi, nodeSupplier, systemTicker());
+        BucketBalancer balancer = new BucketBalancer(nodeSupplier, shardManager, true, new Duration(1, HOURS), 3, "test");
+
+        assertEquals(balancer.process(), 3);
+        assertEquals(balancer.getPendingBucketMoves(), 1);
+        assertEquals(balancer.process(), 1);
+        assertEquals(balancer.getPendingBucketMoves(), 0);
+        assertEquals(balancer.getBucketsBalanced().getTotalCount(), 4);
+
+        assertEquals(
+                ImmutableSortedMultiset.copyOf(shardManager.getBucketAssignments(distributionId).values()),
+                ImmutableSortedMultiset.<String>naturalOrder().addCopies("node1", 4).addCopies("node2", 4).addCopies("node3", 4).build());
+
+        assertEquals(balancer.process(), 0);
+    }
+
+    private static DistributionBucket bucket(long distributionId, int bucketNumber, String node, long size)
+    {
+        return new DistributionBucket(distributionId, Optional.empty(), bucketNumber, node, size);
+    }
+
+    private static class TestingNode
+            implements Node
+    {
+        private final String identifier;
+
+        public TestingNode(String identifier)
+        {
+            this.identifier = requireNonNull(identifier, "identifier is null");
+        }
+
+        @Override
+        public HostAddress getHostAndPort()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URI getHttpUri()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getNodeIdentifier()
+        {
+            return identifier;
+        }
+    }
+}
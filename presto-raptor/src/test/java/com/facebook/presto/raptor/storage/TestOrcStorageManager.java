@@ -21,6 +21,8 @@ import com.facebook.presto.raptor.backup.BackupManager;
 import com.facebook.presto.raptor.backup.BackupStore;
 import com.facebook.presto.raptor.backup.FileBackupStore;
 import com.facebook.presto.raptor.metadata.ColumnStats;
+import com.facebook.presto.raptor.metadata.DeletedRows;
+import com.facebook.presto.raptor.metadata.ShardDeletion;
 import com.facebook.presto.raptor.metadata.ShardDelta;
 import com.facebook.presto.raptor.metadata.ShardInfo;
 import com.facebook.presto.raptor.metadata.ShardManager;
@@ -38,6 +40,7 @@ import com.facebook.presto.spi.type.SqlVarbinary;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.testing.MaterializedResult;
 import com.facebook.presto.type.TypeRegistry;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -64,9 +67,13 @@ import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.raptor.RaptorColumnHandle.shardRowIdHandle;
 import static com.facebook.presto.raptor.metadata.TestDatabaseShardManager.createShardManager;
 import static com.facebook.presto.raptor.storage.OrcTestingUtil.createReader;
 import static com.facebook.presto.raptor.storage.OrcTestingUtil.octets;
@@ -87,10 +94,12 @@ import static com.google.common.io.Files.hash;
 import static io.airlift.json.JsonCodec.jsonCodec;
 import static io.airlift.slice.Slices.utf8Slice;
 import static io.airlift.slice.Slices.wrappedBuffer;
+import static io.airlift.testing.Assertions.assertInstanceOf;
 import static io.airlift.testing.FileUtils.deleteRecursively;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
 import static org.joda.time.DateTimeZone.UTC;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -113,6 +122,7 @@ public class TestOrcStorageManager
     private static final int MAX_SHARD_ROWS = 100;
     private static final DataSize MAX_FILE_SIZE = new DataSize(1, MEGABYTE);
     private static final Duration MISSING_SHARD_DISCOVERY = new Duration(5, TimeUnit.MINUTES);
+    private static final DataSize RECOVERY_RANGE_SIZE = new DataSize(32, MEGABYTE);
     private static final ReaderAttributes READER_ATTRIBUTES = new ReaderAttributes(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
 
     private final NodeManager nodeManager = new InMemoryNodeManager();
@@ -122,6 +132,7 @@ public class TestOrcStorageManager
     private ShardRecoveryManager recoveryManager;
     private FileBackupStore fileBackupStore;
     private Optional<BackupStore> backupStore;
+    private ShardManager shardManager;
     private InMemoryShardRecorder shardRecorder;
 
     @BeforeMethod
@@ -140,9 +151,9 @@ public class TestOrcStorageManager
 
         IDBI dbi = new DBI("jdbc:h2:mem:test" + System.nanoTime());
         dummyHandle = dbi.open();
-        ShardManager shardManager = createShardManager(dbi);
+        shardManager = createShardManager(dbi);
         Duration discoveryInterval = new Duration(5, TimeUnit.MINUTES);
-        recoveryManager = new ShardRecoveryManager(storageService, backupStore, nodeManager, shardManager, discoveryInterval, 10);
+        recoveryManager = new ShardRecoveryManager(storageService, backupStore, nodeManager, shardManager, discoveryInterval, 10, RECOVERY_RANGE_SIZE);
 
         shardRecorder = new InMemoryShardRecorder();
     }
@@ -229,6 +240,61 @@ public class TestOrcStorageManager
         }
     }
 
+    @Test
+    public void testReadShardDuringRecovery()
+            throws Exception
+    {
+        // restoring the shard blocks until the shard has been read, so it must be read from the backup
+        CountDownLatch restoreAllowed = new CountDownLatch(1);
+        BlockingBackupStore blockingBackupStore = new BlockingBackupStore(fileBackupStore, restoreAllowed);
+        Optional<BackupStore> backupStore = Optional.of(blockingBackupStore);
+        ShardRecoveryManager recoveryManager = new ShardRecoveryManager(storageService, backupStore, nodeManager, shardManager, MISSING_SHARD_DISCOVERY, 10, RECOVERY_RANGE_SIZE);
+        OrcStorageManager manager = createOrcStorageManager(storageService, backupStore, recoveryManager, shardRecorder, MAX_SHARD_ROWS, MAX_FILE_SIZE);
+
+        List<Long> columnIds = ImmutableList.of(3L, 7L);
+        List<Type> columnTypes = ImmutableList.<Type>of(BIGINT, createVarcharType(10));
+
+        StoragePageSink sink = createStoragePageSink(manager, columnIds, columnTypes);
+        sink.appendPages(rowPagesBuilder(columnTypes)
+                .row(123L, "hello")
+                .row(456L, "bye")
+                .build());
+        UUID shardUuid = Iterables.getOnlyElement(sink.commit()).getShardUuid();
+
+        // remove primary shard, so that it is read from the backup while it is recovered
+        File file = storageService.getStorageFile(shardUuid);
+        assertTrue(file.delete());
+        assertFalse(file.exists());
+
+        Future<?> recovery;
+        try (OrcDataSource dataSource = manager.openShard(shardUuid, READER_ATTRIBUTES)) {
+            assertInstanceOf(dataSource, BackupOrcDataSource.class);
+
+            OrcRecordReader reader = createReader(dataSource, columnIds, columnTypes);
+
+            assertEquals(reader.nextBatch(), 2);
+
+            Block column0 = reader.readBlock(BIGINT, 0);
+            assertEquals(BIGINT.getLong(column0, 0), 123L);
+            assertEquals(BIGINT.getLong(column0, 1), 456L);
+
+            assertEquals(reader.nextBatch(), -1);
+
+            assertTrue(blockingBackupStore.getRangeReads() > 0);
+            assertFalse(file.exists());
+
+            recovery = recoveryManager.recoverShard(shardUuid);
+            assertFalse(recovery.isDone());
+        }
+        finally {
+            restoreAllowed.countDown();
+        }
+
+        recovery.get();
+        assertFileEquals(file, fileBackupStore.getBackupFile(shardUuid));
+        recoveryManager.shutdown();
+    }
+
     @Test
     public void testReader()
             throws Exception
@@ -304,48 +370,72 @@ public class TestOrcStorageManager
     }
 
     @Test
-    public void testRewriter()
+    public void testDeleteRows()
             throws Exception
     {
         OrcStorageManager manager = createOrcStorageManager();
 
-        long transactionId = TRANSACTION_ID;
         List<Long> columnIds = ImmutableList.of(3L, 7L);
         List<Type> columnTypes = ImmutableList.<Type>of(BIGINT, createVarcharType(10));
 
-        // create file with 2 rows
+        // create file with 3 rows
         StoragePageSink sink = createStoragePageSink(manager, columnIds, columnTypes);
         List<Page> pages = rowPagesBuilder(columnTypes)
                 .row(123L, "hello")
                 .row(456L, "bye")
+                .row(789L, "again")
                 .build();
         sink.appendPages(pages);
-        List<ShardInfo> shards = sink.commit();
-
-        assertEquals(shardRecorder.getShards().size(), 1);
+        UUID uuid = Iterables.getOnlyElement(sink.commit()).getShardUuid();
 
         // delete one row
         BitSet rowsToDelete = new BitSet();
         rowsToDelete.set(0);
-        Collection<Slice> fragments = manager.rewriteShard(transactionId, OptionalInt.empty(), shards.get(0).getShardUuid(), rowsToDelete);
+        ShardDelta delta = getOnlyShardDelta(manager.deleteRows(uuid, Optional.empty(), 3, rowsToDelete));
 
-        Slice shardDelta = Iterables.getOnlyElement(fragments);
-        ShardDelta shardDeltas = jsonCodec(ShardDelta.class).fromJson(shardDelta.getBytes());
-        ShardInfo shardInfo = Iterables.getOnlyElement(shardDeltas.getNewShards());
+        // the file is not rewritten
+        assertEquals(delta.getOldShardUuids(), ImmutableList.of());
+        assertEquals(delta.getNewShards(), ImmutableList.of());
+        assertEquals(shardRecorder.getShards().size(), 1);
 
-        // check that output file has one row
-        assertEquals(shardInfo.getRowCount(), 1);
+        ShardDeletion deletion = Iterables.getOnlyElement(delta.getDeletions());
+        assertEquals(deletion.getShardUuid(), uuid);
+        assertEquals(deletion.getPreviousDeletedRowCount(), 0);
+        assertEquals(deletion.getDeletedRows().getRowCount(), 1);
+
+        // the deleted row is skipped when reading, and row IDs are positions in the file
+        List<Long> readColumnIds = ImmutableList.of(3L, 7L, shardRowIdHandle("test").getColumnId());
+        List<Type> readColumnTypes = ImmutableList.<Type>of(BIGINT, createVarcharType(10), BIGINT);
+        Optional<DeletedRows> deletedRows = Optional.of(deletion.getDeletedRows());
+        try (ConnectorPageSource pageSource = manager.getPageSource(uuid, OptionalInt.empty(), readColumnIds, readColumnTypes, TupleDomain.all(), READER_ATTRIBUTES, deletedRows, OptionalLong.empty())) {
+            MaterializedResult result = materializeSourceDataStream(SESSION, pageSource, readColumnTypes);
+            assertEquals(result.getMaterializedRows(), resultBuilder(SESSION, readColumnTypes)
+                    .row(456L, "bye", 1L)
+                    .row(789L, "again", 2L)
+                    .build()
+                    .getMaterializedRows());
+        }
 
-        // check that storage file is same as backup file
-        File storageFile = storageService.getStorageFile(shardInfo.getShardUuid());
-        File backupFile = fileBackupStore.getBackupFile(shardInfo.getShardUuid());
-        assertFileEquals(storageFile, backupFile);
+        // delete another row
+        rowsToDelete = new BitSet();
+        rowsToDelete.set(2);
+        deletion = Iterables.getOnlyElement(getOnlyShardDelta(manager.deleteRows(uuid, deletedRows, 3, rowsToDelete)).getDeletions());
+        assertEquals(deletion.getPreviousDeletedRowCount(), 1);
+        assertEquals(deletion.getDeletedRows().getRowCount(), 2);
+        deletedRows = Optional.of(deletion.getDeletedRows());
 
-        // verify recorded shard
-        List<RecordedShard> recordedShards = shardRecorder.getShards();
-        assertEquals(recordedShards.size(), 2);
-        assertEquals(recordedShards.get(1).getTransactionId(), TRANSACTION_ID);
-        assertEquals(recordedShards.get(1).getShardUuid(), shardInfo.getShardUuid());
+        // deleting the last row removes the shard
+        rowsToDelete = new BitSet();
+        rowsToDelete.set(1);
+        delta = getOnlyShardDelta(manager.deleteRows(uuid, deletedRows, 3, rowsToDelete));
+        assertEquals(delta.getOldShardUuids(), ImmutableList.of(uuid));
+        assertEquals(delta.getNewShards(), ImmutableList.of());
+        assertEquals(delta.getDeletions(), ImmutableList.of());
+    }
+
+    private static ShardDelta getOnlyShardDelta(Collection<Slice> fragments)
+    {
+        return jsonCodec(ShardDelta.class).fromJson(Iterables.getOnlyElement(fragments).getBytes());
     }
 
     @Test
@@ -574,7 +664,8 @@ public class TestOrcStorageManager
                 new InMemoryNodeManager(),
                 shardManager,
                 MISSING_SHARD_DISCOVERY,
-                10);
+                10,
+                RECOVERY_RANGE_SIZE);
         return createOrcStorageManager(
                 storageService,
                 backupStore,
@@ -677,4 +768,73 @@ public class TestOrcStorageManager
         DateTime dateTime = new DateTime(year, month, day, hour, minute, second, 0, UTC);
         return new SqlTimestamp(dateTime.getMillis(), UTC_KEY);
     }
+
+    private static class BlockingBackupStore
+            implements BackupStore
+    {
+        private final BackupStore delegate;
+        private final CountDownLatch restoreAllowed;
+        private final AtomicInteger rangeReads = new AtomicInteger();
+
+        public BlockingBackupStore(BackupStore delegate, CountDownLatch restoreAllowed)
+        {
+            this.delegate = requireNonNull(delegate, "delegate is null");
+            this.restoreAllowed = requireNonNull(restoreAllowed, "restoreAllowed is null");
+        }
+
+        public int getRangeReads()
+        {
+            return rangeReads.get();
+        }
+
+        @Override
+        public void backupShard(UUID uuid, File source)
+        {
+            delegate.backupShard(uuid, source);
+        }
+
+        @Override
+        public void restoreShard(UUID uuid, File target)
+        {
+            try {
+                restoreAllowed.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            }
+            delegate.restoreShard(uuid, target);
+        }
+
+        @Override
+        public boolean deleteShard(UUID uuid)
+        {
+            return delegate.deleteShard(uuid);
+        }
+
+        @Override
+        public boolean shardExists(UUID uuid)
+        {
+            return delegate.shardExists(uuid);
+        }
+
+        @Override
+        public boolean isRangeReadSupported()
+        {
+            return delegate.isRangeReadSupported();
+        }
+
+        @Override
+        public long getShardSize(UUID uuid)
+        {
+            return delegate.getShardSize(uuid);
+        }
+
+        @Override
+        public void readShard(UUID uuid, long position, byte[] buffer, int bufferOffset, int length)
+        {
+            rangeReads.incrementAndGet();
+            delegate.readShard(uuid, position, buffer, bufferOffset, length);
+        }
+    }
 }
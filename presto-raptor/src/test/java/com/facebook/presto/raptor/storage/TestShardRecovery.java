@@ -19,6 +19,7 @@ import com.facebook.presto.raptor.backup.FileBackupStore;
 import com.facebook.presto.raptor.metadata.ShardManager;
 import com.facebook.presto.spi.PrestoException;
 import com.google.common.io.Files;
+import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
@@ -31,12 +32,16 @@ import java.io.File;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static com.facebook.presto.raptor.metadata.TestDatabaseShardManager.createShardManager;
 import static com.google.common.io.Files.createTempDir;
 import static io.airlift.testing.FileUtils.deleteRecursively;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.io.File.createTempFile;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -51,6 +56,7 @@ public class TestShardRecovery
     private Handle dummyHandle;
     private File temporary;
     private FileBackupStore backupStore;
+    private ShardManager shardManager;
 
     @BeforeMethod
     public void setup()
@@ -66,7 +72,7 @@ public class TestShardRecovery
 
         IDBI dbi = new DBI("jdbc:h2:mem:test" + System.nanoTime());
         dummyHandle = dbi.open();
-        ShardManager shardManager = createShardManager(dbi);
+        shardManager = createShardManager(dbi);
         recoveryManager = createShardRecoveryManager(storageService, Optional.of(backupStore), shardManager);
     }
 
@@ -132,6 +138,31 @@ public class TestShardRecovery
         assertEquals(file.length(), backupSize);
     }
 
+    @Test
+    public void testShardRecoveryRanges()
+            throws Exception
+    {
+        ShardRecoveryManager recoveryManager = createShardRecoveryManager(
+                storageService,
+                Optional.of(backupStore),
+                shardManager,
+                new DataSize(100, BYTE));
+
+        UUID shardUuid = UUID.randomUUID();
+        File file = storageService.getStorageFile(shardUuid);
+        File tempFile = createTempFile("tmp", null, temporary);
+
+        byte[] data = new byte[1234];
+        ThreadLocalRandom.current().nextBytes(data);
+        Files.write(data, tempFile);
+        backupStore.backupShard(shardUuid, tempFile);
+
+        // the shard is restored in 13 ranges
+        assertFalse(file.exists());
+        recoveryManager.restoreFromBackup(shardUuid, OptionalLong.of(data.length));
+        assertEquals(readAllBytes(file.toPath()), data);
+    }
+
     @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "No backup file found for shard: .*")
     public void testNoBackupException()
             throws Exception
@@ -143,6 +174,15 @@ public class TestShardRecovery
             StorageService storageService,
             Optional<BackupStore> backupStore,
             ShardManager shardManager)
+    {
+        return createShardRecoveryManager(storageService, backupStore, shardManager, new DataSize(32, MEGABYTE));
+    }
+
+    private static ShardRecoveryManager createShardRecoveryManager(
+            StorageService storageService,
+            Optional<BackupStore> backupStore,
+            ShardManager shardManager,
+            DataSize recoveryRangeSize)
     {
         return new ShardRecoveryManager(
                 storageService,
@@ -150,6 +190,7 @@ public class TestShardRecovery
                 new InMemoryNodeManager(),
                 shardManager,
                 new Duration(5, MINUTES),
-                10);
+                10,
+                recoveryRangeSize);
     }
 }
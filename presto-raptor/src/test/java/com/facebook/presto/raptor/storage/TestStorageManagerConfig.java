@@ -46,11 +46,14 @@ public class TestStorageManagerConfig
                 .setOrcMaxReadSize(new DataSize(8, MEGABYTE))
                 .setOrcStreamBufferSize(new DataSize(8, MEGABYTE))
                 .setDeletionThreads(max(1, getRuntime().availableProcessors() / 2))
+                .setWriterThreads(getRuntime().availableProcessors())
                 .setShardRecoveryTimeout(new Duration(30, SECONDS))
                 .setMissingShardDiscoveryInterval(new Duration(5, MINUTES))
                 .setCompactionInterval(new Duration(1, HOURS))
+                .setCompactionDeletedFraction(0.2)
                 .setShardEjectorInterval(new Duration(4, HOURS))
                 .setRecoveryThreads(10)
+                .setRecoveryRangeSize(new DataSize(32, MEGABYTE))
                 .setOrganizationThreads(5)
                 .setCompactionEnabled(true)
                 .setMaxShardRows(1_000_000)
@@ -68,12 +71,15 @@ public class TestStorageManagerConfig
                 .put("storage.orc.max-read-size", "16kB")
                 .put("storage.orc.stream-buffer-size", "16kB")
                 .put("storage.max-deletion-threads", "999")
+                .put("storage.max-writer-threads", "7")
                 .put("storage.shard-recovery-timeout", "1m")
                 .put("storage.missing-shard-discovery-interval", "4m")
                 .put("storage.compaction-enabled", "false")
                 .put("storage.compaction-interval", "4h")
+                .put("storage.compaction-deleted-fraction", "0.5")
                 .put("storage.ejector-interval", "9h")
                 .put("storage.max-recovery-threads", "12")
+                .put("storage.recovery-range-size", "16MB")
                 .put("storage.max-organization-threads", "12")
                 .put("storage.max-shard-rows", "10000")
                 .put("storage.max-shard-size", "10MB")
@@ -87,12 +93,15 @@ public class TestStorageManagerConfig
                 .setOrcMaxReadSize(new DataSize(16, KILOBYTE))
                 .setOrcStreamBufferSize(new DataSize(16, KILOBYTE))
                 .setDeletionThreads(999)
+                .setWriterThreads(7)
                 .setShardRecoveryTimeout(new Duration(1, MINUTES))
                 .setMissingShardDiscoveryInterval(new Duration(4, MINUTES))
                 .setCompactionEnabled(false)
                 .setCompactionInterval(new Duration(4, HOURS))
+                .setCompactionDeletedFraction(0.5)
                 .setShardEjectorInterval(new Duration(9, HOURS))
                 .setRecoveryThreads(12)
+                .setRecoveryRangeSize(new DataSize(16, MEGABYTE))
                 .setOrganizationThreads(12)
                 .setMaxShardRows(10_000)
                 .setMaxShardSize(new DataSize(10, MEGABYTE))
@@ -16,11 +16,13 @@ package com.facebook.presto.raptor.storage.organization;
 import com.facebook.presto.PagesIndexPageSorter;
 import com.facebook.presto.SequencePageBuilder;
 import com.facebook.presto.raptor.metadata.ColumnInfo;
+import com.facebook.presto.raptor.metadata.ColumnStats;
 import com.facebook.presto.raptor.metadata.ShardInfo;
 import com.facebook.presto.raptor.storage.OrcStorageManager;
 import com.facebook.presto.raptor.storage.ReaderAttributes;
 import com.facebook.presto.raptor.storage.StorageManager;
 import com.facebook.presto.raptor.storage.StoragePageSink;
+import com.facebook.presto.raptor.util.ZOrderSorter;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
@@ -31,6 +33,7 @@ import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.testing.MaterializedResult;
 import com.facebook.presto.testing.MaterializedRow;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.units.DataSize;
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
@@ -57,7 +60,9 @@ import static com.facebook.presto.testing.MaterializedResult.materializeSourceDa
 import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
 import static com.facebook.presto.tests.QueryAssertions.assertEqualsIgnoreOrder;
 import static com.google.common.io.Files.createTempDir;
+import static io.airlift.testing.Assertions.assertLessThan;
 import static io.airlift.testing.FileUtils.deleteRecursively;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.Collections.nCopies;
 import static java.util.stream.Collectors.toList;
@@ -68,6 +73,7 @@ import static org.testng.Assert.assertEquals;
 public class TestShardCompactor
 {
     private static final int MAX_SHARD_ROWS = 1000;
+    private static final DataSize MAX_SORT_SIZE = new DataSize(1, MEGABYTE);
     private static final PagesIndexPageSorter PAGE_SORTER = new PagesIndexPageSorter();
     private static final ReaderAttributes READER_ATTRIBUTES = new ReaderAttributes(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
 
@@ -84,7 +90,7 @@ public class TestShardCompactor
         IDBI dbi = new DBI("jdbc:h2:mem:test" + System.nanoTime());
         dummyHandle = dbi.open();
         storageManager = createOrcStorageManager(dbi, temporary, MAX_SHARD_ROWS);
-        compactor = new ShardCompactor(storageManager, READER_ATTRIBUTES);
+        compactor = new ShardCompactor(storageManager, READER_ATTRIBUTES, MAX_SORT_SIZE);
     }
 
     @AfterMethod(alwaysRun = true)
@@ -152,6 +158,51 @@ public class TestShardCompactor
         assertShardEqualsSorted(inputUuids, outputUuids, columnIds, columnTypes, sortIndexes, sortOrders);
     }
 
+    @Test
+    public void testShardCompactorZOrdered()
+            throws Exception
+    {
+        List<Type> columnTypes = ImmutableList.of(BIGINT, createVarcharType(20), DATE, TIMESTAMP, DOUBLE);
+        List<Long> columnIds = ImmutableList.of(3L, 7L, 2L, 1L, 5L);
+        List<Long> sortColumnIds = ImmutableList.of(1L, 3L);
+        List<Integer> sortIndexes = sortColumnIds.stream()
+                .map(columnIds::indexOf)
+                .collect(toList());
+
+        List<ShardInfo> inputShards = createShards(storageManager, columnIds, columnTypes, 2);
+        assertEquals(inputShards.size(), 2);
+
+        Set<UUID> inputUuids = inputShards.stream().map(ShardInfo::getShardUuid).collect(toSet());
+
+        long transactionId = 1;
+        List<ShardInfo> outputShards = compactor.compactZOrdered(transactionId, OptionalInt.empty(), inputUuids, ImmutableMap.of(), getColumnInfo(columnIds, columnTypes), sortColumnIds);
+        List<UUID> outputUuids = outputShards.stream()
+                .map(ShardInfo::getShardUuid)
+                .collect(toList());
+        assertEquals(outputShards.size(), 1);
+
+        // the shards are not merged, but sorted again
+        List<Page> inputPages = getPages(inputUuids, columnIds, columnTypes);
+        int rowCount = inputPages.stream().mapToInt(Page::getPositionCount).sum();
+        int[] pageIndexes = new int[rowCount];
+        int[] positionIndexes = new int[rowCount];
+        ZOrderSorter.sort(columnTypes, inputPages, sortIndexes, pageIndexes, positionIndexes);
+
+        PageBuilder pageBuilder = new PageBuilder(columnTypes);
+        for (int i = 0; i < rowCount; i++) {
+            Page page = inputPages.get(pageIndexes[i]);
+            pageBuilder.declarePosition();
+            for (int channel = 0; channel < columnTypes.size(); channel++) {
+                columnTypes.get(channel).appendTo(page.getBlock(channel), positionIndexes[i], pageBuilder.getBlockBuilder(channel));
+            }
+        }
+        MaterializedResult expected = MaterializedResult.resultBuilder(SESSION, columnTypes)
+                .page(pageBuilder.build())
+                .build();
+
+        assertEquals(getMaterializedRows(outputUuids, columnIds, columnTypes), expected);
+    }
+
     private static long computeExpectedOutputShards(long totalRows)
     {
         return ((totalRows % MAX_SHARD_ROWS) != 0) ? ((totalRows / MAX_SHARD_ROWS) + 1) : (totalRows / MAX_SHARD_ROWS);
@@ -221,6 +272,63 @@ public class TestShardCompactor
         return resultBuilder.build();
     }
 
+    @Test
+    public void testShardCompactorZOrderedNarrowsShardRanges()
+            throws Exception
+    {
+        List<Long> columnIds = ImmutableList.of(1L, 2L);
+        List<Type> columnTypes = ImmutableList.of(BIGINT, BIGINT);
+
+        // every input shard covers ten values of the first column and all values of the second
+        StoragePageSink sink = createStoragePageSink(storageManager, columnIds, columnTypes);
+        for (int x = 0; x < 100; x++) {
+            PageBuilder pageBuilder = new PageBuilder(columnTypes);
+            for (int y = 0; y < 100; y++) {
+                pageBuilder.declarePosition();
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(0), x);
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(1), y);
+            }
+            sink.appendPages(ImmutableList.of(pageBuilder.build()));
+            if (sink.isFull()) {
+                sink.flush();
+            }
+        }
+        List<ShardInfo> inputShards = sink.commit();
+        assertEquals(inputShards.size(), 10);
+        assertEquals(getTotalRange(inputShards, 2L), 10 * 99);
+
+        Set<UUID> inputUuids = inputShards.stream().map(ShardInfo::getShardUuid).collect(toSet());
+        long transactionId = 1;
+        List<ShardInfo> outputShards = compactor.compactZOrdered(transactionId, OptionalInt.empty(), inputUuids, ImmutableMap.of(), getColumnInfo(columnIds, columnTypes), columnIds);
+        assertEquals(outputShards.size(), 10);
+        assertShardEqualsIgnoreOrder(inputUuids, outputShards.stream().map(ShardInfo::getShardUuid).collect(toSet()), columnIds, columnTypes);
+
+        // the output shards are segments of the curve, which also cover a narrow range of the second column
+        assertLessThan(getTotalRange(outputShards, 2L), 10L * 99 * 2 / 3);
+
+        // every page is sorted in its own batch, and the rows of all batches are still split into full shards
+        ShardCompactor batchCompactor = new ShardCompactor(storageManager, READER_ATTRIBUTES, new DataSize(1, KILOBYTE));
+        outputShards = batchCompactor.compactZOrdered(transactionId, OptionalInt.empty(), inputUuids, ImmutableMap.of(), getColumnInfo(columnIds, columnTypes), columnIds);
+        assertEquals(outputShards.size(), 10);
+        for (ShardInfo shard : outputShards) {
+            assertEquals(shard.getRowCount(), MAX_SHARD_ROWS);
+        }
+        assertShardEqualsIgnoreOrder(inputUuids, outputShards.stream().map(ShardInfo::getShardUuid).collect(toSet()), columnIds, columnTypes);
+    }
+
+    private static long getTotalRange(List<ShardInfo> shards, long columnId)
+    {
+        long total = 0;
+        for (ShardInfo shard : shards) {
+            ColumnStats stats = shard.getColumnStats().stream()
+                    .filter(columnStats -> columnStats.getColumnId() == columnId)
+                    .findFirst()
+                    .get();
+            total += (Long) stats.getMax() - (Long) stats.getMin();
+        }
+        return total;
+    }
+
     private List<Page> getPages(Set<UUID> uuids, List<Long> columnIds, List<Type> columnTypes)
             throws IOException
     {
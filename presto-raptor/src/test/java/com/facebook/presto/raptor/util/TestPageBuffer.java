@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.util;
+
+import com.facebook.presto.PagesIndexPageSorter;
+import com.facebook.presto.raptor.metadata.ShardInfo;
+import com.facebook.presto.raptor.storage.Row;
+import com.facebook.presto.raptor.storage.StoragePageSink;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageSorter;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.SortOrder;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.raptor.metadata.OrderingType.LEXICOGRAPHIC;
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_FIRST;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.testing.Assertions.assertGreaterThanOrEqual;
+import static io.airlift.testing.Assertions.assertLessThan;
+import static java.util.Collections.nCopies;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestPageBuffer
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT);
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFlush()
+    {
+        TestingStoragePageSink sink = new TestingStoragePageSink();
+        PageBufferStats stats = new PageBufferStats();
+        PageBuffer buffer = createPageBuffer(sink, stats);
+
+        buffer.add(rowPagesBuilder(TYPES).row(3L).row(1L).build().get(0));
+        buffer.add(rowPagesBuilder(TYPES).row(2L).build().get(0));
+        buffer.flush();
+        assertEquals(buffer.getUsedMemoryBytes(), 0);
+
+        buffer.add(rowPagesBuilder(TYPES).row(5L).row(4L).build().get(0));
+        buffer.flush();
+        getFutureValue(buffer.getFlushFuture());
+
+        assertEquals(buffer.getFlushingMemoryBytes(), 0);
+        assertEquals(sink.getShards(), ImmutableList.of(ImmutableList.of(1L, 2L, 3L), ImmutableList.of(4L, 5L)));
+
+        Map<String, Object> info = stats.getInfo();
+        assertEquals(info.get("rows"), 5L);
+    }
+
+    @Test
+    public void testSortedFlushIsSplitIntoFullShards()
+    {
+        TestingStoragePageSink sink = new TestingStoragePageSink(2);
+        PageBuffer buffer = createPageBuffer(sink, new PageBufferStats());
+
+        buffer.add(rowPagesBuilder(TYPES).row(5L).row(3L).row(1L).build().get(0));
+        buffer.add(rowPagesBuilder(TYPES).row(2L).row(4L).build().get(0));
+        buffer.flush();
+        getFutureValue(buffer.getFlushFuture());
+
+        assertEquals(sink.getShards(), ImmutableList.of(ImmutableList.of(1L, 2L), ImmutableList.of(3L, 4L), ImmutableList.of(5L)));
+    }
+
+    @Test
+    public void testUnsortedFlushKeepsShardOpen()
+    {
+        TestingStoragePageSink sink = new TestingStoragePageSink();
+        PageBuffer buffer = createPageBuffer(sink, ImmutableList.of(), new PageBufferStats());
+
+        buffer.add(rowPagesBuilder(TYPES).row(3L).row(1L).build().get(0));
+        buffer.flush();
+        assertTrue(buffer.isShardOpen());
+
+        buffer.add(rowPagesBuilder(TYPES).row(2L).build().get(0));
+        buffer.flush();
+        getFutureValue(buffer.getFlushFuture());
+        assertEquals(sink.getShards(), ImmutableList.of());
+
+        buffer.closeShard();
+        assertFalse(buffer.isShardOpen());
+        getFutureValue(buffer.getFlushFuture());
+        assertEquals(sink.getShards(), ImmutableList.of(ImmutableList.of(3L, 1L, 2L)));
+    }
+
+    @Test
+    public void testEncodingTimeExcludesSortTime()
+    {
+        TestingStoragePageSink sink = new TestingStoragePageSink();
+        PageBufferStats stats = new PageBufferStats();
+        PageBuffer buffer = new PageBuffer(
+                1024 * 1024,
+                sink,
+                TYPES,
+                ImmutableList.of(0),
+                ImmutableList.of(ASC_NULLS_FIRST),
+                LEXICOGRAPHIC,
+                new SlowPageSorter(new Duration(500, MILLISECONDS)),
+                executor,
+                stats);
+
+        buffer.add(rowPagesBuilder(TYPES).row(2L).row(1L).build().get(0));
+        buffer.flush();
+        getFutureValue(buffer.getFlushFuture());
+
+        Map<String, Object> info = stats.getInfo();
+        assertGreaterThanOrEqual(Duration.valueOf((String) info.get("sortTime")), new Duration(500, MILLISECONDS));
+        assertLessThan(Duration.valueOf((String) info.get("encodingTime")), new Duration(500, MILLISECONDS));
+    }
+
+    @Test
+    public void testFlushFailure()
+    {
+        TestingStoragePageSink sink = new TestingStoragePageSink();
+        sink.fail();
+        PageBuffer buffer = createPageBuffer(sink, new PageBufferStats());
+
+        buffer.add(rowPagesBuilder(TYPES).row(1L).build().get(0));
+        buffer.flush();
+
+        buffer.getFlushFuture().handle((result, t) -> null).join();
+        assertTrue(buffer.getFlushFuture().isCompletedExceptionally());
+
+        // the failure is reported by the next flush
+        buffer.add(rowPagesBuilder(TYPES).row(2L).build().get(0));
+        try {
+            buffer.flush();
+            fail("expected exception");
+        }
+        catch (PrestoException e) {
+            assertEquals(e.getMessage(), "write failed");
+        }
+    }
+
+    private PageBuffer createPageBuffer(StoragePageSink sink, PageBufferStats stats)
+    {
+        return createPageBuffer(sink, ImmutableList.of(0), stats);
+    }
+
+    private PageBuffer createPageBuffer(StoragePageSink sink, List<Integer> sortFields, PageBufferStats stats)
+    {
+        return new PageBuffer(
+                1024 * 1024,
+                sink,
+                TYPES,
+                sortFields,
+                nCopies(sortFields.size(), ASC_NULLS_FIRST),
+                LEXICOGRAPHIC,
+                new PagesIndexPageSorter(),
+                executor,
+                stats);
+    }
+
+    private static class SlowPageSorter
+            implements PageSorter
+    {
+        private final PageSorter delegate = new PagesIndexPageSorter();
+        private final Duration delay;
+
+        public SlowPageSorter(Duration delay)
+        {
+            this.delay = delay;
+        }
+
+        @Override
+        public long[] sort(List<Type> types, List<Page> pages, List<Integer> sortChannels, List<SortOrder> sortOrders, int expectedPositions)
+        {
+            sleepUninterruptibly(delay.toMillis(), MILLISECONDS);
+            return delegate.sort(types, pages, sortChannels, sortOrders, expectedPositions);
+        }
+
+        @Override
+        public int decodePageIndex(long address)
+        {
+            return delegate.decodePageIndex(address);
+        }
+
+        @Override
+        public int decodePositionIndex(long address)
+        {
+            return delegate.decodePositionIndex(address);
+        }
+    }
+
+    private static class TestingStoragePageSink
+            implements StoragePageSink
+    {
+        private final List<List<Long>> shards = new ArrayList<>();
+        private final List<Long> rows = new ArrayList<>();
+        private final int maxShardRows;
+        private boolean fail;
+
+        public TestingStoragePageSink()
+        {
+            this(Integer.MAX_VALUE);
+        }
+
+        public TestingStoragePageSink(int maxShardRows)
+        {
+            this.maxShardRows = maxShardRows;
+        }
+
+        public void fail()
+        {
+            fail = true;
+        }
+
+        public synchronized List<List<Long>> getShards()
+        {
+            return ImmutableList.copyOf(shards);
+        }
+
+        @Override
+        public synchronized void appendPages(List<Page> pages)
+        {
+            for (Page page : pages) {
+                for (int position = 0; position < page.getPositionCount(); position++) {
+                    rows.add(BIGINT.getLong(page.getBlock(0), position));
+                }
+            }
+        }
+
+        @Override
+        public void appendPages(List<Page> pages, int[] pageIndexes, int[] positionIndexes)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized void appendRow(Row row)
+        {
+            if (fail) {
+                throw new PrestoException(GENERIC_INTERNAL_ERROR, "write failed");
+            }
+            rows.add((Long) row.getColumns().get(0));
+        }
+
+        @Override
+        public synchronized boolean isFull()
+        {
+            return rows.size() >= maxShardRows;
+        }
+
+        @Override
+        public synchronized void flush()
+        {
+            shards.add(ImmutableList.copyOf(rows));
+            rows.clear();
+        }
+
+        @Override
+        public List<ShardInfo> commit()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void rollback()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
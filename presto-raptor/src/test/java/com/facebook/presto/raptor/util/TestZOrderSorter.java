@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.raptor.util;
+
+import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+
+public class TestZOrderSorter
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, BIGINT);
+
+    @Test
+    public void testSort()
+    {
+        // the rows of a 4x4 grid in row order, in two pages
+        List<Page> pages = rowPagesBuilder(TYPES)
+                .row(0L, 0L).row(0L, 1L).row(0L, 2L).row(0L, 3L)
+                .row(1L, 0L).row(1L, 1L).row(1L, 2L).row(1L, 3L)
+                .pageBreak()
+                .row(2L, 0L).row(2L, 1L).row(2L, 2L).row(2L, 3L)
+                .row(3L, 0L).row(3L, 1L).row(3L, 2L).row(3L, 3L)
+                .build();
+
+        assertEquals(sort(TYPES, pages, 0, 1), ImmutableList.of(
+                "0,0", "0,1", "1,0", "1,1",
+                "0,2", "0,3", "1,2", "1,3",
+                "2,0", "2,1", "3,0", "3,1",
+                "2,2", "2,3", "3,2", "3,3"));
+
+        // the first sort column wins ties
+        assertEquals(sort(TYPES, pages, 1, 0).subList(0, 4), ImmutableList.of("0,0", "1,0", "0,1", "1,1"));
+    }
+
+    @Test
+    public void testScaling()
+    {
+        // the columns are scaled to the same range, so this is the same order as the grid
+        RowPagesBuilder rows = rowPagesBuilder(TYPES);
+        for (long y = 0; y < 4; y++) {
+            for (long x = 0; x < 4; x++) {
+                rows.row(1000 + x, y * 256);
+            }
+        }
+        List<Page> pages = rows.build();
+
+        assertEquals(sort(TYPES, pages, 0, 1).subList(0, 8), ImmutableList.of(
+                "1000,0", "1000,256", "1001,0", "1001,256",
+                "1000,512", "1000,768", "1001,512", "1001,768"));
+    }
+
+    @Test
+    public void testNulls()
+    {
+        List<Page> pages = rowPagesBuilder(TYPES)
+                .row(1L, 1L).row(0L, 0L).row(0L, null).row(null, 0L).row(1L, 0L)
+                .build();
+
+        assertEquals(sort(TYPES, pages, 0, 1), ImmutableList.of("null,0", "0,null", "0,0", "1,0", "1,1"));
+    }
+
+    @Test
+    public void testDoubleAndVarchar()
+    {
+        List<Type> types = ImmutableList.of(DOUBLE, VARCHAR);
+        List<Page> pages = rowPagesBuilder(types)
+                .row(2.5, "b").row(-1.0, "a").row(-0.0, "b").row(0.0, "a").row(-1.0, "b")
+                .build();
+
+        assertEquals(sort(types, pages, 0, 1), ImmutableList.of("-1.0,a", "0.0,a", "-1.0,b", "-0.0,b", "2.5,b"));
+    }
+
+    private static List<String> sort(List<Type> types, List<Page> pages, Integer... sortFields)
+    {
+        int rowCount = pages.stream().mapToInt(Page::getPositionCount).sum();
+        int[] pageIndexes = new int[rowCount];
+        int[] positionIndexes = new int[rowCount];
+        ZOrderSorter.sort(types, pages, ImmutableList.copyOf(sortFields), pageIndexes, positionIndexes);
+
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            Page page = pages.get(pageIndexes[i]);
+            List<String> values = new ArrayList<>();
+            for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                Block block = page.getBlock(channel);
+                values.add(String.valueOf(types.get(channel).getObjectValue(null, block, positionIndexes[i])));
+            }
+            rows.add(String.join(",", values));
+        }
+        return rows;
+    }
+}
@@ -30,6 +30,17 @@ public interface ConnectorPageSink
      */
     CompletableFuture<?> appendPage(Page page, Block sampleWeightBlock);
 
+    /**
+     * Returns connector specific information about the pages written so far,
+     * such as encoding statistics, which is reported in the operator stats
+     * of the table writer. This method may be called concurrently with the
+     * other methods of the page sink.
+     */
+    default Object getInfo()
+    {
+        return null;
+    }
+
     Collection<Slice> finish();
 
     void abort();
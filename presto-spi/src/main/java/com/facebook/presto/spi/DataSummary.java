@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi;
+
+import com.facebook.presto.spi.predicate.NullableValue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Statistics of the rows of a table that are known exactly without reading the data.
+ * The minimum and maximum values of a column ignore nulls, and are null if the column
+ * has no non-null values. Statistics that are not known are absent.
+ */
+public final class DataSummary
+{
+    private static final DataSummary UNKNOWN = new DataSummary(OptionalLong.empty(), emptyMap(), emptyMap());
+
+    private final OptionalLong rowCount;
+    private final Map<ColumnHandle, NullableValue> minValues;
+    private final Map<ColumnHandle, NullableValue> maxValues;
+
+    public DataSummary(OptionalLong rowCount, Map<ColumnHandle, NullableValue> minValues, Map<ColumnHandle, NullableValue> maxValues)
+    {
+        this.rowCount = requireNonNull(rowCount, "rowCount is null");
+        this.minValues = unmodifiableMap(new HashMap<>(requireNonNull(minValues, "minValues is null")));
+        this.maxValues = unmodifiableMap(new HashMap<>(requireNonNull(maxValues, "maxValues is null")));
+    }
+
+    public static DataSummary unknown()
+    {
+        return UNKNOWN;
+    }
+
+    public OptionalLong getRowCount()
+    {
+        return rowCount;
+    }
+
+    public Optional<NullableValue> getMinValue(ColumnHandle column)
+    {
+        return Optional.ofNullable(minValues.get(column));
+    }
+
+    public Optional<NullableValue> getMaxValue(ColumnHandle column)
+    {
+        return Optional.ofNullable(maxValues.get(column));
+    }
+}
@@ -27,6 +27,7 @@ public class InterleavedBlock
     private final int start;
     private final int positionCount;
     private final int retainedSizeInBytes;
+    private final InterleavedBlockKeyIndex keyIndex;
 
     private final AtomicInteger sizeInBytes;
 
@@ -54,9 +55,10 @@ public class InterleavedBlock
         this.positionCount = positionCount;
         this.sizeInBytes = new AtomicInteger(sizeInBytes);
         this.retainedSizeInBytes = retainedSizeInBytes;
+        this.keyIndex = new InterleavedBlockKeyIndex(positionCount);
     }
 
-    private InterleavedBlock(Block[] blocks, int start, int positionCount, int retainedSizeInBytes, InterleavedBlockEncoding blockEncoding)
+    private InterleavedBlock(Block[] blocks, int start, int positionCount, int retainedSizeInBytes, InterleavedBlockEncoding blockEncoding, InterleavedBlockKeyIndex keyIndex)
     {
         super(blocks.length);
         this.blocks = blocks;
@@ -64,6 +66,7 @@ public class InterleavedBlock
         this.positionCount = positionCount;
         this.retainedSizeInBytes = retainedSizeInBytes;
         this.blockEncoding = blockEncoding;
+        this.keyIndex = keyIndex;
         this.sizeInBytes = new AtomicInteger(-1);
     }
 
@@ -71,7 +74,22 @@ public class InterleavedBlock
     public Block getRegion(int position, int length)
     {
         validateRange(position, length);
-        return new InterleavedBlock(blocks, toAbsolutePosition(position), length, retainedSizeInBytes, blockEncoding);
+        return new InterleavedBlock(blocks, toAbsolutePosition(position), length, retainedSizeInBytes, blockEncoding, keyIndex);
+    }
+
+    /**
+     * Finds the position of a key in the first column of this block. The hash index
+     * over the keys is built on the first lookup and is shared with all regions of
+     * this block that cover the same positions.
+     *
+     * @param keyHash hash of the key, consistent with {@code keyHasher}
+     * @param keyHasher hashes the key at a position of this block
+     * @param keyMatcher tests if the key at a position of this block is the key
+     * @return the position of the key, or -1 if this block does not contain the key
+     */
+    public int findKeyPosition(long keyHash, InterleavedBlockKeyIndex.PositionHasher keyHasher, InterleavedBlockKeyIndex.PositionMatcher keyMatcher)
+    {
+        return keyIndex.findKeyPosition(this, start, positionCount, getBlockCount(), keyHash, keyHasher, keyMatcher);
     }
 
     @Override
@@ -119,7 +137,7 @@ public class InterleavedBlock
     @Override
     public int getRetainedSizeInBytes()
     {
-        return retainedSizeInBytes;
+        return retainedSizeInBytes + keyIndex.getRetainedSizeInBytes();
     }
 
     @Override
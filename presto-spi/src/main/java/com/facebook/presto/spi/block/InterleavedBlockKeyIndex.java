@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi.block;
+
+import org.openjdk.jol.info.ClassLayout;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
+
+/**
+ * Hash index over the first column of the regions of an {@link InterleavedBlock}.
+ * The index is shared by all regions of the block and is built lazily, one region
+ * at a time, on the first lookup in that region. The open addressing table of a
+ * region is stored in the slots of the positions the region covers. A region that
+ * overlaps a region that is already indexed, without being the same region, is not
+ * indexed and is searched linearly instead, so tables never overlap.
+ * <p>
+ * Tables are built under a lock, and a table is published by setting its length,
+ * after which its slots never change, so lookups in indexed regions do not lock.
+ * The arrays are allocated on the first lookup, and only count towards the retained
+ * size from then on.
+ */
+public final class InterleavedBlockKeyIndex
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(InterleavedBlockKeyIndex.class).instanceSize();
+
+    private final int positionCount;
+    private volatile Tables tables;
+
+    InterleavedBlockKeyIndex(int positionCount)
+    {
+        this.positionCount = positionCount;
+    }
+
+    /**
+     * @return the position of the key in the region, or -1 if the region does not contain the key
+     */
+    int findKeyPosition(Block region, int start, int length, int columns, long keyHash, PositionHasher keyHasher, PositionMatcher keyMatcher)
+    {
+        if (length == 0) {
+            return -1;
+        }
+        Tables tables = this.tables;
+        if (tables == null) {
+            tables = allocateTables();
+        }
+        int table = tables.tables.get(start);
+        if (table == 0) {
+            table = buildTable(tables, region, start, length, columns, keyHasher);
+        }
+        if (table != length) {
+            // the region does not line up with the indexed regions
+            for (int position = 0; position < length; position += columns) {
+                if (keyMatcher.matches(region, position)) {
+                    return position;
+                }
+            }
+            return -1;
+        }
+
+        // at most one slot in columns is used, so there always is an empty slot
+        int[] slots = tables.slots;
+        int slot = slot(keyHash, length);
+        while (slots[start + slot] != 0) {
+            int position = slots[start + slot] - 1;
+            if (keyMatcher.matches(region, position)) {
+                return position;
+            }
+            slot = nextSlot(slot, length);
+        }
+        return -1;
+    }
+
+    private synchronized Tables allocateTables()
+    {
+        if (tables == null) {
+            tables = new Tables(positionCount);
+        }
+        return tables;
+    }
+
+    /**
+     * Builds the table of a region if no table covers its positions.
+     *
+     * @return the length of the table that starts at the region, or a negative value if there is none
+     */
+    private synchronized int buildTable(Tables tables, Block region, int start, int length, int columns, PositionHasher keyHasher)
+    {
+        int table = tables.tables.get(start);
+        if (table != 0) {
+            return table;
+        }
+        for (int position = start + 1; position < start + length; position++) {
+            if (tables.tables.get(position) != 0) {
+                return -1;
+            }
+        }
+
+        int[] slots = tables.slots;
+        for (int position = 0; position < length; position += columns) {
+            int slot = slot(keyHasher.hash(region, position), length);
+            while (slots[start + slot] != 0) {
+                slot = nextSlot(slot, length);
+            }
+            slots[start + slot] = position + 1;
+        }
+        for (int position = start + 1; position < start + length; position++) {
+            tables.tables.set(position, -(start + 1));
+        }
+        // publishes the slots of the table
+        tables.tables.set(start, length);
+        return length;
+    }
+
+    int getRetainedSizeInBytes()
+    {
+        Tables tables = this.tables;
+        return INSTANCE_SIZE + ((tables == null) ? 0 : tables.getRetainedSizeInBytes());
+    }
+
+    private static int slot(long hash, int length)
+    {
+        return (int) Long.remainderUnsigned(hash * 0x9E3779B97F4A7C15L, length);
+    }
+
+    private static int nextSlot(int slot, int length)
+    {
+        slot++;
+        return slot == length ? 0 : slot;
+    }
+
+    public interface PositionHasher
+    {
+        long hash(Block block, int position);
+    }
+
+    public interface PositionMatcher
+    {
+        boolean matches(Block block, int position);
+    }
+
+    private static final class Tables
+    {
+        // relative position of the key plus one, or zero for an empty slot
+        private final int[] slots;
+        // length of the table that starts at a position, minus the start of the table that
+        // covers a position plus one if the table starts before it, or zero if there is no table
+        private final AtomicIntegerArray tables;
+
+        private Tables(int positionCount)
+        {
+            this.slots = new int[positionCount];
+            this.tables = new AtomicIntegerArray(positionCount);
+        }
+
+        private int getRetainedSizeInBytes()
+        {
+            return (int) (2 * sizeOfIntArray(slots.length));
+        }
+    }
+}
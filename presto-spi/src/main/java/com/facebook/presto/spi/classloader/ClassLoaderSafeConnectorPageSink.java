@@ -43,6 +43,14 @@ public class ClassLoaderSafeConnectorPageSink
         }
     }
 
+    @Override
+    public Object getInfo()
+    {
+        try (ThreadContextClassLoader ignored = new ThreadContextClassLoader(classLoader)) {
+            return delegate.getInfo();
+        }
+    }
+
     @Override
     public Collection<Slice> finish()
     {
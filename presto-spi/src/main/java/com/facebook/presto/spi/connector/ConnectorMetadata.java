@@ -27,9 +27,11 @@ import com.facebook.presto.spi.ConnectorTableLayoutResult;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.ConnectorViewDefinition;
 import com.facebook.presto.spi.Constraint;
+import com.facebook.presto.spi.DataSummary;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
+import com.facebook.presto.spi.SortingProperty;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.security.Privilege;
 import io.airlift.slice.Slice;
@@ -312,6 +314,28 @@ public interface ConnectorMetadata
         throw new PrestoException(NOT_SUPPORTED, "This connector does not support deletes");
     }
 
+    /**
+     * Returns the statistics of the rows of the table layout that match the constraint, and
+     * the minimum and maximum values of the given columns, that are known without reading
+     * the data. Aggregations over the table are answered from these statistics, so only
+     * statistics that are exact may be returned.
+     */
+    default DataSummary getDataSummary(ConnectorSession session, ConnectorTableHandle tableHandle, ConnectorTableLayoutHandle tableLayoutHandle, TupleDomain<ColumnHandle> constraint, Set<ColumnHandle> columns)
+    {
+        return DataSummary.unknown();
+    }
+
+    /**
+     * Returns a layout that reads at most {@code limit} rows of each split of the given layout,
+     * which are the first rows in the given order if the order is not empty. The engine still
+     * applies the limit to the rows read from all splits. Returns empty if the connector cannot
+     * apply the limit.
+     */
+    default Optional<ConnectorTableLayoutHandle> pushDownLimit(ConnectorSession session, ConnectorTableLayoutHandle tableLayoutHandle, List<SortingProperty<ColumnHandle>> orderBy, long limit)
+    {
+        return Optional.empty();
+    }
+
     /**
      * Try to locate a table index that can lookup results by indexableColumns and provide the requested outputColumns.
      */
@@ -0,0 +1,641 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi.type;
+
+import com.facebook.presto.spi.PrestoException;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import java.math.BigInteger;
+
+import static com.facebook.presto.spi.StandardErrorCode.DIVISION_BY_ZERO;
+import static com.facebook.presto.spi.StandardErrorCode.NUMERIC_VALUE_OUT_OF_RANGE;
+import static com.facebook.presto.spi.type.Decimals.MAX_PRECISION;
+import static com.facebook.presto.spi.type.Decimals.SIZE_OF_LONG_DECIMAL;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Arithmetic on the unscaled values of long decimals, without conversion to {@link BigInteger}.
+ * <p>
+ * An unscaled value is a 128-bit two's-complement integer, stored in a slice of
+ * {@link Decimals#SIZE_OF_LONG_DECIMAL} bytes in big-endian order, which is the representation
+ * produced by {@link Decimals#encodeUnscaledValue(BigInteger)}. All results are checked to have at
+ * most {@link Decimals#MAX_PRECISION} digits, and {@code NUMERIC_VALUE_OUT_OF_RANGE} is thrown otherwise.
+ */
+public final class UnscaledDecimal128Arithmetic
+{
+    private static final long INT_MASK = 0xFFFF_FFFFL;
+    private static final int INTS_PER_DECIMAL = SIZE_OF_LONG_DECIMAL / Integer.BYTES;
+
+    // the largest power of ten that fits in an unsigned int
+    private static final int MAX_POWER_OF_TEN_INT = 9;
+    private static final int[] POWERS_OF_TEN_INT = new int[MAX_POWER_OF_TEN_INT + 1];
+
+    // 10^0 to 10^38, as high and low longs
+    private static final long[] POWERS_OF_TEN_HIGH = new long[MAX_PRECISION + 1];
+    private static final long[] POWERS_OF_TEN_LOW = new long[MAX_PRECISION + 1];
+
+    static {
+        POWERS_OF_TEN_INT[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN_INT.length; i++) {
+            POWERS_OF_TEN_INT[i] = POWERS_OF_TEN_INT[i - 1] * 10;
+        }
+        for (int i = 0; i < POWERS_OF_TEN_HIGH.length; i++) {
+            BigInteger power = BigInteger.TEN.pow(i);
+            POWERS_OF_TEN_HIGH[i] = power.shiftRight(Long.SIZE).longValue();
+            POWERS_OF_TEN_LOW[i] = power.longValue();
+        }
+    }
+
+    private UnscaledDecimal128Arithmetic() {}
+
+    public static Slice unscaledDecimal()
+    {
+        return Slices.allocate(SIZE_OF_LONG_DECIMAL);
+    }
+
+    public static Slice unscaledDecimal(long unscaledValue)
+    {
+        Slice result = unscaledDecimal();
+        pack(result, unscaledValue >> 63, unscaledValue);
+        return result;
+    }
+
+    /**
+     * Returns the unscaled value as a long.
+     *
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public static long unscaledDecimalToUnscaledLong(Slice decimal)
+    {
+        long high = getHigh(decimal);
+        long low = getLow(decimal);
+        if (high != (low >> 63)) {
+            throw new ArithmeticException("Decimal does not fit in long");
+        }
+        return low;
+    }
+
+    public static boolean isZero(Slice decimal)
+    {
+        return getHigh(decimal) == 0 && getLow(decimal) == 0;
+    }
+
+    public static boolean isNegative(Slice decimal)
+    {
+        return getHigh(decimal) < 0;
+    }
+
+    /**
+     * Returns true if the value has more than {@code precision} digits.
+     */
+    public static boolean overflows(Slice decimal, int precision)
+    {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between 0 and " + MAX_PRECISION);
+        }
+        long high = getHigh(decimal);
+        long low = getLow(decimal);
+        if (high < 0) {
+            long negatedLow = -low;
+            high = negateHigh(high, low);
+            low = negatedLow;
+        }
+        return compareUnsigned(high, low, POWERS_OF_TEN_HIGH[precision], POWERS_OF_TEN_LOW[precision]) >= 0;
+    }
+
+    public static int compare(Slice left, Slice right)
+    {
+        long leftHigh = getHigh(left);
+        long rightHigh = getHigh(right);
+        if (leftHigh != rightHigh) {
+            return Long.compare(leftHigh, rightHigh);
+        }
+        return Long.compareUnsigned(getLow(left), getLow(right));
+    }
+
+    /**
+     * Compares {@code left * 10^leftRescaleFactor} with {@code right * 10^rightRescaleFactor}.
+     * The rescaled values do not need to fit in 128 bits.
+     */
+    public static int compareRescaled(Slice left, int leftRescaleFactor, Slice right, int rightRescaleFactor)
+    {
+        if (leftRescaleFactor == 0 && rightRescaleFactor == 0) {
+            return compare(left, right);
+        }
+
+        int leftSignum = signum(left);
+        int rightSignum = signum(right);
+        if (leftSignum != rightSignum || leftSignum == 0) {
+            return Integer.compare(leftSignum, rightSignum);
+        }
+
+        int length = Math.max(magnitudeLength(leftRescaleFactor), magnitudeLength(rightRescaleFactor));
+        int[] leftMagnitude = toMagnitude(left, length);
+        int[] rightMagnitude = toMagnitude(right, length);
+        multiplyByPowerOfTen(leftMagnitude, leftRescaleFactor);
+        multiplyByPowerOfTen(rightMagnitude, rightRescaleFactor);
+        for (int i = length - 1; i >= 0; i--) {
+            int result = Integer.compareUnsigned(leftMagnitude[i], rightMagnitude[i]);
+            if (result != 0) {
+                return leftSignum * result;
+            }
+        }
+        return 0;
+    }
+
+    public static Slice negate(Slice decimal)
+    {
+        Slice result = unscaledDecimal();
+        long low = getLow(decimal);
+        pack(result, negateHigh(getHigh(decimal), low), -low);
+        return result;
+    }
+
+    public static Slice add(Slice left, Slice right)
+    {
+        Slice result = unscaledDecimal();
+        add(left, right, result);
+        return result;
+    }
+
+    public static void add(Slice left, Slice right, Slice result)
+    {
+        long leftHigh = getHigh(left);
+        long leftLow = getLow(left);
+        long rightHigh = getHigh(right);
+        long rightLow = getLow(right);
+
+        long low = leftLow + rightLow;
+        long high = leftHigh + rightHigh + (Long.compareUnsigned(low, leftLow) < 0 ? 1 : 0);
+        if (((leftHigh ^ high) & (rightHigh ^ high)) < 0) {
+            throwOverflowException();
+        }
+        throwIfOverflows(high, low);
+        pack(result, high, low);
+    }
+
+    public static Slice subtract(Slice left, Slice right)
+    {
+        Slice result = unscaledDecimal();
+        subtract(left, right, result);
+        return result;
+    }
+
+    public static void subtract(Slice left, Slice right, Slice result)
+    {
+        long leftHigh = getHigh(left);
+        long leftLow = getLow(left);
+        long rightHigh = getHigh(right);
+        long rightLow = getLow(right);
+
+        long low = leftLow - rightLow;
+        long high = leftHigh - rightHigh - (Long.compareUnsigned(leftLow, rightLow) < 0 ? 1 : 0);
+        if (((leftHigh ^ rightHigh) & (leftHigh ^ high)) < 0) {
+            throwOverflowException();
+        }
+        throwIfOverflows(high, low);
+        pack(result, high, low);
+    }
+
+    public static Slice multiply(Slice left, Slice right)
+    {
+        Slice result = unscaledDecimal();
+        multiply(left, right, result);
+        return result;
+    }
+
+    public static void multiply(Slice left, Slice right, Slice result)
+    {
+        long leftHigh = getHigh(left);
+        long leftLow = getLow(left);
+        long rightHigh = getHigh(right);
+        long rightLow = getLow(right);
+
+        boolean negative = (leftHigh ^ rightHigh) < 0;
+        if (leftHigh < 0) {
+            long negatedLow = -leftLow;
+            leftHigh = negateHigh(leftHigh, leftLow);
+            leftLow = negatedLow;
+        }
+        if (rightHigh < 0) {
+            long negatedLow = -rightLow;
+            rightHigh = negateHigh(rightHigh, rightLow);
+            rightLow = negatedLow;
+        }
+        multiplyMagnitudes(leftHigh, leftLow, rightHigh, rightLow, negative, result);
+    }
+
+    /**
+     * Multiplies the value by {@code 10^rescaleFactor}. A negative factor divides the value instead,
+     * rounding half away from zero.
+     */
+    public static Slice rescale(Slice decimal, int rescaleFactor)
+    {
+        Slice result = unscaledDecimal();
+        rescale(decimal, rescaleFactor, result);
+        return result;
+    }
+
+    public static void rescale(Slice decimal, int rescaleFactor, Slice result)
+    {
+        if (rescaleFactor == 0) {
+            result.setBytes(0, decimal, 0, SIZE_OF_LONG_DECIMAL);
+            return;
+        }
+        if (rescaleFactor < 0) {
+            divideRoundUp(toMagnitude(decimal, INTS_PER_DECIMAL), powerOfTenMagnitude(-rescaleFactor), isNegative(decimal), result);
+            return;
+        }
+
+        long high = getHigh(decimal);
+        long low = getLow(decimal);
+        if (rescaleFactor > MAX_PRECISION) {
+            if (high != 0 || low != 0) {
+                throwOverflowException();
+            }
+            pack(result, 0, 0);
+            return;
+        }
+        boolean negative = high < 0;
+        if (negative) {
+            long negatedLow = -low;
+            high = negateHigh(high, low);
+            low = negatedLow;
+        }
+        multiplyMagnitudes(high, low, POWERS_OF_TEN_HIGH[rescaleFactor], POWERS_OF_TEN_LOW[rescaleFactor], negative, result);
+    }
+
+    /**
+     * Divides {@code dividend * 10^dividendRescaleFactor} by {@code divisor}, rounding half away from zero.
+     */
+    public static Slice divideRoundUp(Slice dividend, int dividendRescaleFactor, Slice divisor)
+    {
+        int[] dividendMagnitude = toMagnitude(dividend, magnitudeLength(dividendRescaleFactor));
+        multiplyByPowerOfTen(dividendMagnitude, dividendRescaleFactor);
+
+        Slice result = unscaledDecimal();
+        divideRoundUp(dividendMagnitude, toMagnitude(divisor, INTS_PER_DECIMAL), isNegative(dividend) != isNegative(divisor), result);
+        return result;
+    }
+
+    /**
+     * Returns the remainder of {@code dividend * 10^dividendRescaleFactor} divided by
+     * {@code divisor * 10^divisorRescaleFactor}, which has the sign of the dividend.
+     */
+    public static Slice remainder(Slice dividend, int dividendRescaleFactor, Slice divisor, int divisorRescaleFactor)
+    {
+        int[] dividendMagnitude = toMagnitude(dividend, magnitudeLength(dividendRescaleFactor));
+        multiplyByPowerOfTen(dividendMagnitude, dividendRescaleFactor);
+        int[] divisorMagnitude = toMagnitude(divisor, magnitudeLength(divisorRescaleFactor));
+        multiplyByPowerOfTen(divisorMagnitude, divisorRescaleFactor);
+
+        int[] remainder = new int[divisorMagnitude.length];
+        divide(dividendMagnitude, divisorMagnitude, null, remainder);
+
+        Slice result = unscaledDecimal();
+        packMagnitude(remainder, isNegative(dividend), result);
+        return result;
+    }
+
+    public static void throwIfOverflows(Slice decimal)
+    {
+        throwIfOverflows(getHigh(decimal), getLow(decimal));
+    }
+
+    private static void throwIfOverflows(long high, long low)
+    {
+        if (high < 0) {
+            long negatedLow = -low;
+            high = negateHigh(high, low);
+            low = negatedLow;
+        }
+        if (compareUnsigned(high, low, POWERS_OF_TEN_HIGH[MAX_PRECISION], POWERS_OF_TEN_LOW[MAX_PRECISION]) >= 0) {
+            throwOverflowException();
+        }
+    }
+
+    private static void throwOverflowException()
+    {
+        throw new PrestoException(NUMERIC_VALUE_OUT_OF_RANGE, "Decimal overflow");
+    }
+
+    private static void multiplyMagnitudes(long leftHigh, long leftLow, long rightHigh, long rightLow, boolean negative, Slice result)
+    {
+        if (leftHigh != 0 && rightHigh != 0) {
+            throwOverflowException();
+        }
+        if (leftHigh == 0) {
+            // the operand with a high part comes first
+            long high = leftHigh;
+            long low = leftLow;
+            leftHigh = rightHigh;
+            leftLow = rightLow;
+            rightHigh = high;
+            rightLow = low;
+        }
+
+        long low = leftLow * rightLow;
+        long high = unsignedMultiplyHigh(leftLow, rightLow);
+        if (leftHigh != 0) {
+            if (unsignedMultiplyHigh(leftHigh, rightLow) != 0) {
+                throwOverflowException();
+            }
+            long cross = leftHigh * rightLow;
+            high += cross;
+            if (Long.compareUnsigned(high, cross) < 0) {
+                throwOverflowException();
+            }
+        }
+        if (high < 0) {
+            throwOverflowException();
+        }
+        throwIfOverflows(high, low);
+
+        if (negative) {
+            long negatedLow = -low;
+            high = negateHigh(high, low);
+            low = negatedLow;
+        }
+        pack(result, high, low);
+    }
+
+    private static void divideRoundUp(int[] dividend, int[] divisor, boolean negative, Slice result)
+    {
+        int[] quotient = new int[dividend.length];
+        int[] remainder = new int[divisor.length];
+        divide(dividend, divisor, quotient, remainder);
+
+        // round half away from zero, that is when twice the remainder is at least the divisor
+        int carry = 0;
+        int comparison = 0;
+        for (int i = 0; i < remainder.length; i++) {
+            int doubled = (remainder[i] << 1) | carry;
+            carry = remainder[i] >>> 31;
+            int wordComparison = Integer.compareUnsigned(doubled, divisor[i]);
+            if (wordComparison != 0) {
+                comparison = wordComparison;
+            }
+        }
+        if (carry != 0 || comparison >= 0) {
+            for (int i = 0; i < quotient.length; i++) {
+                quotient[i]++;
+                if (quotient[i] != 0) {
+                    break;
+                }
+            }
+        }
+        packMagnitude(quotient, negative, result);
+    }
+
+    private static void packMagnitude(int[] magnitude, boolean negative, Slice result)
+    {
+        for (int i = INTS_PER_DECIMAL; i < magnitude.length; i++) {
+            if (magnitude[i] != 0) {
+                throwOverflowException();
+            }
+        }
+        long high = ((magnitude[3] & INT_MASK) << 32) | (magnitude[2] & INT_MASK);
+        long low = ((magnitude[1] & INT_MASK) << 32) | (magnitude[0] & INT_MASK);
+        if (high < 0) {
+            throwOverflowException();
+        }
+        throwIfOverflows(high, low);
+
+        if (negative) {
+            long negatedLow = -low;
+            high = negateHigh(high, low);
+            low = negatedLow;
+        }
+        pack(result, high, low);
+    }
+
+    /**
+     * Divides the magnitudes, which are unsigned integers stored in ints with the least significant
+     * int first, using Knuth's Algorithm D from The Art of Computer Programming, Volume 2, 4.3.1.
+     * The quotient must be at least as long as the dividend, or null, and the remainder at least as
+     * long as the divisor.
+     */
+    private static void divide(int[] dividend, int[] divisor, int[] quotient, int[] remainder)
+    {
+        int divisorLength = significantLength(divisor);
+        if (divisorLength == 0) {
+            throw new PrestoException(DIVISION_BY_ZERO, "Division by zero");
+        }
+        int dividendLength = significantLength(dividend);
+        if (dividendLength < divisorLength) {
+            System.arraycopy(dividend, 0, remainder, 0, dividendLength);
+            return;
+        }
+
+        if (divisorLength == 1) {
+            long divisorValue = divisor[0] & INT_MASK;
+            long remainderValue = 0;
+            for (int i = dividendLength - 1; i >= 0; i--) {
+                long value = (remainderValue << 32) | (dividend[i] & INT_MASK);
+                if (quotient != null) {
+                    quotient[i] = (int) Long.divideUnsigned(value, divisorValue);
+                }
+                remainderValue = Long.remainderUnsigned(value, divisorValue);
+            }
+            remainder[0] = (int) remainderValue;
+            return;
+        }
+
+        // normalize, so the most significant int of the divisor has its top bit set
+        int shift = Integer.numberOfLeadingZeros(divisor[divisorLength - 1]);
+        int[] normalizedDivisor = shiftLeft(divisor, divisorLength, shift, divisorLength);
+        int[] normalizedDividend = shiftLeft(dividend, dividendLength, shift, dividendLength + 1);
+
+        long divisorHigh = normalizedDivisor[divisorLength - 1] & INT_MASK;
+        long divisorNext = normalizedDivisor[divisorLength - 2] & INT_MASK;
+        for (int j = dividendLength - divisorLength; j >= 0; j--) {
+            // estimate the quotient digit from the top two ints of the remaining dividend
+            long top = ((normalizedDividend[j + divisorLength] & INT_MASK) << 32) | (normalizedDividend[j + divisorLength - 1] & INT_MASK);
+            long estimate = Long.divideUnsigned(top, divisorHigh);
+            long estimateRemainder = Long.remainderUnsigned(top, divisorHigh);
+            while (estimate > INT_MASK ||
+                    Long.compareUnsigned(estimate * divisorNext, (estimateRemainder << 32) | (normalizedDividend[j + divisorLength - 2] & INT_MASK)) > 0) {
+                estimate--;
+                estimateRemainder += divisorHigh;
+                if (estimateRemainder > INT_MASK) {
+                    break;
+                }
+            }
+
+            // multiply and subtract
+            long borrow = 0;
+            for (int i = 0; i < divisorLength; i++) {
+                long product = estimate * (normalizedDivisor[i] & INT_MASK);
+                long difference = (normalizedDividend[i + j] & INT_MASK) - borrow - (product & INT_MASK);
+                normalizedDividend[i + j] = (int) difference;
+                borrow = (product >>> 32) - (difference >> 32);
+            }
+            long difference = (normalizedDividend[j + divisorLength] & INT_MASK) - borrow;
+            normalizedDividend[j + divisorLength] = (int) difference;
+
+            if (difference < 0) {
+                // the estimate was one too large, so add the divisor back
+                estimate--;
+                long carry = 0;
+                for (int i = 0; i < divisorLength; i++) {
+                    long sum = (normalizedDividend[i + j] & INT_MASK) + (normalizedDivisor[i] & INT_MASK) + carry;
+                    normalizedDividend[i + j] = (int) sum;
+                    carry = sum >>> 32;
+                }
+                normalizedDividend[j + divisorLength] += (int) carry;
+            }
+            if (quotient != null) {
+                quotient[j] = (int) estimate;
+            }
+        }
+
+        // denormalize the remainder
+        for (int i = 0; i < divisorLength; i++) {
+            remainder[i] = shift == 0 ? normalizedDividend[i] : (normalizedDividend[i] >>> shift) | (normalizedDividend[i + 1] << (32 - shift));
+        }
+    }
+
+    private static int[] shiftLeft(int[] value, int length, int shift, int resultLength)
+    {
+        int[] result = new int[resultLength];
+        if (shift == 0) {
+            System.arraycopy(value, 0, result, 0, length);
+            return result;
+        }
+        if (resultLength > length) {
+            result[length] = value[length - 1] >>> (32 - shift);
+        }
+        for (int i = length - 1; i > 0; i--) {
+            result[i] = (value[i] << shift) | (value[i - 1] >>> (32 - shift));
+        }
+        result[0] = value[0] << shift;
+        return result;
+    }
+
+    private static int significantLength(int[] magnitude)
+    {
+        int length = magnitude.length;
+        while (length > 0 && magnitude[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the number of ints needed for a decimal multiplied by {@code 10^rescaleFactor}.
+     */
+    private static int magnitudeLength(int rescaleFactor)
+    {
+        // each multiplication by at most 10^9 adds at most one int
+        return INTS_PER_DECIMAL + (rescaleFactor + MAX_POWER_OF_TEN_INT - 1) / MAX_POWER_OF_TEN_INT;
+    }
+
+    private static int[] toMagnitude(Slice decimal, int length)
+    {
+        long high = getHigh(decimal);
+        long low = getLow(decimal);
+        if (high < 0) {
+            long negatedLow = -low;
+            high = negateHigh(high, low);
+            low = negatedLow;
+        }
+        int[] magnitude = new int[length];
+        magnitude[0] = (int) low;
+        magnitude[1] = (int) (low >>> 32);
+        magnitude[2] = (int) high;
+        magnitude[3] = (int) (high >>> 32);
+        return magnitude;
+    }
+
+    private static int[] powerOfTenMagnitude(int power)
+    {
+        int[] magnitude = new int[magnitudeLength(power)];
+        magnitude[0] = 1;
+        multiplyByPowerOfTen(magnitude, power);
+        return magnitude;
+    }
+
+    private static void multiplyByPowerOfTen(int[] magnitude, int power)
+    {
+        while (power > 0) {
+            int step = Math.min(power, MAX_POWER_OF_TEN_INT);
+            long factor = POWERS_OF_TEN_INT[step];
+            long carry = 0;
+            for (int i = 0; i < magnitude.length; i++) {
+                long product = (magnitude[i] & INT_MASK) * factor + carry;
+                magnitude[i] = (int) product;
+                carry = product >>> 32;
+            }
+            power -= step;
+        }
+    }
+
+    private static int signum(Slice decimal)
+    {
+        long high = getHigh(decimal);
+        if (high != 0) {
+            return high < 0 ? -1 : 1;
+        }
+        return getLow(decimal) == 0 ? 0 : 1;
+    }
+
+    private static int compareUnsigned(long leftHigh, long leftLow, long rightHigh, long rightLow)
+    {
+        if (leftHigh != rightHigh) {
+            return Long.compareUnsigned(leftHigh, rightHigh);
+        }
+        return Long.compareUnsigned(leftLow, rightLow);
+    }
+
+    private static long negateHigh(long high, long low)
+    {
+        return ~high + (low == 0 ? 1 : 0);
+    }
+
+    /**
+     * Returns the high 64 bits of the unsigned 128-bit product of the arguments.
+     */
+    private static long unsignedMultiplyHigh(long left, long right)
+    {
+        long leftLow = left & INT_MASK;
+        long leftHigh = left >>> 32;
+        long rightLow = right & INT_MASK;
+        long rightHigh = right >>> 32;
+
+        long lowLow = leftLow * rightLow;
+        long highLow = leftHigh * rightLow;
+        long lowHigh = leftLow * rightHigh;
+        long highHigh = leftHigh * rightHigh;
+
+        long cross = (lowLow >>> 32) + (highLow & INT_MASK) + lowHigh;
+        return (highLow >>> 32) + (cross >>> 32) + highHigh;
+    }
+
+    private static long getHigh(Slice decimal)
+    {
+        return Long.reverseBytes(decimal.getLong(0));
+    }
+
+    private static long getLow(Slice decimal)
+    {
+        return Long.reverseBytes(decimal.getLong(SIZE_OF_LONG));
+    }
+
+    private static void pack(Slice result, long high, long low)
+    {
+        result.setLong(0, Long.reverseBytes(high));
+        result.setLong(SIZE_OF_LONG, Long.reverseBytes(low));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi.type;
+
+import io.airlift.slice.Slice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.math.BigInteger;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.spi.type.Decimals.bigIntegerTenToNth;
+import static com.facebook.presto.spi.type.Decimals.checkOverflow;
+import static com.facebook.presto.spi.type.Decimals.decodeUnscaledValue;
+import static com.facebook.presto.spi.type.Decimals.encodeUnscaledValue;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.add;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.compare;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.divideRoundUp;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.multiply;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.rescale;
+
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OperationsPerInvocation(BenchmarkUnscaledDecimal128Arithmetic.VALUES)
+public class BenchmarkUnscaledDecimal128Arithmetic
+{
+    static final int VALUES = 1000;
+
+    @Benchmark
+    public Object addSlice(Data data)
+    {
+        Slice result = UnscaledDecimal128Arithmetic.unscaledDecimal();
+        for (int i = 0; i < VALUES; i++) {
+            add(data.left[i], data.right[i], result);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object addBigInteger(Data data)
+    {
+        Slice result = null;
+        for (int i = 0; i < VALUES; i++) {
+            BigInteger sum = decodeUnscaledValue(data.left[i]).add(decodeUnscaledValue(data.right[i]));
+            checkOverflow(sum);
+            result = encodeUnscaledValue(sum);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object rescaleAndAddSlice(Data data)
+    {
+        Slice result = UnscaledDecimal128Arithmetic.unscaledDecimal();
+        for (int i = 0; i < VALUES; i++) {
+            rescale(data.left[i], 2, result);
+            add(result, data.right[i], result);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object rescaleAndAddBigInteger(Data data)
+    {
+        Slice result = null;
+        for (int i = 0; i < VALUES; i++) {
+            BigInteger sum = decodeUnscaledValue(data.left[i]).multiply(bigIntegerTenToNth(2)).add(decodeUnscaledValue(data.right[i]));
+            checkOverflow(sum);
+            result = encodeUnscaledValue(sum);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object multiplySlice(Data data)
+    {
+        Slice result = UnscaledDecimal128Arithmetic.unscaledDecimal();
+        for (int i = 0; i < VALUES; i++) {
+            multiply(data.left[i], data.small[i], result);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object multiplyBigInteger(Data data)
+    {
+        Slice result = null;
+        for (int i = 0; i < VALUES; i++) {
+            BigInteger product = decodeUnscaledValue(data.left[i]).multiply(decodeUnscaledValue(data.small[i]));
+            checkOverflow(product);
+            result = encodeUnscaledValue(product);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object divideSlice(Data data)
+    {
+        Slice result = null;
+        for (int i = 0; i < VALUES; i++) {
+            result = divideRoundUp(data.left[i], 2, data.small[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object divideBigInteger(Data data)
+    {
+        Slice result = null;
+        for (int i = 0; i < VALUES; i++) {
+            BigInteger[] quotientAndRemainder = decodeUnscaledValue(data.left[i]).multiply(bigIntegerTenToNth(2)).divideAndRemainder(decodeUnscaledValue(data.small[i]));
+            BigInteger quotient = quotientAndRemainder[0];
+            if (quotientAndRemainder[1].abs().shiftLeft(1).compareTo(decodeUnscaledValue(data.small[i]).abs()) >= 0) {
+                quotient = quotient.add(BigInteger.valueOf(quotient.signum()));
+            }
+            checkOverflow(quotient);
+            result = encodeUnscaledValue(quotient);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int compareSlice(Data data)
+    {
+        int result = 0;
+        for (int i = 0; i < VALUES; i++) {
+            result += compare(data.left[i], data.right[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int compareBigInteger(Data data)
+    {
+        int result = 0;
+        for (int i = 0; i < VALUES; i++) {
+            result += decodeUnscaledValue(data.left[i]).compareTo(decodeUnscaledValue(data.right[i]));
+        }
+        return result;
+    }
+
+    @State(Scope.Thread)
+    public static class Data
+    {
+        private final Slice[] left = new Slice[VALUES];
+        private final Slice[] right = new Slice[VALUES];
+        private final Slice[] small = new Slice[VALUES];
+
+        @Setup
+        public void setup()
+        {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < VALUES; i++) {
+                // values of DECIMAL(38, 2) that can be rescaled by two digits
+                left[i] = encodeUnscaledValue(new BigInteger(110, random).subtract(BigInteger.ONE.shiftLeft(109)));
+                right[i] = encodeUnscaledValue(new BigInteger(110, random).subtract(BigInteger.ONE.shiftLeft(109)));
+                small[i] = encodeUnscaledValue(random.nextLong(1, 1_000_000));
+            }
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkUnscaledDecimal128Arithmetic.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi.type;
+
+import com.facebook.presto.spi.PrestoException;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.facebook.presto.spi.StandardErrorCode.DIVISION_BY_ZERO;
+import static com.facebook.presto.spi.StandardErrorCode.NUMERIC_VALUE_OUT_OF_RANGE;
+import static com.facebook.presto.spi.type.Decimals.MAX_DECIMAL_UNSCALED_VALUE;
+import static com.facebook.presto.spi.type.Decimals.MIN_DECIMAL_UNSCALED_VALUE;
+import static com.facebook.presto.spi.type.Decimals.bigIntegerTenToNth;
+import static com.facebook.presto.spi.type.Decimals.decodeUnscaledValue;
+import static com.facebook.presto.spi.type.Decimals.encodeUnscaledValue;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.add;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.compare;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.compareRescaled;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.divideRoundUp;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.multiply;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.negate;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.overflows;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.remainder;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.rescale;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.subtract;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimal;
+import static com.facebook.presto.spi.type.UnscaledDecimal128Arithmetic.unscaledDecimalToUnscaledLong;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class TestUnscaledDecimal128Arithmetic
+{
+    private static final List<BigInteger> VALUES = values();
+
+    @Test
+    public void testLongConversion()
+    {
+        for (long value : new long[] {0, 1, -1, 42, -42, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            Slice decimal = unscaledDecimal(value);
+            assertEquals(decimal, encodeUnscaledValue(value));
+            assertEquals(unscaledDecimalToUnscaledLong(decimal), value);
+        }
+        try {
+            unscaledDecimalToUnscaledLong(encodeUnscaledValue(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)));
+            fail("expected ArithmeticException");
+        }
+        catch (ArithmeticException expected) {
+        }
+    }
+
+    @Test
+    public void testAddSubtractMultiply()
+    {
+        for (BigInteger left : VALUES) {
+            for (BigInteger right : VALUES) {
+                assertResult(() -> add(encodeUnscaledValue(left), encodeUnscaledValue(right)), left.add(right));
+                assertResult(() -> subtract(encodeUnscaledValue(left), encodeUnscaledValue(right)), left.subtract(right));
+                assertResult(() -> multiply(encodeUnscaledValue(left), encodeUnscaledValue(right)), left.multiply(right));
+            }
+        }
+    }
+
+    @Test
+    public void testCompareAndNegate()
+    {
+        for (BigInteger left : VALUES) {
+            assertEquals(decodeUnscaledValue(negate(encodeUnscaledValue(left))), left.negate());
+            for (BigInteger right : VALUES) {
+                assertEquals(Integer.signum(compare(encodeUnscaledValue(left), encodeUnscaledValue(right))), left.compareTo(right));
+                for (int rescaleFactor : new int[] {1, 9, 18, 38}) {
+                    assertEquals(
+                            compareRescaled(encodeUnscaledValue(left), rescaleFactor, encodeUnscaledValue(right), 0),
+                            left.multiply(bigIntegerTenToNth(rescaleFactor)).compareTo(right));
+                    assertEquals(
+                            compareRescaled(encodeUnscaledValue(left), 0, encodeUnscaledValue(right), rescaleFactor),
+                            left.compareTo(right.multiply(bigIntegerTenToNth(rescaleFactor))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRescale()
+    {
+        for (BigInteger value : VALUES) {
+            for (int rescaleFactor = -40; rescaleFactor <= 40; rescaleFactor++) {
+                BigInteger expected;
+                if (rescaleFactor >= 0) {
+                    expected = value.multiply(BigInteger.TEN.pow(rescaleFactor));
+                }
+                else {
+                    expected = new BigDecimal(value).divide(new BigDecimal(BigInteger.TEN.pow(-rescaleFactor)), 0, RoundingMode.HALF_UP).toBigIntegerExact();
+                }
+                int factor = rescaleFactor;
+                assertResult(() -> rescale(encodeUnscaledValue(value), factor), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testDivideAndRemainder()
+    {
+        for (BigInteger dividend : VALUES) {
+            for (BigInteger divisor : VALUES) {
+                for (int rescaleFactor : new int[] {0, 1, 10, 38, 77}) {
+                    BigInteger rescaledDividend = dividend.multiply(BigInteger.TEN.pow(rescaleFactor));
+                    if (divisor.signum() == 0) {
+                        assertDivisionByZero(() -> divideRoundUp(encodeUnscaledValue(dividend), rescaleFactor, encodeUnscaledValue(divisor)));
+                        assertDivisionByZero(() -> remainder(encodeUnscaledValue(dividend), rescaleFactor, encodeUnscaledValue(divisor), 0));
+                        continue;
+                    }
+                    BigInteger quotient = new BigDecimal(rescaledDividend).divide(new BigDecimal(divisor), 0, RoundingMode.HALF_UP).toBigIntegerExact();
+                    assertResult(() -> divideRoundUp(encodeUnscaledValue(dividend), rescaleFactor, encodeUnscaledValue(divisor)), quotient);
+                    assertResult(() -> remainder(encodeUnscaledValue(dividend), rescaleFactor, encodeUnscaledValue(divisor), 0), rescaledDividend.remainder(divisor));
+                    assertResult(
+                            () -> remainder(encodeUnscaledValue(dividend), 0, encodeUnscaledValue(divisor), rescaleFactor),
+                            dividend.remainder(divisor.multiply(BigInteger.TEN.pow(rescaleFactor))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOverflows()
+    {
+        assertEquals(overflows(encodeUnscaledValue(MAX_DECIMAL_UNSCALED_VALUE), 38), false);
+        assertEquals(overflows(encodeUnscaledValue(MIN_DECIMAL_UNSCALED_VALUE), 38), false);
+        assertEquals(overflows(unscaledDecimal(99), 2), false);
+        assertEquals(overflows(unscaledDecimal(-99), 2), false);
+        assertEquals(overflows(unscaledDecimal(100), 2), true);
+        assertEquals(overflows(unscaledDecimal(-100), 2), true);
+        assertEquals(overflows(unscaledDecimal(0), 0), false);
+        assertEquals(overflows(unscaledDecimal(1), 0), true);
+    }
+
+    private static void assertResult(DecimalOperation operation, BigInteger expected)
+    {
+        if (expected.compareTo(MAX_DECIMAL_UNSCALED_VALUE) > 0 || expected.compareTo(MIN_DECIMAL_UNSCALED_VALUE) < 0) {
+            try {
+                operation.apply();
+                fail("expected overflow for " + expected);
+            }
+            catch (PrestoException e) {
+                assertEquals(e.getErrorCode(), NUMERIC_VALUE_OUT_OF_RANGE.toErrorCode());
+            }
+        }
+        else {
+            assertEquals(decodeUnscaledValue(operation.apply()), expected);
+        }
+    }
+
+    private static void assertDivisionByZero(DecimalOperation operation)
+    {
+        try {
+            operation.apply();
+            fail("expected division by zero");
+        }
+        catch (PrestoException e) {
+            assertEquals(e.getErrorCode(), DIVISION_BY_ZERO.toErrorCode());
+        }
+    }
+
+    private static List<BigInteger> values()
+    {
+        List<BigInteger> values = new ArrayList<>();
+        values.add(BigInteger.ZERO);
+        values.add(BigInteger.ONE);
+        values.add(BigInteger.valueOf(5));
+        values.add(BigInteger.valueOf(15));
+        values.add(BigInteger.valueOf(Integer.MAX_VALUE));
+        values.add(BigInteger.ONE.shiftLeft(32));
+        values.add(BigInteger.valueOf(Long.MAX_VALUE));
+        values.add(BigInteger.ONE.shiftLeft(64));
+        values.add(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE));
+        values.add(BigInteger.ONE.shiftLeft(96).add(BigInteger.valueOf(12345)));
+        values.add(bigIntegerTenToNth(19));
+        values.add(bigIntegerTenToNth(37).multiply(BigInteger.valueOf(5)));
+        values.add(MAX_DECIMAL_UNSCALED_VALUE);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            values.add(new BigInteger(1 + random.nextInt(126), random).mod(MAX_DECIMAL_UNSCALED_VALUE));
+        }
+
+        List<BigInteger> result = new ArrayList<>(values);
+        for (BigInteger value : values) {
+            if (value.signum() != 0) {
+                result.add(value.negate());
+            }
+        }
+        return result;
+    }
+
+    private interface DecimalOperation
+    {
+        Slice apply();
+    }
+}
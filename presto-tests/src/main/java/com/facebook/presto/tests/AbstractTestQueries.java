@@ -47,6 +47,7 @@ import java.sql.Timestamp;
 import java.util.List;
 import java.util.Set;
 
+import static com.facebook.presto.SystemSessionProperties.RANGE_JOIN;
 import static com.facebook.presto.connector.informationSchema.InformationSchemaMetadata.INFORMATION_SCHEMA;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DateType.DATE;
@@ -1784,6 +1785,40 @@ public abstract class AbstractTestQueries
                 "ON NOT (a.orderkey <= b.orderkey)");
     }
 
+    @Test
+    public void testRangeJoin()
+            throws Exception
+    {
+        Session session = getSession().withSystemProperty(RANGE_JOIN, "true");
+        assertQuery(session, "" +
+                "SELECT a.orderkey, b.orderkey FROM (SELECT * FROM orders WHERE orderkey < 100) a " +
+                "JOIN (SELECT * FROM orders WHERE orderkey < 100) b ON a.orderkey BETWEEN b.orderkey AND b.orderkey + 3");
+        assertQuery(session, "" +
+                "SELECT a.orderkey, b.orderkey FROM (SELECT * FROM orders WHERE orderkey < 100) a " +
+                "JOIN (SELECT * FROM orders WHERE orderkey < 50) b ON a.totalprice < b.totalprice");
+        assertQuery(session, "" +
+                "SELECT a.orderkey, b.orderkey FROM (SELECT * FROM orders WHERE orderkey < 100) a, (SELECT * FROM orders WHERE orderkey < 100) b " +
+                "WHERE b.orderkey >= a.orderkey AND b.orderkey <= a.orderkey + 5 AND b.custkey > a.custkey");
+        assertQuery(session, "" +
+                "SELECT a.orderkey, b.orderkey FROM (SELECT * FROM orders WHERE orderkey < 100) a " +
+                "LEFT JOIN (SELECT * FROM orders WHERE orderkey < 50) b ON a.orderkey > b.orderkey * 3");
+        assertQuery(session, "" +
+                "SELECT a.orderkey, b.orderkey FROM (SELECT * FROM orders WHERE orderkey < 50) a " +
+                "RIGHT JOIN (SELECT * FROM orders WHERE orderkey < 100) b ON a.orderkey > b.orderkey");
+        assertQuery(session, "" +
+                "SELECT COUNT(*), SUM(l.quantity) FROM orders o JOIN lineitem l " +
+                "ON o.orderkey = l.orderkey AND l.partkey BETWEEN o.custkey AND o.custkey * 20");
+        assertQuery(session, "" +
+                "SELECT o.orderkey, l.linenumber FROM orders o LEFT JOIN lineitem l " +
+                "ON o.orderkey = l.orderkey AND l.linenumber > o.shippriority + 5");
+
+        // comparisons with NaN are false and negative zero equals zero
+        assertQuery(session, "" +
+                        "SELECT b.k, p.k FROM (VALUES (1, nan()), (2, 1.0), (3, -0.0)) b (k, x) " +
+                        "JOIN (VALUES (10, 0.0, nan()), (11, 0.0, 2.0), (12, nan(), nan())) p (k, lo, hi) ON b.x BETWEEN p.lo AND p.hi",
+                "VALUES (2, 11), (3, 11)");
+    }
+
     @Test
     public void testJoinWithRightConstantEquality()
             throws Exception
@@ -4622,6 +4657,18 @@ public abstract class AbstractTestQueries
         assertEquals(getOnlyElement(result.getOnlyColumnAsSet()), getExplainPlan("SELECT * FROM orders", LOGICAL));
     }
 
+    @Test
+    public void testFusedJsonExtractions()
+            throws Exception
+    {
+        String query = "SELECT json_extract_scalar(json, '$.a'), json_extract_scalar(json, '$.b[1]'), json_extract_scalar(json, '$.a') || 'x', json_extract_scalar(json, '$.c') " +
+                "FROM (VALUES '{\"a\": \"1\", \"b\": [true, 2]}', '{\"b\": 3, \"c\": 4.5}', 'not json') t(json)";
+        assertQuery(query, "VALUES ('1', '2', '1x', NULL), (NULL, NULL, NULL, '4.5'), (NULL, NULL, NULL, NULL)");
+
+        String plan = (String) getOnlyElement(computeActual("EXPLAIN " + query).getOnlyColumnAsSet());
+        assertTrue(plan.contains("json_extract_scalars"), plan);
+    }
+
     @Test
     public void testShowCatalogs()
             throws Exception